@@ -166,6 +166,8 @@ public abstract class BaseSingleStageBrokerRequestHandler extends BaseBrokerRequ
   protected BlockingQueue<Pair<String, String>> _multistageCompileQueryQueue;
   protected ImplicitHybridTableRouteProvider _implicitHybridTableRouteProvider;
   protected LogicalTableRouteProvider _logicalTableRouteProvider;
+  // Null when the result cache is disabled on the broker
+  protected final BrokerResultCache _resultCache;
 
   public BaseSingleStageBrokerRequestHandler(PinotConfiguration config, String brokerId,
       BrokerRoutingManager routingManager, AccessControlFactory accessControlFactory,
@@ -203,6 +205,16 @@ public abstract class BaseSingleStageBrokerRequestHandler extends BaseBrokerRequ
     _implicitHybridTableRouteProvider = new ImplicitHybridTableRouteProvider();
     _logicalTableRouteProvider = new LogicalTableRouteProvider();
 
+    int resultCacheMaxEntries = _config.getProperty(Broker.CONFIG_OF_BROKER_RESULT_CACHE_MAX_ENTRIES,
+        Broker.DEFAULT_BROKER_RESULT_CACHE_MAX_ENTRIES);
+    if (resultCacheMaxEntries > 0) {
+      _resultCache = new BrokerResultCache(resultCacheMaxEntries,
+          _config.getProperty(Broker.CONFIG_OF_BROKER_RESULT_CACHE_MAX_ROWS_PER_ENTRY,
+              Broker.DEFAULT_BROKER_RESULT_CACHE_MAX_ROWS_PER_ENTRY));
+    } else {
+      _resultCache = null;
+    }
+
     LOGGER.info("Initialized {} with broker id: {}, timeout: {}ms, query response limit: {}, "
             + "default query limit {}, query log max length: {}, query log max rate: {}, query cancellation "
             + "enabled: {}", getClass().getSimpleName(), _brokerId, _brokerTimeoutMs, _queryResponseLimit,
@@ -612,6 +624,27 @@ public abstract class BaseSingleStageBrokerRequestHandler extends BaseBrokerRequ
       realtimeBrokerRequest.getPinotQuery().setFilterExpression(null);
     }
 
+    // Serve the query from the result cache if possible. Only queries on the OFFLINE table are cached because the
+    // results of the REALTIME table change as new records get ingested.
+    BrokerResultCache.CacheKey resultCacheKey = null;
+    Long routingVersion = null;
+    if (_resultCache != null && logicalTableConfig == null && offlineBrokerRequest != null
+        && realtimeBrokerRequest == null && !pinotQuery.isExplain() && !requestContext.isSampledRequest()
+        && offlineTableQueryConfig != null && Boolean.TRUE.equals(offlineTableQueryConfig.getUseResultCache())) {
+      routingVersion = _routingManager.getRoutingVersion(offlineTableName);
+      if (routingVersion != null) {
+        resultCacheKey =
+            BrokerResultCache.getCacheKey(offlineTableName, pinotQuery, offlineBrokerRequest.getPinotQuery());
+        BrokerResponseNative cachedBrokerResponse = _resultCache.get(resultCacheKey, routingVersion);
+        if (cachedBrokerResponse != null) {
+          _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.RESULT_CACHE_HITS, 1);
+          return getCachedBrokerResponse(cachedBrokerResponse, pinotQuery, requestContext, tableName, rawTableName,
+              requesterIdentity, rlsFiltersApplied.get());
+        }
+        _brokerMetrics.addMeteredTableValue(rawTableName, BrokerMeter.RESULT_CACHE_MISSES, 1);
+      }
+    }
+
     // Calculate routing table for the query
     // TODO: Modify RoutingManager interface to directly take PinotQuery
     long routingStartTimeNs = System.nanoTime();
@@ -820,6 +853,10 @@ public abstract class BaseSingleStageBrokerRequestHandler extends BaseBrokerRequ
     // this is an attempt to return more faithful information based on other sources
     fillEmptyResponseSchema(pinotQuery, brokerResponse, schema, database, query);
 
+    if (resultCacheKey != null) {
+      _resultCache.put(resultCacheKey, routingVersion, brokerResponse);
+    }
+
     // Set total query processing time
     long totalTimeMs = System.currentTimeMillis() - requestContext.getRequestArrivalTimeMillis();
     brokerResponse.setTimeUsedMs(totalTimeMs);
@@ -1081,6 +1118,26 @@ public abstract class BaseSingleStageBrokerRequestHandler extends BaseBrokerRequ
     return brokerResponse;
   }
 
+  private BrokerResponseNative getCachedBrokerResponse(BrokerResponseNative brokerResponse, PinotQuery pinotQuery,
+      RequestContext requestContext, String tableName, String rawTableName,
+      @Nullable RequesterIdentity requesterIdentity, boolean rlsFiltersApplied) {
+    brokerResponse.setTablesQueried(Set.of(rawTableName));
+    brokerResponse.setRLSFiltersApplied(rlsFiltersApplied);
+    long totalTimeMs = System.currentTimeMillis() - requestContext.getRequestArrivalTimeMillis();
+    brokerResponse.setTimeUsedMs(totalTimeMs);
+    augmentStatistics(requestContext, brokerResponse);
+    if (QueryOptionsUtils.shouldDropResults(pinotQuery.getQueryOptions())) {
+      brokerResponse.setResultTable(null);
+    }
+    BrokerTimer totalTimeTimer = QueryOptionsUtils.isSecondaryWorkload(pinotQuery.getQueryOptions())
+        ? BrokerTimer.SECONDARY_WORKLOAD_QUERY_TOTAL_TIME_MS : BrokerTimer.QUERY_TOTAL_TIME_MS;
+    _brokerMetrics.addTimedTableValue(rawTableName, totalTimeTimer, totalTimeMs, TimeUnit.MILLISECONDS);
+    _brokerMetrics.addTimedValue(totalTimeTimer, totalTimeMs, TimeUnit.MILLISECONDS);
+    _queryLogger.log(new QueryLogger.QueryLogParams(requestContext, tableName, brokerResponse,
+        QueryLogger.QueryLogParams.QueryEngine.SINGLE_STAGE, requesterIdentity, null));
+    return brokerResponse;
+  }
+
   private void fillEmptyResponseSchema(PinotQuery pinotQuery, BrokerResponse brokerResponse, Schema schema,
       String database, String query) {
     if (brokerResponse.getNumRowsResultSet() == 0) {
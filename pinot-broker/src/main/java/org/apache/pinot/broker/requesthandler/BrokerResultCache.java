@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.requesthandler;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Objects;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.request.PinotQuery;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.common.response.broker.ResultTable;
+
+
+/**
+ * Bounded LRU cache of the single-stage query results on the broker.
+ *
+ * <p>The results are keyed by the table name and the compiled queries (the broker side query used to reduce the results
+ * and the query sent to the servers). Each result is tagged with the routing version of the table when the query was
+ * routed (see {@code BrokerRoutingManager.getRoutingVersion()}), and a result computed with a stale routing version is
+ * treated as a miss and evicted, so that the cache is invalidated whenever the external view or the segment ZK metadata
+ * of the table changes.
+ */
+@ThreadSafe
+public class BrokerResultCache {
+  private final Cache<CacheKey, CachedResult> _cache;
+  private final int _maxRowsPerEntry;
+
+  public BrokerResultCache(int maxEntries, int maxRowsPerEntry) {
+    _cache = CacheBuilder.newBuilder().maximumSize(maxEntries).build();
+    _maxRowsPerEntry = maxRowsPerEntry;
+  }
+
+  /**
+   * Returns the cache key for the given queries. The queries are copied because they can be modified after the lookup
+   * (e.g. query options are added before sending the request to the servers).
+   */
+  public static CacheKey getCacheKey(String tableNameWithType, PinotQuery pinotQuery, PinotQuery serverPinotQuery) {
+    PinotQuery pinotQueryCopy = pinotQuery.deepCopy();
+    PinotQuery serverPinotQueryCopy = serverPinotQuery == pinotQuery ? pinotQueryCopy : serverPinotQuery.deepCopy();
+    return new CacheKey(tableNameWithType, pinotQueryCopy, serverPinotQueryCopy);
+  }
+
+  /**
+   * Returns a new broker response from the cached result, or {@code null} if the result is not cached or is computed
+   * with a different routing version.
+   */
+  @Nullable
+  public BrokerResponseNative get(CacheKey key, long routingVersion) {
+    CachedResult cachedResult = _cache.getIfPresent(key);
+    if (cachedResult == null) {
+      return null;
+    }
+    if (cachedResult._routingVersion != routingVersion) {
+      _cache.asMap().remove(key, cachedResult);
+      return null;
+    }
+    return cachedResult.toBrokerResponse();
+  }
+
+  /**
+   * Caches the result of the given broker response if it is complete (no exception, all servers responded) and not too
+   * large.
+   */
+  public void put(CacheKey key, long routingVersion, BrokerResponseNative brokerResponse) {
+    ResultTable resultTable = brokerResponse.getResultTable();
+    if (resultTable == null || brokerResponse.isPartialResult()
+        || brokerResponse.getNumServersResponded() != brokerResponse.getNumServersQueried()
+        || resultTable.getRows().size() > _maxRowsPerEntry) {
+      return;
+    }
+    _cache.put(key, new CachedResult(routingVersion, brokerResponse));
+  }
+
+  @VisibleForTesting
+  long size() {
+    return _cache.size();
+  }
+
+  public static class CacheKey {
+    private final String _tableNameWithType;
+    private final PinotQuery _pinotQuery;
+    private final PinotQuery _serverPinotQuery;
+
+    private CacheKey(String tableNameWithType, PinotQuery pinotQuery, PinotQuery serverPinotQuery) {
+      _tableNameWithType = tableNameWithType;
+      _pinotQuery = pinotQuery;
+      _serverPinotQuery = serverPinotQuery;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof CacheKey)) {
+        return false;
+      }
+      CacheKey that = (CacheKey) o;
+      return _tableNameWithType.equals(that._tableNameWithType) && _pinotQuery.equals(that._pinotQuery)
+          && _serverPinotQuery.equals(that._serverPinotQuery);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(_tableNameWithType, _pinotQuery, _serverPinotQuery);
+    }
+  }
+
+  /**
+   * The cached result, which only keeps the fields describing the result. The execution stats are not cached because
+   * the query is not executed when the result is served from the cache.
+   */
+  private static class CachedResult {
+    final long _routingVersion;
+    final ResultTable _resultTable;
+    final int _numRowsResultSet;
+    final long _totalDocs;
+    final boolean _groupsTrimmed;
+    final boolean _numGroupsWarningLimitReached;
+
+    CachedResult(long routingVersion, BrokerResponseNative brokerResponse) {
+      _routingVersion = routingVersion;
+      _resultTable = brokerResponse.getResultTable();
+      _numRowsResultSet = brokerResponse.getNumRowsResultSet();
+      _totalDocs = brokerResponse.getTotalDocs();
+      _groupsTrimmed = brokerResponse.isGroupsTrimmed();
+      _numGroupsWarningLimitReached = brokerResponse.isNumGroupsWarningLimitReached();
+    }
+
+    BrokerResponseNative toBrokerResponse() {
+      BrokerResponseNative brokerResponse = new BrokerResponseNative();
+      brokerResponse.setResultTable(_resultTable);
+      brokerResponse.setNumRowsResultSet(_numRowsResultSet);
+      brokerResponse.setTotalDocs(_totalDocs);
+      brokerResponse.setGroupsTrimmed(_groupsTrimmed);
+      brokerResponse.setNumGroupsWarningLimitReached(_numGroupsWarningLimitReached);
+      return brokerResponse;
+    }
+  }
+}
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.helix.AccessOption;
@@ -114,6 +115,8 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
   private final ServerRoutingStatsManager _serverRoutingStatsManager;
   private final PinotConfiguration _pinotConfig;
   private final boolean _enablePartitionMetadataManager;
+  // Generates the routing versions, which are bumped whenever the routing of a table changes
+  private final AtomicLong _routingVersionGenerator = new AtomicLong();
 
   private BaseDataAccessor<ZNRecord> _zkDataAccessor;
   private String _externalViewPathPrefix;
@@ -201,6 +204,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
               continue;
             }
             routingEntry.onAssignmentChange(idealState, externalView);
+            routingEntry.setRoutingVersion(_routingVersionGenerator.incrementAndGet());
           } catch (Exception e) {
             LOGGER.error(
                 "Caught unexpected exception while updating routing entry on segment assignment change for table: {}",
@@ -317,6 +321,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     for (RoutingEntry routingEntry : _routingEntryMap.values()) {
       try {
         routingEntry.onInstancesChange(_routableServers, changedServers);
+        routingEntry.setRoutingVersion(_routingVersionGenerator.incrementAndGet());
       } catch (Exception e) {
         LOGGER.error("Caught unexpected exception while updating routing entry on instances change for table: {}",
             routingEntry.getTableNameWithType(), e);
@@ -381,6 +386,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     for (RoutingEntry routingEntry : _routingEntryMap.values()) {
       try {
         routingEntry.onInstancesChange(_routableServers, changedServers);
+        routingEntry.setRoutingVersion(_routingVersionGenerator.incrementAndGet());
       } catch (Exception e) {
         LOGGER.error("Caught unexpected exception while updating routing entry when excluding server: {} for table: {}",
             instanceId, routingEntry.getTableNameWithType(), e);
@@ -413,6 +419,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     for (RoutingEntry routingEntry : _routingEntryMap.values()) {
       try {
         routingEntry.onInstancesChange(_routableServers, changedServers);
+        routingEntry.setRoutingVersion(_routingVersionGenerator.incrementAndGet());
       } catch (Exception e) {
         LOGGER.error("Caught unexpected exception while updating routing entry when including server: {} for table: {}",
             instanceId, routingEntry.getTableNameWithType(), e);
@@ -611,6 +618,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
         new RoutingEntry(tableNameWithType, idealStatePath, externalViewPath, segmentPreSelector, segmentSelector,
             segmentPruners, instanceSelector, idealStateVersion, externalViewVersion, segmentZkMetadataFetcher,
             timeBoundaryManager, partitionMetadataManager, queryTimeoutMs, !idealState.isEnabled());
+    routingEntry.setRoutingVersion(_routingVersionGenerator.incrementAndGet());
     if (_routingEntryMap.put(tableNameWithType, routingEntry) == null) {
       LOGGER.info("Built routing for table: {}", tableNameWithType);
     } else {
@@ -704,6 +712,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     RoutingEntry routingEntry = _routingEntryMap.get(tableNameWithType);
     if (routingEntry != null) {
       routingEntry.refreshSegment(segment);
+      routingEntry.setRoutingVersion(_routingVersionGenerator.incrementAndGet());
       LOGGER.info("Refreshed segment: {} for table: {}", segment, tableNameWithType);
     } else {
       LOGGER.warn("Routing does not exist for table: {}, skipping refreshing segment", tableNameWithType);
@@ -866,6 +875,18 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     return routingEntry != null ? routingEntry.getQueryTimeoutMs() : null;
   }
 
+  /**
+   * Returns the version of the routing for the given table, or {@code null} if the routing does not exist. The version
+   * changes whenever the routing gets updated, e.g. on segment assignment (ideal state or external view) change,
+   * segment refresh (segment ZK metadata change) or instances change, and can be used to invalidate the information
+   * derived from the routing.
+   */
+  @Nullable
+  public Long getRoutingVersion(String tableNameWithType) {
+    RoutingEntry routingEntry = _routingEntryMap.get(tableNameWithType);
+    return routingEntry != null ? routingEntry.getRoutingVersion() : null;
+  }
+
   private static class RoutingEntry {
     final String _tableNameWithType;
     final String _idealStatePath;
@@ -885,6 +906,7 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
     transient TimeBoundaryManager _timeBoundaryManager;
 
     transient boolean _disabled;
+    transient volatile long _routingVersion;
 
     RoutingEntry(String tableNameWithType, String idealStatePath, String externalViewPath,
         SegmentPreSelector segmentPreSelector, SegmentSelector segmentSelector, List<SegmentPruner> segmentPruners,
@@ -942,6 +964,14 @@ public class BrokerRoutingManager implements RoutingManager, ClusterChangeHandle
       return _disabled;
     }
 
+    long getRoutingVersion() {
+      return _routingVersion;
+    }
+
+    void setRoutingVersion(long routingVersion) {
+      _routingVersion = routingVersion;
+    }
+
     // NOTE: The change gets applied in sequence, and before change applied to all components, there could be some
     // inconsistency between components, which is fine because the inconsistency only exists for the newly changed
     // segments and only lasts for a very short time.
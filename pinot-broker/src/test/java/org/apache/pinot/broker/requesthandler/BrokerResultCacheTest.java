@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.broker.requesthandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.pinot.common.request.PinotQuery;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.common.response.broker.QueryProcessingException;
+import org.apache.pinot.common.response.broker.ResultTable;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.spi.exception.QueryErrorCode;
+import org.apache.pinot.sql.parsers.CalciteSqlParser;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+
+public class BrokerResultCacheTest {
+  private static final String OFFLINE_TABLE_NAME = "testTable_OFFLINE";
+  private static final DataSchema DATA_SCHEMA =
+      new DataSchema(new String[]{"count(*)"}, new ColumnDataType[]{ColumnDataType.LONG});
+
+  @Test
+  public void testGetAndPut() {
+    BrokerResultCache resultCache = new BrokerResultCache(10, 10);
+    PinotQuery pinotQuery = CalciteSqlParser.compileToPinotQuery("SELECT COUNT(*) FROM testTable WHERE a = 1");
+    BrokerResultCache.CacheKey key = BrokerResultCache.getCacheKey(OFFLINE_TABLE_NAME, pinotQuery, pinotQuery);
+    assertNull(resultCache.get(key, 1));
+
+    BrokerResponseNative brokerResponse = getBrokerResponse(1);
+    brokerResponse.setNumDocsScanned(100);
+    brokerResponse.setTotalDocs(1000);
+    resultCache.put(key, 1, brokerResponse);
+    assertEquals(resultCache.size(), 1);
+
+    // Modifying the query after computing the key should not affect the cached entry
+    pinotQuery.putToQueryOptions("timeoutMs", "1000");
+    PinotQuery sameQuery = CalciteSqlParser.compileToPinotQuery("SELECT COUNT(*) FROM testTable WHERE a = 1");
+    BrokerResponseNative cachedResponse =
+        resultCache.get(BrokerResultCache.getCacheKey(OFFLINE_TABLE_NAME, sameQuery, sameQuery), 1);
+    assertNotNull(cachedResponse);
+    assertSame(cachedResponse.getResultTable(), brokerResponse.getResultTable());
+    assertEquals(cachedResponse.getNumRowsResultSet(), 1);
+    assertEquals(cachedResponse.getTotalDocs(), 1000);
+    // Execution stats are not cached
+    assertEquals(cachedResponse.getNumDocsScanned(), 0);
+
+    // Different query or table
+    PinotQuery otherQuery = CalciteSqlParser.compileToPinotQuery("SELECT COUNT(*) FROM testTable WHERE a = 2");
+    assertNull(resultCache.get(BrokerResultCache.getCacheKey(OFFLINE_TABLE_NAME, otherQuery, otherQuery), 1));
+    assertNull(resultCache.get(BrokerResultCache.getCacheKey("otherTable_OFFLINE", sameQuery, sameQuery), 1));
+
+    // Routing version change invalidates the entry
+    assertNull(resultCache.get(key, 2));
+    assertEquals(resultCache.size(), 0);
+    assertNull(resultCache.get(key, 1));
+  }
+
+  @Test
+  public void testSkipPartialOrLargeResult() {
+    BrokerResultCache resultCache = new BrokerResultCache(10, 2);
+    PinotQuery pinotQuery = CalciteSqlParser.compileToPinotQuery("SELECT COUNT(*) FROM testTable");
+    BrokerResultCache.CacheKey key = BrokerResultCache.getCacheKey(OFFLINE_TABLE_NAME, pinotQuery, pinotQuery);
+
+    BrokerResponseNative brokerResponse = getBrokerResponse(1);
+    brokerResponse.addException(new QueryProcessingException(QueryErrorCode.SERVER_NOT_RESPONDING, "error"));
+    resultCache.put(key, 1, brokerResponse);
+    assertEquals(resultCache.size(), 0);
+
+    brokerResponse = getBrokerResponse(1);
+    brokerResponse.setNumServersQueried(2);
+    brokerResponse.setNumServersResponded(1);
+    resultCache.put(key, 1, brokerResponse);
+    assertEquals(resultCache.size(), 0);
+
+    resultCache.put(key, 1, getBrokerResponse(3));
+    assertEquals(resultCache.size(), 0);
+
+    resultCache.put(key, 1, getBrokerResponse(2));
+    assertEquals(resultCache.size(), 1);
+  }
+
+  @Test
+  public void testEviction() {
+    BrokerResultCache resultCache = new BrokerResultCache(2, 10);
+    for (int i = 0; i < 5; i++) {
+      PinotQuery pinotQuery = CalciteSqlParser.compileToPinotQuery("SELECT COUNT(*) FROM testTable WHERE a = " + i);
+      resultCache.put(BrokerResultCache.getCacheKey(OFFLINE_TABLE_NAME, pinotQuery, pinotQuery), 1,
+          getBrokerResponse(1));
+    }
+    assertEquals(resultCache.size(), 2);
+  }
+
+  private static BrokerResponseNative getBrokerResponse(int numRows) {
+    List<Object[]> rows = new ArrayList<>(numRows);
+    for (int i = 0; i < numRows; i++) {
+      rows.add(new Object[]{(long) i});
+    }
+    BrokerResponseNative brokerResponse = new BrokerResponseNative();
+    brokerResponse.setResultTable(new ResultTable(DATA_SCHEMA, rows));
+    brokerResponse.setNumRowsResultSet(numRows);
+    brokerResponse.setNumServersQueried(1);
+    brokerResponse.setNumServersResponded(1);
+    return brokerResponse;
+  }
+}
@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.common.function;
+
+import com.google.common.base.Preconditions;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import org.apache.pinot.spi.exception.QueryErrorCode;
+
+
+/// Invokes the batch variant of a scalar function (see [FunctionInfo#getBatchMethod()]), which evaluates the function
+/// over a block of values at once instead of being invoked once per row.
+///
+/// Like [QueryFunctionInvoker], it is designed to be called from query engines, and throws
+/// [QueryException][org.apache.pinot.spi.exception.QueryException]s if the invocation fails.
+public class BatchFunctionInvoker {
+  private final Method _batchMethod;
+  // Takes the arguments as an Object[]
+  private final MethodHandle _methodHandle;
+
+  public BatchFunctionInvoker(FunctionInfo functionInfo) {
+    Method batchMethod = functionInfo.getBatchMethod();
+    Preconditions.checkArgument(batchMethod != null, "No batch method for: %s", functionInfo.getMethod());
+    _batchMethod = batchMethod;
+    MethodHandle methodHandle = FunctionInvoker.getSpreadMethodHandle(batchMethod, null);
+    Preconditions.checkArgument(methodHandle != null, "Batch method: %s is not accessible", batchMethod);
+    _methodHandle = methodHandle.asType(MethodType.methodType(void.class, Object[].class));
+  }
+
+  /// Returns the underlying batch method.
+  public Method getBatchMethod() {
+    return _batchMethod;
+  }
+
+  /// Invokes the batch method with the given arguments, which should be: the number of values to evaluate, one array
+  /// of values for each parameter of the scalar function, and the array to write the results into. The value and result
+  /// arrays can be larger than the number of values to evaluate.
+  public void invoke(Object[] arguments) {
+    try {
+      _methodHandle.invokeExact(arguments);
+    } catch (Throwable t) {
+      throw QueryErrorCode.QUERY_EXECUTION.asException(t);
+    }
+  }
+}
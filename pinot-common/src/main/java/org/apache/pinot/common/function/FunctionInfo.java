@@ -19,17 +19,24 @@
 package org.apache.pinot.common.function;
 
 import java.lang.reflect.Method;
+import javax.annotation.Nullable;
 
 
 public class FunctionInfo {
   private final Method _method;
   private final Class<?> _clazz;
   private final boolean _nullableParameters;
+  private final Method _batchMethod;
 
   public FunctionInfo(Method method, Class<?> clazz, boolean nullableParameters) {
+    this(method, clazz, nullableParameters, null);
+  }
+
+  public FunctionInfo(Method method, Class<?> clazz, boolean nullableParameters, @Nullable Method batchMethod) {
     _method = method;
     _clazz = clazz;
     _nullableParameters = nullableParameters;
+    _batchMethod = batchMethod;
   }
 
   public Method getMethod() {
@@ -43,4 +50,13 @@ public class FunctionInfo {
   public boolean hasNullableParameters() {
     return _nullableParameters;
   }
+
+  /**
+   * Returns the optional batch variant of the method, which evaluates the function over a block of values at once
+   * (see {@link org.apache.pinot.spi.annotations.ScalarFunction#batchMethod()}), or {@code null} if not available.
+   */
+  @Nullable
+  public Method getBatchMethod() {
+    return _batchMethod;
+  }
 }
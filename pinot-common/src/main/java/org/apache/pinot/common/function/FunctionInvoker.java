@@ -19,6 +19,9 @@
 package org.apache.pinot.common.function;
 
 import com.google.common.base.Preconditions;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -30,7 +33,8 @@ import org.apache.pinot.common.utils.PinotDataType;
 
 /**
  * The {@code FunctionInvoker} is a wrapper on a java method which supports arguments type conversion and method
- * invocation via reflection.
+ * invocation. The method is invoked via a {@link MethodHandle} (which can be inlined by the JIT compiler) when
+ * accessible, and falls back to reflection otherwise.
  */
 public class FunctionInvoker {
   private final Method _method;
@@ -41,6 +45,8 @@ public class FunctionInvoker {
   private final Class<?>[] _parameterClasses;
   private final PinotDataType[] _parameterTypes;
   private final Object _instance;
+  // Takes the arguments as an Object[] and returns the result as an Object, null if the method is not accessible
+  private final MethodHandle _methodHandle;
 
   public FunctionInvoker(FunctionInfo functionInfo) {
     _method = functionInfo.getMethod();
@@ -65,6 +71,28 @@ public class FunctionInvoker {
         throw new IllegalStateException("Caught exception while constructing class: " + clazz, e);
       }
     }
+    _methodHandle = getSpreadMethodHandle(_method, _instance);
+  }
+
+  /**
+   * Returns a {@link MethodHandle} for the given method (bound to the instance for non-static method) which takes the
+   * arguments as an {@code Object[]} and returns the result as an {@code Object}, or {@code null} if the method is not
+   * accessible.
+   */
+  @Nullable
+  static MethodHandle getSpreadMethodHandle(Method method, @Nullable Object instance) {
+    MethodHandle methodHandle;
+    try {
+      methodHandle = MethodHandles.publicLookup().unreflect(method).asFixedArity();
+    } catch (IllegalAccessException e) {
+      return null;
+    }
+    if (instance != null) {
+      methodHandle = methodHandle.bindTo(instance);
+    }
+    int numParameters = method.getParameterCount();
+    return methodHandle.asType(MethodType.genericMethodType(numParameters))
+        .asSpreader(Object[].class, numParameters);
   }
 
   /**
@@ -156,6 +184,13 @@ public class FunctionInvoker {
         }
       }
     }
-    return _method.invoke(_instance, arguments);
+    if (_methodHandle == null) {
+      return _method.invoke(_instance, arguments);
+    }
+    try {
+      return (Object) _methodHandle.invokeExact(arguments);
+    } catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
   }
 }
@@ -19,6 +19,7 @@
 package org.apache.pinot.common.function;
 
 import com.google.common.base.Preconditions;
+import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
@@ -123,8 +124,8 @@ public class FunctionRegistry {
       }
       ScalarFunction scalarFunction = method.getAnnotation(ScalarFunction.class);
       if (scalarFunction.enabled()) {
-        FunctionInfo functionInfo =
-            new FunctionInfo(method, method.getDeclaringClass(), scalarFunction.nullableParameters());
+        FunctionInfo functionInfo = new FunctionInfo(method, method.getDeclaringClass(),
+            scalarFunction.nullableParameters(), getBatchMethod(method, scalarFunction.batchMethod()));
         int numArguments = scalarFunction.isVarArg() ? VAR_ARG_KEY : method.getParameterCount();
         String[] names = scalarFunction.names();
         if (names.length == 0) {
@@ -184,6 +185,43 @@ public class FunctionRegistry {
         numArguments == VAR_ARG_KEY ? "variable" : numArguments);
   }
 
+  /**
+   * Resolves the batch variant of the given scalar function method (see {@link ScalarFunction#batchMethod()}), or
+   * returns {@code null} if no batch method is configured.
+   */
+  @Nullable
+  private static Method getBatchMethod(Method method, String batchMethodName) {
+    if (batchMethodName.isEmpty()) {
+      return null;
+    }
+    Class<?>[] parameterTypes = method.getParameterTypes();
+    int numParameters = parameterTypes.length;
+    Class<?>[] batchParameterTypes = new Class<?>[numParameters + 2];
+    batchParameterTypes[0] = int.class;
+    for (int i = 0; i < numParameters; i++) {
+      Preconditions.checkState(FunctionUtils.isBatchSupportedType(parameterTypes[i]),
+          "Unsupported parameter type: %s for batch method of: %s", parameterTypes[i], method);
+      batchParameterTypes[i + 1] = Array.newInstance(parameterTypes[i], 0).getClass();
+    }
+    Class<?> resultType = method.getReturnType();
+    Preconditions.checkState(FunctionUtils.isBatchSupportedType(resultType),
+        "Unsupported result type: %s for batch method of: %s", resultType, method);
+    batchParameterTypes[numParameters + 1] = Array.newInstance(resultType, 0).getClass();
+    Method batchMethod;
+    try {
+      batchMethod = method.getDeclaringClass().getMethod(batchMethodName, batchParameterTypes);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(
+          "Failed to find batch method: " + batchMethodName + " with parameter types: " + Arrays.toString(
+              batchParameterTypes) + " for: " + method, e);
+    }
+    Preconditions.checkState(batchMethod.getReturnType() == void.class, "Batch method: %s must return void",
+        batchMethod);
+    Preconditions.checkState(Modifier.isStatic(batchMethod.getModifiers()), "Batch method: %s must be static",
+        batchMethod);
+    return batchMethod;
+  }
+
   /**
    * Returns {@code true} if the given canonical name is registered, {@code false} otherwise.
    *
@@ -152,6 +152,14 @@ public class FunctionUtils {
     return ARGUMENT_TYPE_MAP.get(clazz);
   }
 
+  /**
+   * Returns whether the given parameter or result class is supported by the batch variant of the scalar functions.
+   */
+  public static boolean isBatchSupportedType(Class<?> clazz) {
+    return clazz == int.class || clazz == long.class || clazz == float.class || clazz == double.class
+        || clazz == String.class;
+  }
+
   /**
    * Returns the corresponding DataType for the given class, or {@code null} if there is no one matching.
    */
@@ -79,11 +79,17 @@ public class DateTimeFunctions {
   /**
    * Convert epoch millis to epoch seconds
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "toEpochSecondsBatch")
   public static long toEpochSeconds(long millis) {
     return TimeUnit.MILLISECONDS.toSeconds(millis);
   }
 
+  public static void toEpochSecondsBatch(int length, long[] millis, long[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = toEpochSeconds(millis[i]);
+    }
+  }
+
   @ScalarFunction
   public static long[] toEpochSecondsMV(long[] millis) {
     long[] results = new long[millis.length];
@@ -96,11 +102,17 @@ public class DateTimeFunctions {
   /**
    * Convert epoch millis to epoch minutes
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "toEpochMinutesBatch")
   public static long toEpochMinutes(long millis) {
     return TimeUnit.MILLISECONDS.toMinutes(millis);
   }
 
+  public static void toEpochMinutesBatch(int length, long[] millis, long[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = toEpochMinutes(millis[i]);
+    }
+  }
+
   @ScalarFunction
   public static long[] toEpochMinutesMV(long[] millis) {
     long[] results = new long[millis.length];
@@ -113,11 +125,17 @@ public class DateTimeFunctions {
   /**
    * Convert epoch millis to epoch hours
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "toEpochHoursBatch")
   public static long toEpochHours(long millis) {
     return TimeUnit.MILLISECONDS.toHours(millis);
   }
 
+  public static void toEpochHoursBatch(int length, long[] millis, long[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = toEpochHours(millis[i]);
+    }
+  }
+
   @ScalarFunction
   public static long[] toEpochHoursMV(long[] millis) {
     long[] results = new long[millis.length];
@@ -130,11 +148,17 @@ public class DateTimeFunctions {
   /**
    * Convert epoch millis to epoch days
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "toEpochDaysBatch")
   public static long toEpochDays(long millis) {
     return TimeUnit.MILLISECONDS.toDays(millis);
   }
 
+  public static void toEpochDaysBatch(int length, long[] millis, long[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = toEpochDays(millis[i]);
+    }
+  }
+
   @ScalarFunction
   public static long[] toEpochDaysMV(long[] millis) {
     long[] results = new long[millis.length];
@@ -147,11 +171,17 @@ public class DateTimeFunctions {
   /**
    * Convert epoch millis to epoch seconds, round to nearest rounding bucket
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "toEpochSecondsRoundedBatch")
   public static long toEpochSecondsRounded(long millis, long roundToNearest) {
     return (TimeUnit.MILLISECONDS.toSeconds(millis) / roundToNearest) * roundToNearest;
   }
 
+  public static void toEpochSecondsRoundedBatch(int length, long[] millis, long[] roundToNearest, long[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = toEpochSecondsRounded(millis[i], roundToNearest[i]);
+    }
+  }
+
   @ScalarFunction
   public static long[] toEpochSecondsRoundedMV(long[] millis, long roundToNearest) {
     long[] results = new long[millis.length];
@@ -164,11 +194,17 @@ public class DateTimeFunctions {
   /**
    * Convert epoch millis to epoch minutes, round to nearest rounding bucket
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "toEpochMinutesRoundedBatch")
   public static long toEpochMinutesRounded(long millis, long roundToNearest) {
     return (TimeUnit.MILLISECONDS.toMinutes(millis) / roundToNearest) * roundToNearest;
   }
 
+  public static void toEpochMinutesRoundedBatch(int length, long[] millis, long[] roundToNearest, long[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = toEpochMinutesRounded(millis[i], roundToNearest[i]);
+    }
+  }
+
   @ScalarFunction
   public static long[] toEpochMinutesRoundedMV(long[] millis, long roundToNearest) {
     long[] results = new long[millis.length];
@@ -181,11 +217,17 @@ public class DateTimeFunctions {
   /**
    * Convert epoch millis to epoch hours, round to nearest rounding bucket
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "toEpochHoursRoundedBatch")
   public static long toEpochHoursRounded(long millis, long roundToNearest) {
     return (TimeUnit.MILLISECONDS.toHours(millis) / roundToNearest) * roundToNearest;
   }
 
+  public static void toEpochHoursRoundedBatch(int length, long[] millis, long[] roundToNearest, long[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = toEpochHoursRounded(millis[i], roundToNearest[i]);
+    }
+  }
+
   @ScalarFunction
   public static long[] toEpochHoursRoundedMV(long[] millis, long roundToNearest) {
     long[] results = new long[millis.length];
@@ -198,11 +240,17 @@ public class DateTimeFunctions {
   /**
    * Convert epoch millis to epoch days, round to nearest rounding bucket
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "toEpochDaysRoundedBatch")
   public static long toEpochDaysRounded(long millis, long roundToNearest) {
     return (TimeUnit.MILLISECONDS.toDays(millis) / roundToNearest) * roundToNearest;
   }
 
+  public static void toEpochDaysRoundedBatch(int length, long[] millis, long[] roundToNearest, long[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = toEpochDaysRounded(millis[i], roundToNearest[i]);
+    }
+  }
+
   @ScalarFunction
   public static long[] toEpochDaysRoundedMV(long[] millis, long roundToNearest) {
     long[] results = new long[millis.length];
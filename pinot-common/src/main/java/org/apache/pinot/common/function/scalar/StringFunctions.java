@@ -48,42 +48,66 @@ public class StringFunctions {
    * @param input
    * @return reversed input in from end to start
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "reverseBatch")
   public static String reverse(String input) {
     return StringUtils.reverse(input);
   }
 
+  public static void reverseBatch(int length, String[] input, String[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = reverse(input[i]);
+    }
+  }
+
   /**
    * @see String#toLowerCase())
    * @param input
    * @return string in lower case format
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "lowerBatch")
   public static String lower(String input) {
     return input.toLowerCase();
   }
 
+  public static void lowerBatch(int length, String[] input, String[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = lower(input[i]);
+    }
+  }
+
   /**
    * @see String#toUpperCase()
    * @param input
    * @return string in upper case format
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "upperBatch")
   public static String upper(String input) {
     return input.toUpperCase();
   }
 
+  public static void upperBatch(int length, String[] input, String[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = upper(input[i]);
+    }
+  }
+
   /**
    * @see String#substring(int)
    * @param input Parent string
    * @param beginIndex index from which substring should be created
    * @return substring from beginIndex to end of the parent string
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "substrBatch")
   public static String substr(String input, int beginIndex) {
     return StringUtils.substring(input, beginIndex);
   }
 
+  public static void substrBatch(int length, String[] input, int[] beginIndex, String[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = substr(input[i], beginIndex[i]);
+    }
+  }
+
   /**
    * Returns the substring of the main string from beginIndex to endIndex.
    * If endIndex is -1 returns the substring from begingIndex to end of the string.
@@ -94,7 +118,7 @@ public class StringFunctions {
    * @param endIndex index at which substring should be terminated
    * @return substring from beginIndex to endIndex
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "substrBatch")
   public static String substr(String input, int beginIndex, int endIndex) {
     if (endIndex == -1) {
       return substr(input, beginIndex);
@@ -102,16 +126,29 @@ public class StringFunctions {
     return StringUtils.substring(input, beginIndex, endIndex);
   }
 
+  public static void substrBatch(int length, String[] input, int[] beginIndex, int[] endIndex,
+      String[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = substr(input[i], beginIndex[i], endIndex[i]);
+    }
+  }
+
   /**
    * @param input Parent string
    * @param beginIndex 1 based index from which substring should be created
    * @return substring from beginIndex to end of the parent string
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "substringBatch")
   public static String substring(String input, int beginIndex) {
     return StringUtils.substring(input, beginIndex - 1);
   }
 
+  public static void substringBatch(int length, String[] input, int[] beginIndex, String[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = substring(input[i], beginIndex[i]);
+    }
+  }
+
   /**
    * Returns the substring of the main string from beginIndex of length.
    *
@@ -120,7 +157,7 @@ public class StringFunctions {
    * @param length length of substring to be created
    * @return a substirng of input string from beginIndex of length 'length'
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "substringBatch")
   public static String substring(String input, int beginIndex, int length) {
     // index is always 1 based
     beginIndex = beginIndex - 1;
@@ -128,24 +165,43 @@ public class StringFunctions {
     return StringUtils.substring(input, beginIndex, endIndex);
   }
 
+  public static void substringBatch(int length, String[] input, int[] beginIndex, int[] lengths,
+      String[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = substring(input[i], beginIndex[i], lengths[i]);
+    }
+  }
+
   /**
    * Joins two input strings with no separator in between.
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "concatBatch")
   public static String concat(String input1, String input2) {
     return input1 + input2;
   }
 
+  public static void concatBatch(int length, String[] input1, String[] input2, String[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = concat(input1[i], input2[i]);
+    }
+  }
+
   /**
    * @see String#trim()
    * @param input
    * @return trim spaces from both ends of the string
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "trimBatch")
   public static String trim(String input) {
     return input.trim();
   }
 
+  public static void trimBatch(int length, String[] input, String[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = trim(input[i]);
+    }
+  }
+
   /**
    * Standard SQL trim function.
    *
@@ -209,11 +265,17 @@ public class StringFunctions {
    * @param input
    * @return length of the string
    */
-  @ScalarFunction
+  @ScalarFunction(batchMethod = "lengthBatch")
   public static int length(String input) {
     return input.length();
   }
 
+  public static void lengthBatch(int length, String[] input, int[] results) {
+    for (int i = 0; i < length; i++) {
+      results[i] = length(input[i]);
+    }
+  }
+
   /**
    * @see StringUtils#ordinalIndexOf(CharSequence, CharSequence, int)
    * Return the Nth occurence of a substring within the String
@@ -179,6 +179,11 @@ public class BrokerMeter implements AbstractMetrics.Meter {
 
   public static final BrokerMeter QUERY_QUOTA_EXCEEDED = create("QUERY_QUOTA_EXCEEDED", "exceptions", false);
 
+  // Number of single-stage queries served from the broker result cache
+  public static final BrokerMeter RESULT_CACHE_HITS = create("RESULT_CACHE_HITS", "queries", false);
+  // Number of cacheable single-stage queries not found in the broker result cache
+  public static final BrokerMeter RESULT_CACHE_MISSES = create("RESULT_CACHE_MISSES", "queries", false);
+
   // tracks a case a segment is not hosted by any server
   // this is different from NO_SERVER_FOUND_EXCEPTIONS which tracks unavailability across all segments
   public static final BrokerMeter NO_SERVING_HOST_FOR_SEGMENT = create(
@@ -45,8 +45,10 @@ public enum ServerGauge implements AbstractMetrics.Gauge {
   PAUSELESS_CONSUMPTION_ENABLED("pauselessConsumptionEnabled", false),
   // Upsert metrics
   UPSERT_PRIMARY_KEYS_COUNT("upsertPrimaryKeysCount", false),
+  UPSERT_PRIMARY_KEYS_OFF_HEAP_MEMORY_USED("bytes", false),
   // Dedup metrics
   DEDUP_PRIMARY_KEYS_COUNT("dedupPrimaryKeysCount", false),
+  DEDUP_PRIMARY_KEYS_OFF_HEAP_MEMORY_USED("bytes", false),
   CONSUMPTION_QUOTA_UTILIZATION("ratio", false),
   JVM_HEAP_USED_BYTES("bytes", true),
   NETTY_POOLED_USED_DIRECT_MEMORY("bytes", true),
@@ -129,6 +129,26 @@ public enum ServerMeter implements AbstractMetrics.Meter {
   NUM_SEGMENTS_PRUNED_INVALID("numSegmentsPrunedInvalid", false),
   NUM_SEGMENTS_PRUNED_BY_LIMIT("numSegmentsPrunedByLimit", false),
   NUM_SEGMENTS_PRUNED_BY_VALUE("numSegmentsPrunedByValue", false),
+  SEGMENT_RESULT_CACHE_HITS("segments", false),
+  SEGMENT_RESULT_CACHE_MISSES("segments", false),
+  FILTER_RESULT_CACHE_HITS("filters", false),
+  FILTER_RESULT_CACHE_MISSES("filters", false),
+  /**
+   * Number of sorted runs, records and bytes spilled to local disk by the single-stage group-by combine when the groups
+   * do not fit in memory.
+   */
+  GROUP_BY_SPILLED_RUNS("runs", false),
+  GROUP_BY_SPILLED_RECORDS("records", false),
+  GROUP_BY_SPILLED_BYTES("bytes", false),
+  FORWARD_INDEX_CHUNK_CACHE_HITS("chunks", true),
+  FORWARD_INDEX_CHUNK_CACHE_MISSES("chunks", true),
+  FORWARD_INDEX_CHUNK_CACHE_EVICTED_BYTES("bytes", true),
+  DEEP_STORE_INDEX_CACHE_HITS("indexes", true),
+  DEEP_STORE_INDEX_CACHE_MISSES("indexes", true),
+  DEEP_STORE_INDEX_FETCHED_BYTES("bytes", true),
+  DEEP_STORE_INDEX_CACHE_REJECTED_FETCHES("indexes", true),
+  JSON_INDEX_MATCHING_DOC_IDS_CACHE_HITS("filters", true),
+  JSON_INDEX_MATCHING_DOC_IDS_CACHE_MISSES("filters", true),
   LARGE_QUERY_RESPONSES_SENT("largeResponses", false),
   TOTAL_THREAD_CPU_TIME_MILLIS("millis", false),
   THREAD_MEM_ALLOCATED_BYTES("bytes", false),
@@ -150,6 +170,14 @@ public enum ServerMeter implements AbstractMetrics.Meter {
    * But if a single query has 2 different join operators and each one reaches the limit, this will be increased by 2.
    */
   HASH_JOIN_TIMES_MAX_ROWS_REACHED("times", true),
+  /**
+   * Number of bytes spilled to local disk by the hash join when the right table does not fit in memory.
+   */
+  HASH_JOIN_SPILLED_BYTES("bytes", true),
+  /**
+   * Number of bytes spilled to local disk by the multi-stage sort operators when the rows to sort do not fit in memory.
+   */
+  SORT_SPILLED_BYTES("bytes", true),
   /**
    * Number of times group by results were trimmed.
    * It is increased in one by each worker that reaches the limit within the stage.
@@ -69,6 +69,27 @@ public enum ServerTimer implements AbstractMetrics.Timer {
   PREV_SEGMENT_WAIT_TIME_MS("milliseconds", false,
       "Time spent while waiting on previous segment to be registered."),
 
+  SEGMENT_PREPROCESS_COLUMN_INDEX_BUILD_TIME_MS("milliseconds", false,
+      "Time spent building an index of a column while preprocessing a segment, per index type."),
+
+  REALTIME_DECODE_TRANSFORM_TIME_MS("milliseconds", false,
+      "Time spent by the worker threads decoding and transforming a batch of stream messages in pipelined mode."),
+
+  REALTIME_DECODE_TRANSFORM_WAIT_TIME_MS("milliseconds", false,
+      "Time the consumer thread spent waiting for a batch of stream messages to be decoded and transformed in "
+          + "pipelined mode."),
+
+  REALTIME_INDEX_TIME_MS("milliseconds", false,
+      "Time the consumer thread spent indexing a batch of decoded and transformed stream messages in pipelined mode."),
+
+  REALTIME_ROW_MAJOR_SEGMENT_BUILD_TIME_MS("milliseconds", false,
+      "Time spent building an immutable segment from a consuming segment when committing it with the row-major "
+          + "segment builder."),
+
+  REALTIME_COLUMN_MAJOR_SEGMENT_BUILD_TIME_MS("milliseconds", false,
+      "Time spent building an immutable segment from a consuming segment when committing it with the column-major "
+          + "segment builder."),
+
   // Multi-stage
   /**
    * Time spent building the hash table for the join.
@@ -308,6 +308,13 @@ public class QueryOptionsUtils {
     return uncheckedParseInt(QueryOptionKey.GROUP_TRIM_THRESHOLD, groupByTrimThreshold);
   }
 
+  @Nullable
+  public static Integer getGroupBySpillThreshold(Map<String, String> queryOptions) {
+    String groupBySpillThreshold = queryOptions.get(QueryOptionKey.GROUP_BY_SPILL_THRESHOLD);
+    // NOTE: Non-positive value means turning off spilling
+    return uncheckedParseInt(QueryOptionKey.GROUP_BY_SPILL_THRESHOLD, groupBySpillThreshold);
+  }
+
   @Nullable
   public static Integer getNumThreadsExtractFinalResult(Map<String, String> queryOptions) {
     String numThreadsExtractFinalResultString = queryOptions.get(QueryOptionKey.NUM_THREADS_EXTRACT_FINAL_RESULT);
@@ -401,6 +408,18 @@ public class QueryOptionsUtils {
     return checkedParseIntPositive(QueryOptionKey.MAX_ROWS_IN_JOIN, maxRowsInJoin);
   }
 
+  @Nullable
+  public static Integer getJoinSpillThreshold(Map<String, String> queryOptions) {
+    String joinSpillThreshold = queryOptions.get(QueryOptionKey.JOIN_SPILL_THRESHOLD);
+    return checkedParseIntNonNegative(QueryOptionKey.JOIN_SPILL_THRESHOLD, joinSpillThreshold);
+  }
+
+  @Nullable
+  public static Integer getSortSpillThreshold(Map<String, String> queryOptions) {
+    String sortSpillThreshold = queryOptions.get(QueryOptionKey.SORT_SPILL_THRESHOLD);
+    return checkedParseIntNonNegative(QueryOptionKey.SORT_SPILL_THRESHOLD, sortSpillThreshold);
+  }
+
   @Nullable
   public static JoinOverFlowMode getJoinOverflowMode(Map<String, String> queryOptions) {
     String joinOverflowModeStr = queryOptions.get(QueryOptionKey.JOIN_OVERFLOW_MODE);
@@ -48,7 +48,7 @@ public abstract class BrokerPrometheusMetricsTest extends PinotPrometheusMetrics
           BrokerMeter.BROKER_RESPONSES_WITH_PROCESSING_EXCEPTIONS,
           BrokerMeter.BROKER_RESPONSES_WITH_NUM_GROUPS_LIMIT_REACHED, BrokerMeter.BROKER_RESPONSES_WITH_TIMEOUTS,
           BrokerMeter.ENTRIES_SCANNED_POST_FILTER, BrokerMeter.TOTAL_SERVER_RESPONSE_SIZE,
-          BrokerMeter.QUERY_QUOTA_EXCEEDED);
+          BrokerMeter.QUERY_QUOTA_EXCEEDED, BrokerMeter.RESULT_CACHE_HITS, BrokerMeter.RESULT_CACHE_MISSES);
 
   private static final List<BrokerGauge> GAUGES_ACCEPTING_RAW_TABLE_NAME = List.of(BrokerGauge.REQUEST_SIZE);
 
@@ -57,7 +57,8 @@ public abstract class ServerPrometheusMetricsTest extends PinotPrometheusMetrics
           ServerGauge.REALTIME_INGESTION_OFFSET_LAG, ServerGauge.REALTIME_INGESTION_DELAY_MS,
           ServerGauge.UPSERT_PRIMARY_KEYS_COUNT, ServerGauge.END_TO_END_REALTIME_INGESTION_DELAY_MS,
           ServerGauge.DEDUP_PRIMARY_KEYS_COUNT, ServerGauge.REALTIME_INGESTION_UPSTREAM_OFFSET,
-          ServerGauge.REALTIME_INGESTION_CONSUMING_OFFSET);
+          ServerGauge.REALTIME_INGESTION_CONSUMING_OFFSET, ServerGauge.UPSERT_PRIMARY_KEYS_OFF_HEAP_MEMORY_USED,
+          ServerGauge.DEDUP_PRIMARY_KEYS_OFF_HEAP_MEMORY_USED);
 
   private static final List<ServerGauge> GAUGES_ACCEPTING_RAW_TABLE_NAME =
       List.of(ServerGauge.REALTIME_OFFHEAP_MEMORY_USED, ServerGauge.REALTIME_SEGMENT_NUM_PARTITIONS,
@@ -28,9 +28,11 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -148,6 +150,10 @@ public class PerQueryCPUMemAccountantFactory implements ThreadAccountantFactory
 
     protected final InstanceType _instanceType;
 
+    // callbacks to release the memory held by in-memory caches (e.g. server segment result cache) when the heap usage
+    // exceeds the critical level, invoked before killing any query
+    protected final List<Runnable> _heapMemoryCriticalCallbacks = new CopyOnWriteArrayList<>();
+
     protected PerQueryCPUMemResourceUsageAccountant(PinotConfiguration config, boolean isThreadCPUSamplingEnabled,
         boolean isThreadMemorySamplingEnabled, boolean isThreadSamplingEnabledForMSE, Set<String> inactiveQuery,
         String instanceId, InstanceType instanceType) {
@@ -212,6 +218,24 @@ public class PerQueryCPUMemAccountantFactory implements ThreadAccountantFactory
       return new WatcherTask();
     }
 
+    /**
+     * Registers a callback to be invoked when the heap usage exceeds the critical level, which should release the
+     * memory that can be re-computed (e.g. clear a cache).
+     */
+    public void registerHeapMemoryCriticalCallback(Runnable callback) {
+      _heapMemoryCriticalCallbacks.add(callback);
+    }
+
+    protected void invokeHeapMemoryCriticalCallbacks() {
+      for (Runnable callback : _heapMemoryCriticalCallbacks) {
+        try {
+          callback.run();
+        } catch (Exception e) {
+          LOGGER.error("Caught exception while invoking heap memory critical callback", e);
+        }
+      }
+    }
+
     @Override
     public Collection<? extends ThreadResourceTracker> getThreadResources() {
       return _threadEntriesMap.values();
@@ -823,6 +847,7 @@ public class PerQueryCPUMemAccountantFactory implements ThreadAccountantFactory
         // at this point we assume we have tried to kill some queries and the gc kicked in
         // we have no choice but to kill all queries
         if (_usedBytes >= panicLevel) {
+          invokeHeapMemoryCriticalCallbacks();
           killAllQueries();
           _triggeringLevel = TriggeringLevel.HeapMemoryPanic;
           _metrics.addMeteredGlobalValue(_heapMemoryPanicExceededMeter, 1);
@@ -865,6 +890,7 @@ public class PerQueryCPUMemAccountantFactory implements ThreadAccountantFactory
           case HeapMemoryCritical:
             LOGGER.warn("Heap used bytes {} exceeds critical level {}", _usedBytes,
                 _queryMonitorConfig.get().getCriticalLevel());
+            invokeHeapMemoryCriticalCallbacks();
             killMostExpensiveQuery();
             break;
           case CPUTimeBasedKilling:
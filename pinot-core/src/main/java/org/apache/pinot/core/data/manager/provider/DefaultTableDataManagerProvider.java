@@ -19,8 +19,10 @@
 package org.apache.pinot.core.data.manager.provider;
 
 import com.google.common.cache.Cache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
 import java.util.function.Supplier;
 import javax.annotation.Nullable;
@@ -51,6 +53,8 @@ public class DefaultTableDataManagerProvider implements TableDataManagerProvider
   private HelixManager _helixManager;
   private SegmentLocks _segmentLocks;
   private Semaphore _segmentBuildSemaphore;
+  // Shared by all the consuming segments on the server decoding and transforming stream messages in pipelined mode
+  private ExecutorService _decodeTransformExecutor;
   private SegmentOperationsThrottler _segmentOperationsThrottler;
 
   @Override
@@ -61,6 +65,9 @@ public class DefaultTableDataManagerProvider implements TableDataManagerProvider
     _segmentLocks = segmentLocks;
     int maxParallelSegmentBuilds = instanceDataManagerConfig.getMaxParallelSegmentBuilds();
     _segmentBuildSemaphore = maxParallelSegmentBuilds > 0 ? new Semaphore(maxParallelSegmentBuilds, true) : null;
+    int maxDecodeTransformThreads = instanceDataManagerConfig.getMaxDecodeTransformThreads();
+    _decodeTransformExecutor = maxDecodeTransformThreads > 0 ? Executors.newFixedThreadPool(maxDecodeTransformThreads,
+        new ThreadFactoryBuilder().setNameFormat("decode-transform-thread-%d").setDaemon(true).build()) : null;
     _segmentOperationsThrottler = segmentOperationsThrottler;
   }
 
@@ -87,7 +94,8 @@ public class DefaultTableDataManagerProvider implements TableDataManagerProvider
                   + "configured the segmentstore uri. Configure the server config %s",
               StreamConfigProperties.SERVER_UPLOAD_TO_DEEPSTORE, CommonConstants.Server.CONFIG_OF_SEGMENT_STORE_URI));
         }
-        tableDataManager = new RealtimeTableDataManager(_segmentBuildSemaphore, isServerReadyToServeQueries);
+        tableDataManager = new RealtimeTableDataManager(_segmentBuildSemaphore, _decodeTransformExecutor,
+            isServerReadyToServeQueries);
         break;
       default:
         throw new IllegalStateException();
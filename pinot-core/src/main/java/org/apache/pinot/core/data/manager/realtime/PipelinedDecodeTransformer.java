@@ -0,0 +1,283 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.manager.realtime;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import org.apache.pinot.segment.local.segment.creator.TransformPipeline;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.stream.MessageBatch;
+import org.apache.pinot.spi.stream.StreamDataDecoderImpl;
+import org.apache.pinot.spi.stream.StreamDataDecoderResult;
+
+
+/**
+ * Decodes and transforms the stream messages of a {@link MessageBatch} on a bounded pool of worker threads, so that the
+ * consumer thread of a {@link RealtimeSegmentDataManager} only needs to index the transformed rows.
+ *
+ * <p>The batch is split into contiguous chunks of messages, which are processed concurrently. The consumer thread reads
+ * the results in offset order with {@link DecodedBatch#get(int)}, which only blocks until the chunk of the message is
+ * processed, so indexing of the first chunks overlaps with decoding and transforming the following ones.
+ *
+ * <p>The worker threads come from an executor shared by all the consuming segments of the server, so the number of
+ * threads is bounded regardless of the number of consuming segments. Each segment runs at most one task per worker
+ * for a batch, and the tasks claim the chunks in offset order instead of blocking the shared threads while waiting for
+ * a worker.
+ *
+ * <p>The decoders and transform pipelines are not thread safe, so each worker has its own decoder and transform
+ * pipeline, and each message is decoded into a new row because the rows of a batch are indexed after all of them are
+ * decoded. A batch must be finished with {@link DecodedBatch#finish()} before the next one is submitted.
+ */
+public class PipelinedDecodeTransformer implements AutoCloseable {
+  // Split the batch into more chunks than workers so that the consumer thread can start indexing early
+  private static final int NUM_CHUNKS_PER_WORKER = 4;
+
+  private final ExecutorService _executorService;
+  private final List<TransformPipeline> _transformPipelines;
+  private final List<Worker> _workers;
+  private volatile DecodedBatch _currentBatch;
+
+  /**
+   * @param executorService executor shared by the consuming segments to run the workers
+   * @param decoders one decoder per worker
+   * @param transformPipelines one transform pipeline per worker
+   */
+  public PipelinedDecodeTransformer(ExecutorService executorService, List<StreamDataDecoderImpl> decoders,
+      List<TransformPipeline> transformPipelines) {
+    int numWorkers = decoders.size();
+    Preconditions.checkArgument(numWorkers > 0 && transformPipelines.size() == numWorkers,
+        "Expect the same positive number of decoders and transform pipelines, got: %s and %s", numWorkers,
+        transformPipelines.size());
+    _executorService = executorService;
+    _transformPipelines = transformPipelines;
+    _workers = new ArrayList<>(numWorkers);
+    for (int i = 0; i < numWorkers; i++) {
+      _workers.add(new Worker(decoders.get(i), transformPipelines.get(i)));
+    }
+  }
+
+  /**
+   * Submits the messages of the batch to be decoded and transformed by the workers.
+   */
+  public DecodedBatch submit(MessageBatch messageBatch) {
+    Preconditions.checkState(_currentBatch == null || _currentBatch._finished,
+        "The previous batch must be finished before submitting a new one");
+    int numWorkers = _workers.size();
+    int messageCount = messageBatch.getMessageCount();
+    int chunkSize = Math.max(1, (messageCount + numWorkers * NUM_CHUNKS_PER_WORKER - 1) / (numWorkers
+        * NUM_CHUNKS_PER_WORKER));
+    DecodedBatch decodedBatch = new DecodedBatch(messageBatch, chunkSize);
+    _currentBatch = decodedBatch;
+    int numTasks = Math.min(numWorkers, decodedBatch._chunks.length);
+    for (int i = 0; i < numTasks; i++) {
+      Worker worker = _workers.get(i);
+      decodedBatch._tasks.add(_executorService.submit(() -> decodedBatch.processChunks(worker)));
+    }
+    return decodedBatch;
+  }
+
+  /**
+   * Reports the stats of the transform pipelines of all the worker threads.
+   */
+  public void reportStats() {
+    for (TransformPipeline transformPipeline : _transformPipelines) {
+      transformPipeline.reportStats();
+    }
+  }
+
+  /**
+   * Cancels the processing of the current batch without waiting for it, the shared executor is not owned by this
+   * class.
+   */
+  @Override
+  public void close() {
+    DecodedBatch currentBatch = _currentBatch;
+    if (currentBatch != null) {
+      currentBatch.cancel();
+    }
+  }
+
+  private static class Worker {
+    final StreamDataDecoderImpl _decoder;
+    final TransformPipeline _transformPipeline;
+
+    Worker(StreamDataDecoderImpl decoder, TransformPipeline transformPipeline) {
+      _decoder = decoder;
+      _transformPipeline = transformPipeline;
+    }
+
+    DecodedMessage process(MessageBatch messageBatch, int index) {
+      StreamDataDecoderResult decodedRow = _decoder.decode(messageBatch.getStreamMessage(index), new GenericRow());
+      if (decodedRow.getException() != null) {
+        return new DecodedMessage(decodedRow, null, null);
+      }
+      try {
+        return new DecodedMessage(decodedRow, _transformPipeline.processRow(decodedRow.getResult()), null);
+      } catch (Exception e) {
+        return new DecodedMessage(decodedRow, null, e);
+      }
+    }
+  }
+
+  /**
+   * The decoded and transformed messages of a batch, which become available chunk by chunk.
+   */
+  public static class DecodedBatch {
+    private final MessageBatch _messageBatch;
+    private final DecodedMessage[] _decodedMessages;
+    private final int _chunkSize;
+    private final CompletableFuture<Void>[] _chunks;
+    private final AtomicInteger _nextChunk = new AtomicInteger();
+    private final List<Future<?>> _tasks = new ArrayList<>();
+    private final AtomicLong _decodeTransformTimeNs = new AtomicLong();
+    private volatile boolean _cancelled;
+    private volatile boolean _finished;
+    private long _waitTimeNs;
+
+    @SuppressWarnings("unchecked")
+    private DecodedBatch(MessageBatch messageBatch, int chunkSize) {
+      int messageCount = messageBatch.getMessageCount();
+      _messageBatch = messageBatch;
+      _decodedMessages = new DecodedMessage[messageCount];
+      _chunkSize = chunkSize;
+      _chunks = new CompletableFuture[(messageCount + chunkSize - 1) / chunkSize];
+      for (int i = 0; i < _chunks.length; i++) {
+        _chunks[i] = new CompletableFuture<>();
+      }
+    }
+
+    /**
+     * Processes the chunks not yet claimed by the other tasks in offset order with the given worker.
+     */
+    private void processChunks(Worker worker) {
+      int chunkId;
+      while (!_cancelled && (chunkId = _nextChunk.getAndIncrement()) < _chunks.length) {
+        long startTimeNs = System.nanoTime();
+        int from = chunkId * _chunkSize;
+        int to = Math.min(from + _chunkSize, _decodedMessages.length);
+        try {
+          for (int index = from; index < to; index++) {
+            _decodedMessages[index] = worker.process(_messageBatch, index);
+          }
+          _chunks[chunkId].complete(null);
+        } catch (Throwable t) {
+          _chunks[chunkId].completeExceptionally(t);
+        }
+        _decodeTransformTimeNs.addAndGet(System.nanoTime() - startTimeNs);
+      }
+    }
+
+    /**
+     * Returns the decoded and transformed message at the given index, waiting for its chunk to be processed if needed.
+     */
+    public DecodedMessage get(int index) {
+      CompletableFuture<Void> chunk = _chunks[index / _chunkSize];
+      if (!chunk.isDone()) {
+        long startTimeNs = System.nanoTime();
+        try {
+          Uninterruptibles.getUninterruptibly(chunk);
+        } catch (ExecutionException e) {
+          throw new RuntimeException("Caught exception while decoding and transforming message at index: " + index,
+              e.getCause());
+        }
+        _waitTimeNs += System.nanoTime() - startTimeNs;
+      }
+      return _decodedMessages[index];
+    }
+
+    private void cancel() {
+      _cancelled = true;
+      for (Future<?> task : _tasks) {
+        task.cancel(false);
+      }
+    }
+
+    /**
+     * Cancels the processing of the chunks not yet started (e.g. when the consumer thread stops before indexing the
+     * whole batch), and waits for the running ones to finish.
+     */
+    public void finish() {
+      cancel();
+      for (Future<?> task : _tasks) {
+        try {
+          Uninterruptibles.getUninterruptibly(task);
+        } catch (CancellationException | ExecutionException e) {
+          // Ignore, the results are not used
+        }
+      }
+      _finished = true;
+    }
+
+    /**
+     * Returns the total time spent by the worker threads to decode and transform the messages of the batch.
+     */
+    public long getDecodeTransformTimeNs() {
+      return _decodeTransformTimeNs.get();
+    }
+
+    /**
+     * Returns the time the consumer thread spent waiting for the messages to be decoded and transformed.
+     */
+    public long getWaitTimeNs() {
+      return _waitTimeNs;
+    }
+  }
+
+  /**
+   * The result of decoding and transforming a message, where the transform result is {@code null} if the message
+   * cannot be decoded.
+   */
+  public static class DecodedMessage {
+    private final StreamDataDecoderResult _decodedRow;
+    private final TransformPipeline.Result _transformResult;
+    private final Exception _transformException;
+
+    private DecodedMessage(StreamDataDecoderResult decodedRow, @Nullable TransformPipeline.Result transformResult,
+        @Nullable Exception transformException) {
+      _decodedRow = decodedRow;
+      _transformResult = transformResult;
+      _transformException = transformException;
+    }
+
+    public StreamDataDecoderResult getDecodedRow() {
+      return _decodedRow;
+    }
+
+    /**
+     * Returns the transform result, or throws the exception caught while transforming the decoded row.
+     */
+    public TransformPipeline.Result getTransformResult()
+        throws Exception {
+      if (_transformException != null) {
+        throw _transformException;
+      }
+      return _transformResult;
+    }
+  }
+}
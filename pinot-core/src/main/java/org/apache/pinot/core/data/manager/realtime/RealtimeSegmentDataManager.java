@@ -21,6 +21,7 @@ package org.apache.pinot.core.data.manager.realtime;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.Uninterruptibles;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
@@ -32,6 +33,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -47,6 +49,7 @@ import org.apache.pinot.common.metadata.segment.SegmentZKMetadata;
 import org.apache.pinot.common.metrics.ServerGauge;
 import org.apache.pinot.common.metrics.ServerMeter;
 import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.metrics.ServerTimer;
 import org.apache.pinot.common.protocols.SegmentCompletionProtocol;
 import org.apache.pinot.common.restlet.resources.SegmentErrorInfo;
 import org.apache.pinot.common.utils.LLCSegmentName;
@@ -95,6 +98,7 @@ import org.apache.pinot.spi.stream.PartitionGroupConsumer;
 import org.apache.pinot.spi.stream.PartitionGroupConsumptionStatus;
 import org.apache.pinot.spi.stream.PartitionLagState;
 import org.apache.pinot.spi.stream.PermanentConsumerException;
+import org.apache.pinot.spi.stream.PrefetchingPartitionGroupConsumer;
 import org.apache.pinot.spi.stream.RowMetadata;
 import org.apache.pinot.spi.stream.StreamConfig;
 import org.apache.pinot.spi.stream.StreamConsumerFactory;
@@ -240,6 +244,8 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
 
   // Interrupt consumer thread every 10 seconds in case it doesn't stop, e.g. interrupt flag getting cleared somehow
   private static final int CONSUMER_THREAD_INTERRUPT_INTERVAL_MS = 10000;
+  // Max number of transformed rows buffered before they are indexed as a batch
+  private static final int MAX_ROWS_PER_INDEXING_BATCH = 1000;
 
   private final SegmentZKMetadata _segmentZKMetadata;
   private final TableConfig _tableConfig;
@@ -305,6 +311,8 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
   private final PartitionGroupConsumptionStatus _partitionGroupConsumptionStatus;
   final String _clientId;
   private final TransformPipeline _transformPipeline;
+  // Decodes and transforms the stream messages on worker threads in pipelined mode, null otherwise
+  private final PipelinedDecodeTransformer _pipelinedDecodeTransformer;
   private PartitionGroupConsumer _partitionGroupConsumer = null;
   private StreamMetadataProvider _partitionMetadataProvider = null;
   private final File _resourceTmpDir;
@@ -589,7 +597,19 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
     boolean canTakeMore = true;
     boolean prematureExit = false;
 
+    // In pipelined mode, the messages are decoded and transformed on the worker threads while indexing
+    long startTimeNs = System.nanoTime();
+    PipelinedDecodeTransformer.DecodedBatch decodedBatch =
+        _pipelinedDecodeTransformer != null && messageCount > 0 ? _pipelinedDecodeTransformer.submit(messageBatch)
+            : null;
+    // When the segment can index the rows column by column, the transformed rows are buffered and indexed as a batch
+    PendingRows pendingRows = _realtimeSegment.canIndexInBatch() ? new PendingRows() : null;
     for (int index = 0; index < messageCount; index++) {
+      // Index the pending rows before checking the end criteria if they might reach the row limit
+      if (pendingRows != null && (pendingRows.size() >= MAX_ROWS_PER_INDEXING_BATCH
+          || _numRowsIndexed + pendingRows.size() >= _segmentMaxRowCount)) {
+        canTakeMore = indexPendingRows(pendingRows);
+      }
       prematureExit = _shouldStop || endCriteriaReached();
       if (prematureExit) {
         if (_segmentLogger.isDebugEnabled()) {
@@ -621,7 +641,10 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
 
       // Decode message
       StreamMessage streamMessage = messageBatch.getStreamMessage(index);
-      StreamDataDecoderResult decodedRow = _streamDataDecoder.decode(streamMessage);
+      PipelinedDecodeTransformer.DecodedMessage decodedMessage =
+          decodedBatch != null ? decodedBatch.get(index) : null;
+      StreamDataDecoderResult decodedRow =
+          decodedMessage != null ? decodedMessage.getDecodedRow() : _streamDataDecoder.decode(streamMessage);
       StreamMessageMetadata metadata = streamMessage.getMetadata();
       StreamPartitionMsgOffset offset = null;
       StreamPartitionMsgOffset nextOffset = null;
@@ -645,7 +668,8 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
       } else {
         TransformPipeline.Result result = null;
         try {
-          result = _transformPipeline.processRow(decodedRow.getResult());
+          result = decodedMessage != null ? decodedMessage.getTransformResult()
+              : _transformPipeline.processRow(decodedRow.getResult());
         } catch (Exception e) {
           _numRowsErrored++;
           _numBytesDropped += rowSizeInBytes;
@@ -674,6 +698,12 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
                     result.getSanitizedRowCount(), realtimeRowsSanitizedMeter);
           }
           List<GenericRow> transformedRows = result.getTransformedRows();
+          if (pendingRows != null) {
+            for (GenericRow transformedRow : transformedRows) {
+              pendingRows.add(transformedRow, metadata, offset, rowSizeInBytes);
+            }
+            transformedRows = List.of();
+          }
           for (GenericRow transformedRow : transformedRows) {
             try {
               canTakeMore = _realtimeSegment.index(transformedRow, metadata);
@@ -708,6 +738,27 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
       _numRowsConsumed++;
       streamMessageCount++;
     }
+    if (pendingRows != null) {
+      // Index the remaining rows so that all the rows up to the current offset are indexed when returning.
+      // The returned canTakeMore can be ignored: the segment capacity is _segmentMaxRowCount, and the pending rows are
+      // indexed inside the loop as soon as they might reach it, so the segment can only become full here if the last
+      // message filled it exactly. In INITIAL_CONSUMING, endCriteriaReached() then stops consumption before the next
+      // batch; in CATCHING_UP, this is the same as the last row of a batch filling the segment on the per-row path.
+      indexPendingRows(pendingRows);
+      indexedMessageCount += pendingRows._numRowsIndexed;
+    }
+
+    if (decodedBatch != null) {
+      // Wait for the worker threads before the decoders and transform pipelines are used for the next batch
+      decodedBatch.finish();
+      long waitTimeNs = decodedBatch.getWaitTimeNs();
+      _serverMetrics.addTimedTableValue(_tableNameWithType, ServerTimer.REALTIME_DECODE_TRANSFORM_TIME_MS,
+          decodedBatch.getDecodeTransformTimeNs(), TimeUnit.NANOSECONDS);
+      _serverMetrics.addTimedTableValue(_tableNameWithType, ServerTimer.REALTIME_DECODE_TRANSFORM_WAIT_TIME_MS,
+          waitTimeNs, TimeUnit.NANOSECONDS);
+      _serverMetrics.addTimedTableValue(_tableNameWithType, ServerTimer.REALTIME_INDEX_TIME_MS,
+          System.nanoTime() - startTimeNs - waitTimeNs, TimeUnit.NANOSECONDS);
+    }
 
     updateCurrentDocumentCountMetrics();
     if (messageBatch.getUnfilteredMessageCount() > 0) {
@@ -729,6 +780,104 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
     return prematureExit;
   }
 
+  /**
+   * Indexes the pending rows as a batch, and clears them. When indexing the batch fails, no row is partially indexed,
+   * and the rows not indexed yet are indexed one by one so that only the rows failing to be indexed are dropped.
+   *
+   * @return Whether the segment can index more rows
+   */
+  private boolean indexPendingRows(PendingRows pendingRows) {
+    List<GenericRow> rows = pendingRows._rows;
+    int numRows = rows.size();
+    if (numRows == 0) {
+      return true;
+    }
+    boolean canTakeMore;
+    int numRowsIndexed = 0;
+    int lastIndexedRowId = -1;
+    long numBytesIndexed = 0;
+    int numDocsIndexed = _realtimeSegment.getNumDocsIndexed();
+    try {
+      canTakeMore = _realtimeSegment.index(rows, pendingRows._metadata.get(numRows - 1));
+      numRowsIndexed = numRows;
+      lastIndexedRowId = numRows - 1;
+      for (int i = 0; i < numRows; i++) {
+        numBytesIndexed += pendingRows._rowSizesInBytes.getInt(i);
+      }
+    } catch (Exception e) {
+      int numRowsIndexedInBatch = _realtimeSegment.getNumDocsIndexed() - numDocsIndexed;
+      _segmentLogger.warn("Caught exception while indexing a batch of {} rows, indexing the remaining {} rows one by "
+          + "one", numRows, numRows - numRowsIndexedInBatch, e);
+      canTakeMore = true;
+      for (int i = 0; i < numRows; i++) {
+        int rowSizeInBytes = pendingRows._rowSizesInBytes.getInt(i);
+        if (i >= numRowsIndexedInBatch) {
+          GenericRow row = rows.get(i);
+          try {
+            canTakeMore = _realtimeSegment.index(row, pendingRows._metadata.get(i));
+          } catch (Exception rowException) {
+            _numRowsErrored++;
+            _numBytesDropped += rowSizeInBytes;
+            String errorMessage =
+                "Caught exception while indexing the record at offset: " + pendingRows._offsets.get(i) + " , row: "
+                    + row;
+            _segmentLogger.error(errorMessage, rowException);
+            _realtimeTableDataManager.addSegmentError(_segmentNameStr,
+                new SegmentErrorInfo(now(), errorMessage, rowException));
+            continue;
+          }
+        }
+        numRowsIndexed++;
+        lastIndexedRowId = i;
+        numBytesIndexed += rowSizeInBytes;
+      }
+    }
+    if (numRowsIndexed > 0) {
+      _lastRowMetadata = pendingRows._metadata.get(lastIndexedRowId);
+      _lastConsumedTimestampMs = System.currentTimeMillis();
+      _serverMetrics.addMeteredTableValue(_clientId, ServerMeter.REALTIME_ROWS_CONSUMED, numRowsIndexed);
+      _serverMetrics.addMeteredGlobalValue(ServerMeter.REALTIME_ROWS_CONSUMED, numRowsIndexed);
+      if (numBytesIndexed > 0) {
+        _serverMetrics.addMeteredTableValue(_clientId, ServerMeter.REALTIME_BYTES_CONSUMED, numBytesIndexed);
+        _serverMetrics.addMeteredGlobalValue(ServerMeter.REALTIME_BYTES_CONSUMED, numBytesIndexed);
+      }
+    }
+    _numRowsIndexed = _realtimeSegment.getNumDocsIndexed();
+    pendingRows._numRowsIndexed += numRowsIndexed;
+    pendingRows.clear();
+    return canTakeMore;
+  }
+
+  /**
+   * Transformed rows buffered to be indexed as a batch, along with the stream messages they come from.
+   */
+  private static class PendingRows {
+    final List<GenericRow> _rows = new ArrayList<>();
+    final List<StreamMessageMetadata> _metadata = new ArrayList<>();
+    final List<StreamPartitionMsgOffset> _offsets = new ArrayList<>();
+    final IntArrayList _rowSizesInBytes = new IntArrayList();
+    // Total number of rows indexed from this buffer
+    int _numRowsIndexed;
+
+    void add(GenericRow row, StreamMessageMetadata metadata, StreamPartitionMsgOffset offset, int rowSizeInBytes) {
+      _rows.add(row);
+      _metadata.add(metadata);
+      _offsets.add(offset);
+      _rowSizesInBytes.add(rowSizeInBytes);
+    }
+
+    int size() {
+      return _rows.size();
+    }
+
+    void clear() {
+      _rows.clear();
+      _metadata.clear();
+      _offsets.clear();
+      _rowSizesInBytes.clear();
+    }
+  }
+
   @VisibleForTesting
   boolean canAddMore() {
     return _realtimeSegment.canAddMore();
@@ -998,7 +1147,7 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
     params.withSegmentName(_segmentNameStr).withStreamPartitionMsgOffset(_currentOffset.toString())
         .withNumRows(_numRowsConsumed).withInstanceId(_instanceId).withReason(_stopReason);
     if (_isOffHeap) {
-      params.withMemoryUsedBytes(_memoryManager.getTotalAllocatedBytes());
+      params.withMemoryUsedBytes(_realtimeSegment.getMemoryUsedBytes());
     }
     SegmentCompletionProtocol.Response segmentCommitStartResponse = _protocolHandler.segmentCommitStart(params);
     if (!segmentCommitStartResponse.getStatus()
@@ -1181,6 +1330,10 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
       final long waitTimeMillis = lockAcquireTimeMillis - startTimeMillis;
       _segmentLogger.info("Successfully built segment (Column Mode: {}) in {} ms, after lockWaitTime {} ms",
           converter.isColumnMajorEnabled(), buildTimeMillis, waitTimeMillis);
+      // Track the builder modes separately as their build times are not comparable
+      _serverMetrics.addTimedTableValue(_tableNameWithType,
+          converter.isColumnMajorEnabled() ? ServerTimer.REALTIME_COLUMN_MAJOR_SEGMENT_BUILD_TIME_MS
+              : ServerTimer.REALTIME_ROW_MAJOR_SEGMENT_BUILD_TIME_MS, buildTimeMillis, TimeUnit.MILLISECONDS);
 
       File dataDir = new File(_resourceDataDir);
       File indexDir = new File(dataDir, _segmentNameStr);
@@ -1281,7 +1434,7 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
     params.withSegmentName(_segmentNameStr).withStreamPartitionMsgOffset(_currentOffset.toString())
         .withNumRows(_numRowsConsumed).withInstanceId(_instanceId);
     if (_isOffHeap) {
-      params.withMemoryUsedBytes(_memoryManager.getTotalAllocatedBytes());
+      params.withMemoryUsedBytes(_realtimeSegment.getMemoryUsedBytes());
     }
 
     _protocolHandler.segmentCannotBuild(params);
@@ -1297,7 +1450,7 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
         .withSegmentSizeBytes(_segmentBuildDescriptor.getSegmentSizeBytes())
         .withWaitTimeMillis(_segmentBuildDescriptor.getWaitTimeMillis());
     if (_isOffHeap) {
-      params.withMemoryUsedBytes(_memoryManager.getTotalAllocatedBytes());
+      params.withMemoryUsedBytes(_realtimeSegment.getMemoryUsedBytes());
     }
 
     SegmentCommitter segmentCommitter;
@@ -1330,7 +1483,12 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
       closePartitionGroupConsumer();
       closePartitionMetadataProvider();
       releaseConsumerSemaphore();
-      _transformPipeline.reportStats();
+      if (_pipelinedDecodeTransformer != null) {
+        _pipelinedDecodeTransformer.close();
+        _pipelinedDecodeTransformer.reportStats();
+      } else {
+        _transformPipeline.reportStats();
+      }
     }
   }
 
@@ -1429,7 +1587,7 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
     params.withStreamPartitionMsgOffset(_currentOffset.toString()).withSegmentName(_segmentNameStr)
         .withReason(_stopReason).withNumRows(_numRowsConsumed).withInstanceId(_instanceId);
     if (_isOffHeap) {
-      params.withMemoryUsedBytes(_memoryManager.getTotalAllocatedBytes());
+      params.withMemoryUsedBytes(_realtimeSegment.getMemoryUsedBytes());
     }
     return _protocolHandler.segmentConsumed(params);
   }
@@ -1743,7 +1901,9 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
         .setPartitionUpsertMetadataManager(partitionUpsertMetadataManager)
         .setPartitionDedupMetadataManager(partitionDedupMetadataManager)
         .setConsumerDir(consumerDir)
-        .setTextIndexConfig(_tableConfig.getIndexingConfig().getMultiColumnTextIndexConfig());
+        .setTextIndexConfig(_tableConfig.getIndexingConfig().getMultiColumnTextIndexConfig())
+        .setStarTreeIndexConfigs(
+            indexingConfig.isEnableConsumingSegmentStarTree() ? indexLoadingConfig.getStarTreeIndexConfigs() : null);
 
     // Create message decoder
     Set<String> fieldsToRead = IngestionUtils.getFieldsForRecordExtractor(_tableConfig, _schema);
@@ -1775,6 +1935,36 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
       throw e;
     }
 
+    // In pipelined mode, each worker has its own decoder and transform pipeline because they are not thread safe, and
+    // the workers run on the executor shared by all the consuming segments of the server
+    int numDecodeTransformThreads = ingestionConfig != null && ingestionConfig.getStreamIngestionConfig() != null
+        ? ingestionConfig.getStreamIngestionConfig().getNumDecodeTransformThreads() : 0;
+    ExecutorService decodeTransformExecutor = _realtimeTableDataManager.getDecodeTransformExecutor();
+    if (numDecodeTransformThreads > 0 && decodeTransformExecutor == null) {
+      _segmentLogger.warn("Pipelined decode and transform is disabled on the server, decoding and transforming stream "
+          + "messages on the consumer thread");
+      numDecodeTransformThreads = 0;
+    }
+    if (numDecodeTransformThreads > 0) {
+      List<StreamDataDecoderImpl> decoders = new ArrayList<>(numDecodeTransformThreads);
+      List<TransformPipeline> transformPipelines = new ArrayList<>(numDecodeTransformThreads);
+      try {
+        for (int i = 0; i < numDecodeTransformThreads; i++) {
+          decoders.add(new StreamDataDecoderImpl(createMessageDecoder(fieldsToRead)));
+          transformPipelines.add(new TransformPipeline(tableConfig, schema));
+        }
+      } catch (Exception e) {
+        _realtimeTableDataManager.addSegmentError(_segmentNameStr,
+            new SegmentErrorInfo(now(), "Failed to initialize the pipelined decoders and transform pipelines", e));
+        throw e;
+      }
+      _pipelinedDecodeTransformer =
+          new PipelinedDecodeTransformer(decodeTransformExecutor, decoders, transformPipelines);
+      _segmentLogger.info("Decoding and transforming stream messages with {} workers", numDecodeTransformThreads);
+    } else {
+      _pipelinedDecodeTransformer = null;
+    }
+
     try {
       _startOffset = _partitionGroupConsumptionStatus.getStartOffset();
       _currentOffset = _streamPartitionMsgOffsetFactory.create(_startOffset);
@@ -1977,8 +2167,7 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
     }
     _segmentLogger.info("Creating new stream consumer for topic partition {} , reason: {}", _clientId, reason);
     try {
-      _partitionGroupConsumer =
-          _streamConsumerFactory.createPartitionGroupConsumer(_clientId, _partitionGroupConsumptionStatus);
+      _partitionGroupConsumer = createPartitionGroupConsumer();
       _partitionGroupConsumer.start(_currentOffset);
     } catch (Exception e) {
       _segmentLogger.error("Faced exception while trying to recreate stream consumer for topic partition {} reason {}",
@@ -1988,6 +2177,17 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
     }
   }
 
+  private PartitionGroupConsumer createPartitionGroupConsumer() {
+    PartitionGroupConsumer partitionGroupConsumer =
+        _streamConsumerFactory.createPartitionGroupConsumer(_clientId, _partitionGroupConsumptionStatus);
+    long prefetchMaxBufferedBytes = _streamConfig.getPrefetchMaxBufferedBytes();
+    if (prefetchMaxBufferedBytes > 0) {
+      partitionGroupConsumer = new PrefetchingPartitionGroupConsumer(partitionGroupConsumer, prefetchMaxBufferedBytes,
+          _clientId + "-prefetch");
+    }
+    return partitionGroupConsumer;
+  }
+
   /**
    * Checkpoints existing consumer before creating a new consumer instance
    * Assumes there is a valid instance of {@link PartitionGroupConsumer}
@@ -1997,8 +2197,7 @@ public class RealtimeSegmentDataManager extends SegmentDataManager {
     _currentOffset = _partitionGroupConsumer.checkpoint(_currentOffset);
     closePartitionGroupConsumer();
     try {
-      _partitionGroupConsumer =
-          _streamConsumerFactory.createPartitionGroupConsumer(_clientId, _partitionGroupConsumptionStatus);
+      _partitionGroupConsumer = createPartitionGroupConsumer();
       _partitionGroupConsumer.start(_currentOffset);
     } catch (Exception e) {
       _segmentLogger.error("Faced exception while trying to recreate stream consumer for topic partition {}", _clientId,
@@ -31,6 +31,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -100,6 +101,7 @@ public class RealtimeTableDataManager extends BaseTableDataManager {
   private SegmentBuildTimeLeaseExtender _leaseExtender;
   private RealtimeSegmentStatsHistory _statsHistory;
   private final Semaphore _segmentBuildSemaphore;
+  private final ExecutorService _decodeTransformExecutor;
 
   // Maintains a map from partition id to consumer coordinator. The consumer coordinator uses a semaphore to ensure that
   // exactly one PartitionConsumer instance consumes from any stream partition.
@@ -152,7 +154,13 @@ public class RealtimeTableDataManager extends BaseTableDataManager {
   }
 
   public RealtimeTableDataManager(Semaphore segmentBuildSemaphore, Supplier<Boolean> isServerReadyToServeQueries) {
+    this(segmentBuildSemaphore, null, isServerReadyToServeQueries);
+  }
+
+  public RealtimeTableDataManager(Semaphore segmentBuildSemaphore, @Nullable ExecutorService decodeTransformExecutor,
+      Supplier<Boolean> isServerReadyToServeQueries) {
     _segmentBuildSemaphore = segmentBuildSemaphore;
+    _decodeTransformExecutor = decodeTransformExecutor;
     _isServerReadyToServeQueries = isServerReadyToServeQueries;
   }
 
@@ -369,6 +377,15 @@ public class RealtimeTableDataManager extends BaseTableDataManager {
     return _segmentBuildSemaphore;
   }
 
+  /**
+   * Returns the executor shared by the consuming segments to decode and transform the stream messages in pipelined
+   * mode, or {@code null} if the pipelined mode is disabled on the server.
+   */
+  @Nullable
+  public ExecutorService getDecodeTransformExecutor() {
+    return _decodeTransformExecutor;
+  }
+
   public String getConsumerDir() {
     File consumerDir = getConsumerDirPath();
     if (!consumerDir.exists()) {
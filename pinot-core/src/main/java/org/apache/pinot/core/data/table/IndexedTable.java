@@ -123,7 +123,10 @@ public abstract class IndexedTable extends BaseTable {
     _lookupMap.computeIfPresent(key, (k, v) -> updateRecord(v, newRecord));
   }
 
-  private Record updateRecord(Record existingRecord, Record newRecord) {
+  /**
+   * Merges the new record into the existing record with the same key, and returns the merged record.
+   */
+  protected Record updateRecord(Record existingRecord, Record newRecord) {
     Object[] existingValues = existingRecord.getValues();
     Object[] newValues = newRecord.getValues();
     int numAggregations = _aggregationFunctions.length;
@@ -157,7 +160,7 @@ public abstract class IndexedTable extends BaseTable {
   public void finish(boolean sort, boolean storeFinalResult) {
     if (_hasOrderBy) {
       long startTimeNs = System.nanoTime();
-      _topRecords = _tableResizer.getTopRecords(_lookupMap, _resultSize, sort);
+      _topRecords = getTopRecords(sort);
       long resizeTimeNs = System.nanoTime() - startTimeNs;
       _numResizes++;
       _resizeTimeNs += resizeTimeNs;
@@ -223,6 +226,13 @@ public abstract class IndexedTable extends BaseTable {
     }
   }
 
+  /**
+   * Returns the top records to keep in the final result. Should only be called when there is ORDER BY.
+   */
+  protected Collection<Record> getTopRecords(boolean sort) {
+    return _tableResizer.getTopRecords(_lookupMap, _resultSize, sort);
+  }
+
   private int inferNumThreadsExtractFinalResult() {
     if (_numThreadsExtractFinalResult > 1) {
       return _numThreadsExtractFinalResult;
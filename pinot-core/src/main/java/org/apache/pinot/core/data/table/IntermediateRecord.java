@@ -34,4 +34,12 @@ public class IntermediateRecord {
     _record = record;
     _values = values;
   }
+
+  /**
+   * Creates an intermediate record without the values to be ordered, which can only be merged into a table but not be
+   * used for ordering.
+   */
+  public static IntermediateRecord create(Key key, Record record) {
+    return new IntermediateRecord(key, record, null);
+  }
 }
@@ -0,0 +1,498 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.table;
+
+import com.google.common.base.Preconditions;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.CustomObject;
+import org.apache.pinot.common.metrics.ServerMeter;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.query.aggregation.function.AggregationFunction.SerializedIntermediateResult;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.spi.trace.Tracing;
+import org.apache.pinot.spi.utils.BigDecimalUtils;
+import org.apache.pinot.spi.utils.ByteArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Thread safe {@link IndexedTable} for group-by queries with ORDER BY that keeps all the groups instead of trimming
+ * them, so that the results are accurate even when the number of groups is high.
+ * <p>The records are aggregated in the in-memory lookup map. When the number of records in the map reaches the spill
+ * threshold, the records are sorted on the key, written to a run file under the spill directory, and removed from the
+ * map. When finishing the table, the spilled runs and the in-memory records are merged in the key order, where the
+ * records with the same key are aggregated, and the top records are selected with the {@link TableResizer} without
+ * putting all the merged records into memory.
+ * <p>Spilling is only supported when all the stored column types can be serialized (see
+ * {@link #isSpillSupported(DataSchema)}). The spilled runs, records and bytes are reported with the
+ * {@code GROUP_BY_SPILLED_*} server meters.
+ * <p>{@link #cleanUp()} can be called concurrently with the upserts (e.g. when the query times out), after which no
+ * more records are spilled.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class SpillableIndexedTable extends IndexedTable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SpillableIndexedTable.class);
+  private static final String SPILL_DIR_PREFIX = "groupBySpill_";
+
+  private final ReentrantReadWriteLock _readWriteLock = new ReentrantReadWriteLock();
+  private final String _tableNameWithType;
+  private final ColumnDataType[] _storedColumnDataTypes;
+  private final int _spillThreshold;
+  private final File _spillBaseDir;
+  private final List<SpilledRun> _spilledRuns = new ArrayList<>();
+
+  // Spill directory and spilled runs are guarded by the write lock, and are read under the read lock when merging
+  private volatile File _spillDir;
+  private volatile boolean _closed;
+  private int _numSpilledRuns;
+  private long _numSpilledRecords;
+  private long _numSpilledBytes;
+
+  public SpillableIndexedTable(DataSchema dataSchema, boolean hasFinalInput, QueryContext queryContext, int resultSize,
+      int spillThreshold, File spillBaseDir, int initialCapacity, ExecutorService executorService) {
+    super(dataSchema, hasFinalInput, queryContext, resultSize, Integer.MAX_VALUE, Integer.MAX_VALUE,
+        new ConcurrentHashMap<>(initialCapacity), executorService);
+    Preconditions.checkArgument(_hasOrderBy, "Spillable indexed table requires ORDER BY");
+    Preconditions.checkArgument(isSpillSupported(dataSchema), "Unsupported data schema for spilling: %s", dataSchema);
+    Preconditions.checkArgument(spillThreshold > 0, "Spill threshold must be positive");
+    _tableNameWithType = queryContext.getTableName();
+    _storedColumnDataTypes = dataSchema.getStoredColumnDataTypes();
+    _spillThreshold = spillThreshold;
+    _spillBaseDir = spillBaseDir;
+  }
+
+  /**
+   * Returns {@code true} if the records with the given data schema can be spilled, {@code false} otherwise.
+   */
+  public static boolean isSpillSupported(DataSchema dataSchema) {
+    for (ColumnDataType storedColumnDataType : dataSchema.getStoredColumnDataTypes()) {
+      switch (storedColumnDataType) {
+        case INT:
+        case LONG:
+        case FLOAT:
+        case DOUBLE:
+        case BIG_DECIMAL:
+        case STRING:
+        case BYTES:
+        case OBJECT:
+          break;
+        default:
+          return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean upsert(Key key, Record record) {
+    _readWriteLock.readLock().lock();
+    try {
+      addOrUpdateRecord(key, record);
+    } finally {
+      _readWriteLock.readLock().unlock();
+    }
+
+    if (_lookupMap.size() >= _spillThreshold && !_closed) {
+      _readWriteLock.writeLock().lock();
+      try {
+        if (_lookupMap.size() >= _spillThreshold) {
+          spill();
+        }
+      } finally {
+        _readWriteLock.writeLock().unlock();
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes the records in the lookup map as a sorted run, and clears the lookup map. No-op if the table is already
+   * cleaned up.
+   */
+  private void spill() {
+    if (_closed) {
+      return;
+    }
+    try {
+      if (_spillDir == null) {
+        FileUtils.forceMkdir(_spillBaseDir);
+        _spillDir = Files.createTempDirectory(_spillBaseDir.toPath(), SPILL_DIR_PREFIX).toFile();
+      }
+      File runFile = new File(_spillDir, "run_" + _spilledRuns.size());
+      List<Record> sortedRecords = getSortedRecords();
+      try (DataOutputStream outputStream = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(runFile.toPath())))) {
+        for (Record record : sortedRecords) {
+          writeRecord(outputStream, record.getValues());
+        }
+      }
+      int numRecords = sortedRecords.size();
+      _spilledRuns.add(new SpilledRun(runFile, numRecords));
+      _numSpilledRuns++;
+      _numSpilledRecords += numRecords;
+      _numSpilledBytes += runFile.length();
+      _lookupMap.clear();
+    } catch (Exception e) {
+      cleanUp();
+      throw new RuntimeException("Caught exception while spilling group-by records to: " + _spillBaseDir, e);
+    }
+  }
+
+  private List<Record> getSortedRecords() {
+    List<Map.Entry<Key, Record>> entries = new ArrayList<>(_lookupMap.entrySet());
+    entries.sort(Map.Entry.comparingByKey());
+    int numRecords = entries.size();
+    List<Record> records = new ArrayList<>(numRecords);
+    for (Map.Entry<Key, Record> entry : entries) {
+      records.add(entry.getValue());
+    }
+    return records;
+  }
+
+  @Override
+  protected Collection<Record> getTopRecords(boolean sort) {
+    if (_spilledRuns.isEmpty()) {
+      return super.getTopRecords(sort);
+    }
+    LOGGER.debug("Merging {} spilled runs with {} records ({} bytes) and {} in-memory records", _spilledRuns.size(),
+        _numSpilledRecords, _numSpilledBytes, _lookupMap.size());
+    ServerMetrics serverMetrics = ServerMetrics.get();
+    serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.GROUP_BY_SPILLED_RUNS, _spilledRuns.size());
+    serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.GROUP_BY_SPILLED_RECORDS, _numSpilledRecords);
+    serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.GROUP_BY_SPILLED_BYTES, _numSpilledBytes);
+    // Hold the read lock so that the spilled runs cannot be cleaned up while merging them
+    _readWriteLock.readLock().lock();
+    try {
+      Preconditions.checkState(!_closed, "Spilled group-by records are already cleaned up");
+      try (MergedRecordIterator mergedRecordIterator = new MergedRecordIterator()) {
+        return _tableResizer.getTopRecords(mergedRecordIterator, _resultSize, sort);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Caught exception while merging spilled group-by records", e);
+    } finally {
+      _readWriteLock.readLock().unlock();
+      cleanUp();
+    }
+  }
+
+  /**
+   * Deletes the spilled runs, and stops spilling more records. Should be called if the table is not finished (e.g. when
+   * the query fails).
+   */
+  public void cleanUp() {
+    _readWriteLock.writeLock().lock();
+    try {
+      _closed = true;
+      _spilledRuns.clear();
+      if (_spillDir != null) {
+        FileUtils.deleteQuietly(_spillDir);
+        _spillDir = null;
+      }
+    } finally {
+      _readWriteLock.writeLock().unlock();
+    }
+  }
+
+  public int getNumSpilledRuns() {
+    return _numSpilledRuns;
+  }
+
+  public long getNumSpilledRecords() {
+    return _numSpilledRecords;
+  }
+
+  public long getNumSpilledBytes() {
+    return _numSpilledBytes;
+  }
+
+  private void writeRecord(DataOutputStream outputStream, Object[] values)
+      throws IOException {
+    for (int i = 0; i < _numColumns; i++) {
+      Object value = values[i];
+      if (value == null) {
+        outputStream.writeBoolean(false);
+        continue;
+      }
+      outputStream.writeBoolean(true);
+      switch (_storedColumnDataTypes[i]) {
+        case INT:
+          outputStream.writeInt((int) value);
+          break;
+        case LONG:
+          outputStream.writeLong((long) value);
+          break;
+        case FLOAT:
+          outputStream.writeFloat((float) value);
+          break;
+        case DOUBLE:
+          outputStream.writeDouble((double) value);
+          break;
+        case BIG_DECIMAL:
+          BigDecimalUtils.serialize((BigDecimal) value, outputStream);
+          break;
+        case STRING:
+          writeBytes(outputStream, value.toString().getBytes(StandardCharsets.UTF_8));
+          break;
+        case BYTES:
+          writeBytes(outputStream, ((ByteArray) value).getBytes());
+          break;
+        case OBJECT:
+          SerializedIntermediateResult serializedResult =
+              _aggregationFunctions[i - _numKeyColumns].serializeIntermediateResult(value);
+          outputStream.writeInt(serializedResult.getType());
+          writeBytes(outputStream, serializedResult.getBytes());
+          break;
+        default:
+          throw new IllegalStateException("Unsupported stored column type: " + _storedColumnDataTypes[i]);
+      }
+    }
+  }
+
+  private static void writeBytes(DataOutputStream outputStream, byte[] bytes)
+      throws IOException {
+    outputStream.writeInt(bytes.length);
+    outputStream.write(bytes);
+  }
+
+  private Record readRecord(DataInputStream inputStream)
+      throws IOException {
+    Object[] values = new Object[_numColumns];
+    for (int i = 0; i < _numColumns; i++) {
+      if (!inputStream.readBoolean()) {
+        continue;
+      }
+      switch (_storedColumnDataTypes[i]) {
+        case INT:
+          values[i] = inputStream.readInt();
+          break;
+        case LONG:
+          values[i] = inputStream.readLong();
+          break;
+        case FLOAT:
+          values[i] = inputStream.readFloat();
+          break;
+        case DOUBLE:
+          values[i] = inputStream.readDouble();
+          break;
+        case BIG_DECIMAL:
+          values[i] = BigDecimalUtils.deserialize(inputStream);
+          break;
+        case STRING:
+          values[i] = new String(readBytes(inputStream), StandardCharsets.UTF_8);
+          break;
+        case BYTES:
+          values[i] = new ByteArray(readBytes(inputStream));
+          break;
+        case OBJECT:
+          int type = inputStream.readInt();
+          values[i] = _aggregationFunctions[i - _numKeyColumns].deserializeIntermediateResult(
+              new CustomObject(type, ByteBuffer.wrap(readBytes(inputStream))));
+          break;
+        default:
+          throw new IllegalStateException("Unsupported stored column type: " + _storedColumnDataTypes[i]);
+      }
+    }
+    return new Record(values);
+  }
+
+  private static byte[] readBytes(DataInputStream inputStream)
+      throws IOException {
+    byte[] bytes = new byte[inputStream.readInt()];
+    inputStream.readFully(bytes);
+    return bytes;
+  }
+
+  private static class SpilledRun {
+    final File _file;
+    final int _numRecords;
+
+    SpilledRun(File file, int numRecords) {
+      _file = file;
+      _numRecords = numRecords;
+    }
+  }
+
+  /**
+   * Sorted source of records for the merge, which is either a spilled run or the in-memory records.
+   */
+  private abstract static class SortedRecordSource implements Closeable {
+    Key _currentKey;
+    Record _currentRecord;
+
+    /**
+     * Moves to the next record, returns {@code false} if there is no more record.
+     */
+    abstract boolean advance()
+        throws IOException;
+
+    @Override
+    public void close()
+        throws IOException {
+    }
+  }
+
+  private class SpilledRunSource extends SortedRecordSource {
+    final DataInputStream _inputStream;
+    int _numRemainingRecords;
+
+    SpilledRunSource(SpilledRun spilledRun)
+        throws IOException {
+      _inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(spilledRun._file.toPath())));
+      _numRemainingRecords = spilledRun._numRecords;
+    }
+
+    @Override
+    boolean advance()
+        throws IOException {
+      if (_numRemainingRecords == 0) {
+        return false;
+      }
+      _numRemainingRecords--;
+      _currentRecord = readRecord(_inputStream);
+      _currentKey = new Key(Arrays.copyOf(_currentRecord.getValues(), _numKeyColumns));
+      return true;
+    }
+
+    @Override
+    public void close()
+        throws IOException {
+      _inputStream.close();
+    }
+  }
+
+  private class InMemorySource extends SortedRecordSource {
+    final Iterator<Record> _recordIterator;
+
+    InMemorySource(List<Record> sortedRecords) {
+      _recordIterator = sortedRecords.iterator();
+    }
+
+    @Override
+    boolean advance() {
+      if (!_recordIterator.hasNext()) {
+        return false;
+      }
+      _currentRecord = _recordIterator.next();
+      _currentKey = new Key(Arrays.copyOf(_currentRecord.getValues(), _numKeyColumns));
+      return true;
+    }
+  }
+
+  /**
+   * Merges the sorted sources in the key order, and aggregates the records with the same key.
+   */
+  private class MergedRecordIterator implements Iterator<Record>, Closeable {
+    final List<SortedRecordSource> _sources = new ArrayList<>();
+    final PriorityQueue<SortedRecordSource> _queue =
+        new PriorityQueue<>(_spilledRuns.size() + 1, (s1, s2) -> s1._currentKey.compareTo(s2._currentKey));
+    int _numMergedRecords;
+
+    MergedRecordIterator()
+        throws IOException {
+      try {
+        for (SpilledRun spilledRun : _spilledRuns) {
+          addSource(new SpilledRunSource(spilledRun));
+        }
+        if (!_lookupMap.isEmpty()) {
+          addSource(new InMemorySource(getSortedRecords()));
+        }
+      } catch (IOException e) {
+        close();
+        throw e;
+      }
+    }
+
+    void addSource(SortedRecordSource source)
+        throws IOException {
+      _sources.add(source);
+      if (source.advance()) {
+        _queue.add(source);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !_queue.isEmpty();
+    }
+
+    @Override
+    public Record next() {
+      if (_queue.isEmpty()) {
+        throw new NoSuchElementException();
+      }
+      Tracing.ThreadAccountantOps.sampleAndCheckInterruptionPeriodically(_numMergedRecords++);
+      SortedRecordSource source = _queue.poll();
+      Key key = source._currentKey;
+      Record record = source._currentRecord;
+      try {
+        advance(source);
+        // Each source contains unique keys, so there is at most one record with the same key from each of the other
+        // sources
+        while (!_queue.isEmpty() && _queue.peek()._currentKey.equals(key)) {
+          SortedRecordSource sourceWithSameKey = _queue.poll();
+          record = updateRecord(record, sourceWithSameKey._currentRecord);
+          advance(sourceWithSameKey);
+        }
+      } catch (IOException e) {
+        throw new RuntimeException("Caught exception while reading spilled group-by records", e);
+      }
+      return record;
+    }
+
+    void advance(SortedRecordSource source)
+        throws IOException {
+      if (source.advance()) {
+        _queue.add(source);
+      }
+    }
+
+    @Override
+    public void close()
+        throws IOException {
+      for (SortedRecordSource source : _sources) {
+        source.close();
+      }
+    }
+  }
+}
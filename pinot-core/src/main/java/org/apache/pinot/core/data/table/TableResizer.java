@@ -20,6 +20,7 @@ package org.apache.pinot.core.data.table;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -272,6 +273,58 @@ public class TableResizer {
     return sort ? getSortedTopRecords(recordsMap, size) : getUnsortedTopRecords(recordsMap, size);
   }
 
+  /**
+   * Returns the top records from the records with unique keys returned by the iterator. Unlike
+   * {@link #getTopRecords(Map, int, boolean)}, the records are not required to be held in memory, and only the top
+   * records are retained.
+   */
+  public List<Record> getTopRecords(Iterator<Record> recordIterator, int size, boolean sort) {
+    if (size == 0) {
+      return Collections.emptyList();
+    }
+    Comparator<IntermediateRecord> comparator = _intermediateRecordComparator.reversed();
+    List<IntermediateRecord> intermediateRecords = new ArrayList<>();
+    IntermediateRecord[] heap = null;
+    while (recordIterator.hasNext()) {
+      IntermediateRecord intermediateRecord = getIntermediateRecord(null, recordIterator.next());
+      if (heap == null) {
+        intermediateRecords.add(intermediateRecord);
+        if (intermediateRecords.size() == size) {
+          heap = intermediateRecords.toArray(new IntermediateRecord[0]);
+          intermediateRecords = null;
+          makeHeap(heap, size, comparator);
+        }
+      } else if (comparator.compare(intermediateRecord, heap[0]) > 0) {
+        heap[0] = intermediateRecord;
+        downHeap(heap, size, 0, comparator);
+      }
+    }
+    if (heap == null) {
+      // All the records are top records
+      if (sort) {
+        intermediateRecords.sort(_intermediateRecordComparator);
+      }
+      List<Record> topRecords = new ArrayList<>(intermediateRecords.size());
+      for (IntermediateRecord intermediateRecord : intermediateRecords) {
+        topRecords.add(intermediateRecord._record);
+      }
+      return topRecords;
+    }
+    Record[] topRecords = new Record[size];
+    if (sort) {
+      while (size-- > 0) {
+        topRecords[size] = heap[0]._record;
+        heap[0] = heap[size];
+        downHeap(heap, size, 0, comparator);
+      }
+    } else {
+      for (int i = 0; i < size; i++) {
+        topRecords[i] = heap[i]._record;
+      }
+    }
+    return Arrays.asList(topRecords);
+  }
+
   @VisibleForTesting
   List<Record> getSortedTopRecords(Map<Key, Record> recordsMap, int size) {
     int numRecords = recordsMap.size();
@@ -30,6 +30,7 @@ import org.apache.pinot.core.data.table.IndexedTable;
 import org.apache.pinot.core.data.table.IntermediateRecord;
 import org.apache.pinot.core.data.table.Key;
 import org.apache.pinot.core.data.table.Record;
+import org.apache.pinot.core.data.table.SpillableIndexedTable;
 import org.apache.pinot.core.operator.AcquireReleaseColumnsSegmentOperator;
 import org.apache.pinot.core.operator.blocks.results.BaseResultsBlock;
 import org.apache.pinot.core.operator.blocks.results.ExceptionResultsBlock;
@@ -208,6 +209,7 @@ public class GroupByCombineOperator extends BaseSingleBlockCombineOperator<Group
       String userError = "Timed out while combining group-by order-by results after " + timeoutMs + "ms";
       String logMsg = userError + ", queryContext = " + _queryContext;
       LOGGER.error(logMsg);
+      cleanUpSpilledRecords();
       return new ExceptionResultsBlock(new QueryErrorMessage(QueryErrorCode.EXECUTION_TIMEOUT, userError, logMsg));
     }
 
@@ -223,6 +225,7 @@ public class GroupByCombineOperator extends BaseSingleBlockCombineOperator<Group
         // If the exception is not a QueryException, use the generic error code and don't expose the exception message
         errMsg = new QueryErrorMessage(QueryErrorCode.QUERY_EXECUTION, userError, devError);
       }
+      cleanUpSpilledRecords();
       return new ExceptionResultsBlock(errMsg);
     }
 
@@ -246,4 +249,14 @@ public class GroupByCombineOperator extends BaseSingleBlockCombineOperator<Group
     mergedBlock.setResizeTimeMs(indexedTable.getResizeTimeMs());
     return mergedBlock;
   }
+
+  /**
+   * Deletes the records spilled by the {@link SpillableIndexedTable} when the table is not finished.
+   */
+  private void cleanUpSpilledRecords() {
+    IndexedTable indexedTable = _indexedTable;
+    if (indexedTable instanceof SpillableIndexedTable) {
+      ((SpillableIndexedTable) indexedTable).cleanUp();
+    }
+  }
 }
@@ -104,6 +104,13 @@ public class FilterOperatorUtils {
             && queryContext.isIndexUseAllowed(dataSource, FieldConfig.IndexType.RANGE)) {
           return new RangeIndexBasedFilterOperator(queryContext, predicateEvaluator, dataSource, numDocs);
         }
+        if (ZoneMapBasedFilterOperator.canEvaluate(predicateEvaluator, dataSource)) {
+          ZoneMapBasedFilterOperator zoneMapBasedFilterOperator =
+              new ZoneMapBasedFilterOperator(queryContext, predicateEvaluator, dataSource, numDocs);
+          if (zoneMapBasedFilterOperator.prunesEnoughDocs()) {
+            return zoneMapBasedFilterOperator;
+          }
+        }
         return new ScanBasedFilterOperator(queryContext, predicateEvaluator, dataSource, numDocs);
       } else if (predicateType == Predicate.Type.REGEXP_LIKE) {
         if (dataSource.getFSTIndex() != null && dataSource.getDataSourceMetadata().isSorted()
@@ -128,6 +135,13 @@ public class FilterOperatorUtils {
             && queryContext.isIndexUseAllowed(dataSource, FieldConfig.IndexType.RANGE)) {
           return new RangeIndexBasedFilterOperator(queryContext, predicateEvaluator, dataSource, numDocs);
         }
+        if (ZoneMapBasedFilterOperator.canEvaluate(predicateEvaluator, dataSource)) {
+          ZoneMapBasedFilterOperator zoneMapBasedFilterOperator =
+              new ZoneMapBasedFilterOperator(queryContext, predicateEvaluator, dataSource, numDocs);
+          if (zoneMapBasedFilterOperator.prunesEnoughDocs()) {
+            return zoneMapBasedFilterOperator;
+          }
+        }
         return new ScanBasedFilterOperator(queryContext, predicateEvaluator, dataSource, numDocs);
       }
     }
@@ -243,6 +257,10 @@ public class FilterOperatorUtils {
             int basePriority = PrioritizedFilterOperator.SCAN_PRIORITY;
             return getScanBasedFilterPriority(queryContext, (ScanBasedFilterOperator) filterOperator, basePriority);
           }
+          if (filterOperator instanceof ZoneMapBasedFilterOperator) {
+            // Zone map skips the non-matching blocks, but still needs to scan the partially matching blocks
+            return PrioritizedFilterOperator.SCAN_PRIORITY;
+          }
           if (filterOperator instanceof ExpressionFilterOperator) {
             return PrioritizedFilterOperator.EXPRESSION_PRIORITY;
           }
@@ -0,0 +1,283 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.operator.filter;
+
+import com.google.common.base.CaseFormat;
+import java.util.Collections;
+import java.util.List;
+import org.apache.pinot.common.request.context.predicate.Predicate;
+import org.apache.pinot.core.common.BlockDocIdSet;
+import org.apache.pinot.core.common.Operator;
+import org.apache.pinot.core.operator.ExplainAttributeBuilder;
+import org.apache.pinot.core.operator.dociditerators.ScanBasedDocIdIterator;
+import org.apache.pinot.core.operator.docidsets.BitmapDocIdSet;
+import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import org.apache.pinot.core.operator.filter.predicate.traits.DoubleRange;
+import org.apache.pinot.core.operator.filter.predicate.traits.DoubleValue;
+import org.apache.pinot.core.operator.filter.predicate.traits.FloatRange;
+import org.apache.pinot.core.operator.filter.predicate.traits.FloatValue;
+import org.apache.pinot.core.operator.filter.predicate.traits.IntRange;
+import org.apache.pinot.core.operator.filter.predicate.traits.IntValue;
+import org.apache.pinot.core.operator.filter.predicate.traits.LongRange;
+import org.apache.pinot.core.operator.filter.predicate.traits.LongValue;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.segment.spi.datasource.DataSource;
+import org.apache.pinot.segment.spi.index.StandardIndexes;
+import org.apache.pinot.segment.spi.index.reader.Dictionary;
+import org.apache.pinot.segment.spi.index.reader.ZoneMapIndexReader;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.trace.FilterType;
+import org.apache.pinot.spi.trace.InvocationRecording;
+import org.apache.pinot.spi.trace.Tracing;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+
+/**
+ * Filter operator for EQ and RANGE predicates on columns with zone map index. The zone map is used to classify each
+ * block of documents as not matching (skipped), fully matching (added as a docId range without scanning) or partially
+ * matching, and only the partially matching blocks are scanned.
+ *
+ * <p>The blocks are classified when the operator is created (i.e. at plan time), so that the plan can fall back to the
+ * {@link ScanBasedFilterOperator} (which can be lazily evaluated as a child of an AND) when the zone map does not prune
+ * enough docs (see {@link #prunesEnoughDocs()}).
+ */
+public class ZoneMapBasedFilterOperator extends BaseColumnFilterOperator {
+  private static final String EXPLAIN_NAME = "FILTER_ZONE_MAP_INDEX";
+  // Minimum fraction of docs that must be either skipped or fully matched (i.e. not scanned) to use the zone map
+  private static final double MIN_PRUNED_DOCS_FRACTION = 0.1;
+
+  private final PredicateEvaluator _predicateEvaluator;
+  private final ZoneMapIndexReader _zoneMapIndexReader;
+  private final MutableRoaringBitmap _matchingDocIds = new MutableRoaringBitmap();
+  private final MutableRoaringBitmap _partiallyMatchingDocIds = new MutableRoaringBitmap();
+
+  static boolean canEvaluate(PredicateEvaluator predicateEvaluator, DataSource dataSource) {
+    if (dataSource.getIndex(StandardIndexes.zoneMap()) == null
+        || !dataSource.getDataSourceMetadata().isSingleValue()) {
+      return false;
+    }
+    Predicate.Type predicateType = predicateEvaluator.getPredicateType();
+    if (predicateType != Predicate.Type.EQ && predicateType != Predicate.Type.RANGE) {
+      return false;
+    }
+    if (predicateEvaluator.isDictionaryBased()) {
+      // Dictionary of the immutable segment is sorted, so that the dictId range can be mapped to a value range
+      return predicateEvaluator instanceof IntValue || predicateEvaluator instanceof IntRange;
+    }
+    switch (predicateEvaluator.getDataType()) {
+      case INT:
+        return predicateEvaluator instanceof IntValue || predicateEvaluator instanceof IntRange;
+      case LONG:
+        return predicateEvaluator instanceof LongValue || predicateEvaluator instanceof LongRange;
+      case FLOAT:
+        return predicateEvaluator instanceof FloatValue || predicateEvaluator instanceof FloatRange;
+      case DOUBLE:
+        return predicateEvaluator instanceof DoubleValue || predicateEvaluator instanceof DoubleRange;
+      default:
+        return false;
+    }
+  }
+
+  public ZoneMapBasedFilterOperator(QueryContext queryContext, PredicateEvaluator predicateEvaluator,
+      DataSource dataSource, int numDocs) {
+    super(queryContext, dataSource, numDocs);
+    _predicateEvaluator = predicateEvaluator;
+    _zoneMapIndexReader = dataSource.getIndex(StandardIndexes.zoneMap());
+    DataType storedType = dataSource.getDataSourceMetadata().getDataType().getStoredType();
+    if (storedType == DataType.INT || storedType == DataType.LONG) {
+      long[] bounds = getLongBounds();
+      classifyLongBlocks(bounds[0], bounds[1], _matchingDocIds, _partiallyMatchingDocIds);
+    } else {
+      double[] bounds = getDoubleBounds();
+      classifyDoubleBlocks(bounds[0], bounds[1], _matchingDocIds, _partiallyMatchingDocIds);
+    }
+    // Docs not covered by the zone map need to be scanned
+    long numCoveredDocs = (long) _zoneMapIndexReader.getNumBlocks() * _zoneMapIndexReader.getNumDocsPerBlock();
+    if (numCoveredDocs < numDocs) {
+      _partiallyMatchingDocIds.add(numCoveredDocs, numDocs);
+    }
+  }
+
+  /**
+   * Returns {@code true} if the zone map prunes enough docs to be cheaper than scanning all the docs, {@code false}
+   * otherwise (e.g. the column values are not clustered by docId, so that most blocks partially match).
+   */
+  public boolean prunesEnoughDocs() {
+    return _partiallyMatchingDocIds.getLongCardinality() <= (1 - MIN_PRUNED_DOCS_FRACTION) * _numDocs;
+  }
+
+  @Override
+  protected BlockDocIdSet getNextBlockWithoutNullHandling() {
+    recordFilter(_matchingDocIds, _partiallyMatchingDocIds);
+    if (_partiallyMatchingDocIds.isEmpty()) {
+      return new BitmapDocIdSet(_matchingDocIds, _numDocs);
+    }
+    BlockDocIdSet scanBasedDocIdSet =
+        new ScanBasedFilterOperator(_queryContext, _predicateEvaluator, _dataSource, _numDocs).getTrues();
+    MutableRoaringBitmap docIds =
+        ((ScanBasedDocIdIterator) scanBasedDocIdSet.iterator()).applyAnd(_partiallyMatchingDocIds);
+    docIds.or(_matchingDocIds);
+    return new BitmapDocIdSet(docIds, _numDocs) {
+      // Override this method to reflect the entries scanned
+      @Override
+      public long getNumEntriesScannedInFilter() {
+        return scanBasedDocIdSet.getNumEntriesScannedInFilter();
+      }
+    };
+  }
+
+  private void classifyLongBlocks(long lowerBound, long upperBound, MutableRoaringBitmap matchingDocIds,
+      MutableRoaringBitmap partiallyMatchingDocIds) {
+    int numBlocks = _zoneMapIndexReader.getNumBlocks();
+    int numDocsPerBlock = _zoneMapIndexReader.getNumDocsPerBlock();
+    for (int blockId = 0; blockId < numBlocks; blockId++) {
+      long startDocId = (long) blockId * numDocsPerBlock;
+      if (startDocId >= _numDocs) {
+        break;
+      }
+      long endDocId = Math.min(startDocId + numDocsPerBlock, _numDocs);
+      long min = _zoneMapIndexReader.getMinLongValue(blockId);
+      long max = _zoneMapIndexReader.getMaxLongValue(blockId);
+      if (max < lowerBound || min > upperBound) {
+        continue;
+      }
+      if (min >= lowerBound && max <= upperBound) {
+        matchingDocIds.add(startDocId, endDocId);
+      } else {
+        partiallyMatchingDocIds.add(startDocId, endDocId);
+      }
+    }
+  }
+
+  private void classifyDoubleBlocks(double lowerBound, double upperBound, MutableRoaringBitmap matchingDocIds,
+      MutableRoaringBitmap partiallyMatchingDocIds) {
+    int numBlocks = _zoneMapIndexReader.getNumBlocks();
+    int numDocsPerBlock = _zoneMapIndexReader.getNumDocsPerBlock();
+    for (int blockId = 0; blockId < numBlocks; blockId++) {
+      long startDocId = (long) blockId * numDocsPerBlock;
+      if (startDocId >= _numDocs) {
+        break;
+      }
+      long endDocId = Math.min(startDocId + numDocsPerBlock, _numDocs);
+      double min = _zoneMapIndexReader.getMinDoubleValue(blockId);
+      double max = _zoneMapIndexReader.getMaxDoubleValue(blockId);
+      if (max < lowerBound || min > upperBound) {
+        continue;
+      }
+      if (min >= lowerBound && max <= upperBound) {
+        matchingDocIds.add(startDocId, endDocId);
+      } else {
+        partiallyMatchingDocIds.add(startDocId, endDocId);
+      }
+    }
+  }
+
+  /**
+   * Returns the inclusive lower and upper bound of the predicate for INT and LONG columns.
+   */
+  private long[] getLongBounds() {
+    if (_predicateEvaluator.isDictionaryBased()) {
+      Dictionary dictionary = _dataSource.getDictionary();
+      int[] dictIdBounds = getDictIdBounds();
+      return new long[]{dictionary.getLongValue(dictIdBounds[0]), dictionary.getLongValue(dictIdBounds[1])};
+    }
+    if (_predicateEvaluator instanceof IntValue) {
+      int value = ((IntValue) _predicateEvaluator).getInt();
+      return new long[]{value, value};
+    }
+    if (_predicateEvaluator instanceof IntRange) {
+      IntRange intRange = (IntRange) _predicateEvaluator;
+      return new long[]{intRange.getInclusiveLowerBound(), intRange.getInclusiveUpperBound()};
+    }
+    if (_predicateEvaluator instanceof LongValue) {
+      long value = ((LongValue) _predicateEvaluator).getLong();
+      return new long[]{value, value};
+    }
+    LongRange longRange = (LongRange) _predicateEvaluator;
+    return new long[]{longRange.getInclusiveLowerBound(), longRange.getInclusiveUpperBound()};
+  }
+
+  /**
+   * Returns the inclusive lower and upper bound of the predicate for FLOAT and DOUBLE columns.
+   */
+  private double[] getDoubleBounds() {
+    if (_predicateEvaluator.isDictionaryBased()) {
+      Dictionary dictionary = _dataSource.getDictionary();
+      int[] dictIdBounds = getDictIdBounds();
+      return new double[]{dictionary.getDoubleValue(dictIdBounds[0]), dictionary.getDoubleValue(dictIdBounds[1])};
+    }
+    if (_predicateEvaluator instanceof FloatValue) {
+      float value = ((FloatValue) _predicateEvaluator).getFloat();
+      return new double[]{value, value};
+    }
+    if (_predicateEvaluator instanceof FloatRange) {
+      FloatRange floatRange = (FloatRange) _predicateEvaluator;
+      return new double[]{floatRange.getInclusiveLowerBound(), floatRange.getInclusiveUpperBound()};
+    }
+    if (_predicateEvaluator instanceof DoubleValue) {
+      double value = ((DoubleValue) _predicateEvaluator).getDouble();
+      return new double[]{value, value};
+    }
+    DoubleRange doubleRange = (DoubleRange) _predicateEvaluator;
+    return new double[]{doubleRange.getInclusiveLowerBound(), doubleRange.getInclusiveUpperBound()};
+  }
+
+  private int[] getDictIdBounds() {
+    if (_predicateEvaluator instanceof IntValue) {
+      int dictId = ((IntValue) _predicateEvaluator).getInt();
+      return new int[]{dictId, dictId};
+    }
+    IntRange intRange = (IntRange) _predicateEvaluator;
+    return new int[]{intRange.getInclusiveLowerBound(), intRange.getInclusiveUpperBound()};
+  }
+
+  @Override
+  public List<Operator> getChildOperators() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public String toExplainString() {
+    return EXPLAIN_NAME + "(indexLookUp:zone_map_index" + ",operator:" + _predicateEvaluator.getPredicateType()
+        + ",predicate:" + _predicateEvaluator.getPredicate().toString() + ')';
+  }
+
+  @Override
+  protected String getExplainName() {
+    return CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.UPPER_CAMEL, EXPLAIN_NAME);
+  }
+
+  @Override
+  protected void explainAttributes(ExplainAttributeBuilder attributeBuilder) {
+    super.explainAttributes(attributeBuilder);
+    attributeBuilder.putString("indexLookUp", "zone_map_index");
+    attributeBuilder.putString("operator", _predicateEvaluator.getPredicateType().name());
+    attributeBuilder.putString("predicate", _predicateEvaluator.getPredicate().toString());
+  }
+
+  private void recordFilter(MutableRoaringBitmap matchingDocIds, MutableRoaringBitmap partiallyMatchingDocIds) {
+    InvocationRecording recording = Tracing.activeRecording();
+    if (recording.isEnabled()) {
+      recording.setNumDocsMatchingAfterFilter(matchingDocIds.getCardinality());
+      recording.setColumnName(_dataSource.getDataSourceMetadata().getFieldSpec().getName());
+      recording.setFilter(FilterType.INDEX, _predicateEvaluator.getPredicateType().name());
+      recording.setNumDocsScanned(partiallyMatchingDocIds.getCardinality());
+    }
+  }
+}
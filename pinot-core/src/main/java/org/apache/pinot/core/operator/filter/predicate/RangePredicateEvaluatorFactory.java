@@ -287,8 +287,9 @@ public class RangePredicateEvaluatorFactory {
     }
 
     @Override
-    public int[] getMatchingDictIds() {
-      throw new UnsupportedOperationException();
+    protected int[] calculateMatchingDictIds() {
+      // NOTE: The matching dictionary ids are required when solving the predicate with star-tree on mutable segment
+      return _dictIdSetBased ? _matchingDictIdSet.toIntArray() : super.calculateMatchingDictIds();
     }
 
     @Override
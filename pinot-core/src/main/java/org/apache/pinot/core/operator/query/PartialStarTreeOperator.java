@@ -0,0 +1,174 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.operator.query;
+
+import com.google.common.base.CaseFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import org.apache.pinot.core.common.Operator;
+import org.apache.pinot.core.data.table.IntermediateRecord;
+import org.apache.pinot.core.data.table.Key;
+import org.apache.pinot.core.data.table.Record;
+import org.apache.pinot.core.operator.BaseOperator;
+import org.apache.pinot.core.operator.ExecutionStatistics;
+import org.apache.pinot.core.operator.blocks.results.AggregationResultsBlock;
+import org.apache.pinot.core.operator.blocks.results.BaseResultsBlock;
+import org.apache.pinot.core.operator.blocks.results.GroupByResultsBlock;
+import org.apache.pinot.core.operator.combine.merger.AggregationResultsBlockMerger;
+import org.apache.pinot.core.query.aggregation.function.AggregationFunction;
+import org.apache.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
+import org.apache.pinot.core.query.aggregation.groupby.GroupKeyGenerator;
+import org.apache.pinot.core.query.request.context.QueryContext;
+
+
+/**
+ * The {@code PartialStarTreeOperator} class solves an aggregation or group-by query on a consuming segment whose
+ * star-tree only covers the docs indexed when it was built: the results of the star-tree based operator on the covered
+ * docs are merged with the results of the regular operator on the docs indexed after the star-tree was built.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class PartialStarTreeOperator<T extends BaseResultsBlock> extends BaseOperator<T> {
+  private static final String EXPLAIN_NAME = "PARTIAL_STAR_TREE";
+
+  private final Operator<T> _starTreeOperator;
+  private final Operator<T> _docsNotCoveredOperator;
+  private final BinaryOperator<T> _merger;
+  private final long _numTotalDocs;
+
+  private PartialStarTreeOperator(Operator<T> starTreeOperator, Operator<T> docsNotCoveredOperator,
+      BinaryOperator<T> merger, long numTotalDocs) {
+    _starTreeOperator = starTreeOperator;
+    _docsNotCoveredOperator = docsNotCoveredOperator;
+    _merger = merger;
+    _numTotalDocs = numTotalDocs;
+  }
+
+  public static PartialStarTreeOperator<AggregationResultsBlock> forAggregation(QueryContext queryContext,
+      Operator<AggregationResultsBlock> starTreeOperator, Operator<AggregationResultsBlock> docsNotCoveredOperator,
+      long numTotalDocs) {
+    AggregationResultsBlockMerger merger = new AggregationResultsBlockMerger(queryContext);
+    return new PartialStarTreeOperator<>(starTreeOperator, docsNotCoveredOperator, (mergedBlock, blockToMerge) -> {
+      merger.mergeResultsBlocks(mergedBlock, blockToMerge);
+      return mergedBlock;
+    }, numTotalDocs);
+  }
+
+  public static PartialStarTreeOperator<GroupByResultsBlock> forGroupBy(QueryContext queryContext,
+      Operator<GroupByResultsBlock> starTreeOperator, Operator<GroupByResultsBlock> docsNotCoveredOperator,
+      long numTotalDocs) {
+    return new PartialStarTreeOperator<>(starTreeOperator, docsNotCoveredOperator,
+        (block1, block2) -> mergeGroupByResults(queryContext, block1, block2), numTotalDocs);
+  }
+
+  @Override
+  protected T getNextBlock() {
+    return _merger.apply(_starTreeOperator.nextBlock(), _docsNotCoveredOperator.nextBlock());
+  }
+
+  /**
+   * Merges the groups of the given results blocks into a results block of intermediate records, which can be merged
+   * by the combine operator the same way as the results of a single group-by operator.
+   */
+  private static GroupByResultsBlock mergeGroupByResults(QueryContext queryContext, GroupByResultsBlock block1,
+      GroupByResultsBlock block2) {
+    AggregationFunction[] aggregationFunctions = queryContext.getAggregationFunctions();
+    assert aggregationFunctions != null && queryContext.getGroupByExpressions() != null;
+    int numGroupByExpressions = queryContext.getGroupByExpressions().size();
+    Map<Key, Record> records = new HashMap<>();
+    for (GroupByResultsBlock block : Arrays.asList(block1, block2)) {
+      Collection<IntermediateRecord> intermediateRecords = block.getIntermediateRecords();
+      if (intermediateRecords != null) {
+        for (IntermediateRecord intermediateRecord : intermediateRecords) {
+          mergeRecord(records, intermediateRecord._key, intermediateRecord._record, aggregationFunctions,
+              numGroupByExpressions);
+        }
+      } else {
+        AggregationGroupByResult aggregationGroupByResult = block.getAggregationGroupByResult();
+        if (aggregationGroupByResult != null) {
+          Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = aggregationGroupByResult.getGroupKeyIterator();
+          while (groupKeyIterator.hasNext()) {
+            GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
+            Object[] keys = groupKey._keys;
+            Object[] values = Arrays.copyOf(keys, numGroupByExpressions + aggregationFunctions.length);
+            for (int i = 0; i < aggregationFunctions.length; i++) {
+              values[numGroupByExpressions + i] = aggregationGroupByResult.getResultForGroupId(i, groupKey._groupId);
+            }
+            mergeRecord(records, new Key(keys), new Record(values), aggregationFunctions, numGroupByExpressions);
+          }
+        }
+      }
+    }
+    List<IntermediateRecord> intermediateRecords = new ArrayList<>(records.size());
+    for (Map.Entry<Key, Record> entry : records.entrySet()) {
+      intermediateRecords.add(IntermediateRecord.create(entry.getKey(), entry.getValue()));
+    }
+    GroupByResultsBlock mergedBlock =
+        new GroupByResultsBlock(block1.getDataSchema(), intermediateRecords, queryContext);
+    mergedBlock.setGroupsTrimmed(block1.isGroupsTrimmed() || block2.isGroupsTrimmed());
+    mergedBlock.setNumGroupsLimitReached(block1.isNumGroupsLimitReached() || block2.isNumGroupsLimitReached());
+    mergedBlock.setNumGroupsWarningLimitReached(
+        block1.isNumGroupsWarningLimitReached() || block2.isNumGroupsWarningLimitReached());
+    return mergedBlock;
+  }
+
+  private static void mergeRecord(Map<Key, Record> records, Key key, Record record,
+      AggregationFunction[] aggregationFunctions, int numGroupByExpressions) {
+    Record existingRecord = records.putIfAbsent(key, record);
+    if (existingRecord != null) {
+      Object[] existingValues = existingRecord.getValues();
+      Object[] values = record.getValues();
+      for (int i = 0; i < aggregationFunctions.length; i++) {
+        int index = numGroupByExpressions + i;
+        existingValues[index] = aggregationFunctions[i].merge(existingValues[index], values[index]);
+      }
+    }
+  }
+
+  @Override
+  public List<Operator> getChildOperators() {
+    return Arrays.asList(_starTreeOperator, _docsNotCoveredOperator);
+  }
+
+  @Override
+  public ExecutionStatistics getExecutionStatistics() {
+    ExecutionStatistics starTreeStatistics = _starTreeOperator.getExecutionStatistics();
+    ExecutionStatistics docsNotCoveredStatistics = _docsNotCoveredOperator.getExecutionStatistics();
+    return new ExecutionStatistics(
+        starTreeStatistics.getNumDocsScanned() + docsNotCoveredStatistics.getNumDocsScanned(),
+        starTreeStatistics.getNumEntriesScannedInFilter() + docsNotCoveredStatistics.getNumEntriesScannedInFilter(),
+        starTreeStatistics.getNumEntriesScannedPostFilter()
+            + docsNotCoveredStatistics.getNumEntriesScannedPostFilter(), _numTotalDocs);
+  }
+
+  @Override
+  public String toExplainString() {
+    return EXPLAIN_NAME;
+  }
+
+  @Override
+  protected String getExplainName() {
+    return CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.UPPER_CAMEL, EXPLAIN_NAME);
+  }
+}
@@ -21,9 +21,11 @@ package org.apache.pinot.core.operator.transform.function;
 import com.google.common.base.Preconditions;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import org.apache.commons.lang3.ArrayUtils;
+import org.apache.pinot.common.function.BatchFunctionInvoker;
 import org.apache.pinot.common.function.FunctionInfo;
 import org.apache.pinot.common.function.FunctionUtils;
 import org.apache.pinot.common.function.QueryFunctionInvoker;
@@ -39,12 +41,16 @@ import org.apache.pinot.spi.utils.CommonConstants.NullValuePlaceHolder;
 
 /**
  * Wrapper transform function on the annotated scalar function.
+ * <p>When the scalar function has a batch variant (see {@link FunctionInfo#getBatchMethod()}), the single-value results
+ * are computed with one invocation per block over the primitive values, instead of one invocation per row over the
+ * boxed values.
  */
 public class ScalarTransformFunctionWrapper extends BaseTransformFunction {
   private final String _name;
   private final QueryFunctionInvoker _functionInvoker;
   private final ColumnDataType _resultType;
   private final TransformResultMetadata _resultMetadata;
+  private final BatchFunctionInvoker _batchFunctionInvoker;
 
   private Object[] _scalarArguments;
   private int _numNonLiteralArguments;
@@ -52,6 +58,11 @@ public class ScalarTransformFunctionWrapper extends BaseTransformFunction {
   private TransformFunction[] _nonLiteralFunctions;
   private Object[][] _nonLiteralValues;
 
+  // For batch evaluation
+  private boolean _useBatchMethod;
+  private Object[] _batchArguments;
+  private int _literalValuesCapacity;
+
   public ScalarTransformFunctionWrapper(FunctionInfo functionInfo) {
     _name = functionInfo.getMethod().getName();
     _functionInvoker = new QueryFunctionInvoker(functionInfo);
@@ -72,6 +83,8 @@ public class ScalarTransformFunctionWrapper extends BaseTransformFunction {
       _resultType = ColumnDataType.STRING;
       _resultMetadata = new TransformResultMetadata(DataType.STRING, true, false);
     }
+    _batchFunctionInvoker =
+        functionInfo.getBatchMethod() != null ? new BatchFunctionInvoker(functionInfo) : null;
   }
 
   @Override
@@ -150,6 +163,18 @@ public class ScalarTransformFunctionWrapper extends BaseTransformFunction {
       }
     }
     _nonLiteralValues = new Object[_numNonLiteralArguments][];
+
+    // Batch method cannot handle null literal
+    _useBatchMethod = _batchFunctionInvoker != null;
+    for (int i = 0; i < numArguments && _useBatchMethod; i++) {
+      if (_scalarArguments[i] == null && arguments.get(i) instanceof LiteralTransformFunction) {
+        _useBatchMethod = false;
+      }
+    }
+    if (_useBatchMethod) {
+      // Arguments for the batch method: length, values for each parameter, results
+      _batchArguments = new Object[numArguments + 2];
+    }
   }
 
   @Override
@@ -164,6 +189,10 @@ public class ScalarTransformFunctionWrapper extends BaseTransformFunction {
     }
     int length = valueBlock.getNumDocs();
     initIntValuesSV(length);
+    if (_useBatchMethod) {
+      transformInBatch(valueBlock, _intValuesSV);
+      return _intValuesSV;
+    }
     getNonLiteralValues(valueBlock);
     for (int i = 0; i < length; i++) {
       for (int j = 0; j < _numNonLiteralArguments; j++) {
@@ -182,6 +211,10 @@ public class ScalarTransformFunctionWrapper extends BaseTransformFunction {
     }
     int length = valueBlock.getNumDocs();
     initLongValuesSV(length);
+    if (_useBatchMethod) {
+      transformInBatch(valueBlock, _longValuesSV);
+      return _longValuesSV;
+    }
     getNonLiteralValues(valueBlock);
     for (int i = 0; i < length; i++) {
       for (int j = 0; j < _numNonLiteralArguments; j++) {
@@ -200,6 +233,10 @@ public class ScalarTransformFunctionWrapper extends BaseTransformFunction {
     }
     int length = valueBlock.getNumDocs();
     initFloatValuesSV(length);
+    if (_useBatchMethod) {
+      transformInBatch(valueBlock, _floatValuesSV);
+      return _floatValuesSV;
+    }
     getNonLiteralValues(valueBlock);
     for (int i = 0; i < length; i++) {
       for (int j = 0; j < _numNonLiteralArguments; j++) {
@@ -219,6 +256,10 @@ public class ScalarTransformFunctionWrapper extends BaseTransformFunction {
     }
     int length = valueBlock.getNumDocs();
     initDoubleValuesSV(length);
+    if (_useBatchMethod) {
+      transformInBatch(valueBlock, _doubleValuesSV);
+      return _doubleValuesSV;
+    }
     getNonLiteralValues(valueBlock);
     for (int i = 0; i < length; i++) {
       for (int j = 0; j < _numNonLiteralArguments; j++) {
@@ -257,6 +298,10 @@ public class ScalarTransformFunctionWrapper extends BaseTransformFunction {
     }
     int length = valueBlock.getNumDocs();
     initStringValuesSV(length);
+    if (_useBatchMethod) {
+      transformInBatch(valueBlock, _stringValuesSV);
+      return _stringValuesSV;
+    }
     getNonLiteralValues(valueBlock);
     for (int i = 0; i < length; i++) {
       for (int j = 0; j < _numNonLiteralArguments; j++) {
@@ -374,6 +419,85 @@ public class ScalarTransformFunctionWrapper extends BaseTransformFunction {
     return _stringValuesMV;
   }
 
+  /**
+   * Helper method to evaluate the function over the block with the batch method, and write the results into the given
+   * results array.
+   */
+  private void transformInBatch(ValueBlock valueBlock, Object results) {
+    int length = valueBlock.getNumDocs();
+    int numArguments = _scalarArguments.length;
+    if (length > _literalValuesCapacity) {
+      // Fill the literal arguments (non-literal arguments are filled below for each block)
+      for (int i = 0; i < numArguments; i++) {
+        Object literal = _scalarArguments[i];
+        if (literal != null) {
+          _batchArguments[i + 1] = getLiteralValues(literal, length);
+        }
+      }
+      _literalValuesCapacity = length;
+    }
+    _batchArguments[0] = length;
+    PinotDataType[] parameterTypes = _functionInvoker.getParameterTypes();
+    for (int i = 0; i < _numNonLiteralArguments; i++) {
+      int index = _nonLiteralIndices[i];
+      TransformFunction transformFunction = _nonLiteralFunctions[i];
+      switch (parameterTypes[index]) {
+        case INTEGER:
+          _batchArguments[index + 1] = transformFunction.transformToIntValuesSV(valueBlock);
+          break;
+        case LONG:
+          _batchArguments[index + 1] = transformFunction.transformToLongValuesSV(valueBlock);
+          break;
+        case FLOAT:
+          _batchArguments[index + 1] = transformFunction.transformToFloatValuesSV(valueBlock);
+          break;
+        case DOUBLE:
+          _batchArguments[index + 1] = transformFunction.transformToDoubleValuesSV(valueBlock);
+          break;
+        case STRING:
+          _batchArguments[index + 1] = transformFunction.transformToStringValuesSV(valueBlock);
+          break;
+        default:
+          throw new IllegalStateException("Unsupported parameter type: " + parameterTypes[index] + " for batch method: "
+              + _batchFunctionInvoker.getBatchMethod());
+      }
+    }
+    _batchArguments[numArguments + 1] = results;
+    _batchFunctionInvoker.invoke(_batchArguments);
+  }
+
+  /**
+   * Helper method to create the primitive (or String) array filled with the given literal for the batch method.
+   */
+  private static Object getLiteralValues(Object literal, int length) {
+    if (literal instanceof Integer) {
+      int[] values = new int[length];
+      Arrays.fill(values, (int) literal);
+      return values;
+    }
+    if (literal instanceof Long) {
+      long[] values = new long[length];
+      Arrays.fill(values, (long) literal);
+      return values;
+    }
+    if (literal instanceof Float) {
+      float[] values = new float[length];
+      Arrays.fill(values, (float) literal);
+      return values;
+    }
+    if (literal instanceof Double) {
+      double[] values = new double[length];
+      Arrays.fill(values, (double) literal);
+      return values;
+    }
+    if (literal instanceof String) {
+      String[] values = new String[length];
+      Arrays.fill(values, literal);
+      return values;
+    }
+    throw new IllegalStateException("Unsupported literal: " + literal + " for batch method");
+  }
+
   /**
    * Helper method to fetch values for the non-literal transform functions based on the parameter types.
    */
@@ -29,6 +29,7 @@ import org.apache.pinot.core.operator.query.EmptyAggregationOperator;
 import org.apache.pinot.core.operator.query.FastFilteredCountOperator;
 import org.apache.pinot.core.operator.query.FilteredAggregationOperator;
 import org.apache.pinot.core.operator.query.NonScanBasedAggregationOperator;
+import org.apache.pinot.core.operator.query.PartialStarTreeOperator;
 import org.apache.pinot.core.query.aggregation.function.AggregationFunction;
 import org.apache.pinot.core.query.aggregation.function.AggregationFunctionUtils;
 import org.apache.pinot.core.query.aggregation.function.AggregationFunctionUtils.AggregationInfo;
@@ -102,11 +103,20 @@ public class AggregationPlanNode implements PlanNode {
     BaseFilterOperator filterOperator = filterPlanNode.run();
 
     // Priority 1: Check if star-tree based aggregation is feasible
-    AggregationInfo aggregationInfo = AggregationFunctionUtils.buildAggregationInfoWithStarTree(_segmentContext,
-        _queryContext, aggregationFunctions, _queryContext.getFilter(), filterOperator,
+    AggregationInfo aggregationInfo = AggregationFunctionUtils.buildAggregationInfoWithPartialStarTree(
+        _segmentContext, _queryContext, aggregationFunctions, _queryContext.getFilter(), filterOperator,
         filterPlanNode.getPredicateEvaluators());
     if (aggregationInfo != null) {
-      return new AggregationOperator(_queryContext, aggregationInfo, numTotalDocs);
+      AggregationOperator starTreeOperator = new AggregationOperator(_queryContext, aggregationInfo, numTotalDocs);
+      if (aggregationInfo.getNumDocsCoveredByStarTree() >= numTotalDocs) {
+        return starTreeOperator;
+      }
+      // The star-tree of a consuming segment does not cover the docs indexed after it was built
+      AggregationOperator docsNotCoveredOperator = new AggregationOperator(_queryContext,
+          AggregationFunctionUtils.buildAggregationInfoForDocsNotCoveredByStarTree(_segmentContext, _queryContext,
+              aggregationInfo), numTotalDocs);
+      return PartialStarTreeOperator.forAggregation(_queryContext, starTreeOperator, docsNotCoveredOperator,
+          numTotalDocs);
     }
 
     boolean hasNullValues = _queryContext.isNullHandlingEnabled() && hasNullValues(aggregationFunctions);
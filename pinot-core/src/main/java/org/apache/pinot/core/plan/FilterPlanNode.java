@@ -52,6 +52,7 @@ import org.apache.pinot.core.operator.filter.predicate.FSTBasedRegexpPredicateEv
 import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluator;
 import org.apache.pinot.core.operator.filter.predicate.PredicateEvaluatorProvider;
 import org.apache.pinot.core.operator.transform.function.ItemTransformFunction;
+import org.apache.pinot.core.query.executor.FilterResultCache;
 import org.apache.pinot.core.query.request.context.QueryContext;
 import org.apache.pinot.segment.local.realtime.impl.invertedindex.NativeMutableTextIndex;
 import org.apache.pinot.segment.local.segment.index.readers.text.NativeTextIndexReader;
@@ -67,6 +68,7 @@ import org.apache.pinot.segment.spi.index.reader.TextIndexReader;
 import org.apache.pinot.segment.spi.index.reader.VectorIndexReader;
 import org.apache.pinot.spi.config.table.FieldConfig;
 import org.apache.pinot.spi.exception.BadQueryRequestException;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
 import org.roaringbitmap.buffer.MutableRoaringBitmap;
 
 
@@ -209,6 +211,46 @@ public class FilterPlanNode implements PlanNode {
     return function.getFunctionName().equals(ItemTransformFunction.FUNCTION_NAME);
   }
 
+  /**
+   * Returns the key of the leaf predicate in the {@link FilterResultCache}, or {@code null} if the cache is not enabled
+   * or the result cannot be cached. Predicates always evaluating to true or false are not cached because they are
+   * already optimized, and the results are not cached when null handling is enabled because the operator of the NOT
+   * filter needs the null doc ids from the leaf operator.
+   */
+  @Nullable
+  private FilterResultCache.CacheKey getFilterResultCacheKey(Predicate predicate,
+      PredicateEvaluator predicateEvaluator) {
+    FilterResultCache filterResultCache = FilterResultCache.getInstance();
+    if (filterResultCache == null || _queryContext.isNullHandlingEnabled() || predicateEvaluator.isAlwaysTrue()
+        || predicateEvaluator.isAlwaysFalse()) {
+      return null;
+    }
+    return FilterResultCache.getCacheKey(_queryContext.getTableName(), _indexSegment, predicate);
+  }
+
+  /**
+   * Returns a bitmap based filter operator on the cached matching doc ids of the leaf predicate. On cache miss, the
+   * bitmaps of the leaf filter operator are cached. Leaf filter operators that cannot produce bitmaps (e.g. scan based)
+   * are returned as is, because evaluating them fully on a cache miss would scan the whole column while the AND/OR
+   * operators only scan the candidate docs.
+   */
+  private BaseFilterOperator getCachedLeafFilterOperator(FilterResultCache.CacheKey cacheKey,
+      PredicateEvaluator predicateEvaluator, DataSource dataSource, int numDocs) {
+    BaseFilterOperator filterOperator =
+        FilterOperatorUtils.getLeafFilterOperator(_queryContext, predicateEvaluator, dataSource, numDocs);
+    if (!filterOperator.canProduceBitmaps() || filterOperator.isResultEmpty()
+        || filterOperator.isResultMatchingAll()) {
+      return filterOperator;
+    }
+    FilterResultCache filterResultCache = FilterResultCache.getInstance();
+    assert filterResultCache != null;
+    ImmutableRoaringBitmap docIds = filterResultCache.get(cacheKey);
+    if (docIds == null) {
+      docIds = filterResultCache.put(cacheKey, filterOperator);
+    }
+    return new BitmapBasedFilterOperator(docIds, false, numDocs);
+  }
+
   /**
    * Helper method to build the operator tree from the filter.
    */
@@ -351,6 +393,10 @@ public class FilterPlanNode implements PlanNode {
               predicateEvaluator =
                   PredicateEvaluatorProvider.getPredicateEvaluator(predicate, dataSource, _queryContext);
               _predicateEvaluators.add(Pair.of(predicate, predicateEvaluator));
+              FilterResultCache.CacheKey cacheKey = getFilterResultCacheKey(predicate, predicateEvaluator);
+              if (cacheKey != null) {
+                return getCachedLeafFilterOperator(cacheKey, predicateEvaluator, dataSource, numDocs);
+              }
               return FilterOperatorUtils.getLeafFilterOperator(_queryContext, predicateEvaluator, dataSource, numDocs);
           }
         }
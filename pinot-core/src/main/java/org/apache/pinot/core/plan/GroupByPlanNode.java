@@ -23,7 +23,9 @@ import org.apache.pinot.core.operator.blocks.results.GroupByResultsBlock;
 import org.apache.pinot.core.operator.filter.BaseFilterOperator;
 import org.apache.pinot.core.operator.query.FilteredGroupByOperator;
 import org.apache.pinot.core.operator.query.GroupByOperator;
+import org.apache.pinot.core.operator.query.PartialStarTreeOperator;
 import org.apache.pinot.core.query.aggregation.function.AggregationFunctionUtils;
+import org.apache.pinot.core.query.aggregation.function.AggregationFunctionUtils.AggregationInfo;
 import org.apache.pinot.core.query.request.context.QueryContext;
 import org.apache.pinot.segment.spi.IndexSegment;
 import org.apache.pinot.segment.spi.SegmentContext;
@@ -55,13 +57,26 @@ public class GroupByPlanNode implements PlanNode {
         _indexSegment.getSegmentMetadata().getTotalDocs());
   }
 
-  private GroupByOperator buildNonFilteredGroupByPlan() {
+  private Operator<GroupByResultsBlock> buildNonFilteredGroupByPlan() {
+    int numTotalDocs = _indexSegment.getSegmentMetadata().getTotalDocs();
     FilterPlanNode filterPlanNode = new FilterPlanNode(_segmentContext, _queryContext);
     BaseFilterOperator filterOperator = filterPlanNode.run();
-    AggregationFunctionUtils.AggregationInfo aggregationInfo =
-        AggregationFunctionUtils.buildAggregationInfo(_segmentContext, _queryContext,
-            _queryContext.getAggregationFunctions(), _queryContext.getFilter(), filterOperator,
-            filterPlanNode.getPredicateEvaluators());
-    return new GroupByOperator(_queryContext, aggregationInfo, _indexSegment.getSegmentMetadata().getTotalDocs());
+    AggregationInfo aggregationInfo = AggregationFunctionUtils.buildAggregationInfoWithPartialStarTree(
+        _segmentContext, _queryContext, _queryContext.getAggregationFunctions(), _queryContext.getFilter(),
+        filterOperator, filterPlanNode.getPredicateEvaluators());
+    if (aggregationInfo == null) {
+      aggregationInfo = AggregationFunctionUtils.buildAggregationInfoWithoutStarTree(_segmentContext, _queryContext,
+          _queryContext.getAggregationFunctions(), filterOperator);
+      return new GroupByOperator(_queryContext, aggregationInfo, numTotalDocs);
+    }
+    GroupByOperator starTreeOperator = new GroupByOperator(_queryContext, aggregationInfo, numTotalDocs);
+    if (aggregationInfo.getNumDocsCoveredByStarTree() >= numTotalDocs) {
+      return starTreeOperator;
+    }
+    // The star-tree of a consuming segment does not cover the docs indexed after it was built
+    GroupByOperator docsNotCoveredOperator = new GroupByOperator(_queryContext,
+        AggregationFunctionUtils.buildAggregationInfoForDocsNotCoveredByStarTree(_segmentContext, _queryContext,
+            aggregationInfo), numTotalDocs);
+    return PartialStarTreeOperator.forGroupBy(_queryContext, starTreeOperator, docsNotCoveredOperator, numTotalDocs);
   }
 }
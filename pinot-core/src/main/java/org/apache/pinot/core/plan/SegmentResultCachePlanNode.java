@@ -0,0 +1,53 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.plan;
+
+import org.apache.pinot.core.operator.SegmentResultCacheOperator;
+import org.apache.pinot.core.query.executor.SegmentResultCache;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.segment.spi.SegmentContext;
+
+
+/**
+ * A wrapper for the segment-level plan node of the queries eligible for the {@link SegmentResultCache}.
+ * Similar to {@link AcquireReleaseColumnsSegmentPlanNode}, it does not invoke <code>run</code> on the child plan node,
+ * but passes it to the {@link SegmentResultCacheOperator}, which only runs it on cache miss.
+ */
+public class SegmentResultCachePlanNode implements PlanNode {
+  private final PlanNode _childPlanNode;
+  private final SegmentContext _segmentContext;
+  private final QueryContext _queryContext;
+  private final SegmentResultCache _segmentResultCache;
+  private final SegmentResultCache.CacheKey _cacheKey;
+
+  public SegmentResultCachePlanNode(PlanNode childPlanNode, SegmentContext segmentContext, QueryContext queryContext,
+      SegmentResultCache segmentResultCache, SegmentResultCache.CacheKey cacheKey) {
+    _childPlanNode = childPlanNode;
+    _segmentContext = segmentContext;
+    _queryContext = queryContext;
+    _segmentResultCache = segmentResultCache;
+    _cacheKey = cacheKey;
+  }
+
+  @Override
+  public SegmentResultCacheOperator run() {
+    return new SegmentResultCacheOperator(_childPlanNode, _segmentContext.getIndexSegment(), _queryContext,
+        _segmentResultCache, _cacheKey);
+  }
+}
@@ -20,13 +20,16 @@ package org.apache.pinot.core.plan.maker;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import javax.annotation.Nullable;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.common.request.context.ExpressionContext;
@@ -43,11 +46,13 @@ import org.apache.pinot.core.plan.GroupByPlanNode;
 import org.apache.pinot.core.plan.InstanceResponsePlanNode;
 import org.apache.pinot.core.plan.Plan;
 import org.apache.pinot.core.plan.PlanNode;
+import org.apache.pinot.core.plan.SegmentResultCachePlanNode;
 import org.apache.pinot.core.plan.SelectionPlanNode;
 import org.apache.pinot.core.plan.StreamingInstanceResponsePlanNode;
 import org.apache.pinot.core.plan.StreamingSelectionPlanNode;
 import org.apache.pinot.core.query.aggregation.function.AggregationFunction;
 import org.apache.pinot.core.query.executor.ResultsBlockStreamer;
+import org.apache.pinot.core.query.executor.SegmentResultCache;
 import org.apache.pinot.core.query.prefetch.FetchPlanner;
 import org.apache.pinot.core.query.prefetch.FetchPlannerRegistry;
 import org.apache.pinot.core.query.request.context.QueryContext;
@@ -116,6 +121,8 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   private int _minSegmentGroupTrimSize = Server.DEFAULT_QUERY_EXECUTOR_MIN_SEGMENT_GROUP_TRIM_SIZE;
   private int _minServerGroupTrimSize = Server.DEFAULT_QUERY_EXECUTOR_MIN_SERVER_GROUP_TRIM_SIZE;
   private int _groupByTrimThreshold = Server.DEFAULT_QUERY_EXECUTOR_GROUPBY_TRIM_THRESHOLD;
+  private int _groupBySpillThreshold = Server.DEFAULT_QUERY_EXECUTOR_GROUPBY_SPILL_THRESHOLD;
+  private File _groupBySpillDir = FileUtils.getTempDirectory();
 
   @Override
   public void init(PinotConfiguration queryExecutorConfig) {
@@ -143,10 +150,17 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
         Server.DEFAULT_QUERY_EXECUTOR_GROUPBY_TRIM_THRESHOLD);
     Preconditions.checkState(_groupByTrimThreshold > 0,
         "Invalid configurable: groupByTrimThreshold: %d must be positive", _groupByTrimThreshold);
+    _groupBySpillThreshold = queryExecutorConfig.getProperty(Server.GROUPBY_SPILL_THRESHOLD,
+        Server.DEFAULT_QUERY_EXECUTOR_GROUPBY_SPILL_THRESHOLD);
+    String groupBySpillDir = queryExecutorConfig.getProperty(Server.GROUPBY_SPILL_DIR);
+    if (groupBySpillDir != null) {
+      _groupBySpillDir = new File(groupBySpillDir);
+    }
     LOGGER.info("Initialized plan maker with maxExecutionThreads: {}, maxInitialResultHolderCapacity: {}, "
-            + "numGroupsLimit: {}, minSegmentGroupTrimSize: {}, minServerGroupTrimSize: {}, groupByTrimThreshold: {}",
-        _maxExecutionThreads, _maxInitialResultHolderCapacity, _numGroupsLimit, _minSegmentGroupTrimSize,
-        _minServerGroupTrimSize, _groupByTrimThreshold);
+            + "numGroupsLimit: {}, minSegmentGroupTrimSize: {}, minServerGroupTrimSize: {}, groupByTrimThreshold: {}, "
+            + "groupBySpillThreshold: {}, groupBySpillDir: {}", _maxExecutionThreads, _maxInitialResultHolderCapacity,
+        _numGroupsLimit, _minSegmentGroupTrimSize, _minServerGroupTrimSize, _groupByTrimThreshold,
+        _groupBySpillThreshold, _groupBySpillDir);
   }
 
   @VisibleForTesting
@@ -179,10 +193,18 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
     _groupByTrimThreshold = groupByTrimThreshold;
   }
 
+  @VisibleForTesting
+  public void setGroupBySpillThreshold(int groupBySpillThreshold) {
+    _groupBySpillThreshold = groupBySpillThreshold;
+  }
+
   public Plan makeInstancePlan(List<SegmentContext> segmentContexts, QueryContext queryContext,
       ExecutorService executorService, ServerMetrics serverMetrics) {
     applyQueryOptions(queryContext);
 
+    // The query key for the segment result cache must be computed after applying the query options
+    String segmentResultCacheQueryKey = queryContext.getSegmentResultCache() != null
+        ? SegmentResultCache.getQueryKey(queryContext) : null;
     int numSegments = segmentContexts.size();
     List<PlanNode> planNodes = new ArrayList<>(numSegments);
     List<FetchContext> fetchContexts;
@@ -192,14 +214,14 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
         FetchContext fetchContext =
             _fetchPlanner.planFetchForProcessing(segmentContext.getIndexSegment(), queryContext);
         fetchContexts.add(fetchContext);
-        planNodes.add(
-            new AcquireReleaseColumnsSegmentPlanNode(makeSegmentPlanNode(segmentContext, queryContext), segmentContext,
-                fetchContext));
+        planNodes.add(new AcquireReleaseColumnsSegmentPlanNode(
+            makeSegmentPlanNode(segmentContext, queryContext, segmentResultCacheQueryKey), segmentContext,
+            fetchContext));
       }
     } else {
       fetchContexts = Collections.emptyList();
       for (SegmentContext segmentContext : segmentContexts) {
-        planNodes.add(makeSegmentPlanNode(segmentContext, queryContext));
+        planNodes.add(makeSegmentPlanNode(segmentContext, queryContext, segmentResultCacheQueryKey));
       }
     }
 
@@ -285,6 +307,14 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
       } else {
         queryContext.setGroupTrimThreshold(_groupByTrimThreshold);
       }
+      // Set groupBySpillThreshold
+      Integer groupBySpillThreshold = QueryOptionsUtils.getGroupBySpillThreshold(queryOptions);
+      if (groupBySpillThreshold != null) {
+        queryContext.setGroupBySpillThreshold(groupBySpillThreshold);
+      } else {
+        queryContext.setGroupBySpillThreshold(_groupBySpillThreshold);
+      }
+      queryContext.setGroupBySpillDir(_groupBySpillDir);
       // Set numThreadsExtractFinalResult
       Integer numThreadsExtractFinalResult = QueryOptionsUtils.getNumThreadsExtractFinalResult(queryOptions);
       if (numThreadsExtractFinalResult != null) {
@@ -302,6 +332,24 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
     }
   }
 
+  /**
+   * Makes the segment-level plan node, which serves the results from the segment result cache when the query is
+   * eligible for caching (segment result cache query key is provided) and the segment results can be cached.
+   */
+  private PlanNode makeSegmentPlanNode(SegmentContext segmentContext, QueryContext queryContext,
+      @Nullable String segmentResultCacheQueryKey) {
+    PlanNode planNode = makeSegmentPlanNode(segmentContext, queryContext);
+    if (segmentResultCacheQueryKey != null) {
+      SegmentResultCache.CacheKey cacheKey =
+          SegmentResultCache.getCacheKey(segmentResultCacheQueryKey, segmentContext.getIndexSegment());
+      if (cacheKey != null) {
+        return new SegmentResultCachePlanNode(planNode, segmentContext, queryContext,
+            queryContext.getSegmentResultCache(), cacheKey);
+      }
+    }
+    return planNode;
+  }
+
   @Override
   public PlanNode makeSegmentPlanNode(SegmentContext segmentContext, QueryContext queryContext) {
     rewriteQueryContextWithHints(queryContext, segmentContext.getIndexSegment());
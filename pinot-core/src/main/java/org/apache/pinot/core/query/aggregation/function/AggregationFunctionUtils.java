@@ -52,8 +52,11 @@ import org.apache.pinot.core.plan.ProjectPlanNode;
 import org.apache.pinot.core.query.request.context.QueryContext;
 import org.apache.pinot.core.startree.StarTreeUtils;
 import org.apache.pinot.segment.spi.AggregationFunctionType;
+import org.apache.pinot.segment.spi.IndexSegment;
 import org.apache.pinot.segment.spi.SegmentContext;
 import org.apache.pinot.segment.spi.index.startree.AggregationFunctionColumnPair;
+import org.apache.pinot.segment.spi.index.startree.StarTreeV2;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
 
 
 /**
@@ -257,12 +260,19 @@ public class AggregationFunctionUtils {
     private final AggregationFunction[] _functions;
     private final BaseProjectOperator<?> _projectOperator;
     private final boolean _useStarTree;
+    private final int _numDocsCoveredByStarTree;
 
     public AggregationInfo(AggregationFunction[] functions, BaseProjectOperator<?> projectOperator,
         boolean useStarTree) {
+      this(functions, projectOperator, useStarTree, Integer.MAX_VALUE);
+    }
+
+    public AggregationInfo(AggregationFunction[] functions, BaseProjectOperator<?> projectOperator, boolean useStarTree,
+        int numDocsCoveredByStarTree) {
       _functions = functions;
       _projectOperator = projectOperator;
       _useStarTree = useStarTree;
+      _numDocsCoveredByStarTree = numDocsCoveredByStarTree;
     }
 
     public AggregationFunction[] getFunctions() {
@@ -276,6 +286,13 @@ public class AggregationFunctionUtils {
     public boolean isUseStarTree() {
       return _useStarTree;
     }
+
+    /**
+     * Returns the number of segment docs covered by the star-tree, see {@link StarTreeV2#getNumCoveredDocs()}.
+     */
+    public int getNumDocsCoveredByStarTree() {
+      return _numDocsCoveredByStarTree;
+    }
   }
 
   /**
@@ -311,6 +328,50 @@ public class AggregationFunctionUtils {
     return null;
   }
 
+  /**
+   * Builds {@link AggregationInfo} for aggregations using star-tree index, where the star-tree might only cover the
+   * first docs of the segment (see {@link AggregationInfo#getNumDocsCoveredByStarTree()}). The docs not covered by the
+   * star-tree must be processed with {@link #buildAggregationInfoForDocsNotCoveredByStarTree}. Returns {@code null} if
+   * star-tree index cannot be used.
+   */
+  @Nullable
+  public static AggregationInfo buildAggregationInfoWithPartialStarTree(SegmentContext segmentContext,
+      QueryContext queryContext, AggregationFunction[] aggregationFunctions, @Nullable FilterContext filter,
+      BaseFilterOperator filterOperator, List<Pair<Predicate, PredicateEvaluator>> predicateEvaluators) {
+    if (!filterOperator.isResultEmpty()) {
+      Pair<BaseProjectOperator<?>, StarTreeV2> projectOperatorStarTreePair =
+          StarTreeUtils.createPartialStarTreeBasedProjectOperator(segmentContext.getIndexSegment(), queryContext,
+              aggregationFunctions, filter, predicateEvaluators);
+      if (projectOperatorStarTreePair != null) {
+        return new AggregationInfo(aggregationFunctions, projectOperatorStarTreePair.getLeft(), true,
+            projectOperatorStarTreePair.getRight().getNumCoveredDocs());
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Builds {@link AggregationInfo} for aggregations without using star-tree index on the docs not covered by the
+   * star-tree used in the given {@link AggregationInfo}, i.e. the docs indexed into a consuming segment after its
+   * star-tree was built.
+   */
+  public static AggregationInfo buildAggregationInfoForDocsNotCoveredByStarTree(SegmentContext segmentContext,
+      QueryContext queryContext, AggregationInfo starTreeAggregationInfo) {
+    IndexSegment indexSegment = segmentContext.getIndexSegment();
+    MutableRoaringBitmap docIds = new MutableRoaringBitmap();
+    docIds.add((long) starTreeAggregationInfo.getNumDocsCoveredByStarTree(),
+        indexSegment.getSegmentMetadata().getTotalDocs());
+    MutableRoaringBitmap queryableDocIdsSnapshot = segmentContext.getQueryableDocIdsSnapshot();
+    if (queryableDocIdsSnapshot != null) {
+      docIds.and(queryableDocIdsSnapshot);
+    }
+    SegmentContext docsNotCoveredSegmentContext = new SegmentContext(indexSegment);
+    docsNotCoveredSegmentContext.setQueryableDocIdsSnapshot(docIds);
+    BaseFilterOperator filterOperator = new FilterPlanNode(docsNotCoveredSegmentContext, queryContext).run();
+    return buildAggregationInfoWithoutStarTree(docsNotCoveredSegmentContext, queryContext,
+        starTreeAggregationInfo.getFunctions(), filterOperator);
+  }
+
   /**
    * Builds {@link AggregationInfo} for aggregations without using star-tree index.
    */
@@ -0,0 +1,216 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.executor;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.pinot.common.metrics.ServerMeter;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.request.context.ExpressionContext;
+import org.apache.pinot.common.request.context.predicate.Predicate;
+import org.apache.pinot.core.operator.filter.BaseFilterOperator;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+
+/**
+ * Server level cache of the matching doc ids of the leaf predicates (EQ, NOT_EQ, IN, NOT_IN and RANGE on a column) on
+ * immutable segments, shared across the queries so that the same predicates evaluated repeatedly on the same segments
+ * (e.g. tenant or status filters) are served from a bitmap instead of re-evaluating the index or scanning the column.
+ *
+ * <p>The bitmaps are keyed by the table, the segment name, the segment CRC and the predicate, so that a replaced
+ * segment never serves a stale result, and the entries of a segment are invalidated when the segment is closed (see
+ * {@code BaseTableDataManager}). The bitmaps are stored on heap and do not reference the segment buffers. The cache is
+ * bounded by the total size of the cached bitmaps. Only the results of the filter operators that can produce bitmaps
+ * (i.e. served by an index) are cached, so that a cache miss never costs more than evaluating the predicate without
+ * the cache. Only the filter results are cached, the queryable doc ids (e.g. for upsert) are still applied separately
+ * by the {@code FilterPlanNode}.
+ *
+ * <p>The cache is disabled by default, and can be enabled with
+ * {@code pinot.server.query.filter.result.cache.max.size.bytes}. {@link #init(long)} is called in BaseServerStarter.
+ */
+@ThreadSafe
+public class FilterResultCache {
+  private static final Set<Predicate.Type> CACHEABLE_PREDICATE_TYPES =
+      EnumSet.of(Predicate.Type.EQ, Predicate.Type.NOT_EQ, Predicate.Type.IN, Predicate.Type.NOT_IN,
+          Predicate.Type.RANGE);
+  // Rough heap size of the key and the entry
+  private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+  private static volatile FilterResultCache _instance;
+
+  private final Cache<CacheKey, ImmutableRoaringBitmap> _cache;
+  // Keys of the cached entries of each segment (table name with type and segment name), so that the entries of a
+  // segment can be invalidated without walking the whole cache
+  private final ConcurrentHashMap<Pair<String, String>, Set<CacheKey>> _keysBySegment = new ConcurrentHashMap<>();
+
+  @VisibleForTesting
+  FilterResultCache(long maxSizeInBytes) {
+    Preconditions.checkArgument(maxSizeInBytes > 0, "Max size of the filter result cache must be positive, got: %s",
+        maxSizeInBytes);
+    _cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxSizeInBytes)
+        .weigher((CacheKey key, ImmutableRoaringBitmap value) -> ENTRY_OVERHEAD_BYTES + key._predicate.length()
+            + value.getSizeInBytes())
+        .removalListener(notification -> {
+          if (notification.getCause() != RemovalCause.REPLACED) {
+            CacheKey key = notification.getKey();
+            _keysBySegment.computeIfPresent(key._segmentKey, (segmentKey, keys) -> {
+              keys.remove(key);
+              return keys.isEmpty() ? null : keys;
+            });
+          }
+        })
+        .build();
+  }
+
+  /**
+   * Initializes the server level cache with the given max size, or disables it when the max size is not positive.
+   */
+  public static void init(long maxSizeInBytes) {
+    _instance = maxSizeInBytes > 0 ? new FilterResultCache(maxSizeInBytes) : null;
+  }
+
+  /**
+   * Returns the server level cache, or {@code null} if it is not enabled.
+   */
+  @Nullable
+  public static FilterResultCache getInstance() {
+    return _instance;
+  }
+
+  @VisibleForTesting
+  static void setInstance(@Nullable FilterResultCache instance) {
+    _instance = instance;
+  }
+
+  /**
+   * Returns the cache key for the given predicate on the given segment, or {@code null} if the result cannot be cached
+   * (only the supported predicate types on a column of an immutable segment can be cached).
+   */
+  @Nullable
+  public static CacheKey getCacheKey(String tableNameWithType, IndexSegment indexSegment, Predicate predicate) {
+    if (!(indexSegment instanceof ImmutableSegment) || !CACHEABLE_PREDICATE_TYPES.contains(predicate.getType())
+        || predicate.getLhs().getType() != ExpressionContext.Type.IDENTIFIER) {
+      return null;
+    }
+    String crc = indexSegment.getSegmentMetadata().getCrc();
+    if (crc == null) {
+      return null;
+    }
+    return new CacheKey(tableNameWithType, indexSegment.getSegmentName(), crc, predicate.toString());
+  }
+
+  /**
+   * Returns the cached matching doc ids, or {@code null} if they are not cached. The returned bitmap must not be
+   * modified.
+   */
+  @Nullable
+  public ImmutableRoaringBitmap get(CacheKey key) {
+    ImmutableRoaringBitmap docIds = _cache.getIfPresent(key);
+    ServerMetrics.get().addMeteredTableValue(key._tableNameWithType,
+        docIds != null ? ServerMeter.FILTER_RESULT_CACHE_HITS : ServerMeter.FILTER_RESULT_CACHE_MISSES, 1);
+    return docIds;
+  }
+
+  /**
+   * Computes the matching doc ids of the given (not yet executed) leaf filter operator, caches and returns them. The
+   * filter operator must be able to produce bitmaps.
+   */
+  public ImmutableRoaringBitmap put(CacheKey key, BaseFilterOperator filterOperator) {
+    Preconditions.checkArgument(filterOperator.canProduceBitmaps(), "Filter operator: %s cannot produce bitmaps",
+        filterOperator.getClass().getSimpleName());
+    // Copy the bitmap because the index bitmaps reference the segment buffers
+    MutableRoaringBitmap docIds = filterOperator.getBitmaps().reduce().toMutableRoaringBitmap();
+    docIds.runOptimize();
+    ImmutableRoaringBitmap immutableDocIds = docIds.toImmutableRoaringBitmap();
+    _keysBySegment.compute(key._segmentKey, (segmentKey, keys) -> {
+      if (keys == null) {
+        keys = ConcurrentHashMap.newKeySet();
+      }
+      keys.add(key);
+      return keys;
+    });
+    _cache.put(key, immutableDocIds);
+    return immutableDocIds;
+  }
+
+  /**
+   * Invalidates all the cached results of the given segment.
+   */
+  public void invalidate(String tableNameWithType, String segmentName) {
+    Set<CacheKey> keys = _keysBySegment.remove(Pair.of(tableNameWithType, segmentName));
+    if (keys != null) {
+      _cache.invalidateAll(keys);
+    }
+  }
+
+  public void invalidateAll() {
+    _cache.invalidateAll();
+  }
+
+  @VisibleForTesting
+  long size() {
+    _cache.cleanUp();
+    return _cache.size();
+  }
+
+  public static final class CacheKey {
+    private final String _tableNameWithType;
+    private final Pair<String, String> _segmentKey;
+    private final String _crc;
+    private final String _predicate;
+
+    private CacheKey(String tableNameWithType, String segmentName, String crc, String predicate) {
+      _tableNameWithType = tableNameWithType;
+      _segmentKey = Pair.of(tableNameWithType, segmentName);
+      _crc = crc;
+      _predicate = predicate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof CacheKey)) {
+        return false;
+      }
+      CacheKey that = (CacheKey) o;
+      return _segmentKey.equals(that._segmentKey) && _crc.equals(that._crc) && _predicate.equals(that._predicate);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(_segmentKey, _crc, _predicate);
+    }
+  }
+}
@@ -0,0 +1,368 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.executor;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.CustomObject;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.data.table.IntermediateRecord;
+import org.apache.pinot.core.data.table.Key;
+import org.apache.pinot.core.data.table.Record;
+import org.apache.pinot.core.operator.ExecutionStatistics;
+import org.apache.pinot.core.operator.blocks.results.AggregationResultsBlock;
+import org.apache.pinot.core.operator.blocks.results.BaseResultsBlock;
+import org.apache.pinot.core.operator.blocks.results.GroupByResultsBlock;
+import org.apache.pinot.core.query.aggregation.function.AggregationFunction;
+import org.apache.pinot.core.query.aggregation.function.AggregationFunction.SerializedIntermediateResult;
+import org.apache.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
+import org.apache.pinot.core.query.aggregation.groupby.GroupKeyGenerator;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.spi.utils.ByteArray;
+import org.apache.pinot.spi.utils.CommonConstants.Broker.Request;
+import org.apache.pinot.spi.utils.CommonConstants.Broker.Request.QueryOptionKey;
+
+
+/**
+ * Server level cache of the per-segment intermediate results for aggregation and group-by queries on immutable
+ * segments, so that repeated queries (e.g. dashboard queries) only need to scan the new and consuming segments.
+ *
+ * <p>The results are keyed by the normalized query (see {@link #getQueryKey(QueryContext)}), the segment name and the
+ * segment CRC, so that a replaced segment never serves a stale result. The intermediate results are stored in the
+ * serialized form because the combine operators merge into the per-segment results in place, and a fresh copy is
+ * deserialized for each cache hit. The cache is bounded by the estimated heap size of the entries, and can be cleared
+ * under heap pressure (see {@code PerQueryCPUMemResourceUsageAccountant.registerHeapMemoryCriticalCallback()}).
+ */
+@ThreadSafe
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class SegmentResultCache {
+  // Query options that do not affect the per-segment results
+  private static final Set<String> IGNORED_QUERY_OPTIONS =
+      Set.of(QueryOptionKey.TIMEOUT_MS, QueryOptionKey.EXTRA_PASSIVE_TIMEOUT_MS,
+          QueryOptionKey.MAX_SERVER_RESPONSE_SIZE_BYTES, QueryOptionKey.MAX_QUERY_RESPONSE_SIZE_BYTES,
+          QueryOptionKey.CLIENT_QUERY_ID, QueryOptionKey.APPLICATION_NAME, QueryOptionKey.IS_SECONDARY_WORKLOAD,
+          QueryOptionKey.WORKLOAD_NAME, Request.TRACE);
+  // Rough per object overhead used to estimate the heap size of the cached results
+  private static final int OBJECT_OVERHEAD_BYTES = 16;
+
+  private final Cache<CacheKey, CachedResult> _cache;
+
+  public SegmentResultCache(long maxSizeInBytes) {
+    Preconditions.checkArgument(maxSizeInBytes > 0, "Max size of the segment result cache must be positive, got: %s",
+        maxSizeInBytes);
+    _cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxSizeInBytes)
+        .weigher((CacheKey key, CachedResult value) -> (int) Math.min(value._sizeInBytes, Integer.MAX_VALUE))
+        .build();
+  }
+
+  /**
+   * Returns the normalized query used as part of the cache key, which contains all the properties of the query that
+   * can affect the per-segment results. Should be called after the query options are applied to the query context.
+   */
+  public static String getQueryKey(QueryContext queryContext) {
+    Map<String, String> queryOptions = new TreeMap<>();
+    for (Map.Entry<String, String> entry : queryContext.getQueryOptions().entrySet()) {
+      if (!IGNORED_QUERY_OPTIONS.contains(entry.getKey())) {
+        queryOptions.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return queryContext.getTableName() + '|' + queryContext.getSelectExpressions() + '|' + queryContext.getFilter()
+        + '|' + queryContext.getGroupByExpressions() + '|' + queryContext.getHavingFilter() + '|'
+        + queryContext.getOrderByExpressions() + '|' + queryContext.getLimit() + '|' + queryContext.getOffset() + '|'
+        + queryOptions + '|' + queryContext.getExpressionOverrideHints() + '|' + queryContext.isNullHandlingEnabled()
+        + '|' + queryContext.getNumGroupsLimit() + '|' + queryContext.getMinSegmentGroupTrimSize() + '|'
+        + queryContext.getMaxInitialResultHolderCapacity();
+  }
+
+  /**
+   * Returns the cache key for the given segment, or {@code null} if the results of the segment cannot be cached (only
+   * immutable segments without valid doc ids, i.e. not from upsert tables, can be cached).
+   */
+  @Nullable
+  public static CacheKey getCacheKey(String queryKey, IndexSegment indexSegment) {
+    if (!(indexSegment instanceof ImmutableSegment) || indexSegment.getValidDocIds() != null
+        || indexSegment.getQueryableDocIds() != null) {
+      return null;
+    }
+    String crc = indexSegment.getSegmentMetadata().getCrc();
+    if (crc == null) {
+      return null;
+    }
+    return new CacheKey(queryKey, indexSegment.getSegmentName(), crc);
+  }
+
+  /**
+   * Returns the cached result, or {@code null} if the result is not cached. Use
+   * {@link CachedResult#toResultsBlock(QueryContext)} to get a results block from the cached result.
+   */
+  @Nullable
+  public CachedResult get(CacheKey key) {
+    return _cache.getIfPresent(key);
+  }
+
+  /**
+   * Caches the given per-segment results block if it is supported (aggregation or group-by results without errors).
+   * Must be invoked before the results block is merged with other results blocks.
+   */
+  public void put(CacheKey key, BaseResultsBlock resultsBlock, ExecutionStatistics executionStatistics,
+      QueryContext queryContext) {
+    if (resultsBlock.getErrorMessages() != null) {
+      return;
+    }
+    CachedResult cachedResult;
+    if (resultsBlock instanceof AggregationResultsBlock) {
+      cachedResult = CachedResult.fromAggregationResults((AggregationResultsBlock) resultsBlock, executionStatistics);
+    } else if (resultsBlock instanceof GroupByResultsBlock) {
+      cachedResult =
+          CachedResult.fromGroupByResults((GroupByResultsBlock) resultsBlock, executionStatistics, queryContext);
+    } else {
+      return;
+    }
+    _cache.put(key, cachedResult);
+  }
+
+  public void invalidateAll() {
+    _cache.invalidateAll();
+  }
+
+  @VisibleForTesting
+  long size() {
+    return _cache.size();
+  }
+
+  public static class CacheKey {
+    private final String _queryKey;
+    private final String _segmentName;
+    private final String _crc;
+
+    private CacheKey(String queryKey, String segmentName, String crc) {
+      _queryKey = queryKey;
+      _segmentName = segmentName;
+      _crc = crc;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof CacheKey)) {
+        return false;
+      }
+      CacheKey that = (CacheKey) o;
+      return _segmentName.equals(that._segmentName) && _crc.equals(that._crc) && _queryKey.equals(that._queryKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(_queryKey, _segmentName, _crc);
+    }
+  }
+
+  /**
+   * The cached per-segment result. The intermediate results of type {@link ColumnDataType#OBJECT} are stored as
+   * {@link SerializedIntermediateResult}, and the other values are immutable.
+   */
+  public static class CachedResult {
+    private final ExecutionStatistics _executionStatistics;
+    // For aggregation results
+    private final Object[] _aggregationResults;
+    // For group-by results, where each row contains the group keys followed by the aggregation results
+    private final DataSchema _dataSchema;
+    private final List<Object[]> _groupByRows;
+    private final boolean _groupsTrimmed;
+    private final boolean _numGroupsLimitReached;
+    private final boolean _numGroupsWarningLimitReached;
+    private final long _sizeInBytes;
+
+    private CachedResult(ExecutionStatistics executionStatistics, @Nullable Object[] aggregationResults,
+        @Nullable DataSchema dataSchema, @Nullable List<Object[]> groupByRows, boolean groupsTrimmed,
+        boolean numGroupsLimitReached, boolean numGroupsWarningLimitReached, long sizeInBytes) {
+      _executionStatistics = executionStatistics;
+      _aggregationResults = aggregationResults;
+      _dataSchema = dataSchema;
+      _groupByRows = groupByRows;
+      _groupsTrimmed = groupsTrimmed;
+      _numGroupsLimitReached = numGroupsLimitReached;
+      _numGroupsWarningLimitReached = numGroupsWarningLimitReached;
+      _sizeInBytes = sizeInBytes;
+    }
+
+    static CachedResult fromAggregationResults(AggregationResultsBlock resultsBlock,
+        ExecutionStatistics executionStatistics) {
+      AggregationFunction[] aggregationFunctions = resultsBlock.getAggregationFunctions();
+      List<Object> results = resultsBlock.getResults();
+      int numAggregationFunctions = results.size();
+      Object[] aggregationResults = new Object[numAggregationFunctions];
+      long sizeInBytes = OBJECT_OVERHEAD_BYTES;
+      for (int i = 0; i < numAggregationFunctions; i++) {
+        Object value = serialize(aggregationFunctions[i], results.get(i));
+        aggregationResults[i] = value;
+        sizeInBytes += estimateSize(value);
+      }
+      return new CachedResult(executionStatistics, aggregationResults, null, null, false, false, false, sizeInBytes);
+    }
+
+    static CachedResult fromGroupByResults(GroupByResultsBlock resultsBlock, ExecutionStatistics executionStatistics,
+        QueryContext queryContext) {
+      AggregationFunction[] aggregationFunctions = queryContext.getAggregationFunctions();
+      assert aggregationFunctions != null && queryContext.getGroupByExpressions() != null;
+      int numAggregationFunctions = aggregationFunctions.length;
+      int numGroupByExpressions = queryContext.getGroupByExpressions().size();
+      int numColumns = numGroupByExpressions + numAggregationFunctions;
+      List<Object[]> groupByRows = new ArrayList<>();
+      long sizeInBytes = OBJECT_OVERHEAD_BYTES;
+      Collection<IntermediateRecord> intermediateRecords = resultsBlock.getIntermediateRecords();
+      if (intermediateRecords != null) {
+        for (IntermediateRecord intermediateRecord : intermediateRecords) {
+          Object[] values = intermediateRecord._record.getValues();
+          Object[] row = Arrays.copyOf(values, numColumns);
+          for (int i = 0; i < numAggregationFunctions; i++) {
+            int index = numGroupByExpressions + i;
+            row[index] = serialize(aggregationFunctions[i], values[index]);
+          }
+          groupByRows.add(row);
+          sizeInBytes += estimateSize(row);
+        }
+      } else {
+        AggregationGroupByResult aggregationGroupByResult = resultsBlock.getAggregationGroupByResult();
+        if (aggregationGroupByResult != null) {
+          Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = aggregationGroupByResult.getGroupKeyIterator();
+          while (groupKeyIterator.hasNext()) {
+            GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
+            int groupId = groupKey._groupId;
+            Object[] row = Arrays.copyOf(groupKey._keys, numColumns);
+            for (int i = 0; i < numAggregationFunctions; i++) {
+              row[numGroupByExpressions + i] =
+                  serialize(aggregationFunctions[i], aggregationGroupByResult.getResultForGroupId(i, groupId));
+            }
+            groupByRows.add(row);
+            sizeInBytes += estimateSize(row);
+          }
+        }
+      }
+      return new CachedResult(executionStatistics, null, resultsBlock.getDataSchema(), groupByRows,
+          resultsBlock.isGroupsTrimmed(), resultsBlock.isNumGroupsLimitReached(),
+          resultsBlock.isNumGroupsWarningLimitReached(), sizeInBytes);
+    }
+
+    public ExecutionStatistics getExecutionStatistics() {
+      return _executionStatistics;
+    }
+
+    /**
+     * Returns a new results block with a fresh copy of the intermediate results, which can be modified by the caller.
+     */
+    public BaseResultsBlock toResultsBlock(QueryContext queryContext) {
+      AggregationFunction[] aggregationFunctions = queryContext.getAggregationFunctions();
+      assert aggregationFunctions != null;
+      int numAggregationFunctions = aggregationFunctions.length;
+      if (_aggregationResults != null) {
+        List<Object> results = new ArrayList<>(numAggregationFunctions);
+        for (int i = 0; i < numAggregationFunctions; i++) {
+          results.add(deserialize(aggregationFunctions[i], _aggregationResults[i]));
+        }
+        return new AggregationResultsBlock(aggregationFunctions, results, queryContext);
+      }
+      assert _groupByRows != null && queryContext.getGroupByExpressions() != null;
+      int numGroupByExpressions = queryContext.getGroupByExpressions().size();
+      List<IntermediateRecord> intermediateRecords = new ArrayList<>(_groupByRows.size());
+      for (Object[] row : _groupByRows) {
+        Object[] keys = Arrays.copyOf(row, numGroupByExpressions);
+        Object[] values = Arrays.copyOf(row, row.length);
+        for (int i = 0; i < numAggregationFunctions; i++) {
+          int index = numGroupByExpressions + i;
+          values[index] = deserialize(aggregationFunctions[i], row[index]);
+        }
+        intermediateRecords.add(IntermediateRecord.create(new Key(keys), new Record(values)));
+      }
+      GroupByResultsBlock resultsBlock = new GroupByResultsBlock(_dataSchema, intermediateRecords, queryContext);
+      resultsBlock.setGroupsTrimmed(_groupsTrimmed);
+      resultsBlock.setNumGroupsLimitReached(_numGroupsLimitReached);
+      resultsBlock.setNumGroupsWarningLimitReached(_numGroupsWarningLimitReached);
+      return resultsBlock;
+    }
+
+    @Nullable
+    private static Object serialize(AggregationFunction aggregationFunction, @Nullable Object intermediateResult) {
+      if (intermediateResult == null
+          || aggregationFunction.getIntermediateResultColumnType() != ColumnDataType.OBJECT) {
+        return intermediateResult;
+      }
+      return aggregationFunction.serializeIntermediateResult(intermediateResult);
+    }
+
+    @Nullable
+    private static Object deserialize(AggregationFunction aggregationFunction, @Nullable Object value) {
+      if (!(value instanceof SerializedIntermediateResult)) {
+        return value;
+      }
+      SerializedIntermediateResult serializedResult = (SerializedIntermediateResult) value;
+      // Copy the bytes so that the deserialized object never shares the buffer with the cached result
+      return aggregationFunction.deserializeIntermediateResult(
+          new CustomObject(serializedResult.getType(), ByteBuffer.wrap(serializedResult.getBytes().clone())));
+    }
+
+    private static long estimateSize(@Nullable Object value) {
+      if (value == null) {
+        return 0;
+      }
+      if (value instanceof SerializedIntermediateResult) {
+        return 2 * OBJECT_OVERHEAD_BYTES + ((SerializedIntermediateResult) value).getBytes().length;
+      }
+      if (value instanceof String) {
+        return 2 * OBJECT_OVERHEAD_BYTES + ((String) value).length();
+      }
+      if (value instanceof ByteArray) {
+        return 2 * OBJECT_OVERHEAD_BYTES + ((ByteArray) value).length();
+      }
+      if (value instanceof BigDecimal) {
+        return 4 * OBJECT_OVERHEAD_BYTES;
+      }
+      if (value instanceof Object[]) {
+        Object[] values = (Object[]) value;
+        long size = OBJECT_OVERHEAD_BYTES + 8L * values.length;
+        for (Object element : values) {
+          size += estimateSize(element);
+        }
+        return size;
+      }
+      return OBJECT_OVERHEAD_BYTES;
+    }
+  }
+}
@@ -43,6 +43,7 @@ import org.apache.pinot.common.request.context.FilterContext;
 import org.apache.pinot.common.request.context.FunctionContext;
 import org.apache.pinot.common.utils.config.QueryOptionsUtils;
 import org.apache.pinot.common.utils.request.RequestUtils;
+import org.apache.pinot.core.accounting.PerQueryCPUMemAccountantFactory.PerQueryCPUMemResourceUsageAccountant;
 import org.apache.pinot.core.common.ExplainPlanRowData;
 import org.apache.pinot.core.common.ExplainPlanRows;
 import org.apache.pinot.core.common.Operator;
@@ -65,12 +66,14 @@ import org.apache.pinot.core.query.request.ServerQueryRequest;
 import org.apache.pinot.core.query.request.context.QueryContext;
 import org.apache.pinot.core.query.request.context.TimerContext;
 import org.apache.pinot.core.query.request.context.utils.QueryContextConverterUtils;
+import org.apache.pinot.core.query.request.context.utils.QueryContextUtils;
 import org.apache.pinot.core.query.utils.idset.IdSet;
 import org.apache.pinot.core.util.trace.TraceContext;
 import org.apache.pinot.segment.local.data.manager.SegmentDataManager;
 import org.apache.pinot.segment.spi.AggregationFunctionType;
 import org.apache.pinot.segment.spi.IndexSegment;
 import org.apache.pinot.segment.spi.SegmentContext;
+import org.apache.pinot.spi.accounting.ThreadResourceUsageAccountant;
 import org.apache.pinot.spi.env.PinotConfiguration;
 import org.apache.pinot.spi.exception.QueryCancelledException;
 import org.apache.pinot.spi.exception.QueryErrorCode;
@@ -96,6 +99,7 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
   private PlanMaker _planMaker;
   private long _defaultTimeoutMs;
   private boolean _enablePrefetch;
+  private SegmentResultCache _segmentResultCache;
 
   @Override
   public synchronized void init(PinotConfiguration config, InstanceDataManager instanceDataManager,
@@ -115,8 +119,20 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
     _planMaker.init(config);
     _defaultTimeoutMs = config.getProperty(Server.TIMEOUT, Server.DEFAULT_QUERY_EXECUTOR_TIMEOUT_MS);
     _enablePrefetch = Boolean.parseBoolean(config.getProperty(ENABLE_PREFETCH));
-    LOGGER.info("Initialized query executor with defaultTimeoutMs: {}, enablePrefetch: {}", _defaultTimeoutMs,
-        _enablePrefetch);
+    long segmentResultCacheMaxSizeBytes = config.getProperty(Server.SEGMENT_RESULT_CACHE_MAX_SIZE_BYTES,
+        Server.DEFAULT_QUERY_EXECUTOR_SEGMENT_RESULT_CACHE_MAX_SIZE_BYTES);
+    if (segmentResultCacheMaxSizeBytes > 0) {
+      SegmentResultCache segmentResultCache = new SegmentResultCache(segmentResultCacheMaxSizeBytes);
+      // Release the cached results before killing queries when the heap usage is critical
+      ThreadResourceUsageAccountant threadAccountant = Tracing.getThreadAccountant();
+      if (threadAccountant instanceof PerQueryCPUMemResourceUsageAccountant) {
+        ((PerQueryCPUMemResourceUsageAccountant) threadAccountant).registerHeapMemoryCriticalCallback(
+            segmentResultCache::invalidateAll);
+      }
+      _segmentResultCache = segmentResultCache;
+    }
+    LOGGER.info("Initialized query executor with defaultTimeoutMs: {}, enablePrefetch: {}, "
+        + "segmentResultCacheMaxSizeBytes: {}", _defaultTimeoutMs, _enablePrefetch, segmentResultCacheMaxSizeBytes);
   }
 
   @Override
@@ -579,6 +595,9 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
       return new InstanceResponseBlock(ResultsBlockUtils.buildEmptyQueryResults(queryContext));
     }
     InstanceResponseBlock instanceResponse;
+    if (_segmentResultCache != null && streamer == null && QueryContextUtils.isAggregationQuery(queryContext)) {
+      queryContext.setSegmentResultCache(_segmentResultCache);
+    }
     Plan queryPlan = planCombineQuery(queryContext, timerContext, executorService, streamer, selectedSegmentContexts);
 
     TimerContext.Timer planExecTimer = timerContext.startNewPhaseTimer(ServerQueryPhase.QUERY_PLAN_EXECUTION);
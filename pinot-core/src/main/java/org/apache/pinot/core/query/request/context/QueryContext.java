@@ -19,6 +19,7 @@
 package org.apache.pinot.core.query.request.context;
 
 import com.google.common.base.Preconditions;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -29,6 +30,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pinot.common.request.context.ExpressionContext;
 import org.apache.pinot.common.request.context.FilterContext;
@@ -39,6 +41,7 @@ import org.apache.pinot.common.utils.config.QueryOptionsUtils;
 import org.apache.pinot.core.plan.maker.InstancePlanMakerImplV2;
 import org.apache.pinot.core.query.aggregation.function.AggregationFunction;
 import org.apache.pinot.core.query.aggregation.function.AggregationFunctionFactory;
+import org.apache.pinot.core.query.executor.SegmentResultCache;
 import org.apache.pinot.core.util.MemoizedClassAssociation;
 import org.apache.pinot.segment.spi.datasource.DataSource;
 import org.apache.pinot.spi.config.table.FieldConfig;
@@ -128,6 +131,10 @@ public class QueryContext {
   private int _minServerGroupTrimSize = Server.DEFAULT_QUERY_EXECUTOR_MIN_SERVER_GROUP_TRIM_SIZE;
   // Trim threshold to use for server combine for SQL GROUP BY
   private int _groupTrimThreshold = Server.DEFAULT_QUERY_EXECUTOR_GROUPBY_TRIM_THRESHOLD;
+  // Number of groups kept in memory for server combine for SQL GROUP BY before spilling them to disk
+  private int _groupBySpillThreshold = Server.DEFAULT_QUERY_EXECUTOR_GROUPBY_SPILL_THRESHOLD;
+  // Directory to spill the groups for server combine for SQL GROUP BY
+  private File _groupBySpillDir = FileUtils.getTempDirectory();
   // Number of threads to use for final reduce
   private int _numThreadsExtractFinalResult = InstancePlanMakerImplV2.DEFAULT_NUM_THREADS_EXTRACT_FINAL_RESULT;
   // Parallel chunk size for final reduce
@@ -142,6 +149,8 @@ public class QueryContext {
   private boolean _isUnsafeTrim;
   // Collection of index types to skip per column
   private Map<String, Set<FieldConfig.IndexType>> _skipIndexes;
+  // Cache of the per-segment results, set only when the query is eligible for caching
+  private SegmentResultCache _segmentResultCache;
 
   private QueryContext(@Nullable String tableName, @Nullable QueryContext subquery,
       List<ExpressionContext> selectExpressions, boolean distinct, List<String> aliasList,
@@ -456,6 +465,22 @@ public class QueryContext {
     _groupTrimThreshold = groupTrimThreshold;
   }
 
+  public int getGroupBySpillThreshold() {
+    return _groupBySpillThreshold;
+  }
+
+  public void setGroupBySpillThreshold(int groupBySpillThreshold) {
+    _groupBySpillThreshold = groupBySpillThreshold;
+  }
+
+  public File getGroupBySpillDir() {
+    return _groupBySpillDir;
+  }
+
+  public void setGroupBySpillDir(File groupBySpillDir) {
+    _groupBySpillDir = groupBySpillDir;
+  }
+
   public int getNumThreadsExtractFinalResult() {
     return _numThreadsExtractFinalResult;
   }
@@ -496,6 +521,15 @@ public class QueryContext {
     _serverReturnFinalResultKeyUnpartitioned = serverReturnFinalResultKeyUnpartitioned;
   }
 
+  @Nullable
+  public SegmentResultCache getSegmentResultCache() {
+    return _segmentResultCache;
+  }
+
+  public void setSegmentResultCache(@Nullable SegmentResultCache segmentResultCache) {
+    _segmentResultCache = segmentResultCache;
+  }
+
   /**
    * Gets or computes a value of type {@code V} associated with a key of type {@code K} so that it can be shared
    * within the scope of a query.
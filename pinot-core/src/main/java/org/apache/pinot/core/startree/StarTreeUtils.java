@@ -355,12 +355,38 @@ public class StarTreeUtils {
   }
 
   /**
-   * Returns a {@link BaseProjectOperator} when the filter can be solved with star-tree, or {@code null} otherwise.
+   * Returns a {@link BaseProjectOperator} when the filter can be solved with star-tree, or {@code null} otherwise. Only
+   * the star-trees covering all the docs of the segment are used.
    */
   @Nullable
   public static BaseProjectOperator<?> createStarTreeBasedProjectOperator(IndexSegment indexSegment,
       QueryContext queryContext, AggregationFunction[] aggregationFunctions, @Nullable FilterContext filter,
       List<Pair<Predicate, PredicateEvaluator>> predicateEvaluators) {
+    Pair<BaseProjectOperator<?>, StarTreeV2> projectOperatorStarTreePair =
+        createStarTreeBasedProjectOperator(indexSegment, queryContext, aggregationFunctions, filter,
+            predicateEvaluators, false);
+    return projectOperatorStarTreePair != null ? projectOperatorStarTreePair.getLeft() : null;
+  }
+
+  /**
+   * Same as {@link #createStarTreeBasedProjectOperator(IndexSegment, QueryContext, AggregationFunction[],
+   * FilterContext, List)}, but also uses the star-trees only covering the first docs of the segment (see
+   * {@link StarTreeV2#getNumCoveredDocs()}), and returns the star-tree used along with the {@link BaseProjectOperator}.
+   * The docs not covered by the star-tree must be processed separately.
+   */
+  @Nullable
+  public static Pair<BaseProjectOperator<?>, StarTreeV2> createPartialStarTreeBasedProjectOperator(
+      IndexSegment indexSegment, QueryContext queryContext, AggregationFunction[] aggregationFunctions,
+      @Nullable FilterContext filter, List<Pair<Predicate, PredicateEvaluator>> predicateEvaluators) {
+    return createStarTreeBasedProjectOperator(indexSegment, queryContext, aggregationFunctions, filter,
+        predicateEvaluators, true);
+  }
+
+  @Nullable
+  private static Pair<BaseProjectOperator<?>, StarTreeV2> createStarTreeBasedProjectOperator(
+      IndexSegment indexSegment, QueryContext queryContext, AggregationFunction[] aggregationFunctions,
+      @Nullable FilterContext filter, List<Pair<Predicate, PredicateEvaluator>> predicateEvaluators,
+      boolean allowPartialStarTree) {
     List<StarTreeV2> starTrees = indexSegment.getStarTrees();
     if (starTrees == null || queryContext.isSkipStarTree()) {
       return null;
@@ -440,11 +466,15 @@ public class StarTreeUtils {
       aggregations.add(Pair.of(aggregationFunctions[i], aggregationFunctionColumnPairs[i]));
     }
 
+    int numDocs = indexSegment.getSegmentMetadata().getTotalDocs();
     for (StarTreeV2 starTreeV2 : starTrees) {
+      if (!allowPartialStarTree && starTreeV2.getNumCoveredDocs() < numDocs) {
+        continue;
+      }
       if (isFitForStarTree(starTreeV2.getMetadata(), aggregations, groupByExpressions,
           predicateEvaluatorsMap.keySet())) {
-        return new StarTreeProjectPlanNode(queryContext, starTreeV2, aggregationFunctionColumnPairs, groupByExpressions,
-            predicateEvaluatorsMap).run();
+        return Pair.of(new StarTreeProjectPlanNode(queryContext, starTreeV2, aggregationFunctionColumnPairs,
+            groupByExpressions, predicateEvaluatorsMap).run(), starTreeV2);
       }
     }
     return null;
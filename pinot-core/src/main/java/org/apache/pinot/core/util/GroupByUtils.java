@@ -27,6 +27,7 @@ import org.apache.pinot.core.data.table.ConcurrentIndexedTable;
 import org.apache.pinot.core.data.table.DeterministicConcurrentIndexedTable;
 import org.apache.pinot.core.data.table.IndexedTable;
 import org.apache.pinot.core.data.table.SimpleIndexedTable;
+import org.apache.pinot.core.data.table.SpillableIndexedTable;
 import org.apache.pinot.core.data.table.UnboundedConcurrentIndexedTable;
 import org.apache.pinot.core.operator.blocks.results.GroupByResultsBlock;
 import org.apache.pinot.core.query.reduce.DataTableReducerContext;
@@ -132,6 +133,14 @@ public final class GroupByUtils {
     } else {
       resultSize = trimSize;
     }
+    // When spill is enabled, spill the groups to disk instead of trimming them to get accurate results
+    int spillThreshold = queryContext.getGroupBySpillThreshold();
+    if (spillThreshold > 0 && SpillableIndexedTable.isSpillSupported(dataSchema)) {
+      int initialCapacity = getIndexedTableInitialCapacity(spillThreshold, numGroups, minInitialIndexedTableCapacity);
+      return new SpillableIndexedTable(dataSchema, false, queryContext, resultSize, spillThreshold,
+          queryContext.getGroupBySpillDir(), initialCapacity, executorService);
+    }
+
     int trimThreshold = getIndexedTableTrimThreshold(trimSize, queryContext.getGroupTrimThreshold());
     int initialCapacity = getIndexedTableInitialCapacity(trimThreshold, numGroups, minInitialIndexedTableCapacity);
     if (trimThreshold == Integer.MAX_VALUE) {
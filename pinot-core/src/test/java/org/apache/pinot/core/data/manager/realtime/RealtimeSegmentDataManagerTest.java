@@ -26,8 +26,11 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.time.Instant;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
@@ -45,6 +48,7 @@ import org.apache.pinot.core.realtime.impl.fakestream.FakeStreamConfigUtils;
 import org.apache.pinot.core.realtime.impl.fakestream.FakeStreamConsumerFactory;
 import org.apache.pinot.core.realtime.impl.fakestream.FakeStreamMessageDecoder;
 import org.apache.pinot.segment.local.data.manager.TableDataManager;
+import org.apache.pinot.segment.local.indexsegment.mutable.MutableSegmentImpl;
 import org.apache.pinot.segment.local.realtime.impl.RealtimeSegmentStatsHistory;
 import org.apache.pinot.segment.local.segment.creator.Fixtures;
 import org.apache.pinot.segment.local.segment.index.loader.IndexLoadingConfig;
@@ -52,7 +56,9 @@ import org.apache.pinot.segment.local.utils.SegmentLocks;
 import org.apache.pinot.spi.config.instance.InstanceDataManagerConfig;
 import org.apache.pinot.spi.config.table.TableConfig;
 import org.apache.pinot.spi.config.table.ingestion.IngestionConfig;
+import org.apache.pinot.spi.config.table.ingestion.StreamIngestionConfig;
 import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
 import org.apache.pinot.spi.env.PinotConfiguration;
 import org.apache.pinot.spi.metrics.PinotMetricUtils;
 import org.apache.pinot.spi.stream.LongMsgOffset;
@@ -68,8 +74,14 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -89,6 +101,8 @@ public class RealtimeSegmentDataManagerTest {
 
   private final Map<Integer, ConsumerCoordinator> _partitionGroupIdToConsumerCoordinatorMap =
       new ConcurrentHashMap<>();
+  // Fewer shared threads than the workers of a consuming segment in pipelined mode
+  private final ExecutorService _decodeTransformExecutor = Executors.newFixedThreadPool(2);
 
   private static TableConfig createTableConfig()
       throws Exception {
@@ -108,6 +122,7 @@ public class RealtimeSegmentDataManagerTest {
     when(statsHistory.getEstimatedAvgColSize(anyString())).thenReturn(32);
     when(tableDataManager.getStatsHistory()).thenReturn(statsHistory);
     when(tableDataManager.getConsumerDir()).thenReturn(TEMP_DIR.getAbsolutePath() + "/consumerDir");
+    when(tableDataManager.getDecodeTransformExecutor()).thenReturn(_decodeTransformExecutor);
     return tableDataManager;
   }
 
@@ -167,6 +182,7 @@ public class RealtimeSegmentDataManagerTest {
 
   @AfterClass
   public void tearDown() {
+    _decodeTransformExecutor.shutdownNow();
     FileUtils.deleteQuietly(TEMP_DIR);
     SegmentBuildTimeLeaseExtender.shutdownExecutor();
   }
@@ -859,6 +875,164 @@ public class RealtimeSegmentDataManagerTest {
     }
   }
 
+  @Test
+  public void testPipelinedDecodeTransform()
+      throws Exception {
+    TableConfig tableConfig = createTableConfig();
+    StreamIngestionConfig streamIngestionConfig =
+        new StreamIngestionConfig(List.of(tableConfig.getIndexingConfig().getStreamConfigs()));
+    streamIngestionConfig.setNumDecodeTransformThreads(3);
+    IngestionConfig ingestionConfig = new IngestionConfig();
+    ingestionConfig.setStreamIngestionConfig(streamIngestionConfig);
+    tableConfig.setIngestionConfig(ingestionConfig);
+    try (FakeRealtimeSegmentDataManager segmentDataManager = createFakeSegmentManager(true, new TimeSupplier(),
+        String.valueOf(FakeStreamConfigUtils.SEGMENT_FLUSH_THRESHOLD_ROWS), "10m", tableConfig)) {
+      segmentDataManager._stubConsumeLoop = false;
+      segmentDataManager._state.set(segmentDataManager, RealtimeSegmentDataManager.State.INITIAL_CONSUMING);
+
+      RealtimeSegmentDataManager.PartitionConsumer consumer = segmentDataManager.createPartitionConsumer();
+      final LongMsgOffset endOffset =
+          new LongMsgOffset(START_OFFSET_VALUE + FakeStreamConfigUtils.SEGMENT_FLUSH_THRESHOLD_ROWS);
+      segmentDataManager._consumeOffsets.add(endOffset);
+      final SegmentCompletionProtocol.Response response = new SegmentCompletionProtocol.Response(
+          new SegmentCompletionProtocol.Response.Params().withStatus(
+                  SegmentCompletionProtocol.ControllerResponseStatus.COMMIT)
+              .withStreamPartitionMsgOffset(endOffset.toString()));
+      segmentDataManager._responses.add(response);
+
+      consumer.run();
+
+      // All the messages decoded and transformed on the worker threads should be indexed
+      Assert.assertEquals(((LongMsgOffset) segmentDataManager.getCurrentOffset()).getOffset(),
+          START_OFFSET_VALUE + FakeStreamConfigUtils.SEGMENT_FLUSH_THRESHOLD_ROWS);
+      Assert.assertEquals(segmentDataManager.getSegment().getNumDocsIndexed(),
+          FakeStreamConfigUtils.SEGMENT_FLUSH_THRESHOLD_ROWS);
+      Assert.assertEquals(segmentDataManager.getSegment().getSegmentMetadata().getTotalDocs(),
+          FakeStreamConfigUtils.SEGMENT_FLUSH_THRESHOLD_ROWS);
+    }
+  }
+
+  @Test
+  public void testPrefetchingConsumer()
+      throws Exception {
+    TableConfig tableConfig = createTableConfig();
+    Map<String, String> streamConfigMap = tableConfig.getIndexingConfig().getStreamConfigs();
+    streamConfigMap.put(StreamConfigProperties.constructStreamProperty(
+        streamConfigMap.get(StreamConfigProperties.STREAM_TYPE),
+        StreamConfigProperties.STREAM_PREFETCH_MAX_BUFFERED_BYTES), "1M");
+    try (FakeRealtimeSegmentDataManager segmentDataManager = createFakeSegmentManager(true, new TimeSupplier(),
+        String.valueOf(FakeStreamConfigUtils.SEGMENT_FLUSH_THRESHOLD_ROWS), "10m", tableConfig)) {
+      segmentDataManager._stubConsumeLoop = false;
+      segmentDataManager._state.set(segmentDataManager, RealtimeSegmentDataManager.State.INITIAL_CONSUMING);
+
+      RealtimeSegmentDataManager.PartitionConsumer consumer = segmentDataManager.createPartitionConsumer();
+      final LongMsgOffset endOffset =
+          new LongMsgOffset(START_OFFSET_VALUE + FakeStreamConfigUtils.SEGMENT_FLUSH_THRESHOLD_ROWS);
+      segmentDataManager._consumeOffsets.add(endOffset);
+      final SegmentCompletionProtocol.Response response = new SegmentCompletionProtocol.Response(
+          new SegmentCompletionProtocol.Response.Params().withStatus(
+                  SegmentCompletionProtocol.ControllerResponseStatus.COMMIT)
+              .withStreamPartitionMsgOffset(endOffset.toString()));
+      segmentDataManager._responses.add(response);
+
+      consumer.run();
+
+      // All the messages fetched in the background should be indexed in order
+      Assert.assertEquals(((LongMsgOffset) segmentDataManager.getCurrentOffset()).getOffset(),
+          START_OFFSET_VALUE + FakeStreamConfigUtils.SEGMENT_FLUSH_THRESHOLD_ROWS);
+      Assert.assertEquals(segmentDataManager.getSegment().getNumDocsIndexed(),
+          FakeStreamConfigUtils.SEGMENT_FLUSH_THRESHOLD_ROWS);
+      Assert.assertEquals(segmentDataManager.getSegment().getSegmentMetadata().getTotalDocs(),
+          FakeStreamConfigUtils.SEGMENT_FLUSH_THRESHOLD_ROWS);
+    }
+  }
+
+  @Test
+  public void testBatchIndexing()
+      throws Exception {
+    int numRows = FakeStreamConfigUtils.SEGMENT_FLUSH_THRESHOLD_ROWS;
+    try (FakeRealtimeSegmentDataManager segmentDataManager = createFakeSegmentManager(true, new TimeSupplier(),
+        String.valueOf(numRows), "10m", null)) {
+      MutableSegmentImpl realtimeSegment = segmentDataManager.spyRealtimeSegment();
+      Assert.assertTrue(realtimeSegment.canIndexInBatch());
+      consumeUntilRowLimit(segmentDataManager, numRows);
+
+      // The whole message batch is indexed as one batch of rows after the loop, and it fills the segment
+      verify(realtimeSegment, times(1)).index(anyList(), any());
+      verify(realtimeSegment, never()).index(any(GenericRow.class), any());
+      Assert.assertEquals(((LongMsgOffset) segmentDataManager.getCurrentOffset()).getOffset(),
+          START_OFFSET_VALUE + numRows);
+      // NOTE: The segment metadata of the spied segment reads the doc count of the original segment
+      Assert.assertEquals(realtimeSegment.getNumDocsIndexed(), numRows);
+    }
+  }
+
+  @Test
+  public void testBatchIndexingFailure()
+      throws Exception {
+    int numRows = FakeStreamConfigUtils.SEGMENT_FLUSH_THRESHOLD_ROWS;
+    int numRowsIndexedBeforeFailure = 10;
+    try (FakeRealtimeSegmentDataManager segmentDataManager = createFakeSegmentManager(true, new TimeSupplier(),
+        String.valueOf(numRows), "10m", null)) {
+      MutableSegmentImpl realtimeSegment = segmentDataManager.spyRealtimeSegment();
+      // Fail the batch after indexing some of the rows, so that only the remaining rows are indexed one by one
+      doAnswer(invocation -> {
+        List<GenericRow> rows = invocation.getArgument(0);
+        for (int i = 0; i < numRowsIndexedBeforeFailure; i++) {
+          realtimeSegment.index(rows.get(i), null);
+        }
+        throw new IllegalStateException("Injected batch failure");
+      }).when(realtimeSegment).index(anyList(), any());
+      consumeUntilRowLimit(segmentDataManager, numRows);
+
+      // No row should be lost or indexed twice
+      verify(realtimeSegment, times(1)).index(anyList(), any());
+      verify(realtimeSegment, times(numRows)).index(any(GenericRow.class), any());
+      Assert.assertEquals(((LongMsgOffset) segmentDataManager.getCurrentOffset()).getOffset(),
+          START_OFFSET_VALUE + numRows);
+      // NOTE: The segment metadata of the spied segment reads the doc count of the original segment
+      Assert.assertEquals(realtimeSegment.getNumDocsIndexed(), numRows);
+    }
+  }
+
+  @Test
+  public void testBatchIndexingEndingAtRowLimit()
+      throws Exception {
+    // Row limit within the message batch, so that the pending rows are indexed inside the loop when reaching it
+    int numRows = FakeStreamConfigUtils.SEGMENT_FLUSH_THRESHOLD_ROWS / 3;
+    try (FakeRealtimeSegmentDataManager segmentDataManager = createFakeSegmentManager(true, new TimeSupplier(),
+        String.valueOf(numRows), "10m", null)) {
+      MutableSegmentImpl realtimeSegment = segmentDataManager.spyRealtimeSegment();
+      consumeUntilRowLimit(segmentDataManager, numRows);
+
+      // The consumption should stop exactly at the row limit without hitting the "Realtime segment full" error
+      verify(realtimeSegment, times(1)).index(anyList(), any());
+      verify(realtimeSegment, never()).index(any(GenericRow.class), any());
+      Assert.assertEquals(segmentDataManager.getStopReason(), SegmentCompletionProtocol.REASON_ROW_LIMIT);
+      Assert.assertEquals(((LongMsgOffset) segmentDataManager.getCurrentOffset()).getOffset(),
+          START_OFFSET_VALUE + numRows);
+      // NOTE: The segment metadata of the spied segment reads the doc count of the original segment
+      Assert.assertEquals(realtimeSegment.getNumDocsIndexed(), numRows);
+    }
+  }
+
+  private static void consumeUntilRowLimit(FakeRealtimeSegmentDataManager segmentDataManager, int numRows)
+      throws Exception {
+    segmentDataManager._stubConsumeLoop = false;
+    segmentDataManager._state.set(segmentDataManager, RealtimeSegmentDataManager.State.INITIAL_CONSUMING);
+
+    RealtimeSegmentDataManager.PartitionConsumer consumer = segmentDataManager.createPartitionConsumer();
+    final LongMsgOffset endOffset = new LongMsgOffset(START_OFFSET_VALUE + numRows);
+    segmentDataManager._consumeOffsets.add(endOffset);
+    final SegmentCompletionProtocol.Response response = new SegmentCompletionProtocol.Response(
+        new SegmentCompletionProtocol.Response.Params().withStatus(
+                SegmentCompletionProtocol.ControllerResponseStatus.COMMIT)
+            .withStreamPartitionMsgOffset(endOffset.toString()));
+    segmentDataManager._responses.add(response);
+
+    consumer.run();
+  }
+
   private static class TimeSupplier implements Supplier<Long> {
     protected final AtomicInteger _timeCheckCounter = new AtomicInteger();
     protected long _timeNow = System.currentTimeMillis();
@@ -1136,6 +1310,22 @@ public class RealtimeSegmentDataManagerTest {
       setInt(numRows, "_segmentMaxRowCount");
     }
 
+    /**
+     * Replaces the mutable segment with a spy so that the tests can verify or stub how the rows are indexed.
+     */
+    public MutableSegmentImpl spyRealtimeSegment() {
+      try {
+        Field field = RealtimeSegmentDataManager.class.getDeclaredField("_realtimeSegment");
+        field.setAccessible(true);
+        MutableSegmentImpl realtimeSegment = spy((MutableSegmentImpl) field.get(this));
+        field.set(this, realtimeSegment);
+        return realtimeSegment;
+      } catch (NoSuchFieldException | IllegalAccessException e) {
+        Assert.fail();
+      }
+      throw new RuntimeException("Cannot get here");
+    }
+
     private void setLong(long value, String fieldName) {
       try {
         Field field = RealtimeSegmentDataManager.class.getDeclaredField(fieldName);
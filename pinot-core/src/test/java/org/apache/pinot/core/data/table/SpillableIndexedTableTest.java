@@ -0,0 +1,211 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.data.table;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.metrics.ServerMeter;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.core.query.request.context.utils.QueryContextConverterUtils;
+import org.apache.pinot.segment.local.customobject.AvgPair;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+
+public class SpillableIndexedTableTest {
+  private static final File SPILL_DIR = new File(FileUtils.getTempDirectory(), "SpillableIndexedTableTest");
+  private static final String TABLE_NAME = "testTable";
+  private static final String QUERY =
+      "SELECT SUM(m1), AVG(m2) FROM " + TABLE_NAME + " GROUP BY d1, d2 ORDER BY SUM(m1) DESC, d2 LIMIT 5";
+  private static final DataSchema DATA_SCHEMA = new DataSchema(new String[]{"d1", "d2", "sum(m1)", "avg(m2)"},
+      new ColumnDataType[]{ColumnDataType.STRING, ColumnDataType.INT, ColumnDataType.DOUBLE, ColumnDataType.OBJECT});
+  private static final int NUM_GROUPS = 1000;
+  private static final int NUM_ROUNDS = 3;
+  private static final int SPILL_THRESHOLD = 100;
+
+  private final ExecutorService _executorService = Executors.newFixedThreadPool(4);
+  private final ServerMetrics _serverMetrics = mock(ServerMetrics.class);
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteDirectory(SPILL_DIR);
+    ServerMetrics.deregister();
+    ServerMetrics.register(_serverMetrics);
+  }
+
+  @AfterClass
+  public void tearDown()
+      throws Exception {
+    ServerMetrics.deregister();
+    _executorService.shutdown();
+    FileUtils.deleteDirectory(SPILL_DIR);
+  }
+
+  @Test
+  public void testSpillSupported() {
+    assertTrue(SpillableIndexedTable.isSpillSupported(DATA_SCHEMA));
+    assertFalse(SpillableIndexedTable.isSpillSupported(
+        new DataSchema(new String[]{"d1", "count(*)"}, new ColumnDataType[]{ColumnDataType.INT_ARRAY,
+            ColumnDataType.LONG})));
+  }
+
+  @Test
+  public void testSpillAndMerge() {
+    QueryContext queryContext = QueryContextConverterUtils.getQueryContext(QUERY);
+    SpillableIndexedTable indexedTable = createTable(queryContext, 10);
+    // Insert each group once per round so that the same group is spilled into multiple runs
+    for (int round = 0; round < NUM_ROUNDS; round++) {
+      for (int i = 0; i < NUM_GROUPS; i++) {
+        upsert(indexedTable, i);
+      }
+    }
+    assertTrue(indexedTable.getNumSpilledRuns() > NUM_ROUNDS);
+    assertTrue(indexedTable.getNumSpilledBytes() > 0);
+
+    clearInvocations(_serverMetrics);
+    indexedTable.finish(true);
+    // The spill activity is reported once the spilled runs are merged
+    verify(_serverMetrics).addMeteredTableValue(TABLE_NAME, ServerMeter.GROUP_BY_SPILLED_RUNS,
+        indexedTable.getNumSpilledRuns());
+    verify(_serverMetrics).addMeteredTableValue(TABLE_NAME, ServerMeter.GROUP_BY_SPILLED_RECORDS,
+        indexedTable.getNumSpilledRecords());
+    verify(_serverMetrics).addMeteredTableValue(TABLE_NAME, ServerMeter.GROUP_BY_SPILLED_BYTES,
+        indexedTable.getNumSpilledBytes());
+    assertEquals(indexedTable.size(), 10);
+    // No trimming should happen before all the groups are merged
+    assertFalse(indexedTable.isTrimmed());
+    Iterator<Record> iterator = indexedTable.iterator();
+    for (int i = NUM_GROUPS - 1; i >= NUM_GROUPS - 10; i--) {
+      Object[] values = iterator.next().getValues();
+      assertEquals(values[0], "d" + i);
+      assertEquals(values[1], i);
+      assertEquals(values[2], (double) i * NUM_ROUNDS);
+      AvgPair avgPair = (AvgPair) values[3];
+      assertEquals(avgPair.getSum(), (double) i * NUM_ROUNDS);
+      assertEquals(avgPair.getCount(), NUM_ROUNDS);
+    }
+    assertSpillDirEmpty();
+  }
+
+  @Test
+  public void testConcurrentUpsert()
+      throws Exception {
+    QueryContext queryContext = QueryContextConverterUtils.getQueryContext(QUERY);
+    SpillableIndexedTable indexedTable = createTable(queryContext, 5);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int round = 0; round < NUM_ROUNDS; round++) {
+      futures.add(_executorService.submit(() -> {
+        for (int i = 0; i < NUM_GROUPS; i++) {
+          upsert(indexedTable, i);
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(10, TimeUnit.SECONDS);
+    }
+    assertTrue(indexedTable.getNumSpilledRuns() > 0);
+
+    indexedTable.finish(true, true);
+    assertEquals(indexedTable.size(), 5);
+    Iterator<Record> iterator = indexedTable.iterator();
+    for (int i = NUM_GROUPS - 1; i >= NUM_GROUPS - 5; i--) {
+      Object[] values = iterator.next().getValues();
+      assertEquals(values[1], i);
+      assertEquals(values[2], (double) i * NUM_ROUNDS);
+      // Final result of AVG
+      assertEquals(values[3], (double) i);
+    }
+    assertSpillDirEmpty();
+  }
+
+  @Test
+  public void testWithoutSpill() {
+    QueryContext queryContext = QueryContextConverterUtils.getQueryContext(QUERY);
+    SpillableIndexedTable indexedTable =
+        new SpillableIndexedTable(DATA_SCHEMA, false, queryContext, 5, NUM_GROUPS + 1, SPILL_DIR, 16,
+            _executorService);
+    for (int i = 0; i < NUM_GROUPS; i++) {
+      upsert(indexedTable, i);
+    }
+    assertEquals(indexedTable.getNumSpilledRuns(), 0);
+    clearInvocations(_serverMetrics);
+    indexedTable.finish(true);
+    verify(_serverMetrics, never()).addMeteredTableValue(eq(TABLE_NAME), eq(ServerMeter.GROUP_BY_SPILLED_RUNS),
+        anyLong());
+    assertEquals(indexedTable.size(), 5);
+    assertEquals(indexedTable.iterator().next().getValues()[1], NUM_GROUPS - 1);
+  }
+
+  @Test
+  public void testCleanUp() {
+    QueryContext queryContext = QueryContextConverterUtils.getQueryContext(QUERY);
+    SpillableIndexedTable indexedTable = createTable(queryContext, 5);
+    for (int i = 0; i < NUM_GROUPS; i++) {
+      upsert(indexedTable, i);
+    }
+    int numSpilledRuns = indexedTable.getNumSpilledRuns();
+    assertTrue(numSpilledRuns > 0);
+    indexedTable.cleanUp();
+    assertSpillDirEmpty();
+
+    // No more records should be spilled after cleaning up
+    for (int i = 0; i < NUM_GROUPS; i++) {
+      upsert(indexedTable, i);
+    }
+    assertEquals(indexedTable.getNumSpilledRuns(), numSpilledRuns);
+    assertSpillDirEmpty();
+  }
+
+  private SpillableIndexedTable createTable(QueryContext queryContext, int resultSize) {
+    return new SpillableIndexedTable(DATA_SCHEMA, false, queryContext, resultSize, SPILL_THRESHOLD, SPILL_DIR, 16,
+        _executorService);
+  }
+
+  private static void upsert(IndexedTable indexedTable, int i) {
+    indexedTable.upsert(new Key(new Object[]{"d" + i, i}),
+        new Record(new Object[]{"d" + i, i, (double) i, new AvgPair(i, 1)}));
+  }
+
+  private static void assertSpillDirEmpty() {
+    String[] files = SPILL_DIR.list();
+    assertTrue(files == null || files.length == 0);
+  }
+}
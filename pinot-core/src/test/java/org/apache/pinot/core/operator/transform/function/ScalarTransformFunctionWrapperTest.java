@@ -72,6 +72,65 @@ public class ScalarTransformFunctionWrapperTest extends BaseTransformFunctionTes
     testTransformFunction(transformFunction, expectedValues);
   }
 
+  @Test
+  public void testBatchMethodTransformFunction() {
+    // toEpochMinutes() and toEpochMinutesRounded() are evaluated with the batch method
+    ExpressionContext expression =
+        RequestContextUtils.getExpression(String.format("toEpochMinutes(%s)", TIME_COLUMN));
+    TransformFunction transformFunction = TransformFunctionFactory.get(expression, _dataSourceMap);
+    assertTrue(transformFunction instanceof ScalarTransformFunctionWrapper);
+    assertEquals(transformFunction.getName(), "toEpochMinutes");
+    long[] expectedValues = new long[NUM_ROWS];
+    for (int i = 0; i < NUM_ROWS; i++) {
+      expectedValues[i] = _timeValues[i] / 60_000;
+    }
+    testTransformFunction(transformFunction, expectedValues);
+
+    expression = RequestContextUtils.getExpression(String.format("toEpochMinutesRounded(%s, 15)", TIME_COLUMN));
+    transformFunction = TransformFunctionFactory.get(expression, _dataSourceMap);
+    assertTrue(transformFunction instanceof ScalarTransformFunctionWrapper);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      expectedValues[i] = _timeValues[i] / 60_000 / 15 * 15;
+    }
+    testTransformFunction(transformFunction, expectedValues);
+
+    // Non-literal rounding bucket
+    expression = RequestContextUtils.getExpression(
+        String.format("toEpochMinutesRounded(%s, toEpochDays(%s))", TIME_COLUMN, TIME_COLUMN));
+    transformFunction = TransformFunctionFactory.get(expression, _dataSourceMap);
+    assertTrue(transformFunction instanceof ScalarTransformFunctionWrapper);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      long epochDays = _timeValues[i] / 86_400_000;
+      expectedValues[i] = _timeValues[i] / 60_000 / epochDays * epochDays;
+    }
+    testTransformFunction(transformFunction, expectedValues);
+  }
+
+  @Test
+  public void testStringBatchMethodTransformFunction() {
+    // concat(), substr() and length() are evaluated with the batch method
+    ExpressionContext expression = RequestContextUtils.getExpression(
+        String.format("concat(substr(%s, 1), %s)", STRING_ALPHANUM_SV_COLUMN, STRING_ALPHANUM_SV_COLUMN));
+    TransformFunction transformFunction = TransformFunctionFactory.get(expression, _dataSourceMap);
+    assertTrue(transformFunction instanceof ScalarTransformFunctionWrapper);
+    assertEquals(transformFunction.getName(), "concat");
+    String[] expectedValues = new String[NUM_ROWS];
+    for (int i = 0; i < NUM_ROWS; i++) {
+      expectedValues[i] = _stringAlphaNumericSVValues[i].substring(1) + _stringAlphaNumericSVValues[i];
+    }
+    testTransformFunction(transformFunction, expectedValues);
+
+    expression = RequestContextUtils.getExpression(String.format("length(upper(%s))", STRING_ALPHANUM_SV_COLUMN));
+    transformFunction = TransformFunctionFactory.get(expression, _dataSourceMap);
+    assertTrue(transformFunction instanceof ScalarTransformFunctionWrapper);
+    assertEquals(transformFunction.getName(), "length");
+    int[] expectedLengths = new int[NUM_ROWS];
+    for (int i = 0; i < NUM_ROWS; i++) {
+      expectedLengths[i] = _stringAlphaNumericSVValues[i].toUpperCase().length();
+    }
+    testTransformFunction(transformFunction, expectedLengths);
+  }
+
   @Test
   public void testStringReverseTransformFunction() {
     ExpressionContext expression =
@@ -0,0 +1,189 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.executor;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.apache.helix.HelixManager;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.request.InstanceRequest;
+import org.apache.pinot.core.data.manager.InstanceDataManager;
+import org.apache.pinot.core.data.manager.provider.DefaultTableDataManagerProvider;
+import org.apache.pinot.core.data.manager.provider.TableDataManagerProvider;
+import org.apache.pinot.core.operator.blocks.InstanceResponseBlock;
+import org.apache.pinot.core.operator.blocks.results.AggregationResultsBlock;
+import org.apache.pinot.core.query.request.ServerQueryRequest;
+import org.apache.pinot.segment.local.data.manager.TableDataManager;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentLoader;
+import org.apache.pinot.segment.local.segment.creator.SegmentTestUtils;
+import org.apache.pinot.segment.local.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import org.apache.pinot.segment.local.segment.index.loader.IndexLoadingConfig;
+import org.apache.pinot.segment.local.utils.SegmentLocks;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.creator.SegmentGeneratorConfig;
+import org.apache.pinot.segment.spi.creator.SegmentIndexCreationDriver;
+import org.apache.pinot.spi.config.instance.InstanceDataManagerConfig;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.FileFormat;
+import org.apache.pinot.spi.env.CommonsConfigurationUtils;
+import org.apache.pinot.spi.env.PinotConfiguration;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
+import org.apache.pinot.spi.utils.builder.TableNameBuilder;
+import org.apache.pinot.sql.parsers.CalciteSqlCompiler;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+
+/**
+ * Runs queries through the {@link ServerQueryExecutorV1Impl} with the {@link FilterResultCache} enabled, on segments
+ * with inverted indexes so that the leaf filters produce bitmaps that can be cached.
+ */
+public class FilterResultCacheQueryExecutorTest {
+  private static final String AVRO_DATA_PATH = "data/sampleEatsData30k.avro";
+  private static final String QUERY_EXECUTOR_CONFIG_PATH = "conf/query-executor.properties";
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "FilterResultCacheQueryExecutorTest");
+  private static final String RAW_TABLE_NAME = "sampleEatsData";
+  private static final String OFFLINE_TABLE_NAME = TableNameBuilder.OFFLINE.tableNameWithType(RAW_TABLE_NAME);
+  private static final int NUM_SEGMENTS_TO_GENERATE = 2;
+  private static final ExecutorService QUERY_RUNNERS = Executors.newFixedThreadPool(20);
+
+  private final List<ImmutableSegment> _indexSegments = new ArrayList<>(NUM_SEGMENTS_TO_GENERATE);
+  private final List<String> _segmentNames = new ArrayList<>(NUM_SEGMENTS_TO_GENERATE);
+
+  private QueryExecutor _queryExecutor;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    ServerMetrics.register(mock(ServerMetrics.class));
+
+    // Set up the segments with inverted indexes
+    FileUtils.deleteQuietly(TEMP_DIR);
+    assertTrue(TEMP_DIR.mkdirs());
+    URL resourceUrl = getClass().getClassLoader().getResource(AVRO_DATA_PATH);
+    assertNotNull(resourceUrl);
+    File avroFile = new File(resourceUrl.getFile());
+    Schema schema = SegmentTestUtils.extractSchemaFromAvroWithoutTime(avroFile);
+    TableConfig tableConfig = new TableConfigBuilder(TableType.OFFLINE).setTableName(RAW_TABLE_NAME)
+        .setInvertedIndexColumns(List.of("orderItemCount", "cityName")).build();
+    IndexLoadingConfig indexLoadingConfig = new IndexLoadingConfig(tableConfig, schema);
+    File tableDataDir = new File(TEMP_DIR, OFFLINE_TABLE_NAME);
+    for (int i = 0; i < NUM_SEGMENTS_TO_GENERATE; i++) {
+      SegmentGeneratorConfig config =
+          SegmentTestUtils.getSegmentGeneratorConfig(avroFile, FileFormat.AVRO, tableDataDir, RAW_TABLE_NAME,
+              tableConfig, schema);
+      config.setSegmentNamePostfix(Integer.toString(i));
+      SegmentIndexCreationDriver driver = new SegmentIndexCreationDriverImpl();
+      driver.init(config);
+      driver.build();
+      _indexSegments.add(
+          ImmutableSegmentLoader.load(new File(tableDataDir, driver.getSegmentName()), indexLoadingConfig));
+      _segmentNames.add(driver.getSegmentName());
+    }
+
+    // Mock the instance data manager
+    InstanceDataManagerConfig instanceDataManagerConfig = mock(InstanceDataManagerConfig.class);
+    when(instanceDataManagerConfig.getInstanceDataDir()).thenReturn(TEMP_DIR.getAbsolutePath());
+    TableDataManagerProvider tableDataManagerProvider = new DefaultTableDataManagerProvider();
+    tableDataManagerProvider.init(instanceDataManagerConfig, mock(HelixManager.class), new SegmentLocks(), null);
+    TableDataManager tableDataManager = tableDataManagerProvider.getTableDataManager(tableConfig, schema);
+    tableDataManager.start();
+    for (ImmutableSegment indexSegment : _indexSegments) {
+      tableDataManager.addSegment(indexSegment);
+    }
+    InstanceDataManager instanceDataManager = mock(InstanceDataManager.class);
+    when(instanceDataManager.getTableDataManager(OFFLINE_TABLE_NAME)).thenReturn(tableDataManager);
+
+    // Set up the query executor
+    resourceUrl = getClass().getClassLoader().getResource(QUERY_EXECUTOR_CONFIG_PATH);
+    assertNotNull(resourceUrl);
+    PropertiesConfiguration queryExecutorConfig = CommonsConfigurationUtils.fromFile(new File(resourceUrl.getFile()));
+    _queryExecutor = new ServerQueryExecutorV1Impl();
+    _queryExecutor.init(new PinotConfiguration(queryExecutorConfig), instanceDataManager, ServerMetrics.get());
+  }
+
+  @Test
+  public void testFilterResultCache() {
+    FilterResultCache filterResultCache = new FilterResultCache(1024 * 1024);
+    String[] queries = new String[]{
+        "SELECT COUNT(*), SUM(orderAmount) FROM " + OFFLINE_TABLE_NAME + " WHERE orderAmount > 50",
+        "SELECT COUNT(*) FROM " + OFFLINE_TABLE_NAME + " WHERE orderItemCount IN (1, 3) AND orderAmount <= 100",
+        "SELECT COUNT(*) FROM " + OFFLINE_TABLE_NAME + " WHERE NOT orderItemCount = 2 OR cityName = 'Seattle'",
+        "SELECT COUNT(*), MAX(orderAmount) FROM " + OFFLINE_TABLE_NAME + " WHERE orderItemCount != 1"
+    };
+    for (String query : queries) {
+      InstanceRequest instanceRequest = new InstanceRequest(0L, CalciteSqlCompiler.compileToBrokerRequest(query));
+      instanceRequest.setSearchSegments(_segmentNames);
+      List<Object> expectedResults =
+          getResults(_queryExecutor.execute(getQueryRequest(instanceRequest), QUERY_RUNNERS));
+      FilterResultCache.setInstance(filterResultCache);
+      try {
+        // The first execution populates the cache, and the following ones are served from the cache
+        for (int i = 0; i < 3; i++) {
+          assertEquals(getResults(_queryExecutor.execute(getQueryRequest(instanceRequest), QUERY_RUNNERS)),
+              expectedResults, "Unexpected results for query: " + query);
+        }
+      } finally {
+        FilterResultCache.setInstance(null);
+      }
+      if (query.equals(queries[0])) {
+        // Scan based leaf filters are not cached
+        assertEquals(filterResultCache.size(), 0);
+      }
+    }
+    assertTrue(filterResultCache.size() > 0);
+    for (String segmentName : _segmentNames) {
+      filterResultCache.invalidate(OFFLINE_TABLE_NAME, segmentName);
+    }
+    assertEquals(filterResultCache.size(), 0);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    for (IndexSegment segment : _indexSegments) {
+      segment.destroy();
+    }
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+
+  private static List<Object> getResults(InstanceResponseBlock instanceResponse) {
+    assertTrue(instanceResponse.getResultsBlock() instanceof AggregationResultsBlock);
+    return ((AggregationResultsBlock) instanceResponse.getResultsBlock()).getResults();
+  }
+
+  private ServerQueryRequest getQueryRequest(InstanceRequest instanceRequest) {
+    return new ServerQueryRequest(instanceRequest, ServerMetrics.get(), System.currentTimeMillis());
+  }
+}
@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.executor;
+
+import java.util.List;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.request.context.ExpressionContext;
+import org.apache.pinot.common.request.context.FunctionContext;
+import org.apache.pinot.common.request.context.predicate.EqPredicate;
+import org.apache.pinot.common.request.context.predicate.Predicate;
+import org.apache.pinot.common.request.context.predicate.RegexpLikePredicate;
+import org.apache.pinot.core.operator.filter.BitmapBasedFilterOperator;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.MutableSegment;
+import org.apache.pinot.segment.spi.SegmentMetadata;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+
+public class FilterResultCacheTest {
+  private static final String TABLE_NAME = "testTable_OFFLINE";
+  private static final Predicate PREDICATE = new EqPredicate(ExpressionContext.forIdentifier("a"), "1");
+
+  @BeforeClass
+  public void setUp() {
+    ServerMetrics.register(mock(ServerMetrics.class));
+  }
+
+  @Test
+  public void testCacheKey() {
+    FilterResultCache.CacheKey cacheKey =
+        FilterResultCache.getCacheKey(TABLE_NAME, mockImmutableSegment("segment", "1"), PREDICATE);
+    assertNotNull(cacheKey);
+    assertEquals(FilterResultCache.getCacheKey(TABLE_NAME, mockImmutableSegment("segment", "1"), PREDICATE),
+        cacheKey);
+    // Replaced segment
+    assertNotEquals(FilterResultCache.getCacheKey(TABLE_NAME, mockImmutableSegment("segment", "2"), PREDICATE),
+        cacheKey);
+    assertNotEquals(FilterResultCache.getCacheKey(TABLE_NAME, mockImmutableSegment("segment", "1"),
+        new EqPredicate(ExpressionContext.forIdentifier("a"), "2")), cacheKey);
+
+    // Mutable segment, unsupported predicate type and predicate on expression cannot be cached
+    assertNull(FilterResultCache.getCacheKey(TABLE_NAME, mock(MutableSegment.class), PREDICATE));
+    assertNull(FilterResultCache.getCacheKey(TABLE_NAME, mockImmutableSegment("segment", "1"),
+        new RegexpLikePredicate(ExpressionContext.forIdentifier("a"), "1.*")));
+    ExpressionContext function = ExpressionContext.forFunction(
+        new FunctionContext(FunctionContext.Type.TRANSFORM, "abs",
+            List.of(ExpressionContext.forIdentifier("a"))));
+    assertNull(FilterResultCache.getCacheKey(TABLE_NAME, mockImmutableSegment("segment", "1"),
+        new EqPredicate(function, "1")));
+  }
+
+  @Test
+  public void testPutAndInvalidate() {
+    FilterResultCache filterResultCache = new FilterResultCache(1024 * 1024);
+    FilterResultCache.CacheKey cacheKey1 =
+        FilterResultCache.getCacheKey(TABLE_NAME, mockImmutableSegment("segment1", "1"), PREDICATE);
+    FilterResultCache.CacheKey cacheKey2 =
+        FilterResultCache.getCacheKey(TABLE_NAME, mockImmutableSegment("segment2", "1"), PREDICATE);
+    assertNotNull(cacheKey1);
+    assertNotNull(cacheKey2);
+    assertNull(filterResultCache.get(cacheKey1));
+
+    MutableRoaringBitmap docIds = MutableRoaringBitmap.bitmapOf(1, 3, 5);
+    ImmutableRoaringBitmap cachedDocIds =
+        filterResultCache.put(cacheKey1, new BitmapBasedFilterOperator(docIds, false, 10));
+    assertEquals(cachedDocIds.toArray(), new int[]{1, 3, 5});
+    // Exclusive bitmap should be flipped
+    filterResultCache.put(cacheKey2, new BitmapBasedFilterOperator(docIds, true, 10));
+    // Modifying the original bitmap should not affect the cached result
+    docIds.add(7);
+    assertEquals(filterResultCache.size(), 2);
+    ImmutableRoaringBitmap result1 = filterResultCache.get(cacheKey1);
+    assertNotNull(result1);
+    assertEquals(result1.toArray(), new int[]{1, 3, 5});
+    ImmutableRoaringBitmap result2 = filterResultCache.get(cacheKey2);
+    assertNotNull(result2);
+    assertEquals(result2.toArray(), new int[]{0, 2, 4, 6, 7, 8, 9});
+
+    filterResultCache.invalidate(TABLE_NAME, "segment1");
+    assertNull(filterResultCache.get(cacheKey1));
+    assertNotNull(filterResultCache.get(cacheKey2));
+    filterResultCache.invalidateAll();
+    assertEquals(filterResultCache.size(), 0);
+  }
+
+  private static ImmutableSegment mockImmutableSegment(String segmentName, String crc) {
+    ImmutableSegment segment = mock(ImmutableSegment.class);
+    when(segment.getSegmentName()).thenReturn(segmentName);
+    SegmentMetadata segmentMetadata = mock(SegmentMetadata.class);
+    when(segmentMetadata.getCrc()).thenReturn(crc);
+    when(segment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    return segment;
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.pinot.core.query.executor;
 
 import java.io.File;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -36,10 +37,15 @@ import java.util.stream.Collectors;
 import org.apache.commons.configuration2.PropertiesConfiguration;
 import org.apache.commons.io.FileUtils;
 import org.apache.helix.HelixManager;
+import org.apache.pinot.common.CustomObject;
+import org.apache.pinot.common.datatable.DataTable;
+import org.apache.pinot.common.datatable.DataTable.MetadataKey;
+import org.apache.pinot.common.metrics.ServerMeter;
 import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.common.request.InstanceRequest;
 import org.apache.pinot.common.request.context.ExpressionContext;
 import org.apache.pinot.common.request.context.RequestContextUtils;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
 import org.apache.pinot.core.data.manager.InstanceDataManager;
 import org.apache.pinot.core.data.manager.provider.DefaultTableDataManagerProvider;
 import org.apache.pinot.core.data.manager.provider.TableDataManagerProvider;
@@ -67,6 +73,8 @@ import org.apache.pinot.spi.data.Schema;
 import org.apache.pinot.spi.data.readers.FileFormat;
 import org.apache.pinot.spi.env.CommonsConfigurationUtils;
 import org.apache.pinot.spi.env.PinotConfiguration;
+import org.apache.pinot.spi.utils.BytesUtils;
+import org.apache.pinot.spi.utils.CommonConstants.Server;
 import org.apache.pinot.spi.utils.ReadMode;
 import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
 import org.apache.pinot.spi.utils.builder.TableNameBuilder;
@@ -82,7 +90,10 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -107,6 +118,8 @@ public class QueryExecutorTest {
   private final List<ImmutableSegment> _indexSegments = new ArrayList<>(NUM_SEGMENTS_TO_GENERATE);
   private final List<String> _segmentNames = new ArrayList<>(NUM_SEGMENTS_TO_GENERATE);
 
+  private InstanceDataManager _instanceDataManager;
+  private PropertiesConfiguration _queryExecutorConfig;
   private QueryExecutor _queryExecutor;
 
   @BeforeClass
@@ -165,15 +178,15 @@ public class QueryExecutorTest {
     for (ImmutableSegment indexSegment : _indexSegments) {
       tableDataManager.addSegment(indexSegment);
     }
-    InstanceDataManager instanceDataManager = mock(InstanceDataManager.class);
-    when(instanceDataManager.getTableDataManager(OFFLINE_TABLE_NAME)).thenReturn(tableDataManager);
+    _instanceDataManager = mock(InstanceDataManager.class);
+    when(_instanceDataManager.getTableDataManager(OFFLINE_TABLE_NAME)).thenReturn(tableDataManager);
 
     // Set up the query executor
     resourceUrl = getClass().getClassLoader().getResource(QUERY_EXECUTOR_CONFIG_PATH);
     Assert.assertNotNull(resourceUrl);
-    PropertiesConfiguration queryExecutorConfig = CommonsConfigurationUtils.fromFile(new File(resourceUrl.getFile()));
+    _queryExecutorConfig = CommonsConfigurationUtils.fromFile(new File(resourceUrl.getFile()));
     _queryExecutor = new ServerQueryExecutorV1Impl();
-    _queryExecutor.init(new PinotConfiguration(queryExecutorConfig), instanceDataManager, ServerMetrics.get());
+    _queryExecutor.init(new PinotConfiguration(_queryExecutorConfig), _instanceDataManager, ServerMetrics.get());
 
     // Setup time series builder factory
     TimeSeriesBuilderFactoryProvider.registerSeriesBuilderFactory(TIME_SERIES_LANGUAGE_NAME,
@@ -220,6 +233,85 @@ public class QueryExecutorTest {
     assertEquals(((AggregationResultsBlock) instanceResponse.getResultsBlock()).getResults().get(0), 0.0);
   }
 
+  @Test
+  public void testSegmentResultCache()
+      throws Exception {
+    PinotConfiguration config = new PinotConfiguration(_queryExecutorConfig);
+    config.setProperty(Server.SEGMENT_RESULT_CACHE_MAX_SIZE_BYTES, 1024 * 1024);
+    QueryExecutor cachingQueryExecutor = new ServerQueryExecutorV1Impl();
+    ServerMetrics serverMetrics = ServerMetrics.get();
+    cachingQueryExecutor.init(config, _instanceDataManager, serverMetrics);
+
+    String aggregationQuery =
+        "SELECT COUNT(*), SUM(orderItemCount), AVG(orderAmount) FROM " + OFFLINE_TABLE_NAME + " WHERE orderAmount > 50";
+    String groupByQuery = "SELECT orderItemCount, SUM(orderAmount), AVG(orderAmount) FROM " + OFFLINE_TABLE_NAME
+        + " GROUP BY orderItemCount LIMIT 1000";
+    for (String query : Arrays.asList(aggregationQuery, groupByQuery)) {
+      InstanceRequest instanceRequest = new InstanceRequest(0L, CalciteSqlCompiler.compileToBrokerRequest(query));
+      instanceRequest.setSearchSegments(_segmentNames);
+      InstanceResponseBlock expectedResponse =
+          _queryExecutor.execute(getQueryRequest(instanceRequest), QUERY_RUNNERS);
+      DataTable expectedDataTable = expectedResponse.toDataTable();
+      clearInvocations(serverMetrics);
+      // The first execution populates the cache, and the following ones are served from the cache
+      for (int i = 0; i < 3; i++) {
+        InstanceResponseBlock instanceResponse =
+            cachingQueryExecutor.execute(getQueryRequest(instanceRequest), QUERY_RUNNERS);
+        DataTable dataTable = instanceResponse.toDataTable();
+        assertEquals(getRows(dataTable), getRows(expectedDataTable));
+        // The segments served from the cache are not scanned
+        assertEquals(instanceResponse.getResponseMetadata().get(MetadataKey.NUM_DOCS_SCANNED.getName()),
+            i == 0 ? expectedResponse.getResponseMetadata().get(MetadataKey.NUM_DOCS_SCANNED.getName()) : "0");
+        assertEquals(instanceResponse.getResponseMetadata().get(MetadataKey.TOTAL_DOCS.getName()),
+            expectedResponse.getResponseMetadata().get(MetadataKey.TOTAL_DOCS.getName()));
+        // Empty segments are pruned before reaching the cache
+        verify(serverMetrics, times(NUM_SEGMENTS_TO_GENERATE)).addMeteredTableValue(OFFLINE_TABLE_NAME,
+            ServerMeter.SEGMENT_RESULT_CACHE_MISSES, 1L);
+        verify(serverMetrics, times(i * NUM_SEGMENTS_TO_GENERATE)).addMeteredTableValue(OFFLINE_TABLE_NAME,
+            ServerMeter.SEGMENT_RESULT_CACHE_HITS, 1L);
+      }
+    }
+  }
+
+  /**
+   * Returns the rows of the data table as strings, sorted so that the rows can be compared regardless of the order.
+   */
+  private static List<String> getRows(DataTable dataTable) {
+    ColumnDataType[] columnDataTypes = dataTable.getDataSchema().getStoredColumnDataTypes();
+    List<String> rows = new ArrayList<>();
+    for (int rowId = 0; rowId < dataTable.getNumberOfRows(); rowId++) {
+      StringBuilder row = new StringBuilder();
+      for (int colId = 0; colId < columnDataTypes.length; colId++) {
+        switch (columnDataTypes[colId]) {
+          case INT:
+            row.append(dataTable.getInt(rowId, colId));
+            break;
+          case LONG:
+            row.append(dataTable.getLong(rowId, colId));
+            break;
+          case DOUBLE:
+            row.append(dataTable.getDouble(rowId, colId));
+            break;
+          case OBJECT:
+            CustomObject customObject = dataTable.getCustomObject(rowId, colId);
+            if (customObject != null) {
+              ByteBuffer buffer = customObject.getBuffer().duplicate();
+              byte[] bytes = new byte[buffer.remaining()];
+              buffer.get(bytes);
+              row.append(BytesUtils.toHexString(bytes));
+            }
+            break;
+          default:
+            throw new IllegalStateException("Unsupported column data type: " + columnDataTypes[colId]);
+        }
+        row.append(',');
+      }
+      rows.add(row.toString());
+    }
+    Collections.sort(rows);
+    return rows;
+  }
+
   @Test
   public void testTimeSeriesSumQuery() {
     TimeBuckets timeBuckets = TimeBuckets.ofSeconds(TIME_SERIES_TEST_START_TIME, Duration.ofHours(2), 2);
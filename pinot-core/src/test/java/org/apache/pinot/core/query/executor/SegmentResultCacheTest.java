@@ -0,0 +1,195 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.core.query.executor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.core.data.table.IntermediateRecord;
+import org.apache.pinot.core.data.table.Key;
+import org.apache.pinot.core.data.table.Record;
+import org.apache.pinot.core.operator.ExecutionStatistics;
+import org.apache.pinot.core.operator.blocks.results.AggregationResultsBlock;
+import org.apache.pinot.core.operator.blocks.results.BaseResultsBlock;
+import org.apache.pinot.core.operator.blocks.results.GroupByResultsBlock;
+import org.apache.pinot.core.query.request.context.QueryContext;
+import org.apache.pinot.core.query.request.context.utils.QueryContextConverterUtils;
+import org.apache.pinot.segment.local.customobject.AvgPair;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.MutableSegment;
+import org.apache.pinot.segment.spi.SegmentMetadata;
+import org.apache.pinot.segment.spi.index.mutable.ThreadSafeMutableRoaringBitmap;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+
+public class SegmentResultCacheTest {
+  private static final String TABLE_NAME = "testTable_OFFLINE";
+  private static final String SEGMENT_NAME = "testSegment";
+
+  @Test
+  public void testQueryKey() {
+    String query = "SELECT COUNT(*), AVG(a) FROM " + TABLE_NAME + " WHERE b = 1";
+    String queryKey = getQueryKey(query);
+    // Timeout does not affect the results
+    assertEquals(getQueryKey("SET timeoutMs = 1000; " + query), queryKey);
+    assertNotEquals(getQueryKey("SET enableNullHandling = true; " + query), queryKey);
+    assertNotEquals(getQueryKey("SELECT COUNT(*), AVG(a) FROM " + TABLE_NAME + " WHERE b = 2"), queryKey);
+  }
+
+  @Test
+  public void testCacheKey() {
+    String queryKey = getQueryKey("SELECT COUNT(*) FROM " + TABLE_NAME);
+    SegmentResultCache.CacheKey cacheKey = SegmentResultCache.getCacheKey(queryKey, mockImmutableSegment("1"));
+    assertNotNull(cacheKey);
+    assertEquals(SegmentResultCache.getCacheKey(queryKey, mockImmutableSegment("1")), cacheKey);
+    // Replaced segment
+    assertNotEquals(SegmentResultCache.getCacheKey(queryKey, mockImmutableSegment("2")), cacheKey);
+
+    // Mutable segment and upsert segment cannot be cached
+    assertNull(SegmentResultCache.getCacheKey(queryKey, mock(MutableSegment.class)));
+    ImmutableSegment upsertSegment = mockImmutableSegment("1");
+    when(upsertSegment.getValidDocIds()).thenReturn(mock(ThreadSafeMutableRoaringBitmap.class));
+    assertNull(SegmentResultCache.getCacheKey(queryKey, upsertSegment));
+  }
+
+  @Test
+  public void testAggregationResults() {
+    QueryContext queryContext = getQueryContext("SELECT COUNT(*), AVG(a) FROM " + TABLE_NAME);
+    SegmentResultCache.CacheKey cacheKey =
+        SegmentResultCache.getCacheKey(SegmentResultCache.getQueryKey(queryContext), mockImmutableSegment("1"));
+    assertNotNull(cacheKey);
+    SegmentResultCache segmentResultCache = new SegmentResultCache(1024 * 1024);
+    assertNull(segmentResultCache.get(cacheKey));
+
+    AvgPair avgPair = new AvgPair(10.0, 2);
+    AggregationResultsBlock resultsBlock = new AggregationResultsBlock(queryContext.getAggregationFunctions(),
+        new ArrayList<>(Arrays.asList(2L, avgPair)), queryContext);
+    ExecutionStatistics executionStatistics = new ExecutionStatistics(2, 5, 10, 100);
+    segmentResultCache.put(cacheKey, resultsBlock, executionStatistics, queryContext);
+    assertEquals(segmentResultCache.size(), 1);
+
+    // Modifying the results after caching should not affect the cached results
+    avgPair.apply(5.0, 1);
+    for (int i = 0; i < 2; i++) {
+      SegmentResultCache.CachedResult cachedResult = segmentResultCache.get(cacheKey);
+      assertNotNull(cachedResult);
+      assertEquals(cachedResult.getExecutionStatistics().getNumDocsScanned(), 2);
+      assertEquals(cachedResult.getExecutionStatistics().getNumTotalDocs(), 100);
+      BaseResultsBlock cachedResultsBlock = cachedResult.toResultsBlock(queryContext);
+      assertTrue(cachedResultsBlock instanceof AggregationResultsBlock);
+      List<Object> results = ((AggregationResultsBlock) cachedResultsBlock).getResults();
+      assertEquals(results.get(0), 2L);
+      AvgPair cachedAvgPair = (AvgPair) results.get(1);
+      assertNotSame(cachedAvgPair, avgPair);
+      assertEquals(cachedAvgPair.getSum(), 10.0);
+      assertEquals(cachedAvgPair.getCount(), 2);
+      // Merging into the returned results should not affect the cached results
+      cachedAvgPair.apply(5.0, 1);
+    }
+
+    segmentResultCache.invalidateAll();
+    assertNull(segmentResultCache.get(cacheKey));
+  }
+
+  @Test
+  public void testGroupByResults() {
+    QueryContext queryContext = getQueryContext("SELECT b, AVG(a) FROM " + TABLE_NAME + " GROUP BY b");
+    SegmentResultCache.CacheKey cacheKey =
+        SegmentResultCache.getCacheKey(SegmentResultCache.getQueryKey(queryContext), mockImmutableSegment("1"));
+    assertNotNull(cacheKey);
+    SegmentResultCache segmentResultCache = new SegmentResultCache(1024 * 1024);
+
+    DataSchema dataSchema =
+        new DataSchema(new String[]{"b", "avg(a)"}, new ColumnDataType[]{ColumnDataType.INT, ColumnDataType.OBJECT});
+    List<IntermediateRecord> intermediateRecords = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      intermediateRecords.add(
+          IntermediateRecord.create(new Key(new Object[]{i}), new Record(new Object[]{i, new AvgPair(i, 1)})));
+    }
+    GroupByResultsBlock resultsBlock = new GroupByResultsBlock(dataSchema, intermediateRecords, queryContext);
+    resultsBlock.setGroupsTrimmed(true);
+    segmentResultCache.put(cacheKey, resultsBlock, new ExecutionStatistics(3, 0, 3, 3), queryContext);
+
+    SegmentResultCache.CachedResult cachedResult = segmentResultCache.get(cacheKey);
+    assertNotNull(cachedResult);
+    BaseResultsBlock cachedResultsBlock = cachedResult.toResultsBlock(queryContext);
+    assertTrue(cachedResultsBlock instanceof GroupByResultsBlock);
+    GroupByResultsBlock groupByResultsBlock = (GroupByResultsBlock) cachedResultsBlock;
+    assertTrue(groupByResultsBlock.isGroupsTrimmed());
+    Collection<IntermediateRecord> cachedRecords = groupByResultsBlock.getIntermediateRecords();
+    assertNotNull(cachedRecords);
+    assertEquals(cachedRecords.size(), 3);
+    int i = 0;
+    for (IntermediateRecord cachedRecord : cachedRecords) {
+      assertEquals(cachedRecord._key, new Key(new Object[]{i}));
+      Object[] values = cachedRecord._record.getValues();
+      assertEquals(values[0], i);
+      AvgPair avgPair = (AvgPair) values[1];
+      assertNotSame(avgPair, intermediateRecords.get(i)._record.getValues()[1]);
+      assertEquals(avgPair.getSum(), (double) i);
+      assertEquals(avgPair.getCount(), 1);
+      i++;
+    }
+  }
+
+  @Test
+  public void testEviction() {
+    QueryContext queryContext = getQueryContext("SELECT COUNT(*) FROM " + TABLE_NAME);
+    String queryKey = SegmentResultCache.getQueryKey(queryContext);
+    // Each entry takes 16 bytes for the result object and 16 bytes for the long value
+    SegmentResultCache segmentResultCache = new SegmentResultCache(1000);
+    for (int i = 0; i < 100; i++) {
+      AggregationResultsBlock resultsBlock =
+          new AggregationResultsBlock(queryContext.getAggregationFunctions(), List.of((long) i), queryContext);
+      segmentResultCache.put(SegmentResultCache.getCacheKey(queryKey, mockImmutableSegment(Integer.toString(i))),
+          resultsBlock, new ExecutionStatistics(i, 0, 0, i), queryContext);
+    }
+    long size = segmentResultCache.size();
+    assertTrue(size > 0 && size <= 1000 / 32, "Unexpected cache size: " + size);
+  }
+
+  private static QueryContext getQueryContext(String query) {
+    return QueryContextConverterUtils.getQueryContext(query);
+  }
+
+  private static String getQueryKey(String query) {
+    return SegmentResultCache.getQueryKey(getQueryContext(query));
+  }
+
+  private static ImmutableSegment mockImmutableSegment(String crc) {
+    ImmutableSegment segment = mock(ImmutableSegment.class);
+    when(segment.getSegmentName()).thenReturn(SEGMENT_NAME);
+    SegmentMetadata segmentMetadata = mock(SegmentMetadata.class);
+    when(segmentMetadata.getCrc()).thenReturn(crc);
+    when(segment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    return segment;
+  }
+}
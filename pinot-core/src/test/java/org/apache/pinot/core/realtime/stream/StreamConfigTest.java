@@ -144,6 +144,7 @@ public class StreamConfigTest {
     assertEquals(streamConfig.getOffsetCriteria(), new OffsetCriteria.OffsetCriteriaBuilder().withOffsetLargest());
     assertEquals(streamConfig.getConnectionTimeoutMillis(), StreamConfig.DEFAULT_STREAM_CONNECTION_TIMEOUT_MILLIS);
     assertEquals(streamConfig.getFetchTimeoutMillis(), StreamConfig.DEFAULT_STREAM_FETCH_TIMEOUT_MILLIS);
+    assertEquals(streamConfig.getPrefetchMaxBufferedBytes(), StreamConfig.DEFAULT_PREFETCH_MAX_BUFFERED_BYTES);
     assertEquals(streamConfig.getFlushThresholdTimeMillis(), StreamConfig.DEFAULT_FLUSH_THRESHOLD_TIME_MILLIS);
     assertEquals(streamConfig.getFlushThresholdRows(), -1);
     assertEquals(streamConfig.getFlushThresholdSegmentRows(), -1);
@@ -154,6 +155,7 @@ public class StreamConfigTest {
     String decoderProp1Value = "decoderValueString";
     String connectionTimeout = "10";
     String fetchTimeout = "200";
+    String prefetchMaxBufferedBytes = "32M";
     String flushThresholdTime = "2h";
     String flushThresholdRows = "500";
     String flushSegmentSize = "20M";
@@ -167,6 +169,8 @@ public class StreamConfigTest {
     streamConfigMap.put(
         StreamConfigProperties.constructStreamProperty(streamType, StreamConfigProperties.STREAM_FETCH_TIMEOUT_MILLIS),
         fetchTimeout);
+    streamConfigMap.put(StreamConfigProperties.constructStreamProperty(streamType,
+        StreamConfigProperties.STREAM_PREFETCH_MAX_BUFFERED_BYTES), prefetchMaxBufferedBytes);
     streamConfigMap.put(StreamConfigProperties.SEGMENT_FLUSH_THRESHOLD_TIME, flushThresholdTime);
     streamConfigMap.put(StreamConfigProperties.SEGMENT_FLUSH_THRESHOLD_ROWS, flushThresholdRows);
     streamConfigMap.put(StreamConfigProperties.SEGMENT_FLUSH_THRESHOLD_SEGMENT_SIZE, flushSegmentSize);
@@ -181,6 +185,7 @@ public class StreamConfigTest {
     assertTrue(streamConfig.getOffsetCriteria().isSmallest());
     assertEquals(streamConfig.getConnectionTimeoutMillis(), Long.parseLong(connectionTimeout));
     assertEquals(streamConfig.getFetchTimeoutMillis(), Integer.parseInt(fetchTimeout));
+    assertEquals(streamConfig.getPrefetchMaxBufferedBytes(), DataSizeUtils.toBytes(prefetchMaxBufferedBytes));
     assertEquals(streamConfig.getFlushThresholdTimeMillis(),
         (long) TimeUtils.convertPeriodToMillis(flushThresholdTime));
     assertEquals(streamConfig.getFlushThresholdRows(), Integer.parseInt(flushThresholdRows));
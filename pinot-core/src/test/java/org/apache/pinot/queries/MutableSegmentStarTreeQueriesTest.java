@@ -0,0 +1,185 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.queries;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.common.response.broker.ResultTable;
+import org.apache.pinot.segment.local.indexsegment.mutable.MutableSegmentImpl;
+import org.apache.pinot.segment.local.indexsegment.mutable.MutableSegmentImplTestUtils;
+import org.apache.pinot.segment.local.realtime.impl.startree.MutableStarTree;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.index.startree.StarTreeV2;
+import org.apache.pinot.spi.config.table.StarTreeIndexConfig;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.util.TestUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+
+/**
+ * Queries test for star-tree index on consuming (mutable) segments. The results solved with star-tree are compared
+ * against the results solved without star-tree.
+ */
+public class MutableSegmentStarTreeQueriesTest extends BaseQueriesTest {
+  private static final Random RANDOM = new Random();
+
+  private static final int NUM_RECORDS = 2000;
+  private static final String D1 = "d1";
+  private static final String D2 = "d2";
+  private static final String D3 = "d3";
+  private static final String M1 = "m1";
+  private static final String[] D1_VALUES = {"a", "b", "c", "d", "e"};
+  private static final int NUM_D2_VALUES = 20;
+  private static final Schema SCHEMA = new Schema.SchemaBuilder().setSchemaName("testTable")
+      .addSingleValueDimension(D1, DataType.STRING)
+      .addSingleValueDimension(D2, DataType.INT)
+      .addSingleValueDimension(D3, DataType.INT)
+      .addMetric(M1, DataType.LONG)
+      .build();
+  private static final List<StarTreeIndexConfig> STAR_TREE_INDEX_CONFIGS =
+      List.of(new StarTreeIndexConfig(List.of(D1, D2), null, List.of("COUNT__*", "SUM__m1", "MAX__m1", "MIN__m1"),
+          null, 10));
+
+  private static final String[] QUERIES = new String[]{
+      "SELECT COUNT(*), SUM(m1), MAX(m1), MIN(m1) FROM testTable",
+      "SELECT COUNT(*), SUM(m1) FROM testTable WHERE d1 = 'b'",
+      "SELECT COUNT(*), SUM(m1) FROM testTable WHERE d1 IN ('a', 'c') AND d2 > 7",
+      "SELECT COUNT(*), MAX(m1) FROM testTable WHERE d1 <> 'e' OR d1 = 'e'",
+      "SELECT SUM(m1) FROM testTable WHERE d2 BETWEEN 3 AND 11 AND NOT d1 = 'a'",
+      "SELECT d1, COUNT(*), SUM(m1) FROM testTable GROUP BY d1 ORDER BY d1",
+      "SELECT d1, d2, SUM(m1), MIN(m1) FROM testTable WHERE d2 < 5 GROUP BY d1, d2 ORDER BY d1, d2 LIMIT 1000",
+      "SELECT d2, MAX(m1) FROM testTable WHERE d1 = 'c' GROUP BY d2 ORDER BY d2 LIMIT 1000"
+  };
+
+  private MutableSegmentImpl _mutableSegment;
+
+  @Override
+  protected String getFilter() {
+    return "";
+  }
+
+  @Override
+  protected IndexSegment getIndexSegment() {
+    return _mutableSegment;
+  }
+
+  @Override
+  protected List<IndexSegment> getIndexSegments() {
+    return List.of(_mutableSegment, _mutableSegment);
+  }
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    _mutableSegment = MutableSegmentImplTestUtils.createMutableSegmentImpl(SCHEMA, Set.of(), STAR_TREE_INDEX_CONFIGS);
+    indexRows(NUM_RECORDS);
+    // Star-tree is rebuilt in the background when indexing the first row after the rebuild interval
+    Thread.sleep(MutableStarTree.DEFAULT_REBUILD_INTERVAL_MS);
+    indexRows(1);
+    TestUtils.waitForCondition(aVoid -> _mutableSegment.getStarTrees() != null, 10_000L,
+        "Failed to build the star-tree");
+  }
+
+  private void indexRows(int numRows)
+      throws Exception {
+    for (int i = 0; i < numRows; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue(D1, D1_VALUES[RANDOM.nextInt(D1_VALUES.length)]);
+      row.putValue(D2, RANDOM.nextInt(NUM_D2_VALUES));
+      row.putValue(D3, RANDOM.nextInt(100));
+      row.putValue(M1, (long) RANDOM.nextInt(10000));
+      _mutableSegment.index(row, null);
+    }
+  }
+
+  @Test
+  public void testStarTreeQueries()
+      throws Exception {
+    for (String query : QUERIES) {
+      testQuery(query, true);
+    }
+
+    // Rows indexed after the last rebuild should be included in the results right away, and the star-tree should still
+    // be used for the rows it covers
+    indexRows(100);
+    List<StarTreeV2> starTrees = _mutableSegment.getStarTrees();
+    assertNotNull(starTrees);
+    assertTrue(starTrees.get(0).getNumCoveredDocs() < _mutableSegment.getNumDocsIndexed());
+    for (String query : QUERIES) {
+      testQuery(query, true);
+    }
+
+    // Star-tree cannot be used when filtering on a column not in the star-tree
+    testQuery("SELECT COUNT(*), SUM(m1) FROM testTable WHERE d3 > 50", false);
+    testQuery("SELECT d3, SUM(m1) FROM testTable GROUP BY d3 ORDER BY d3 LIMIT 1000", false);
+  }
+
+  @Test
+  public void testQueriesWhileIndexing()
+      throws Exception {
+    // Star-tree should be used while rows keep being indexed, whether the latest snapshot covers them or not
+    for (int i = 0; i < 5; i++) {
+      indexRows(200);
+      for (String query : QUERIES) {
+        testQuery(query, true);
+      }
+    }
+  }
+
+  private void testQuery(String query, boolean expectStarTree) {
+    BrokerResponseNative starTreeResponse = getBrokerResponse(query);
+    BrokerResponseNative nonStarTreeResponse = getBrokerResponse("SET useStarTree = false; " + query);
+    assertSameResults(query, starTreeResponse, nonStarTreeResponse);
+    if (expectStarTree) {
+      assertTrue(starTreeResponse.getNumDocsScanned() < nonStarTreeResponse.getNumDocsScanned(),
+          "Star-tree is not used for query: " + query);
+    } else {
+      assertEquals(starTreeResponse.getNumDocsScanned(), nonStarTreeResponse.getNumDocsScanned());
+    }
+  }
+
+  private static void assertSameResults(String query, BrokerResponseNative starTreeResponse,
+      BrokerResponseNative nonStarTreeResponse) {
+    ResultTable starTreeResultTable = starTreeResponse.getResultTable();
+    ResultTable nonStarTreeResultTable = nonStarTreeResponse.getResultTable();
+    assertNotNull(starTreeResultTable);
+    assertNotNull(nonStarTreeResultTable);
+    List<Object[]> starTreeRows = starTreeResultTable.getRows();
+    List<Object[]> nonStarTreeRows = nonStarTreeResultTable.getRows();
+    assertEquals(starTreeRows.size(), nonStarTreeRows.size(), "Result mismatch for query: " + query);
+    for (int i = 0; i < starTreeRows.size(); i++) {
+      assertEquals(starTreeRows.get(i), nonStarTreeRows.get(i), "Result mismatch for query: " + query);
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _mutableSegment.destroy();
+  }
+}
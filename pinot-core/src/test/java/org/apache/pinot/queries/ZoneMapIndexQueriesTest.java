@@ -0,0 +1,240 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.queries;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.response.broker.BrokerResponseNative;
+import org.apache.pinot.core.operator.filter.AndFilterOperator;
+import org.apache.pinot.core.operator.filter.BaseFilterOperator;
+import org.apache.pinot.core.operator.filter.ScanBasedFilterOperator;
+import org.apache.pinot.core.operator.filter.ZoneMapBasedFilterOperator;
+import org.apache.pinot.core.plan.FilterPlanNode;
+import org.apache.pinot.core.query.request.context.utils.QueryContextConverterUtils;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentLoader;
+import org.apache.pinot.segment.local.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import org.apache.pinot.segment.local.segment.index.loader.IndexLoadingConfig;
+import org.apache.pinot.segment.local.segment.readers.GenericRowRecordReader;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.SegmentContext;
+import org.apache.pinot.segment.spi.creator.SegmentGeneratorConfig;
+import org.apache.pinot.segment.spi.index.StandardIndexes;
+import org.apache.pinot.spi.config.table.FieldConfig;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.utils.JsonUtils;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+
+/**
+ * Queries test for the zone map index.
+ * <p>The values are a permutation of [0, NUM_RECORDS) where each value only moves within its aligned group of 8 docs,
+ * so that the values are clustered by docId and each block of docs covers a narrow range of values.
+ */
+public class ZoneMapIndexQueriesTest extends BaseQueriesTest {
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "ZoneMapIndexQueriesTest");
+  private static final String RAW_TABLE_NAME = "testTable";
+  private static final String SEGMENT_NAME = "testSegment";
+
+  private static final int NUM_RECORDS = 10000;
+  private static final int NUM_DOCS_PER_BLOCK = 100;
+  private static final String RAW_INT_COL = "rawIntCol";
+  private static final String RAW_LONG_COL = "rawLongCol";
+  private static final String RAW_FLOAT_COL = "rawFloatCol";
+  private static final String RAW_DOUBLE_COL = "rawDoubleCol";
+  private static final String DICT_INT_COL = "dictIntCol";
+  private static final String DICT_DOUBLE_COL = "dictDoubleCol";
+  private static final String NO_ZONE_MAP_INT_COL = "noZoneMapIntCol";
+  // Values are not clustered by docId, so that each block covers the whole value range
+  private static final String UNCLUSTERED_INT_COL = "unclusteredIntCol";
+  private static final List<String> ZONE_MAP_COLUMNS =
+      Arrays.asList(RAW_INT_COL, RAW_LONG_COL, RAW_FLOAT_COL, RAW_DOUBLE_COL, DICT_INT_COL, DICT_DOUBLE_COL);
+  private static final List<String> RAW_COLUMNS =
+      Arrays.asList(RAW_INT_COL, RAW_LONG_COL, RAW_FLOAT_COL, RAW_DOUBLE_COL, NO_ZONE_MAP_INT_COL, UNCLUSTERED_INT_COL);
+
+  private static final Schema SCHEMA = new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME)
+      .addSingleValueDimension(RAW_INT_COL, DataType.INT)
+      .addSingleValueDimension(RAW_LONG_COL, DataType.LONG)
+      .addSingleValueDimension(RAW_FLOAT_COL, DataType.FLOAT)
+      .addSingleValueDimension(RAW_DOUBLE_COL, DataType.DOUBLE)
+      .addSingleValueDimension(DICT_INT_COL, DataType.INT)
+      .addSingleValueDimension(DICT_DOUBLE_COL, DataType.DOUBLE)
+      .addSingleValueDimension(NO_ZONE_MAP_INT_COL, DataType.INT)
+      .addSingleValueDimension(UNCLUSTERED_INT_COL, DataType.INT)
+      .build();
+
+  private IndexSegment _indexSegment;
+  private List<IndexSegment> _indexSegments;
+
+  @Override
+  protected String getFilter() {
+    return "";
+  }
+
+  @Override
+  protected IndexSegment getIndexSegment() {
+    return _indexSegment;
+  }
+
+  @Override
+  protected List<IndexSegment> getIndexSegments() {
+    return _indexSegments;
+  }
+
+  private static TableConfig createTableConfig(List<String> zoneMapColumns)
+      throws Exception {
+    List<FieldConfig> fieldConfigs = new ArrayList<>();
+    for (String column : zoneMapColumns) {
+      FieldConfig.EncodingType encodingType =
+          RAW_COLUMNS.contains(column) ? FieldConfig.EncodingType.RAW : FieldConfig.EncodingType.DICTIONARY;
+      fieldConfigs.add(new FieldConfig.Builder(column).withEncodingType(encodingType)
+          .withIndexes(JsonUtils.objectToJsonNode(
+              Map.of("zone_map", Map.of("numDocsPerBlock", NUM_DOCS_PER_BLOCK)))).build());
+    }
+    return new TableConfigBuilder(TableType.OFFLINE).setTableName(RAW_TABLE_NAME).setNoDictionaryColumns(RAW_COLUMNS)
+        .setFieldConfigList(fieldConfigs).build();
+  }
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    List<GenericRow> records = new ArrayList<>(NUM_RECORDS);
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      int value = i ^ 7;
+      GenericRow record = new GenericRow();
+      record.putValue(RAW_INT_COL, value);
+      record.putValue(RAW_LONG_COL, (long) value);
+      record.putValue(RAW_FLOAT_COL, (float) value);
+      record.putValue(RAW_DOUBLE_COL, (double) value);
+      record.putValue(DICT_INT_COL, value);
+      record.putValue(DICT_DOUBLE_COL, (double) value);
+      record.putValue(NO_ZONE_MAP_INT_COL, value);
+      record.putValue(UNCLUSTERED_INT_COL, i % NUM_DOCS_PER_BLOCK);
+      records.add(record);
+    }
+    // Create the zone map for DICT_DOUBLE_COL when loading the segment
+    List<String> zoneMapColumnsOnCreation = new ArrayList<>(ZONE_MAP_COLUMNS);
+    zoneMapColumnsOnCreation.remove(DICT_DOUBLE_COL);
+    zoneMapColumnsOnCreation.add(UNCLUSTERED_INT_COL);
+    SegmentGeneratorConfig segmentGeneratorConfig =
+        new SegmentGeneratorConfig(createTableConfig(zoneMapColumnsOnCreation), SCHEMA);
+    segmentGeneratorConfig.setTableName(RAW_TABLE_NAME);
+    segmentGeneratorConfig.setSegmentName(SEGMENT_NAME);
+    segmentGeneratorConfig.setOutDir(INDEX_DIR.getPath());
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(segmentGeneratorConfig, new GenericRowRecordReader(records));
+    driver.build();
+
+    List<String> zoneMapColumnsOnLoading = new ArrayList<>(ZONE_MAP_COLUMNS);
+    zoneMapColumnsOnLoading.add(UNCLUSTERED_INT_COL);
+    ImmutableSegment immutableSegment = ImmutableSegmentLoader.load(new File(INDEX_DIR, SEGMENT_NAME),
+        new IndexLoadingConfig(createTableConfig(zoneMapColumnsOnLoading), SCHEMA));
+    _indexSegment = immutableSegment;
+    _indexSegments = Arrays.asList(immutableSegment, immutableSegment);
+  }
+
+  @DataProvider
+  public static Object[][] zoneMapColumns() {
+    return ZONE_MAP_COLUMNS.stream().map(column -> new Object[]{column}).toArray(Object[][]::new);
+  }
+
+  @Test(dataProvider = "zoneMapColumns")
+  public void testZoneMapIndex(String column) {
+    for (String col : ZONE_MAP_COLUMNS) {
+      assertNotNull(_indexSegment.getDataSource(col).getIndex(StandardIndexes.zoneMap()), col);
+    }
+    assertNull(_indexSegment.getDataSource(NO_ZONE_MAP_INT_COL).getIndex(StandardIndexes.zoneMap()));
+
+    // Range crossing several blocks, only the first and the last block need to be scanned
+    testCount(column, "BETWEEN 1234 AND 5678", 5678 - 1234 + 1, 2 * NUM_DOCS_PER_BLOCK);
+    testCount(column, "> 1234", NUM_RECORDS - 1235, NUM_DOCS_PER_BLOCK);
+    testCount(column, "<= 5678", 5679, NUM_DOCS_PER_BLOCK);
+    // Range aligned with the blocks, no scan is needed
+    testCount(column, "BETWEEN 1200 AND 1599", 400, 0);
+    // Equality only scans one block
+    testCount(column, "= 4321", 1, NUM_DOCS_PER_BLOCK);
+    // No match
+    testCount(column, "> " + NUM_RECORDS, 0, 0);
+  }
+
+  @Test
+  public void testFilterOperator() {
+    assertTrue(getFilterOperator(RAW_INT_COL + " BETWEEN 1 AND 10") instanceof ZoneMapBasedFilterOperator);
+    assertTrue(getFilterOperator(DICT_DOUBLE_COL + " = 5") instanceof ZoneMapBasedFilterOperator);
+    assertTrue(getFilterOperator(NO_ZONE_MAP_INT_COL + " BETWEEN 1 AND 10") instanceof ScanBasedFilterOperator);
+    // Zone map cannot be used for IN predicate
+    assertTrue(getFilterOperator(RAW_INT_COL + " IN (1, 10)") instanceof ScanBasedFilterOperator);
+    // Fall back to scan when the zone map cannot prune the blocks
+    assertNotNull(_indexSegment.getDataSource(UNCLUSTERED_INT_COL).getIndex(StandardIndexes.zoneMap()));
+    assertTrue(getFilterOperator(UNCLUSTERED_INT_COL + " = 5") instanceof ScanBasedFilterOperator);
+    assertTrue(getFilterOperator(UNCLUSTERED_INT_COL + " > 1000") instanceof ZoneMapBasedFilterOperator);
+    // Scan operator is lazily evaluated within AND
+    BaseFilterOperator andFilterOperator =
+        getFilterOperator(RAW_INT_COL + " BETWEEN 1 AND 10 AND " + UNCLUSTERED_INT_COL + " = 5");
+    assertTrue(andFilterOperator instanceof AndFilterOperator);
+    assertEquals(getBrokerResponse("SELECT COUNT(*) FROM " + RAW_TABLE_NAME + " WHERE " + RAW_INT_COL
+        + " BETWEEN 1 AND 10 AND " + UNCLUSTERED_INT_COL + " = 5").getResultTable().getRows().get(0)[0], 4L);
+  }
+
+  @Test
+  public void testWithoutZoneMap() {
+    // Same query over the column without zone map scans all the docs
+    BrokerResponseNative brokerResponse = getBrokerResponse(
+        "SELECT COUNT(*) FROM " + RAW_TABLE_NAME + " WHERE " + NO_ZONE_MAP_INT_COL + " BETWEEN 1234 AND 5678");
+    assertEquals(brokerResponse.getResultTable().getRows().get(0)[0], 4L * (5678 - 1234 + 1));
+    assertEquals(brokerResponse.getNumEntriesScannedInFilter(), 4L * NUM_RECORDS);
+  }
+
+  private void testCount(String column, String predicate, int expectedCount, int expectedNumEntriesScanned) {
+    String query = "SELECT COUNT(*) FROM " + RAW_TABLE_NAME + " WHERE " + column + " " + predicate;
+    BrokerResponseNative brokerResponse = getBrokerResponse(query);
+    // 2 instances with 2 segments each
+    assertEquals(brokerResponse.getResultTable().getRows().get(0)[0], 4L * expectedCount, query);
+    assertEquals(brokerResponse.getNumEntriesScannedInFilter(), 4L * expectedNumEntriesScanned, query);
+  }
+
+  private BaseFilterOperator getFilterOperator(String filter) {
+    return new FilterPlanNode(new SegmentContext(_indexSegment),
+        QueryContextConverterUtils.getQueryContext("SELECT * FROM " + RAW_TABLE_NAME + " WHERE " + filter)).run();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _indexSegment.destroy();
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+}
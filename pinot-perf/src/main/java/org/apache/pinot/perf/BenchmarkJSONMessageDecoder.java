@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.perf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.pinot.plugin.inputformat.json.JSONMessageDecoder;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Benchmark for decoding JSON stream messages into rows, with the streaming decoder and with the JSON tree based
+ * decoder.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class BenchmarkJSONMessageDecoder {
+  private static final int NUM_MESSAGES = 1000;
+  private static final int NUM_FIELDS = 50;
+
+  @Param({"true", "false"})
+  private boolean _streamingDecode;
+
+  // Number of top level fields read out of NUM_FIELDS, where 0 means all the fields are read
+  @Param({"5", "0"})
+  private int _numFieldsToRead;
+
+  private JSONMessageDecoder _decoder;
+  private byte[][] _messages;
+
+  public static void main(String[] args)
+      throws Exception {
+    ChainedOptionsBuilder opt = new OptionsBuilder().include(BenchmarkJSONMessageDecoder.class.getSimpleName());
+    new Runner(opt.build()).run();
+  }
+
+  @Setup
+  public void setUp()
+      throws Exception {
+    Set<String> fieldsToRead = new HashSet<>();
+    for (int i = 0; i < _numFieldsToRead; i++) {
+      fieldsToRead.add("field" + i);
+    }
+    _decoder = new JSONMessageDecoder();
+    _decoder.init(Map.of(JSONMessageDecoder.STREAMING_DECODE, Boolean.toString(_streamingDecode)), fieldsToRead,
+        "testTopic");
+
+    Random random = new Random(42);
+    _messages = new byte[NUM_MESSAGES][];
+    for (int i = 0; i < NUM_MESSAGES; i++) {
+      StringBuilder message = new StringBuilder("{");
+      for (int j = 0; j < NUM_FIELDS; j++) {
+        if (j > 0) {
+          message.append(',');
+        }
+        message.append("\"field").append(j).append("\":");
+        switch (j % 5) {
+          case 0:
+            message.append(random.nextInt());
+            break;
+          case 1:
+            message.append(random.nextLong());
+            break;
+          case 2:
+            message.append(random.nextDouble());
+            break;
+          case 3:
+            message.append("\"value-").append(random.nextInt(1000)).append('"');
+            break;
+          default:
+            message.append("{\"id\":").append(random.nextInt()).append(",\"tags\":[\"a\",\"b\",\"c\"],\"nested\":")
+                .append("{\"score\":").append(random.nextDouble()).append("}}");
+            break;
+        }
+      }
+      message.append('}');
+      _messages[i] = message.toString().getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  @Benchmark
+  public void decode(Blackhole blackhole) {
+    GenericRow reuse = new GenericRow();
+    for (byte[] message : _messages) {
+      reuse.clear();
+      blackhole.consume(_decoder.decode(message, 0, message.length, reuse));
+    }
+  }
+}
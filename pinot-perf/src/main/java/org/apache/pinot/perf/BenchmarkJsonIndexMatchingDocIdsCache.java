@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.perf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.local.segment.creator.impl.inv.json.OnHeapJsonIndexCreator;
+import org.apache.pinot.segment.local.segment.index.readers.json.ImmutableJsonIndexReader;
+import org.apache.pinot.segment.spi.V1Constants;
+import org.apache.pinot.segment.spi.index.creator.JsonIndexCreator;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+import org.apache.pinot.spi.config.table.JsonIndexConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+
+/**
+ * Benchmark for repeated json_match filters on the immutable JSON index, with and without the matching doc ids cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class BenchmarkJsonIndexMatchingDocIdsCache {
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "BenchmarkJsonIndexMatchingDocIdsCache");
+  private static final String COLUMN_NAME = "json";
+  private static final int NUM_DOCS = 100_000;
+  private static final String[] FILTERS = new String[]{
+      "\"addresses[*].country\" = 'us'",
+      "\"name\" IN ('name-1', 'name-2', 'name-3')",
+      "\"age\" > 50 AND \"addresses[*].country\" = 'ca'",
+      "REGEXP_LIKE(\"addresses[*].street\", 'street-1.*')"
+  };
+
+  @Param({"0", "16777216"})
+  private long _cacheMaxBytes;
+
+  private PinotDataBuffer _dataBuffer;
+  private ImmutableJsonIndexReader _reader;
+
+  public static void main(String[] args)
+      throws Exception {
+    ChainedOptionsBuilder opt =
+        new OptionsBuilder().include(BenchmarkJsonIndexMatchingDocIdsCache.class.getSimpleName());
+    new Runner(opt.build()).run();
+  }
+
+  @Setup
+  public void setUp()
+      throws IOException {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    FileUtils.forceMkdir(INDEX_DIR);
+    try (JsonIndexCreator indexCreator = new OnHeapJsonIndexCreator(INDEX_DIR, COLUMN_NAME, "myTable_OFFLINE", false,
+        new JsonIndexConfig())) {
+      for (int i = 0; i < NUM_DOCS; i++) {
+        indexCreator.add(String.format(
+            "{\"name\":\"name-%d\",\"age\":%d,\"addresses\":[{\"street\":\"street-%d\",\"country\":\"us\"},"
+                + "{\"street\":\"street-%d\",\"country\":\"ca\"}]}", i % 1000, i % 100, i % 500, i % 700));
+      }
+      indexCreator.seal();
+    }
+    File indexFile = new File(INDEX_DIR, COLUMN_NAME + V1Constants.Indexes.JSON_INDEX_FILE_EXTENSION);
+    _dataBuffer = PinotDataBuffer.mapReadOnlyBigEndianFile(indexFile);
+    _reader = new ImmutableJsonIndexReader(_dataBuffer, NUM_DOCS, _cacheMaxBytes);
+  }
+
+  @TearDown
+  public void tearDown()
+      throws IOException {
+    _reader.close();
+    _dataBuffer.close();
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Benchmark
+  public long repeatedJsonMatch() {
+    long numMatchingDocs = 0;
+    for (String filter : FILTERS) {
+      MutableRoaringBitmap matchingDocIds = _reader.getMatchingDocIds(filter);
+      numMatchingDocs += matchingDocIds.getCardinality();
+    }
+    return numMatchingDocs;
+  }
+}
@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.pinot.segment.local.indexsegment.mutable.MutableSegmentImpl;
+import org.apache.pinot.segment.local.indexsegment.mutable.MutableSegmentImplTestUtils;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Benchmark for indexing rows into a mutable segment one by one versus in batches. Complements
+ * {@link BenchmarkRealtimeConsumptionSpeed}, which measures the end-to-end consumption speed of a cluster.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class BenchmarkMutableSegmentBatchIndexing {
+  private static final String INT_COL = "intCol";
+  private static final String LONG_RAW_COL = "longRawCol";
+  private static final String STRING_COL = "stringCol";
+  private static final String DOUBLE_RAW_COL = "doubleRawCol";
+  private static final Schema SCHEMA = new Schema.SchemaBuilder().setSchemaName("testTable")
+      .addSingleValueDimension(INT_COL, DataType.INT)
+      .addSingleValueDimension(LONG_RAW_COL, DataType.LONG)
+      .addSingleValueDimension(STRING_COL, DataType.STRING)
+      .addMetric(DOUBLE_RAW_COL, DataType.DOUBLE)
+      .build();
+  private static final int NUM_ROWS = 50_000;
+
+  // Batch size of 1 indexes the rows one by one
+  @Param({"1", "100", "1000"})
+  private int _batchSize;
+
+  private List<GenericRow> _rows;
+
+  public static void main(String[] args)
+      throws Exception {
+    ChainedOptionsBuilder opt =
+        new OptionsBuilder().include(BenchmarkMutableSegmentBatchIndexing.class.getSimpleName());
+    new Runner(opt.build()).run();
+  }
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    _rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue(INT_COL, random.nextInt(1000));
+      row.putValue(LONG_RAW_COL, random.nextLong());
+      row.putValue(STRING_COL, "s" + random.nextInt(5000));
+      row.putValue(DOUBLE_RAW_COL, random.nextDouble());
+      _rows.add(row);
+    }
+  }
+
+  @Benchmark
+  public int indexRows()
+      throws Exception {
+    MutableSegmentImpl mutableSegment =
+        MutableSegmentImplTestUtils.createMutableSegmentImpl(SCHEMA, Set.of(LONG_RAW_COL, DOUBLE_RAW_COL), Set.of(),
+            Set.of(INT_COL, STRING_COL), false, false);
+    try {
+      if (_batchSize == 1) {
+        for (GenericRow row : _rows) {
+          mutableSegment.index(row, null);
+        }
+      } else {
+        for (int from = 0; from < NUM_ROWS; from += _batchSize) {
+          mutableSegment.index(_rows.subList(from, Math.min(from + _batchSize, NUM_ROWS)), null);
+        }
+      }
+      return mutableSegment.getNumDocsIndexed();
+    } finally {
+      mutableSegment.destroy();
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.perf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.local.io.writer.impl.FixedByteChunkForwardIndexWriter;
+import org.apache.pinot.segment.local.segment.index.readers.forward.ChunkReaderContext;
+import org.apache.pinot.segment.local.segment.index.readers.forward.FixedBytePower2ChunkSVForwardIndexReader;
+import org.apache.pinot.segment.spi.compression.ChunkCompressionType;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Compares the size and the batch scan speed of raw LONG/DOUBLE forward indexes written with the general purpose
+ * compression codecs and the lightweight numeric encodings (DELTA, DELTADELTA, FOR, XOR) for typical metric columns.
+ * The index size is reported with the {@link BytesCounter} auxiliary counters.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class BenchmarkNoDictionaryNumericEncodings {
+  private static final File INDEX_DIR =
+      new File(FileUtils.getTempDirectory(), "BenchmarkNoDictionaryNumericEncodings");
+  private static final int NUM_DOCS_PER_CHUNK = 1024;
+  private static final int BLOCK_SIZE = 10000;
+
+  public enum Distribution {
+    // Millisecond timestamps with small jitter around a fixed interval, stored as LONG
+    TIMESTAMP,
+    // Monotonically increasing counter, stored as LONG
+    COUNTER,
+    // Slowly changing gauge with few distinct values, stored as DOUBLE
+    GAUGE,
+    // Uniformly random values, stored as LONG
+    RANDOM
+  }
+
+  @Param({"PASS_THROUGH", "LZ4", "ZSTANDARD", "DELTA", "DELTADELTA", "FOR", "XOR"})
+  public ChunkCompressionType _compressionType;
+
+  @Param({"TIMESTAMP", "COUNTER", "GAUGE", "RANDOM"})
+  public Distribution _distribution;
+
+  @Param("1000000")
+  public int _numDocs;
+
+  private File _indexFile;
+  private PinotDataBuffer _dataBuffer;
+  private FixedBytePower2ChunkSVForwardIndexReader _reader;
+  private DataType _storedType;
+  private int[] _docIds;
+  private long[] _longValues;
+  private double[] _doubleValues;
+
+  @Setup(Level.Trial)
+  public void setUp()
+      throws IOException {
+    FileUtils.forceMkdir(INDEX_DIR);
+    _indexFile = new File(INDEX_DIR, UUID.randomUUID().toString());
+    _storedType = _distribution == Distribution.GAUGE ? DataType.DOUBLE : DataType.LONG;
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    try (FixedByteChunkForwardIndexWriter writer = new FixedByteChunkForwardIndexWriter(_indexFile, _compressionType,
+        _numDocs, NUM_DOCS_PER_CHUNK, Long.BYTES, 4)) {
+      long value = System.currentTimeMillis();
+      double gauge = 50;
+      for (int i = 0; i < _numDocs; i++) {
+        switch (_distribution) {
+          case TIMESTAMP:
+            value += 1000 + random.nextInt(8);
+            writer.putLong(value);
+            break;
+          case COUNTER:
+            value += random.nextInt(100);
+            writer.putLong(value);
+            break;
+          case GAUGE:
+            if (random.nextInt(10) == 0) {
+              gauge = random.nextInt(400) / 4.0;
+            }
+            writer.putDouble(gauge);
+            break;
+          case RANDOM:
+            writer.putLong(random.nextLong());
+            break;
+          default:
+            throw new IllegalStateException();
+        }
+      }
+    }
+    _dataBuffer = PinotDataBuffer.loadBigEndianFile(_indexFile);
+    _reader = new FixedBytePower2ChunkSVForwardIndexReader(_dataBuffer, _storedType);
+    _docIds = new int[BLOCK_SIZE];
+    _longValues = new long[BLOCK_SIZE];
+    _doubleValues = new double[BLOCK_SIZE];
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown()
+      throws IOException {
+    _reader.close();
+    _dataBuffer.close();
+    FileUtils.deleteDirectory(INDEX_DIR);
+  }
+
+  @Benchmark
+  public void scanBatch(BytesCounter indexSize, Blackhole bh)
+      throws IOException {
+    indexSize._bytes = _indexFile.length();
+    try (ChunkReaderContext context = _reader.createContext()) {
+      for (int startDocId = 0; startDocId < _numDocs; startDocId += BLOCK_SIZE) {
+        int length = Math.min(BLOCK_SIZE, _numDocs - startDocId);
+        for (int i = 0; i < length; i++) {
+          _docIds[i] = startDocId + i;
+        }
+        if (_storedType == DataType.LONG) {
+          _reader.readValuesSV(_docIds, length, _longValues, context);
+          bh.consume(_longValues);
+        } else {
+          _reader.readValuesSV(_docIds, length, _doubleValues, context);
+          bh.consume(_doubleValues);
+        }
+      }
+    }
+  }
+
+  public static void main(String[] args)
+      throws Exception {
+    new Runner(new OptionsBuilder().include(BenchmarkNoDictionaryNumericEncodings.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.perf;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.pinot.common.function.BatchFunctionInvoker;
+import org.apache.pinot.common.function.FunctionInfo;
+import org.apache.pinot.common.function.FunctionInvoker;
+import org.apache.pinot.common.function.FunctionRegistry;
+import org.apache.pinot.core.plan.DocIdSetPlanNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Compares the per-row evaluation of a scalar function (via reflection and via the {@link FunctionInvoker}, as done by
+ * the ScalarTransformFunctionWrapper without batch method) with the batch evaluation over a block of values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class BenchmarkScalarFunctionBatch {
+  private static final int NUM_VALUES = DocIdSetPlanNode.MAX_DOC_PER_CALL;
+  private static final long ROUND_TO_NEAREST = 15;
+
+  private long[] _millis;
+  private long[] _roundToNearest;
+  private long[] _results;
+  private Method _method;
+  private FunctionInvoker _functionInvoker;
+  private BatchFunctionInvoker _batchFunctionInvoker;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random();
+    long currentTimeMs = System.currentTimeMillis();
+    _millis = new long[NUM_VALUES];
+    for (int i = 0; i < NUM_VALUES; i++) {
+      _millis[i] = currentTimeMs - random.nextInt(365 * 24 * 3600) * 1000L;
+    }
+    _roundToNearest = new long[NUM_VALUES];
+    Arrays.fill(_roundToNearest, ROUND_TO_NEAREST);
+    _results = new long[NUM_VALUES];
+    FunctionInfo functionInfo =
+        FunctionRegistry.lookupFunctionInfo(FunctionRegistry.canonicalize("toEpochMinutesRounded"), 2);
+    _method = functionInfo.getMethod();
+    _functionInvoker = new FunctionInvoker(functionInfo);
+    _batchFunctionInvoker = new BatchFunctionInvoker(functionInfo);
+  }
+
+  public static void main(String[] args)
+      throws Exception {
+    ChainedOptionsBuilder opt = new OptionsBuilder().include(BenchmarkScalarFunctionBatch.class.getSimpleName());
+    new Runner(opt.build()).run();
+  }
+
+  @Benchmark
+  public long[] perRowReflection()
+      throws Exception {
+    Long[] millis = ArrayUtils.toObject(_millis);
+    Object[] arguments = new Object[]{null, ROUND_TO_NEAREST};
+    for (int i = 0; i < NUM_VALUES; i++) {
+      arguments[0] = millis[i];
+      _results[i] = (long) _method.invoke(null, arguments);
+    }
+    return _results;
+  }
+
+  @Benchmark
+  public long[] perRowFunctionInvoker() {
+    Long[] millis = ArrayUtils.toObject(_millis);
+    Object[] arguments = new Object[]{null, ROUND_TO_NEAREST};
+    for (int i = 0; i < NUM_VALUES; i++) {
+      arguments[0] = millis[i];
+      _results[i] = (long) _functionInvoker.invoke(arguments);
+    }
+    return _results;
+  }
+
+  @Benchmark
+  public long[] batch() {
+    _batchFunctionInvoker.invoke(new Object[]{NUM_VALUES, _millis, _roundToNearest, _results});
+    return _results;
+  }
+}
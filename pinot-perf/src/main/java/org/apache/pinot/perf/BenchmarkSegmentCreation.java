@@ -0,0 +1,147 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.perf;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.local.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import org.apache.pinot.segment.local.segment.readers.GenericRowRecordReader;
+import org.apache.pinot.segment.spi.creator.SegmentGeneratorConfig;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Benchmark for the segment creation with different segment creation parallelism, where the stats and the indexes of
+ * different columns are built concurrently.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@State(Scope.Benchmark)
+public class BenchmarkSegmentCreation {
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "BenchmarkSegmentCreation");
+  private static final String RAW_TABLE_NAME = "testTable";
+  private static final String SEGMENT_NAME = "testSegment";
+  private static final int NUM_INT_COLUMNS = 8;
+  private static final int NUM_STRING_COLUMNS = 8;
+
+  @Param({"1000000"})
+  private int _numRows;
+  @Param({"1", "2", "4", "8"})
+  private int _parallelism;
+
+  private Schema _schema;
+  private TableConfig _tableConfig;
+  private List<GenericRow> _rows;
+
+  public static void main(String[] args)
+      throws Exception {
+    new Runner(new OptionsBuilder().include(BenchmarkSegmentCreation.class.getSimpleName()).build()).run();
+  }
+
+  @Setup
+  public void setUp() {
+    Schema.SchemaBuilder schemaBuilder = new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME);
+    List<String> invertedIndexColumns = new ArrayList<>();
+    List<String> noDictionaryColumns = new ArrayList<>();
+    for (int i = 0; i < NUM_INT_COLUMNS; i++) {
+      schemaBuilder.addSingleValueDimension("int" + i, DataType.INT);
+      invertedIndexColumns.add("int" + i);
+    }
+    for (int i = 0; i < NUM_STRING_COLUMNS; i++) {
+      schemaBuilder.addSingleValueDimension("string" + i, DataType.STRING);
+      // Half of the string columns are raw
+      if (i % 2 == 0) {
+        invertedIndexColumns.add("string" + i);
+      } else {
+        noDictionaryColumns.add("string" + i);
+      }
+    }
+    _schema = schemaBuilder.build();
+    _tableConfig = new TableConfigBuilder(TableType.OFFLINE).setTableName(RAW_TABLE_NAME)
+        .setInvertedIndexColumns(invertedIndexColumns)
+        .setCreateInvertedIndexDuringSegmentGeneration(true)
+        .setNoDictionaryColumns(noDictionaryColumns)
+        .build();
+    _tableConfig.getIndexingConfig().setSegmentCreationParallelism(_parallelism);
+
+    Random random = new Random(42);
+    _rows = new ArrayList<>(_numRows);
+    for (int i = 0; i < _numRows; i++) {
+      GenericRow row = new GenericRow();
+      for (int j = 0; j < NUM_INT_COLUMNS; j++) {
+        // Cardinality increases with the column index
+        row.putValue("int" + j, random.nextInt((int) Math.pow(10, j + 1)));
+      }
+      for (int j = 0; j < NUM_STRING_COLUMNS; j++) {
+        row.putValue("string" + j, "value" + random.nextInt((int) Math.pow(10, j + 1)));
+      }
+      _rows.add(row);
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void cleanUp() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Benchmark
+  public File createSegment()
+      throws Exception {
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(_tableConfig, _schema);
+    config.setOutDir(INDEX_DIR.getPath());
+    config.setSegmentName(SEGMENT_NAME);
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    // GenericRowRecordReader does not modify the rows, so they can be reused across invocations
+    driver.init(config, new GenericRowRecordReader(_rows));
+    driver.build();
+    return driver.getOutputDirectory();
+  }
+
+  @TearDown
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+}
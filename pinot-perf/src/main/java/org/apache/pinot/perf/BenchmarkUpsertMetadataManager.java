@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.perf;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.segment.local.upsert.BasePartitionUpsertMetadataManager;
+import org.apache.pinot.segment.local.upsert.ConcurrentMapPartitionUpsertMetadataManager;
+import org.apache.pinot.segment.local.upsert.OffHeapPartitionUpsertMetadataManager;
+import org.apache.pinot.segment.local.upsert.RecordInfo;
+import org.apache.pinot.segment.local.upsert.UpsertContext;
+import org.apache.pinot.segment.spi.MutableSegment;
+import org.apache.pinot.segment.spi.index.mutable.ThreadSafeMutableRoaringBitmap;
+import org.apache.pinot.spi.config.table.HashFunction;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.data.FieldSpec;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Compares the {@link ConcurrentMapPartitionUpsertMetadataManager} (on-heap) with the
+ * {@link OffHeapPartitionUpsertMetadataManager} when ingesting records into a consuming segment. Each invocation
+ * ingests {@code _numRecords} records over {@code _numPrimaryKeys} distinct keys into a fresh metadata manager. Run
+ * with {@code -prof gc} to compare the allocation rate and heap footprint of the two implementations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@State(Scope.Benchmark)
+public class BenchmarkUpsertMetadataManager {
+  private static final String TABLE_NAME = "testTable_REALTIME";
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "BenchmarkUpsertMetadataManager");
+  private static final List<String> PRIMARY_KEY_COLUMNS = List.of("pk");
+  private static final List<String> COMPARISON_COLUMNS = List.of("ts");
+
+  @Param({"CONCURRENT_MAP", "OFF_HEAP"})
+  private String _managerType;
+
+  @Param({"MD5", "MURMUR3"})
+  private String _hashFunction;
+
+  @Param({"1000000"})
+  private int _numPrimaryKeys;
+
+  @Param({"4000000"})
+  private int _numRecords;
+
+  private UpsertContext _context;
+  private RecordInfo[] _recordInfos;
+  private BasePartitionUpsertMetadataManager _upsertMetadataManager;
+  private MutableSegment _segment;
+
+  public static void main(String[] args)
+      throws Exception {
+    ChainedOptionsBuilder opt =
+        new OptionsBuilder().include(BenchmarkUpsertMetadataManager.class.getSimpleName()).shouldDoGC(true);
+    new Runner(opt.build()).run();
+  }
+
+  @Setup
+  public void setUp() {
+    ServerMetrics.register(Mockito.mock(ServerMetrics.class));
+    Schema schema = new Schema.SchemaBuilder().setSchemaName(TABLE_NAME)
+        .addSingleValueDimension("pk", FieldSpec.DataType.STRING)
+        .addMetric("ts", FieldSpec.DataType.LONG)
+        .setPrimaryKeyColumns(PRIMARY_KEY_COLUMNS)
+        .build();
+    _context = new UpsertContext.Builder().setTableConfig(Mockito.mock(TableConfig.class))
+        .setSchema(schema)
+        .setPrimaryKeyColumns(PRIMARY_KEY_COLUMNS)
+        .setComparisonColumns(COMPARISON_COLUMNS)
+        .setHashFunction(HashFunction.valueOf(_hashFunction))
+        .setTableIndexDir(INDEX_DIR)
+        .build();
+
+    Random random = new Random(42);
+    _recordInfos = new RecordInfo[_numRecords];
+    for (int i = 0; i < _numRecords; i++) {
+      PrimaryKey primaryKey = new PrimaryKey(new Object[]{"key_" + random.nextInt(_numPrimaryKeys)});
+      // Mostly increasing comparison values with some out-of-order records
+      long timestamp = i - random.nextInt(100);
+      _recordInfos[i] = new RecordInfo(primaryKey, i, timestamp, false);
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void setUpInvocation() {
+    _upsertMetadataManager = "OFF_HEAP".equals(_managerType)
+        ? new OffHeapPartitionUpsertMetadataManager(TABLE_NAME, 0, _context)
+        : new ConcurrentMapPartitionUpsertMetadataManager(TABLE_NAME, 0, _context);
+    _segment = Mockito.mock(MutableSegment.class);
+    Mockito.when(_segment.getSegmentName()).thenReturn("testTable__0__0__20250101T0000Z");
+    Mockito.when(_segment.getValidDocIds()).thenReturn(new ThreadSafeMutableRoaringBitmap());
+  }
+
+  @TearDown(Level.Invocation)
+  public void tearDownInvocation()
+      throws Exception {
+    _upsertMetadataManager.stop();
+    _upsertMetadataManager.close();
+  }
+
+  @TearDown
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Benchmark
+  public int addRecords() {
+    int numAdded = 0;
+    for (RecordInfo recordInfo : _recordInfos) {
+      if (_upsertMetadataManager.addRecord(_segment, recordInfo)) {
+        numAdded++;
+      }
+    }
+    return numAdded;
+  }
+}
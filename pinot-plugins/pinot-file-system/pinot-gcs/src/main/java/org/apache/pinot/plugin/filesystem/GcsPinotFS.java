@@ -21,6 +21,7 @@ package org.apache.pinot.plugin.filesystem;
 import com.google.api.gax.paging.Page;
 import com.google.auth.Credentials;
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.ReadChannel;
 import com.google.cloud.storage.Blob;
 import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.BlobInfo;
@@ -104,6 +105,14 @@ public class GcsPinotFS extends BasePinotFS {
     }
   }
 
+  /**
+   * Initialize the _storage directly with provided client
+   * @param storage storage client to initialize with
+   */
+  public void init(Storage storage) {
+    _storage = storage;
+  }
+
   @Override
   public final boolean mkdir(URI uri)
       throws IOException {
@@ -308,6 +317,21 @@ public class GcsPinotFS extends BasePinotFS {
     }
   }
 
+  @Override
+  public InputStream open(URI uri, long offset, long length)
+      throws IOException {
+    try {
+      Blob blob = getBlob(new GcsUri(uri));
+      ReadChannel readChannel = blob.reader();
+      readChannel.seek(offset);
+      // Do not read past the end of the blob
+      readChannel.limit(Math.min(offset + length, blob.getSize()));
+      return Channels.newInputStream(readChannel);
+    } catch (StorageException e) {
+      throw new IOException(e);
+    }
+  }
+
   private Bucket getBucket(GcsUri gcsUri) {
     return _storage.get(gcsUri.getBucketName());
   }
@@ -18,11 +18,16 @@
  */
 package org.apache.pinot.plugin.filesystem;
 
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.contrib.nio.testing.LocalStorageHelper;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Closer;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.net.URI;
 import java.nio.file.Files;
@@ -35,6 +40,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import org.apache.commons.io.IOUtils;
 import org.apache.pinot.spi.env.PinotConfiguration;
 import org.apache.pinot.spi.filesystem.FileMetadata;
 import org.testng.Assert;
@@ -323,4 +329,27 @@ public class GcsPinotFSTest {
         expectedRecursive.containsAll(fileMetadata.stream().map(FileMetadata::getFilePath).collect(Collectors.toSet())),
         fileMetadata.toString());
   }
+
+  @Test
+  public void testOpenRange()
+      throws Exception {
+    // Runs against the in-memory storage, so that it does not require credentials
+    Storage storage = LocalStorageHelper.getOptions().getService();
+    try (GcsPinotFS pinotFS = new GcsPinotFS()) {
+      pinotFS.init(storage);
+      GcsUri fileUri = createGcsUri("test-bucket", "file");
+      storage.create(BlobInfo.newBuilder(BlobId.of(fileUri.getBucketName(), fileUri.getPath())).build(),
+          "0123456789".getBytes(UTF_8));
+      try (InputStream inputStream = pinotFS.open(fileUri.getUri(), 2, 5)) {
+        assertEquals(IOUtils.toByteArray(inputStream), "23456".getBytes(UTF_8));
+      }
+      // The range is truncated at the end of the file
+      try (InputStream inputStream = pinotFS.open(fileUri.getUri(), 8, 5)) {
+        assertEquals(IOUtils.toByteArray(inputStream), "89".getBytes(UTF_8));
+      }
+      try (InputStream inputStream = pinotFS.open(fileUri.getUri(), 3, 0)) {
+        assertEquals(IOUtils.toByteArray(inputStream).length, 0);
+      }
+    }
+  }
 }
@@ -28,7 +28,9 @@ import java.io.InputStream;
 import java.net.URI;
 import java.util.List;
 import java.util.function.Consumer;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileUtil;
@@ -267,6 +269,19 @@ public class HadoopPinotFS extends BasePinotFS {
     return _hadoopFS.open(path);
   }
 
+  @Override
+  public InputStream open(URI uri, long offset, long length)
+      throws IOException {
+    FSDataInputStream inputStream = _hadoopFS.open(new Path(uri));
+    try {
+      inputStream.seek(offset);
+      return BoundedInputStream.builder().setInputStream(inputStream).setMaxCount(length).get();
+    } catch (IOException e) {
+      inputStream.close();
+      throw e;
+    }
+  }
+
   private void authenticate(Configuration hadoopConf, PinotConfiguration configs) {
     String principal = configs.getProperty(PRINCIPAL);
     String keytab = configs.getProperty(KEYTAB);
@@ -21,12 +21,15 @@ package org.apache.pinot.plugin.filesystem;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.hadoop.fs.Path;
 import org.apache.pinot.spi.env.PinotConfiguration;
 import org.apache.pinot.spi.filesystem.FileMetadata;
@@ -150,4 +153,25 @@ public class HadoopPinotFSTest {
           fileMetadata.stream().map(FileMetadata::getFilePath).collect(Collectors.toSet())), fileMetadata.toString());
     }
   }
+
+  @Test
+  public void testOpenRange()
+      throws IOException {
+    File file = new File(TMP_DIR, "testOpenRange");
+    FileUtils.writeStringToFile(file, "0123456789", StandardCharsets.UTF_8);
+    URI fileURI = new Path(file.getAbsolutePath()).toUri();
+    try (HadoopPinotFS hadoopFS = new HadoopPinotFS()) {
+      hadoopFS.init(new PinotConfiguration());
+      try (InputStream inputStream = hadoopFS.open(fileURI, 2, 5)) {
+        Assert.assertEquals(IOUtils.toString(inputStream, StandardCharsets.UTF_8), "23456");
+      }
+      // The range is truncated at the end of the file
+      try (InputStream inputStream = hadoopFS.open(fileURI, 8, 5)) {
+        Assert.assertEquals(IOUtils.toString(inputStream, StandardCharsets.UTF_8), "89");
+      }
+      try (InputStream inputStream = hadoopFS.open(fileURI, 3, 0)) {
+        Assert.assertEquals(IOUtils.toString(inputStream, StandardCharsets.UTF_8), "");
+      }
+    }
+  }
 }
@@ -436,6 +436,26 @@ public class S3PinotFSTest {
     Assert.assertEquals(actualContents, fileContent);
   }
 
+  @Test(dataProvider = "scheme")
+  public void testOpenFileRange(String scheme)
+      throws Exception {
+    String fileName = "sample-range.txt";
+    _s3Client.putObject(S3TestUtils.getPutObjectRequest(BUCKET, fileName, _s3PinotFS.getStorageClass()),
+        RequestBody.fromString("0123456789"));
+
+    URI fileUri = URI.create(String.format(FILE_FORMAT, scheme, BUCKET, fileName));
+    try (InputStream is = _s3PinotFS.open(fileUri, 2, 5)) {
+      Assert.assertEquals(IOUtils.toString(is, StandardCharsets.UTF_8), "23456");
+    }
+    // The range is truncated at the end of the file
+    try (InputStream is = _s3PinotFS.open(fileUri, 8, 5)) {
+      Assert.assertEquals(IOUtils.toString(is, StandardCharsets.UTF_8), "89");
+    }
+    try (InputStream is = _s3PinotFS.open(fileUri, 3, 0)) {
+      Assert.assertEquals(IOUtils.toString(is, StandardCharsets.UTF_8), "");
+    }
+  }
+
   @Test(dataProvider = "scheme")
   public void testMkdir(String scheme)
       throws Exception {
@@ -18,6 +18,7 @@
  */
 package org.apache.pinot.plugin.inputformat.json;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import java.util.Arrays;
 import java.util.Map;
@@ -33,13 +34,20 @@ import org.slf4j.LoggerFactory;
 
 /**
  * An implementation of StreamMessageDecoder to read JSON records from a stream.
+ *
+ * With the default record extractor, the payload is parsed as a stream of tokens straight into the destination row, so
+ * that no intermediate JSON tree is created and the fields that are not read are skipped. This can be disabled with the
+ * {@link #STREAMING_DECODE} property, in which case the payload is parsed into a JSON tree before being extracted.
  */
 public class JSONMessageDecoder implements StreamMessageDecoder<byte[]> {
   private static final Logger LOGGER = LoggerFactory.getLogger(JSONMessageDecoder.class);
   private static final String JSON_RECORD_EXTRACTOR_CLASS =
       "org.apache.pinot.plugin.inputformat.json.JSONRecordExtractor";
+  public static final String STREAMING_DECODE = "streamingDecode";
 
   private RecordExtractor<Map<String, Object>> _jsonRecordExtractor;
+  // Set when the payload is parsed straight into the destination row
+  private JSONRecordExtractor _streamingRecordExtractor;
 
   @Override
   public void init(Map<String, String> props, Set<String> fieldsToRead, String topicName)
@@ -53,10 +61,17 @@ public class JSONMessageDecoder implements StreamMessageDecoder<byte[]> {
     }
     _jsonRecordExtractor = PluginManager.get().createInstance(recordExtractorClass);
     _jsonRecordExtractor.init(fieldsToRead, null);
+    boolean streamingDecode = props == null || Boolean.parseBoolean(props.getOrDefault(STREAMING_DECODE, "true"));
+    if (streamingDecode && _jsonRecordExtractor.getClass() == JSONRecordExtractor.class) {
+      _streamingRecordExtractor = (JSONRecordExtractor) _jsonRecordExtractor;
+    }
   }
 
   @Override
   public GenericRow decode(byte[] payload, GenericRow destination) {
+    if (_streamingRecordExtractor != null) {
+      return decode(payload, 0, payload.length, destination);
+    }
     try {
       JsonNode message = JsonUtils.bytesToJsonNode(payload);
       Map<String, Object> from = JsonUtils.jsonNodeToMap(message);
@@ -70,6 +85,15 @@ public class JSONMessageDecoder implements StreamMessageDecoder<byte[]> {
 
   @Override
   public GenericRow decode(byte[] payload, int offset, int length, GenericRow destination) {
-    return decode(Arrays.copyOfRange(payload, offset, offset + length), destination);
+    if (_streamingRecordExtractor == null) {
+      return decode(Arrays.copyOfRange(payload, offset, offset + length), destination);
+    }
+    try (JsonParser parser = JsonUtils.DEFAULT_READER.createParser(payload, offset, length)) {
+      return _streamingRecordExtractor.extract(parser, destination);
+    } catch (Exception e) {
+      LOGGER.error("Caught exception while decoding row, discarding row. Payload is {}",
+          new String(payload, offset, length), e);
+      return null;
+    }
   }
 }
@@ -18,21 +18,30 @@
  */
 package org.apache.pinot.plugin.inputformat.json;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
 import org.apache.pinot.spi.data.readers.BaseRecordExtractor;
 import org.apache.pinot.spi.data.readers.GenericRow;
 import org.apache.pinot.spi.data.readers.RecordExtractorConfig;
+import org.apache.pinot.spi.utils.JsonUtils;
 
 
 /**
  * Extractor for JSON records
  */
 public class JSONRecordExtractor extends BaseRecordExtractor<Map<String, Object>> {
+  private static final ObjectReader VALUE_READER = JsonUtils.DEFAULT_READER.forType(Object.class);
 
   private Set<String> _fields;
   private boolean _extractAll = false;
+  // Index of each field to read, used to track the fields not present in a record when extracting from a parser
+  private Map<String, Integer> _fieldIndexMap = Map.of();
 
   @Override
   public void init(Set<String> fields, @Nullable RecordExtractorConfig recordExtractorConfig) {
@@ -41,6 +50,10 @@ public class JSONRecordExtractor extends BaseRecordExtractor<Map<String, Object>
       _fields = Set.of();
     } else {
       _fields = Set.copyOf(fields);
+      _fieldIndexMap = new HashMap<>();
+      for (String field : _fields) {
+        _fieldIndexMap.put(field, _fieldIndexMap.size());
+      }
     }
   }
 
@@ -67,4 +80,85 @@ public class JSONRecordExtractor extends BaseRecordExtractor<Map<String, Object>
     }
     return to;
   }
+
+  /**
+   * Extracts the fields to read from the JSON object the given parser points to, without materializing the fields that
+   * are not read. The parser should not have been advanced yet. Produces the same values as
+   * {@link #extract(Map, GenericRow)} on the parsed object.
+   */
+  public GenericRow extract(JsonParser parser, GenericRow to)
+      throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw new IllegalStateException("Expect JSON object, got: " + parser.currentToken());
+    }
+    if (_extractAll) {
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String fieldName = parser.currentName();
+        parser.nextToken();
+        to.putValue(fieldName, readValue(parser));
+      }
+    } else {
+      int numFields = _fieldIndexMap.size();
+      boolean[] extracted = new boolean[numFields];
+      int numFieldsExtracted = 0;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String fieldName = parser.currentName();
+        parser.nextToken();
+        Integer fieldIndex = _fieldIndexMap.get(fieldName);
+        if (fieldIndex != null) {
+          to.putValue(fieldName, readValue(parser));
+          if (!extracted[fieldIndex]) {
+            extracted[fieldIndex] = true;
+            numFieldsExtracted++;
+          }
+        } else {
+          parser.skipChildren();
+        }
+      }
+      if (numFieldsExtracted < numFields) {
+        for (Map.Entry<String, Integer> entry : _fieldIndexMap.entrySet()) {
+          if (!extracted[entry.getValue()]) {
+            to.putValue(entry.getKey(), null);
+          }
+        }
+      }
+    }
+    return to;
+  }
+
+  /**
+   * Reads the value the parser points to, and converts it the same way as the values of a parsed JSON object.
+   */
+  @Nullable
+  private Object readValue(JsonParser parser)
+      throws IOException {
+    Object value;
+    switch (parser.currentToken()) {
+      case VALUE_NULL:
+        return null;
+      case VALUE_STRING:
+        value = parser.getText();
+        break;
+      case VALUE_NUMBER_INT:
+        value = parser.getNumberValue();
+        break;
+      case VALUE_NUMBER_FLOAT:
+        value = parser.getDoubleValue();
+        break;
+      case VALUE_TRUE:
+        value = Boolean.TRUE;
+        break;
+      case VALUE_FALSE:
+        value = Boolean.FALSE;
+        break;
+      default:
+        // Nested object or array
+        value = VALUE_READER.readValue(parser);
+        if (value == null) {
+          return null;
+        }
+        break;
+    }
+    return convert(value);
+  }
 }
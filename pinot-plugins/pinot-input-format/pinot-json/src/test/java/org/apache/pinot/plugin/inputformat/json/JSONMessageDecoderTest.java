@@ -23,8 +23,11 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.apache.pinot.spi.data.FieldSpec;
 import org.apache.pinot.spi.data.FieldSpec.DataType;
 import org.apache.pinot.spi.data.Schema;
@@ -34,6 +37,7 @@ import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.fail;
 
 
@@ -74,6 +78,79 @@ public class JSONMessageDecoderTest {
     testJsonDecoder(sourceFields);
   }
 
+  @Test
+  public void testStreamingDecode()
+      throws Exception {
+    List<String> messages = List.of(
+        "{\"str\":\"a\",\"int\":1,\"long\":12345678901,\"bigInt\":123456789012345678901234567890,"
+            + "\"double\":1.5,\"bool\":true,\"null\":null,\"arr\":[1,2.5,\"x\",null],"
+            + "\"obj\":{\"nested\":{\"a\":[1,{\"b\":false}]},\"c\":\"d\"},"
+            + "\"skipped\":{\"deep\":[[1,2],{\"x\":[]}]}}",
+        // Missing fields, and duplicate fields where the last one wins
+        "{\"str\":\"a\",\"str\":\"b\",\"skipped\":[{\"int\":2}],\"obj\":{}}",
+        "{}",
+        "{\"arr\":[],\"double\":-1e10,\"int\":-7}");
+    for (Set<String> fieldsToRead : List.of(Set.of("str", "int", "long", "bigInt", "double", "bool", "null", "arr",
+        "obj", "missing"), Set.<String>of())) {
+      JSONMessageDecoder streamingDecoder = new JSONMessageDecoder();
+      streamingDecoder.init(Map.of(), fieldsToRead, "testTopic");
+      JSONMessageDecoder treeDecoder = new JSONMessageDecoder();
+      treeDecoder.init(Map.of(JSONMessageDecoder.STREAMING_DECODE, "false"), fieldsToRead, "testTopic");
+      for (String message : messages) {
+        byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+        GenericRow expectedRow = treeDecoder.decode(payload, new GenericRow());
+        assertNotNull(expectedRow);
+        assertRowEquals(streamingDecoder.decode(payload, new GenericRow()), expectedRow);
+
+        // Decode from the middle of a buffer
+        byte[] buffer = new byte[payload.length + 10];
+        System.arraycopy(payload, 0, buffer, 5, payload.length);
+        assertRowEquals(streamingDecoder.decode(buffer, 5, payload.length, new GenericRow()), expectedRow);
+      }
+
+      // Invalid payloads are discarded
+      for (String message : List.of("", "[1,2]", "{\"str\":", "not json")) {
+        byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+        assertNull(treeDecoder.decode(payload, new GenericRow()));
+        assertNull(streamingDecoder.decode(payload, new GenericRow()));
+      }
+    }
+  }
+
+  private static void assertRowEquals(GenericRow actual, GenericRow expected) {
+    assertNotNull(actual);
+    assertEquals(actual.getFieldToValueMap().keySet(), expected.getFieldToValueMap().keySet());
+    for (Map.Entry<String, Object> entry : expected.getFieldToValueMap().entrySet()) {
+      assertValueEquals(actual.getValue(entry.getKey()), entry.getValue());
+    }
+  }
+
+  private static void assertValueEquals(Object actual, Object expected) {
+    if (expected == null) {
+      assertNull(actual);
+      return;
+    }
+    assertNotNull(actual);
+    assertEquals(actual.getClass(), expected.getClass());
+    if (expected instanceof Object[]) {
+      Object[] actualValues = (Object[]) actual;
+      Object[] expectedValues = (Object[]) expected;
+      assertEquals(actualValues.length, expectedValues.length);
+      for (int i = 0; i < expectedValues.length; i++) {
+        assertValueEquals(actualValues[i], expectedValues[i]);
+      }
+    } else if (expected instanceof Map) {
+      Map<?, ?> actualMap = (Map<?, ?>) actual;
+      Map<?, ?> expectedMap = (Map<?, ?>) expected;
+      assertEquals(actualMap.keySet(), expectedMap.keySet());
+      for (Map.Entry<?, ?> entry : expectedMap.entrySet()) {
+        assertValueEquals(actualMap.get(entry.getKey()), entry.getValue());
+      }
+    } else {
+      assertEquals(actual, expected);
+    }
+  }
+
   private Schema loadSchema(String resourcePath)
       throws Exception {
     URL resource = getClass().getClassLoader().getResource(resourcePath);
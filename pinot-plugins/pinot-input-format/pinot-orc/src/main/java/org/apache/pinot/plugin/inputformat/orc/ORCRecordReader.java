@@ -43,8 +43,9 @@ import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
 import org.apache.orc.OrcFile;
 import org.apache.orc.Reader;
 import org.apache.orc.TypeDescription;
+import org.apache.pinot.spi.data.readers.ColumnBatch;
+import org.apache.pinot.spi.data.readers.ColumnarRecordReader;
 import org.apache.pinot.spi.data.readers.GenericRow;
-import org.apache.pinot.spi.data.readers.RecordReader;
 import org.apache.pinot.spi.data.readers.RecordReaderConfig;
 import org.apache.pinot.spi.data.readers.RecordReaderUtils;
 
@@ -65,8 +66,9 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  *   <li>LIST -> Object[] of the supported types</li> TODO: -> List?
  *   <li>MAP -> Map of the supported types</li>
  * </ul>
+ * <p>Records can also be read in column batches, where the values are copied from the ORC column vectors directly.
  */
-public class ORCRecordReader implements RecordReader {
+public class ORCRecordReader implements ColumnarRecordReader {
   private static final String EXTENSION = "orc";
 
   private List<String> _orcFields;
@@ -199,6 +201,48 @@ public class ORCRecordReader implements RecordReader {
     return reuse;
   }
 
+  @Override
+  public boolean isColumnarReadSupported() {
+    return true;
+  }
+
+  @Override
+  public void nextBatch(ColumnBatch batch)
+      throws IOException {
+    int numFields = _orcFields.size();
+    Object[][] valuesArrays = new Object[numFields][];
+    for (int i = 0; i < numFields; i++) {
+      if (_includeOrcFields[i]) {
+        valuesArrays[i] = batch.getOrCreateValues(_orcFields.get(i));
+      }
+    }
+
+    int capacity = batch.getCapacity();
+    int numRows = 0;
+    while (_hasNext && numRows < capacity) {
+      int numRowsToRead = Math.min(capacity - numRows, _rowBatch.size - _nextRowId);
+      for (int i = 0; i < numFields; i++) {
+        Object[] values = valuesArrays[i];
+        if (values == null) {
+          continue;
+        }
+        String field = _orcFields.get(i);
+        TypeDescription fieldType = _orcFieldTypes.get(i);
+        ColumnVector columnVector = _rowBatch.cols[i];
+        for (int j = 0; j < numRowsToRead; j++) {
+          values[numRows + j] = extractValue(field, columnVector, fieldType, _nextRowId + j);
+        }
+      }
+      numRows += numRowsToRead;
+      _nextRowId += numRowsToRead;
+      if (_nextRowId == _rowBatch.size) {
+        _hasNext = _orcRecordReader.nextBatch(_rowBatch);
+        _nextRowId = 0;
+      }
+    }
+    batch.setNumRows(numRows);
+  }
+
   /**
    * Extracts the values for a given column vector.
    *
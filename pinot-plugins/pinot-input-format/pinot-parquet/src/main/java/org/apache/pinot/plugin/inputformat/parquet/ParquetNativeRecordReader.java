@@ -18,13 +18,20 @@
  */
 package org.apache.pinot.plugin.inputformat.parquet;
 
+import com.google.common.base.Preconditions;
 import java.io.File;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import javax.annotation.Nullable;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.parquet.ParquetReadOptions;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.ColumnReader;
+import org.apache.parquet.column.impl.ColumnReadStoreImpl;
 import org.apache.parquet.column.page.PageReadStore;
 import org.apache.parquet.example.data.Group;
 import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
@@ -33,17 +40,24 @@ import org.apache.parquet.hadoop.ParquetFileReader;
 import org.apache.parquet.hadoop.util.HadoopInputFile;
 import org.apache.parquet.io.ColumnIOFactory;
 import org.apache.parquet.io.MessageColumnIO;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
 import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.apache.pinot.spi.data.readers.ColumnBatch;
+import org.apache.pinot.spi.data.readers.ColumnarRecordReader;
 import org.apache.pinot.spi.data.readers.GenericRow;
-import org.apache.pinot.spi.data.readers.RecordReader;
 import org.apache.pinot.spi.data.readers.RecordReaderConfig;
 import org.apache.pinot.spi.data.readers.RecordReaderUtils;
 
 
 /**
  * Record reader for Native Parquet file.
+ * <p>For flat schema (non-repeated primitive fields only), records can also be read in column batches, where the
+ * values are read from the Parquet column readers directly without assembling the records.
  */
-public class ParquetNativeRecordReader implements RecordReader {
+public class ParquetNativeRecordReader implements ColumnarRecordReader {
   private static final String EXTENSION = "parquet";
 
   private Path _dataFilePath;
@@ -57,6 +71,10 @@ public class ParquetNativeRecordReader implements RecordReader {
   private int _currentPageIdx;
   private Configuration _hadoopConf;
   private ParquetReadOptions _parquetReadOptions;
+  // Fields to read in column batches, or null if the schema is not flat
+  private List<String> _columnarFields;
+  // Column readers of the current row group for the fields to read in column batches (null for missing fields)
+  private ColumnReader[] _columnReaders;
 
   @Override
   public void init(File dataFile, @Nullable Set<String> fieldsToRead, @Nullable RecordReaderConfig recordReaderConfig)
@@ -73,19 +91,43 @@ public class ParquetNativeRecordReader implements RecordReader {
         ParquetFileReader.open(HadoopInputFile.fromPath(_dataFilePath, _hadoopConf), _parquetReadOptions);
     _schema = _parquetFileReader.getFooter().getFileMetaData().getSchema();
     _columnIO = new ColumnIOFactory().getColumnIO(_schema);
+    _columnarFields = getColumnarFields(_schema, fieldsToRead);
     init();
   }
 
+  /**
+   * Returns the fields to read in column batches, or {@code null} if any field to read is not a non-repeated primitive
+   * field. Fields that do not exist in the schema are read as {@code null}, same as the record extractor.
+   */
+  @Nullable
+  private static List<String> getColumnarFields(MessageType schema, @Nullable Set<String> fieldsToRead) {
+    List<String> fields = new ArrayList<>();
+    if (fieldsToRead == null || fieldsToRead.isEmpty()) {
+      for (Type field : schema.getFields()) {
+        fields.add(field.getName());
+      }
+    } else {
+      fields.addAll(fieldsToRead);
+    }
+    for (String field : fields) {
+      if (schema.containsField(field)) {
+        Type fieldType = schema.getType(field);
+        if (!fieldType.isPrimitive() || fieldType.isRepetition(Type.Repetition.REPEATED)) {
+          return null;
+        }
+      }
+    }
+    return fields;
+  }
+
   private void init()
       throws IOException {
     _pageReadStore = _parquetFileReader.readNextRowGroup();
-    // If the parquet file is initially empty, then we cannot set up the _pageRecordReader.
-    // It's expected a user would always call init() -> hasNext() -> next().
-    // Without this, an empty parquet file will fail to init.
-    if (_pageReadStore != null) {
-      _parquetRecordReader = _columnIO.getRecordReader(_pageReadStore, new GroupRecordConverter(_schema));
-      _currentPageIdx = 0;
-    }
+    // NOTE: The record reader and the column readers are created lazily for each row group because they consume the
+    //       pages of the row group, and only one of them should be used.
+    _parquetRecordReader = null;
+    _columnReaders = null;
+    _currentPageIdx = 0;
   }
 
   @Override
@@ -99,12 +141,7 @@ public class ParquetNativeRecordReader implements RecordReader {
       return true;
     }
     try {
-      _pageReadStore = _parquetFileReader.readNextRowGroup();
-      _currentPageIdx = 0;
-      if (_pageReadStore == null) {
-        return false;
-      }
-      _parquetRecordReader = _columnIO.getRecordReader(_pageReadStore, new GroupRecordConverter(_schema));
+      init();
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
@@ -114,12 +151,127 @@ public class ParquetNativeRecordReader implements RecordReader {
   @Override
   public GenericRow next(GenericRow reuse)
       throws IOException {
+    if (_parquetRecordReader == null) {
+      _parquetRecordReader = _columnIO.getRecordReader(_pageReadStore, new GroupRecordConverter(_schema));
+    }
     _nextRecord = _parquetRecordReader.read();
     _recordExtractor.extract(_nextRecord, reuse);
     _currentPageIdx++;
     return reuse;
   }
 
+  @Override
+  public boolean isColumnarReadSupported() {
+    return _columnarFields != null;
+  }
+
+  @Override
+  public void nextBatch(ColumnBatch batch)
+      throws IOException {
+    Preconditions.checkState(_columnarFields != null, "Columnar read is not supported for schema: %s", _schema);
+    int capacity = batch.getCapacity();
+    int numRows = 0;
+    while (numRows < capacity && hasNext()) {
+      if (_columnReaders == null) {
+        _columnReaders = createColumnReaders();
+      }
+      int numRowsToRead = (int) Math.min(capacity - numRows, _pageReadStore.getRowCount() - _currentPageIdx);
+      int numFields = _columnarFields.size();
+      for (int i = 0; i < numFields; i++) {
+        ColumnReader columnReader = _columnReaders[i];
+        if (columnReader != null) {
+          readValues(columnReader, batch.getOrCreateValues(_columnarFields.get(i)), numRows, numRowsToRead);
+        }
+      }
+      numRows += numRowsToRead;
+      _currentPageIdx += numRowsToRead;
+    }
+    batch.setNumRows(numRows);
+  }
+
+  private ColumnReader[] createColumnReaders() {
+    String createdBy = _parquetFileReader.getFooter().getFileMetaData().getCreatedBy();
+    ColumnReadStoreImpl columnReadStore =
+        new ColumnReadStoreImpl(_pageReadStore, new GroupRecordConverter(_schema).getRootConverter(), _schema,
+            createdBy);
+    int numFields = _columnarFields.size();
+    ColumnReader[] columnReaders = new ColumnReader[numFields];
+    for (int i = 0; i < numFields; i++) {
+      String field = _columnarFields.get(i);
+      if (_schema.containsField(field)) {
+        columnReaders[i] = columnReadStore.getColumnReader(_schema.getColumnDescription(new String[]{field}));
+      }
+    }
+    return columnReaders;
+  }
+
+  /**
+   * Reads the values of a non-repeated primitive field into the given value array. The values are converted the same
+   * way as {@link ParquetNativeRecordExtractor}.
+   */
+  private static void readValues(ColumnReader columnReader, Object[] values, int offset, int numValues) {
+    ColumnDescriptor descriptor = columnReader.getDescriptor();
+    int maxDefinitionLevel = descriptor.getMaxDefinitionLevel();
+    PrimitiveType primitiveType = descriptor.getPrimitiveType();
+    LogicalTypeAnnotation logicalTypeAnnotation = primitiveType.getLogicalTypeAnnotation();
+    boolean isDecimal = logicalTypeAnnotation instanceof LogicalTypeAnnotation.DecimalLogicalTypeAnnotation;
+    int precision = 0;
+    int scale = 0;
+    if (isDecimal) {
+      LogicalTypeAnnotation.DecimalLogicalTypeAnnotation decimalLogicalTypeAnnotation =
+          (LogicalTypeAnnotation.DecimalLogicalTypeAnnotation) logicalTypeAnnotation;
+      precision = decimalLogicalTypeAnnotation.getPrecision();
+      scale = decimalLogicalTypeAnnotation.getScale();
+    }
+    boolean isString = logicalTypeAnnotation instanceof LogicalTypeAnnotation.StringLogicalTypeAnnotation
+        || logicalTypeAnnotation instanceof LogicalTypeAnnotation.EnumLogicalTypeAnnotation;
+    PrimitiveType.PrimitiveTypeName primitiveTypeName = primitiveType.getPrimitiveTypeName();
+    for (int i = 0; i < numValues; i++) {
+      Object value = null;
+      if (columnReader.getCurrentDefinitionLevel() == maxDefinitionLevel) {
+        switch (primitiveTypeName) {
+          case INT32:
+            int intValue = columnReader.getInteger();
+            value = isDecimal ? BigDecimal.valueOf(intValue, scale) : intValue;
+            break;
+          case INT64:
+            long longValue = columnReader.getLong();
+            value = isDecimal ? BigDecimal.valueOf(longValue, scale) : longValue;
+            break;
+          case FLOAT:
+            value = columnReader.getFloat();
+            break;
+          case DOUBLE:
+            value = columnReader.getDouble();
+            break;
+          case BOOLEAN:
+            value = Boolean.toString(columnReader.getBoolean());
+            break;
+          case INT96:
+            value = ParquetNativeRecordExtractor.convertInt96ToLong(columnReader.getBinary().getBytes());
+            break;
+          case BINARY:
+          case FIXED_LEN_BYTE_ARRAY:
+            Binary binary = columnReader.getBinary();
+            if (isDecimal) {
+              value = ParquetNativeRecordExtractor.binaryToDecimal(binary, precision, scale);
+            } else if (isString) {
+              value = binary.toStringUsingUTF8();
+            } else {
+              value = binary.getBytes();
+            }
+            break;
+          default:
+            throw new IllegalArgumentException(
+                String.format("Unsupported field type: %s, primitive type: %s, logical type: %s", primitiveType,
+                    primitiveTypeName, logicalTypeAnnotation));
+        }
+      }
+      values[offset + i] = value;
+      columnReader.consume();
+    }
+  }
+
   @Override
   public void rewind()
       throws IOException {
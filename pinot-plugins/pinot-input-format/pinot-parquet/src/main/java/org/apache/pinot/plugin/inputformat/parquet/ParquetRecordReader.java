@@ -23,6 +23,8 @@ import java.io.IOException;
 import java.util.Set;
 import javax.annotation.Nullable;
 import org.apache.hadoop.fs.Path;
+import org.apache.pinot.spi.data.readers.ColumnBatch;
+import org.apache.pinot.spi.data.readers.ColumnarRecordReader;
 import org.apache.pinot.spi.data.readers.GenericRow;
 import org.apache.pinot.spi.data.readers.RecordReader;
 import org.apache.pinot.spi.data.readers.RecordReaderConfig;
@@ -32,8 +34,9 @@ import org.apache.pinot.spi.data.readers.RecordReaderUtils;
 /**
  * Pinot Record reader for Parquet file.<p>
  * It has two implementations: {@link ParquetAvroRecordReader} (Default) and {@link ParquetNativeRecordReader}.
+ * Columnar read is supported when the internal record reader supports it.
  */
-public class ParquetRecordReader implements RecordReader {
+public class ParquetRecordReader implements ColumnarRecordReader {
   private static final String EXTENSION = "parquet";
 
   private RecordReader _internalParquetRecordReader;
@@ -72,6 +75,18 @@ public class ParquetRecordReader implements RecordReader {
     return _internalParquetRecordReader.next(reuse);
   }
 
+  @Override
+  public boolean isColumnarReadSupported() {
+    return _internalParquetRecordReader instanceof ColumnarRecordReader
+        && ((ColumnarRecordReader) _internalParquetRecordReader).isColumnarReadSupported();
+  }
+
+  @Override
+  public void nextBatch(ColumnBatch batch)
+      throws IOException {
+    ((ColumnarRecordReader) _internalParquetRecordReader).nextBatch(batch);
+  }
+
   @Override
   public void rewind()
       throws IOException {
@@ -103,6 +103,37 @@ public class PinotHintOptions {
      */
     public static final String JOIN_OVERFLOW_MODE = "join_overflow_mode";
 
+    /**
+     * Number of right table rows kept in memory by the hash join before both sides of the join are spilled to local
+     * disk and joined partition by partition (grace hash join). 0 disables spilling.
+     */
+    public static final String SPILL_THRESHOLD = "spill_threshold";
+
+    /**
+     * Number of partitions both sides of the join are split into when the hash join spills (default 16). More
+     * partitions reduce the rows of the right table loaded in memory at a time, at the cost of more spill files.
+     */
+    public static final String NUM_SPILL_PARTITIONS = "num_spill_partitions";
+
+    /**
+     * Enables runtime filter for INNER join with a single equi join key when the left side is a leaf stage scan. The
+     * right side keys are shipped to the left leaf stage (as a pipeline breaker) to filter the left table rows before
+     * they are sent to the join. This is useful when the right side is much smaller than the left side.
+     */
+    public static final String RUNTIME_FILTER = "runtime_filter";
+
+    /**
+     * Max number of distinct right side keys shipped as an IN filter by the runtime filter (default 1000), above which
+     * a range filter on the min/max keys is used instead.
+     */
+    public static final String RUNTIME_FILTER_MAX_IN_VALUES = "runtime_filter_max_in_values";
+
+    /**
+     * Internal hint set on the SEMI join added for the runtime filter. Such SEMI join can be evaluated with a lossy
+     * filter (e.g. min/max range) because the actual join is still performed by the INNER join.
+     */
+    public static final String IS_RUNTIME_FILTER = "is_runtime_filter";
+
     /**
      * Indicates that the join operator(s) within a certain selection scope are colocated
      */
@@ -143,6 +174,11 @@ public class PinotHintOptions {
       String hint = PinotHintStrategyTable.getHintOption(join.getHints(), JOIN_HINT_OPTIONS, IS_COLOCATED_BY_JOIN_KEYS);
       return hint != null ? Boolean.parseBoolean(hint) : null;
     }
+
+    public static boolean useRuntimeFilter(Join join) {
+      return Boolean.parseBoolean(PinotHintStrategyTable.getHintOption(join.getHints(), JOIN_HINT_OPTIONS,
+          RUNTIME_FILTER));
+    }
   }
 
   /**
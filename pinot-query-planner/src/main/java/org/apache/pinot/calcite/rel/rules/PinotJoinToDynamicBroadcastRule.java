@@ -18,16 +18,27 @@
  */
 package org.apache.pinot.calcite.rel.rules;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.apache.calcite.plan.RelOptRule;
 import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptUtil;
 import org.apache.calcite.plan.hep.HepRelVertex;
 import org.apache.calcite.rel.RelDistribution;
 import org.apache.calcite.rel.RelDistributions;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.core.Exchange;
+import org.apache.calcite.rel.core.Filter;
 import org.apache.calcite.rel.core.Join;
 import org.apache.calcite.rel.core.JoinInfo;
 import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.calcite.rel.core.Project;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.hint.RelHint;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.tools.RelBuilder;
 import org.apache.calcite.tools.RelBuilderFactory;
 import org.apache.pinot.calcite.rel.hint.PinotHintOptions;
 import org.apache.pinot.calcite.rel.logical.PinotLogicalExchange;
@@ -104,6 +115,29 @@ import org.apache.pinot.calcite.rel.logical.PinotRelExchangeType;
  *   </li>
  * </ul>
  *
+ * <p> For INNER JOIN with the {@code runtime_filter} join hint, this rule adds a SEMI JOIN (semi-join reduction) on the
+ * left side, which is converted into dynamic broadcast the same way, and keeps the INNER JOIN on top of it:
+ *
+ *                 ...                                      ...
+ *                  |                                        |
+ *            [ Inner Join ]                          [ Inner Join ]
+ *            /            \                          /            \
+ *       [xChange]      [xChange]               [xChange]        [xChange]
+ *          /                \                     /                  \
+ *    [Proj/Filter]     [Proj/Filter]        [ Semi Join ]         [Proj/Filter]
+ *         |                  |               /         \               |
+ *    [Table Scan ]     [Table Scan ]  [Proj/Filter]  [Dyn. Broadcast]  [Table Scan ]
+ *                                          |              |
+ *                                     [Table Scan ]  [Project keys]
+ *                                                         |
+ *                                                    [Proj/Filter]
+ *                                                         |
+ *                                                    [Table Scan ]
+ *
+ * <p> Only the join key of the right side is shipped to the left leaf stage, and because the INNER JOIN still performs
+ * the actual join, the runtime can apply a compact (lossy) filter, e.g. a min/max range instead of a large IN-list. The
+ * right side is evaluated twice, so this should only be used when the right side is much smaller than the left side.
+ *
  * TODO #1: Only support SEMI-JOIN, once JOIN operator is supported by leaf-stage we should allow it to match
  *   @see <a href="https://github.com/apache/pinot/pull/10565/>
  * TODO #2: Only convert to dynamic broadcast from right-to-left, allow option to specify dynamic broadcast direction.
@@ -121,6 +155,9 @@ public class PinotJoinToDynamicBroadcastRule extends RelOptRule {
   @Override
   public boolean matches(RelOptRuleCall call) {
     Join join = call.rel(0);
+    if (join.getJoinType() == JoinRelType.INNER) {
+      return matchesRuntimeFilter(join);
+    }
 
     // Do not apply this rule if join strategy is explicitly set to something other than dynamic broadcast
     String joinStrategy = PinotHintOptions.JoinHintOptions.getJoinStrategyHint(join);
@@ -143,9 +180,43 @@ public class PinotJoinToDynamicBroadcastRule extends RelOptRule {
         left.getInput(0));
   }
 
+  private static boolean matchesRuntimeFilter(Join join) {
+    if (!PinotHintOptions.JoinHintOptions.useRuntimeFilter(join)) {
+      return false;
+    }
+    String joinStrategy = PinotHintOptions.JoinHintOptions.getJoinStrategyHint(join);
+    if (joinStrategy != null && !joinStrategy.equals(PinotHintOptions.JoinHintOptions.HASH_JOIN_STRATEGY)) {
+      return false;
+    }
+    JoinInfo joinInfo = join.analyzeCondition();
+    if (!joinInfo.nonEquiConditions.isEmpty() || joinInfo.leftKeys.size() != 1) {
+      return false;
+    }
+    // Apply this rule only if the left side is a leaf stage scan. This also prevents the rule from matching the INNER
+    // join again after the SEMI join is added.
+    RelNode left = ((HepRelVertex) join.getLeft()).getCurrentRel();
+    RelNode right = ((HepRelVertex) join.getRight()).getCurrentRel();
+    return left instanceof Exchange && right instanceof Exchange && isLeafScan(left.getInput(0));
+  }
+
+  private static boolean isLeafScan(RelNode relNode) {
+    relNode = PinotRuleUtils.unboxRel(relNode);
+    if (relNode instanceof TableScan) {
+      return true;
+    } else if (relNode instanceof Project || relNode instanceof Filter) {
+      return isLeafScan(relNode.getInput(0));
+    } else {
+      return false;
+    }
+  }
+
   @Override
   public void onMatch(RelOptRuleCall call) {
     Join join = call.rel(0);
+    if (join.getJoinType() == JoinRelType.INNER) {
+      onMatchRuntimeFilter(call, join);
+      return;
+    }
     Exchange left = (Exchange) ((HepRelVertex) join.getLeft()).getCurrentRel();
     Exchange right = (Exchange) ((HepRelVertex) join.getRight()).getCurrentRel();
 
@@ -161,4 +232,54 @@ public class PinotJoinToDynamicBroadcastRule extends RelOptRule {
     call.transformTo(join.copy(join.getTraitSet(), join.getCondition(), left.getInput(), dynamicBroadcastExchange,
         join.getJoinType(), join.isSemiJoinDone()));
   }
+
+  private static void onMatchRuntimeFilter(RelOptRuleCall call, Join join) {
+    Exchange left = (Exchange) ((HepRelVertex) join.getLeft()).getCurrentRel();
+    Exchange right = (Exchange) ((HepRelVertex) join.getRight()).getCurrentRel();
+    JoinInfo joinInfo = join.analyzeCondition();
+    RelNode leftInput = left.getInput();
+
+    // Only ship the join key of the right side to the left leaf stage
+    RelBuilder relBuilder = call.builder();
+    relBuilder.push(right.getInput());
+    relBuilder.project(relBuilder.field(joinInfo.rightKeys.get(0)));
+    RelNode rightKeys = relBuilder.build();
+    boolean colocatedByJoinKeys = Boolean.TRUE.equals(PinotHintOptions.JoinHintOptions.isColocatedByJoinKeys(join));
+    RelDistribution relDistribution =
+        colocatedByJoinKeys ? RelDistributions.hash(List.of(0)) : RelDistributions.BROADCAST_DISTRIBUTED;
+    PinotLogicalExchange dynamicBroadcastExchange =
+        PinotLogicalExchange.create(rightKeys, relDistribution, PinotRelExchangeType.PIPELINE_BREAKER);
+
+    RexNode semiJoinCondition =
+        RelOptUtil.createEquiJoinCondition(leftInput, joinInfo.leftKeys, dynamicBroadcastExchange, List.of(0),
+            join.getCluster().getRexBuilder());
+    Join semiJoin = join.copy(join.getTraitSet(), semiJoinCondition, leftInput, dynamicBroadcastExchange,
+        JoinRelType.SEMI, false);
+    semiJoin = (Join) semiJoin.withHints(getRuntimeFilterHints(join.getHints()));
+
+    RelNode newLeft = left.copy(left.getTraitSet(), List.of(semiJoin));
+    call.transformTo(
+        join.copy(join.getTraitSet(), join.getCondition(), newLeft, right, join.getJoinType(), join.isSemiJoinDone()));
+  }
+
+  /**
+   * Returns the hints for the SEMI join added for the runtime filter, where the join options are replaced to mark the
+   * join as runtime filter.
+   */
+  private static List<RelHint> getRuntimeFilterHints(List<RelHint> hints) {
+    List<RelHint> runtimeFilterHints = new ArrayList<>(hints.size() + 1);
+    Map<String, String> joinOptions = new HashMap<>();
+    for (RelHint hint : hints) {
+      if (hint.hintName.equals(PinotHintOptions.JOIN_HINT_OPTIONS)) {
+        joinOptions.putAll(hint.kvOptions);
+      } else {
+        runtimeFilterHints.add(hint);
+      }
+    }
+    joinOptions.remove(PinotHintOptions.JoinHintOptions.RUNTIME_FILTER);
+    joinOptions.remove(PinotHintOptions.JoinHintOptions.JOIN_STRATEGY);
+    joinOptions.put(PinotHintOptions.JoinHintOptions.IS_RUNTIME_FILTER, "true");
+    runtimeFilterHints.add(RelHint.builder(PinotHintOptions.JOIN_HINT_OPTIONS).hintOptions(joinOptions).build());
+    return runtimeFilterHints;
+  }
 }
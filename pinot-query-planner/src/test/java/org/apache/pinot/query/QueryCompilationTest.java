@@ -200,6 +200,43 @@ public class QueryCompilationTest extends QueryEnvironmentTestBase {
     //@formatter:on
   }
 
+  @Test
+  public void testRuntimeFilterJoin() {
+    // INNER join with the runtime_filter hint gets a SEMI join on the left side with the right join keys broadcast as
+    // pipeline breaker, and keeps the INNER join on top of it
+    String query = "EXPLAIN PLAN FOR\n"
+        + "SELECT /*+ joinOptions(runtime_filter='true') */ \n"
+        + "a.col2, b.col3 FROM a\n"
+        + "JOIN b\n"
+        + "ON a.col1 = b.col1\n"
+        + "WHERE b.col3 > 0;\n";
+
+    String explain = _queryEnvironment.explainQuery(query, RANDOM_REQUEST_ID_GEN.nextLong());
+    int innerJoinIndex = explain.indexOf("joinType=[inner]");
+    int semiJoinIndex = explain.indexOf("joinType=[semi]");
+    assertTrue(innerJoinIndex >= 0, explain);
+    assertTrue(semiJoinIndex > innerJoinIndex, explain);
+    assertTrue(explain.indexOf("relExchangeType=[PIPELINE_BREAKER]", semiJoinIndex) > semiJoinIndex, explain);
+  }
+
+  @Test
+  public void testRuntimeFilterJoinNotApplied() {
+    // Without the hint, with a non dynamic broadcast join strategy, or with multiple join keys, the INNER join is kept
+    // as is
+    String[] queries = new String[]{
+        "EXPLAIN PLAN FOR SELECT a.col2, b.col3 FROM a JOIN b ON a.col1 = b.col1 WHERE b.col3 > 0",
+        "EXPLAIN PLAN FOR SELECT /*+ joinOptions(runtime_filter='true', join_strategy='lookup') */ a.col2, b.col3 "
+            + "FROM a JOIN b ON a.col1 = b.col1 WHERE b.col3 > 0",
+        "EXPLAIN PLAN FOR SELECT /*+ joinOptions(runtime_filter='true') */ a.col2, b.col3 FROM a JOIN b "
+            + "ON a.col1 = b.col1 AND a.col2 = b.col2 WHERE b.col3 > 0"
+    };
+    for (String query : queries) {
+      String explain = _queryEnvironment.explainQuery(query, RANDOM_REQUEST_ID_GEN.nextLong());
+      assertTrue(explain.contains("joinType=[inner]"), explain);
+      assertFalse(explain.contains("joinType=[semi]"), explain);
+    }
+  }
+
   @Ignore("This test requires PRUNE_RULES before BASIC_RULES to pass, however enabling that"
       + "introduces changes that ~50 hardcoded plans in ResourceBasedQueriesTest would change."
       + "It is also needed to investigate why there would be redundant Project and Exchange"
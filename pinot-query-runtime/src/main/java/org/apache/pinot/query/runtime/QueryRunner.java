@@ -136,6 +136,10 @@ public class QueryRunner {
   @Nullable
   private JoinOverFlowMode _joinOverflowMode;
   @Nullable
+  private Integer _joinSpillThreshold;
+  @Nullable
+  private Integer _sortSpillThreshold;
+  @Nullable
   private Integer _maxRowsInWindow;
   @Nullable
   private WindowOverFlowMode _windowOverflowMode;
@@ -192,6 +196,14 @@ public class QueryRunner {
         serverConf.getProperty(CommonConstants.MultiStageQueryRunner.KEY_OF_JOIN_OVERFLOW_MODE);
     _joinOverflowMode = joinOverflowModeStr != null ? JoinOverFlowMode.valueOf(joinOverflowModeStr) : null;
 
+    String joinSpillThresholdStr =
+        serverConf.getProperty(CommonConstants.MultiStageQueryRunner.KEY_OF_JOIN_SPILL_THRESHOLD);
+    _joinSpillThreshold = joinSpillThresholdStr != null ? Integer.parseInt(joinSpillThresholdStr) : null;
+
+    String sortSpillThresholdStr =
+        serverConf.getProperty(CommonConstants.MultiStageQueryRunner.KEY_OF_SORT_SPILL_THRESHOLD);
+    _sortSpillThreshold = sortSpillThresholdStr != null ? Integer.parseInt(sortSpillThresholdStr) : null;
+
     String maxRowsInWindowStr = serverConf.getProperty(CommonConstants.MultiStageQueryRunner.KEY_OF_MAX_ROWS_IN_WINDOW);
     _maxRowsInWindow = maxRowsInWindowStr != null ? Integer.parseInt(maxRowsInWindowStr) : null;
 
@@ -503,6 +515,22 @@ public class QueryRunner {
       opChainMetadata.put(QueryOptionKey.JOIN_OVERFLOW_MODE, joinOverflowMode.name());
     }
 
+    Integer joinSpillThreshold = QueryOptionsUtils.getJoinSpillThreshold(opChainMetadata);
+    if (joinSpillThreshold == null) {
+      joinSpillThreshold = _joinSpillThreshold;
+    }
+    if (joinSpillThreshold != null) {
+      opChainMetadata.put(QueryOptionKey.JOIN_SPILL_THRESHOLD, Integer.toString(joinSpillThreshold));
+    }
+
+    Integer sortSpillThreshold = QueryOptionsUtils.getSortSpillThreshold(opChainMetadata);
+    if (sortSpillThreshold == null) {
+      sortSpillThreshold = _sortSpillThreshold;
+    }
+    if (sortSpillThreshold != null) {
+      opChainMetadata.put(QueryOptionKey.SORT_SPILL_THRESHOLD, Integer.toString(sortSpillThreshold));
+    }
+
     Integer maxRowsInWindow = QueryOptionsUtils.getMaxRowsInWindow(opChainMetadata);
     if (maxRowsInWindow == null) {
       maxRowsInWindow = _maxRowsInWindow;
@@ -48,9 +48,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * The {@code BaseJoinOperator} implements the basic join algorithm.
- * <p>This algorithm assumes that the right table has to fit in memory since we are not supporting any spilling. It
- * reads the complete right table and materialize the data in memory. Then for each of the left table row, it looks up
- * for the corresponding row(s) from the right table, applies the non-equi evaluators and creates a joint row.
+ * <p>It reads the complete right table and materialize the data in memory. Then for each of the left table row, it
+ * looks up for the corresponding row(s) from the right table, applies the non-equi evaluators and creates a joint row.
+ * Sub-classes can spill the right table to disk when it does not fit in memory (see {@link #isSpillEnabled()}).
  * <p>For each of the data block received from the left table, it generates a joint data block. The output is in the
  * format of [left_row, right_row].
  */
@@ -186,8 +186,9 @@ public abstract class BaseJoinOperator extends MultiStageOperator {
     MseBlock rightBlock = _rightInput.nextBlock();
     while (rightBlock.isData()) {
       List<Object[]> rows = ((MseBlock.Data) rightBlock).asRowHeap().getRows();
-      // Row based overflow check.
-      if (rows.size() + numRows > _maxRowsInJoin) {
+      // Row based overflow check. When spilling is enabled, the limit is checked by the sub-class on the part of the
+      // right table loaded in memory.
+      if (!isSpillEnabled() && rows.size() + numRows > _maxRowsInJoin) {
         if (_joinOverflowMode == JoinOverFlowMode.THROW) {
           throwForJoinRowLimitExceeded(
               "Cannot build in memory hash table for join operator, reached number of rows limit: " + _maxRowsInJoin);
@@ -219,6 +220,17 @@ public abstract class BaseJoinOperator extends MultiStageOperator {
     LOGGER.trace("Finished building right table for join operator");
   }
 
+  /**
+   * Returns {@code true} when the right table can be spilled to disk, in which case the whole right table is not
+   * required to fit in memory and the {@link #_maxRowsInJoin} limit is not checked while reading the right input.
+   * Sub-classes enabling spilling must spill before the rows kept in memory exceed {@link #_maxRowsInJoin}, and check
+   * the limit on the part of the right table loaded back in memory. The right input is then always fully consumed, so
+   * it is never early terminated in {@link JoinOverFlowMode#BREAK} mode.
+   */
+  protected boolean isSpillEnabled() {
+    return false;
+  }
+
   protected abstract void addRowsToRightTable(List<Object[]> rows);
 
   protected abstract void finishBuildingRightTable();
@@ -367,7 +379,15 @@ public abstract class BaseJoinOperator extends MultiStageOperator {
     /**
      * How long (CPU time) has been spent on building the hash table.
      */
-    TIME_BUILDING_HASH_TABLE_MS(StatMap.Type.LONG);
+    TIME_BUILDING_HASH_TABLE_MS(StatMap.Type.LONG),
+    /**
+     * Number of bytes spilled to disk when the right table does not fit in memory.
+     */
+    SPILLED_BYTES(StatMap.Type.LONG),
+    /**
+     * Number of rows (from both sides of the join) spilled to disk when the right table does not fit in memory.
+     */
+    SPILLED_ROWS(StatMap.Type.LONG);
     //@formatter:on
 
     private final StatMap.Type _type;
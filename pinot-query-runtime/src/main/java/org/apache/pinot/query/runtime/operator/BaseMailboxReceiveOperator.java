@@ -255,7 +255,15 @@ public abstract class BaseMailboxReceiveOperator extends MultiStageOperator {
     /**
      * How long (in CPU time) it took to wait for the messages to be offered to downstream operator.
      */
-    UPSTREAM_WAIT_MS(StatMap.Type.LONG);
+    UPSTREAM_WAIT_MS(StatMap.Type.LONG),
+    /**
+     * Number of bytes spilled to disk by the sorted receive operator when the received rows do not fit in memory.
+     */
+    SPILLED_BYTES(StatMap.Type.LONG),
+    /**
+     * Number of rows spilled to disk by the sorted receive operator when the received rows do not fit in memory.
+     */
+    SPILLED_ROWS(StatMap.Type.LONG);
     //@formatter:on
 
     private final StatMap.Type _type;
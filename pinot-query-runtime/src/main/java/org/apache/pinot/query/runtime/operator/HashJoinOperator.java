@@ -19,6 +19,8 @@
 package org.apache.pinot.query.runtime.operator;
 
 import com.google.common.base.Preconditions;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.HashMap;
@@ -26,23 +28,44 @@ import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 import org.apache.calcite.rel.core.JoinRelType;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.calcite.rel.hint.PinotHintOptions;
+import org.apache.pinot.calcite.rel.hint.PinotHintOptions.JoinHintOptions;
 import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
 import org.apache.pinot.core.data.table.Key;
 import org.apache.pinot.query.planner.partitioning.KeySelector;
 import org.apache.pinot.query.planner.partitioning.KeySelectorFactory;
 import org.apache.pinot.query.planner.plannode.JoinNode;
+import org.apache.pinot.query.planner.plannode.PlanNode;
 import org.apache.pinot.query.runtime.blocks.MseBlock;
+import org.apache.pinot.query.runtime.blocks.RowHeapDataBlock;
 import org.apache.pinot.query.runtime.operator.join.DoubleLookupTable;
 import org.apache.pinot.query.runtime.operator.join.FloatLookupTable;
 import org.apache.pinot.query.runtime.operator.join.IntLookupTable;
 import org.apache.pinot.query.runtime.operator.join.LongLookupTable;
 import org.apache.pinot.query.runtime.operator.join.LookupTable;
 import org.apache.pinot.query.runtime.operator.join.ObjectLookupTable;
+import org.apache.pinot.query.runtime.operator.join.SpilledRowPartitions;
+import org.apache.pinot.query.runtime.operator.utils.SpillUtils;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
+import org.apache.pinot.spi.exception.QueryErrorCode;
+import org.apache.pinot.spi.utils.CommonConstants.MultiStageQueryRunner.JoinOverFlowMode;
 
 
 /**
  * This {@code HashJoinOperator} join algorithm with join keys. Right table is materialized into a hash table.
+ * <p>When a spill threshold is configured (query option {@code joinSpillThreshold} or join hint
+ * {@code spill_threshold}) and the right table exceeds it, the operator switches to grace hash join: both sides of
+ * the join are hash partitioned on the join keys (into 16 partitions by default, join hint
+ * {@code num_spill_partitions}) into local files, then each partition of the right table is loaded into the hash
+ * table and joined with the same partition of the left table, one partition at a time. The spill threshold is capped
+ * by {@code maxRowsInJoin}, so that the rows kept in memory never exceed the limit. Right rows with null join keys
+ * kept for RIGHT and FULL joins count towards the threshold and are spilled as well.
+ * <p>With spilling enabled, the right input is always fully consumed (it is spilled instead of being truncated), so
+ * {@code earlyTerminate} is never sent to it. The {@code maxRowsInJoin} limit is instead applied to each spilled
+ * partition when it is loaded: in THROW mode the query fails, in BREAK mode the partition is truncated and
+ * {@link StatKey#MAX_ROWS_IN_JOIN_REACHED} is set.
  */
 // TODO: Support memory size based resource limit.
 @SuppressWarnings("unchecked")
@@ -52,6 +75,9 @@ public class HashJoinOperator extends BaseJoinOperator {
   // Placeholder for BitSet in _matchedRightRows when all keys are unique in the right table.
   private static final BitSet BIT_SET_PLACEHOLDER = new BitSet(0);
 
+  private static final String SPILL_DIR_PREFIX = "hashJoinSpill_";
+  private static final int DEFAULT_NUM_SPILL_PARTITIONS = 16;
+
   private final KeySelector<?> _leftKeySelector;
   private final KeySelector<?> _rightKeySelector;
   @Nullable
@@ -65,6 +91,32 @@ public class HashJoinOperator extends BaseJoinOperator {
   @Nullable
   private List<Object[]> _nullKeyRightRows;
 
+  // Below are used for grace hash join when the right table exceeds the spill threshold.
+  private final List<Integer> _leftKeys;
+  private final DataSchema _leftSchema;
+  @Nullable
+  private final DataSchema _rightSchema;
+  private final int _spillThreshold;
+  private final int _numSpillPartitions;
+  private int _numRightRowsInMemory;
+  @Nullable
+  private File _spillDir;
+  @Nullable
+  private SpilledRowPartitions _spilledRightRows;
+  @Nullable
+  private SpilledRowPartitions _spilledLeftRows;
+  // Right rows with null join keys for RIGHT and FULL joins, stored in a single partition
+  @Nullable
+  private SpilledRowPartitions _spilledNullKeyRightRows;
+  // EOS block of the left input, set once all the left rows are spilled
+  @Nullable
+  private MseBlock.Eos _leftEos;
+  private int _currentPartitionId = -1;
+  @Nullable
+  private SpilledRowPartitions.PartitionReader _leftPartitionReader;
+  @Nullable
+  private SpilledRowPartitions.PartitionReader _nullKeyRightRowsReader;
+
   public HashJoinOperator(OpChainExecutionContext context, MultiStageOperator leftInput, DataSchema leftSchema,
       MultiStageOperator rightInput, JoinNode node) {
     super(context, leftInput, leftSchema, rightInput, node);
@@ -76,6 +128,46 @@ public class HashJoinOperator extends BaseJoinOperator {
     _matchedRightRows = needUnmatchedRightRows() ? new HashMap<>() : null;
     // Initialize _nullKeyRightRows for both RIGHT and FULL JOINs
     _nullKeyRightRows = needUnmatchedRightRows() ? new ArrayList<>() : null;
+    _leftKeys = leftKeys;
+    _leftSchema = leftSchema;
+    List<PlanNode> inputs = node.getInputs();
+    _rightSchema = inputs.size() == 2 ? inputs.get(1).getDataSchema() : null;
+    int spillThreshold =
+        _rightSchema != null ? getSpillThreshold(context.getOpChainMetadata(), node.getNodeHint()) : 0;
+    // Spill before the in-memory right table exceeds the max rows limit, which is not checked while reading the right
+    // input when spilling is enabled
+    _spillThreshold = spillThreshold > 0 ? Math.min(spillThreshold, _maxRowsInJoin) : 0;
+    _numSpillPartitions = getNumSpillPartitions(node.getNodeHint());
+  }
+
+  private static int getSpillThreshold(Map<String, String> opChainMetadata, @Nullable PlanNode.NodeHint nodeHint) {
+    if (nodeHint != null) {
+      Map<String, String> joinOptions = nodeHint.getHintOptions().get(PinotHintOptions.JOIN_HINT_OPTIONS);
+      if (joinOptions != null) {
+        String spillThresholdStr = joinOptions.get(JoinHintOptions.SPILL_THRESHOLD);
+        if (spillThresholdStr != null) {
+          return Integer.parseInt(spillThresholdStr);
+        }
+      }
+    }
+    Integer spillThreshold = QueryOptionsUtils.getJoinSpillThreshold(opChainMetadata);
+    return spillThreshold != null ? spillThreshold : 0;
+  }
+
+  private static int getNumSpillPartitions(@Nullable PlanNode.NodeHint nodeHint) {
+    if (nodeHint != null) {
+      Map<String, String> joinOptions = nodeHint.getHintOptions().get(PinotHintOptions.JOIN_HINT_OPTIONS);
+      if (joinOptions != null) {
+        String numSpillPartitionsStr = joinOptions.get(JoinHintOptions.NUM_SPILL_PARTITIONS);
+        if (numSpillPartitionsStr != null) {
+          int numSpillPartitions = Integer.parseInt(numSpillPartitionsStr);
+          Preconditions.checkArgument(numSpillPartitions > 0, "Number of spill partitions must be positive, got: %s",
+              numSpillPartitions);
+          return numSpillPartitions;
+        }
+      }
+    }
+    return DEFAULT_NUM_SPILL_PARTITIONS;
   }
 
   private static LookupTable createLookupTable(List<Integer> joinKeys, DataSchema schema) {
@@ -101,6 +193,11 @@ public class HashJoinOperator extends BaseJoinOperator {
     return EXPLAIN_NAME;
   }
 
+  @Override
+  protected boolean isSpillEnabled() {
+    return _spillThreshold > 0;
+  }
+
   @Override
   protected void addRowsToRightTable(List<Object[]> rows) {
     assert _rightTable != null : "Right table should not be null when adding rows";
@@ -110,12 +207,80 @@ public class HashJoinOperator extends BaseJoinOperator {
       if (isNullKey(key)) {
         // For RIGHT and FULL JOIN, we need to preserve null key rows for the final output
         if (_nullKeyRightRows != null) {
+          if (_spilledNullKeyRightRows != null) {
+            spillRow(_spilledNullKeyRightRows, 0, row);
+            continue;
+          }
           _nullKeyRightRows.add(row);
+          if (_spillThreshold > 0 && ++_numRightRowsInMemory >= _spillThreshold) {
+            spillRightTable();
+          }
         }
         continue;
       }
+      if (_spilledRightRows != null) {
+        spillRow(_spilledRightRows, key, row);
+        continue;
+      }
       _rightTable.addRow(key, row);
+      if (_spillThreshold > 0 && ++_numRightRowsInMemory >= _spillThreshold) {
+        spillRightTable();
+      }
+    }
+  }
+
+  /**
+   * Moves the rows already added to the right table into the spilled partitions. All the following right rows are
+   * directly added to the spilled partitions.
+   */
+  private void spillRightTable() {
+    assert _rightTable != null && _rightSchema != null;
+    LOGGER.debug("Spilling right table for join operator after reaching spill threshold: {}", _spillThreshold);
+    try {
+      _spillDir = SpillUtils.createSpillDir(SPILL_DIR_PREFIX);
+      _spilledRightRows = new SpilledRowPartitions(_spillDir, "right", _rightSchema, _numSpillPartitions,
+          SpillUtils.MAX_ROWS_PER_SPILLED_BLOCK);
+      for (Map.Entry<Object, Object> entry : _rightTable.entrySet()) {
+        Object value = entry.getValue();
+        if (value instanceof Object[]) {
+          Object[] row = (Object[]) value;
+          spillRow(_spilledRightRows, _rightKeySelector.getKey(row), row);
+        } else {
+          for (Object[] row : (List<Object[]>) value) {
+            spillRow(_spilledRightRows, _rightKeySelector.getKey(row), row);
+          }
+        }
+      }
+      if (_nullKeyRightRows != null) {
+        _spilledNullKeyRightRows =
+            new SpilledRowPartitions(_spillDir, "rightNullKey", _rightSchema, 1, SpillUtils.MAX_ROWS_PER_SPILLED_BLOCK);
+        for (Object[] row : _nullKeyRightRows) {
+          spillRow(_spilledNullKeyRightRows, 0, row);
+        }
+        _nullKeyRightRows.clear();
+      }
+    } catch (IOException e) {
+      throw spillException(e);
     }
+    // Release the in-memory right table
+    _rightTable = createLookupTable(_leftKeys, _leftSchema);
+    _numRightRowsInMemory = 0;
+  }
+
+  private static void spillRow(SpilledRowPartitions spilledRows, Object key, Object[] row) {
+    spillRow(spilledRows, SpilledRowPartitions.getPartitionId(key, spilledRows.getNumPartitions()), row);
+  }
+
+  private static void spillRow(SpilledRowPartitions spilledRows, int partitionId, Object[] row) {
+    try {
+      spilledRows.addRow(partitionId, row);
+    } catch (IOException e) {
+      throw spillException(e);
+    }
+  }
+
+  private static RuntimeException spillException(IOException e) {
+    return QueryErrorCode.INTERNAL.asException("Failed to spill rows for join operator", e);
   }
 
   /**
@@ -143,7 +308,24 @@ public class HashJoinOperator extends BaseJoinOperator {
   @Override
   protected void finishBuildingRightTable() {
     assert _rightTable != null : "Right table should not be null when finishing building";
-    _rightTable.finish();
+    if (_spilledRightRows != null) {
+      try {
+        _spilledRightRows.finishWriting();
+        if (_spilledNullKeyRightRows != null) {
+          _spilledNullKeyRightRows.finishWriting();
+          _statMap.merge(StatKey.SPILLED_BYTES, _spilledNullKeyRightRows.getNumBytesWritten());
+          _statMap.merge(StatKey.SPILLED_ROWS, _spilledNullKeyRightRows.getNumRowsWritten());
+        }
+        _spilledLeftRows = new SpilledRowPartitions(_spillDir, "left", _leftSchema, _numSpillPartitions,
+            SpillUtils.MAX_ROWS_PER_SPILLED_BLOCK);
+      } catch (IOException e) {
+        throw spillException(e);
+      }
+      _statMap.merge(StatKey.SPILLED_BYTES, _spilledRightRows.getNumBytesWritten());
+      _statMap.merge(StatKey.SPILLED_ROWS, _spilledRightRows.getNumRowsWritten());
+    } else {
+      _rightTable.finish();
+    }
   }
 
   @Override
@@ -151,21 +333,246 @@ public class HashJoinOperator extends BaseJoinOperator {
     _rightTable = null;
     _matchedRightRows = null;
     _nullKeyRightRows = null;
+    cleanUpSpilledRows();
+  }
+
+  @Override
+  public void close() {
+    cleanUpSpilledRows();
+    super.close();
+  }
+
+  @Override
+  public void cancel(Throwable e) {
+    cleanUpSpilledRows();
+    super.cancel(e);
+  }
+
+  private void cleanUpSpilledRows() {
+    if (_leftPartitionReader != null) {
+      try {
+        _leftPartitionReader.close();
+      } catch (IOException e) {
+        LOGGER.warn("Failed to close spilled partition reader", e);
+      }
+      _leftPartitionReader = null;
+    }
+    if (_nullKeyRightRowsReader != null) {
+      try {
+        _nullKeyRightRowsReader.close();
+      } catch (IOException e) {
+        LOGGER.warn("Failed to close spilled partition reader", e);
+      }
+      _nullKeyRightRowsReader = null;
+    }
+    if (_spilledRightRows != null) {
+      _spilledRightRows.close();
+      _spilledRightRows = null;
+    }
+    if (_spilledLeftRows != null) {
+      _spilledLeftRows.close();
+      _spilledLeftRows = null;
+    }
+    if (_spilledNullKeyRightRows != null) {
+      _spilledNullKeyRightRows.close();
+      _spilledNullKeyRightRows = null;
+    }
+    if (_spillDir != null) {
+      FileUtils.deleteQuietly(_spillDir);
+      _spillDir = null;
+    }
+  }
+
+  @Override
+  protected void earlyTerminateLeftInput() {
+    if (_leftEos != null) {
+      // The left input has already been fully consumed and spilled
+      _eos = _leftEos;
+      cleanUpSpilledRows();
+    } else {
+      super.earlyTerminateLeftInput();
+    }
+  }
+
+  @Override
+  protected MseBlock buildJoinedDataBlock() {
+    if (_spilledRightRows == null) {
+      return super.buildJoinedDataBlock();
+    }
+    try {
+      return buildSpilledJoinedDataBlock();
+    } catch (IOException e) {
+      throw spillException(e);
+    }
+  }
+
+  /**
+   * Builds the joined data block for grace hash join. It first spills all the left rows into partitions, then joins the
+   * partitions of both sides one by one.
+   */
+  private MseBlock buildSpilledJoinedDataBlock()
+      throws IOException {
+    assert _spilledRightRows != null && _spilledLeftRows != null;
+    while (true) {
+      if (_eos != null) {
+        return _eos;
+      }
+      if (_leftEos == null) {
+        MseBlock leftBlock = _leftInput.nextBlock();
+        if (leftBlock.isEos()) {
+          MseBlock.Eos eosBlock = (MseBlock.Eos) leftBlock;
+          if (eosBlock.isError()) {
+            return eosBlock;
+          }
+          _leftEos = eosBlock;
+          _spilledLeftRows.finishWriting();
+          _statMap.merge(StatKey.SPILLED_BYTES, _spilledLeftRows.getNumBytesWritten());
+          _statMap.merge(StatKey.SPILLED_ROWS, _spilledLeftRows.getNumRowsWritten());
+          continue;
+        }
+        List<Object[]> rows = spillLeftRows(((MseBlock.Data) leftBlock).asRowHeap().getRows());
+        sampleAndCheckInterruption();
+        if (!rows.isEmpty()) {
+          return new RowHeapDataBlock(rows, _resultSchema);
+        }
+        continue;
+      }
+      List<Object[]> rows;
+      if (_leftPartitionReader == null) {
+        if (_currentPartitionId + 1 == _numSpillPartitions) {
+          // All the partitions are joined, add the unmatched null key rows from the right side one spilled block at a
+          // time
+          List<Object[]> nullKeyRows = nextSpilledNullKeyRightRows();
+          if (nullKeyRows == null) {
+            _eos = _leftEos;
+            cleanUpSpilledRows();
+            return _eos;
+          }
+          rows = new ArrayList<>(nullKeyRows.size());
+          for (Object[] nullKeyRow : nullKeyRows) {
+            rows.add(joinRow(null, nullKeyRow));
+          }
+          sampleAndCheckInterruption();
+          if (!rows.isEmpty()) {
+            return new RowHeapDataBlock(rows, _resultSchema);
+          }
+          continue;
+        }
+        loadRightPartition(++_currentPartitionId);
+        _leftPartitionReader = _spilledLeftRows.getReader(_currentPartitionId);
+      }
+      List<Object[]> leftRows = _leftPartitionReader.nextRows();
+      if (leftRows != null) {
+        rows = buildJoinedRows(leftRows);
+      } else {
+        _leftPartitionReader.close();
+        _leftPartitionReader = null;
+        _spilledLeftRows.deletePartition(_currentPartitionId);
+        rows = needUnmatchedRightRows() ? buildNonMatchRightRowsFromRightTable() : List.of();
+      }
+      sampleAndCheckInterruption();
+      if (!rows.isEmpty()) {
+        return new RowHeapDataBlock(rows, _resultSchema);
+      }
+    }
+  }
+
+  /**
+   * Returns the next block of spilled right rows with null join keys, or {@code null} when all of them have been read.
+   */
+  @Nullable
+  private List<Object[]> nextSpilledNullKeyRightRows()
+      throws IOException {
+    if (_spilledNullKeyRightRows == null) {
+      return null;
+    }
+    if (_nullKeyRightRowsReader == null) {
+      _nullKeyRightRowsReader = _spilledNullKeyRightRows.getReader(0);
+    }
+    return _nullKeyRightRowsReader.nextRows();
+  }
+
+  /**
+   * Spills the given left rows into partitions, and returns the rows that can be generated without the right table,
+   * i.e. the left rows with null join keys.
+   */
+  private List<Object[]> spillLeftRows(List<Object[]> leftRows) {
+    assert _spilledLeftRows != null;
+    List<Object[]> rows = new ArrayList<>();
+    for (Object[] leftRow : leftRows) {
+      Object key = _leftKeySelector.getKey(leftRow);
+      if (isNullKey(key)) {
+        // Null keys never match the right table
+        if (_joinType == JoinRelType.ANTI) {
+          rows.add(leftRow);
+        } else if (_joinType != JoinRelType.SEMI) {
+          handleUnmatchedLeftRow(leftRow, rows);
+        }
+        continue;
+      }
+      spillRow(_spilledLeftRows, key, leftRow);
+    }
+    return rows;
+  }
+
+  /**
+   * Loads the given partition of the spilled right rows into the right table.
+   */
+  private void loadRightPartition(int partitionId)
+      throws IOException {
+    assert _spilledRightRows != null;
+    long startTime = System.currentTimeMillis();
+    _rightTable = createLookupTable(_leftKeys, _leftSchema);
+    if (_matchedRightRows != null) {
+      _matchedRightRows.clear();
+    }
+    int numRows = 0;
+    try (SpilledRowPartitions.PartitionReader reader = _spilledRightRows.getReader(partitionId)) {
+      List<Object[]> rows;
+      while ((rows = reader.nextRows()) != null) {
+        // Row based overflow check on the partition loaded in memory.
+        if (rows.size() + numRows > _maxRowsInJoin) {
+          if (_joinOverflowMode == JoinOverFlowMode.THROW) {
+            throwForJoinRowLimitExceeded(
+                "Cannot build in memory hash table for spilled partition of join operator, reached number of rows "
+                    + "limit: " + _maxRowsInJoin);
+          } else {
+            rows = rows.subList(0, _maxRowsInJoin - numRows);
+            _statMap.merge(StatKey.MAX_ROWS_IN_JOIN_REACHED, true);
+          }
+        }
+        for (Object[] row : rows) {
+          _rightTable.addRow(_rightKeySelector.getKey(row), row);
+        }
+        numRows += rows.size();
+        sampleAndCheckInterruption();
+        if (numRows == _maxRowsInJoin) {
+          break;
+        }
+      }
+    }
+    _rightTable.finish();
+    _spilledRightRows.deletePartition(partitionId);
+    _statMap.merge(StatKey.TIME_BUILDING_HASH_TABLE_MS, System.currentTimeMillis() - startTime);
   }
 
   @Override
   protected List<Object[]> buildJoinedRows(MseBlock.Data leftBlock) {
+    return buildJoinedRows(leftBlock.asRowHeap().getRows());
+  }
+
+  private List<Object[]> buildJoinedRows(List<Object[]> leftRows) {
     assert _rightTable != null : "Right table should not be null when building joined rows";
     switch (_joinType) {
       case SEMI:
-        return buildJoinedDataBlockSemi(leftBlock);
+        return buildJoinedDataBlockSemi(leftRows);
       case ANTI:
-        return buildJoinedDataBlockAnti(leftBlock);
+        return buildJoinedDataBlockAnti(leftRows);
       default: { // INNER, LEFT, RIGHT, FULL
         if (_rightTable.isKeysUnique()) {
-          return buildJoinedDataBlockUniqueKeys(leftBlock);
+          return buildJoinedDataBlockUniqueKeys(leftRows);
         } else {
-          return buildJoinedDataBlockDuplicateKeys(leftBlock);
+          return buildJoinedDataBlockDuplicateKeys(leftRows);
         }
       }
     }
@@ -182,9 +589,8 @@ public class HashJoinOperator extends BaseJoinOperator {
     return false;
   }
 
-  private List<Object[]> buildJoinedDataBlockUniqueKeys(MseBlock.Data leftBlock) {
+  private List<Object[]> buildJoinedDataBlockUniqueKeys(List<Object[]> leftRows) {
     assert _rightTable != null : "Right table should not be null when building joined rows";
-    List<Object[]> leftRows = leftBlock.asRowHeap().getRows();
     ArrayList<Object[]> rows = new ArrayList<>(leftRows.size());
 
     for (Object[] leftRow : leftRows) {
@@ -216,9 +622,8 @@ public class HashJoinOperator extends BaseJoinOperator {
     return rows;
   }
 
-  private List<Object[]> buildJoinedDataBlockDuplicateKeys(MseBlock.Data leftBlock) {
+  private List<Object[]> buildJoinedDataBlockDuplicateKeys(List<Object[]> leftRows) {
     assert _rightTable != null : "Right table should not be null when building joined rows";
-    List<Object[]> leftRows = leftBlock.asRowHeap().getRows();
     List<Object[]> rows = new ArrayList<>(leftRows.size());
 
     for (Object[] leftRow : leftRows) {
@@ -269,9 +674,8 @@ public class HashJoinOperator extends BaseJoinOperator {
     }
   }
 
-  private List<Object[]> buildJoinedDataBlockSemi(MseBlock.Data leftBlock) {
+  private List<Object[]> buildJoinedDataBlockSemi(List<Object[]> leftRows) {
     assert _rightTable != null : "Right table should not be null when building joined rows";
-    List<Object[]> leftRows = leftBlock.asRowHeap().getRows();
     List<Object[]> rows = new ArrayList<>(leftRows.size());
 
     for (Object[] leftRow : leftRows) {
@@ -284,9 +688,8 @@ public class HashJoinOperator extends BaseJoinOperator {
     return rows;
   }
 
-  private List<Object[]> buildJoinedDataBlockAnti(MseBlock.Data leftBlock) {
+  private List<Object[]> buildJoinedDataBlockAnti(List<Object[]> leftRows) {
     assert _rightTable != null : "Right table should not be null when building joined rows";
-    List<Object[]> leftRows = leftBlock.asRowHeap().getRows();
     List<Object[]> rows = new ArrayList<>(leftRows.size());
 
     for (Object[] leftRow : leftRows) {
@@ -301,6 +704,17 @@ public class HashJoinOperator extends BaseJoinOperator {
 
   @Override
   protected List<Object[]> buildNonMatchRightRows() {
+    List<Object[]> rows = buildNonMatchRightRowsFromRightTable();
+    // Add unmatched null key rows from right side for RIGHT and FULL JOIN
+    if (_nullKeyRightRows != null) {
+      for (Object[] nullKeyRow : _nullKeyRightRows) {
+        rows.add(joinRow(null, nullKeyRow));
+      }
+    }
+    return rows;
+  }
+
+  private List<Object[]> buildNonMatchRightRowsFromRightTable() {
     assert _rightTable != null : "Right table should not be null when building non-matched right rows";
     assert _matchedRightRows != null : "Matched right rows should not be null when building non-matched right rows";
     List<Object[]> rows = new ArrayList<>();
@@ -328,12 +742,6 @@ public class HashJoinOperator extends BaseJoinOperator {
         }
       }
     }
-    // Add unmatched null key rows from right side for RIGHT and FULL JOIN
-    if (_nullKeyRightRows != null) {
-      for (Object[] nullKeyRow : _nullKeyRightRows) {
-        rows.add(joinRow(null, nullKeyRow));
-      }
-    }
     return rows;
   }
 }
@@ -274,6 +274,10 @@ public abstract class MultiStageOperator
         if (maxRowsInJoinReached) {
           serverMetrics.addMeteredGlobalValue(ServerMeter.HASH_JOIN_TIMES_MAX_ROWS_REACHED, 1);
         }
+        long spilledBytes = stats.getLong(HashJoinOperator.StatKey.SPILLED_BYTES);
+        if (spilledBytes > 0) {
+          serverMetrics.addMeteredGlobalValue(ServerMeter.HASH_JOIN_SPILLED_BYTES, spilledBytes);
+        }
         serverMetrics.addTimedValue(ServerTimer.HASH_JOIN_BUILD_TABLE_CPU_TIME_MS,
             stats.getLong(HashJoinOperator.StatKey.TIME_BUILDING_HASH_TABLE_MS), TimeUnit.MILLISECONDS);
       }
@@ -326,6 +330,10 @@ public abstract class MultiStageOperator
             stats.getInt(BaseMailboxReceiveOperator.StatKey.RAW_MESSAGES));
         serverMetrics.addMeteredGlobalValue(ServerMeter.MULTI_STAGE_RAW_BYTES,
             stats.getLong(BaseMailboxReceiveOperator.StatKey.DESERIALIZED_BYTES));
+        long spilledBytes = stats.getLong(BaseMailboxReceiveOperator.StatKey.SPILLED_BYTES);
+        if (spilledBytes > 0) {
+          serverMetrics.addMeteredGlobalValue(ServerMeter.SORT_SPILLED_BYTES, spilledBytes);
+        }
 
         serverMetrics.addTimedValue(ServerTimer.MULTI_STAGE_DESERIALIZATION_CPU_TIME_MS,
             stats.getLong(BaseMailboxReceiveOperator.StatKey.DESERIALIZATION_TIME_MS), TimeUnit.MILLISECONDS);
@@ -374,6 +382,17 @@ public abstract class MultiStageOperator
         StatMap<SortOperator.StatKey> stats = (StatMap<SortOperator.StatKey>) map;
         response.mergeMaxRowsInOperator(stats.getLong(SortOperator.StatKey.EMITTED_ROWS));
       }
+
+      @Override
+      public void updateServerMetrics(StatMap<?> map, ServerMetrics serverMetrics) {
+        super.updateServerMetrics(map, serverMetrics);
+        @SuppressWarnings("unchecked")
+        StatMap<SortOperator.StatKey> stats = (StatMap<SortOperator.StatKey>) map;
+        long spilledBytes = stats.getLong(SortOperator.StatKey.SPILLED_BYTES);
+        if (spilledBytes > 0) {
+          serverMetrics.addMeteredGlobalValue(ServerMeter.SORT_SPILLED_BYTES, spilledBytes);
+        }
+      }
     },
     TRANSFORM(TransformOperator.StatKey.class) {
       @Override
@@ -20,24 +20,39 @@ package org.apache.pinot.query.runtime.operator;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.PriorityQueue;
+import javax.annotation.Nullable;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.pinot.common.datatable.StatMap;
 import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
 import org.apache.pinot.core.query.selection.SelectionOperatorUtils;
 import org.apache.pinot.query.planner.plannode.SortNode;
 import org.apache.pinot.query.runtime.blocks.MseBlock;
 import org.apache.pinot.query.runtime.blocks.RowHeapDataBlock;
+import org.apache.pinot.query.runtime.operator.utils.ExternalSorter;
 import org.apache.pinot.query.runtime.operator.utils.SortUtils;
+import org.apache.pinot.query.runtime.operator.utils.SpillUtils;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
+import org.apache.pinot.spi.exception.QueryErrorCode;
 import org.apache.pinot.spi.utils.CommonConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
+/**
+ * This {@code SortOperator} sorts the input rows and applies the limit and offset.
+ * <p>By default, the rows to keep are held in memory in a priority queue. When a sort spill threshold is configured
+ * (query option {@code sortSpillThreshold}) and the number of rows to keep exceeds it, an {@link ExternalSorter} is
+ * used instead: the rows are spilled to local disk as sorted runs, which are then merged and returned one block at a
+ * time.
+ * <p>When the input is a {@link SortedMailboxReceiveOperator}, the rows are already sorted, so the input blocks are
+ * streamed through with the offset and limit applied incrementally.
+ */
 public class SortOperator extends MultiStageOperator {
   private static final String EXPLAIN_NAME = "SORT";
   private static final Logger LOGGER = LoggerFactory.getLogger(SortOperator.class);
@@ -48,8 +63,18 @@ public class SortOperator extends MultiStageOperator {
   private final int _numRowsToKeep;
   private final PriorityQueue<Object[]> _priorityQueue;
   private final ArrayList<Object[]> _rows;
+  @Nullable
+  private final ExternalSorter _externalSorter;
   private final StatMap<StatKey> _statMap = new StatMap<>(StatKey.class);
 
+  // Whether the input is already sorted and its blocks are streamed through
+  private final boolean _streamSortedInput;
+
+  // Number of rows to skip from the externally sorted rows or the streamed input rows to apply the offset
+  private int _numRowsToSkip;
+  // Number of rows left to return from the streamed input rows to apply the limit
+  private int _numRowsToReturn;
+
   private boolean _hasConstructedSortedBlock;
   private MseBlock.Eos _eosBlock;
 
@@ -73,14 +98,33 @@ public class SortOperator extends MultiStageOperator {
     // - There is no collation
     // - Input is already sorted
     List<RelFieldCollation> collations = node.getCollations();
-    if (collations.isEmpty() || input instanceof SortedMailboxReceiveOperator) {
+    _streamSortedInput = !collations.isEmpty() && input instanceof SortedMailboxReceiveOperator;
+    if (_streamSortedInput) {
+      _priorityQueue = null;
+      _rows = null;
+      _externalSorter = null;
+      _numRowsToSkip = _offset;
+      _numRowsToReturn = Math.max(_numRowsToKeep - _offset, 0);
+      // The sorted input does not need to return the rows after the limit
+      ((SortedMailboxReceiveOperator) input).setMaxNumRows(_numRowsToKeep);
+    } else if (collations.isEmpty()) {
       _priorityQueue = null;
       _rows = new ArrayList<>(Math.min(defaultHolderCapacity, _numRowsToKeep));
+      _externalSorter = null;
     } else {
-      // Use the opposite direction as specified by the collation directions since we need the PriorityQueue to decide
-      // which elements to keep and which to remove based on the limits.
-      _priorityQueue = new PriorityQueue<>(Math.min(defaultHolderCapacity, _numRowsToKeep),
-          new SortUtils.SortComparator(collations, true));
+      Integer spillThreshold = QueryOptionsUtils.getSortSpillThreshold(context.getOpChainMetadata());
+      if (spillThreshold != null && spillThreshold > 0 && _numRowsToKeep > spillThreshold) {
+        _priorityQueue = null;
+        _externalSorter = new ExternalSorter(_dataSchema, new SortUtils.SortComparator(collations, false),
+            spillThreshold, _numRowsToKeep, SpillUtils.MAX_ROWS_PER_SPILLED_BLOCK);
+        _numRowsToSkip = _offset;
+      } else {
+        // Use the opposite direction as specified by the collation directions since we need the PriorityQueue to
+        // decide which elements to keep and which to remove based on the limits.
+        _priorityQueue = new PriorityQueue<>(Math.min(defaultHolderCapacity, _numRowsToKeep),
+            new SortUtils.SortComparator(collations, true));
+        _externalSorter = null;
+      }
       _rows = null;
     }
   }
@@ -106,8 +150,19 @@ public class SortOperator extends MultiStageOperator {
     return List.of(_input);
   }
 
+  @Override
+  public void close() {
+    super.close();
+    if (_externalSorter != null) {
+      _externalSorter.close();
+    }
+  }
+
   @Override
   public void cancel(Throwable e) {
+    if (_externalSorter != null) {
+      _externalSorter.close();
+    }
   }
 
   @Override
@@ -117,13 +172,16 @@ public class SortOperator extends MultiStageOperator {
 
   @Override
   protected MseBlock getNextBlock() {
+    if (_streamSortedInput) {
+      return nextStreamedBlock();
+    }
     if (_hasConstructedSortedBlock) {
       assert _eosBlock != null;
-      return _eosBlock;
+      return _externalSorter != null ? nextExternallySortedBlock() : _eosBlock;
     }
     _eosBlock = consumeInputBlocks();
     // returning upstream error block if finalBlock contains error.
-    _statMap.merge(StatKey.REQUIRE_SORT, _priorityQueue != null);
+    _statMap.merge(StatKey.REQUIRE_SORT, _priorityQueue != null || _externalSorter != null);
     if (_eosBlock.isError()) {
       return _eosBlock;
     }
@@ -137,6 +195,16 @@ public class SortOperator extends MultiStageOperator {
 
   private MseBlock produceSortedBlock() {
     _hasConstructedSortedBlock = true;
+    if (_externalSorter != null) {
+      try {
+        _externalSorter.finishAdding();
+      } catch (IOException e) {
+        throw spillException(e);
+      }
+      _statMap.merge(StatKey.SPILLED_BYTES, _externalSorter.getNumBytesSpilled());
+      _statMap.merge(StatKey.SPILLED_ROWS, _externalSorter.getNumRowsSpilled());
+      return nextExternallySortedBlock();
+    }
     if (_priorityQueue == null) {
       if (_rows.size() > _offset) {
         List<Object[]> row = _rows.subList(_offset, _rows.size());
@@ -158,11 +226,82 @@ public class SortOperator extends MultiStageOperator {
     }
   }
 
+  /**
+   * Returns the next block of rows from the {@link ExternalSorter} after skipping the offset, or the EOS block when all
+   * the rows have been returned.
+   */
+  private MseBlock nextExternallySortedBlock() {
+    assert _externalSorter != null;
+    try {
+      while (true) {
+        List<Object[]> rows = _externalSorter.nextRows();
+        if (rows == null) {
+          _externalSorter.close();
+          return _eosBlock;
+        }
+        int numRows = rows.size();
+        if (_numRowsToSkip >= numRows) {
+          _numRowsToSkip -= numRows;
+          continue;
+        }
+        if (_numRowsToSkip > 0) {
+          rows = rows.subList(_numRowsToSkip, numRows);
+          _numRowsToSkip = 0;
+        }
+        return new RowHeapDataBlock(rows, _dataSchema);
+      }
+    } catch (IOException e) {
+      throw spillException(e);
+    }
+  }
+
+  /**
+   * Returns the next block of the already sorted input after applying the offset and limit, or the EOS block when the
+   * input is exhausted.
+   */
+  private MseBlock nextStreamedBlock() {
+    while (true) {
+      MseBlock block = _input.nextBlock();
+      if (block.isEos()) {
+        _statMap.merge(StatKey.REQUIRE_SORT, false);
+        return block;
+      }
+      List<Object[]> rows = ((MseBlock.Data) block).asRowHeap().getRows();
+      int numRows = rows.size();
+      if (_numRowsToReturn == 0) {
+        // Limit reached, drop the remaining rows and wait for EOS
+        continue;
+      }
+      if (_numRowsToSkip >= numRows) {
+        _numRowsToSkip -= numRows;
+        continue;
+      }
+      int from = _numRowsToSkip;
+      int to = Math.min(numRows, from + _numRowsToReturn);
+      _numRowsToSkip = 0;
+      // No early termination here: the sorted input has already drained its mailboxes and only returns the rows up to
+      // the limit
+      _numRowsToReturn -= to - from;
+      return new RowHeapDataBlock(from == 0 && to == numRows ? rows : rows.subList(from, to), _dataSchema);
+    }
+  }
+
+  private static RuntimeException spillException(IOException e) {
+    return QueryErrorCode.INTERNAL.asException("Failed to spill rows for sort operator", e);
+  }
+
   private MseBlock.Eos consumeInputBlocks() {
     MseBlock block = _input.nextBlock();
     while (block.isData()) {
       List<Object[]> container = ((MseBlock.Data) block).asRowHeap().getRows();
-      if (_priorityQueue == null) {
+      if (_externalSorter != null) {
+        try {
+          _externalSorter.addRows(container);
+        } catch (IOException e) {
+          throw spillException(e);
+        }
+        sampleAndCheckInterruption();
+      } else if (_priorityQueue == null) {
         // TODO: when push-down properly, we shouldn't get more than _numRowsToKeep
         int numRows = _rows.size();
         if (numRows < _numRowsToKeep) {
@@ -205,7 +344,15 @@ public class SortOperator extends MultiStageOperator {
       public boolean includeDefaultInJson() {
         return true;
       }
-    };
+    },
+    /**
+     * Number of bytes spilled to disk when the rows to sort do not fit in memory.
+     */
+    SPILLED_BYTES(StatMap.Type.LONG),
+    /**
+     * Number of rows spilled to disk when the rows to sort do not fit in memory.
+     */
+    SPILLED_ROWS(StatMap.Type.LONG);
     //@formatter:on
 
     private final StatMap.Type _type;
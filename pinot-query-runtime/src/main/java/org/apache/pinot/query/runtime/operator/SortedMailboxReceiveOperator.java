@@ -19,17 +19,23 @@
 package org.apache.pinot.query.runtime.operator;
 
 import com.google.common.base.Preconditions;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.config.QueryOptionsUtils;
 import org.apache.pinot.query.mailbox.ReceivingMailbox;
 import org.apache.pinot.query.planner.plannode.MailboxReceiveNode;
 import org.apache.pinot.query.runtime.blocks.MseBlock;
 import org.apache.pinot.query.runtime.blocks.RowHeapDataBlock;
+import org.apache.pinot.query.runtime.operator.utils.ExternalSorter;
 import org.apache.pinot.query.runtime.operator.utils.SortUtils;
+import org.apache.pinot.query.runtime.operator.utils.SpillUtils;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
+import org.apache.pinot.spi.exception.QueryErrorCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +43,9 @@ import org.slf4j.LoggerFactory;
 /**
  * This {@code SortedMailboxReceiveOperator} receives data from a {@link ReceivingMailbox} and serve it out from the
  * {@link #nextBlock()} API in a sorted manner.
+ * <p>When a sort spill threshold is configured (query option {@code sortSpillThreshold}), the received rows are sorted
+ * with an {@link ExternalSorter}: they are spilled to local disk as sorted runs, which are then k-way merged and served
+ * one block at a time.
  *
  *  TODO: Once sorting on the {@code MailboxSendOperator} is available, modify this to use a k-way merge instead of
  *        resorting via the PriorityQueue.
@@ -49,7 +58,14 @@ public class SortedMailboxReceiveOperator extends BaseMailboxReceiveOperator {
   private final DataSchema _dataSchema;
   private final List<RelFieldCollation> _collations;
   private final List<Object[]> _rows = new ArrayList<>();
+  @Nullable
+  private final Integer _spillThreshold;
 
+  // Maximum number of sorted rows to return, set by the parent operator when it only keeps the first rows
+  private int _maxNumRows = Integer.MAX_VALUE;
+  // Created on the first block when the spill threshold is set
+  @Nullable
+  private ExternalSorter _externalSorter;
   private MseBlock _eosBlock;
 
   // TODO: Support merge sort when sender side sort is supported.
@@ -58,6 +74,18 @@ public class SortedMailboxReceiveOperator extends BaseMailboxReceiveOperator {
     Preconditions.checkState(!CollectionUtils.isEmpty(node.getCollations()), "Field collations must be set");
     _dataSchema = node.getDataSchema();
     _collations = node.getCollations();
+    Integer spillThreshold = QueryOptionsUtils.getSortSpillThreshold(context.getOpChainMetadata());
+    _spillThreshold = spillThreshold != null && spillThreshold > 0 ? spillThreshold : null;
+  }
+
+  /**
+   * Sets the maximum number of sorted rows to return, so that the rows after it are neither spilled nor returned. It
+   * must be set before the first block is read.
+   */
+  public void setMaxNumRows(int maxNumRows) {
+    Preconditions.checkState(_externalSorter == null && _eosBlock == null,
+        "Max number of rows must be set before reading the first block");
+    _maxNumRows = maxNumRows;
   }
 
   @Override
@@ -73,13 +101,28 @@ public class SortedMailboxReceiveOperator extends BaseMailboxReceiveOperator {
   @Override
   protected MseBlock getNextBlock() {
     if (_eosBlock != null) {
-      return _eosBlock;
+      return _externalSorter != null && !_eosBlock.isError() ? nextExternallySortedBlock() : _eosBlock;
+    }
+    if (_spillThreshold != null && _externalSorter == null) {
+      _externalSorter =
+          new ExternalSorter(_dataSchema, new SortUtils.SortComparator(_collations, false), _spillThreshold,
+              _maxNumRows, SpillUtils.MAX_ROWS_PER_SPILLED_BLOCK);
     }
     // Collect all the rows from the mailbox and sort them
     while (true) {
       MseBlock block = _multiConsumer.readMseBlockBlocking();
       if (block.isData()) {
-        _rows.addAll(((MseBlock.Data) block).asRowHeap().getRows());
+        List<Object[]> rows = ((MseBlock.Data) block).asRowHeap().getRows();
+        if (_externalSorter != null) {
+          try {
+            _externalSorter.addRows(rows);
+          } catch (IOException e) {
+            throw spillException(e);
+          }
+        } else {
+          _rows.addAll(rows);
+        }
+        sampleAndCheckInterruption();
         continue;
       }
       MseBlock.Eos eosBlock = (MseBlock.Eos) block;
@@ -87,12 +130,22 @@ public class SortedMailboxReceiveOperator extends BaseMailboxReceiveOperator {
       _eosBlock = eosBlock;
       if (eosBlock.isError()) {
         return eosBlock;
+      } else if (_externalSorter != null) {
+        try {
+          _externalSorter.finishAdding();
+        } catch (IOException e) {
+          throw spillException(e);
+        }
+        _statMap.merge(StatKey.SPILLED_BYTES, _externalSorter.getNumBytesSpilled());
+        _statMap.merge(StatKey.SPILLED_ROWS, _externalSorter.getNumRowsSpilled());
+        return nextExternallySortedBlock();
       } else {
         if (!_rows.isEmpty()) {
           // TODO: This might not be efficient because we are sorting all the received rows. We should use a k-way merge
           //       when sender side is sorted.
           _rows.sort(new SortUtils.SortComparator(_collations, false));
-          return new RowHeapDataBlock(_rows, _dataSchema);
+          return new RowHeapDataBlock(_rows.size() > _maxNumRows ? _rows.subList(0, _maxNumRows) : _rows,
+              _dataSchema);
         } else {
           return block;
         }
@@ -100,15 +153,45 @@ public class SortedMailboxReceiveOperator extends BaseMailboxReceiveOperator {
     }
   }
 
+  /**
+   * Returns the next block of rows from the {@link ExternalSorter}, or the EOS block when all the rows have been
+   * returned.
+   */
+  private MseBlock nextExternallySortedBlock() {
+    assert _externalSorter != null;
+    List<Object[]> rows;
+    try {
+      rows = _externalSorter.nextRows();
+    } catch (IOException e) {
+      throw spillException(e);
+    }
+    sampleAndCheckInterruption();
+    if (rows == null) {
+      _externalSorter.close();
+      return _eosBlock;
+    }
+    return new RowHeapDataBlock(rows, _dataSchema);
+  }
+
+  private static RuntimeException spillException(IOException e) {
+    return QueryErrorCode.INTERNAL.asException("Failed to spill rows for sorted mailbox receive operator", e);
+  }
+
   @Override
   public void close() {
     super.close();
     _rows.clear();
+    if (_externalSorter != null) {
+      _externalSorter.close();
+    }
   }
 
   @Override
   public void cancel(Throwable t) {
     super.cancel(t);
     _rows.clear();
+    if (_externalSorter != null) {
+      _externalSorter.close();
+    }
   }
 }
@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.join;
+
+import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.HashCommon;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.pinot.common.datablock.DataBlock;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.query.runtime.operator.utils.SpillUtils;
+
+
+/**
+ * The {@code SpilledRowPartitions} hash partitions rows on the join key into local files. It is used by the hash join
+ * to spill both sides of the join to disk when the right table does not fit in memory, so that the join can be
+ * performed partition by partition (grace hash join).
+ * <p>Rows are buffered per partition, and each buffer is written as a serialized {@link DataBlock} prefixed with its
+ * size once it reaches the block size. All the files are written first, then read back partition by partition.
+ * <p>This class is not thread-safe.
+ */
+public class SpilledRowPartitions implements Closeable {
+  private final DataSchema _dataSchema;
+  private final int _numPartitions;
+  private final int _maxRowsPerBlock;
+  private final File[] _files;
+  private final DataOutputStream[] _outputStreams;
+  private final List<Object[]>[] _buffers;
+  private final long[] _numRows;
+
+  private long _numRowsWritten;
+  private long _numBytesWritten;
+  private boolean _writeFinished;
+
+  @SuppressWarnings("unchecked")
+  public SpilledRowPartitions(File spillDir, String name, DataSchema dataSchema, int numPartitions,
+      int maxRowsPerBlock)
+      throws IOException {
+    Preconditions.checkArgument(numPartitions > 0, "Number of partitions must be positive");
+    Preconditions.checkArgument(maxRowsPerBlock > 0, "Max rows per block must be positive");
+    _dataSchema = dataSchema;
+    _numPartitions = numPartitions;
+    _maxRowsPerBlock = maxRowsPerBlock;
+    _files = new File[numPartitions];
+    _outputStreams = new DataOutputStream[numPartitions];
+    _buffers = new List[numPartitions];
+    _numRows = new long[numPartitions];
+    for (int i = 0; i < numPartitions; i++) {
+      _files[i] = new File(spillDir, name + "_" + i);
+      _buffers[i] = new ArrayList<>();
+    }
+  }
+
+  /**
+   * Returns the partition for the given (non-null) join key. The hash code of the key is mixed so that the partitions
+   * are not correlated with the hash distribution of the rows across the workers.
+   */
+  public static int getPartitionId(Object key, int numPartitions) {
+    return (HashCommon.mix(key.hashCode()) & Integer.MAX_VALUE) % numPartitions;
+  }
+
+  public int getNumPartitions() {
+    return _numPartitions;
+  }
+
+  public long getNumRows(int partitionId) {
+    return _numRows[partitionId];
+  }
+
+  public long getNumRowsWritten() {
+    return _numRowsWritten;
+  }
+
+  public long getNumBytesWritten() {
+    return _numBytesWritten;
+  }
+
+  public void addRow(int partitionId, Object[] row)
+      throws IOException {
+    Preconditions.checkState(!_writeFinished, "Cannot add rows after finishing writing");
+    List<Object[]> buffer = _buffers[partitionId];
+    buffer.add(row);
+    _numRows[partitionId]++;
+    _numRowsWritten++;
+    if (buffer.size() >= _maxRowsPerBlock) {
+      flush(partitionId);
+    }
+  }
+
+  private void flush(int partitionId)
+      throws IOException {
+    List<Object[]> buffer = _buffers[partitionId];
+    if (buffer.isEmpty()) {
+      return;
+    }
+    DataOutputStream outputStream = _outputStreams[partitionId];
+    if (outputStream == null) {
+      outputStream =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(_files[partitionId].toPath())));
+      _outputStreams[partitionId] = outputStream;
+    }
+    _numBytesWritten += SpillUtils.writeRows(outputStream, buffer, _dataSchema);
+    buffer.clear();
+  }
+
+  /**
+   * Flushes the buffered rows and closes the files. Must be called before reading the partitions.
+   */
+  public void finishWriting()
+      throws IOException {
+    if (_writeFinished) {
+      return;
+    }
+    for (int i = 0; i < _numPartitions; i++) {
+      flush(i);
+      if (_outputStreams[i] != null) {
+        _outputStreams[i].close();
+        _outputStreams[i] = null;
+      }
+    }
+    _writeFinished = true;
+  }
+
+  /**
+   * Returns a reader over the rows of the given partition, which returns the rows one spilled block at a time.
+   */
+  public PartitionReader getReader(int partitionId)
+      throws IOException {
+    Preconditions.checkState(_writeFinished, "Cannot read partitions before finishing writing");
+    File file = _files[partitionId];
+    return new PartitionReader(
+        file.exists() ? new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath()))) : null);
+  }
+
+  /**
+   * Deletes the given partition. Can be called once the partition has been fully read to release the disk space early.
+   */
+  public void deletePartition(int partitionId) {
+    FileUtils.deleteQuietly(_files[partitionId]);
+  }
+
+  /**
+   * Closes the open files and deletes all the partitions.
+   */
+  @Override
+  public void close() {
+    for (int i = 0; i < _numPartitions; i++) {
+      IOUtils.closeQuietly(_outputStreams[i]);
+      _outputStreams[i] = null;
+      _buffers[i].clear();
+      FileUtils.deleteQuietly(_files[i]);
+    }
+  }
+
+  public static class PartitionReader implements Closeable {
+    private final DataInputStream _inputStream;
+
+    private PartitionReader(@Nullable DataInputStream inputStream) {
+      _inputStream = inputStream;
+    }
+
+    /**
+     * Returns the rows of the next spilled block, or {@code null} when all the rows have been read.
+     */
+    @Nullable
+    public List<Object[]> nextRows()
+        throws IOException {
+      if (_inputStream == null) {
+        return null;
+      }
+      return SpillUtils.readRows(_inputStream);
+    }
+
+    @Override
+    public void close()
+        throws IOException {
+      if (_inputStream != null) {
+        _inputStream.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,350 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.utils;
+
+import com.google.common.base.Preconditions;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.pinot.common.utils.DataSchema;
+
+
+/**
+ * The {@code ExternalSorter} sorts rows that might not fit in memory with an external merge sort.
+ * <p>Rows are buffered in memory until the spill threshold is reached, then the buffer is sorted and written to a
+ * local file as a sorted run. Once all the rows are added, the sorted runs are k-way merged and the merged rows are
+ * returned one block at a time, so that only one block per run is kept in memory. When the spill threshold is never
+ * reached, the rows are sorted in memory and nothing is written to disk.
+ * <p>At most {@code maxMergeFanIn} runs are merged at once: when there are more runs, groups of runs are first merged
+ * into new runs until the number of runs drops to the fan-in. The runs are written in blocks of about
+ * {@code spillThreshold / maxMergeFanIn} rows, so that the rows buffered by the merge are bounded by the spill
+ * threshold.
+ * <p>Only the first {@code maxNumRows} rows of the sorted output are returned, so each sorted run is also truncated to
+ * {@code maxNumRows} rows.
+ * <p>This class is not thread-safe.
+ */
+public class ExternalSorter implements Closeable {
+  public static final int DEFAULT_MAX_MERGE_FAN_IN = 16;
+  private static final String SPILL_DIR_PREFIX = "sortSpill_";
+
+  private final DataSchema _dataSchema;
+  private final Comparator<Object[]> _comparator;
+  private final int _spillThreshold;
+  private final int _maxNumRows;
+  private final int _maxRowsPerBlock;
+  private final int _maxMergeFanIn;
+  private final int _maxRowsPerRunBlock;
+
+  private List<File> _runFiles = new ArrayList<>();
+  private int _numRunsWritten;
+  private List<Object[]> _rows = new ArrayList<>();
+  @Nullable
+  private File _spillDir;
+  private long _numRowsSpilled;
+  private long _numBytesSpilled;
+
+  // Below are set once all the rows are added
+  private boolean _addFinished;
+  private int _numRowsReturned;
+  private int _inMemoryIndex;
+  @Nullable
+  private PriorityQueue<RunReader> _mergeQueue;
+
+  /**
+   * @param dataSchema Schema of the rows
+   * @param comparator Comparator defining the sort order of the rows
+   * @param spillThreshold Number of rows buffered in memory before writing a sorted run to disk
+   * @param maxNumRows Maximum number of sorted rows to return
+   * @param maxRowsPerBlock Maximum number of rows per block written to disk and returned by {@link #nextRows()}
+   */
+  public ExternalSorter(DataSchema dataSchema, Comparator<Object[]> comparator, int spillThreshold, int maxNumRows,
+      int maxRowsPerBlock) {
+    this(dataSchema, comparator, spillThreshold, maxNumRows, maxRowsPerBlock, DEFAULT_MAX_MERGE_FAN_IN);
+  }
+
+  /**
+   * @param dataSchema Schema of the rows
+   * @param comparator Comparator defining the sort order of the rows
+   * @param spillThreshold Number of rows buffered in memory before writing a sorted run to disk
+   * @param maxNumRows Maximum number of sorted rows to return
+   * @param maxRowsPerBlock Maximum number of rows per block written to disk and returned by {@link #nextRows()}
+   * @param maxMergeFanIn Maximum number of sorted runs merged at once
+   */
+  public ExternalSorter(DataSchema dataSchema, Comparator<Object[]> comparator, int spillThreshold, int maxNumRows,
+      int maxRowsPerBlock, int maxMergeFanIn) {
+    Preconditions.checkArgument(spillThreshold > 0, "Spill threshold must be positive");
+    Preconditions.checkArgument(maxRowsPerBlock > 0, "Max rows per block must be positive");
+    Preconditions.checkArgument(maxMergeFanIn > 1, "Max merge fan-in must be larger than 1");
+    _dataSchema = dataSchema;
+    _comparator = comparator;
+    _spillThreshold = spillThreshold;
+    _maxNumRows = maxNumRows;
+    _maxRowsPerBlock = maxRowsPerBlock;
+    _maxMergeFanIn = maxMergeFanIn;
+    _maxRowsPerRunBlock = Math.max(1, Math.min(maxRowsPerBlock, spillThreshold / maxMergeFanIn));
+  }
+
+  public boolean isSpilled() {
+    return !_runFiles.isEmpty();
+  }
+
+  public long getNumRowsSpilled() {
+    return _numRowsSpilled;
+  }
+
+  public long getNumBytesSpilled() {
+    return _numBytesSpilled;
+  }
+
+  public void addRows(List<Object[]> rows)
+      throws IOException {
+    Preconditions.checkState(!_addFinished, "Cannot add rows after finishing adding rows");
+    _rows.addAll(rows);
+    if (_rows.size() >= _spillThreshold) {
+      spillRun();
+    }
+  }
+
+  private void spillRun()
+      throws IOException {
+    _rows.sort(_comparator);
+    int numRows = Math.min(_rows.size(), _maxNumRows);
+    if (_spillDir == null) {
+      _spillDir = SpillUtils.createSpillDir(SPILL_DIR_PREFIX);
+    }
+    File runFile = newRunFile();
+    _runFiles.add(runFile);
+    try (DataOutputStream outputStream = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(runFile.toPath())))) {
+      for (int from = 0; from < numRows; from += _maxRowsPerRunBlock) {
+        List<Object[]> block = _rows.subList(from, Math.min(from + _maxRowsPerRunBlock, numRows));
+        _numBytesSpilled += SpillUtils.writeRows(outputStream, block, _dataSchema);
+      }
+    }
+    _numRowsSpilled += numRows;
+    // Release the buffered rows
+    _rows = new ArrayList<>();
+  }
+
+  private File newRunFile() {
+    return new File(_spillDir, "run_" + _numRunsWritten++);
+  }
+
+  /**
+   * Finishes adding rows and prepares the sorted output. Must be called before reading the sorted rows.
+   */
+  public void finishAdding()
+      throws IOException {
+    if (_addFinished) {
+      return;
+    }
+    _addFinished = true;
+    if (_runFiles.isEmpty()) {
+      _rows.sort(_comparator);
+      return;
+    }
+    // Also spill the remaining rows so that all the runs are merged in the same format
+    if (!_rows.isEmpty()) {
+      spillRun();
+    }
+    while (_runFiles.size() > _maxMergeFanIn) {
+      mergeRuns();
+    }
+    _mergeQueue = openRuns(_runFiles);
+  }
+
+  /**
+   * Merges each group of {@code maxMergeFanIn} runs into a new run, and deletes the merged runs.
+   */
+  private void mergeRuns()
+      throws IOException {
+    int numRuns = _runFiles.size();
+    List<File> mergedRunFiles = new ArrayList<>((numRuns + _maxMergeFanIn - 1) / _maxMergeFanIn);
+    for (int from = 0; from < numRuns; from += _maxMergeFanIn) {
+      List<File> runFiles = _runFiles.subList(from, Math.min(from + _maxMergeFanIn, numRuns));
+      if (runFiles.size() == 1) {
+        mergedRunFiles.add(runFiles.get(0));
+        continue;
+      }
+      File mergedRunFile = newRunFile();
+      PriorityQueue<RunReader> mergeQueue = openRuns(runFiles);
+      try (DataOutputStream outputStream = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(mergedRunFile.toPath())))) {
+        List<Object[]> block = new ArrayList<>(_maxRowsPerRunBlock);
+        int numRows = 0;
+        while (numRows < _maxNumRows && !mergeQueue.isEmpty()) {
+          block.add(poll(mergeQueue));
+          numRows++;
+          if (block.size() == _maxRowsPerRunBlock) {
+            SpillUtils.writeRows(outputStream, block, _dataSchema);
+            block.clear();
+          }
+        }
+        if (!block.isEmpty()) {
+          SpillUtils.writeRows(outputStream, block, _dataSchema);
+        }
+      } finally {
+        for (RunReader runReader : mergeQueue) {
+          IOUtils.closeQuietly(runReader);
+        }
+      }
+      for (File runFile : runFiles) {
+        FileUtils.deleteQuietly(runFile);
+      }
+      mergedRunFiles.add(mergedRunFile);
+    }
+    _runFiles = mergedRunFiles;
+  }
+
+  private PriorityQueue<RunReader> openRuns(List<File> runFiles)
+      throws IOException {
+    PriorityQueue<RunReader> mergeQueue =
+        new PriorityQueue<>(runFiles.size(), (r1, r2) -> _comparator.compare(r1.peek(), r2.peek()));
+    for (File runFile : runFiles) {
+      RunReader runReader =
+          new RunReader(new DataInputStream(new BufferedInputStream(Files.newInputStream(runFile.toPath()))));
+      if (runReader.advance()) {
+        mergeQueue.add(runReader);
+      } else {
+        runReader.close();
+      }
+    }
+    return mergeQueue;
+  }
+
+  /**
+   * Returns the smallest row from the merge queue, and moves the run to its next row.
+   */
+  private static Object[] poll(PriorityQueue<RunReader> mergeQueue)
+      throws IOException {
+    RunReader runReader = mergeQueue.poll();
+    Object[] row = runReader.peek();
+    if (runReader.advance()) {
+      mergeQueue.add(runReader);
+    } else {
+      runReader.close();
+    }
+    return row;
+  }
+
+  /**
+   * Returns the next block of sorted rows, or {@code null} when all the rows have been returned.
+   */
+  @Nullable
+  public List<Object[]> nextRows()
+      throws IOException {
+    Preconditions.checkState(_addFinished, "Cannot read rows before finishing adding rows");
+    int numRowsToReturn = Math.min(_maxRowsPerBlock, _maxNumRows - _numRowsReturned);
+    if (numRowsToReturn <= 0) {
+      return null;
+    }
+    List<Object[]> rows;
+    if (_mergeQueue == null) {
+      int numRows = Math.min(numRowsToReturn, _rows.size() - _inMemoryIndex);
+      if (numRows <= 0) {
+        return null;
+      }
+      rows = _rows.subList(_inMemoryIndex, _inMemoryIndex + numRows);
+      _inMemoryIndex += numRows;
+    } else {
+      rows = new ArrayList<>(numRowsToReturn);
+      while (rows.size() < numRowsToReturn && !_mergeQueue.isEmpty()) {
+        rows.add(poll(_mergeQueue));
+      }
+      if (rows.isEmpty()) {
+        return null;
+      }
+    }
+    _numRowsReturned += rows.size();
+    return rows;
+  }
+
+  /**
+   * Releases the buffered rows, closes the open files and deletes all the sorted runs.
+   */
+  @Override
+  public void close() {
+    _rows = new ArrayList<>();
+    if (_mergeQueue != null) {
+      for (RunReader runReader : _mergeQueue) {
+        IOUtils.closeQuietly(runReader);
+      }
+      _mergeQueue.clear();
+    }
+    if (_spillDir != null) {
+      FileUtils.deleteQuietly(_spillDir);
+      _spillDir = null;
+    }
+  }
+
+  /**
+   * Reads a sorted run one block at a time, and keeps track of the current row.
+   */
+  private static class RunReader implements Closeable {
+    private final DataInputStream _inputStream;
+    private List<Object[]> _rows;
+    private int _index;
+
+    RunReader(DataInputStream inputStream) {
+      _inputStream = inputStream;
+    }
+
+    Object[] peek() {
+      return _rows.get(_index);
+    }
+
+    /**
+     * Moves to the next row, and returns {@code false} when there is no more row in the run.
+     */
+    boolean advance()
+        throws IOException {
+      if (_rows != null && ++_index < _rows.size()) {
+        return true;
+      }
+      while (true) {
+        _rows = SpillUtils.readRows(_inputStream);
+        if (_rows == null) {
+          return false;
+        }
+        if (!_rows.isEmpty()) {
+          _index = 0;
+          return true;
+        }
+      }
+    }
+
+    @Override
+    public void close()
+        throws IOException {
+      _inputStream.close();
+    }
+  }
+}
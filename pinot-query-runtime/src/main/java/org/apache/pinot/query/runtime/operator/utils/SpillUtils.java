@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.datablock.DataBlock;
+import org.apache.pinot.common.datablock.DataBlockUtils;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.core.common.datablock.DataBlockBuilder;
+import org.apache.pinot.core.util.DataBlockExtractUtils;
+
+
+/**
+ * Utility methods for the operators spilling rows to local disk. Rows are spilled as serialized {@link DataBlock}s,
+ * each prefixed with its size.
+ */
+public class SpillUtils {
+  /**
+   * Max number of rows per spilled block. The value is not exposed as a query option because it does not change how
+   * much data is spilled: it only bounds the rows buffered per sorted run while merging the runs (one block per run),
+   * and the size of the blocks sent downstream, which are both dominated by the spill threshold.
+   */
+  public static final int MAX_ROWS_PER_SPILLED_BLOCK = 10_000;
+
+  private SpillUtils() {
+  }
+
+  /**
+   * Creates a new temporary directory to spill rows into. The caller is responsible for deleting it.
+   */
+  public static File createSpillDir(String prefix)
+      throws IOException {
+    File spillBaseDir = FileUtils.getTempDirectory();
+    FileUtils.forceMkdir(spillBaseDir);
+    return Files.createTempDirectory(spillBaseDir.toPath(), prefix).toFile();
+  }
+
+  /**
+   * Writes the given rows as a single data block, and returns the number of bytes written.
+   */
+  public static long writeRows(DataOutputStream outputStream, List<Object[]> rows, DataSchema dataSchema)
+      throws IOException {
+    List<ByteBuffer> byteBuffers = DataBlockBuilder.buildFromRows(rows, dataSchema).serialize();
+    int size = 0;
+    for (ByteBuffer byteBuffer : byteBuffers) {
+      size += byteBuffer.remaining();
+    }
+    outputStream.writeInt(size);
+    for (ByteBuffer byteBuffer : byteBuffers) {
+      ByteBuffer slice = byteBuffer.slice();
+      if (slice.hasArray()) {
+        outputStream.write(slice.array(), slice.arrayOffset(), slice.remaining());
+      } else {
+        byte[] bytes = new byte[slice.remaining()];
+        slice.get(bytes);
+        outputStream.write(bytes);
+      }
+    }
+    return Integer.BYTES + size;
+  }
+
+  /**
+   * Reads the rows of the next data block, or returns {@code null} when the end of the stream is reached.
+   */
+  @Nullable
+  public static List<Object[]> readRows(DataInputStream inputStream)
+      throws IOException {
+    int size;
+    try {
+      size = inputStream.readInt();
+    } catch (EOFException e) {
+      return null;
+    }
+    byte[] bytes = new byte[size];
+    inputStream.readFully(bytes);
+    return DataBlockExtractUtils.extractRows(DataBlockUtils.readFrom(ByteBuffer.wrap(bytes)));
+  }
+}
@@ -76,6 +76,9 @@ public class ServerPlanRequestUtils {
   }
 
   private static final int DEFAULT_LEAF_NODE_LIMIT = Integer.MAX_VALUE;
+  // Default max number of distinct values in the IN filter for runtime filter, above which a range filter is used
+  // instead. Can be overridden with the join hint runtime_filter_max_in_values.
+  static final int DEFAULT_RUNTIME_FILTER_MAX_IN_VALUES = 1000;
   private static final List<String> QUERY_REWRITERS_CLASS_NAMES =
       ImmutableList.of(PredicateComparisonRewriter.class.getName(),
           NonAggregationGroupByToDistinctQueryRewriter.class.getName(), RlsFiltersRewriter.class.getName());
@@ -339,6 +342,59 @@ public class ServerPlanRequestUtils {
         expressions.add(RequestUtils.getFunctionExpression(FilterKind.IN.name(), operands));
       }
     }
+    addFilterExpressions(pinotQuery, expressions);
+  }
+
+  /**
+   * Attaches the runtime filter built from the right side of an INNER join to the leaf stage query. Different from
+   * {@link #attachDynamicFilter}, the filter does not need to be exact because the actual join is still performed by
+   * the INNER join. When the number of distinct keys is small, an IN filter is attached; otherwise a range filter on
+   * the min/max keys is attached, which is more compact and can also be used to prune segments on their min/max
+   * values.
+   *
+   * @param maxInValues max number of distinct keys attached as an IN filter
+   */
+  static void attachRuntimeFilter(PinotQuery pinotQuery, List<Integer> leftKeys, List<Integer> rightKeys,
+      List<Object[]> dataContainer, DataSchema dataSchema, int maxInValues) {
+    List<Expression> expressions = new ArrayList<>();
+    for (int i = 0; i < leftKeys.size(); i++) {
+      int rightIdx = rightKeys.get(i);
+      // Null keys never match in the join
+      List<Object[]> nonNullKeyRows = new ArrayList<>(dataContainer.size());
+      for (Object[] row : dataContainer) {
+        if (row[rightIdx] != null) {
+          nonNullKeyRows.add(row);
+        }
+      }
+      if (nonNullKeyRows.isEmpty()) {
+        // put a constant false expression
+        expressions.add(RequestUtils.getLiteralExpression(false));
+        continue;
+      }
+      Expression leftExpr = pinotQuery.getSelectList().get(leftKeys.get(i));
+      // The values are sorted, so we can remove the duplicates by comparing to the previous value
+      List<Expression> values = computeInOperands(nonNullKeyRows, dataSchema, rightIdx);
+      List<Expression> operands = new ArrayList<>();
+      operands.add(leftExpr);
+      Expression previousValue = null;
+      for (Expression value : values) {
+        if (!value.equals(previousValue)) {
+          operands.add(value);
+          previousValue = value;
+        }
+      }
+      int numDistinctValues = operands.size() - 1;
+      if (numDistinctValues <= maxInValues) {
+        expressions.add(RequestUtils.getFunctionExpression(FilterKind.IN.name(), operands));
+      } else {
+        expressions.add(RequestUtils.getFunctionExpression(FilterKind.BETWEEN.name(), leftExpr, operands.get(1),
+            operands.get(numDistinctValues)));
+      }
+    }
+    addFilterExpressions(pinotQuery, expressions);
+  }
+
+  private static void addFilterExpressions(PinotQuery pinotQuery, List<Expression> expressions) {
     Expression filterExpression = pinotQuery.getFilterExpression();
     if (filterExpression != null) {
       expressions.add(filterExpression);
@@ -22,7 +22,9 @@ import com.google.common.base.Preconditions;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import org.apache.calcite.rel.RelFieldCollation;
+import org.apache.pinot.calcite.rel.hint.PinotHintOptions;
 import org.apache.pinot.calcite.rel.logical.PinotRelExchangeType;
 import org.apache.pinot.common.request.DataSource;
 import org.apache.pinot.common.request.Expression;
@@ -166,8 +168,13 @@ public class ServerPlanRequestVisitor implements PlanNodeVisitor<Void, ServerPla
           }
         }
         // TODO: we should keep query stats here as well
-        ServerPlanRequestUtils.attachDynamicFilter(context.getPinotQuery(), node.getLeftKeys(), node.getRightKeys(),
-            resultDataContainer, dataSchema);
+        if (isRuntimeFilter(node)) {
+          ServerPlanRequestUtils.attachRuntimeFilter(context.getPinotQuery(), node.getLeftKeys(),
+              node.getRightKeys(), resultDataContainer, dataSchema, getRuntimeFilterMaxInValues(node));
+        } else {
+          ServerPlanRequestUtils.attachDynamicFilter(context.getPinotQuery(), node.getLeftKeys(), node.getRightKeys(),
+              resultDataContainer, dataSchema);
+        }
       }
     } else {
       // For lookup join, visit the right child and set it as the leaf boundary.
@@ -181,6 +188,29 @@ public class ServerPlanRequestVisitor implements PlanNodeVisitor<Void, ServerPla
     return null;
   }
 
+  /**
+   * Returns {@code true} if the SEMI join is added by the planner as runtime filter for an INNER join, in which case
+   * the filter does not need to be exact.
+   */
+  private static boolean isRuntimeFilter(JoinNode node) {
+    Map<String, String> joinOptions = node.getNodeHint().getHintOptions().get(PinotHintOptions.JOIN_HINT_OPTIONS);
+    return joinOptions != null && Boolean.parseBoolean(
+        joinOptions.get(PinotHintOptions.JoinHintOptions.IS_RUNTIME_FILTER));
+  }
+
+  private static int getRuntimeFilterMaxInValues(JoinNode node) {
+    Map<String, String> joinOptions = node.getNodeHint().getHintOptions().get(PinotHintOptions.JOIN_HINT_OPTIONS);
+    String maxInValuesStr =
+        joinOptions != null ? joinOptions.get(PinotHintOptions.JoinHintOptions.RUNTIME_FILTER_MAX_IN_VALUES) : null;
+    if (maxInValuesStr == null) {
+      return ServerPlanRequestUtils.DEFAULT_RUNTIME_FILTER_MAX_IN_VALUES;
+    }
+    int maxInValues = Integer.parseInt(maxInValuesStr);
+    Preconditions.checkArgument(maxInValues >= 0, "Runtime filter max IN values must be non-negative, got: %s",
+        maxInValues);
+    return maxInValues;
+  }
+
   @Override
   public Void visitMailboxReceive(MailboxReceiveNode node, ServerPlanRequestContext context) {
     throw new UnsupportedOperationException("Leaf stage should not visit MailboxReceiveNode!");
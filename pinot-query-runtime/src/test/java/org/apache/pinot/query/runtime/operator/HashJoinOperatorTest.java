@@ -18,6 +18,9 @@
  */
 package org.apache.pinot.query.runtime.operator;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import org.apache.calcite.rel.core.JoinRelType;
@@ -38,9 +41,11 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 import static org.testng.internal.junit.ArrayAsserts.assertArrayEquals;
 
@@ -765,6 +770,184 @@ public class HashJoinOperatorTest {
     assertTrue(containsRow(resultRows, new Object[]{3, "Cc", 3.0}));  // Unmatched preserved
   }
 
+  @Test
+  public void shouldSpillAndJoinPartitions() {
+    List<Object[]> leftRows = new ArrayList<>();
+    List<Object[]> rightRows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      leftRows.add(new Object[]{i % 10 == 0 ? null : i, "left_" + i});
+      // Duplicate keys and keys without match on the left side
+      rightRows.add(new Object[]{i % 7 == 0 ? null : i / 2 + 50, "right_" + i});
+    }
+    DataSchema joinedSchema = new DataSchema(new String[]{"int_col1", "string_col1", "int_col2", "string_col2"},
+        new ColumnDataType[]{ColumnDataType.INT, ColumnDataType.STRING, ColumnDataType.INT, ColumnDataType.STRING});
+    PlanNode.NodeHint spillHint = new PlanNode.NodeHint(Map.of(PinotHintOptions.JOIN_HINT_OPTIONS,
+        Map.of(PinotHintOptions.JoinHintOptions.SPILL_THRESHOLD, "10")));
+    for (JoinRelType joinType : List.of(JoinRelType.INNER, JoinRelType.LEFT, JoinRelType.RIGHT, JoinRelType.FULL,
+        JoinRelType.SEMI, JoinRelType.ANTI)) {
+      DataSchema resultSchema =
+          joinType == JoinRelType.SEMI || joinType == JoinRelType.ANTI ? DEFAULT_CHILD_SCHEMA : joinedSchema;
+      List<String> expectedRows =
+          getAllRows(getOperatorWithInputs(leftRows, rightRows, resultSchema, joinType, PlanNode.NodeHint.EMPTY));
+      HashJoinOperator operator = getOperatorWithInputs(leftRows, rightRows, resultSchema, joinType, spillHint);
+      List<String> actualRows = getAllRows(operator);
+      assertFalse(expectedRows.isEmpty());
+      assertEquals(actualRows, expectedRows, "Unexpected rows for join type: " + joinType);
+      StatMap<HashJoinOperator.StatKey> statMap =
+          OperatorTestUtil.getStatMap(HashJoinOperator.StatKey.class, operator.calculateStats());
+      assertTrue(statMap.getLong(HashJoinOperator.StatKey.SPILLED_BYTES) > 0);
+      // All the non-null key rows from both sides are spilled, as well as the null key right rows for RIGHT and FULL
+      // joins
+      int numSpilledNullKeyRightRows = joinType == JoinRelType.RIGHT || joinType == JoinRelType.FULL ? 15 : 0;
+      assertEquals(statMap.getLong(HashJoinOperator.StatKey.SPILLED_ROWS), 90 + 85 + numSpilledNullKeyRightRows);
+    }
+  }
+
+  @Test
+  public void shouldSpillAndJoinWithConfiguredNumPartitions() {
+    List<Object[]> leftRows = new ArrayList<>();
+    List<Object[]> rightRows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      leftRows.add(new Object[]{i, "left_" + i});
+      rightRows.add(new Object[]{i / 2 + 25, "right_" + i});
+    }
+    DataSchema resultSchema = new DataSchema(new String[]{"int_col1", "string_col1", "int_col2", "string_col2"},
+        new ColumnDataType[]{ColumnDataType.INT, ColumnDataType.STRING, ColumnDataType.INT, ColumnDataType.STRING});
+    List<String> expectedRows =
+        getAllRows(getOperatorWithInputs(leftRows, rightRows, resultSchema, JoinRelType.FULL, PlanNode.NodeHint.EMPTY));
+    for (String numSpillPartitions : List.of("1", "3", "64")) {
+      PlanNode.NodeHint spillHint = new PlanNode.NodeHint(Map.of(PinotHintOptions.JOIN_HINT_OPTIONS,
+          Map.of(PinotHintOptions.JoinHintOptions.SPILL_THRESHOLD, "10",
+              PinotHintOptions.JoinHintOptions.NUM_SPILL_PARTITIONS, numSpillPartitions)));
+      assertEquals(getAllRows(getOperatorWithInputs(leftRows, rightRows, resultSchema, JoinRelType.FULL, spillHint)),
+          expectedRows, "Unexpected rows for number of spill partitions: " + numSpillPartitions);
+    }
+  }
+
+  @Test
+  public void shouldNotSpillUnderThreshold() {
+    List<Object[]> leftRows = List.of(new Object[]{1, "Aa"}, new Object[]{2, "BB"});
+    List<Object[]> rightRows = List.of(new Object[]{2, "Aa"}, new Object[]{2, "BB"}, new Object[]{3, "BB"});
+    DataSchema resultSchema = new DataSchema(new String[]{"int_col1", "string_col1", "int_col2", "string_col2"},
+        new ColumnDataType[]{ColumnDataType.INT, ColumnDataType.STRING, ColumnDataType.INT, ColumnDataType.STRING});
+    PlanNode.NodeHint spillHint = new PlanNode.NodeHint(Map.of(PinotHintOptions.JOIN_HINT_OPTIONS,
+        Map.of(PinotHintOptions.JoinHintOptions.SPILL_THRESHOLD, "10")));
+    HashJoinOperator operator = getOperatorWithInputs(leftRows, rightRows, resultSchema, JoinRelType.INNER, spillHint);
+    assertEquals(getAllRows(operator), List.of("[2, BB, 2, Aa]", "[2, BB, 2, BB]"));
+    StatMap<HashJoinOperator.StatKey> statMap =
+        OperatorTestUtil.getStatMap(HashJoinOperator.StatKey.class, operator.calculateStats());
+    assertEquals(statMap.getLong(HashJoinOperator.StatKey.SPILLED_BYTES), 0);
+  }
+
+  @Test
+  public void shouldThrowWhenSpilledPartitionExceedsRowsLimit() {
+    List<Object[]> leftRows = List.<Object[]>of(new Object[]{1, "Aa"});
+    List<Object[]> rightRows = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      // All the rows share the same key, thus the same partition
+      rightRows.add(new Object[]{1, "right_" + i});
+    }
+    DataSchema resultSchema = new DataSchema(new String[]{"int_col1", "string_col1", "int_col2", "string_col2"},
+        new ColumnDataType[]{ColumnDataType.INT, ColumnDataType.STRING, ColumnDataType.INT, ColumnDataType.STRING});
+    PlanNode.NodeHint spillHint = new PlanNode.NodeHint(Map.of(PinotHintOptions.JOIN_HINT_OPTIONS,
+        Map.of(PinotHintOptions.JoinHintOptions.SPILL_THRESHOLD, "2", PinotHintOptions.JoinHintOptions.MAX_ROWS_IN_JOIN,
+            "5")));
+    HashJoinOperator operator = getOperatorWithInputs(leftRows, rightRows, resultSchema, JoinRelType.INNER, spillHint);
+    MseBlock block = operator.nextBlock();
+    assertTrue(block.isError());
+    assertTrue(((ErrorMseBlock) block).getErrorMessages().get(QueryErrorCode.SERVER_RESOURCE_LIMIT_EXCEEDED)
+        .contains("Cannot build in memory hash table for spilled partition"));
+  }
+
+  @Test
+  public void shouldTruncateSpilledPartitionWithoutEarlyTerminatingRightInputInBreakMode() {
+    List<Object[]> leftRows = List.<Object[]>of(new Object[]{1, "Aa"});
+    List<Object[]> rightRows = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      // All the rows share the same key, thus the same partition
+      rightRows.add(new Object[]{1, "right_" + i});
+    }
+    DataSchema resultSchema = new DataSchema(new String[]{"int_col1", "string_col1", "int_col2", "string_col2"},
+        new ColumnDataType[]{ColumnDataType.INT, ColumnDataType.STRING, ColumnDataType.INT, ColumnDataType.STRING});
+    PlanNode.NodeHint spillHint = new PlanNode.NodeHint(Map.of(PinotHintOptions.JOIN_HINT_OPTIONS,
+        Map.of(PinotHintOptions.JoinHintOptions.SPILL_THRESHOLD, "2", PinotHintOptions.JoinHintOptions.MAX_ROWS_IN_JOIN,
+            "5", PinotHintOptions.JoinHintOptions.JOIN_OVERFLOW_MODE, "BREAK")));
+    HashJoinOperator operator = getOperatorWithInputs(leftRows, rightRows, resultSchema, JoinRelType.INNER, spillHint);
+    assertEquals(getAllRows(operator).size(), 5);
+    // The right input is fully spilled instead of being early terminated
+    Mockito.verify(_rightInput, Mockito.never()).earlyTerminate();
+    StatMap<HashJoinOperator.StatKey> statMap =
+        OperatorTestUtil.getStatMap(HashJoinOperator.StatKey.class, operator.calculateStats());
+    assertTrue(statMap.getBoolean(HashJoinOperator.StatKey.MAX_ROWS_IN_JOIN_REACHED));
+    assertEquals(statMap.getLong(HashJoinOperator.StatKey.SPILLED_ROWS), 10 + 1);
+  }
+
+  @Test
+  public void shouldCapSpillThresholdWithRowsLimit() {
+    List<Object[]> leftRows = List.<Object[]>of(new Object[]{1, "Aa"});
+    List<Object[]> rightRows = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      rightRows.add(new Object[]{i, "right_" + i});
+    }
+    DataSchema resultSchema = new DataSchema(new String[]{"int_col1", "string_col1", "int_col2", "string_col2"},
+        new ColumnDataType[]{ColumnDataType.INT, ColumnDataType.STRING, ColumnDataType.INT, ColumnDataType.STRING});
+    // The spill threshold is above the rows limit, so the right table is spilled once it reaches the rows limit
+    PlanNode.NodeHint spillHint = new PlanNode.NodeHint(Map.of(PinotHintOptions.JOIN_HINT_OPTIONS,
+        Map.of(PinotHintOptions.JoinHintOptions.SPILL_THRESHOLD, "100",
+            PinotHintOptions.JoinHintOptions.MAX_ROWS_IN_JOIN, "5")));
+    HashJoinOperator operator = getOperatorWithInputs(leftRows, rightRows, resultSchema, JoinRelType.INNER, spillHint);
+    assertEquals(getAllRows(operator), List.of("[1, Aa, 1, right_1]"));
+    StatMap<HashJoinOperator.StatKey> statMap =
+        OperatorTestUtil.getStatMap(HashJoinOperator.StatKey.class, operator.calculateStats());
+    assertTrue(statMap.getLong(HashJoinOperator.StatKey.SPILLED_BYTES) > 0);
+  }
+
+  private HashJoinOperator getOperatorWithInputs(List<Object[]> leftRows, List<Object[]> rightRows,
+      DataSchema resultSchema, JoinRelType joinType, PlanNode.NodeHint nodeHint) {
+    BlockListMultiStageOperator.Builder leftBuilder = new BlockListMultiStageOperator.Builder(DEFAULT_CHILD_SCHEMA);
+    for (int i = 0; i < leftRows.size(); i++) {
+      leftBuilder.addRow(leftRows.get(i));
+      if (i % 30 == 29) {
+        leftBuilder.finishBlock();
+      }
+    }
+    _leftInput = leftBuilder.buildWithEos();
+    BlockListMultiStageOperator.Builder rightBuilder =
+        new BlockListMultiStageOperator.Builder(DEFAULT_CHILD_SCHEMA).spied();
+    for (int i = 0; i < rightRows.size(); i++) {
+      rightBuilder.addRow(rightRows.get(i));
+      if (i % 30 == 29) {
+        rightBuilder.finishBlock();
+      }
+    }
+    _rightInput = rightBuilder.buildWithEos();
+    PlanNode leftNode = mock(PlanNode.class);
+    when(leftNode.getDataSchema()).thenReturn(DEFAULT_CHILD_SCHEMA);
+    PlanNode rightNode = mock(PlanNode.class);
+    when(rightNode.getDataSchema()).thenReturn(DEFAULT_CHILD_SCHEMA);
+    return new HashJoinOperator(OperatorTestUtil.getTracingContext(), _leftInput, DEFAULT_CHILD_SCHEMA, _rightInput,
+        new JoinNode(-1, resultSchema, nodeHint, List.of(leftNode, rightNode), joinType, List.of(0), List.of(0),
+            List.of(), JoinNode.JoinStrategy.HASH));
+  }
+
+  /**
+   * Returns all the rows from the operator in a sorted string format so that they can be compared regardless of the
+   * order.
+   */
+  private static List<String> getAllRows(MultiStageOperator operator) {
+    List<String> rows = new ArrayList<>();
+    MseBlock block = operator.nextBlock();
+    while (block.isData()) {
+      for (Object[] row : ((MseBlock.Data) block).asRowHeap().getRows()) {
+        rows.add(Arrays.toString(row));
+      }
+      block = operator.nextBlock();
+    }
+    assertTrue(block.isSuccess());
+    Collections.sort(rows);
+    return rows;
+  }
+
   private HashJoinOperator getOperator(DataSchema leftSchema, DataSchema resultSchema, JoinRelType joinType,
       List<Integer> leftKeys, List<Integer> rightKeys, List<RexExpression> nonEquiConditions,
       PlanNode.NodeHint nodeHint) {
@@ -18,10 +18,15 @@
  */
 package org.apache.pinot.query.runtime.operator;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import org.apache.calcite.rel.RelFieldCollation;
 import org.apache.calcite.rel.RelFieldCollation.Direction;
 import org.apache.calcite.rel.RelFieldCollation.NullDirection;
+import org.apache.pinot.common.datatable.StatMap;
 import org.apache.pinot.common.utils.DataSchema;
 import org.apache.pinot.query.planner.plannode.PlanNode;
 import org.apache.pinot.query.planner.plannode.SortNode;
@@ -30,6 +35,8 @@ import org.apache.pinot.query.runtime.blocks.ErrorMseBlock;
 import org.apache.pinot.query.runtime.blocks.MseBlock;
 import org.apache.pinot.query.runtime.blocks.RowHeapDataBlock;
 import org.apache.pinot.query.runtime.blocks.SuccessMseBlock;
+import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
+import org.apache.pinot.spi.utils.CommonConstants.Broker.Request.QueryOptionKey;
 import org.mockito.Mock;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -39,6 +46,7 @@ import static org.apache.pinot.common.utils.DataSchema.ColumnDataType.INT;
 import static org.apache.pinot.common.utils.DataSchema.ColumnDataType.LONG;
 import static org.apache.pinot.common.utils.DataSchema.ColumnDataType.STRING;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
 import static org.testng.Assert.assertEquals;
@@ -340,12 +348,46 @@ public class SortOperatorTest {
     SortOperator operator = getOperator(schema, collations);
 
     // When:
-    List<Object[]> resultRows = ((MseBlock.Data) operator.nextBlock()).asRowHeap().getRows();
+    List<Object[]> resultRows1 = ((MseBlock.Data) operator.nextBlock()).asRowHeap().getRows();
+    List<Object[]> resultRows2 = ((MseBlock.Data) operator.nextBlock()).asRowHeap().getRows();
 
     // Then:
-    assertEquals(resultRows.size(), 2);
-    assertEquals(resultRows.get(0), new Object[]{1});
-    assertEquals(resultRows.get(1), new Object[]{2});
+    // The sorted input blocks are streamed through
+    assertEquals(resultRows1.size(), 1);
+    assertEquals(resultRows1.get(0), new Object[]{1});
+    assertEquals(resultRows2.size(), 1);
+    assertEquals(resultRows2.get(0), new Object[]{2});
+    assertTrue(operator.nextBlock().isSuccess(), "expected EOS block to propagate");
+  }
+
+  @Test
+  public void shouldStreamOffsetLimitAcrossInputBlocksInputSorted() {
+    // Given:
+    DataSchema schema = new DataSchema(new String[]{"sort"}, new DataSchema.ColumnDataType[]{INT});
+    SortedMailboxReceiveOperator input = mock(SortedMailboxReceiveOperator.class);
+    _input = input;
+    when(_input.nextBlock()).thenReturn(block(schema, new Object[]{1}, new Object[]{2}))
+        .thenReturn(block(schema, new Object[]{3}, new Object[]{4}, new Object[]{5}))
+        .thenReturn(block(schema, new Object[]{6}, new Object[]{7}))
+        .thenReturn(block(schema, new Object[]{8}))
+        .thenReturn(SuccessMseBlock.INSTANCE);
+    List<RelFieldCollation> collations = List.of(new RelFieldCollation(0, Direction.ASCENDING, NullDirection.LAST));
+    SortOperator operator = getOperator(schema, collations, 4, 3);
+
+    // When:
+    List<Object[]> resultRows1 = ((MseBlock.Data) operator.nextBlock()).asRowHeap().getRows();
+    List<Object[]> resultRows2 = ((MseBlock.Data) operator.nextBlock()).asRowHeap().getRows();
+
+    // Then:
+    // The sorted input only needs to return offset + fetch rows
+    verify(input).setMaxNumRows(7);
+    assertEquals(resultRows1.size(), 2);
+    assertEquals(resultRows1.get(0), new Object[]{4});
+    assertEquals(resultRows1.get(1), new Object[]{5});
+    assertEquals(resultRows2.size(), 2);
+    assertEquals(resultRows2.get(0), new Object[]{6});
+    assertEquals(resultRows2.get(1), new Object[]{7});
+    // The rows after the limit are dropped
     assertTrue(operator.nextBlock().isSuccess(), "expected EOS block to propagate");
   }
 
@@ -499,6 +541,83 @@ public class SortOperatorTest {
     assertTrue(operator.nextBlock().isSuccess(), "expected EOS block to propagate");
   }
 
+  @Test
+  public void shouldSpillAndMergeSortedRuns() {
+    // Given:
+    DataSchema schema = new DataSchema(new String[]{"sort"}, new DataSchema.ColumnDataType[]{INT});
+    List<Integer> values = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      values.add(i);
+    }
+    Collections.shuffle(values, new Random(42));
+    List<MseBlock> blocks = new ArrayList<>();
+    for (int i = 0; i < 100; i += 10) {
+      List<Object[]> rows = new ArrayList<>();
+      for (int j = i; j < i + 10; j++) {
+        rows.add(new Object[]{values.get(j)});
+      }
+      blocks.add(new RowHeapDataBlock(rows, schema));
+    }
+    blocks.add(SuccessMseBlock.INSTANCE);
+    List<RelFieldCollation> collations = List.of(new RelFieldCollation(0, Direction.DESCENDING, NullDirection.LAST));
+    SortOperator operator = getSpillingOperator(schema, collations, 30, 5, 15, blocks);
+
+    // When:
+    List<Object[]> resultRows = getAllRows(operator);
+
+    // Then:
+    assertEquals(resultRows.size(), 30);
+    for (int i = 0; i < 30; i++) {
+      assertEquals(resultRows.get(i), new Object[]{94 - i});
+    }
+    StatMap<SortOperator.StatKey> statMap =
+        OperatorTestUtil.getStatMap(SortOperator.StatKey.class, operator.calculateStats());
+    assertTrue(statMap.getBoolean(SortOperator.StatKey.REQUIRE_SORT));
+    assertTrue(statMap.getLong(SortOperator.StatKey.SPILLED_BYTES) > 0);
+    // Each spilled run is truncated to the number of rows to keep
+    assertTrue(statMap.getLong(SortOperator.StatKey.SPILLED_ROWS) <= 100);
+  }
+
+  @Test
+  public void shouldNotSpillUnderSpillThreshold() {
+    // Given:
+    DataSchema schema = new DataSchema(new String[]{"sort"}, new DataSchema.ColumnDataType[]{INT});
+    List<MseBlock> blocks =
+        List.of(block(schema, new Object[]{2}, new Object[]{3}, new Object[]{1}), SuccessMseBlock.INSTANCE);
+    List<RelFieldCollation> collations = List.of(new RelFieldCollation(0, Direction.ASCENDING, NullDirection.LAST));
+    SortOperator operator = getSpillingOperator(schema, collations, 10, 1, 5, blocks);
+
+    // When:
+    List<Object[]> resultRows = getAllRows(operator);
+
+    // Then:
+    assertEquals(resultRows.size(), 2);
+    assertEquals(resultRows.get(0), new Object[]{2});
+    assertEquals(resultRows.get(1), new Object[]{3});
+    StatMap<SortOperator.StatKey> statMap =
+        OperatorTestUtil.getStatMap(SortOperator.StatKey.class, operator.calculateStats());
+    assertEquals(statMap.getLong(SortOperator.StatKey.SPILLED_BYTES), 0);
+  }
+
+  private static SortOperator getSpillingOperator(DataSchema schema, List<RelFieldCollation> collations, int fetch,
+      int offset, int spillThreshold, List<MseBlock> inputBlocks) {
+    OpChainExecutionContext context =
+        OperatorTestUtil.getContext(Map.of(QueryOptionKey.SORT_SPILL_THRESHOLD, Integer.toString(spillThreshold)));
+    return new SortOperator(context, new BlockListMultiStageOperator(context, inputBlocks),
+        new SortNode(-1, schema, PlanNode.NodeHint.EMPTY, List.of(), collations, fetch, offset));
+  }
+
+  private static List<Object[]> getAllRows(SortOperator operator) {
+    List<Object[]> rows = new ArrayList<>();
+    MseBlock block = operator.nextBlock();
+    while (block.isData()) {
+      rows.addAll(((MseBlock.Data) block).asRowHeap().getRows());
+      block = operator.nextBlock();
+    }
+    assertTrue(block.isSuccess(), "expected EOS block to propagate");
+    return rows;
+  }
+
   private SortOperator getOperator(DataSchema schema, List<RelFieldCollation> collations, int fetch, int offset) {
     return new SortOperator(OperatorTestUtil.getTracingContext(), _input,
         new SortNode(-1, schema, PlanNode.NodeHint.EMPTY, List.of(), collations, fetch, offset));
@@ -18,6 +18,8 @@
  */
 package org.apache.pinot.query.runtime.operator;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -41,6 +43,7 @@ import org.apache.pinot.query.runtime.blocks.ErrorMseBlock;
 import org.apache.pinot.query.runtime.blocks.MseBlock;
 import org.apache.pinot.query.runtime.plan.OpChainExecutionContext;
 import org.apache.pinot.spi.exception.QueryErrorCode;
+import org.apache.pinot.spi.utils.CommonConstants.Broker.Request.QueryOptionKey;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.testng.annotations.AfterMethod;
@@ -252,9 +255,92 @@ public class SortedMailboxReceiveOperatorTest {
     }
   }
 
+  @Test
+  public void shouldSpillAndMergeReceivedRows() {
+    when(_mailboxService.getReceivingMailbox(eq(MAILBOX_ID_1))).thenReturn(_mailbox1);
+    Object[] row1 = new Object[]{3, 3};
+    Object[] row2 = new Object[]{1, 1};
+    Object[] row3 = new Object[]{null, 5};
+    when(_mailbox1.poll()).thenReturn(
+        OperatorTestUtil.blockWithStats(DATA_SCHEMA, row1, row2),
+        OperatorTestUtil.blockWithStats(DATA_SCHEMA, row3),
+        OperatorTestUtil.eosWithEmptyStats());
+    when(_mailboxService.getReceivingMailbox(eq(MAILBOX_ID_2))).thenReturn(_mailbox2);
+    Object[] row4 = new Object[]{4, 2};
+    Object[] row5 = new Object[]{2, 4};
+    Object[] row6 = new Object[]{-1, 95};
+    when(_mailbox2.poll()).thenReturn(
+        OperatorTestUtil.blockWithStats(DATA_SCHEMA, row4, row5),
+        OperatorTestUtil.blockWithStats(DATA_SCHEMA, row6),
+        OperatorTestUtil.eosWithEmptyStats());
+    try (SortedMailboxReceiveOperator operator = getOperator(_stageMetadataBoth,
+        RelDistribution.Type.HASH_DISTRIBUTED, DATA_SCHEMA, FIELD_COLLATIONS, Long.MAX_VALUE,
+        Map.of(QueryOptionKey.SORT_SPILL_THRESHOLD, "2"))) {
+      // Rows are read back from the spilled runs, so compare the values
+      List<List<Object>> rows = new ArrayList<>();
+      MseBlock block = operator.nextBlock();
+      while (block.isData()) {
+        for (Object[] row : ((MseBlock.Data) block).asRowHeap().getRows()) {
+          rows.add(Arrays.asList(row));
+        }
+        block = operator.nextBlock();
+      }
+      assertTrue(block.isSuccess());
+      assertEquals(rows,
+          Stream.of(row6, row2, row5, row1, row4, row3).map(Arrays::asList).collect(Collectors.toList()));
+      StatMap<BaseMailboxReceiveOperator.StatKey> statMap =
+          OperatorTestUtil.getStatMap(BaseMailboxReceiveOperator.StatKey.class, operator.calculateStats());
+      assertTrue(statMap.getLong(BaseMailboxReceiveOperator.StatKey.SPILLED_BYTES) > 0);
+      assertEquals(statMap.getLong(BaseMailboxReceiveOperator.StatKey.SPILLED_ROWS), 6);
+    }
+  }
+
+  @Test
+  public void shouldOnlyReturnMaxNumRows() {
+    for (Map<String, String> opChainMetadata : List.of(Map.<String, String>of(),
+        Map.of(QueryOptionKey.SORT_SPILL_THRESHOLD, "2"))) {
+      when(_mailboxService.getReceivingMailbox(eq(MAILBOX_ID_1))).thenReturn(_mailbox1);
+      Object[] row1 = new Object[]{3, 3};
+      Object[] row2 = new Object[]{1, 1};
+      Object[] row3 = new Object[]{5, 5};
+      when(_mailbox1.poll()).thenReturn(
+          OperatorTestUtil.blockWithStats(DATA_SCHEMA, row1, row2),
+          OperatorTestUtil.blockWithStats(DATA_SCHEMA, row3),
+          OperatorTestUtil.eosWithEmptyStats());
+      when(_mailboxService.getReceivingMailbox(eq(MAILBOX_ID_2))).thenReturn(_mailbox2);
+      Object[] row4 = new Object[]{4, 2};
+      Object[] row5 = new Object[]{2, 4};
+      when(_mailbox2.poll()).thenReturn(
+          OperatorTestUtil.blockWithStats(DATA_SCHEMA, row4, row5),
+          OperatorTestUtil.eosWithEmptyStats());
+      try (SortedMailboxReceiveOperator operator = getOperator(_stageMetadataBoth,
+          RelDistribution.Type.HASH_DISTRIBUTED, DATA_SCHEMA, FIELD_COLLATIONS, Long.MAX_VALUE, opChainMetadata)) {
+        operator.setMaxNumRows(3);
+        List<List<Object>> rows = new ArrayList<>();
+        MseBlock block = operator.nextBlock();
+        while (block.isData()) {
+          for (Object[] row : ((MseBlock.Data) block).asRowHeap().getRows()) {
+            rows.add(Arrays.asList(row));
+          }
+          block = operator.nextBlock();
+        }
+        assertTrue(block.isSuccess());
+        assertEquals(rows, Stream.of(row2, row5, row1).map(Arrays::asList).collect(Collectors.toList()),
+            "Unexpected rows with query options: " + opChainMetadata);
+      }
+    }
+  }
+
   private SortedMailboxReceiveOperator getOperator(StageMetadata stageMetadata, RelDistribution.Type distributionType,
       DataSchema resultSchema, List<RelFieldCollation> collations, long deadlineMs) {
-    OpChainExecutionContext context = OperatorTestUtil.getOpChainContext(_mailboxService, deadlineMs, stageMetadata);
+    return getOperator(stageMetadata, distributionType, resultSchema, collations, deadlineMs, Map.of());
+  }
+
+  private SortedMailboxReceiveOperator getOperator(StageMetadata stageMetadata, RelDistribution.Type distributionType,
+      DataSchema resultSchema, List<RelFieldCollation> collations, long deadlineMs,
+      Map<String, String> opChainMetadata) {
+    OpChainExecutionContext context =
+        OperatorTestUtil.getOpChainContext(_mailboxService, deadlineMs, stageMetadata, opChainMetadata);
     MailboxReceiveNode node = mock(MailboxReceiveNode.class);
     when(node.getDistributionType()).thenReturn(distributionType);
     when(node.getSenderStageId()).thenReturn(1);
@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.operator.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+
+public class ExternalSorterTest {
+  private static final DataSchema DATA_SCHEMA =
+      new DataSchema(new String[]{"value"}, new ColumnDataType[]{ColumnDataType.INT});
+  private static final Comparator<Object[]> COMPARATOR = Comparator.comparingInt(row -> (int) row[0]);
+  private static final int NUM_ROWS = 1000;
+
+  @Test
+  public void testMultiPassMerge()
+      throws IOException {
+    // 50 runs merged with fan-in of 4 requires multiple passes
+    try (ExternalSorter externalSorter = new ExternalSorter(DATA_SCHEMA, COMPARATOR, 20, NUM_ROWS, 100, 4)) {
+      addShuffledRows(externalSorter);
+      assertTrue(externalSorter.isSpilled());
+      List<Object[]> rows = readAllRows(externalSorter, 100);
+      assertEquals(rows.size(), NUM_ROWS);
+      for (int i = 0; i < NUM_ROWS; i++) {
+        assertEquals(rows.get(i)[0], i);
+      }
+    }
+  }
+
+  @Test
+  public void testMultiPassMergeWithLimit()
+      throws IOException {
+    try (ExternalSorter externalSorter = new ExternalSorter(DATA_SCHEMA, COMPARATOR, 20, 30, 7, 3)) {
+      addShuffledRows(externalSorter);
+      List<Object[]> rows = readAllRows(externalSorter, 7);
+      assertEquals(rows.size(), 30);
+      for (int i = 0; i < 30; i++) {
+        assertEquals(rows.get(i)[0], i);
+      }
+    }
+  }
+
+  @Test
+  public void testWithoutSpill()
+      throws IOException {
+    try (ExternalSorter externalSorter = new ExternalSorter(DATA_SCHEMA, COMPARATOR, NUM_ROWS + 1, NUM_ROWS, 100)) {
+      addShuffledRows(externalSorter);
+      assertFalse(externalSorter.isSpilled());
+      List<Object[]> rows = readAllRows(externalSorter, 100);
+      assertEquals(rows.size(), NUM_ROWS);
+      for (int i = 0; i < NUM_ROWS; i++) {
+        assertEquals(rows.get(i)[0], i);
+      }
+    }
+  }
+
+  private static void addShuffledRows(ExternalSorter externalSorter)
+      throws IOException {
+    List<Object[]> rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      rows.add(new Object[]{i});
+    }
+    Collections.shuffle(rows, new Random(42));
+    for (int i = 0; i < NUM_ROWS; i += 10) {
+      externalSorter.addRows(rows.subList(i, i + 10));
+    }
+    externalSorter.finishAdding();
+  }
+
+  private static List<Object[]> readAllRows(ExternalSorter externalSorter, int maxRowsPerBlock)
+      throws IOException {
+    List<Object[]> rows = new ArrayList<>();
+    List<Object[]> block;
+    while ((block = externalSorter.nextRows()) != null) {
+      assertTrue(block.size() <= maxRowsPerBlock);
+      rows.addAll(block);
+    }
+    return rows;
+  }
+}
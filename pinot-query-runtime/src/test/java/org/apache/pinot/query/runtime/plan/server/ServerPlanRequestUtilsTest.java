@@ -0,0 +1,121 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.query.runtime.plan.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.pinot.common.request.Expression;
+import org.apache.pinot.common.request.Function;
+import org.apache.pinot.common.request.PinotQuery;
+import org.apache.pinot.common.utils.DataSchema;
+import org.apache.pinot.common.utils.DataSchema.ColumnDataType;
+import org.apache.pinot.common.utils.request.RequestUtils;
+import org.apache.pinot.sql.FilterKind;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+
+
+public class ServerPlanRequestUtilsTest {
+  private static final DataSchema DATA_SCHEMA =
+      new DataSchema(new String[]{"key"}, new ColumnDataType[]{ColumnDataType.INT});
+  private static final Expression LEFT_KEY = RequestUtils.getIdentifierExpression("col1");
+
+  @Test
+  public void testRuntimeFilterIn() {
+    // Duplicate and null keys are not counted as distinct values
+    PinotQuery pinotQuery = getPinotQuery();
+    ServerPlanRequestUtils.attachRuntimeFilter(pinotQuery, List.of(0), List.of(0), getRows(3, 1, null, 2, 3, 1),
+        DATA_SCHEMA, 3);
+    Function function = getFilterFunction(pinotQuery);
+    assertEquals(function.getOperator(), FilterKind.IN.name());
+    assertEquals(function.getOperands(), List.of(LEFT_KEY, RequestUtils.getLiteralExpression(1),
+        RequestUtils.getLiteralExpression(2), RequestUtils.getLiteralExpression(3)));
+  }
+
+  @Test
+  public void testRuntimeFilterBetween() {
+    // One more distinct key than the max IN values
+    PinotQuery pinotQuery = getPinotQuery();
+    ServerPlanRequestUtils.attachRuntimeFilter(pinotQuery, List.of(0), List.of(0), getRows(5, 1, 4, 2, 1),
+        DATA_SCHEMA, 3);
+    Function function = getFilterFunction(pinotQuery);
+    assertEquals(function.getOperator(), FilterKind.BETWEEN.name());
+    assertEquals(function.getOperands(),
+        List.of(LEFT_KEY, RequestUtils.getLiteralExpression(1), RequestUtils.getLiteralExpression(5)));
+
+    // No IN filter at all when the max IN values is 0
+    pinotQuery = getPinotQuery();
+    ServerPlanRequestUtils.attachRuntimeFilter(pinotQuery, List.of(0), List.of(0), getRows(7), DATA_SCHEMA, 0);
+    function = getFilterFunction(pinotQuery);
+    assertEquals(function.getOperator(), FilterKind.BETWEEN.name());
+    assertEquals(function.getOperands(),
+        List.of(LEFT_KEY, RequestUtils.getLiteralExpression(7), RequestUtils.getLiteralExpression(7)));
+  }
+
+  @Test
+  public void testRuntimeFilterEmptyBuildSide() {
+    for (List<Object[]> rows : List.of(new ArrayList<Object[]>(), getRows(null, null))) {
+      PinotQuery pinotQuery = getPinotQuery();
+      ServerPlanRequestUtils.attachRuntimeFilter(pinotQuery, List.of(0), List.of(0), rows, DATA_SCHEMA, 3);
+      Expression filterExpression = pinotQuery.getFilterExpression();
+      assertNotNull(filterExpression);
+      assertNotNull(filterExpression.getLiteral());
+      assertFalse(filterExpression.getLiteral().getBoolValue());
+    }
+  }
+
+  @Test
+  public void testRuntimeFilterWithExistingFilter() {
+    PinotQuery pinotQuery = getPinotQuery();
+    Expression existingFilter = RequestUtils.getFunctionExpression(FilterKind.GREATER_THAN.name(),
+        RequestUtils.getIdentifierExpression("col2"), RequestUtils.getLiteralExpression(0));
+    pinotQuery.setFilterExpression(existingFilter);
+    ServerPlanRequestUtils.attachRuntimeFilter(pinotQuery, List.of(0), List.of(0), getRows(1, 2), DATA_SCHEMA, 3);
+    Function function = getFilterFunction(pinotQuery);
+    assertEquals(function.getOperator(), FilterKind.AND.name());
+    List<Expression> operands = function.getOperands();
+    assertEquals(operands.size(), 2);
+    assertEquals(operands.get(0).getFunctionCall().getOperator(), FilterKind.IN.name());
+    assertEquals(operands.get(1), existingFilter);
+  }
+
+  private static PinotQuery getPinotQuery() {
+    PinotQuery pinotQuery = new PinotQuery();
+    pinotQuery.setSelectList(new ArrayList<>(List.of(LEFT_KEY)));
+    return pinotQuery;
+  }
+
+  private static List<Object[]> getRows(Integer... keys) {
+    List<Object[]> rows = new ArrayList<>(keys.length);
+    Arrays.stream(keys).forEach(key -> rows.add(new Object[]{key}));
+    return rows;
+  }
+
+  private static Function getFilterFunction(PinotQuery pinotQuery) {
+    Expression filterExpression = pinotQuery.getFilterExpression();
+    assertNotNull(filterExpression);
+    Function function = filterExpression.getFunctionCall();
+    assertNotNull(function);
+    return function;
+  }
+}
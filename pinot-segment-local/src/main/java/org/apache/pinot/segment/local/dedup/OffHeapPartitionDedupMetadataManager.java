@@ -0,0 +1,488 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.dedup;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.pinot.common.metrics.ServerGauge;
+import org.apache.pinot.segment.local.utils.HashUtils;
+import org.apache.pinot.segment.local.utils.OffHeapHashedKeyMap;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+
+
+/**
+ * Implementation of {@link PartitionDedupMetadataManager} that keeps the hashed primary keys in off-heap
+ * {@link OffHeapHashedKeyMap}s, one per time slice of the dedup time.
+ *
+ * <p>When metadata TTL is enabled, the TTL is split into {@link #NUM_SLICES_PER_TTL_KEY} slices, and removing expired
+ * primary keys drops the slices whose whole time range is out of TTL instead of scanning all the keys. Keys within a
+ * partially expired slice are treated as absent (same as the stale metadata in the concurrent map implementation), and
+ * are released together with the slice. Without metadata TTL, all the keys are kept in a single slice.
+ *
+ * <p>A key is kept in at most one slice. All the slices have the same number of shards, so the same key always falls
+ * into the shard with the same index, and the accesses to that shard across slices are guarded by the same key lock.
+ *
+ * <p>Ingesting a record only increments the primary key count gauge. The exact count and the off-heap memory gauge are
+ * recomputed from the slices when segments are added, replaced or removed, and when expired primary keys are removed.
+ */
+class OffHeapPartitionDedupMetadataManager extends BasePartitionDedupMetadataManager {
+  public static final String NUM_SHARDS_KEY = "offHeapNumShards";
+  // Expected number of primary keys, used to size the key map upfront
+  public static final String INITIAL_CAPACITY_KEY = "offHeapInitialCapacity";
+  public static final String NUM_SLICES_PER_TTL_KEY = "offHeapNumSlicesPerTTL";
+  public static final int DEFAULT_NUM_SLICES_PER_TTL = 4;
+
+  private static final long SLICE_ID_WITHOUT_TTL = 0;
+
+  private final int _numShards;
+  private final int _initialCapacityPerShard;
+  private final double _sliceWidth;
+  private final String _allocationContext;
+  private final Object[] _keyLocks;
+
+  // Slice id -> keys with dedup time in range [sliceId * sliceWidth, (sliceId + 1) * sliceWidth)
+  // Slices are added while holding the read lock (and synchronizing on the map), and only dropped while holding the
+  // write lock, so that no thread can access the off-heap memory of a released slice.
+  @VisibleForTesting
+  final ConcurrentSkipListMap<Long, OffHeapHashedKeyMap> _slices = new ConcurrentSkipListMap<>();
+  private final ReentrantReadWriteLock _slicesLock = new ReentrantReadWriteLock();
+
+  // Number of primary keys reported by the gauge, which is incremented when ingesting new keys and reset when updating
+  // the gauges from the slices
+  @VisibleForTesting
+  final AtomicLong _numPrimaryKeys = new AtomicLong();
+
+  private final Object _segmentIdLock = new Object();
+  private final Map<IndexSegment, Integer> _segmentToIdMap = new ConcurrentHashMap<>();
+  private volatile IndexSegment[] _idToSegment = new IndexSegment[16];
+  private int _nextSegmentId = OffHeapHashedKeyMap.EMPTY_SEGMENT_ID + 1;
+
+  protected OffHeapPartitionDedupMetadataManager(String tableNameWithType, int partitionId,
+      DedupContext dedupContext) {
+    super(tableNameWithType, partitionId, dedupContext);
+    int numShards = OffHeapHashedKeyMap.DEFAULT_NUM_SHARDS;
+    int initialCapacityPerShard = OffHeapHashedKeyMap.DEFAULT_INITIAL_CAPACITY_PER_SHARD;
+    int numSlicesPerTTL = DEFAULT_NUM_SLICES_PER_TTL;
+    Map<String, String> metadataManagerConfigs = dedupContext.getMetadataManagerConfigs();
+    if (metadataManagerConfigs != null) {
+      String numShardsStr = metadataManagerConfigs.get(NUM_SHARDS_KEY);
+      if (numShardsStr != null) {
+        numShards = Integer.parseInt(numShardsStr);
+      }
+      String initialCapacityStr = metadataManagerConfigs.get(INITIAL_CAPACITY_KEY);
+      if (initialCapacityStr != null) {
+        initialCapacityPerShard =
+            OffHeapHashedKeyMap.getInitialCapacityPerShard(Long.parseLong(initialCapacityStr), numShards);
+      }
+      String numSlicesPerTTLStr = metadataManagerConfigs.get(NUM_SLICES_PER_TTL_KEY);
+      if (numSlicesPerTTLStr != null) {
+        numSlicesPerTTL = Integer.parseInt(numSlicesPerTTLStr);
+      }
+    }
+    Preconditions.checkArgument(numSlicesPerTTL > 0, "Number of slices per TTL must be positive, got: %s",
+        numSlicesPerTTL);
+    _numShards = numShards;
+    _initialCapacityPerShard = initialCapacityPerShard;
+    _sliceWidth = _metadataTTL > 0 ? _metadataTTL / numSlicesPerTTL : 0;
+    _allocationContext = "dedupPrimaryKeyMap: " + tableNameWithType + "-" + partitionId;
+    _keyLocks = new Object[numShards];
+    for (int i = 0; i < numShards; i++) {
+      _keyLocks[i] = new Object();
+    }
+  }
+
+  private long getSliceId(double dedupTime) {
+    return _sliceWidth > 0 ? (long) Math.floor(dedupTime / _sliceWidth) : SLICE_ID_WITHOUT_TTL;
+  }
+
+  /**
+   * NOTE: Must be called while holding the read lock.
+   */
+  private OffHeapHashedKeyMap getOrCreateSlice(long sliceId) {
+    OffHeapHashedKeyMap slice = _slices.get(sliceId);
+    if (slice != null) {
+      return slice;
+    }
+    synchronized (_slices) {
+      slice = _slices.get(sliceId);
+      if (slice == null) {
+        slice = new OffHeapHashedKeyMap(_numShards, _initialCapacityPerShard, _allocationContext);
+        _slices.put(sliceId, slice);
+      }
+      return slice;
+    }
+  }
+
+  /**
+   * Returns the shard (from any slice) containing the given key, or {@code null} if the key does not exist.
+   * NOTE: Must be called while holding the read lock and the key lock.
+   */
+  @Nullable
+  private OffHeapHashedKeyMap.Shard findShard(int shardIndex, long keyHigh, long keyLow) {
+    for (OffHeapHashedKeyMap slice : _slices.values()) {
+      OffHeapHashedKeyMap.Shard shard = slice.getShardAt(shardIndex);
+      if (shard.find(keyHigh, keyLow) >= 0) {
+        return shard;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * NOTE: Must be called while holding the read lock and the key lock, and the key must not exist in any slice.
+   */
+  private void put(int shardIndex, long keyHigh, long keyLow, int segmentId, double dedupTime) {
+    getOrCreateSlice(getSliceId(dedupTime)).getShardAt(shardIndex)
+        .put(keyHigh, keyLow, segmentId, 0, Double.doubleToLongBits(dedupTime));
+  }
+
+  private static double getDedupTime(OffHeapHashedKeyMap.Shard shard, int slot) {
+    return Double.longBitsToDouble(shard.getValue(slot));
+  }
+
+  private int getOrAssignSegmentId(IndexSegment segment) {
+    Integer segmentId = _segmentToIdMap.get(segment);
+    if (segmentId != null) {
+      return segmentId;
+    }
+    synchronized (_segmentIdLock) {
+      segmentId = _segmentToIdMap.get(segment);
+      if (segmentId != null) {
+        return segmentId;
+      }
+      Preconditions.checkState(_nextSegmentId < Integer.MAX_VALUE, "Ran out of segment ids");
+      int newSegmentId = _nextSegmentId++;
+      IndexSegment[] idToSegment = _idToSegment;
+      if (newSegmentId >= idToSegment.length) {
+        idToSegment = Arrays.copyOf(idToSegment, Math.max(newSegmentId + 1, idToSegment.length * 2));
+      }
+      idToSegment[newSegmentId] = segment;
+      _idToSegment = idToSegment;
+      _segmentToIdMap.put(segment, newSegmentId);
+      return newSegmentId;
+    }
+  }
+
+  /**
+   * Returns the name of the segment for the given id, for logging purpose only.
+   */
+  private String getSegmentName(int segmentId) {
+    IndexSegment[] idToSegment = _idToSegment;
+    IndexSegment segment = segmentId < idToSegment.length ? idToSegment[segmentId] : null;
+    return segment != null ? segment.getSegmentName() : "<removed segment>";
+  }
+
+  private void releaseSegmentId(IndexSegment segment) {
+    synchronized (_segmentIdLock) {
+      Integer segmentId = _segmentToIdMap.remove(segment);
+      if (segmentId != null) {
+        _idToSegment[segmentId] = null;
+      }
+    }
+  }
+
+  @Override
+  protected void doPreloadSegment(ImmutableSegment segment, Iterator<DedupRecordInfo> dedupRecordInfoIterator) {
+    int segmentId = getOrAssignSegmentId(segment);
+    _slicesLock.readLock().lock();
+    try {
+      while (dedupRecordInfoIterator.hasNext()) {
+        DedupRecordInfo dedupRecordInfo = dedupRecordInfoIterator.next();
+        byte[] hashedKey = HashUtils.hashPrimaryKeyToFixedWidthBytes(dedupRecordInfo.getPrimaryKey(), _hashFunction);
+        long keyHigh = OffHeapHashedKeyMap.getKeyHigh(hashedKey);
+        long keyLow = OffHeapHashedKeyMap.getKeyLow(hashedKey);
+        int shardIndex = getShardIndex(keyHigh, keyLow);
+        synchronized (_keyLocks[shardIndex]) {
+          OffHeapHashedKeyMap.Shard currentShard = findShard(shardIndex, keyHigh, keyLow);
+          if (currentShard != null) {
+            currentShard.remove(currentShard.find(keyHigh, keyLow));
+          }
+          put(shardIndex, keyHigh, keyLow, segmentId, dedupRecordInfo.getDedupTime());
+        }
+      }
+    } finally {
+      _slicesLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  protected void doAddOrReplaceSegment(@Nullable IndexSegment oldSegment, IndexSegment newSegment,
+      Iterator<DedupRecordInfo> dedupRecordInfoIteratorOfNewSegment) {
+    String segmentName = newSegment.getSegmentName();
+    int segmentId = getOrAssignSegmentId(newSegment);
+    Integer oldSegmentId = oldSegment != null ? _segmentToIdMap.get(oldSegment) : null;
+    _slicesLock.readLock().lock();
+    try {
+      while (dedupRecordInfoIteratorOfNewSegment.hasNext()) {
+        DedupRecordInfo dedupRecordInfo = dedupRecordInfoIteratorOfNewSegment.next();
+        double dedupTime = dedupRecordInfo.getDedupTime();
+        byte[] hashedKey = HashUtils.hashPrimaryKeyToFixedWidthBytes(dedupRecordInfo.getPrimaryKey(), _hashFunction);
+        long keyHigh = OffHeapHashedKeyMap.getKeyHigh(hashedKey);
+        long keyLow = OffHeapHashedKeyMap.getKeyLow(hashedKey);
+        int shardIndex = getShardIndex(keyHigh, keyLow);
+        synchronized (_keyLocks[shardIndex]) {
+          OffHeapHashedKeyMap.Shard currentShard = findShard(shardIndex, keyHigh, keyLow);
+          if (currentShard == null) {
+            put(shardIndex, keyHigh, keyLow, segmentId, dedupTime);
+            continue;
+          }
+          int slot = currentShard.find(keyHigh, keyLow);
+          double currentDedupTime = getDedupTime(currentShard, slot);
+          // Stale metadata is treated as not existing when checking for deduplicates.
+          if (isOutOfMetadataTTL(currentDedupTime)) {
+            currentShard.remove(slot);
+            put(shardIndex, keyHigh, keyLow, segmentId, dedupTime);
+            continue;
+          }
+          // when oldSegment is null, it means we are adding a new segment
+          // when oldSegment is not null, it means we are replacing an existing segment
+          int currentSegmentId = currentShard.getSegmentId(slot);
+          if (oldSegment == null) {
+            _logger.warn("When adding a new segment: record in segment: {} with primary key: {} and dedup "
+                    + "time: {} already exists in segment: {} with dedup time: {}", segmentName,
+                dedupRecordInfo.getPrimaryKey(), dedupTime, getSegmentName(currentSegmentId), currentDedupTime);
+          } else if (oldSegmentId == null || currentSegmentId != oldSegmentId) {
+            _logger.warn("When replacing a segment: record in segment: {} with primary key: {} and dedup "
+                    + "time: {} exists in segment: {} with dedup time: {} (but not the segment: {} to replace)",
+                segmentName, dedupRecordInfo.getPrimaryKey(), dedupTime, getSegmentName(currentSegmentId),
+                currentDedupTime, oldSegment.getSegmentName());
+          }
+          // When dedup time is the same, we always keep the latest segment
+          // This will handle segment replacement case correctly - a typical case is when a mutable segment is
+          // replaced by an immutable segment
+          if (currentDedupTime <= dedupTime) {
+            currentShard.remove(slot);
+            put(shardIndex, keyHigh, keyLow, segmentId, dedupTime);
+          }
+        }
+      }
+    } finally {
+      _slicesLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void replaceSegment(IndexSegment oldSegment, IndexSegment newSegment) {
+    super.replaceSegment(oldSegment, newSegment);
+    if (oldSegment != newSegment) {
+      releaseSegmentId(oldSegment);
+    }
+  }
+
+  @Override
+  protected void doRemoveSegment(IndexSegment segment, Iterator<DedupRecordInfo> dedupRecordInfoIterator) {
+    Integer segmentId = _segmentToIdMap.get(segment);
+    if (segmentId == null) {
+      return;
+    }
+    _slicesLock.readLock().lock();
+    try {
+      while (dedupRecordInfoIterator.hasNext()) {
+        DedupRecordInfo dedupRecordInfo = dedupRecordInfoIterator.next();
+        byte[] hashedKey = HashUtils.hashPrimaryKeyToFixedWidthBytes(dedupRecordInfo.getPrimaryKey(), _hashFunction);
+        long keyHigh = OffHeapHashedKeyMap.getKeyHigh(hashedKey);
+        long keyLow = OffHeapHashedKeyMap.getKeyLow(hashedKey);
+        int shardIndex = getShardIndex(keyHigh, keyLow);
+        synchronized (_keyLocks[shardIndex]) {
+          OffHeapHashedKeyMap.Shard currentShard = findShard(shardIndex, keyHigh, keyLow);
+          if (currentShard != null) {
+            // do not need to compare dedup time because we are removing the segment
+            int slot = currentShard.find(keyHigh, keyLow);
+            if (currentShard.getSegmentId(slot) == segmentId) {
+              currentShard.remove(slot);
+            }
+          }
+        }
+      }
+    } finally {
+      _slicesLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void removeSegment(IndexSegment segment) {
+    super.removeSegment(segment);
+    // Keys of a segment skipped for being out of TTL are left in the slices, and are dropped together with the slices
+    releaseSegmentId(segment);
+  }
+
+  @Override
+  protected void doRemoveExpiredPrimaryKeys() {
+    double smallestTimeToKeep = _largestSeenTime.get() - _metadataTTL;
+    int numSlicesRemoved = 0;
+    long numKeysRemoved = 0;
+    _slicesLock.writeLock().lock();
+    try {
+      Iterator<Map.Entry<Long, OffHeapHashedKeyMap>> iterator = _slices.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<Long, OffHeapHashedKeyMap> entry = iterator.next();
+        // Slices are sorted by time, and a slice can be dropped only when its whole time range is out of TTL
+        if ((entry.getKey() + 1) * _sliceWidth > smallestTimeToKeep) {
+          break;
+        }
+        OffHeapHashedKeyMap slice = entry.getValue();
+        numKeysRemoved += slice.size();
+        closeSlice(slice);
+        iterator.remove();
+        numSlicesRemoved++;
+      }
+    } finally {
+      _slicesLock.writeLock().unlock();
+    }
+    if (numSlicesRemoved > 0) {
+      _logger.info("Deleted {} primary keys in {} expired time slices", numKeysRemoved, numSlicesRemoved);
+    }
+    updatePrimaryKeyGauge();
+  }
+
+  private void closeSlice(OffHeapHashedKeyMap slice) {
+    try {
+      slice.close();
+    } catch (IOException e) {
+      throw new RuntimeException("Caught exception while releasing time slice for: " + _allocationContext, e);
+    }
+  }
+
+  @Override
+  public boolean checkRecordPresentOrUpdate(DedupRecordInfo dedupRecordInfo, IndexSegment indexSegment) {
+    if (!startOperation()) {
+      _logger.info("Skip adding record to {} because metadata manager is already stopped",
+          indexSegment.getSegmentName());
+      return true;
+    }
+    try {
+      double dedupTime = dedupRecordInfo.getDedupTime();
+      if (_metadataTTL > 0) {
+        _largestSeenTime.getAndUpdate(time -> Math.max(time, dedupTime));
+      }
+      int segmentId = getOrAssignSegmentId(indexSegment);
+      byte[] hashedKey = HashUtils.hashPrimaryKeyToFixedWidthBytes(dedupRecordInfo.getPrimaryKey(), _hashFunction);
+      long keyHigh = OffHeapHashedKeyMap.getKeyHigh(hashedKey);
+      long keyLow = OffHeapHashedKeyMap.getKeyLow(hashedKey);
+      int shardIndex = getShardIndex(keyHigh, keyLow);
+      boolean present;
+      boolean newKey = false;
+      _slicesLock.readLock().lock();
+      try {
+        synchronized (_keyLocks[shardIndex]) {
+          OffHeapHashedKeyMap.Shard currentShard = findShard(shardIndex, keyHigh, keyLow);
+          int slot = currentShard != null ? currentShard.find(keyHigh, keyLow) : -1;
+          // The dedup metadata out of TTL is cleaned up when starting the next consuming segment, so it's possible
+          // when ingesting records into current segment, some dedup metadata is already becoming stale. The stale
+          // metadata is treated as not existing when checking for deduplicates.
+          present = currentShard != null && !isOutOfMetadataTTL(getDedupTime(currentShard, slot));
+          if (!present) {
+            if (currentShard != null) {
+              currentShard.remove(slot);
+            } else {
+              newKey = true;
+            }
+            put(shardIndex, keyHigh, keyLow, segmentId, dedupTime);
+          }
+        }
+      } finally {
+        _slicesLock.readLock().unlock();
+      }
+      if (newKey) {
+        // Do not walk all the slices for each ingested record
+        super.updatePrimaryKeyGauge(_numPrimaryKeys.incrementAndGet());
+      }
+      return present;
+    } finally {
+      finishOperation();
+    }
+  }
+
+  private int getShardIndex(long keyHigh, long keyLow) {
+    return OffHeapHashedKeyMap.getShardIndex(keyHigh, keyLow, _numShards);
+  }
+
+  @Override
+  public long getNumPrimaryKeys() {
+    long numPrimaryKeys = 0;
+    for (OffHeapHashedKeyMap slice : _slices.values()) {
+      numPrimaryKeys += slice.size();
+    }
+    return numPrimaryKeys;
+  }
+
+  @Override
+  protected void updatePrimaryKeyGauge(long numPrimaryKeys) {
+    _numPrimaryKeys.set(numPrimaryKeys);
+    super.updatePrimaryKeyGauge(numPrimaryKeys);
+    long offHeapMemoryUsed = 0;
+    for (OffHeapHashedKeyMap slice : _slices.values()) {
+      offHeapMemoryUsed += slice.getOffHeapMemoryUsed();
+    }
+    _serverMetrics.setValueOfPartitionGauge(_tableNameWithType, _partitionId,
+        ServerGauge.DEDUP_PRIMARY_KEYS_OFF_HEAP_MEMORY_USED, offHeapMemoryUsed);
+  }
+
+  @VisibleForTesting
+  @Nullable
+  Pair<IndexSegment, Double> getSegmentAndTime(PrimaryKey primaryKey) {
+    byte[] hashedKey = HashUtils.hashPrimaryKeyToFixedWidthBytes(primaryKey, _hashFunction);
+    long keyHigh = OffHeapHashedKeyMap.getKeyHigh(hashedKey);
+    long keyLow = OffHeapHashedKeyMap.getKeyLow(hashedKey);
+    int shardIndex = getShardIndex(keyHigh, keyLow);
+    _slicesLock.readLock().lock();
+    try {
+      synchronized (_keyLocks[shardIndex]) {
+        OffHeapHashedKeyMap.Shard shard = findShard(shardIndex, keyHigh, keyLow);
+        if (shard == null) {
+          return null;
+        }
+        int slot = shard.find(keyHigh, keyLow);
+        IndexSegment[] idToSegment = _idToSegment;
+        int segmentId = shard.getSegmentId(slot);
+        return Pair.of(segmentId < idToSegment.length ? idToSegment[segmentId] : null, getDedupTime(shard, slot));
+      }
+    } finally {
+      _slicesLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  protected void doClose()
+      throws IOException {
+    _slicesLock.writeLock().lock();
+    try {
+      for (OffHeapHashedKeyMap slice : _slices.values()) {
+        slice.close();
+      }
+      _slices.clear();
+    } finally {
+      _slicesLock.writeLock().unlock();
+    }
+    _segmentToIdMap.clear();
+    _idToSegment = new IndexSegment[0];
+  }
+}
@@ -27,7 +27,9 @@ import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -61,6 +63,7 @@ import org.apache.pinot.segment.local.realtime.impl.forward.FixedByteMVMutableFo
 import org.apache.pinot.segment.local.realtime.impl.forward.SameValueMutableForwardIndex;
 import org.apache.pinot.segment.local.realtime.impl.invertedindex.MultiColumnRealtimeLuceneTextIndex;
 import org.apache.pinot.segment.local.realtime.impl.nullvalue.MutableNullValueVector;
+import org.apache.pinot.segment.local.realtime.impl.startree.MutableStarTree;
 import org.apache.pinot.segment.local.segment.index.datasource.MutableDataSource;
 import org.apache.pinot.segment.local.segment.index.dictionary.DictionaryIndexType;
 import org.apache.pinot.segment.local.segment.index.map.MutableMapDataSource;
@@ -68,6 +71,7 @@ import org.apache.pinot.segment.local.segment.readers.PinotSegmentColumnReader;
 import org.apache.pinot.segment.local.segment.readers.PinotSegmentRecordReader;
 import org.apache.pinot.segment.local.segment.virtualcolumn.VirtualColumnContext;
 import org.apache.pinot.segment.local.segment.virtualcolumn.VirtualColumnProviderFactory;
+import org.apache.pinot.segment.local.startree.v2.builder.StarTreeV2BuilderConfig;
 import org.apache.pinot.segment.local.upsert.ComparisonColumns;
 import org.apache.pinot.segment.local.upsert.PartitionUpsertMetadataManager;
 import org.apache.pinot.segment.local.upsert.RecordInfo;
@@ -103,6 +107,7 @@ import org.apache.pinot.spi.config.table.ColumnPartitionConfig;
 import org.apache.pinot.spi.config.table.IndexConfig;
 import org.apache.pinot.spi.config.table.MultiColumnTextIndexConfig;
 import org.apache.pinot.spi.config.table.SegmentPartitionConfig;
+import org.apache.pinot.spi.config.table.StarTreeIndexConfig;
 import org.apache.pinot.spi.config.table.UpsertConfig;
 import org.apache.pinot.spi.config.table.ingestion.AggregationConfig;
 import org.apache.pinot.spi.data.ComplexFieldSpec;
@@ -185,6 +190,8 @@ public class MutableSegmentImpl implements MutableSegment {
   //        the valid doc ids won't be updated.
   private final ThreadSafeMutableRoaringBitmap _validDocIds;
   private final ThreadSafeMutableRoaringBitmap _queryableDocIds;
+  // Star-trees maintained for the consuming segment, null if not enabled
+  private final List<MutableStarTree> _starTrees;
   private boolean _indexCapacityThresholdBreached;
   private volatile int _numDocsIndexed = 0;
   // default message metadata
@@ -475,6 +482,8 @@ public class MutableSegmentImpl implements MutableSegment {
       _multiColumnValues = null;
       _multiColumnTextMetadata = null;
     }
+
+    _starTrees = enableStarTreesIfPossible(config);
   }
 
   private static Map<String, Pair<String, ValueAggregator>> getMetricsAggregators(RealtimeSegmentConfig segmentConfig) {
@@ -692,10 +701,282 @@ public class MutableSegmentImpl implements MutableSegment {
     if (rowMetadata != null) {
       _latestIngestionTimeMs = Math.max(_latestIngestionTimeMs, rowMetadata.getRecordIngestionTimeMs());
     }
+    updateStarTrees();
 
     return canTakeMore;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The batch is appended column by column: the dictionary is updated with all the values of the column at once,
+   * and the values are written to the forward and inverted index in bulk. All the records become queryable at the end
+   * of the batch. Same as indexing row by row, the dictionaries are updated before any index is written, so that an
+   * exception thrown by this method does not leave any record partially indexed. Upsert, dedup, metrics aggregation and
+   * multi-column text index require the records to be processed one by one, in which case (or if the batch does not fit
+   * into the segment) the records are indexed row by row.
+   */
+  @Override
+  public boolean index(List<GenericRow> rows, @Nullable RowMetadata rowMetadata)
+      throws IOException {
+    int numRows = rows.size();
+    int numDocsIndexed = _numDocsIndexed;
+    if (!canIndexInBatch() || numDocsIndexed + numRows > _capacity) {
+      return MutableSegment.super.index(rows, rowMetadata);
+    }
+    if (numRows == 0) {
+      return true;
+    }
+
+    // NOTE: We must validate all the records before indexing a single column to avoid partially indexing the batch
+    for (GenericRow row : rows) {
+      validateLengthOfMVColumns(row);
+    }
+
+    // Update the dictionaries first, same as updateDictionary() for a single row
+    List<ColumnBatch> columnBatches = new ArrayList<>(_indexContainerMap.size());
+    for (Map.Entry<String, IndexContainer> entry : _indexContainerMap.entrySet()) {
+      columnBatches.add(updateDictionary(entry.getKey(), entry.getValue(), rows, numDocsIndexed));
+    }
+
+    int columnId = 0;
+    for (Map.Entry<String, IndexContainer> entry : _indexContainerMap.entrySet()) {
+      String column = entry.getKey();
+      IndexContainer indexContainer = entry.getValue();
+      ColumnBatch columnBatch = columnBatches.get(columnId++);
+      if (indexContainer._fieldSpec.isSingleValueField()) {
+        addSVColumnBatch(column, indexContainer, rows, numDocsIndexed, columnBatch);
+      } else {
+        addMVColumnBatch(column, indexContainer, rows, numDocsIndexed, columnBatch);
+      }
+    }
+
+    // Update number of documents indexed at last to make the whole batch queryable
+    _numDocsIndexed = numDocsIndexed + numRows;
+
+    // Update last indexed time and latest ingestion time
+    _lastIndexedTimeMs = System.currentTimeMillis();
+    if (rowMetadata != null) {
+      _latestIngestionTimeMs = Math.max(_latestIngestionTimeMs, rowMetadata.getRecordIngestionTimeMs());
+    }
+    updateStarTrees();
+
+    // The batch fits into the segment, so indexing the records one by one would not have reached the capacity either
+    return true;
+  }
+
+  /**
+   * Returns whether {@link #index(List, RowMetadata)} can index the records column by column instead of falling back to
+   * indexing them row by row (as long as the batch fits into the segment).
+   */
+  public boolean canIndexInBatch() {
+    return !isUpsertEnabled() && !isDedupEnabled() && !isAggregateMetricsEnabled() && _multiColumnValues == null;
+  }
+
+  /**
+   * Collects the non-null values of the column in the batch, and adds them to the dictionary if the column has one.
+   */
+  private ColumnBatch updateDictionary(String column, IndexContainer indexContainer, List<GenericRow> rows,
+      int startDocId) {
+    int numRows = rows.size();
+    ColumnBatch columnBatch = new ColumnBatch(numRows);
+    for (int i = 0; i < numRows; i++) {
+      Object value = rows.get(i).getValue(column);
+      if (value != null) {
+        columnBatch._values[columnBatch._numValues] = value;
+        columnBatch._docIds[columnBatch._numValues++] = startDocId + i;
+      }
+    }
+    MutableDictionary dictionary = indexContainer._dictionary;
+    if (dictionary == null) {
+      return columnBatch;
+    }
+    int numValues = columnBatch._numValues;
+    if (numValues > 0) {
+      if (indexContainer._fieldSpec.isSingleValueField()) {
+        columnBatch._dictIds = dictionary.index(columnBatch._values, numValues);
+        indexContainer._dictId = columnBatch._dictIds[numValues - 1];
+      } else {
+        columnBatch._dictIdsMV = new int[numValues][];
+        for (int i = 0; i < numValues; i++) {
+          columnBatch._dictIdsMV[i] = dictionary.index((Object[]) columnBatch._values[i]);
+        }
+      }
+      // Update min/max value from dictionary
+      indexContainer._minValue = dictionary.getMinVal();
+      indexContainer._maxValue = dictionary.getMaxVal();
+    }
+    updateIndexCapacityThresholdBreached(dictionary, column);
+    return columnBatch;
+  }
+
+  /**
+   * Updates the null value vector for the batch, and records an indexing error for each null value the same way as row
+   * by row indexing does. The null values are skipped to avoid corrupting the indexes.
+   */
+  private void handleNullValues(String column, IndexContainer indexContainer, List<GenericRow> rows, int startDocId) {
+    int numRows = rows.size();
+    for (int i = 0; i < numRows; i++) {
+      GenericRow row = rows.get(i);
+      // Update the null value vector even if a null value is somehow produced
+      if (indexContainer._nullValueVector != null && row.isNullValue(column)) {
+        indexContainer._nullValueVector.setNull(startDocId + i);
+      }
+      if (indexContainer._dictionary != null && row.getValue(column) == null) {
+        recordIndexingError("DICTIONARY");
+      }
+    }
+  }
+
+  private void addSVColumnBatch(String column, IndexContainer indexContainer, List<GenericRow> rows, int startDocId,
+      ColumnBatch columnBatch) {
+    handleNullValues(column, indexContainer, rows, startDocId);
+    int numValues = columnBatch._numValues;
+    if (numValues == 0) {
+      return;
+    }
+    Object[] values = columnBatch._values;
+    int[] docIds = columnBatch._docIds;
+    int[] dictIds = columnBatch._dictIds;
+
+    if (column.equals(_partitionColumn)) {
+      for (int i = 0; i < numValues; i++) {
+        checkPartition(column, indexContainer, values[i]);
+      }
+    }
+    for (int i = 0; i < numValues; i++) {
+      indexContainer._valuesInfo.updateSVNumValues();
+    }
+    Object[] forwardIndexValues = dictIds == null ? getRawForwardIndexValues(indexContainer, values, docIds, numValues)
+        : values;
+
+    for (Map.Entry<IndexType, MutableIndex> indexEntry : indexContainer._mutableIndexes.entrySet()) {
+      IndexType indexType = indexEntry.getKey();
+      MutableIndex mutableIndex = indexEntry.getValue();
+      if (indexType.equals(StandardIndexes.forward()) || indexType.equals(StandardIndexes.inverted())) {
+        // NOTE: The dictionary ids and the raw forward index values are valid, so the bulk add is not expected to fail
+        //       part way through the batch
+        try {
+          mutableIndex.add(forwardIndexValues, dictIds, docIds, numValues);
+        } catch (Exception e) {
+          recordIndexingError(indexType, e);
+        }
+      } else {
+        for (int i = 0; i < numValues; i++) {
+          try {
+            mutableIndex.add(values[i], dictIds != null ? dictIds[i] : -1, docIds[i]);
+          } catch (Exception e) {
+            recordIndexingError(indexType, e);
+          }
+        }
+      }
+      updateIndexCapacityThresholdBreached(mutableIndex, indexType, column);
+    }
+
+    if (dictIds == null) {
+      // Update min/max value from raw value
+      for (int i = 0; i < numValues; i++) {
+        updateMinMaxValue(indexContainer, forwardIndexValues[i]);
+      }
+    }
+  }
+
+  /**
+   * Returns the raw values to be written to the forward index, where the values that cannot be written (e.g. of a
+   * wrong type) are replaced with the default null value of the column, with an indexing error recorded. This ensures
+   * the bulk add does not fail part way through the batch, and keeps the var-byte forward indexes, which append the
+   * values regardless of the doc id, aligned with the doc ids.
+   */
+  private Object[] getRawForwardIndexValues(IndexContainer indexContainer, Object[] values, int[] docIds,
+      int numValues) {
+    FieldSpec fieldSpec = indexContainer._fieldSpec;
+    DataType storedType = fieldSpec.getDataType().getStoredType();
+    Object[] forwardIndexValues = values;
+    for (int i = 0; i < numValues; i++) {
+      Object value = values[i];
+      if (!isValidRawValue(storedType, value)) {
+        if (forwardIndexValues == values) {
+          // Do not modify the values shared with the other indexes
+          forwardIndexValues = Arrays.copyOf(values, numValues);
+        }
+        forwardIndexValues[i] = fieldSpec.getDefaultNullValue();
+        recordIndexingError(StandardIndexes.forward(), new IllegalArgumentException(
+            "Cannot write value: " + value + " of class: " + value.getClass().getName() + " for doc: " + docIds[i]
+                + " of column: " + fieldSpec.getName() + " with stored type: " + storedType));
+      }
+    }
+    return forwardIndexValues;
+  }
+
+  /**
+   * Returns whether the raw value can be written to a forward index of the given stored type, i.e. whether
+   * {@link MutableForwardIndex#add(Object, int, int)} accepts it.
+   */
+  private static boolean isValidRawValue(DataType storedType, Object value) {
+    switch (storedType) {
+      case INT:
+        return value instanceof Integer;
+      case LONG:
+        return value instanceof Long;
+      case FLOAT:
+        return value instanceof Float;
+      case DOUBLE:
+        return value instanceof Double;
+      case BIG_DECIMAL:
+        return value instanceof BigDecimal || value instanceof byte[];
+      case STRING:
+        return value instanceof String;
+      case BYTES:
+        return value instanceof byte[];
+      case JSON:
+        return value instanceof String || value instanceof byte[];
+      case MAP:
+        return value instanceof Map || value instanceof byte[];
+      default:
+        return false;
+    }
+  }
+
+  private void addMVColumnBatch(String column, IndexContainer indexContainer, List<GenericRow> rows, int startDocId,
+      ColumnBatch columnBatch) {
+    handleNullValues(column, indexContainer, rows, startDocId);
+    DataType storedType = indexContainer._fieldSpec.getDataType().getStoredType();
+    int numValues = columnBatch._numValues;
+    for (int i = 0; i < numValues; i++) {
+      Object[] values = (Object[]) columnBatch._values[i];
+      int[] dictIds = columnBatch._dictIdsMV != null ? columnBatch._dictIdsMV[i] : null;
+      int docId = columnBatch._docIds[i];
+      indexContainer._valuesInfo.updateVarByteMVMaxRowLengthInBytes(values, storedType);
+      for (Map.Entry<IndexType, MutableIndex> indexEntry : indexContainer._mutableIndexes.entrySet()) {
+        try {
+          MutableIndex mutableIndex = indexEntry.getValue();
+          mutableIndex.add(values, dictIds, docId);
+          updateIndexCapacityThresholdBreached(mutableIndex, indexEntry.getKey(), column);
+        } catch (Exception e) {
+          recordIndexingError(indexEntry.getKey(), e);
+        }
+      }
+      indexContainer._valuesInfo.updateMVNumValues(values.length);
+    }
+  }
+
+  /**
+   * The non-null values of a column in a batch, along with their doc ids and dictionary ids.
+   */
+  private static class ColumnBatch {
+    final Object[] _values;
+    final int[] _docIds;
+    int _numValues;
+    // Dictionary ids of the values, null for the columns without dictionary
+    int[] _dictIds;
+    int[][] _dictIdsMV;
+
+    ColumnBatch(int numRows) {
+      _values = new Object[numRows];
+      _docIds = new int[numRows];
+    }
+  }
+
   private boolean isUpsertEnabled() {
     return _partitionUpsertMetadataManager != null;
   }
@@ -867,19 +1148,7 @@ public class MutableSegmentImpl implements MutableSegment {
       if (fieldSpec.isSingleValueField()) {
         // Check partitions
         if (column.equals(_partitionColumn)) {
-          String stringValue = dataType.toString(value);
-          int partition = _partitionFunction.getPartition(stringValue);
-          if (partition != _mainPartitionId) {
-            if (indexContainer._partitions.add(partition)) {
-              // for every partition other than mainPartitionId, log a warning once
-              _logger.warn("Found new partition: {} from partition column: {}, value: {}", partition, column,
-                  stringValue);
-            }
-            // always emit a metric when a partition other than mainPartitionId is detected
-            if (_serverMetrics != null) {
-              _serverMetrics.addMeteredTableValue(_realtimeTableName, ServerMeter.REALTIME_PARTITION_MISMATCH, 1);
-            }
-          }
+          checkPartition(column, indexContainer, value);
         }
 
         // Update numValues info
@@ -901,25 +1170,7 @@ public class MutableSegmentImpl implements MutableSegment {
           // Update min/max value from raw value
           // NOTE: Skip updating min/max value for aggregated metrics because the value will change over time.
           if (!isAggregateMetricsEnabled() || fieldSpec.getFieldType() != FieldSpec.FieldType.METRIC) {
-            Comparable comparable;
-            if (dataType == BYTES) {
-              comparable = new ByteArray((byte[]) value);
-            } else if (dataType == MAP) {
-              comparable = new ByteArray(MapUtils.serializeMap((Map) value));
-            } else {
-              comparable = (Comparable) value;
-            }
-            if (indexContainer._minValue == null) {
-              indexContainer._minValue = comparable;
-              indexContainer._maxValue = comparable;
-            } else {
-              if (comparable.compareTo(indexContainer._minValue) < 0) {
-                indexContainer._minValue = comparable;
-              }
-              if (comparable.compareTo(indexContainer._maxValue) > 0) {
-                indexContainer._maxValue = comparable;
-              }
-            }
+            updateMinMaxValue(indexContainer, value);
           }
         }
 
@@ -961,6 +1212,44 @@ public class MutableSegmentImpl implements MutableSegment {
     }
   }
 
+  private void checkPartition(String column, IndexContainer indexContainer, Object value) {
+    String stringValue = indexContainer._fieldSpec.getDataType().toString(value);
+    int partition = _partitionFunction.getPartition(stringValue);
+    if (partition != _mainPartitionId) {
+      if (indexContainer._partitions.add(partition)) {
+        // for every partition other than mainPartitionId, log a warning once
+        _logger.warn("Found new partition: {} from partition column: {}, value: {}", partition, column, stringValue);
+      }
+      // always emit a metric when a partition other than mainPartitionId is detected
+      if (_serverMetrics != null) {
+        _serverMetrics.addMeteredTableValue(_realtimeTableName, ServerMeter.REALTIME_PARTITION_MISMATCH, 1);
+      }
+    }
+  }
+
+  private static void updateMinMaxValue(IndexContainer indexContainer, Object value) {
+    DataType dataType = indexContainer._fieldSpec.getDataType();
+    Comparable comparable;
+    if (dataType == BYTES) {
+      comparable = new ByteArray((byte[]) value);
+    } else if (dataType == MAP) {
+      comparable = new ByteArray(MapUtils.serializeMap((Map) value));
+    } else {
+      comparable = (Comparable) value;
+    }
+    if (indexContainer._minValue == null) {
+      indexContainer._minValue = comparable;
+      indexContainer._maxValue = comparable;
+    } else {
+      if (comparable.compareTo(indexContainer._minValue) < 0) {
+        indexContainer._minValue = comparable;
+      }
+      if (comparable.compareTo(indexContainer._maxValue) > 0) {
+        indexContainer._maxValue = comparable;
+      }
+    }
+  }
+
   private void updateIndexCapacityThresholdBreached(MutableIndex mutableIndex, IndexType indexType, String column) {
     // Few of the Immutable version of the mutable index are bounded by size like
     // {@link VarByteChunkForwardIndexWriterV4#putBytes(byte[])} and {@link FixedBitMVForwardIndex}
@@ -1152,10 +1441,35 @@ public class MutableSegmentImpl implements MutableSegment {
     return IndexSegmentUtils.createVirtualDataSource(new VirtualColumnContext(fieldSpec, _numDocsIndexed));
   }
 
+  /**
+   * Returns the memory used by the segment in bytes, including the off-heap memory allocated by the memory manager and
+   * the estimated heap memory used by the star-trees.
+   */
+  public long getMemoryUsedBytes() {
+    long memoryUsedBytes = _memoryManager.getTotalAllocatedBytes();
+    if (_starTrees != null) {
+      for (MutableStarTree starTree : _starTrees) {
+        memoryUsedBytes += starTree.getHeapMemoryUsedBytes();
+      }
+    }
+    return memoryUsedBytes;
+  }
+
   @Nullable
   @Override
   public List<StarTreeV2> getStarTrees() {
-    return null;
+    if (_starTrees == null) {
+      return null;
+    }
+    // Star-trees might not cover the docs indexed after their latest snapshot, see StarTreeV2.getNumCoveredDocs()
+    List<StarTreeV2> starTrees = new ArrayList<>(_starTrees.size());
+    for (MutableStarTree mutableStarTree : _starTrees) {
+      StarTreeV2 starTree = mutableStarTree.getStarTree();
+      if (starTree != null) {
+        starTrees.add(starTree);
+      }
+    }
+    return !starTrees.isEmpty() ? starTrees : null;
   }
 
   @Nullable
@@ -1234,7 +1548,7 @@ public class MutableSegmentImpl implements MutableSegment {
     if (_offHeap) {
       if (_numDocsIndexed > 0) {
         int numSeconds = (int) ((System.currentTimeMillis() - _startTimeMillis) / 1000);
-        long totalMemBytes = _memoryManager.getTotalAllocatedBytes();
+        long totalMemBytes = getMemoryUsedBytes();
         _logger.info("Segment used {} bytes of memory for {} rows consumed in {} seconds", totalMemBytes,
             _numDocsIndexed, numSeconds);
 
@@ -1258,6 +1572,13 @@ public class MutableSegmentImpl implements MutableSegment {
       }
     }
 
+    // Stop rebuilding the star-trees before closing the indexes they read from
+    if (_starTrees != null) {
+      for (MutableStarTree starTree : _starTrees) {
+        starTree.close();
+      }
+    }
+
     // Close the indexes
     for (IndexContainer indexContainer : _indexContainerMap.values()) {
       indexContainer.close();
@@ -1449,6 +1770,69 @@ public class MutableSegmentImpl implements MutableSegment {
     return _recordIdMap != null;
   }
 
+  /**
+   * Helper method to enable/initialize the star-trees for the consuming segment, based on following conditions:
+   * <ul>
+   *   <li> Star-tree index configs are specified, which the consuming segment manager only does when
+   *        {@code enableConsumingSegmentStarTree} is set in the indexing config. </li>
+   *   <li> Upsert, dedup and metrics aggregation are not enabled, because the pre-aggregated records cannot reflect
+   *        replaced, dropped or merged rows. </li>
+   *   <li> All star-tree dimensions are single-valued and dictionary encoded. </li>
+   *   <li> All star-tree metric columns are single-valued. </li>
+   * </ul>
+   *
+   * @param config Segment config.
+   *
+   * @return List of star-trees, null if no star-tree can be enabled.
+   */
+  @Nullable
+  private List<MutableStarTree> enableStarTreesIfPossible(RealtimeSegmentConfig config) {
+    List<StarTreeIndexConfig> starTreeIndexConfigs = config.getStarTreeIndexConfigs();
+    if (CollectionUtils.isEmpty(starTreeIndexConfigs)) {
+      return null;
+    }
+    if (isUpsertEnabled() || isDedupEnabled() || isAggregateMetricsEnabled()) {
+      _logger.info("Star-tree cannot be enabled for consuming segment with upsert, dedup or metrics aggregation");
+      return null;
+    }
+
+    List<StarTreeV2BuilderConfig> builderConfigs = new ArrayList<>();
+    for (StarTreeIndexConfig starTreeIndexConfig : starTreeIndexConfigs) {
+      try {
+        StarTreeV2BuilderConfig builderConfig = StarTreeV2BuilderConfig.fromIndexConfig(starTreeIndexConfig);
+        if (!builderConfigs.contains(builderConfig)) {
+          builderConfigs.add(builderConfig);
+        }
+      } catch (Exception e) {
+        _logger.warn("Caught exception while parsing star-tree index config: {}, skipping it", starTreeIndexConfig, e);
+      }
+    }
+
+    List<MutableStarTree> starTrees = new ArrayList<>(builderConfigs.size());
+    for (StarTreeV2BuilderConfig builderConfig : builderConfigs) {
+      try {
+        starTrees.add(new MutableStarTree(builderConfig, this));
+        _logger.info("Enabled star-tree: {} for consuming segment", builderConfig);
+      } catch (IllegalArgumentException e) {
+        _logger.warn("Star-tree: {} cannot be enabled: {}", builderConfig, e.getMessage());
+      }
+    }
+    return !starTrees.isEmpty() ? starTrees : null;
+  }
+
+  /**
+   * Updates the star-trees with the newly indexed docs on the consuming thread, so that the queries never wait for the
+   * star-tree snapshots to be rebuilt.
+   */
+  private void updateStarTrees() {
+    if (_starTrees != null) {
+      int numDocsIndexed = _numDocsIndexed;
+      for (MutableStarTree starTree : _starTrees) {
+        starTree.update(numDocsIndexed);
+      }
+    }
+  }
+
   public boolean canAddMore() {
     return !_indexCapacityThresholdBreached;
   }
@@ -71,11 +71,35 @@ public class ChunkCompressorFactory {
       case GZIP:
         return new GzipCompressor();
 
+      case DELTA:
+      case DELTADELTA:
+      case FOR:
+      case XOR:
+        throw new IllegalArgumentException(
+            "Compressor: " + compressionType + " requires the value size, use getCompressorForFixedWidthValues()");
+
       default:
         throw new IllegalArgumentException("Illegal compressor name " + compressionType);
     }
   }
 
+  /**
+   * Returns the chunk compressor for the specified name, for chunks of fixed width values. Unlike
+   * {@link #getCompressor(ChunkCompressionType)}, this also supports the numeric encodings (DELTA, DELTADELTA, FOR,
+   * XOR) which operate on the values instead of the bytes.
+   *
+   * @param compressionType Type of compressor.
+   * @param valueSize Size in bytes of each value in the chunk.
+   * @return Compressor for the specified type.
+   */
+  public static ChunkCompressor getCompressorForFixedWidthValues(ChunkCompressionType compressionType,
+      int valueSize) {
+    if (compressionType.isFixedWidthValuesOnly()) {
+      return new NumericChunkCompressor(compressionType, valueSize);
+    }
+    return getCompressor(compressionType);
+  }
+
   /**
    * Returns the chunk decompressor for the specified name.
    *
@@ -102,6 +126,12 @@ public class ChunkCompressorFactory {
       case GZIP:
         return new GzipDecompressor();
 
+      case DELTA:
+      case DELTADELTA:
+      case FOR:
+      case XOR:
+        return new NumericChunkDecompressor(compressionType);
+
       default:
         throw new IllegalArgumentException("Illegal compressor name " + compressionType);
     }
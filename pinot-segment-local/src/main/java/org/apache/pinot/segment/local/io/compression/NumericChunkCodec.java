@@ -0,0 +1,355 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.io.compression;
+
+import com.google.common.base.Preconditions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.apache.pinot.segment.spi.compression.ChunkCompressionType;
+
+
+/**
+ * Lightweight encodings for chunks of fixed width (4 or 8 bytes) numeric values, used by
+ * {@link NumericChunkCompressor} and {@link NumericChunkDecompressor}.
+ *
+ * The uncompressed chunk is a sequence of big-endian values (as written by the fixed-byte chunk writers). All values
+ * are handled as longs with wrapping arithmetic, so the encodings are lossless for INT, LONG, FLOAT and DOUBLE values
+ * (floating point values are encoded on their raw bits). The encoded chunk is a bit stream with the following layout:
+ * <ul>
+ *   <li>Header: value size in bytes (8 bits), number of values (32 bits)</li>
+ *   <li>FOR: minimum value (64 bits), bit width (8 bits), values as bit-packed offsets from the minimum</li>
+ *   <li>DELTA: first value (64 bits), deltas encoded with FOR</li>
+ *   <li>DELTADELTA: first value (64 bits), first delta (64 bits), deltas of deltas encoded with FOR</li>
+ *   <li>XOR: first value, then for each value the XOR with the previous value encoded as in the Gorilla paper: '0' for
+ *   identical value, '10' + meaningful bits when they fit in the previous window, '11' + number of leading zeros
+ *   (6 bits) + number of meaningful bits - 1 (6 bits) + meaningful bits otherwise</li>
+ * </ul>
+ */
+final class NumericChunkCodec {
+  private NumericChunkCodec() {
+  }
+
+  // Value size (1 byte) + number of values (4 bytes)
+  private static final int HEADER_SIZE = 5;
+
+  static int maxCompressedSize(int uncompressedSize) {
+    // Worst case is XOR on INT values: 46 bits per 32 bits value
+    return HEADER_SIZE + 16 + uncompressedSize * 3 / 2;
+  }
+
+  static int decompressedLength(ByteBuffer compressedInput) {
+    BitReader reader = new BitReader(compressedInput.duplicate());
+    int valueSize = (int) reader.read(8);
+    int numValues = (int) reader.read(32);
+    return valueSize * numValues;
+  }
+
+  /**
+   * Encodes the remaining bytes of the input into the output, and returns the output ready for read.
+   */
+  static int encode(ChunkCompressionType compressionType, int valueSize, ByteBuffer input, ByteBuffer output) {
+    Preconditions.checkArgument(valueSize == Integer.BYTES || valueSize == Long.BYTES,
+        "Unsupported value size: %s for compression type: %s", valueSize, compressionType);
+    ByteBuffer values = input.slice().order(ByteOrder.BIG_ENDIAN);
+    Preconditions.checkArgument(values.remaining() % valueSize == 0,
+        "Chunk size: %s is not a multiple of value size: %s", values.remaining(), valueSize);
+    int numValues = values.remaining() / valueSize;
+    long[] longValues = new long[numValues];
+    if (valueSize == Integer.BYTES) {
+      for (int i = 0; i < numValues; i++) {
+        longValues[i] = values.getInt();
+      }
+    } else {
+      for (int i = 0; i < numValues; i++) {
+        longValues[i] = values.getLong();
+      }
+    }
+    input.position(input.limit());
+
+    BitWriter writer = new BitWriter(output);
+    writer.write(valueSize, 8);
+    writer.write(numValues, 32);
+    if (numValues > 0) {
+      switch (compressionType) {
+        case FOR:
+          writeFrameOfReference(writer, longValues, 0);
+          break;
+        case DELTA:
+          writer.write(longValues[0], 64);
+          for (int i = numValues - 1; i > 0; i--) {
+            longValues[i] -= longValues[i - 1];
+          }
+          writeFrameOfReference(writer, longValues, 1);
+          break;
+        case DELTADELTA:
+          writer.write(longValues[0], 64);
+          for (int i = numValues - 1; i > 0; i--) {
+            longValues[i] -= longValues[i - 1];
+          }
+          if (numValues > 1) {
+            writer.write(longValues[1], 64);
+            for (int i = numValues - 1; i > 1; i--) {
+              longValues[i] -= longValues[i - 1];
+            }
+            writeFrameOfReference(writer, longValues, 2);
+          }
+          break;
+        case XOR:
+          writeXor(writer, longValues, valueSize * Byte.SIZE);
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported numeric compression type: " + compressionType);
+      }
+    }
+    writer.flush();
+    output.flip();
+    return output.limit();
+  }
+
+  /**
+   * Decodes the remaining bytes of the input into the output as big-endian values, and returns the output ready for
+   * read.
+   */
+  static int decode(ChunkCompressionType compressionType, ByteBuffer input, ByteBuffer output) {
+    BitReader reader = new BitReader(input);
+    int valueSize = (int) reader.read(8);
+    int numValues = (int) reader.read(32);
+    ValueWriter valueWriter = new ValueWriter(output, valueSize);
+    if (numValues > 0) {
+      switch (compressionType) {
+        case FOR: {
+          long min = reader.read(64);
+          int bitWidth = (int) reader.read(8);
+          for (int i = 0; i < numValues; i++) {
+            valueWriter.write(min + reader.read(bitWidth));
+          }
+          break;
+        }
+        case DELTA: {
+          long value = reader.read(64);
+          valueWriter.write(value);
+          if (numValues > 1) {
+            long min = reader.read(64);
+            int bitWidth = (int) reader.read(8);
+            for (int i = 1; i < numValues; i++) {
+              value += min + reader.read(bitWidth);
+              valueWriter.write(value);
+            }
+          }
+          break;
+        }
+        case DELTADELTA: {
+          long value = reader.read(64);
+          valueWriter.write(value);
+          if (numValues > 1) {
+            long delta = reader.read(64);
+            value += delta;
+            valueWriter.write(value);
+            if (numValues > 2) {
+              long min = reader.read(64);
+              int bitWidth = (int) reader.read(8);
+              for (int i = 2; i < numValues; i++) {
+                delta += min + reader.read(bitWidth);
+                value += delta;
+                valueWriter.write(value);
+              }
+            }
+          }
+          break;
+        }
+        case XOR:
+          readXor(reader, valueWriter, numValues, valueSize * Byte.SIZE);
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported numeric compression type: " + compressionType);
+      }
+    }
+    output.position(valueWriter.position());
+    output.flip();
+    return output.limit();
+  }
+
+  private static void writeFrameOfReference(BitWriter writer, long[] values, int startIndex) {
+    int numValues = values.length;
+    if (startIndex >= numValues) {
+      return;
+    }
+    long min = values[startIndex];
+    long max = min;
+    for (int i = startIndex + 1; i < numValues; i++) {
+      min = Math.min(min, values[i]);
+      max = Math.max(max, values[i]);
+    }
+    // NOTE: The range might overflow, which is handled by treating it as unsigned
+    int bitWidth = Long.SIZE - Long.numberOfLeadingZeros(max - min);
+    writer.write(min, 64);
+    writer.write(bitWidth, 8);
+    for (int i = startIndex; i < numValues; i++) {
+      writer.write(values[i] - min, bitWidth);
+    }
+  }
+
+  private static void writeXor(BitWriter writer, long[] values, int valueBits) {
+    long mask = valueBits == Long.SIZE ? -1L : (1L << valueBits) - 1;
+    long previousValue = values[0] & mask;
+    writer.write(previousValue, valueBits);
+    int previousLeadingZeros = -1;
+    int previousTrailingZeros = 0;
+    int numValues = values.length;
+    for (int i = 1; i < numValues; i++) {
+      long value = values[i] & mask;
+      long xor = value ^ previousValue;
+      if (xor == 0) {
+        writer.write(0, 1);
+      } else {
+        int leadingZeros = Long.numberOfLeadingZeros(xor) - (Long.SIZE - valueBits);
+        int trailingZeros = Long.numberOfTrailingZeros(xor);
+        if (previousLeadingZeros >= 0 && leadingZeros >= previousLeadingZeros
+            && trailingZeros >= previousTrailingZeros) {
+          writer.write(0b10, 2);
+          writer.write(xor >>> previousTrailingZeros, valueBits - previousLeadingZeros - previousTrailingZeros);
+        } else {
+          int meaningfulBits = valueBits - leadingZeros - trailingZeros;
+          writer.write(0b11, 2);
+          writer.write(leadingZeros, 6);
+          writer.write(meaningfulBits - 1, 6);
+          writer.write(xor >>> trailingZeros, meaningfulBits);
+          previousLeadingZeros = leadingZeros;
+          previousTrailingZeros = trailingZeros;
+        }
+      }
+      previousValue = value;
+    }
+  }
+
+  private static void readXor(BitReader reader, ValueWriter valueWriter, int numValues, int valueBits) {
+    long value = reader.read(valueBits);
+    valueWriter.write(value);
+    int leadingZeros = 0;
+    int trailingZeros = 0;
+    for (int i = 1; i < numValues; i++) {
+      if (reader.read(1) != 0) {
+        if (reader.read(1) != 0) {
+          leadingZeros = (int) reader.read(6);
+          int meaningfulBits = (int) reader.read(6) + 1;
+          trailingZeros = valueBits - leadingZeros - meaningfulBits;
+        }
+        value ^= reader.read(valueBits - leadingZeros - trailingZeros) << trailingZeros;
+      }
+      valueWriter.write(value);
+    }
+  }
+
+  /**
+   * Writes values of up to 64 bits into a byte buffer, most significant bit first.
+   */
+  private static final class BitWriter {
+    private final ByteBuffer _output;
+    private long _buffer;
+    private int _numBits;
+
+    BitWriter(ByteBuffer output) {
+      _output = output;
+    }
+
+    void write(long value, int numBits) {
+      if (numBits > 32) {
+        write(value >>> 32, numBits - 32);
+        write(value, 32);
+        return;
+      }
+      if (numBits == 0) {
+        return;
+      }
+      _buffer = (_buffer << numBits) | (value & ((1L << numBits) - 1));
+      _numBits += numBits;
+      while (_numBits >= Byte.SIZE) {
+        _numBits -= Byte.SIZE;
+        _output.put((byte) (_buffer >>> _numBits));
+      }
+      _buffer &= (1L << _numBits) - 1;
+    }
+
+    void flush() {
+      if (_numBits > 0) {
+        _output.put((byte) (_buffer << (Byte.SIZE - _numBits)));
+        _buffer = 0;
+        _numBits = 0;
+      }
+    }
+  }
+
+  /**
+   * Reads values of up to 64 bits from a byte buffer written by {@link BitWriter}.
+   */
+  private static final class BitReader {
+    private final ByteBuffer _input;
+    private long _buffer;
+    private int _numBits;
+
+    BitReader(ByteBuffer input) {
+      _input = input;
+    }
+
+    long read(int numBits) {
+      if (numBits > 32) {
+        long high = read(numBits - 32);
+        return (high << 32) | read(32);
+      }
+      if (numBits == 0) {
+        return 0;
+      }
+      while (_numBits < numBits) {
+        _buffer = (_buffer << Byte.SIZE) | (_input.get() & 0xFF);
+        _numBits += Byte.SIZE;
+      }
+      _numBits -= numBits;
+      long value = (_buffer >>> _numBits) & ((1L << numBits) - 1);
+      _buffer &= (1L << _numBits) - 1;
+      return value;
+    }
+  }
+
+  /**
+   * Writes the decoded values as big-endian INT or LONG values.
+   */
+  private static final class ValueWriter {
+    private final ByteBuffer _output;
+    private final boolean _intValues;
+
+    ValueWriter(ByteBuffer output, int valueSize) {
+      Preconditions.checkState(valueSize == Integer.BYTES || valueSize == Long.BYTES, "Unsupported value size: %s",
+          valueSize);
+      _output = output.order() == ByteOrder.BIG_ENDIAN ? output : output.duplicate().order(ByteOrder.BIG_ENDIAN);
+      _intValues = valueSize == Integer.BYTES;
+    }
+
+    void write(long value) {
+      if (_intValues) {
+        _output.putInt((int) value);
+      } else {
+        _output.putLong(value);
+      }
+    }
+
+    int position() {
+      return _output.position();
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.io.compression;
+
+import com.google.common.base.Preconditions;
+import java.nio.ByteBuffer;
+import org.apache.pinot.segment.spi.compression.ChunkCompressionType;
+import org.apache.pinot.segment.spi.compression.ChunkDecompressor;
+
+
+/**
+ * Implementation of {@link ChunkDecompressor} for the lightweight numeric encodings (DELTA, DELTADELTA, FOR, XOR).
+ * It is stateless and can be shared across threads.
+ */
+class NumericChunkDecompressor implements ChunkDecompressor {
+  private final ChunkCompressionType _compressionType;
+
+  NumericChunkDecompressor(ChunkCompressionType compressionType) {
+    Preconditions.checkArgument(compressionType.isFixedWidthValuesOnly(), "Unsupported numeric compression type: %s",
+        compressionType);
+    _compressionType = compressionType;
+  }
+
+  @Override
+  public int decompress(ByteBuffer compressedInput, ByteBuffer decompressedOutput) {
+    return NumericChunkCodec.decode(_compressionType, compressedInput, decompressedOutput);
+  }
+
+  @Override
+  public int decompressedLength(ByteBuffer compressedInput) {
+    return NumericChunkCodec.decompressedLength(compressedInput);
+  }
+}
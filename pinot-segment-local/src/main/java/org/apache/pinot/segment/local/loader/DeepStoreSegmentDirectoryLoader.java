@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.loader;
+
+import com.google.common.base.Preconditions;
+import java.io.File;
+import java.net.URI;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.utils.URIUtils;
+import org.apache.pinot.segment.local.segment.index.loader.IndexLoadingConfig;
+import org.apache.pinot.segment.local.segment.store.DeepStoreIndexCache;
+import org.apache.pinot.segment.local.segment.store.DeepStoreSegmentDirectory;
+import org.apache.pinot.segment.spi.loader.SegmentDirectoryLoader;
+import org.apache.pinot.segment.spi.loader.SegmentDirectoryLoaderContext;
+import org.apache.pinot.segment.spi.loader.SegmentLoader;
+import org.apache.pinot.segment.spi.store.SegmentDirectory;
+import org.apache.pinot.spi.env.PinotConfiguration;
+import org.apache.pinot.spi.filesystem.PinotFSFactory;
+import org.apache.pinot.spi.utils.CommonConstants;
+import org.apache.pinot.spi.utils.ReadMode;
+import org.apache.pinot.spi.utils.builder.TableNameBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Implementation of {@link SegmentDirectoryLoader} that serves the segments directly from the deep store with
+ * {@link DeepStoreSegmentDirectory}, keeping only the segment metadata on local disk and fetching the index buffers
+ * on first access into a local cache shared by all the segments.
+ *
+ * <p>The segments must be stored untarred in the deep store. When the given index dir is a local path, the segment is
+ * expected under {@code <segmentStoreUri>/<rawTableName>/<segmentName>}, and the index dir is used to keep the
+ * metadata; otherwise the index dir is used as the deep store location, and the metadata is kept under the table data
+ * dir. The local cache can be configured with the segment directory configs below (with instance config prefix
+ * {@code pinot.server.instance.segment.directory.loader.config}).
+ */
+@SegmentLoader(name = "deepStore")
+public class DeepStoreSegmentDirectoryLoader implements SegmentDirectoryLoader {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DeepStoreSegmentDirectoryLoader.class);
+
+  public static final String INDEX_CACHE_DIR_KEY = "index.cache.dir";
+  public static final String INDEX_CACHE_MAX_SIZE_BYTES_KEY = "index.cache.max.size.bytes";
+  public static final String DEFAULT_INDEX_CACHE_DIR_NAME = "deepStoreIndexCache";
+  public static final long DEFAULT_INDEX_CACHE_MAX_SIZE_BYTES = 10L * 1024 * 1024 * 1024;
+
+  private volatile DeepStoreIndexCache _indexCache;
+
+  @Override
+  public SegmentDirectory load(URI indexDir, SegmentDirectoryLoaderContext segmentLoaderContext)
+      throws Exception {
+    PinotConfiguration segmentDirectoryConfigs = segmentLoaderContext.getSegmentDirectoryConfigs();
+    String segmentName = segmentLoaderContext.getSegmentName();
+    File localDir;
+    URI remoteDir;
+    if (indexDir.getScheme() == null || indexDir.getScheme().equals(CommonConstants.Segment.LOCAL_SEGMENT_SCHEME)) {
+      localDir = new File(indexDir);
+      String segmentStoreUri = segmentDirectoryConfigs.getProperty(IndexLoadingConfig.SEGMENT_STORE_URI_KEY);
+      Preconditions.checkState(segmentStoreUri != null, "Segment store URI must be configured to load segment: %s",
+          segmentName);
+      String rawTableName = TableNameBuilder.extractRawTableName(segmentLoaderContext.getTableConfig().getTableName());
+      remoteDir = URIUtils.getUri(segmentStoreUri, rawTableName, URIUtils.encode(segmentName));
+    } else {
+      localDir = new File(segmentLoaderContext.getTableDataDir(), segmentName);
+      remoteDir = indexDir;
+    }
+    LOGGER.info("Loading segment: {} from deep store: {} with metadata in: {}", segmentName, remoteDir, localDir);
+    return new DeepStoreSegmentDirectory(localDir, remoteDir, PinotFSFactory.create(remoteDir.getScheme()),
+        getIndexCache(segmentLoaderContext),
+        ReadMode.valueOf(segmentDirectoryConfigs.getProperty(IndexLoadingConfig.READ_MODE_KEY)));
+  }
+
+  private DeepStoreIndexCache getIndexCache(SegmentDirectoryLoaderContext segmentLoaderContext)
+      throws Exception {
+    DeepStoreIndexCache indexCache = _indexCache;
+    if (indexCache == null) {
+      synchronized (this) {
+        indexCache = _indexCache;
+        if (indexCache == null) {
+          PinotConfiguration segmentDirectoryConfigs = segmentLoaderContext.getSegmentDirectoryConfigs();
+          String cacheDir = segmentDirectoryConfigs.getProperty(INDEX_CACHE_DIR_KEY);
+          File indexCacheDir = cacheDir != null ? new File(cacheDir) : new File(
+              new File(segmentLoaderContext.getTableDataDir()).getParentFile(), DEFAULT_INDEX_CACHE_DIR_NAME);
+          long maxSizeBytes =
+              segmentDirectoryConfigs.getProperty(INDEX_CACHE_MAX_SIZE_BYTES_KEY, DEFAULT_INDEX_CACHE_MAX_SIZE_BYTES);
+          LOGGER.info("Initializing deep store index cache in: {} with max size: {} bytes", indexCacheDir,
+              maxSizeBytes);
+          indexCache = new DeepStoreIndexCache(indexCacheDir, maxSizeBytes);
+          _indexCache = indexCache;
+        }
+      }
+    }
+    return indexCache;
+  }
+
+  @Override
+  public void delete(SegmentDirectoryLoaderContext segmentLoaderContext)
+      throws Exception {
+    String segmentName = segmentLoaderContext.getSegmentName();
+    File indexDir = new File(segmentLoaderContext.getTableDataDir(), segmentName);
+    if (indexDir.exists()) {
+      FileUtils.deleteQuietly(indexDir);
+      LOGGER.info("Deleted segment metadata directory {} for deep store", indexDir);
+    }
+    DeepStoreIndexCache indexCache = _indexCache;
+    if (indexCache != null && segmentLoaderContext.getSegmentCrc() != null) {
+      indexCache.invalidate(
+          DeepStoreSegmentDirectory.getCacheKeyPrefix(segmentName, segmentLoaderContext.getSegmentCrc()));
+    }
+  }
+}
@@ -37,6 +37,7 @@ import org.apache.pinot.segment.spi.memory.PinotDataBufferMemoryManager;
 import org.apache.pinot.segment.spi.partition.PartitionFunction;
 import org.apache.pinot.spi.config.table.IndexConfig;
 import org.apache.pinot.spi.config.table.MultiColumnTextIndexConfig;
+import org.apache.pinot.spi.config.table.StarTreeIndexConfig;
 import org.apache.pinot.spi.config.table.TableConfig;
 import org.apache.pinot.spi.config.table.ingestion.AggregationConfig;
 import org.apache.pinot.spi.data.Schema;
@@ -71,6 +72,8 @@ public class RealtimeSegmentConfig {
   private final String _consumerDir;
   @Nullable
   private final MultiColumnTextIndexConfig _multiColIndexConfig;
+  @Nullable
+  private final List<StarTreeIndexConfig> _starTreeIndexConfigs;
 
   // TODO: Clean up this constructor. Most of these things can be extracted from tableConfig.
 
@@ -99,7 +102,8 @@ public class RealtimeSegmentConfig {
       @Nullable PartitionUpsertMetadataManager partitionUpsertMetadataManager,
       @Nullable PartitionDedupMetadataManager partitionDedupMetadataManager,
       String consumerDir,
-      @Nullable MultiColumnTextIndexConfig textIndexConfig) {
+      @Nullable MultiColumnTextIndexConfig textIndexConfig,
+      @Nullable List<StarTreeIndexConfig> starTreeIndexConfigs) {
     _tableNameWithType = tableNameWithType;
     _segmentName = segmentName;
     _streamName = streamName;
@@ -122,6 +126,7 @@ public class RealtimeSegmentConfig {
     _partitionDedupMetadataManager = partitionDedupMetadataManager;
     _consumerDir = consumerDir;
     _multiColIndexConfig = textIndexConfig;
+    _starTreeIndexConfigs = starTreeIndexConfigs;
   }
 
   public String getTableNameWithType() {
@@ -217,6 +222,11 @@ public class RealtimeSegmentConfig {
     return _multiColIndexConfig;
   }
 
+  @Nullable
+  public List<StarTreeIndexConfig> getStarTreeIndexConfigs() {
+    return _starTreeIndexConfigs;
+  }
+
   public static class Builder {
     private String _tableNameWithType;
     private String _segmentName;
@@ -244,6 +254,7 @@ public class RealtimeSegmentConfig {
     private PartitionDedupMetadataManager _partitionDedupMetadataManager;
     private String _consumerDir;
     private MultiColumnTextIndexConfig _textIndexConfig;
+    private List<StarTreeIndexConfig> _starTreeIndexConfigs;
 
     public Builder() {
       _indexConfigByCol = new HashMap<>();
@@ -409,6 +420,11 @@ public class RealtimeSegmentConfig {
       return this;
     }
 
+    public Builder setStarTreeIndexConfigs(List<StarTreeIndexConfig> starTreeIndexConfigs) {
+      _starTreeIndexConfigs = starTreeIndexConfigs;
+      return this;
+    }
+
     public RealtimeSegmentConfig build() {
       Map<String, FieldIndexConfigs> indexConfigByCol = Maps.newHashMapWithExpectedSize(_indexConfigByCol.size());
       for (Map.Entry<String, FieldIndexConfigs.Builder> entry : _indexConfigByCol.entrySet()) {
@@ -419,7 +435,7 @@ public class RealtimeSegmentConfig {
           _capacity, _avgNumMultiValues, Collections.unmodifiableMap(indexConfigByCol), _segmentZKMetadata, _offHeap,
           _memoryManager, _statsHistory, _partitionColumn, _partitionFunction, _partitionId, _aggregateMetrics,
           _ingestionAggregationConfigs, _defaultNullHandlingEnabled, _partitionUpsertMetadataManager,
-          _partitionDedupMetadataManager, _consumerDir, _textIndexConfig);
+          _partitionDedupMetadataManager, _consumerDir, _textIndexConfig, _starTreeIndexConfigs);
     }
   }
 }
@@ -61,6 +61,41 @@ public class RealtimeInvertedIndex implements MutableInvertedIndex {
     }
   }
 
+  /**
+   * Adds the document ids to the bitmaps of the given dictionary ids, acquiring the write lock at most once for the
+   * whole batch.
+   */
+  @Override
+  public void add(Object[] values, int[] dictIds, int[] docIds, int length) {
+    int numBitmaps = _bitmaps.size();
+    boolean hasNewDictId = false;
+    for (int i = 0; i < length; i++) {
+      if (dictIds[i] >= numBitmaps) {
+        hasNewDictId = true;
+        break;
+      }
+    }
+    if (!hasNewDictId) {
+      for (int i = 0; i < length; i++) {
+        _bitmaps.get(dictIds[i]).add(docIds[i]);
+      }
+      return;
+    }
+    try {
+      _writeLock.lock();
+      for (int i = 0; i < length; i++) {
+        int dictId = dictIds[i];
+        if (_bitmaps.size() == dictId) {
+          _bitmaps.add(new ThreadSafeMutableRoaringBitmap(docIds[i]));
+        } else {
+          _bitmaps.get(dictId).add(docIds[i]);
+        }
+      }
+    } finally {
+      _writeLock.unlock();
+    }
+  }
+
   @Override
   public MutableRoaringBitmap getDocIds(int dictId) {
     ThreadSafeMutableRoaringBitmap bitmap;
@@ -0,0 +1,793 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.realtime.impl.startree;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.apache.pinot.common.request.context.ExpressionContext;
+import org.apache.pinot.segment.local.aggregator.ValueAggregator;
+import org.apache.pinot.segment.local.aggregator.ValueAggregatorFactory;
+import org.apache.pinot.segment.local.segment.readers.PinotSegmentColumnReader;
+import org.apache.pinot.segment.local.startree.StarTreeBuilderUtils;
+import org.apache.pinot.segment.local.startree.StarTreeBuilderUtils.TreeNode;
+import org.apache.pinot.segment.local.startree.v2.builder.StarTreeV2BuilderConfig;
+import org.apache.pinot.segment.local.startree.v2.store.StarTreeDataSource;
+import org.apache.pinot.segment.spi.AggregationFunctionType;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.datasource.DataSource;
+import org.apache.pinot.segment.spi.index.reader.Dictionary;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReader;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReaderContext;
+import org.apache.pinot.segment.spi.index.startree.AggregationFunctionColumnPair;
+import org.apache.pinot.segment.spi.index.startree.AggregationSpec;
+import org.apache.pinot.segment.spi.index.startree.StarTree;
+import org.apache.pinot.segment.spi.index.startree.StarTreeNode;
+import org.apache.pinot.segment.spi.index.startree.StarTreeV2;
+import org.apache.pinot.segment.spi.index.startree.StarTreeV2Constants;
+import org.apache.pinot.segment.spi.index.startree.StarTreeV2Metadata;
+import org.apache.pinot.spi.data.FieldSpec;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.MetricFieldSpec;
+import org.apache.pinot.spi.utils.FixedIntArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The {@code MutableStarTree} class maintains a star-tree index for a consuming (mutable) segment.
+ * <p>The star-tree is maintained in the background after the rows are indexed (see {@link #update(int)}): the consuming
+ * thread only schedules a rebuild on the rebuild executor, which reads the rows back from the forward indexes of the
+ * segment, and merges them incrementally into pre-aggregated records keyed by the dictionary ids of the star-tree
+ * dimensions. At most one rebuild is in flight at a time, and the rows indexed while it runs are picked up by the next
+ * one. The star-tree structure itself (star-nodes and aggregated
+ * documents) is built on-heap from the pre-aggregated records with the same algorithm as the offline star-tree
+ * builder. Queries always operate on an immutable snapshot of the star-tree, which is rebuilt at most every
+ * {@code rebuildIntervalRows} new rows or {@code rebuildIntervalMs}, so that neither the ingestion nor the queries pay
+ * for a rebuild on every row. A snapshot only covers the rows indexed when it was built (see
+ * {@link StarTreeV2#getNumCoveredDocs()}), and the queries process the rows indexed after it without the star-tree.
+ * <p>The dimensions must be single-value and dictionary-encoded in the mutable segment, and the metric columns must be
+ * single-value. The star-tree dimension values are the dictionary ids of the segment (mutable) dictionaries, which are
+ * not sorted, but the star-tree traversal does not rely on the order of the dictionary ids. The star-tree cannot
+ * represent null dimension values, so it becomes unusable once a null dimension value (tracked in the null value
+ * vector) is indexed, and the queries fall back to the regular plan.
+ * <p>The pre-aggregated records and the snapshot are kept on-heap, and their estimated size is reported by
+ * {@link #getHeapMemoryUsedBytes()} so that it can be accounted in the memory used by the segment.
+ * <p>Thread-safety: {@link #update(int)} and {@link #close()} must be called by the consuming thread only, while
+ * {@link #getStarTree()} can be called concurrently by multiple reader threads.
+ */
+public class MutableStarTree {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MutableStarTree.class);
+
+  public static final int DEFAULT_REBUILD_INTERVAL_ROWS = 100_000;
+  public static final long DEFAULT_REBUILD_INTERVAL_MS = 1000L;
+
+  // Estimated heap size of the hash map entry, the key and the array headers of a pre-aggregated record
+  private static final int RECORD_OVERHEAD_BYTES = 96;
+  // Estimated heap size of a boxed aggregated value
+  private static final int BOXED_VALUE_BYTES = 16;
+  // Estimated heap size of the tree node and the array headers of a star-tree doc
+  private static final int STAR_TREE_DOC_OVERHEAD_BYTES = 64;
+
+  // Shared by all the mutable star-trees on the server so that the rebuilds do not run on the consuming threads
+  private static final ExecutorService DEFAULT_REBUILD_EXECUTOR = createRebuildExecutor();
+
+  private final StarTreeV2BuilderConfig _builderConfig;
+  private final List<String> _dimensionsSplitOrder;
+  private final int _numDimensions;
+  private final Set<Integer> _skipStarNodeCreationForDimensions;
+  private final FieldSpec[] _dimensionFieldSpecs;
+  private final Dictionary[] _dimensionDictionaries;
+  private final PinotSegmentColumnReader[] _dimensionReaders;
+  private final int _numMetrics;
+  private final String[] _metrics;
+  // Reader of the source column for each metric, null for COUNT
+  private final PinotSegmentColumnReader[] _metricReaders;
+  private final ValueAggregator[] _valueAggregators;
+  private final int _maxLeafRecords;
+  private final int _rebuildIntervalRows;
+  private final long _rebuildIntervalMs;
+  private final Executor _rebuildExecutor;
+
+  // Pre-aggregated records keyed by the dimension dictionary ids of the first _numDocsAggregated docs, only accessed by
+  // the rebuild task (at most one in flight)
+  private final Map<FixedIntArray, Object[]> _aggregatedRecords = new HashMap<>();
+  private volatile int _numDocsAggregated;
+  // Initialized with the creation time so that the first snapshot is not built on the first few rows
+  private volatile long _lastRebuildTimeMs = System.currentTimeMillis();
+
+  // Guarded by _rebuildLock
+  private final Object _rebuildLock = new Object();
+  private boolean _rebuilding;
+
+  private volatile boolean _closed;
+  private volatile boolean _disabled;
+  private volatile StarTreeV2 _starTree;
+  private volatile long _heapMemoryUsedBytes;
+
+  public MutableStarTree(StarTreeV2BuilderConfig builderConfig, IndexSegment segment) {
+    this(builderConfig, segment, DEFAULT_REBUILD_INTERVAL_ROWS, DEFAULT_REBUILD_INTERVAL_MS);
+  }
+
+  public MutableStarTree(StarTreeV2BuilderConfig builderConfig, IndexSegment segment, int rebuildIntervalRows,
+      long rebuildIntervalMs) {
+    this(builderConfig, segment, rebuildIntervalRows, rebuildIntervalMs, DEFAULT_REBUILD_EXECUTOR);
+  }
+
+  /**
+   * Constructor for the mutable star-tree.
+   *
+   * @param builderConfig Star-tree builder config
+   * @param segment Mutable segment to read the dimensions and metrics from
+   * @param rebuildIntervalRows Number of new rows after which the star-tree snapshot is rebuilt
+   * @param rebuildIntervalMs Time in milliseconds after which the star-tree snapshot is rebuilt if there are new rows
+   * @param rebuildExecutor Executor to rebuild the star-tree snapshot on
+   */
+  public MutableStarTree(StarTreeV2BuilderConfig builderConfig, IndexSegment segment, int rebuildIntervalRows,
+      long rebuildIntervalMs, Executor rebuildExecutor) {
+    Preconditions.checkArgument(rebuildIntervalRows > 0, "Rebuild interval rows must be positive, got: %s",
+        rebuildIntervalRows);
+    _builderConfig = builderConfig;
+    _dimensionsSplitOrder = builderConfig.getDimensionsSplitOrder();
+    _numDimensions = _dimensionsSplitOrder.size();
+    _skipStarNodeCreationForDimensions = new HashSet<>();
+    Set<String> skipStarNodeCreationForDimensions = builderConfig.getSkipStarNodeCreationForDimensions();
+    _dimensionFieldSpecs = new FieldSpec[_numDimensions];
+    _dimensionDictionaries = new Dictionary[_numDimensions];
+    _dimensionReaders = new PinotSegmentColumnReader[_numDimensions];
+    for (int i = 0; i < _numDimensions; i++) {
+      String dimension = _dimensionsSplitOrder.get(i);
+      if (skipStarNodeCreationForDimensions.contains(dimension)) {
+        _skipStarNodeCreationForDimensions.add(i);
+      }
+      DataSource dataSource = segment.getDataSourceNullable(dimension);
+      Preconditions.checkArgument(dataSource != null && dataSource.getDataSourceMetadata().isSingleValue()
+              && dataSource.getDictionary() != null && dataSource.getForwardIndex() != null
+              && dataSource.getForwardIndex().isDictionaryEncoded(),
+          "Dimension: %s is not a single-value dictionary encoded column", dimension);
+      _dimensionFieldSpecs[i] = dataSource.getDataSourceMetadata().getFieldSpec();
+      _dimensionDictionaries[i] = dataSource.getDictionary();
+      _dimensionReaders[i] = getColumnReader(dataSource);
+    }
+
+    Map<AggregationFunctionColumnPair, AggregationSpec> aggregationSpecs = builderConfig.getAggregationSpecs();
+    _numMetrics = aggregationSpecs.size();
+    _metrics = new String[_numMetrics];
+    _metricReaders = new PinotSegmentColumnReader[_numMetrics];
+    _valueAggregators = new ValueAggregator[_numMetrics];
+    int index = 0;
+    for (Map.Entry<AggregationFunctionColumnPair, AggregationSpec> entry : aggregationSpecs.entrySet()) {
+      AggregationFunctionColumnPair functionColumnPair = entry.getKey();
+      _metrics[index] = functionColumnPair.toColumnName();
+      List<ExpressionContext> arguments = StarTreeBuilderUtils.expressionContextFromFunctionParameters(
+          functionColumnPair.getFunctionType(), entry.getValue().getFunctionParameters());
+      _valueAggregators[index] =
+          ValueAggregatorFactory.getValueAggregator(functionColumnPair.getFunctionType(), arguments);
+      // Ignore the column for COUNT aggregation function
+      if (_valueAggregators[index].getAggregationType() != AggregationFunctionType.COUNT) {
+        String metricColumn = functionColumnPair.getColumn();
+        DataSource dataSource = segment.getDataSourceNullable(metricColumn);
+        Preconditions.checkArgument(dataSource != null && dataSource.getDataSourceMetadata().isSingleValue()
+            && dataSource.getForwardIndex() != null, "Metric column: %s is not a single-value column", metricColumn);
+        _metricReaders[index] = getColumnReader(dataSource);
+      }
+      index++;
+    }
+
+    _maxLeafRecords = builderConfig.getMaxLeafRecords();
+    _rebuildIntervalRows = rebuildIntervalRows;
+    _rebuildIntervalMs = rebuildIntervalMs;
+    _rebuildExecutor = rebuildExecutor;
+  }
+
+  private static ExecutorService createRebuildExecutor() {
+    AtomicInteger threadId = new AtomicInteger();
+    return Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 4), runnable -> {
+      Thread thread = new Thread(runnable, "mutable-star-tree-rebuild-" + threadId.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  private static PinotSegmentColumnReader getColumnReader(DataSource dataSource) {
+    return new PinotSegmentColumnReader(dataSource.getForwardIndex(), dataSource.getDictionary(),
+        dataSource.getNullValueVector(), 0);
+  }
+
+  public StarTreeV2BuilderConfig getBuilderConfig() {
+    return _builderConfig;
+  }
+
+  public List<String> getDimensionsSplitOrder() {
+    return _dimensionsSplitOrder;
+  }
+
+  /**
+   * Returns {@code true} if the star-tree cannot be used, either because a null dimension value has been indexed or
+   * because it failed to be updated.
+   */
+  public boolean isDisabled() {
+    return _disabled;
+  }
+
+  /**
+   * Returns the latest immutable snapshot of the star-tree, or {@code null} if no snapshot has been built yet or the
+   * star-tree cannot be used. The snapshot only covers the first {@link StarTreeV2#getNumCoveredDocs()} docs of the
+   * segment, and the docs indexed after it must be processed without the star-tree.
+   */
+  @Nullable
+  public StarTreeV2 getStarTree() {
+    return _starTree;
+  }
+
+  /**
+   * Returns the estimated heap size in bytes of the pre-aggregated records and the latest snapshot, as of the last
+   * rebuild.
+   */
+  public long getHeapMemoryUsedBytes() {
+    return _heapMemoryUsedBytes;
+  }
+
+  /**
+   * Schedules a rebuild of the snapshot of the star-tree to cover the given number of docs when at least
+   * {@code rebuildIntervalRows} rows or {@code rebuildIntervalMs} have passed since the previous snapshot, and no other
+   * rebuild is in flight. Must be called by the consuming thread after the docs are indexed (and queryable).
+   *
+   * @param numDocs Number of docs indexed (and queryable) in the segment
+   */
+  public void update(int numDocs) {
+    if (_closed || _disabled || !shouldRebuild(numDocs)) {
+      return;
+    }
+    synchronized (_rebuildLock) {
+      if (_rebuilding) {
+        return;
+      }
+      _rebuilding = true;
+    }
+    try {
+      _rebuildExecutor.execute(() -> rebuild(numDocs));
+    } catch (RejectedExecutionException e) {
+      LOGGER.warn("Failed to schedule the rebuild of star-tree: {}, will retry on the next update", _builderConfig, e);
+      finishRebuild();
+    }
+  }
+
+  /**
+   * Stops maintaining the star-tree, and waits for the in-flight rebuild (if any) to finish. Must be called before the
+   * indexes of the segment are closed.
+   */
+  public void close() {
+    _closed = true;
+    synchronized (_rebuildLock) {
+      boolean interrupted = false;
+      while (_rebuilding) {
+        try {
+          _rebuildLock.wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    _aggregatedRecords.clear();
+    _starTree = null;
+    _heapMemoryUsedBytes = 0;
+  }
+
+  private void rebuild(int numDocs) {
+    try {
+      if (!aggregateDocs(numDocs)) {
+        return;
+      }
+      Builder builder = new Builder(copyAggregatedRecords());
+      StarTreeV2 starTree = builder.build(_numDocsAggregated);
+      if (_closed || _disabled) {
+        return;
+      }
+      _starTree = starTree;
+      _heapMemoryUsedBytes = builder._heapMemoryUsedBytes;
+      _lastRebuildTimeMs = System.currentTimeMillis();
+    } catch (Exception e) {
+      // Do not fail the ingestion, but stop maintaining the star-tree as the pre-aggregated records might be partially
+      // updated
+      LOGGER.error("Caught exception while updating star-tree: {}, disabling it", _builderConfig, e);
+      disable();
+    } finally {
+      finishRebuild();
+    }
+  }
+
+  private void finishRebuild() {
+    synchronized (_rebuildLock) {
+      _rebuilding = false;
+      _rebuildLock.notifyAll();
+    }
+  }
+
+  private boolean shouldRebuild(int numDocs) {
+    int numNewDocs = numDocs - _numDocsAggregated;
+    return numNewDocs > 0 && (numNewDocs >= _rebuildIntervalRows
+        || System.currentTimeMillis() - _lastRebuildTimeMs >= _rebuildIntervalMs);
+  }
+
+  private void disable() {
+    _disabled = true;
+    _aggregatedRecords.clear();
+    _starTree = null;
+    _heapMemoryUsedBytes = 0;
+  }
+
+  /**
+   * Merges the docs from {@code _numDocsAggregated} to {@code numDocs} into the pre-aggregated records. Returns
+   * {@code false} if a null dimension value is found, in which case the star-tree becomes unusable, or if the star-tree
+   * is closed.
+   */
+  private boolean aggregateDocs(int numDocs) {
+    int[] dictIds = new int[_numDimensions];
+    for (int docId = _numDocsAggregated; docId < numDocs; docId++) {
+      // Stop early when the segment is being destroyed
+      if ((docId & 0x3FF) == 0 && _closed) {
+        return false;
+      }
+      for (int i = 0; i < _numDimensions; i++) {
+        PinotSegmentColumnReader dimensionReader = _dimensionReaders[i];
+        if (dimensionReader.isNull(docId)) {
+          LOGGER.warn("Found null value for dimension: {} in doc: {}, disabling star-tree: {}",
+              _dimensionsSplitOrder.get(i), docId, _builderConfig);
+          disable();
+          return false;
+        }
+        dictIds[i] = dimensionReader.getDictId(docId);
+      }
+      Object[] metrics = _aggregatedRecords.get(new FixedIntArray(dictIds));
+      if (metrics == null) {
+        metrics = new Object[_numMetrics];
+        for (int i = 0; i < _numMetrics; i++) {
+          metrics[i] = _valueAggregators[i].getInitialAggregatedValue(getRawValue(i, docId));
+        }
+        _aggregatedRecords.put(new FixedIntArray(dictIds.clone()), metrics);
+      } else {
+        for (int i = 0; i < _numMetrics; i++) {
+          metrics[i] = _valueAggregators[i].applyRawValue(metrics[i], getRawValue(i, docId));
+        }
+      }
+    }
+    _numDocsAggregated = Math.max(_numDocsAggregated, numDocs);
+    return true;
+  }
+
+  @Nullable
+  private Object getRawValue(int metricId, int docId) {
+    PinotSegmentColumnReader metricReader = _metricReaders[metricId];
+    return metricReader != null ? metricReader.getValue(docId) : null;
+  }
+
+  /**
+   * Returns a copy of the pre-aggregated records, where the aggregated values are cloned because they might be modified
+   * in place when merging the following docs.
+   */
+  private List<Record> copyAggregatedRecords() {
+    List<Record> records = new ArrayList<>(_aggregatedRecords.size());
+    for (Map.Entry<FixedIntArray, Object[]> entry : _aggregatedRecords.entrySet()) {
+      Object[] metrics = entry.getValue();
+      Object[] clonedMetrics = new Object[_numMetrics];
+      for (int i = 0; i < _numMetrics; i++) {
+        clonedMetrics[i] = _valueAggregators[i].cloneAggregatedValue(metrics[i]);
+      }
+      records.add(new Record(entry.getKey().elements().clone(), clonedMetrics));
+    }
+    return records;
+  }
+
+  /**
+   * The {@code Record} class represents an aggregated record with dimension dictionary ids and metric values.
+   */
+  private static class Record {
+    final int[] _dimensions;
+    final Object[] _metrics;
+
+    Record(int[] dimensions, Object[] metrics) {
+      _dimensions = dimensions;
+      _metrics = metrics;
+    }
+  }
+
+  /**
+   * Builds the star-tree on-heap from the pre-aggregated records. This follows the same algorithm as the
+   * {@code BaseSingleTreeBuilder}.
+   */
+  private class Builder {
+    final List<Record> _records;
+    final int _numRecords;
+    long _heapMemoryUsedBytes;
+
+    Builder(List<Record> records) {
+      records.sort(getComparator(0));
+      _records = records;
+      _numRecords = records.size();
+    }
+
+    StarTreeV2 build(int numCoveredDocs) {
+      TreeNode rootNode = new TreeNode();
+      constructStarTree(rootNode, 0, _records.size());
+      createAggregatedDocs(rootNode);
+
+      int numDocs = _records.size();
+      // The snapshot keeps the dictionary ids, the metric values and the tree nodes of all the star-tree docs, and the
+      // pre-aggregated records keep the dictionary ids and the unserialized metric values of the original records
+      long snapshotBytes = (long) numDocs * (STAR_TREE_DOC_OVERHEAD_BYTES + Integer.BYTES * _numDimensions);
+      long aggregatedRecordsBytes =
+          (long) _numRecords * (RECORD_OVERHEAD_BYTES + Integer.BYTES * _numDimensions + Long.BYTES * _numMetrics);
+      Map<String, DataSource> dataSourceMap = new HashMap<>();
+      for (int i = 0; i < _numDimensions; i++) {
+        int[] dictIds = new int[numDocs];
+        for (int docId = 0; docId < numDocs; docId++) {
+          dictIds[docId] = _records.get(docId)._dimensions[i];
+        }
+        dataSourceMap.put(_dimensionsSplitOrder.get(i),
+            new StarTreeDataSource(_dimensionFieldSpecs[i], numDocs, new DictIdReader(dictIds),
+                _dimensionDictionaries[i]));
+      }
+      for (int i = 0; i < _numMetrics; i++) {
+        ValueAggregator valueAggregator = _valueAggregators[i];
+        DataType valueType = valueAggregator.getAggregatedValueType();
+        MetricReader metricReader = new MetricReader(valueType, numDocs);
+        snapshotBytes += (long) Long.BYTES * numDocs;
+        for (int docId = 0; docId < numDocs; docId++) {
+          Object value = _records.get(docId)._metrics[i];
+          if (valueType == DataType.BYTES) {
+            value = valueAggregator.serializeAggregatedValue(value);
+            // Use the serialized size as the estimated size of the aggregated value
+            int numBytes = ((byte[]) value).length + BOXED_VALUE_BYTES;
+            snapshotBytes += numBytes;
+            if (docId < _numRecords) {
+              aggregatedRecordsBytes += numBytes;
+            }
+          } else if (docId < _numRecords) {
+            aggregatedRecordsBytes += BOXED_VALUE_BYTES;
+          }
+          metricReader.set(docId, value);
+        }
+        dataSourceMap.put(_metrics[i],
+            new StarTreeDataSource(new MetricFieldSpec(_metrics[i], valueType), numDocs, metricReader, null));
+      }
+
+      PropertiesConfiguration metadataProperties = new PropertiesConfiguration();
+      _builderConfig.writeMetadata(metadataProperties, numDocs);
+      StarTreeV2Metadata metadata = new StarTreeV2Metadata(metadataProperties);
+      StarTree starTree = new OnHeapStarTree(rootNode, _dimensionsSplitOrder);
+      _heapMemoryUsedBytes = snapshotBytes + aggregatedRecordsBytes;
+      return new StarTreeV2() {
+        @Override
+        public StarTree getStarTree() {
+          return starTree;
+        }
+
+        @Override
+        public int getNumCoveredDocs() {
+          return numCoveredDocs;
+        }
+
+        @Override
+        public StarTreeV2Metadata getMetadata() {
+          return metadata;
+        }
+
+        @Override
+        public DataSource getDataSource(String columnName) {
+          return dataSourceMap.get(columnName);
+        }
+
+        @Override
+        public void close() {
+        }
+      };
+    }
+
+    private void constructStarTree(TreeNode node, int startDocId, int endDocId) {
+      int childDimensionId = node._dimensionId + 1;
+      if (childDimensionId == _numDimensions) {
+        return;
+      }
+
+      // Construct all non-star children nodes
+      node._childDimensionId = childDimensionId;
+      Map<Integer, TreeNode> children = constructNonStarNodes(startDocId, endDocId, childDimensionId);
+      node._children = children;
+
+      // Construct star-node if required
+      if (!_skipStarNodeCreationForDimensions.contains(childDimensionId) && children.size() > 1) {
+        children.put(StarTreeNode.ALL, constructStarNode(startDocId, endDocId, childDimensionId));
+      }
+
+      // Further split on child nodes if required
+      for (TreeNode child : children.values()) {
+        if (child._endDocId - child._startDocId > _maxLeafRecords) {
+          constructStarTree(child, child._startDocId, child._endDocId);
+        }
+      }
+    }
+
+    private Map<Integer, TreeNode> constructNonStarNodes(int startDocId, int endDocId, int dimensionId) {
+      Map<Integer, TreeNode> nodes = new HashMap<>();
+      int nodeStartDocId = startDocId;
+      int nodeDimensionValue = _records.get(startDocId)._dimensions[dimensionId];
+      for (int i = startDocId + 1; i < endDocId; i++) {
+        int dimensionValue = _records.get(i)._dimensions[dimensionId];
+        if (dimensionValue != nodeDimensionValue) {
+          nodes.put(nodeDimensionValue, newNode(dimensionId, nodeDimensionValue, nodeStartDocId, i));
+          nodeStartDocId = i;
+          nodeDimensionValue = dimensionValue;
+        }
+      }
+      nodes.put(nodeDimensionValue, newNode(dimensionId, nodeDimensionValue, nodeStartDocId, endDocId));
+      return nodes;
+    }
+
+    private TreeNode constructStarNode(int startDocId, int endDocId, int dimensionId) {
+      // Replace the dimension with STAR, then sort and aggregate the records on the remaining dimensions
+      int numDocs = endDocId - startDocId;
+      List<Record> records = new ArrayList<>(_records.subList(startDocId, endDocId));
+      records.sort(getComparator(dimensionId + 1));
+      int starNodeStartDocId = _records.size();
+      Record aggregatedRecord = null;
+      for (int i = 0; i < numDocs; i++) {
+        Record record = records.get(i);
+        if (aggregatedRecord != null && !hasSameDimensions(aggregatedRecord, record, dimensionId + 1)) {
+          _records.add(aggregatedRecord);
+          aggregatedRecord = null;
+        }
+        aggregatedRecord = mergeRecord(aggregatedRecord, record);
+        aggregatedRecord._dimensions[dimensionId] = StarTreeV2Constants.STAR_IN_FORWARD_INDEX;
+      }
+      _records.add(aggregatedRecord);
+      return newNode(dimensionId, StarTreeNode.ALL, starNodeStartDocId, _records.size());
+    }
+
+    private Record createAggregatedDocs(TreeNode node) {
+      Record aggregatedRecord = null;
+      if (node._children == null) {
+        // For leaf node
+
+        if (node._startDocId == node._endDocId - 1) {
+          // If it has only one document, use it as the aggregated document
+          aggregatedRecord = _records.get(node._startDocId);
+          node._aggregatedDocId = node._startDocId;
+        } else {
+          // If it has multiple documents, aggregate all of them
+          for (int i = node._startDocId; i < node._endDocId; i++) {
+            aggregatedRecord = mergeRecord(aggregatedRecord, _records.get(i));
+          }
+          assert aggregatedRecord != null;
+          for (int i = node._dimensionId + 1; i < _numDimensions; i++) {
+            aggregatedRecord._dimensions[i] = StarTreeV2Constants.STAR_IN_FORWARD_INDEX;
+          }
+          node._aggregatedDocId = _records.size();
+          _records.add(aggregatedRecord);
+        }
+      } else {
+        // For non-leaf node
+
+        TreeNode starChild = node._children.get(StarTreeNode.ALL);
+        if (starChild != null) {
+          // If it has star child, use the star child aggregated document directly
+          for (TreeNode child : node._children.values()) {
+            if (child == starChild) {
+              aggregatedRecord = createAggregatedDocs(child);
+              node._aggregatedDocId = child._aggregatedDocId;
+            } else {
+              createAggregatedDocs(child);
+            }
+          }
+        } else {
+          // If no star child exists, aggregate all aggregated documents from non-star children
+          for (TreeNode child : node._children.values()) {
+            aggregatedRecord = mergeRecord(aggregatedRecord, createAggregatedDocs(child));
+          }
+          assert aggregatedRecord != null;
+          for (int i = node._dimensionId + 1; i < _numDimensions; i++) {
+            aggregatedRecord._dimensions[i] = StarTreeV2Constants.STAR_IN_FORWARD_INDEX;
+          }
+          node._aggregatedDocId = _records.size();
+          _records.add(aggregatedRecord);
+        }
+      }
+      return aggregatedRecord;
+    }
+
+    /**
+     * Merges a star-tree record into the aggregated record, creates a new aggregated record if the current one is
+     * {@code null}.
+     */
+    private Record mergeRecord(@Nullable Record aggregatedRecord, Record record) {
+      if (aggregatedRecord == null) {
+        Object[] metrics = new Object[_numMetrics];
+        for (int i = 0; i < _numMetrics; i++) {
+          metrics[i] = _valueAggregators[i].cloneAggregatedValue(record._metrics[i]);
+        }
+        return new Record(record._dimensions.clone(), metrics);
+      } else {
+        for (int i = 0; i < _numMetrics; i++) {
+          aggregatedRecord._metrics[i] =
+              _valueAggregators[i].applyAggregatedValue(aggregatedRecord._metrics[i], record._metrics[i]);
+        }
+        return aggregatedRecord;
+      }
+    }
+
+    private TreeNode newNode(int dimensionId, int dimensionValue, int startDocId, int endDocId) {
+      TreeNode node = new TreeNode();
+      node._dimensionId = dimensionId;
+      node._dimensionValue = dimensionValue;
+      node._startDocId = startDocId;
+      node._endDocId = endDocId;
+      return node;
+    }
+
+    private boolean hasSameDimensions(Record record1, Record record2, int fromDimensionId) {
+      for (int i = fromDimensionId; i < _numDimensions; i++) {
+        if (record1._dimensions[i] != record2._dimensions[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private Comparator<Record> getComparator(int fromDimensionId) {
+      return (o1, o2) -> {
+        for (int i = fromDimensionId; i < _numDimensions; i++) {
+          if (o1._dimensions[i] != o2._dimensions[i]) {
+            return Integer.compare(o1._dimensions[i], o2._dimensions[i]);
+          }
+        }
+        return 0;
+      };
+    }
+  }
+
+  /**
+   * On-heap forward index reader for the star-tree dimensions.
+   */
+  private static class DictIdReader implements ForwardIndexReader<ForwardIndexReaderContext> {
+    private final int[] _dictIds;
+
+    DictIdReader(int[] dictIds) {
+      _dictIds = dictIds;
+    }
+
+    @Override
+    public boolean isDictionaryEncoded() {
+      return true;
+    }
+
+    @Override
+    public boolean isSingleValue() {
+      return true;
+    }
+
+    @Override
+    public DataType getStoredType() {
+      return DataType.INT;
+    }
+
+    @Override
+    public int getDictId(int docId, ForwardIndexReaderContext context) {
+      return _dictIds[docId];
+    }
+
+    @Override
+    public void readDictIds(int[] docIds, int length, int[] dictIdBuffer, ForwardIndexReaderContext context) {
+      for (int i = 0; i < length; i++) {
+        dictIdBuffer[i] = _dictIds[docIds[i]];
+      }
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  /**
+   * On-heap raw forward index reader for the star-tree metrics (function-column pairs).
+   */
+  private static class MetricReader implements ForwardIndexReader<ForwardIndexReaderContext> {
+    private final DataType _storedType;
+    private final long[] _longValues;
+    private final double[] _doubleValues;
+    private final byte[][] _bytesValues;
+
+    MetricReader(DataType valueType, int numDocs) {
+      _storedType = valueType.getStoredType();
+      _longValues = _storedType == DataType.INT || _storedType == DataType.LONG ? new long[numDocs] : null;
+      _doubleValues = _storedType == DataType.FLOAT || _storedType == DataType.DOUBLE ? new double[numDocs] : null;
+      _bytesValues = _storedType == DataType.BYTES ? new byte[numDocs][] : null;
+      Preconditions.checkState(_longValues != null || _doubleValues != null || _bytesValues != null,
+          "Unsupported aggregated value type: %s", valueType);
+    }
+
+    void set(int docId, Object value) {
+      if (_longValues != null) {
+        _longValues[docId] = ((Number) value).longValue();
+      } else if (_doubleValues != null) {
+        _doubleValues[docId] = ((Number) value).doubleValue();
+      } else {
+        _bytesValues[docId] = (byte[]) value;
+      }
+    }
+
+    @Override
+    public boolean isDictionaryEncoded() {
+      return false;
+    }
+
+    @Override
+    public boolean isSingleValue() {
+      return true;
+    }
+
+    @Override
+    public DataType getStoredType() {
+      return _storedType;
+    }
+
+    @Override
+    public int getInt(int docId, ForwardIndexReaderContext context) {
+      return _longValues != null ? (int) _longValues[docId] : (int) _doubleValues[docId];
+    }
+
+    @Override
+    public long getLong(int docId, ForwardIndexReaderContext context) {
+      return _longValues != null ? _longValues[docId] : (long) _doubleValues[docId];
+    }
+
+    @Override
+    public float getFloat(int docId, ForwardIndexReaderContext context) {
+      return _longValues != null ? (float) _longValues[docId] : (float) _doubleValues[docId];
+    }
+
+    @Override
+    public double getDouble(int docId, ForwardIndexReaderContext context) {
+      return _longValues != null ? (double) _longValues[docId] : _doubleValues[docId];
+    }
+
+    @Override
+    public byte[] getBytes(int docId, ForwardIndexReaderContext context) {
+      return _bytesValues[docId];
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
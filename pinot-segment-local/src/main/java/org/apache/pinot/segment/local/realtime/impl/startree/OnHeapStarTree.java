@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.realtime.impl.startree;
+
+import com.google.common.base.MoreObjects;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.apache.pinot.segment.local.startree.StarTreeBuilderUtils.TreeNode;
+import org.apache.pinot.segment.spi.index.reader.Dictionary;
+import org.apache.pinot.segment.spi.index.startree.StarTree;
+import org.apache.pinot.segment.spi.index.startree.StarTreeNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The {@code OnHeapStarTree} class implements the star-tree using on-heap memory. It is built from the tree nodes
+ * generated by the {@link MutableStarTree} and is immutable once created.
+ */
+public class OnHeapStarTree implements StarTree {
+  private static final Logger LOGGER = LoggerFactory.getLogger(OnHeapStarTree.class);
+
+  private final OnHeapStarTreeNode _root;
+  private final List<String> _dimensionNames;
+
+  public OnHeapStarTree(TreeNode rootNode, List<String> dimensionNames) {
+    _root = new OnHeapStarTreeNode(rootNode);
+    _dimensionNames = dimensionNames;
+  }
+
+  @Override
+  public StarTreeNode getRoot() {
+    return _root;
+  }
+
+  @Override
+  public List<String> getDimensionNames() {
+    return _dimensionNames;
+  }
+
+  @Override
+  public void printTree(Map<String, Dictionary> dictionaryMap) {
+    printTreeHelper(dictionaryMap, _root, 0);
+  }
+
+  /**
+   * Helper method to print the tree.
+   */
+  private void printTreeHelper(Map<String, Dictionary> dictionaryMap, OnHeapStarTreeNode node, int level) {
+    StringBuilder stringBuilder = new StringBuilder();
+    for (int i = 0; i < level; i++) {
+      stringBuilder.append("  ");
+    }
+    String dimensionName = "ALL";
+    int dimensionId = node.getDimensionId();
+    if (dimensionId != StarTreeNode.ALL) {
+      dimensionName = _dimensionNames.get(dimensionId);
+    }
+    String dimensionValueString = "ALL";
+    int dimensionValue = node.getDimensionValue();
+    if (dimensionValue != StarTreeNode.ALL) {
+      dimensionValueString = dictionaryMap.get(dimensionName).get(dimensionValue).toString();
+    }
+
+    // For leaf node, child dimension id is -1
+    String childDimensionName = "null";
+    int childDimensionId = node.getChildDimensionId();
+    if (childDimensionId != -1) {
+      childDimensionName = _dimensionNames.get(childDimensionId);
+    }
+
+    String formattedOutput = MoreObjects.toStringHelper(node).add("level", level).add("dimensionName", dimensionName)
+        .add("dimensionValue", dimensionValueString).add("childDimensionName", childDimensionName)
+        .add("startDocId", node.getStartDocId()).add("endDocId", node.getEndDocId())
+        .add("aggregatedDocId", node.getAggregatedDocId()).add("numChildren", node.getNumChildren()).toString();
+    stringBuilder.append(formattedOutput);
+    LOGGER.info(stringBuilder.toString());
+
+    if (!node.isLeaf()) {
+      Iterator<OnHeapStarTreeNode> childrenIterator = node.getChildrenIterator();
+      while (childrenIterator.hasNext()) {
+        printTreeHelper(dictionaryMap, childrenIterator.next(), level + 1);
+      }
+    }
+  }
+
+  /**
+   * The {@code OnHeapStarTreeNode} class wraps the {@link TreeNode} generated by the star-tree building algorithm.
+   */
+  public static class OnHeapStarTreeNode implements StarTreeNode {
+    private final TreeNode _node;
+    private final Int2ObjectOpenHashMap<OnHeapStarTreeNode> _children;
+
+    OnHeapStarTreeNode(TreeNode node) {
+      _node = node;
+      if (node._children != null) {
+        _children = new Int2ObjectOpenHashMap<>(node._children.size());
+        for (Map.Entry<Integer, TreeNode> entry : node._children.entrySet()) {
+          _children.put(entry.getKey().intValue(), new OnHeapStarTreeNode(entry.getValue()));
+        }
+      } else {
+        _children = null;
+      }
+    }
+
+    @Override
+    public int getDimensionId() {
+      return _node._dimensionId;
+    }
+
+    @Override
+    public int getDimensionValue() {
+      return _node._dimensionValue;
+    }
+
+    @Override
+    public int getChildDimensionId() {
+      return _node._childDimensionId;
+    }
+
+    @Override
+    public int getStartDocId() {
+      return _node._startDocId;
+    }
+
+    @Override
+    public int getEndDocId() {
+      return _node._endDocId;
+    }
+
+    @Override
+    public int getAggregatedDocId() {
+      return _node._aggregatedDocId;
+    }
+
+    @Override
+    public int getNumChildren() {
+      return _children != null ? _children.size() : 0;
+    }
+
+    @Override
+    public boolean isLeaf() {
+      return _children == null;
+    }
+
+    @Nullable
+    @Override
+    public OnHeapStarTreeNode getChildForDimensionValue(int dimensionValue) {
+      return _children != null ? _children.get(dimensionValue) : null;
+    }
+
+    @Override
+    public Iterator<OnHeapStarTreeNode> getChildrenIterator() {
+      return _children != null ? _children.values().iterator() : Collections.emptyIterator();
+    }
+  }
+}
@@ -33,6 +33,7 @@ import org.apache.pinot.spi.config.table.TableConfig;
 import org.apache.pinot.spi.config.table.ingestion.IngestionConfig;
 import org.apache.pinot.spi.data.FieldSpec;
 import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.ColumnBatch;
 import org.apache.pinot.spi.data.readers.GenericRow;
 import org.apache.pinot.spi.recordtransformer.RecordTransformer;
 import org.slf4j.Logger;
@@ -66,6 +67,11 @@ public class DataTypeTransformer implements RecordTransformer {
     return _dataTypes.keySet();
   }
 
+  @Override
+  public boolean isColumnar() {
+    return true;
+  }
+
   @Override
   public void transform(GenericRow record) {
     for (Map.Entry<String, PinotDataType> entry : _dataTypes.entrySet()) {
@@ -75,57 +81,89 @@ public class DataTypeTransformer implements RecordTransformer {
         if (value == null) {
           continue;
         }
-
-        PinotDataType dest = entry.getValue();
-        if (dest != PinotDataType.JSON && dest != PinotDataType.MAP) {
-          value = standardize(column, value, dest.isSingleValue());
+        record.putValue(column, transformValue(column, value, entry.getValue()));
+      } catch (Exception e) {
+        if (!_continueOnError) {
+          throw new RuntimeException("Caught exception while transforming data type for column: " + column, e);
         }
+        LOGGER.debug("Caught exception while transforming data type for column: {}", column, e);
+        record.putValue(column, null);
+        record.markIncomplete();
+      }
+    }
+  }
 
-        // NOTE: The standardized value could be null for empty Collection/Map/Object[].
+  @Override
+  public void transform(ColumnBatch batch) {
+    int numRows = batch.getNumRows();
+    for (Map.Entry<String, PinotDataType> entry : _dataTypes.entrySet()) {
+      String column = entry.getKey();
+      Object[] values = batch.getValues(column);
+      if (values == null) {
+        continue;
+      }
+      PinotDataType dest = entry.getValue();
+      for (int i = 0; i < numRows; i++) {
+        Object value = values[i];
         if (value == null) {
-          record.putValue(column, null);
           continue;
         }
-
-        // Convert data type if necessary
-        PinotDataType source;
-        if (value instanceof Object[]) {
-          // Multi-value column
-          Object[] values = (Object[]) value;
-          // JSON is not standardised for empty json array
-          if (dest == PinotDataType.JSON && values.length == 0) {
-            source = PinotDataType.JSON;
-          } else {
-            source = PinotDataType.getMultiValueType(values[0].getClass());
+        try {
+          values[i] = transformValue(column, value, dest);
+        } catch (Exception e) {
+          if (!_continueOnError) {
+            throw new RuntimeException("Caught exception while transforming data type for column: " + column, e);
           }
-        } else {
-          // Single-value column
-          source = PinotDataType.getSingleValueType(value.getClass());
+          LOGGER.debug("Caught exception while transforming data type for column: {}", column, e);
+          values[i] = null;
+          batch.markIncomplete(i);
         }
+      }
+    }
+  }
 
-        // Skipping conversion when srcType!=destType is speculative, and can be unsafe when
-        // the array for MV column contains values of mixing types. Mixing types can lead
-        // to ClassCastException during conversion, often aborting data ingestion jobs.
-        //
-        // So now, calling convert() unconditionally for safety. Perf impact is negligible:
-        // 1. for SV column, when srcType=destType, the conversion is simply pass through.
-        // 2. for MV column, when srcType=destType, the conversion is simply pass through
-        // if the source type is not Object[] (but sth like Integer[], Double[]). For Object[],
-        // the conversion loops through values in the array like before, but can catch the
-        // ClassCastException if it happens and continue the conversion now.
-        value = dest.convert(value, source);
-        value = dest.toInternal(value);
+  /**
+   * Converts the non-null value of the given column to the destination data type.
+   */
+  @Nullable
+  private static Object transformValue(String column, Object value, PinotDataType dest) {
+    if (dest != PinotDataType.JSON && dest != PinotDataType.MAP) {
+      value = standardize(column, value, dest.isSingleValue());
+    }
 
-        record.putValue(column, value);
-      } catch (Exception e) {
-        if (!_continueOnError) {
-          throw new RuntimeException("Caught exception while transforming data type for column: " + column, e);
-        }
-        LOGGER.debug("Caught exception while transforming data type for column: {}", column, e);
-        record.putValue(column, null);
-        record.markIncomplete();
+    // NOTE: The standardized value could be null for empty Collection/Map/Object[].
+    if (value == null) {
+      return null;
+    }
+
+    // Convert data type if necessary
+    PinotDataType source;
+    if (value instanceof Object[]) {
+      // Multi-value column
+      Object[] values = (Object[]) value;
+      // JSON is not standardised for empty json array
+      if (dest == PinotDataType.JSON && values.length == 0) {
+        source = PinotDataType.JSON;
+      } else {
+        source = PinotDataType.getMultiValueType(values[0].getClass());
       }
+    } else {
+      // Single-value column
+      source = PinotDataType.getSingleValueType(value.getClass());
     }
+
+    // Skipping conversion when srcType!=destType is speculative, and can be unsafe when
+    // the array for MV column contains values of mixing types. Mixing types can lead
+    // to ClassCastException during conversion, often aborting data ingestion jobs.
+    //
+    // So now, calling convert() unconditionally for safety. Perf impact is negligible:
+    // 1. for SV column, when srcType=destType, the conversion is simply pass through.
+    // 2. for MV column, when srcType=destType, the conversion is simply pass through
+    // if the source type is not Object[] (but sth like Integer[], Double[]). For Object[],
+    // the conversion loops through values in the array like before, but can catch the
+    // ClassCastException if it happens and continue the conversion now.
+    value = dest.convert(value, source);
+    return dest.toInternal(value);
   }
 
   /**
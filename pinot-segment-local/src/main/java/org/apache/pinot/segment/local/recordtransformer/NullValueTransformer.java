@@ -27,6 +27,7 @@ import org.apache.pinot.spi.data.DateTimeFieldSpec;
 import org.apache.pinot.spi.data.DateTimeFormatSpec;
 import org.apache.pinot.spi.data.FieldSpec;
 import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.ColumnBatch;
 import org.apache.pinot.spi.data.readers.GenericRow;
 import org.apache.pinot.spi.recordtransformer.RecordTransformer;
 import org.apache.pinot.spi.utils.TimeUtils;
@@ -82,6 +83,11 @@ public class NullValueTransformer implements RecordTransformer {
     }
   }
 
+  @Override
+  public boolean isColumnar() {
+    return true;
+  }
+
   @Override
   public void transform(GenericRow record) {
     for (Map.Entry<String, Object> entry : _defaultNullValues.entrySet()) {
@@ -92,4 +98,18 @@ public class NullValueTransformer implements RecordTransformer {
       }
     }
   }
+
+  @Override
+  public void transform(ColumnBatch batch) {
+    int numRows = batch.getNumRows();
+    for (Map.Entry<String, Object> entry : _defaultNullValues.entrySet()) {
+      String fieldName = entry.getKey();
+      Object[] values = batch.getOrCreateValues(fieldName);
+      for (int i = 0; i < numRows; i++) {
+        if (values[i] == null) {
+          batch.putDefaultNullValue(fieldName, i, entry.getValue());
+        }
+      }
+    }
+  }
 }
@@ -26,6 +26,7 @@ import org.apache.pinot.spi.data.FieldSpec;
 import org.apache.pinot.spi.data.FieldSpec.DataType;
 import org.apache.pinot.spi.data.FieldSpec.MaxLengthExceedStrategy;
 import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.ColumnBatch;
 import org.apache.pinot.spi.data.readers.GenericRow;
 import org.apache.pinot.spi.recordtransformer.RecordTransformer;
 import org.apache.pinot.spi.utils.StringUtil;
@@ -75,41 +76,68 @@ public class SanitizationTransformer implements RecordTransformer {
     return _columnToColumnInfoMap.isEmpty();
   }
 
+  @Override
+  public boolean isColumnar() {
+    return true;
+  }
+
   @Override
   public void transform(GenericRow record) {
     for (Map.Entry<String, SanitizedColumnInfo> entry : _columnToColumnInfoMap.entrySet()) {
       String columnName = entry.getKey();
-      Object value = record.getValue(columnName);
-      Pair<?, Boolean> result;
-      if (value instanceof byte[]) {
-        // Single-values BYTES column
-        result = sanitizeBytesValue(columnName, (byte[]) value, entry.getValue());
-        record.putValue(columnName, result.getLeft());
+      Pair<?, Boolean> result = sanitizeColumnValue(columnName, record.getValue(columnName), entry.getValue());
+      record.putValue(columnName, result.getLeft());
+      if (result.getRight()) {
+        record.markSanitized();
+      }
+    }
+  }
+
+  @Override
+  public void transform(ColumnBatch batch) {
+    int numRows = batch.getNumRows();
+    for (Map.Entry<String, SanitizedColumnInfo> entry : _columnToColumnInfoMap.entrySet()) {
+      String columnName = entry.getKey();
+      Object[] values = batch.getOrCreateValues(columnName);
+      for (int i = 0; i < numRows; i++) {
+        Pair<?, Boolean> result = sanitizeColumnValue(columnName, values[i], entry.getValue());
+        values[i] = result.getLeft();
         if (result.getRight()) {
-          record.markSanitized();
+          batch.markSanitized(i);
         }
-      } else if (value instanceof String) {
-        // Single-valued String column
-        result = sanitizeValue(columnName, (String) value, entry.getValue());
-        record.putValue(columnName, result.getLeft());
-        if (result.getRight()) {
-          record.markSanitized();
+      }
+    }
+  }
+
+  /**
+   * Sanitizes the value of a column. Multi-value is sanitized in-place.
+   * @return the sanitized value and a boolean indicating if the value was sanitized
+   */
+  private Pair<?, Boolean> sanitizeColumnValue(String columnName, Object value,
+      SanitizedColumnInfo sanitizedColumnInfo) {
+    if (value instanceof byte[]) {
+      // Single-values BYTES column
+      return sanitizeBytesValue(columnName, (byte[]) value, sanitizedColumnInfo);
+    } else if (value instanceof String) {
+      // Single-valued String column
+      return sanitizeValue(columnName, (String) value, sanitizedColumnInfo);
+    } else {
+      // Multi-valued String / BYTES column
+      Object[] values = (Object[]) value;
+      boolean sanitized = false;
+      for (int i = 0; i < values.length; i++) {
+        Pair<?, Boolean> result;
+        if (values[i] instanceof byte[]) {
+          result = sanitizeBytesValue(columnName, (byte[]) values[i], sanitizedColumnInfo);
+        } else {
+          result = sanitizeValue(columnName, values[i].toString(), sanitizedColumnInfo);
         }
-      } else {
-        // Multi-valued String / BYTES column
-        Object[] values = (Object[]) value;
-        for (int i = 0; i < values.length; i++) {
-          if (values[i] instanceof byte[]) {
-            result = sanitizeBytesValue(columnName, (byte[]) values[i], entry.getValue());
-          } else {
-            result = sanitizeValue(columnName, values[i].toString(), entry.getValue());
-          }
-          values[i] = result.getLeft();
-          if (result.getRight()) {
-            record.markSanitized();
-          }
+        values[i] = result.getLeft();
+        if (result.getRight()) {
+          sanitized = true;
         }
       }
+      return Pair.of(values, sanitized);
     }
   }
 
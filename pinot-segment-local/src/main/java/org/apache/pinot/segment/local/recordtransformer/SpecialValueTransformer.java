@@ -27,6 +27,7 @@ import javax.annotation.Nullable;
 import org.apache.pinot.spi.data.FieldSpec;
 import org.apache.pinot.spi.data.FieldSpec.DataType;
 import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.ColumnBatch;
 import org.apache.pinot.spi.data.readers.GenericRow;
 import org.apache.pinot.spi.recordtransformer.RecordTransformer;
 
@@ -78,35 +79,64 @@ public class SpecialValueTransformer implements RecordTransformer {
     return _columnsToCheck.isEmpty();
   }
 
+  @Override
+  public boolean isColumnar() {
+    return true;
+  }
+
   @Override
   public void transform(GenericRow record) {
     for (String column : _columnsToCheck) {
       Object value = record.getValue(column);
-      if (value instanceof Object[]) {
-        // Multi-valued column.
-        Object[] values = (Object[]) value;
-        List<Object> transformedValues = new ArrayList<>(values.length);
-        boolean transformed = false;
-        for (Object v : values) {
-          Object transformedValue = transformValue(v);
-          if (transformedValue != v) {
-            transformed = true;
-          }
-          if (transformedValue != null) {
-            transformedValues.add(transformedValue);
-          }
-          if (transformed) {
-            record.putValue(column, !transformedValues.isEmpty() ? transformedValues.toArray() : null);
-          }
+      Object transformedValue = transformColumnValue(value);
+      if (transformedValue != value) {
+        record.putValue(column, transformedValue);
+      }
+    }
+  }
+
+  @Override
+  public void transform(ColumnBatch batch) {
+    int numRows = batch.getNumRows();
+    for (String column : _columnsToCheck) {
+      Object[] values = batch.getValues(column);
+      if (values == null) {
+        continue;
+      }
+      for (int i = 0; i < numRows; i++) {
+        values[i] = transformColumnValue(values[i]);
+      }
+    }
+  }
+
+  /**
+   * Returns the transformed value of a column, or the same value if it is not transformed.
+   */
+  @Nullable
+  private Object transformColumnValue(@Nullable Object value) {
+    if (value instanceof Object[]) {
+      // Multi-valued column.
+      Object[] values = (Object[]) value;
+      List<Object> transformedValues = new ArrayList<>(values.length);
+      boolean transformed = false;
+      for (Object v : values) {
+        Object transformedValue = transformValue(v);
+        if (transformedValue != v) {
+          transformed = true;
         }
-      } else if (value != null) {
-        // Single-valued column.
-        Object transformedValue = transformValue(value);
-        if (transformedValue != value) {
-          record.putValue(column, transformedValue);
+        if (transformedValue != null) {
+          transformedValues.add(transformedValue);
         }
       }
+      if (transformed) {
+        return !transformedValues.isEmpty() ? transformedValues.toArray() : null;
+      }
+      return value;
+    } else if (value != null) {
+      // Single-valued column.
+      return transformValue(value);
     }
+    return null;
   }
 
   @Nullable
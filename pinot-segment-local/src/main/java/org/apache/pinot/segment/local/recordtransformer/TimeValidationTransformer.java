@@ -25,6 +25,7 @@ import org.apache.pinot.spi.data.DateTimeFieldSpec;
 import org.apache.pinot.spi.data.DateTimeFormatSpec;
 import org.apache.pinot.spi.data.FieldSpec;
 import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.ColumnBatch;
 import org.apache.pinot.spi.data.readers.GenericRow;
 import org.apache.pinot.spi.recordtransformer.RecordTransformer;
 import org.apache.pinot.spi.utils.TimeUtils;
@@ -68,12 +69,40 @@ public class TimeValidationTransformer implements RecordTransformer {
     return !_enableTimeValueCheck;
   }
 
+  @Override
+  public boolean isColumnar() {
+    return true;
+  }
+
   @Override
   public void transform(GenericRow record) {
     Object timeValue = record.getValue(_timeColumnName);
-    if (timeValue == null) {
+    if (timeValue != null && !isValid(timeValue)) {
+      record.putValue(_timeColumnName, null);
+      record.markIncomplete();
+    }
+  }
+
+  @Override
+  public void transform(ColumnBatch batch) {
+    Object[] timeValues = batch.getValues(_timeColumnName);
+    if (timeValues == null) {
       return;
     }
+    int numRows = batch.getNumRows();
+    for (int i = 0; i < numRows; i++) {
+      Object timeValue = timeValues[i];
+      if (timeValue != null && !isValid(timeValue)) {
+        timeValues[i] = null;
+        batch.markIncomplete(i);
+      }
+    }
+  }
+
+  /**
+   * Returns whether the time value is valid. Throws exception for invalid time value when not continuing on error.
+   */
+  private boolean isValid(Object timeValue) {
     long timeValueMs;
     try {
       timeValueMs = _timeFormatSpec.fromFormatToMillis(timeValue.toString());
@@ -84,9 +113,7 @@ public class TimeValidationTransformer implements RecordTransformer {
         throw new IllegalStateException(errorMessage, e);
       }
       LOGGER.debug(errorMessage, e);
-      record.putValue(_timeColumnName, null);
-      record.markIncomplete();
-      return;
+      return false;
     }
     if (!TimeUtils.timeValueInValidRange(timeValueMs)) {
       String errorMessage =
@@ -96,8 +123,8 @@ public class TimeValidationTransformer implements RecordTransformer {
         throw new IllegalStateException(errorMessage);
       }
       LOGGER.debug(errorMessage);
-      record.putValue(_timeColumnName, null);
-      record.markIncomplete();
+      return false;
     }
+    return true;
   }
 }
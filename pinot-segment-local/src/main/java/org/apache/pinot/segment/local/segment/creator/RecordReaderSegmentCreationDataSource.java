@@ -18,11 +18,17 @@
  */
 package org.apache.pinot.segment.local.segment.creator;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import javax.annotation.Nullable;
 import org.apache.pinot.common.Utils;
 import org.apache.pinot.segment.local.segment.creator.impl.stats.SegmentPreIndexStatsCollectorImpl;
 import org.apache.pinot.segment.spi.creator.SegmentCreationDataSource;
 import org.apache.pinot.segment.spi.creator.SegmentPreIndexStatsCollector;
 import org.apache.pinot.segment.spi.creator.StatsCollectorConfig;
+import org.apache.pinot.spi.data.readers.ColumnBatch;
+import org.apache.pinot.spi.data.readers.ColumnarRecordReader;
 import org.apache.pinot.spi.data.readers.GenericRow;
 import org.apache.pinot.spi.data.readers.RecordReader;
 import org.slf4j.Logger;
@@ -37,8 +43,12 @@ import org.slf4j.LoggerFactory;
 public class RecordReaderSegmentCreationDataSource implements SegmentCreationDataSource {
   private static final Logger LOGGER = LoggerFactory.getLogger(RecordReaderSegmentCreationDataSource.class);
 
+  // Number of rows buffered before collecting their stats when collecting the stats of different columns concurrently
+  public static final int STATS_COLLECTION_BATCH_SIZE = 10_000;
+
   private final RecordReader _recordReader;
   private TransformPipeline _transformPipeline;
+  private ExecutorService _executorService;
 
   public RecordReaderSegmentCreationDataSource(RecordReader recordReader) {
     _recordReader = recordReader;
@@ -48,33 +58,58 @@ public class RecordReaderSegmentCreationDataSource implements SegmentCreationDat
     _transformPipeline = transformPipeline;
   }
 
+  /**
+   * Sets the executor used to collect the stats of different columns concurrently.
+   */
+  public void setExecutorService(@Nullable ExecutorService executorService) {
+    _executorService = executorService;
+  }
+
+  /**
+   * Returns whether the records can be read and transformed in column-major batches without materializing a
+   * {@link GenericRow} per record, i.e. the record reader supports columnar reads and all the transformers transform
+   * each value independently. Records are read row by row when continuing on error so that bad records are skipped.
+   */
+  public static boolean isColumnarIngestion(RecordReader recordReader, TransformPipeline transformPipeline,
+      boolean continueOnError) {
+    return !continueOnError && recordReader instanceof ColumnarRecordReader
+        && ((ColumnarRecordReader) recordReader).isColumnarReadSupported() && transformPipeline.isColumnar();
+  }
+
   @Override
   public SegmentPreIndexStatsCollector gatherStats(StatsCollectorConfig statsCollectorConfig) {
     try {
       TransformPipeline transformPipeline = _transformPipeline != null ? _transformPipeline
           : new TransformPipeline(statsCollectorConfig.getTableConfig(), statsCollectorConfig.getSchema());
 
-      SegmentPreIndexStatsCollector collector = new SegmentPreIndexStatsCollectorImpl(statsCollectorConfig);
+      SegmentPreIndexStatsCollectorImpl collector =
+          new SegmentPreIndexStatsCollectorImpl(statsCollectorConfig, _executorService);
       collector.init();
 
       // Gather the stats
       boolean continueOnError =
           statsCollectorConfig.getTableConfig().getIngestionConfig() != null && statsCollectorConfig.getTableConfig()
               .getIngestionConfig().isContinueOnError();
-      GenericRow reuse = new GenericRow();
-      while (_recordReader.hasNext()) {
-        reuse.clear();
-        try {
-          reuse = _recordReader.next(reuse);
-          TransformPipeline.Result result = transformPipeline.processRow(reuse);
-          for (GenericRow row : result.getTransformedRows()) {
-            collector.collectRow(row);
-          }
-        } catch (Exception e) {
-          if (!continueOnError) {
-            throw new RuntimeException("Caught exception while reading data", e);
+      if (isColumnarIngestion(_recordReader, transformPipeline, continueOnError)) {
+        gatherStatsInColumnBatches(transformPipeline, collector);
+      } else if (_executorService != null) {
+        gatherStatsInBatches(transformPipeline, collector, continueOnError);
+      } else {
+        GenericRow reuse = new GenericRow();
+        while (_recordReader.hasNext()) {
+          reuse.clear();
+          try {
+            reuse = _recordReader.next(reuse);
+            TransformPipeline.Result result = transformPipeline.processRow(reuse);
+            for (GenericRow row : result.getTransformedRows()) {
+              collector.collectRow(row);
+            }
+          } catch (Exception e) {
+            if (!continueOnError) {
+              throw new RuntimeException("Caught exception while reading data", e);
+            }
+            LOGGER.debug("Caught exception while reading data", e);
           }
-          LOGGER.debug("Caught exception while reading data", e);
         }
       }
       transformPipeline.reportStats();
@@ -87,6 +122,50 @@ public class RecordReaderSegmentCreationDataSource implements SegmentCreationDat
     }
   }
 
+  /**
+   * Reads the records into batches, and collects the stats of different columns of each batch concurrently. Rows are
+   * not reused across records as they are buffered.
+   */
+  private void gatherStatsInBatches(TransformPipeline transformPipeline, SegmentPreIndexStatsCollectorImpl collector,
+      boolean continueOnError)
+      throws Exception {
+    List<GenericRow> batch = new ArrayList<>(STATS_COLLECTION_BATCH_SIZE);
+    while (_recordReader.hasNext()) {
+      try {
+        GenericRow decodedRow = _recordReader.next(new GenericRow());
+        batch.addAll(transformPipeline.processRow(decodedRow).getTransformedRows());
+      } catch (Exception e) {
+        if (!continueOnError) {
+          throw new RuntimeException("Caught exception while reading data", e);
+        }
+        LOGGER.debug("Caught exception while reading data", e);
+      }
+      if (batch.size() >= STATS_COLLECTION_BATCH_SIZE) {
+        collector.collectRows(batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      collector.collectRows(batch);
+    }
+  }
+
+  /**
+   * Reads the records into column-major batches, and collects the stats of each batch.
+   */
+  private void gatherStatsInColumnBatches(TransformPipeline transformPipeline,
+      SegmentPreIndexStatsCollectorImpl collector)
+      throws Exception {
+    ColumnarRecordReader recordReader = (ColumnarRecordReader) _recordReader;
+    ColumnBatch batch = new ColumnBatch(STATS_COLLECTION_BATCH_SIZE);
+    while (recordReader.hasNext()) {
+      batch.clear();
+      recordReader.nextBatch(batch);
+      transformPipeline.processBatch(batch);
+      collector.collectBatch(batch);
+    }
+  }
+
   @Override
   public RecordReader getRecordReader() {
     try {
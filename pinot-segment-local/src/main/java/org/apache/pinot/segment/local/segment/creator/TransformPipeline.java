@@ -26,6 +26,7 @@ import org.apache.pinot.segment.local.recordtransformer.FilterTransformer;
 import org.apache.pinot.segment.local.recordtransformer.RecordTransformerUtils;
 import org.apache.pinot.spi.config.table.TableConfig;
 import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.ColumnBatch;
 import org.apache.pinot.spi.data.readers.GenericRow;
 import org.apache.pinot.spi.recordtransformer.RecordTransformer;
 import org.slf4j.Logger;
@@ -112,6 +113,28 @@ public class TransformPipeline {
     return new Result(rows, skippedRowCount, incompleteRowCount, sanitizedRowCount);
   }
 
+  /// Returns `true` if all the transformers can transform records in column-major batches, in which case records can
+  /// be processed with `processBatch(ColumnBatch)` without materializing a `GenericRow` per record.
+  public boolean isColumnar() {
+    for (RecordTransformer transformer : _transformers) {
+      if (!transformer.isColumnar()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /// Transforms a batch of records in-place. Should be called only if `isColumnar()` returns `true`. The incomplete and
+  /// sanitized rows are marked in the batch.
+  public void processBatch(ColumnBatch batch) {
+    _numRowsProcessed += batch.getNumRows();
+    for (RecordTransformer transformer : _transformers) {
+      transformer.transform(batch);
+    }
+    _numRowsIncomplete += batch.getNumIncompleteRows();
+    _numRowsSanitized += batch.getNumSanitizedRows();
+  }
+
   /// Reports stats after all rows are processed.
   public void reportStats() {
     for (RecordTransformer transformer : _transformers) {
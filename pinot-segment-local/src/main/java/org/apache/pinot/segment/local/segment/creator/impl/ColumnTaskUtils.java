@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.creator.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+
+/**
+ * Utility to run a task for each column of a segment being created, concurrently when an executor is provided.
+ * Different columns never share state during segment creation, so the tasks of different columns can run
+ * concurrently as long as the tasks of the same column run in order.
+ */
+public class ColumnTaskUtils {
+  private ColumnTaskUtils() {
+  }
+
+  /**
+   * Creates an executor to build the segment with the given parallelism, or returns {@code null} if the segment should
+   * be built on the calling thread. The returned executor should be shut down by the caller.
+   */
+  @Nullable
+  public static ExecutorService createExecutor(int parallelism, String tableName) {
+    if (parallelism <= 1) {
+      return null;
+    }
+    AtomicInteger threadId = new AtomicInteger();
+    return Executors.newFixedThreadPool(parallelism, runnable -> {
+      Thread thread = new Thread(runnable, "segment-creation-" + tableName + "-" + threadId.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Runs the task for each of the given columns, and returns when all of them finish. When the executor is
+   * {@code null}, the tasks are run sequentially on the calling thread. If any task fails, the first failure is thrown
+   * after all the tasks finish so that no task is still writing to the segment.
+   */
+  public static void runForEachColumn(Collection<String> columns, @Nullable ExecutorService executorService,
+      ColumnTask task)
+      throws Exception {
+    if (executorService == null || columns.size() < 2) {
+      for (String column : columns) {
+        task.run(column);
+      }
+      return;
+    }
+    List<Future<?>> futures = new ArrayList<>(columns.size());
+    for (String column : columns) {
+      futures.add(executorService.submit(() -> {
+        task.run(column);
+        return null;
+      }));
+    }
+    Throwable failure = null;
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      }
+    }
+    if (failure instanceof Exception) {
+      throw (Exception) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+  }
+
+  /**
+   * Task on a single column.
+   */
+  @FunctionalInterface
+  public interface ColumnTask {
+    void run(String column)
+        throws Exception;
+  }
+}
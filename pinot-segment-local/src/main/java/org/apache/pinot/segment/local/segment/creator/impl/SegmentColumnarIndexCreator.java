@@ -27,9 +27,12 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -37,6 +40,7 @@ import org.apache.commons.configuration2.PropertiesConfiguration;
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.pinot.common.utils.FileUtils;
 import org.apache.pinot.segment.local.io.util.PinotDataBitSet;
+import org.apache.pinot.segment.local.segment.creator.impl.inv.BitmapInvertedIndexWriter;
 import org.apache.pinot.segment.local.segment.creator.impl.nullvalue.NullValueVectorCreator;
 import org.apache.pinot.segment.local.segment.index.dictionary.DictionaryIndexPlugin;
 import org.apache.pinot.segment.local.segment.index.dictionary.DictionaryIndexType;
@@ -49,6 +53,7 @@ import org.apache.pinot.segment.spi.creator.ColumnIndexCreationInfo;
 import org.apache.pinot.segment.spi.creator.IndexCreationContext;
 import org.apache.pinot.segment.spi.creator.SegmentCreator;
 import org.apache.pinot.segment.spi.creator.SegmentGeneratorConfig;
+import org.apache.pinot.segment.spi.datasource.DataSource;
 import org.apache.pinot.segment.spi.index.DictionaryIndexConfig;
 import org.apache.pinot.segment.spi.index.FieldIndexConfigs;
 import org.apache.pinot.segment.spi.index.ForwardIndexConfig;
@@ -57,8 +62,13 @@ import org.apache.pinot.segment.spi.index.IndexService;
 import org.apache.pinot.segment.spi.index.IndexType;
 import org.apache.pinot.segment.spi.index.StandardIndexes;
 import org.apache.pinot.segment.spi.index.TextIndexConfig;
+import org.apache.pinot.segment.spi.index.creator.DictionaryBasedInvertedIndexCreator;
 import org.apache.pinot.segment.spi.index.creator.ForwardIndexCreator;
 import org.apache.pinot.segment.spi.index.creator.SegmentIndexCreationInfo;
+import org.apache.pinot.segment.spi.index.mutable.MutableDictionary;
+import org.apache.pinot.segment.spi.index.mutable.MutableInvertedIndex;
+import org.apache.pinot.segment.spi.index.reader.Dictionary;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReader;
 import org.apache.pinot.segment.spi.partition.PartitionFunction;
 import org.apache.pinot.spi.config.table.IndexConfig;
 import org.apache.pinot.spi.config.table.SegmentZKPropsConfig;
@@ -69,12 +79,14 @@ import org.apache.pinot.spi.data.FieldSpec;
 import org.apache.pinot.spi.data.FieldSpec.DataType;
 import org.apache.pinot.spi.data.FieldSpec.FieldType;
 import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.ColumnBatch;
 import org.apache.pinot.spi.data.readers.GenericRow;
 import org.apache.pinot.spi.env.CommonsConfigurationUtils;
 import org.apache.pinot.spi.utils.TimeUtils;
 import org.joda.time.DateTimeZone;
 import org.joda.time.Interval;
 import org.joda.time.format.DateTimeFormatter;
+import org.roaringbitmap.RoaringBitmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -355,6 +367,103 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     _docIdCounter++;
   }
 
+  @Override
+  public void indexRows(List<GenericRow> rows, ExecutorService executorService)
+      throws Exception {
+    int startDocId = _docIdCounter;
+    ColumnTaskUtils.runForEachColumn(getColumnsToIndex(), executorService,
+        column -> indexColumnValues(column, rows, startDocId));
+    _docIdCounter += rows.size();
+  }
+
+  /**
+   * Returns the columns with index creators or null value vector creators.
+   */
+  private Set<String> getColumnsToIndex() {
+    Set<String> columns = new HashSet<>(_creatorsByColAndIndex.keySet());
+    columns.addAll(_nullValueVectorCreatorMap.keySet());
+    return columns;
+  }
+
+  @Override
+  public void indexColumnBatch(ColumnBatch batch, @Nullable ExecutorService executorService)
+      throws Exception {
+    int startDocId = _docIdCounter;
+    ColumnTaskUtils.runForEachColumn(getColumnsToIndex(), executorService,
+        column -> indexColumnValues(column, batch, startDocId));
+    _docIdCounter += batch.getNumRows();
+  }
+
+  /**
+   * Indexes the values of a column for a batch of rows, where the first row has the given doc id.
+   */
+  private void indexColumnValues(String columnName, List<GenericRow> rows, int startDocId)
+      throws IOException {
+    Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex = _creatorsByColAndIndex.get(columnName);
+    if (creatorsByIndex != null) {
+      boolean isSingleValue = _schema.getFieldSpecFor(columnName).isSingleValueField();
+      SegmentDictionaryCreator dictionaryCreator = _dictionaryCreatorMap.get(columnName);
+      for (GenericRow row : rows) {
+        indexColumnValue(columnName, isSingleValue, dictionaryCreator, row.getValue(columnName), creatorsByIndex);
+      }
+    }
+
+    NullValueVectorCreator nullValueVectorCreator = _nullValueVectorCreatorMap.get(columnName);
+    if (nullValueVectorCreator != null) {
+      int docId = startDocId;
+      for (GenericRow row : rows) {
+        if (row.isNullValue(columnName)) {
+          nullValueVectorCreator.setNull(docId);
+        }
+        docId++;
+      }
+    }
+  }
+
+  /**
+   * Indexes the values of a column for a column-major batch of rows, where the first row has the given doc id.
+   */
+  private void indexColumnValues(String columnName, ColumnBatch batch, int startDocId)
+      throws IOException {
+    int numRows = batch.getNumRows();
+    Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex = _creatorsByColAndIndex.get(columnName);
+    if (creatorsByIndex != null) {
+      boolean isSingleValue = _schema.getFieldSpecFor(columnName).isSingleValueField();
+      SegmentDictionaryCreator dictionaryCreator = _dictionaryCreatorMap.get(columnName);
+      Object[] values = batch.getValues(columnName);
+      for (int i = 0; i < numRows; i++) {
+        indexColumnValue(columnName, isSingleValue, dictionaryCreator, values != null ? values[i] : null,
+            creatorsByIndex);
+      }
+    }
+
+    NullValueVectorCreator nullValueVectorCreator = _nullValueVectorCreatorMap.get(columnName);
+    if (nullValueVectorCreator != null) {
+      for (int i = 0; i < numRows; i++) {
+        if (batch.isNullValue(columnName, i)) {
+          nullValueVectorCreator.setNull(startDocId + i);
+        }
+      }
+    }
+  }
+
+  private void indexColumnValue(String columnName, boolean isSingleValue, SegmentDictionaryCreator dictionaryCreator,
+      @Nullable Object columnValueToIndex, Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex)
+      throws IOException {
+    if (columnValueToIndex == null) {
+      throw new RuntimeException("Null value for column:" + columnName);
+    }
+    try {
+      if (isSingleValue) {
+        indexSingleValueRow(dictionaryCreator, columnValueToIndex, creatorsByIndex);
+      } else {
+        indexMultiValueRow(dictionaryCreator, (Object[]) columnValueToIndex, creatorsByIndex);
+      }
+    } catch (JsonParseException jpe) {
+      throw new ColumnJsonParserException(columnName, jpe);
+    }
+  }
+
   @Override
   public void indexColumn(String columnName, @Nullable int[] sortedDocIds, IndexSegment segment)
       throws IOException {
@@ -368,24 +477,110 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
       NullValueVectorCreator nullVec = _nullValueVectorCreatorMap.get(columnName);
       FieldSpec fieldSpec = _schema.getFieldSpecFor(columnName);
       SegmentDictionaryCreator dictionaryCreator = _dictionaryCreatorMap.get(columnName);
+      int[] dictIdMap = null;
+      if (dictionaryCreator != null) {
+        DataSource dataSource = segment.getDataSource(columnName);
+        dictIdMap = getMutableToImmutableDictIdMap(columnName, dataSource, dictionaryCreator);
+        if (dictIdMap != null && sortedDocIds == null) {
+          writeInvertedIndexFromMutableIndex(columnName, dataSource, dictIdMap, creatorsByIndex, numDocs);
+        }
+      }
       if (sortedDocIds != null) {
         int onDiskDocId = 0;
         for (int docId : sortedDocIds) {
-          indexColumnValue(colReader, creatorsByIndex, columnName, fieldSpec, dictionaryCreator, docId, onDiskDocId,
-              nullVec);
+          indexColumnValue(colReader, creatorsByIndex, columnName, fieldSpec, dictionaryCreator, dictIdMap, docId,
+              onDiskDocId, nullVec);
           onDiskDocId++;
         }
       } else {
         for (int docId = 0; docId < numDocs; docId++) {
-          indexColumnValue(colReader, creatorsByIndex, columnName, fieldSpec, dictionaryCreator, docId, docId, nullVec);
+          indexColumnValue(colReader, creatorsByIndex, columnName, fieldSpec, dictionaryCreator, dictIdMap, docId,
+              docId, nullVec);
         }
       }
     }
   }
 
+  /**
+   * Returns the mapping from the dictionary ids of the given mutable dictionary to the dictionary ids of the
+   * dictionary being created, or {@code null} if the column is not dictionary encoded in the mutable segment or the
+   * dictionaries do not contain the same values.
+   *
+   * The immutable dictionary is built from the sorted values of the mutable dictionary, so each value only needs to be
+   * looked up once instead of once per document.
+   */
+  @Nullable
+  private int[] getMutableToImmutableDictIdMap(String columnName, DataSource dataSource,
+      SegmentDictionaryCreator dictionaryCreator) {
+    Dictionary dictionary = dataSource.getDictionary();
+    ForwardIndexReader<?> forwardIndex = dataSource.getForwardIndex();
+    if (!(dictionary instanceof MutableDictionary) || forwardIndex == null || !forwardIndex.isDictionaryEncoded()) {
+      return null;
+    }
+    int cardinality = dictionary.length();
+    if (cardinality != _indexCreationInfoMap.get(columnName).getDistinctValueCount()) {
+      return null;
+    }
+    int[] dictIdMap = new int[cardinality];
+    for (int mutableDictId = 0; mutableDictId < cardinality; mutableDictId++) {
+      int dictId = dictionaryCreator.indexOfSV(dictionary.get(mutableDictId));
+      if (dictId < 0) {
+        return null;
+      }
+      dictIdMap[mutableDictId] = dictId;
+    }
+    return dictIdMap;
+  }
+
+  /**
+   * Writes the bitmap inverted index of the column directly from the bitmaps of the mutable inverted index, and drops
+   * the inverted index creator of the column. Can only be used when the documents are not re-ordered.
+   * <p>The mutable inverted index misses the values that failed to be indexed, so it is only reused when its bitmaps
+   * cover all the values of the column, i.e. the bitmap cardinalities add up to the number of documents for a
+   * single-value column, or to the number of values for a multi-value column. Otherwise the inverted index is built
+   * from the forward index values.
+   */
+  private void writeInvertedIndexFromMutableIndex(String columnName, DataSource dataSource, int[] dictIdMap,
+      Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex, int numDocs)
+      throws IOException {
+    IndexCreator invertedIndexCreator = creatorsByIndex.get(StandardIndexes.inverted());
+    if (!(invertedIndexCreator instanceof DictionaryBasedInvertedIndexCreator)
+        || !(dataSource.getInvertedIndex() instanceof MutableInvertedIndex)) {
+      return;
+    }
+    MutableInvertedIndex mutableInvertedIndex = (MutableInvertedIndex) dataSource.getInvertedIndex();
+    int cardinality = dictIdMap.length;
+    long expectedNumEntries = _schema.getFieldSpecFor(columnName).isSingleValueField() ? numDocs
+        : _indexCreationInfoMap.get(columnName).getTotalNumberOfEntries();
+    long numEntries = 0;
+    for (int mutableDictId = 0; mutableDictId < cardinality; mutableDictId++) {
+      numEntries += mutableInvertedIndex.getDocIds(mutableDictId).getCardinality();
+    }
+    if (numEntries != expectedNumEntries) {
+      LOGGER.warn("Mutable inverted index of column: {} has {} entries, expected: {}, rebuilding it", columnName,
+          numEntries, expectedNumEntries);
+      return;
+    }
+    int[] mutableDictIds = new int[cardinality];
+    for (int mutableDictId = 0; mutableDictId < cardinality; mutableDictId++) {
+      mutableDictIds[dictIdMap[mutableDictId]] = mutableDictId;
+    }
+    File invertedIndexFile = new File(_indexDir, columnName + V1Constants.Indexes.BITMAP_INVERTED_INDEX_FILE_EXTENSION);
+    try (BitmapInvertedIndexWriter writer = new BitmapInvertedIndexWriter(invertedIndexFile, cardinality)) {
+      for (int mutableDictId : mutableDictIds) {
+        RoaringBitmap bitmap = mutableInvertedIndex.getDocIds(mutableDictId).toRoaringBitmap();
+        // Apply the same run-length encoding as the inverted index creators
+        bitmap.runOptimize();
+        writer.add(bitmap);
+      }
+    }
+    invertedIndexCreator.close();
+    creatorsByIndex.remove(StandardIndexes.inverted());
+  }
+
   private void indexColumnValue(PinotSegmentColumnReader colReader,
       Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex, String columnName, FieldSpec fieldSpec,
-      SegmentDictionaryCreator dictionaryCreator, int sourceDocId, int onDiskDocPos,
+      SegmentDictionaryCreator dictionaryCreator, @Nullable int[] dictIdMap, int sourceDocId, int onDiskDocPos,
       @Nullable NullValueVectorCreator nullVec)
       throws IOException {
     Object columnValueToIndex = colReader.getValue(sourceDocId);
@@ -394,9 +589,23 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     }
 
     if (fieldSpec.isSingleValueField()) {
-      indexSingleValueRow(dictionaryCreator, columnValueToIndex, creatorsByIndex);
+      if (dictIdMap != null) {
+        addSingleValue(columnValueToIndex, dictIdMap[colReader.getDictId(sourceDocId)], creatorsByIndex);
+      } else {
+        indexSingleValueRow(dictionaryCreator, columnValueToIndex, creatorsByIndex);
+      }
     } else {
-      indexMultiValueRow(dictionaryCreator, (Object[]) columnValueToIndex, creatorsByIndex);
+      Object[] values = (Object[]) columnValueToIndex;
+      if (dictIdMap != null) {
+        int[] dictIds = new int[values.length];
+        colReader.getDictIdMV(sourceDocId, dictIds);
+        for (int i = 0; i < dictIds.length; i++) {
+          dictIds[i] = dictIdMap[dictIds[i]];
+        }
+        addMultiValue(values, dictIds, creatorsByIndex);
+      } else {
+        indexMultiValueRow(dictionaryCreator, values, creatorsByIndex);
+      }
     }
 
     if (nullVec != null) {
@@ -410,17 +619,28 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
       Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex)
       throws IOException {
     int dictId = dictionaryCreator != null ? dictionaryCreator.indexOfSV(value) : -1;
+    addSingleValue(value, dictId, creatorsByIndex);
+  }
+
+  private void indexMultiValueRow(SegmentDictionaryCreator dictionaryCreator, Object[] values,
+      Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex)
+      throws IOException {
+    int[] dictId = dictionaryCreator != null ? dictionaryCreator.indexOfMV(values) : null;
+    addMultiValue(values, dictId, creatorsByIndex);
+  }
+
+  private static void addSingleValue(Object value, int dictId, Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex)
+      throws IOException {
     for (IndexCreator creator : creatorsByIndex.values()) {
       creator.add(value, dictId);
     }
   }
 
-  private void indexMultiValueRow(SegmentDictionaryCreator dictionaryCreator, Object[] values,
+  private static void addMultiValue(Object[] values, @Nullable int[] dictIds,
       Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex)
       throws IOException {
-    int[] dictId = dictionaryCreator != null ? dictionaryCreator.indexOfMV(values) : null;
     for (IndexCreator creator : creatorsByIndex.values()) {
-      creator.add(values, dictId);
+      creator.add(values, dictIds);
     }
   }
 
@@ -477,6 +697,31 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     writeMetadata();
   }
 
+  @Override
+  public void seal(ExecutorService executorService)
+      throws Exception {
+    ColumnTaskUtils.runForEachColumn(getColumnsToIndex(), executorService, this::sealColumn);
+    writeMetadata();
+  }
+
+  private void sealColumn(String columnName)
+      throws IOException {
+    SegmentDictionaryCreator dictionaryCreator = _dictionaryCreatorMap.get(columnName);
+    if (dictionaryCreator != null) {
+      dictionaryCreator.seal();
+    }
+    NullValueVectorCreator nullValueVectorCreator = _nullValueVectorCreatorMap.get(columnName);
+    if (nullValueVectorCreator != null) {
+      nullValueVectorCreator.seal();
+    }
+    Map<IndexType<?, ?, ?>, IndexCreator> creatorsByIndex = _creatorsByColAndIndex.get(columnName);
+    if (creatorsByIndex != null) {
+      for (IndexCreator creator : creatorsByIndex.values()) {
+        creator.seal();
+      }
+    }
+  }
+
   private void writeMetadata()
       throws ConfigurationException {
     File metadataFile = new File(_indexDir, V1Constants.MetadataKeys.METADATA_FILE_NAME);
@@ -23,6 +23,7 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -78,6 +80,8 @@ import org.apache.pinot.spi.data.FieldSpec.DataType;
 import org.apache.pinot.spi.data.IngestionSchemaValidator;
 import org.apache.pinot.spi.data.Schema;
 import org.apache.pinot.spi.data.SchemaValidatorFactory;
+import org.apache.pinot.spi.data.readers.ColumnBatch;
+import org.apache.pinot.spi.data.readers.ColumnarRecordReader;
 import org.apache.pinot.spi.data.readers.FileFormat;
 import org.apache.pinot.spi.data.readers.GenericRow;
 import org.apache.pinot.spi.data.readers.RecordReader;
@@ -96,6 +100,8 @@ import org.slf4j.LoggerFactory;
 // TODO: Check resource leaks
 public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDriver {
   private static final Logger LOGGER = LoggerFactory.getLogger(SegmentIndexCreationDriverImpl.class);
+  // Number of rows buffered before indexing them when building the indexes of different columns concurrently
+  private static final int INDEXING_BATCH_SIZE = 10_000;
 
   private SegmentGeneratorConfig _config;
   private RecordReader _recordReader;
@@ -118,6 +124,8 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
   private int _incompleteRowsFound = 0;
   private int _skippedRowsFound = 0;
   private int _sanitizedRowsFound = 0;
+  // Executor to build the indexes of different columns concurrently, or null to build the segment on a single thread
+  private ExecutorService _executorService;
 
   @Override
   public void init(SegmentGeneratorConfig config)
@@ -235,6 +243,16 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
   @Override
   public void build()
       throws Exception {
+    _executorService = ColumnTaskUtils.createExecutor(_config.getSegmentCreationParallelism(), _config.getTableName());
+    try {
+      buildRowMajor();
+    } finally {
+      shutDownExecutor();
+    }
+  }
+
+  private void buildRowMajor()
+      throws Exception {
     // Count the number of documents and gather per-column statistics
     LOGGER.debug("Start building StatsCollector!");
     collectStatsAndIndexCreationInfo();
@@ -262,35 +280,11 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
       // Build the index
       _recordReader.rewind();
       LOGGER.info("Start building IndexCreator!");
-      GenericRow reuse = new GenericRow();
-      while (_recordReader.hasNext()) {
-        long recordReadStopTimeNs;
-        reuse.clear();
-
-        TransformPipeline.Result result;
-        try {
-          long recordReadStartTimeNs = System.nanoTime();
-          GenericRow decodedRow = _recordReader.next(reuse);
-          result = _transformPipeline.processRow(decodedRow);
-          recordReadStopTimeNs = System.nanoTime();
-          _totalRecordReadTimeNs += recordReadStopTimeNs - recordReadStartTimeNs;
-        } catch (Exception e) {
-          if (!_continueOnError) {
-            throw new RuntimeException("Error occurred while reading row during indexing", e);
-          } else {
-            _incompleteRowsFound++;
-            LOGGER.debug("Error occurred while reading row during indexing", e);
-            continue;
-          }
-        }
-
-        for (GenericRow row : result.getTransformedRows()) {
-          _indexCreator.indexRow(row);
-        }
-        _totalIndexTimeNs += System.nanoTime() - recordReadStopTimeNs;
-        _incompleteRowsFound += result.getIncompleteRowCount();
-        _skippedRowsFound += result.getSkippedRowCount();
-        _sanitizedRowsFound += result.getSanitizedRowCount();
+      if (RecordReaderSegmentCreationDataSource.isColumnarIngestion(_recordReader, _transformPipeline,
+          _continueOnError)) {
+        indexColumnBatches();
+      } else {
+        indexRows();
       }
     } catch (Exception e) {
       _indexCreator.close();
@@ -327,8 +321,92 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     handlePostCreation();
   }
 
+  /**
+   * Reads, transforms and indexes the records row by row.
+   */
+  private void indexRows()
+      throws Exception {
+    GenericRow reuse = new GenericRow();
+    // When building the indexes of different columns concurrently, rows are buffered and cannot be reused
+    List<GenericRow> batch = _executorService != null ? new ArrayList<>(INDEXING_BATCH_SIZE) : null;
+    while (_recordReader.hasNext()) {
+      long recordReadStopTimeNs;
+      reuse.clear();
+
+      TransformPipeline.Result result;
+      try {
+        long recordReadStartTimeNs = System.nanoTime();
+        GenericRow decodedRow = _recordReader.next(batch != null ? new GenericRow() : reuse);
+        result = _transformPipeline.processRow(decodedRow);
+        recordReadStopTimeNs = System.nanoTime();
+        _totalRecordReadTimeNs += recordReadStopTimeNs - recordReadStartTimeNs;
+      } catch (Exception e) {
+        if (!_continueOnError) {
+          throw new RuntimeException("Error occurred while reading row during indexing", e);
+        } else {
+          _incompleteRowsFound++;
+          LOGGER.debug("Error occurred while reading row during indexing", e);
+          continue;
+        }
+      }
+
+      if (batch != null) {
+        batch.addAll(result.getTransformedRows());
+        if (batch.size() >= INDEXING_BATCH_SIZE) {
+          _indexCreator.indexRows(batch, _executorService);
+          batch.clear();
+        }
+      } else {
+        for (GenericRow row : result.getTransformedRows()) {
+          _indexCreator.indexRow(row);
+        }
+      }
+      _totalIndexTimeNs += System.nanoTime() - recordReadStopTimeNs;
+      _incompleteRowsFound += result.getIncompleteRowCount();
+      _skippedRowsFound += result.getSkippedRowCount();
+      _sanitizedRowsFound += result.getSanitizedRowCount();
+    }
+    if (batch != null && !batch.isEmpty()) {
+      long indexStartTimeNs = System.nanoTime();
+      _indexCreator.indexRows(batch, _executorService);
+      _totalIndexTimeNs += System.nanoTime() - indexStartTimeNs;
+    }
+  }
+
+  /**
+   * Reads, transforms and indexes the records in column-major batches without materializing a {@link GenericRow} per
+   * record.
+   */
+  private void indexColumnBatches()
+      throws Exception {
+    ColumnarRecordReader recordReader = (ColumnarRecordReader) _recordReader;
+    ColumnBatch batch = new ColumnBatch(INDEXING_BATCH_SIZE);
+    while (recordReader.hasNext()) {
+      batch.clear();
+      long recordReadStartTimeNs = System.nanoTime();
+      recordReader.nextBatch(batch);
+      _transformPipeline.processBatch(batch);
+      long recordReadStopTimeNs = System.nanoTime();
+      _totalRecordReadTimeNs += recordReadStopTimeNs - recordReadStartTimeNs;
+      _indexCreator.indexColumnBatch(batch, _executorService);
+      _totalIndexTimeNs += System.nanoTime() - recordReadStopTimeNs;
+      _incompleteRowsFound += batch.getNumIncompleteRows();
+      _sanitizedRowsFound += batch.getNumSanitizedRows();
+    }
+  }
+
   public void buildByColumn(IndexSegment indexSegment)
       throws Exception {
+    _executorService = ColumnTaskUtils.createExecutor(_config.getSegmentCreationParallelism(), _config.getTableName());
+    try {
+      buildColumnMajor(indexSegment);
+    } finally {
+      shutDownExecutor();
+    }
+  }
+
+  private void buildColumnMajor(IndexSegment indexSegment)
+      throws Exception {
     // Count the number of documents and gather per-column statistics
     LOGGER.debug("Start building StatsCollector!");
     collectStatsAndIndexCreationInfo();
@@ -352,9 +430,9 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
 
       TreeSet<String> columns = _dataSchema.getPhysicalColumnNames();
 
-      for (String col : columns) {
-        _indexCreator.indexColumn(col, sortedDocIds, indexSegment);
-      }
+      // Different columns can be indexed concurrently as each of them is read from the segment independently
+      ColumnTaskUtils.runForEachColumn(columns, _executorService,
+          column -> _indexCreator.indexColumn(column, sortedDocIds, indexSegment));
     } catch (Exception e) {
       _indexCreator.close();
       throw e;
@@ -396,7 +474,11 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     try {
       // Write the index files to disk
       _indexCreator.setSegmentName(_segmentName);
-      _indexCreator.seal();
+      if (_executorService != null) {
+        _indexCreator.seal(_executorService);
+      } else {
+        _indexCreator.seal();
+      }
     } finally {
       _indexCreator.close();
     }
@@ -446,6 +528,13 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     LOGGER.info("Driver, indexing time (in ms) : {}", TimeUnit.NANOSECONDS.toMillis(_totalIndexTimeNs));
   }
 
+  private void shutDownExecutor() {
+    if (_executorService != null) {
+      _executorService.shutdownNow();
+      _executorService = null;
+    }
+  }
+
   private void buildMultiColumnTextIndex(File segmentOutputDir)
       throws Exception {
     if (_config.getMultiColumnTextIndexConfig() != null) {
@@ -574,6 +663,11 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
       throws Exception {
     long statsCollectorStartTime = System.nanoTime();
 
+    // Collect the stats of different columns concurrently when building the segment with multiple threads
+    if (_dataSource instanceof RecordReaderSegmentCreationDataSource) {
+      ((RecordReaderSegmentCreationDataSource) _dataSource).setExecutorService(_executorService);
+    }
+
     // Initialize stats collection
     _segmentStats = _dataSource.gatherStats(
         new StatsCollectorConfig(_config.getTableConfig(), _dataSchema, _config.getSegmentPartitionConfig()));
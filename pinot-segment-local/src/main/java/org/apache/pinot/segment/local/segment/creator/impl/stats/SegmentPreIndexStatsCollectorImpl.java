@@ -19,12 +19,19 @@
 package org.apache.pinot.segment.local.segment.creator.impl.stats;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import javax.annotation.Nullable;
+import org.apache.pinot.segment.local.segment.creator.impl.ColumnTaskUtils;
 import org.apache.pinot.segment.spi.creator.ColumnStatistics;
 import org.apache.pinot.segment.spi.creator.SegmentPreIndexStatsCollector;
 import org.apache.pinot.segment.spi.creator.StatsCollectorConfig;
 import org.apache.pinot.spi.data.FieldSpec;
 import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.ColumnBatch;
 import org.apache.pinot.spi.data.readers.GenericRow;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,11 +41,19 @@ public class SegmentPreIndexStatsCollectorImpl implements SegmentPreIndexStatsCo
   private static final Logger LOGGER = LoggerFactory.getLogger(SegmentPreIndexStatsCollectorImpl.class);
 
   private final StatsCollectorConfig _statsCollectorConfig;
+  // Executor to collect the stats of different columns concurrently, or null to collect them on the calling thread
+  private final ExecutorService _executorService;
   private Map<String, AbstractColumnStatisticsCollector> _columnStatsCollectorMap;
   private int _totalDocCount;
 
   public SegmentPreIndexStatsCollectorImpl(StatsCollectorConfig statsCollectorConfig) {
+    this(statsCollectorConfig, null);
+  }
+
+  public SegmentPreIndexStatsCollectorImpl(StatsCollectorConfig statsCollectorConfig,
+      @Nullable ExecutorService executorService) {
     _statsCollectorConfig = statsCollectorConfig;
+    _executorService = executorService;
   }
 
   @Override
@@ -82,8 +97,13 @@ public class SegmentPreIndexStatsCollectorImpl implements SegmentPreIndexStatsCo
 
   @Override
   public void build() {
-    for (AbstractColumnStatisticsCollector columnStatsCollector : _columnStatsCollectorMap.values()) {
-      columnStatsCollector.seal();
+    try {
+      ColumnTaskUtils.runForEachColumn(_columnStatsCollectorMap.keySet(), _executorService,
+          column -> _columnStatsCollectorMap.get(column).seal());
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException("Caught exception while sealing column stats", e);
     }
   }
 
@@ -111,6 +131,54 @@ public class SegmentPreIndexStatsCollectorImpl implements SegmentPreIndexStatsCo
     _totalDocCount++;
   }
 
+  /**
+   * Collects the stats for a batch of rows. The stats of different columns are collected concurrently when the
+   * collector is created with an executor.
+   */
+  public void collectRows(List<GenericRow> rows)
+      throws Exception {
+    ColumnTaskUtils.runForEachColumn(_columnStatsCollectorMap.keySet(), _executorService, column -> {
+      AbstractColumnStatisticsCollector columnStatsCollector = _columnStatsCollectorMap.get(column);
+      for (GenericRow row : rows) {
+        Map<String, Object> fieldToValueMap = row.getFieldToValueMap();
+        Object value = fieldToValueMap.get(column);
+        if (value != null || fieldToValueMap.containsKey(column)) {
+          try {
+            columnStatsCollector.collect(value);
+          } catch (Exception e) {
+            LOGGER.error("Exception while collecting stats for column:{} in row:{}", column, row);
+            throw e;
+          }
+        }
+      }
+    });
+    _totalDocCount += rows.size();
+  }
+
+  /**
+   * Collects the stats for a column-major batch of rows. The stats of different columns are collected concurrently
+   * when the collector is created with an executor.
+   */
+  public void collectBatch(ColumnBatch batch)
+      throws Exception {
+    int numRows = batch.getNumRows();
+    Set<String> columns = new HashSet<>(batch.getColumns());
+    columns.retainAll(_columnStatsCollectorMap.keySet());
+    ColumnTaskUtils.runForEachColumn(columns, _executorService, column -> {
+      AbstractColumnStatisticsCollector columnStatsCollector = _columnStatsCollectorMap.get(column);
+      Object[] values = batch.getValues(column);
+      for (int i = 0; i < numRows; i++) {
+        try {
+          columnStatsCollector.collect(values[i]);
+        } catch (Exception e) {
+          LOGGER.error("Exception while collecting stats for column:{} in row:{}", column, i);
+          throw e;
+        }
+      }
+    });
+    _totalDocCount += numRows;
+  }
+
   @Override
   public int getTotalDocCount() {
     return _totalDocCount;
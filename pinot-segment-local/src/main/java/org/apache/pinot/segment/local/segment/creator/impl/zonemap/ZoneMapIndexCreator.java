@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.creator.impl.zonemap;
+
+import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import javax.annotation.Nullable;
+import org.apache.pinot.segment.spi.V1Constants;
+import org.apache.pinot.segment.spi.index.IndexCreator;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+
+
+/**
+ * Creator for the zone map index, which keeps the min and max value of each block of consecutive documents.
+ * <p>Index file layout (big endian):
+ * <ul>
+ *   <li>Header: version (int), number of docs per block (int), number of blocks (int)</li>
+ *   <li>For each block: min value and max value, stored as long for INT/LONG and as double for FLOAT/DOUBLE</li>
+ * </ul>
+ * <p>Only single-value INT, LONG, FLOAT and DOUBLE (stored type) columns are supported.
+ */
+public class ZoneMapIndexCreator implements IndexCreator {
+  public static final int VERSION = 1;
+  public static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+  private final File _indexFile;
+  private final int _numDocsPerBlock;
+  private final boolean _integral;
+  private final LongArrayList _longMinMaxValues;
+  private final DoubleArrayList _doubleMinMaxValues;
+
+  private int _numDocs;
+  private long _blockMinLong;
+  private long _blockMaxLong;
+  private double _blockMinDouble;
+  private double _blockMaxDouble;
+
+  public ZoneMapIndexCreator(File indexDir, String columnName, DataType storedType, int numDocsPerBlock) {
+    Preconditions.checkArgument(numDocsPerBlock > 0, "Number of docs per block must be positive");
+    _indexFile = new File(indexDir, columnName + V1Constants.Indexes.ZONE_MAP_INDEX_FILE_EXTENSION);
+    _numDocsPerBlock = numDocsPerBlock;
+    switch (storedType) {
+      case INT:
+      case LONG:
+        _integral = true;
+        _longMinMaxValues = new LongArrayList();
+        _doubleMinMaxValues = null;
+        break;
+      case FLOAT:
+      case DOUBLE:
+        _integral = false;
+        _longMinMaxValues = null;
+        _doubleMinMaxValues = new DoubleArrayList();
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported data type for zone map index: " + storedType);
+    }
+  }
+
+  @Override
+  public void add(Object value, int dictId) {
+    Number number = (Number) value;
+    boolean firstDocInBlock = _numDocs % _numDocsPerBlock == 0;
+    if (_integral) {
+      long longValue = number.longValue();
+      if (firstDocInBlock) {
+        _blockMinLong = longValue;
+        _blockMaxLong = longValue;
+      } else {
+        _blockMinLong = Math.min(_blockMinLong, longValue);
+        _blockMaxLong = Math.max(_blockMaxLong, longValue);
+      }
+    } else {
+      double doubleValue = number.doubleValue();
+      if (firstDocInBlock) {
+        _blockMinDouble = doubleValue;
+        _blockMaxDouble = doubleValue;
+      } else {
+        _blockMinDouble = Math.min(_blockMinDouble, doubleValue);
+        _blockMaxDouble = Math.max(_blockMaxDouble, doubleValue);
+      }
+    }
+    _numDocs++;
+    if (_numDocs % _numDocsPerBlock == 0) {
+      flushBlock();
+    }
+  }
+
+  @Override
+  public void add(Object[] values, @Nullable int[] dictIds) {
+    throw new UnsupportedOperationException("Zone map index is not supported for multi-value columns");
+  }
+
+  private void flushBlock() {
+    if (_integral) {
+      _longMinMaxValues.add(_blockMinLong);
+      _longMinMaxValues.add(_blockMaxLong);
+    } else {
+      _doubleMinMaxValues.add(_blockMinDouble);
+      _doubleMinMaxValues.add(_blockMaxDouble);
+    }
+  }
+
+  @Override
+  public void seal()
+      throws IOException {
+    if (_numDocs % _numDocsPerBlock != 0) {
+      flushBlock();
+    }
+    int numBlocks = (_numDocs + _numDocsPerBlock - 1) / _numDocsPerBlock;
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(_indexFile)))) {
+      out.writeInt(VERSION);
+      out.writeInt(_numDocsPerBlock);
+      out.writeInt(numBlocks);
+      if (_integral) {
+        for (int i = 0; i < 2 * numBlocks; i++) {
+          out.writeLong(_longMinMaxValues.getLong(i));
+        }
+      } else {
+        for (int i = 0; i < 2 * numBlocks; i++) {
+          out.writeDouble(_doubleMinMaxValues.getDouble(i));
+        }
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+}
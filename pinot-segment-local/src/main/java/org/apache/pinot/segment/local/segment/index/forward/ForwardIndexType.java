@@ -122,6 +122,11 @@ public class ForwardIndexType extends AbstractIndexType<ForwardIndexConfig, Forw
       if (isCLPCodec) {
         Preconditions.checkState(fieldSpec.getDataType().getStoredType() == FieldSpec.DataType.STRING,
             "Cannot apply CLP compression codec to column: %s of stored type other than STRING", column);
+      } else if (compressionCodec != null && compressionCodec.isNumericEncoding()) {
+        Preconditions.checkState(
+            fieldSpec.isSingleValueField() && fieldSpec.getDataType().getStoredType().isFixedWidth(),
+            "Cannot apply %s compression codec to column: %s, which is not a single-value column of stored type INT, "
+                + "LONG, FLOAT or DOUBLE", compressionCodec, column);
       } else {
         Preconditions.checkState(compressionCodec == null || compressionCodec.isApplicableToRawIndex(),
             "Compression codec: %s is not applicable to raw column: %s", compressionCodec, column);
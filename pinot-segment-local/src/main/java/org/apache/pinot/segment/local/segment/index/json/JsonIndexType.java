@@ -156,11 +156,19 @@ public class JsonIndexType extends AbstractIndexType<JsonIndexConfig, JsonIndexR
     protected JsonIndexReader createIndexReader(PinotDataBuffer dataBuffer, ColumnMetadata metadata,
         JsonIndexConfig indexConfig)
         throws IndexReaderConstraintException {
-      return createIndexReader(dataBuffer, metadata);
+      Long matchingDocIdsCacheMaxBytes = indexConfig.getMatchingDocIdsCacheMaxBytes();
+      return createIndexReader(dataBuffer, metadata,
+          matchingDocIdsCacheMaxBytes != null ? matchingDocIdsCacheMaxBytes : 0);
     }
 
     public static JsonIndexReader createIndexReader(PinotDataBuffer dataBuffer, ColumnMetadata metadata)
         throws IndexReaderConstraintException {
+      return createIndexReader(dataBuffer, metadata, 0);
+    }
+
+    public static JsonIndexReader createIndexReader(PinotDataBuffer dataBuffer, ColumnMetadata metadata,
+        long matchingDocIdsCacheMaxBytes)
+        throws IndexReaderConstraintException {
       if (!metadata.getFieldSpec().isSingleValueField()) {
         throw new IndexReaderConstraintException(metadata.getColumnName(), StandardIndexes.json(),
             "Json index is currently only supported on single-value columns");
@@ -170,7 +178,7 @@ public class JsonIndexType extends AbstractIndexType<JsonIndexConfig, JsonIndexR
         throw new IndexReaderConstraintException(metadata.getColumnName(), StandardIndexes.json(),
             "Json index is currently only supported on STRING columns");
       }
-      return new ImmutableJsonIndexReader(dataBuffer, metadata.getTotalDocs());
+      return new ImmutableJsonIndexReader(dataBuffer, metadata.getTotalDocs(), matchingDocIdsCacheMaxBytes);
     }
   }
 
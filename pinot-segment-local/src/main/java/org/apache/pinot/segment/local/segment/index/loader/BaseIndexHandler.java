@@ -20,14 +20,20 @@ package org.apache.pinot.segment.local.segment.index.loader;
 
 import com.google.common.base.Preconditions;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.metrics.ServerTimer;
 import org.apache.pinot.segment.spi.ColumnMetadata;
 import org.apache.pinot.segment.spi.index.FieldIndexConfigs;
 import org.apache.pinot.segment.spi.index.ForwardIndexConfig;
 import org.apache.pinot.segment.spi.index.IndexHandler;
+import org.apache.pinot.segment.spi.index.IndexType;
 import org.apache.pinot.segment.spi.index.StandardIndexes;
 import org.apache.pinot.segment.spi.index.metadata.SegmentMetadataImpl;
 import org.apache.pinot.segment.spi.store.SegmentDirectory;
@@ -87,6 +93,62 @@ public abstract class BaseIndexHandler implements IndexHandler {
     }
   }
 
+  /**
+   * Creates the index of the given type for the given columns, concurrently with the {@link ColumnIndexBuildExecutor}
+   * if it is enabled, and records the build time of each column. Columns without forward index are handled sequentially
+   * first, as regenerating the forward index modifies the segment.
+   */
+  protected void createIndexForColumns(SegmentDirectory.Writer segmentWriter, List<ColumnMetadata> columnMetadataList,
+      IndexType<?, ?, ?> indexType, ColumnIndexCreator columnIndexCreator)
+      throws Exception {
+    ColumnIndexBuildExecutor executor = ColumnIndexBuildExecutor.getInstance();
+    if (executor == null || columnMetadataList.size() < 2) {
+      for (ColumnMetadata columnMetadata : columnMetadataList) {
+        createIndexForColumn(segmentWriter, columnMetadata, indexType, columnIndexCreator);
+      }
+      return;
+    }
+    List<ColumnMetadata> columnsWithForwardIndex = new ArrayList<>(columnMetadataList.size());
+    for (ColumnMetadata columnMetadata : columnMetadataList) {
+      if (segmentWriter.hasIndexFor(columnMetadata.getColumnName(), StandardIndexes.forward())) {
+        columnsWithForwardIndex.add(columnMetadata);
+      } else {
+        createIndexForColumn(segmentWriter, columnMetadata, indexType, columnIndexCreator);
+      }
+    }
+    SegmentDirectory.Writer synchronizedWriter = ColumnIndexBuildExecutor.synchronizedWriter(segmentWriter);
+    List<ColumnIndexBuildExecutor.Task> tasks = new ArrayList<>(columnsWithForwardIndex.size());
+    for (ColumnMetadata columnMetadata : columnsWithForwardIndex) {
+      tasks.add(new ColumnIndexBuildExecutor.Task() {
+        @Override
+        public long getEstimatedMemoryBytes() {
+          // Coarse estimate: index creators keep up to a long per value in memory
+          return (long) columnMetadata.getTotalNumberOfEntries() * Long.BYTES;
+        }
+
+        @Override
+        public void run()
+            throws Exception {
+          createIndexForColumn(synchronizedWriter, columnMetadata, indexType, columnIndexCreator);
+        }
+      });
+    }
+    executor.runAll(tasks);
+  }
+
+  private void createIndexForColumn(SegmentDirectory.Writer segmentWriter, ColumnMetadata columnMetadata,
+      IndexType<?, ?, ?> indexType, ColumnIndexCreator columnIndexCreator)
+      throws Exception {
+    long startTimeMs = System.currentTimeMillis();
+    columnIndexCreator.createIndexForColumn(segmentWriter, columnMetadata);
+    long buildTimeMs = System.currentTimeMillis() - startTimeMs;
+    // The metric is keyed by index type only to bound its cardinality, and the per column time is logged
+    ServerMetrics.get().addTimedTableValue(_tableConfig.getTableName(), indexType.getId(),
+        ServerTimer.SEGMENT_PREPROCESS_COLUMN_INDEX_BUILD_TIME_MS, buildTimeMs, TimeUnit.MILLISECONDS);
+    LOGGER.info("Built {} index for column: {} in segment: {} in {}ms", indexType.getId(),
+        columnMetadata.getColumnName(), _segmentDirectory.getSegmentMetadata().getName(), buildTimeMs);
+  }
+
   protected ColumnMetadata createForwardIndexIfNeeded(SegmentDirectory.Writer segmentWriter, String columnName,
       boolean isTemporaryForwardIndex)
       throws IOException {
@@ -132,4 +194,13 @@ public abstract class BaseIndexHandler implements IndexHandler {
 
     return _segmentDirectory.getSegmentMetadata().getColumnMetadataFor(columnName);
   }
+
+  /**
+   * Creates the index of a column.
+   */
+  @FunctionalInterface
+  protected interface ColumnIndexCreator {
+    void createIndexForColumn(SegmentDirectory.Writer segmentWriter, ColumnMetadata columnMetadata)
+        throws Exception;
+  }
 }
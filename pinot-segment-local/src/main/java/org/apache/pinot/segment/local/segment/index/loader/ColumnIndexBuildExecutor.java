@@ -0,0 +1,220 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.index.loader;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.segment.spi.index.IndexType;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+import org.apache.pinot.segment.spi.store.SegmentDirectory;
+
+
+/**
+ * Server level executor to build the indexes of different columns of a segment concurrently during the segment
+ * preprocessing. The threads are shared by all the segments being preprocessed, and the total estimated memory used by
+ * the indexes being built concurrently is capped, so that a large column waits for others to finish instead of
+ * running the server out of memory.
+ *
+ * <p>The executor is disabled by default (indexes are built sequentially on the preprocessing thread), and can be
+ * enabled with {@code pinot.server.segment.preprocess.column.parallelism}. {@link #init(int, long)} is called in
+ * BaseServerStarter to avoid creating a dependency on pinot-server.
+ */
+@ThreadSafe
+public class ColumnIndexBuildExecutor {
+  private static final int BYTES_PER_PERMIT = 1024 * 1024;
+  private static volatile ColumnIndexBuildExecutor _instance;
+
+  private final ExecutorService _executorService;
+  private final int _maxPermits;
+  private final Semaphore _memoryPermits;
+
+  @VisibleForTesting
+  ColumnIndexBuildExecutor(int parallelism, long maxMemoryBytes) {
+    Preconditions.checkArgument(parallelism > 0, "Parallelism must be positive, got: %s", parallelism);
+    Preconditions.checkArgument(maxMemoryBytes > 0, "Max memory must be positive, got: %s", maxMemoryBytes);
+    AtomicInteger threadId = new AtomicInteger();
+    _executorService = Executors.newFixedThreadPool(parallelism, runnable -> {
+      Thread thread = new Thread(runnable, "column-index-build-" + threadId.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    _maxPermits = (int) Math.min(Math.max(maxMemoryBytes / BYTES_PER_PERMIT, 1), Integer.MAX_VALUE);
+    _memoryPermits = new Semaphore(_maxPermits, true);
+  }
+
+  /**
+   * Initializes the server level executor with the given parallelism and memory cap, or disables it when the
+   * parallelism is not positive.
+   */
+  public static void init(int parallelism, long maxMemoryBytes) {
+    ColumnIndexBuildExecutor previousInstance = _instance;
+    _instance = parallelism > 0 ? new ColumnIndexBuildExecutor(parallelism, maxMemoryBytes) : null;
+    if (previousInstance != null) {
+      previousInstance.shutDown();
+    }
+  }
+
+  /**
+   * Returns the server level executor, or {@code null} if it is not enabled.
+   */
+  @Nullable
+  public static ColumnIndexBuildExecutor getInstance() {
+    return _instance;
+  }
+
+  @VisibleForTesting
+  static void setInstance(@Nullable ColumnIndexBuildExecutor instance) {
+    _instance = instance;
+  }
+
+  /**
+   * Runs the given tasks concurrently and waits for all of them to finish. If any task fails, the tasks not started yet
+   * are skipped and the first failure is thrown once the running tasks finish.
+   */
+  public void runAll(List<Task> tasks)
+      throws Exception {
+    AtomicBoolean failed = new AtomicBoolean();
+    List<Future<Void>> futures = new ArrayList<>(tasks.size());
+    for (Task task : tasks) {
+      int permits = (int) Math.min(Math.max(task.getEstimatedMemoryBytes() / BYTES_PER_PERMIT, 1), _maxPermits);
+      futures.add(_executorService.submit(() -> {
+        _memoryPermits.acquire(permits);
+        try {
+          if (!failed.get()) {
+            task.run();
+          }
+        } catch (Exception e) {
+          failed.set(true);
+          throw e;
+        } finally {
+          _memoryPermits.release(permits);
+        }
+        return null;
+      }));
+    }
+    // Wait for all the tasks to finish even on failure, as the running ones might still be writing to the segment
+    Exception failure = null;
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          Throwable cause = e.getCause();
+          failure = cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  public void shutDown() {
+    _executorService.shutdownNow();
+  }
+
+  /**
+   * Returns a writer that serializes all the accesses to the given segment writer, which is not thread safe, so that it
+   * can be shared by the tasks building the indexes of different columns. The buffers returned by the writer can be
+   * accessed concurrently.
+   */
+  public static SegmentDirectory.Writer synchronizedWriter(SegmentDirectory.Writer segmentWriter) {
+    return segmentWriter.toSegmentDirectory().new Writer() {
+      @Override
+      public synchronized PinotDataBuffer newIndexFor(String columnName, IndexType<?, ?, ?> indexType,
+          long sizeBytes)
+          throws IOException {
+        return segmentWriter.newIndexFor(columnName, indexType, sizeBytes);
+      }
+
+      @Override
+      public synchronized void removeIndex(String columnName, IndexType<?, ?, ?> indexType) {
+        segmentWriter.removeIndex(columnName, indexType);
+      }
+
+      @Override
+      public synchronized void save()
+          throws IOException {
+        segmentWriter.save();
+      }
+
+      @Override
+      public synchronized PinotDataBuffer getIndexFor(String column, IndexType<?, ?, ?> type)
+          throws IOException {
+        return segmentWriter.getIndexFor(column, type);
+      }
+
+      @Override
+      public synchronized boolean hasIndexFor(String column, IndexType<?, ?, ?> type) {
+        return segmentWriter.hasIndexFor(column, type);
+      }
+
+      @Override
+      public synchronized boolean hasStarTreeIndex() {
+        return segmentWriter.hasStarTreeIndex();
+      }
+
+      @Override
+      public synchronized boolean hasMultiColumnTextIndex() {
+        return segmentWriter.hasMultiColumnTextIndex();
+      }
+
+      @Override
+      public synchronized SegmentDirectory.Reader getStarTreeIndexReader(int starTreeId) {
+        return segmentWriter.getStarTreeIndexReader(starTreeId);
+      }
+
+      @Override
+      public void close() {
+        // The underlying writer is owned by the caller
+      }
+
+      @Override
+      public String toString() {
+        return segmentWriter.toString();
+      }
+    };
+  }
+
+  /**
+   * Task to build the index of a column.
+   */
+  public interface Task {
+
+    /**
+     * Returns the estimated memory used while building the index, used to cap the memory of the concurrent tasks.
+     */
+    long getEstimatedMemoryBytes();
+
+    void run()
+        throws Exception;
+  }
+}
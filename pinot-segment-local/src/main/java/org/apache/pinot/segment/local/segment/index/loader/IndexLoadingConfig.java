@@ -53,6 +53,9 @@ import org.apache.pinot.spi.utils.TimestampIndexUtils;
 public class IndexLoadingConfig {
   private static final int DEFAULT_REALTIME_AVG_MULTI_VALUE_COUNT = 2;
   public static final String READ_MODE_KEY = "readMode";
+  public static final String SEGMENT_STORE_URI_KEY = "segmentStoreUri";
+  // Instance configs under this prefix are passed to the segment directory loader
+  public static final String SEGMENT_DIRECTORY_LOADER_CONFIG_PREFIX = "segment.directory.loader.config";
 
   private final InstanceDataManagerConfig _instanceDataManagerConfig;
   private final TableConfig _tableConfig;
@@ -74,6 +77,7 @@ public class IndexLoadingConfig {
   private int _realtimeAvgMultiValueCount = DEFAULT_REALTIME_AVG_MULTI_VALUE_COUNT;
   private String _segmentStoreURI;
   private String _segmentDirectoryLoader;
+  private Map<String, Object> _segmentDirectoryLoaderConfigs = Map.of();
   private Map<String, Map<String, String>> _instanceTierConfigs;
 
   // Initialized by table config and schema
@@ -164,6 +168,10 @@ public class IndexLoadingConfig {
     }
     _segmentStoreURI = _instanceDataManagerConfig.getSegmentStoreUri();
     _segmentDirectoryLoader = _instanceDataManagerConfig.getSegmentDirectoryLoader();
+    PinotConfiguration instanceConfig = _instanceDataManagerConfig.getConfig();
+    if (instanceConfig != null) {
+      _segmentDirectoryLoaderConfigs = instanceConfig.subset(SEGMENT_DIRECTORY_LOADER_CONFIG_PREFIX).toMap();
+    }
 
     Map<String, Map<String, String>> tierConfigs = _instanceDataManagerConfig.getTierConfigs();
     _instanceTierConfigs = tierConfigs != null ? tierConfigs : Map.of();
@@ -315,8 +323,11 @@ public class IndexLoadingConfig {
   }
 
   public PinotConfiguration getSegmentDirectoryConfigs() {
-    Map<String, Object> props = new HashMap<>();
+    Map<String, Object> props = new HashMap<>(_segmentDirectoryLoaderConfigs);
     props.put(READ_MODE_KEY, _readMode);
+    if (_segmentStoreURI != null) {
+      props.put(SEGMENT_STORE_URI_KEY, _segmentStoreURI);
+    }
     return new PinotConfiguration(props);
   }
 
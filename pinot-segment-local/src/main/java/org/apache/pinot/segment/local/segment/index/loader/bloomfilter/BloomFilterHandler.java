@@ -20,7 +20,9 @@ package org.apache.pinot.segment.local.segment.index.loader.bloomfilter;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.apache.commons.io.FileUtils;
@@ -99,12 +101,15 @@ public class BloomFilterHandler extends BaseIndexHandler {
         LOGGER.info("Removed existing bloom filter from segment: {}, column: {}", segmentName, column);
       }
     }
+    List<ColumnMetadata> columnsToCreateIdx = new ArrayList<>();
     for (String column : columnsToAddBF) {
       ColumnMetadata columnMetadata = _segmentDirectory.getSegmentMetadata().getColumnMetadataFor(column);
       if (shouldCreateBloomFilter(columnMetadata)) {
-        createBloomFilterForColumn(segmentWriter, columnMetadata);
+        columnsToCreateIdx.add(columnMetadata);
       }
     }
+    createIndexForColumns(segmentWriter, columnsToCreateIdx, StandardIndexes.bloomFilter(),
+        this::createBloomFilterForColumn);
   }
 
   private boolean shouldCreateBloomFilter(ColumnMetadata columnMetadata) {
@@ -20,7 +20,9 @@
 package org.apache.pinot.segment.local.segment.index.loader.invertedindex;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.apache.commons.io.FileUtils;
@@ -113,12 +115,14 @@ public class FSTIndexHandler extends BaseIndexHandler {
         LOGGER.info("Removed existing FST index from segment: {}, column: {}", segmentName, column);
       }
     }
+    List<ColumnMetadata> columnsToCreateIdx = new ArrayList<>();
     for (String column : columnsToAddIdx) {
       ColumnMetadata columnMetadata = _segmentDirectory.getSegmentMetadata().getColumnMetadataFor(column);
       if (shouldCreateFSTIndex(columnMetadata)) {
-        createFSTIndexForColumn(segmentWriter, columnMetadata);
+        columnsToCreateIdx.add(columnMetadata);
       }
     }
+    createIndexForColumns(segmentWriter, columnsToCreateIdx, StandardIndexes.fst(), this::createFSTIndexForColumn);
   }
 
   @Override
@@ -20,7 +20,9 @@ package org.apache.pinot.segment.local.segment.index.loader.invertedindex;
 
 import com.google.common.base.Preconditions;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.apache.commons.io.FileUtils;
@@ -97,12 +99,14 @@ public class H3IndexHandler extends BaseIndexHandler {
         LOGGER.info("Removed existing H3 index from segment: {}, column: {}", segmentName, column);
       }
     }
+    List<ColumnMetadata> columnsToCreateIdx = new ArrayList<>();
     for (String column : columnsToAddIdx) {
       ColumnMetadata columnMetadata = _segmentDirectory.getSegmentMetadata().getColumnMetadataFor(column);
       if (shouldCreateH3Index(columnMetadata)) {
-        createH3IndexForColumn(segmentWriter, columnMetadata);
+        columnsToCreateIdx.add(columnMetadata);
       }
     }
+    createIndexForColumns(segmentWriter, columnsToCreateIdx, StandardIndexes.h3(), this::createH3IndexForColumn);
   }
 
   private boolean shouldCreateH3Index(ColumnMetadata columnMetadata) {
@@ -19,7 +19,9 @@
 package org.apache.pinot.segment.local.segment.index.loader.invertedindex;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.apache.commons.io.FileUtils;
@@ -95,12 +97,15 @@ public class InvertedIndexHandler extends BaseIndexHandler {
         LOGGER.info("Removed existing inverted index from segment: {}, column: {}", segmentName, column);
       }
     }
+    List<ColumnMetadata> columnsToCreateIdx = new ArrayList<>();
     for (String column : columnsToAddIdx) {
       ColumnMetadata columnMetadata = _segmentDirectory.getSegmentMetadata().getColumnMetadataFor(column);
       if (shouldCreateInvertedIndex(columnMetadata)) {
-        createInvertedIndexForColumn(segmentWriter, columnMetadata);
+        columnsToCreateIdx.add(columnMetadata);
       }
     }
+    createIndexForColumns(segmentWriter, columnsToCreateIdx, StandardIndexes.inverted(),
+        this::createInvertedIndexForColumn);
   }
 
   @Override
@@ -0,0 +1,201 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.index.loader.invertedindex;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.local.segment.creator.impl.zonemap.ZoneMapIndexCreator;
+import org.apache.pinot.segment.local.segment.index.dictionary.DictionaryIndexType;
+import org.apache.pinot.segment.local.segment.index.forward.ForwardIndexType;
+import org.apache.pinot.segment.local.segment.index.loader.BaseIndexHandler;
+import org.apache.pinot.segment.local.segment.index.loader.LoaderUtils;
+import org.apache.pinot.segment.local.segment.index.zonemap.ZoneMapIndexType;
+import org.apache.pinot.segment.spi.ColumnMetadata;
+import org.apache.pinot.segment.spi.V1Constants;
+import org.apache.pinot.segment.spi.creator.SegmentVersion;
+import org.apache.pinot.segment.spi.index.FieldIndexConfigs;
+import org.apache.pinot.segment.spi.index.FieldIndexConfigsUtil;
+import org.apache.pinot.segment.spi.index.StandardIndexes;
+import org.apache.pinot.segment.spi.index.ZoneMapIndexConfig;
+import org.apache.pinot.segment.spi.index.reader.Dictionary;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReader;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReaderContext;
+import org.apache.pinot.segment.spi.store.SegmentDirectory;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.data.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Handler for the zone map index, which adds the zone map index to the existing segments and removes the zone map
+ * index that is no longer configured.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ZoneMapIndexHandler extends BaseIndexHandler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ZoneMapIndexHandler.class);
+
+  private final Set<String> _columnsToAddIdx;
+
+  public ZoneMapIndexHandler(SegmentDirectory segmentDirectory, Map<String, FieldIndexConfigs> fieldIndexConfigs,
+      TableConfig tableConfig, Schema schema) {
+    super(segmentDirectory, fieldIndexConfigs, tableConfig, schema);
+    _columnsToAddIdx = FieldIndexConfigsUtil.columnsWithIndexEnabled(StandardIndexes.zoneMap(), _fieldIndexConfigs);
+  }
+
+  @Override
+  public boolean needUpdateIndices(SegmentDirectory.Reader segmentReader) {
+    String segmentName = _segmentDirectory.getSegmentMetadata().getName();
+    Set<String> columnsToAddIdx = new HashSet<>(_columnsToAddIdx);
+    Set<String> existingColumns = segmentReader.toSegmentDirectory().getColumnsWithIndex(StandardIndexes.zoneMap());
+    // Check if any existing index need to be removed.
+    for (String column : existingColumns) {
+      if (!columnsToAddIdx.remove(column)) {
+        LOGGER.info("Need to remove existing zone map index from segment: {}, column: {}", segmentName, column);
+        return true;
+      }
+    }
+    // Check if any new index need to be added.
+    for (String column : columnsToAddIdx) {
+      ColumnMetadata columnMetadata = _segmentDirectory.getSegmentMetadata().getColumnMetadataFor(column);
+      if (shouldCreateZoneMapIndex(columnMetadata)) {
+        LOGGER.info("Need to create new zone map index for segment: {}, column: {}", segmentName, column);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void updateIndices(SegmentDirectory.Writer segmentWriter)
+      throws Exception {
+    // Remove indices not set in table config any more
+    String segmentName = _segmentDirectory.getSegmentMetadata().getName();
+    Set<String> columnsToAddIdx = new HashSet<>(_columnsToAddIdx);
+    Set<String> existingColumns = segmentWriter.toSegmentDirectory().getColumnsWithIndex(StandardIndexes.zoneMap());
+    for (String column : existingColumns) {
+      if (!columnsToAddIdx.remove(column)) {
+        LOGGER.info("Removing existing zone map index from segment: {}, column: {}", segmentName, column);
+        segmentWriter.removeIndex(column, StandardIndexes.zoneMap());
+        LOGGER.info("Removed existing zone map index from segment: {}, column: {}", segmentName, column);
+      }
+    }
+    List<ColumnMetadata> columnsToCreateIdx = new ArrayList<>();
+    for (String column : columnsToAddIdx) {
+      ColumnMetadata columnMetadata = _segmentDirectory.getSegmentMetadata().getColumnMetadataFor(column);
+      if (shouldCreateZoneMapIndex(columnMetadata)) {
+        columnsToCreateIdx.add(columnMetadata);
+      }
+    }
+    createIndexForColumns(segmentWriter, columnsToCreateIdx, StandardIndexes.zoneMap(),
+        this::createZoneMapIndexForColumn);
+  }
+
+  private static boolean shouldCreateZoneMapIndex(ColumnMetadata columnMetadata) {
+    return columnMetadata != null && ZoneMapIndexType.isSupported(columnMetadata.getFieldSpec());
+  }
+
+  private void createZoneMapIndexForColumn(SegmentDirectory.Writer segmentWriter, ColumnMetadata columnMetadata)
+      throws Exception {
+    File indexDir = _segmentDirectory.getSegmentMetadata().getIndexDir();
+    String segmentName = _segmentDirectory.getSegmentMetadata().getName();
+    String columnName = columnMetadata.getColumnName();
+    File inProgress = new File(indexDir, columnName + ".zonemap.inprogress");
+    File zoneMapIndexFile = new File(indexDir, columnName + V1Constants.Indexes.ZONE_MAP_INDEX_FILE_EXTENSION);
+
+    if (!inProgress.exists()) {
+      // Marker file does not exist, which means last run ended normally.
+      // Create a marker file.
+      FileUtils.touch(inProgress);
+    } else {
+      // Marker file exists, which means last run gets interrupted.
+      // Remove zone map index if exists.
+      // For v1 and v2, it's the actual zone map index. For v3, it's the temporary zone map index.
+      FileUtils.deleteQuietly(zoneMapIndexFile);
+    }
+
+    // Create a temporary forward index if it is disabled and does not exist
+    columnMetadata = createForwardIndexIfNeeded(segmentWriter, columnName, true);
+
+    // Create new zone map index for the column.
+    LOGGER.info("Creating new zone map index for segment: {}, column: {}", segmentName, columnName);
+    int numDocs = columnMetadata.getTotalDocs();
+    try (ForwardIndexReader forwardIndexReader = ForwardIndexType.read(segmentWriter, columnMetadata);
+        ForwardIndexReaderContext readerContext = forwardIndexReader.createContext();
+        ZoneMapIndexCreator zoneMapIndexCreator = newZoneMapIndexCreator(columnMetadata)) {
+      if (columnMetadata.hasDictionary()) {
+        try (Dictionary dictionary = DictionaryIndexType.read(segmentWriter, columnMetadata)) {
+          for (int i = 0; i < numDocs; i++) {
+            int dictId = forwardIndexReader.getDictId(i, readerContext);
+            zoneMapIndexCreator.add(dictionary.get(dictId), dictId);
+          }
+        }
+      } else {
+        switch (columnMetadata.getDataType().getStoredType()) {
+          case INT:
+            for (int i = 0; i < numDocs; i++) {
+              zoneMapIndexCreator.add(forwardIndexReader.getInt(i, readerContext), -1);
+            }
+            break;
+          case LONG:
+            for (int i = 0; i < numDocs; i++) {
+              zoneMapIndexCreator.add(forwardIndexReader.getLong(i, readerContext), -1);
+            }
+            break;
+          case FLOAT:
+            for (int i = 0; i < numDocs; i++) {
+              zoneMapIndexCreator.add(forwardIndexReader.getFloat(i, readerContext), -1);
+            }
+            break;
+          case DOUBLE:
+            for (int i = 0; i < numDocs; i++) {
+              zoneMapIndexCreator.add(forwardIndexReader.getDouble(i, readerContext), -1);
+            }
+            break;
+          default:
+            throw new IllegalStateException("Unsupported data type: " + columnMetadata.getDataType());
+        }
+      }
+      zoneMapIndexCreator.seal();
+    }
+
+    // For v3, write the generated zone map index file into the single file and remove it.
+    if (_segmentDirectory.getSegmentMetadata().getVersion() == SegmentVersion.v3) {
+      LoaderUtils.writeIndexToV3Format(segmentWriter, columnName, zoneMapIndexFile, StandardIndexes.zoneMap());
+    }
+
+    // Delete the marker file.
+    FileUtils.deleteQuietly(inProgress);
+
+    LOGGER.info("Created zone map index for segment: {}, column: {}", segmentName, columnName);
+  }
+
+  private ZoneMapIndexCreator newZoneMapIndexCreator(ColumnMetadata columnMetadata) {
+    File indexDir = _segmentDirectory.getSegmentMetadata().getIndexDir();
+    ZoneMapIndexConfig config = _fieldIndexConfigs.get(columnMetadata.getColumnName())
+        .getConfig(StandardIndexes.zoneMap());
+    return new ZoneMapIndexCreator(indexDir, columnMetadata.getColumnName(),
+        columnMetadata.getDataType().getStoredType(), config.getNumDocsPerBlock());
+  }
+}
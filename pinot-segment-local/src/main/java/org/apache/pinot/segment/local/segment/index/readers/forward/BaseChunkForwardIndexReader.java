@@ -27,6 +27,7 @@ import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.apache.pinot.segment.local.io.compression.ChunkCompressorFactory;
 import org.apache.pinot.segment.spi.compression.ChunkCompressionType;
 import org.apache.pinot.segment.spi.compression.ChunkDecompressor;
@@ -57,6 +58,10 @@ public abstract class BaseChunkForwardIndexReader implements ForwardIndexReader<
   protected final boolean _isSingleValue;
   protected final int _dataHeaderStart;
   protected final int _rawDataStart;
+  // Server level cache of the decompressed chunks, null if disabled or the chunks are not compressed
+  @Nullable
+  protected final ForwardIndexChunkCache _chunkCache;
+  protected final long _readerId;
 
   protected BaseChunkForwardIndexReader(PinotDataBuffer dataBuffer, DataType storedType, boolean isSingleValue) {
     _dataBuffer = dataBuffer;
@@ -108,6 +113,8 @@ public abstract class BaseChunkForwardIndexReader implements ForwardIndexReader<
     _rawData = _dataBuffer.view(rawDataStart, _dataBuffer.size());
 
     _isSingleValue = isSingleValue;
+    _chunkCache = _isCompressed ? ForwardIndexChunkCache.getInstance() : null;
+    _readerId = ForwardIndexChunkCache.getNextReaderId();
   }
 
   /**
@@ -214,6 +221,10 @@ public abstract class BaseChunkForwardIndexReader implements ForwardIndexReader<
     }
 
     ByteBuffer decompressedBuffer = context.getChunkBuffer();
+    if (_chunkCache != null && _chunkCache.get(_readerId, chunkId, decompressedBuffer)) {
+      context.setChunkId(chunkId);
+      return decompressedBuffer;
+    }
     decompressedBuffer.clear();
 
     try {
@@ -222,6 +233,9 @@ public abstract class BaseChunkForwardIndexReader implements ForwardIndexReader<
       LOGGER.error("Exception caught while decompressing data chunk", e);
       throw new RuntimeException(e);
     }
+    if (_chunkCache != null) {
+      _chunkCache.put(_readerId, chunkId, decompressedBuffer);
+    }
     context.setChunkId(chunkId);
     return decompressedBuffer;
   }
@@ -276,7 +290,15 @@ public abstract class BaseChunkForwardIndexReader implements ForwardIndexReader<
 
   @Override
   public void readValuesSV(int[] docIds, int length, int[] values, ChunkReaderContext context) {
-    if (_storedType.isFixedWidth() && !_isCompressed && isContiguousRange(docIds, length)) {
+    if (canReadCompressedChunksInBulk(DataType.INT, docIds, length)) {
+      int docId = docIds[0];
+      for (int i = 0; i < length; ) {
+        int numValues = getNumValuesInChunk(docId, length - i);
+        getChunkValues(docId, Integer.BYTES, context).asIntBuffer().get(values, i, numValues);
+        docId += numValues;
+        i += numValues;
+      }
+    } else if (_storedType.isFixedWidth() && !_isCompressed && isContiguousRange(docIds, length)) {
       switch (_storedType) {
         case INT: {
           int minOffset = docIds[0] * Integer.BYTES;
@@ -318,7 +340,15 @@ public abstract class BaseChunkForwardIndexReader implements ForwardIndexReader<
 
   @Override
   public void readValuesSV(int[] docIds, int length, long[] values, ChunkReaderContext context) {
-    if (_storedType.isFixedWidth() && !_isCompressed && isContiguousRange(docIds, length)) {
+    if (canReadCompressedChunksInBulk(DataType.LONG, docIds, length)) {
+      int docId = docIds[0];
+      for (int i = 0; i < length; ) {
+        int numValues = getNumValuesInChunk(docId, length - i);
+        getChunkValues(docId, Long.BYTES, context).asLongBuffer().get(values, i, numValues);
+        docId += numValues;
+        i += numValues;
+      }
+    } else if (_storedType.isFixedWidth() && !_isCompressed && isContiguousRange(docIds, length)) {
       switch (_storedType) {
         case INT: {
           int minOffset = docIds[0] * Integer.BYTES;
@@ -360,7 +390,15 @@ public abstract class BaseChunkForwardIndexReader implements ForwardIndexReader<
 
   @Override
   public void readValuesSV(int[] docIds, int length, float[] values, ChunkReaderContext context) {
-    if (_storedType.isFixedWidth() && !_isCompressed && isContiguousRange(docIds, length)) {
+    if (canReadCompressedChunksInBulk(DataType.FLOAT, docIds, length)) {
+      int docId = docIds[0];
+      for (int i = 0; i < length; ) {
+        int numValues = getNumValuesInChunk(docId, length - i);
+        getChunkValues(docId, Float.BYTES, context).asFloatBuffer().get(values, i, numValues);
+        docId += numValues;
+        i += numValues;
+      }
+    } else if (_storedType.isFixedWidth() && !_isCompressed && isContiguousRange(docIds, length)) {
       switch (_storedType) {
         case INT: {
           int minOffset = docIds[0] * Integer.BYTES;
@@ -402,7 +440,15 @@ public abstract class BaseChunkForwardIndexReader implements ForwardIndexReader<
 
   @Override
   public void readValuesSV(int[] docIds, int length, double[] values, ChunkReaderContext context) {
-    if (_storedType.isFixedWidth() && !_isCompressed && isContiguousRange(docIds, length)) {
+    if (canReadCompressedChunksInBulk(DataType.DOUBLE, docIds, length)) {
+      int docId = docIds[0];
+      for (int i = 0; i < length; ) {
+        int numValues = getNumValuesInChunk(docId, length - i);
+        getChunkValues(docId, Double.BYTES, context).asDoubleBuffer().get(values, i, numValues);
+        docId += numValues;
+        i += numValues;
+      }
+    } else if (_storedType.isFixedWidth() && !_isCompressed && isContiguousRange(docIds, length)) {
       switch (_storedType) {
         case INT: {
           int minOffset = docIds[0] * Integer.BYTES;
@@ -449,9 +495,31 @@ public abstract class BaseChunkForwardIndexReader implements ForwardIndexReader<
     // NOTE: DO NOT close the PinotDataBuffer here because it is tracked by the caller and might be reused later. The
     // caller is responsible for closing the PinotDataBuffer.
     _chunkDecompressor.close();
+    if (_chunkCache != null) {
+      _chunkCache.invalidate(_readerId);
+    }
   }
 
   private boolean isContiguousRange(int[] docIds, int length) {
     return docIds[length - 1] - docIds[0] == length - 1;
   }
+
+  /**
+   * Returns {@code true} if the contiguous values can be read from the compressed chunks in bulk, i.e. decompressing
+   * each chunk only once and copying the values without conversion.
+   */
+  private boolean canReadCompressedChunksInBulk(DataType storedType, int[] docIds, int length) {
+    return _isCompressed && _isSingleValue && _storedType == storedType && isContiguousRange(docIds, length);
+  }
+
+  private int getNumValuesInChunk(int docId, int numRemainingValues) {
+    int chunkRowId = docId - getChunkId(docId) * _numDocsPerChunk;
+    return Math.min(numRemainingValues, _numDocsPerChunk - chunkRowId);
+  }
+
+  private ByteBuffer getChunkValues(int docId, int valueSize, ChunkReaderContext context) {
+    ByteBuffer chunkBuffer = getChunkBuffer(docId, context);
+    int chunkRowId = docId - getChunkId(docId) * _numDocsPerChunk;
+    return chunkBuffer.duplicate().order(chunkBuffer.order()).position(chunkRowId * valueSize);
+  }
 }
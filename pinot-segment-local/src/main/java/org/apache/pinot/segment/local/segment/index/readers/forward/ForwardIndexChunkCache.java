@@ -0,0 +1,241 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.index.readers.forward;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.pinot.common.metrics.ServerMeter;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Server level cache of decompressed chunks of the raw (non-dictionary-encoded) forward indexes, shared across the
+ * queries so that concurrent queries on the same hot segments only decompress each chunk once.
+ *
+ * <p>The chunks are keyed by the reader (each forward index reader is bound to a column of a segment, and gets a
+ * unique id from {@link #getNextReaderId()}) and the chunk within the index. The decompressed chunks are stored
+ * off-heap in direct {@link PinotDataBuffer}s, which are closed as soon as the chunks are removed from the cache, and
+ * copied into the reader context on cache hit so that the existing chunk access paths of the readers are unchanged.
+ * The cache is bounded by the total size of the cached chunks, and the entries of a reader are invalidated when the
+ * reader is closed (i.e. when the segment is unloaded). The keys of each reader are tracked so that the invalidation
+ * only touches the entries of that reader.
+ *
+ * <p>The cache is disabled by default, and can be enabled with
+ * {@code pinot.server.forward.index.chunk.cache.max.size.bytes}. {@link #init(long)} is called in BaseServerStarter
+ * to avoid creating a dependency on pinot-server; readers created before the initialization do not use the cache.
+ */
+@ThreadSafe
+public class ForwardIndexChunkCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ForwardIndexChunkCache.class);
+  private static final AtomicLong READER_ID_GENERATOR = new AtomicLong();
+  private static volatile ForwardIndexChunkCache _instance;
+
+  private final Cache<ChunkKey, CachedChunk> _cache;
+  private final Map<Long, Set<ChunkKey>> _readerKeys = new ConcurrentHashMap<>();
+
+  @VisibleForTesting
+  ForwardIndexChunkCache(long maxSizeInBytes) {
+    Preconditions.checkArgument(maxSizeInBytes > 0,
+        "Max size of the forward index chunk cache must be positive, got: %s", maxSizeInBytes);
+    _cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxSizeInBytes)
+        .weigher((ChunkKey key, CachedChunk value) -> value._size)
+        .removalListener(this::onRemoval)
+        .build();
+  }
+
+  /**
+   * Initializes the server level cache with the given max size, or disables it when the max size is not positive.
+   */
+  public static void init(long maxSizeInBytes) {
+    _instance = maxSizeInBytes > 0 ? new ForwardIndexChunkCache(maxSizeInBytes) : null;
+  }
+
+  /**
+   * Returns the server level cache, or {@code null} if it is not enabled.
+   */
+  @Nullable
+  public static ForwardIndexChunkCache getInstance() {
+    return _instance;
+  }
+
+  @VisibleForTesting
+  static void setInstance(@Nullable ForwardIndexChunkCache instance) {
+    _instance = instance;
+  }
+
+  /**
+   * Returns a unique id for a forward index reader, used as part of the cache key.
+   */
+  public static long getNextReaderId() {
+    return READER_ID_GENERATOR.getAndIncrement();
+  }
+
+  /**
+   * Copies the cached decompressed chunk into the given buffer (cleared first, and returned ready for read), and
+   * returns {@code true} on cache hit, {@code false} otherwise.
+   */
+  public boolean get(long readerId, long chunkId, ByteBuffer target) {
+    CachedChunk chunk = _cache.getIfPresent(new ChunkKey(readerId, chunkId));
+    if (chunk == null || !chunk.copyTo(target)) {
+      ServerMetrics.get().addMeteredGlobalValue(ServerMeter.FORWARD_INDEX_CHUNK_CACHE_MISSES, 1);
+      return false;
+    }
+    ServerMetrics.get().addMeteredGlobalValue(ServerMeter.FORWARD_INDEX_CHUNK_CACHE_HITS, 1);
+    return true;
+  }
+
+  /**
+   * Caches a copy of the given decompressed chunk (from position 0 to limit).
+   */
+  public void put(long readerId, long chunkId, ByteBuffer decompressedChunk) {
+    ByteBuffer source = decompressedChunk.duplicate();
+    source.position(0);
+    int size = source.remaining();
+    if (size == 0) {
+      return;
+    }
+    PinotDataBuffer buffer =
+        PinotDataBuffer.allocateDirect(size, PinotDataBuffer.NATIVE_ORDER, "ForwardIndexChunkCache: " + readerId);
+    buffer.readFrom(0, source);
+    ChunkKey key = new ChunkKey(readerId, chunkId);
+    // Track the key before putting the chunk so that the chunk is always invalidated with the reader
+    _readerKeys.computeIfAbsent(readerId, k -> ConcurrentHashMap.newKeySet()).add(key);
+    _cache.put(key, new CachedChunk(buffer, size));
+  }
+
+  /**
+   * Invalidates all the cached chunks of the given reader.
+   */
+  public void invalidate(long readerId) {
+    Set<ChunkKey> keys = _readerKeys.remove(readerId);
+    if (keys != null) {
+      _cache.invalidateAll(keys);
+    }
+  }
+
+  public void invalidateAll() {
+    _cache.invalidateAll();
+    _readerKeys.clear();
+  }
+
+  @VisibleForTesting
+  long size() {
+    _cache.cleanUp();
+    return _cache.size();
+  }
+
+  private void onRemoval(RemovalNotification<ChunkKey, CachedChunk> notification) {
+    CachedChunk chunk = notification.getValue();
+    if (notification.wasEvicted()) {
+      ServerMetrics.get().addMeteredGlobalValue(ServerMeter.FORWARD_INDEX_CHUNK_CACHE_EVICTED_BYTES, chunk._size);
+    }
+    // The key is still cached with the new chunk when the chunk is replaced
+    if (notification.getCause() != RemovalCause.REPLACED) {
+      ChunkKey key = notification.getKey();
+      _readerKeys.computeIfPresent(key._readerId, (readerId, keys) -> {
+        keys.remove(key);
+        return keys.isEmpty() ? null : keys;
+      });
+    }
+    chunk.close();
+  }
+
+  private static final class ChunkKey {
+    final long _readerId;
+    final long _chunkId;
+
+    ChunkKey(long readerId, long chunkId) {
+      _readerId = readerId;
+      _chunkId = chunkId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ChunkKey)) {
+        return false;
+      }
+      ChunkKey that = (ChunkKey) o;
+      return _readerId == that._readerId && _chunkId == that._chunkId;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Long.hashCode(_readerId) + Long.hashCode(_chunkId);
+    }
+  }
+
+  /**
+   * Off-heap decompressed chunk. The buffer is closed when the chunk is removed from the cache, and the copy and the
+   * close are synchronized so that a chunk removed while being read is not released under the reader.
+   */
+  private static final class CachedChunk {
+    final PinotDataBuffer _buffer;
+    final int _size;
+    boolean _closed;
+
+    CachedChunk(PinotDataBuffer buffer, int size) {
+      _buffer = buffer;
+      _size = size;
+    }
+
+    /**
+     * Copies the chunk into the given buffer, returns {@code false} if the chunk is already closed.
+     */
+    synchronized boolean copyTo(ByteBuffer target) {
+      if (_closed) {
+        return false;
+      }
+      target.clear();
+      target.put(_buffer.toDirectByteBuffer(0, _size));
+      target.flip();
+      return true;
+    }
+
+    synchronized void close() {
+      if (_closed) {
+        return;
+      }
+      _closed = true;
+      try {
+        _buffer.close();
+      } catch (IOException e) {
+        LOGGER.warn("Caught exception while closing the cached forward index chunk buffer", e);
+      }
+    }
+  }
+}
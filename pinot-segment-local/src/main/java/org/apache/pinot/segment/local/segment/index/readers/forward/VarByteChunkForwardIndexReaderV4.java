@@ -27,6 +27,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.apache.pinot.segment.local.io.compression.ChunkCompressorFactory;
 import org.apache.pinot.segment.local.io.writer.impl.VarByteChunkForwardIndexWriterV4;
 import org.apache.pinot.segment.local.utils.ArraySerDeUtils;
@@ -64,6 +65,10 @@ public class VarByteChunkForwardIndexReaderV4
   private final PinotDataBuffer _chunks;
   private final boolean _isSingleValue;
   private final long _chunksStartOffset;
+  // Server level cache of the decompressed chunks, null if disabled or the chunks are not compressed
+  @Nullable
+  private final ForwardIndexChunkCache _chunkCache;
+  private final long _readerId;
 
   public VarByteChunkForwardIndexReaderV4(PinotDataBuffer dataBuffer, FieldSpec.DataType storedType,
       boolean isSingleValue) {
@@ -78,6 +83,9 @@ public class VarByteChunkForwardIndexReaderV4
     _chunksStartOffset = chunksOffset;
     _chunks = dataBuffer.view(chunksOffset, dataBuffer.size(), ByteOrder.LITTLE_ENDIAN);
     _isSingleValue = isSingleValue;
+    _chunkCache =
+        _chunkCompressionType != ChunkCompressionType.PASS_THROUGH ? ForwardIndexChunkCache.getInstance() : null;
+    _readerId = ForwardIndexChunkCache.getNextReaderId();
   }
 
   public void validateIndexVersion(PinotDataBuffer dataBuffer) {
@@ -116,7 +124,7 @@ public class VarByteChunkForwardIndexReaderV4
     return _chunkCompressionType == ChunkCompressionType.PASS_THROUGH ? new UncompressedReaderContext(_chunks,
         _metadata, _chunksStartOffset)
         : new CompressedReaderContext(_metadata, _chunks, _chunksStartOffset, _chunkDecompressor, _chunkCompressionType,
-            _targetDecompressedChunkSize);
+            _targetDecompressedChunkSize, _chunkCache, _readerId);
   }
 
   @Override
@@ -208,6 +216,9 @@ public class VarByteChunkForwardIndexReaderV4
   public void close()
       throws IOException {
     _chunkDecompressor.close();
+    if (_chunkCache != null) {
+      _chunkCache.invalidate(_readerId);
+    }
   }
 
   @Override
@@ -383,23 +394,37 @@ public class VarByteChunkForwardIndexReaderV4
     private final ByteBuffer _decompressedBuffer;
     private final ChunkDecompressor _chunkDecompressor;
     private final ChunkCompressionType _chunkCompressionType;
+    @Nullable
+    private final ForwardIndexChunkCache _chunkCache;
+    private final long _readerId;
     private boolean _closed;
 
     CompressedReaderContext(PinotDataBuffer metadata, PinotDataBuffer chunks, long chunkStartOffset,
-        ChunkDecompressor chunkDecompressor, ChunkCompressionType chunkCompressionType, int targetChunkSize) {
+        ChunkDecompressor chunkDecompressor, ChunkCompressionType chunkCompressionType, int targetChunkSize,
+        @Nullable ForwardIndexChunkCache chunkCache, long readerId) {
       super(metadata, chunks, chunkStartOffset);
       _chunkDecompressor = chunkDecompressor;
       _chunkCompressionType = chunkCompressionType;
       _decompressedBuffer = ByteBuffer.allocateDirect(targetChunkSize).order(ByteOrder.LITTLE_ENDIAN);
+      _chunkCache = chunkCache;
+      _readerId = readerId;
     }
 
     @Override
     protected byte[] processChunkAndReadFirstValue(int docId, long offset, long limit)
         throws IOException {
+      // NOTE: Chunks are identified by their offset in the cache
+      if (_regularChunk && _chunkCache != null && _chunkCache.get(_readerId, offset, _decompressedBuffer)) {
+        _numDocsInCurrentChunk = _decompressedBuffer.getInt(0);
+        return readSmallUncompressedValue(docId);
+      }
       _decompressedBuffer.clear();
       ByteBuffer compressed = _chunks.toDirectByteBuffer(offset, (int) (limit - offset));
       if (_regularChunk) {
         _chunkDecompressor.decompress(compressed, _decompressedBuffer);
+        if (_chunkCache != null) {
+          _chunkCache.put(_readerId, offset, _decompressedBuffer);
+        }
         _numDocsInCurrentChunk = _decompressedBuffer.getInt(0);
         return readSmallUncompressedValue(docId);
       }
@@ -19,6 +19,8 @@
 package org.apache.pinot.segment.local.segment.index.readers.json;
 
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import java.io.ByteArrayOutputStream;
@@ -32,8 +34,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.function.Supplier;
 import javax.annotation.Nullable;
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.pinot.common.metrics.ServerMeter;
+import org.apache.pinot.common.metrics.ServerMetrics;
 import org.apache.pinot.common.request.context.ExpressionContext;
 import org.apache.pinot.common.request.context.FilterContext;
 import org.apache.pinot.common.request.context.RequestContextUtils;
@@ -75,6 +80,12 @@ public class ImmutableJsonIndexReader implements JsonIndexReader {
   private final BitmapInvertedIndexReader _invertedIndex;
   private final long _numFlattenedDocs;
   private final PinotDataBuffer _docIdMapping;
+  // Cache from the json_match filter (string or FilterContext) to the matching doc ids, or null if disabled
+  @Nullable
+  private final Cache<Object, MutableRoaringBitmap> _matchingDocIdsCache;
+
+  // Rough heap size of the key and the entry in the matching doc ids cache
+  private static final int CACHE_ENTRY_OVERHEAD_BYTES = 256;
 
   // empty bitmap used to limit creation of new empty mutable bitmaps
   private static final ImmutableRoaringBitmap EMPTY_BITMAP;
@@ -96,6 +107,15 @@ public class ImmutableJsonIndexReader implements JsonIndexReader {
   }
 
   public ImmutableJsonIndexReader(PinotDataBuffer dataBuffer, int numDocs) {
+    this(dataBuffer, numDocs, 0);
+  }
+
+  /**
+   * Creates the reader with a cache of the matching doc ids for the json_match filters, which is bounded by the given
+   * bytes size (non-positive to disable the cache). The cache avoids parsing the filter, looking up the flattened
+   * key-values in the dictionary and mapping the flattened doc ids to doc ids again for repeated filters.
+   */
+  public ImmutableJsonIndexReader(PinotDataBuffer dataBuffer, int numDocs, long matchingDocIdsCacheMaxBytes) {
     _numDocs = numDocs;
     _version = dataBuffer.getInt(0);
     Preconditions.checkState(_version == BaseJsonIndexCreator.VERSION_1 || _version == BaseJsonIndexCreator.VERSION_2,
@@ -117,10 +137,22 @@ public class ImmutableJsonIndexReader implements JsonIndexReader {
     long docIdMappingEndOffset = invertedIndexEndOffset + docIdMappingLength;
     _numFlattenedDocs = (docIdMappingLength / Integer.BYTES);
     _docIdMapping = dataBuffer.view(invertedIndexEndOffset, docIdMappingEndOffset, ByteOrder.LITTLE_ENDIAN);
+    if (matchingDocIdsCacheMaxBytes > 0) {
+      _matchingDocIdsCache = CacheBuilder.newBuilder()
+          .maximumWeight(matchingDocIdsCacheMaxBytes)
+          .weigher((Object key, MutableRoaringBitmap value) -> CACHE_ENTRY_OVERHEAD_BYTES + value.getSizeInBytes())
+          .build();
+    } else {
+      _matchingDocIdsCache = null;
+    }
   }
 
   @Override
   public MutableRoaringBitmap getMatchingDocIds(String filterString) {
+    return getCachedMatchingDocIds(filterString, () -> computeMatchingDocIds(parseFilter(filterString)));
+  }
+
+  private static FilterContext parseFilter(String filterString) {
     FilterContext filter;
     try {
       filter = RequestContextUtils.getFilter(CalciteSqlParser.compileToExpression(filterString));
@@ -128,7 +160,7 @@ public class ImmutableJsonIndexReader implements JsonIndexReader {
     } catch (Exception e) {
       throw new BadQueryRequestException("Invalid json match filter: " + filterString);
     }
-    return getMatchingDocIds(filter);
+    return filter;
   }
 
   @Override
@@ -137,6 +169,32 @@ public class ImmutableJsonIndexReader implements JsonIndexReader {
       throw new BadQueryRequestException("Invalid json match filter: " + filterObj);
     }
     FilterContext filter = (FilterContext) filterObj;
+    return getCachedMatchingDocIds(filter, () -> computeMatchingDocIds(filter));
+  }
+
+  /**
+   * Returns the matching doc ids from the cache if present, or computes and caches them. A copy is returned because the
+   * caller might modify the bitmap.
+   */
+  private MutableRoaringBitmap getCachedMatchingDocIds(Object cacheKey,
+      Supplier<MutableRoaringBitmap> matchingDocIdsSupplier) {
+    if (_matchingDocIdsCache == null) {
+      return matchingDocIdsSupplier.get();
+    }
+    MutableRoaringBitmap cachedDocIds = _matchingDocIdsCache.getIfPresent(cacheKey);
+    if (cachedDocIds != null) {
+      ServerMetrics.get().addMeteredGlobalValue(ServerMeter.JSON_INDEX_MATCHING_DOC_IDS_CACHE_HITS, 1);
+      return cachedDocIds.clone();
+    }
+    ServerMetrics.get().addMeteredGlobalValue(ServerMeter.JSON_INDEX_MATCHING_DOC_IDS_CACHE_MISSES, 1);
+    MutableRoaringBitmap matchingDocIds = matchingDocIdsSupplier.get();
+    MutableRoaringBitmap docIdsToCache = matchingDocIds.clone();
+    docIdsToCache.runOptimize();
+    _matchingDocIdsCache.put(cacheKey, docIdsToCache);
+    return matchingDocIds;
+  }
+
+  private MutableRoaringBitmap computeMatchingDocIds(FilterContext filter) {
     if (filter.getType() == FilterContext.Type.PREDICATE && isExclusive(filter.getPredicate().getType())) {
       // Handle exclusive predicate separately because the flip can only be applied to the unflattened doc ids in order
       // to get the correct result, and it cannot be nested
@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.index.readers.zonemap;
+
+import com.google.common.base.Preconditions;
+import org.apache.pinot.segment.local.segment.creator.impl.zonemap.ZoneMapIndexCreator;
+import org.apache.pinot.segment.spi.index.reader.ZoneMapIndexReader;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+
+
+/**
+ * Reader for the zone map index created by {@link ZoneMapIndexCreator}.
+ */
+public class ZoneMapIndexReaderImpl implements ZoneMapIndexReader {
+  private final PinotDataBuffer _dataBuffer;
+  private final int _numDocsPerBlock;
+  private final int _numBlocks;
+
+  public ZoneMapIndexReaderImpl(PinotDataBuffer dataBuffer) {
+    int version = dataBuffer.getInt(0);
+    Preconditions.checkState(version == ZoneMapIndexCreator.VERSION, "Unsupported zone map index version: %s",
+        version);
+    _dataBuffer = dataBuffer;
+    _numDocsPerBlock = dataBuffer.getInt(Integer.BYTES);
+    _numBlocks = dataBuffer.getInt(2 * Integer.BYTES);
+  }
+
+  @Override
+  public int getNumDocsPerBlock() {
+    return _numDocsPerBlock;
+  }
+
+  @Override
+  public int getNumBlocks() {
+    return _numBlocks;
+  }
+
+  @Override
+  public long getMinLongValue(int blockId) {
+    return _dataBuffer.getLong(getMinOffset(blockId));
+  }
+
+  @Override
+  public long getMaxLongValue(int blockId) {
+    return _dataBuffer.getLong(getMinOffset(blockId) + Long.BYTES);
+  }
+
+  @Override
+  public double getMinDoubleValue(int blockId) {
+    return _dataBuffer.getDouble(getMinOffset(blockId));
+  }
+
+  @Override
+  public double getMaxDoubleValue(int blockId) {
+    return _dataBuffer.getDouble(getMinOffset(blockId) + Double.BYTES);
+  }
+
+  private static long getMinOffset(int blockId) {
+    return ZoneMapIndexCreator.HEADER_SIZE + (long) blockId * 2 * Long.BYTES;
+  }
+
+  @Override
+  public void close() {
+    // NOTE: DO NOT close the PinotDataBuffer here because it is tracked by the caller and might be reused later. The
+    // caller is responsible of closing the PinotDataBuffer.
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.index.zonemap;
+
+import com.google.common.base.Preconditions;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.apache.pinot.segment.local.segment.creator.impl.zonemap.ZoneMapIndexCreator;
+import org.apache.pinot.segment.local.segment.index.loader.invertedindex.ZoneMapIndexHandler;
+import org.apache.pinot.segment.local.segment.index.readers.zonemap.ZoneMapIndexReaderImpl;
+import org.apache.pinot.segment.spi.ColumnMetadata;
+import org.apache.pinot.segment.spi.V1Constants;
+import org.apache.pinot.segment.spi.creator.IndexCreationContext;
+import org.apache.pinot.segment.spi.index.AbstractIndexType;
+import org.apache.pinot.segment.spi.index.FieldIndexConfigs;
+import org.apache.pinot.segment.spi.index.IndexHandler;
+import org.apache.pinot.segment.spi.index.IndexReaderFactory;
+import org.apache.pinot.segment.spi.index.IndexType;
+import org.apache.pinot.segment.spi.index.StandardIndexes;
+import org.apache.pinot.segment.spi.index.ZoneMapIndexConfig;
+import org.apache.pinot.segment.spi.index.reader.ZoneMapIndexReader;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+import org.apache.pinot.segment.spi.store.SegmentDirectory;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.data.FieldSpec;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+
+
+/**
+ * The zone map index keeps the min and max value of each block of consecutive documents, which allows the scan-based
+ * filters to skip the blocks that cannot match the predicate, and to match the whole block without scanning when all
+ * the values in the block match the predicate.
+ * <p>It can be configured through the field config, e.g. {@code "indexes": {"zone_map": {"numDocsPerBlock": 1024}}}.
+ */
+public class ZoneMapIndexType extends AbstractIndexType<ZoneMapIndexConfig, ZoneMapIndexReader, ZoneMapIndexCreator> {
+  public static final String INDEX_DISPLAY_NAME = "zone_map";
+  private static final List<String> EXTENSIONS =
+      Collections.singletonList(V1Constants.Indexes.ZONE_MAP_INDEX_FILE_EXTENSION);
+
+  protected ZoneMapIndexType() {
+    super(StandardIndexes.ZONE_MAP_ID);
+  }
+
+  /**
+   * Returns whether the zone map index can be created for the given field.
+   */
+  public static boolean isSupported(FieldSpec fieldSpec) {
+    return fieldSpec.isSingleValueField() && isSupported(fieldSpec.getDataType().getStoredType());
+  }
+
+  private static boolean isSupported(DataType storedType) {
+    switch (storedType) {
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  public Class<ZoneMapIndexConfig> getIndexConfigClass() {
+    return ZoneMapIndexConfig.class;
+  }
+
+  @Override
+  public ZoneMapIndexConfig getDefaultConfig() {
+    return ZoneMapIndexConfig.DISABLED;
+  }
+
+  @Override
+  public void validate(FieldIndexConfigs indexConfigs, FieldSpec fieldSpec, TableConfig tableConfig) {
+    ZoneMapIndexConfig zoneMapIndexConfig = indexConfigs.getConfig(StandardIndexes.zoneMap());
+    if (zoneMapIndexConfig.isEnabled()) {
+      Preconditions.checkState(isSupported(fieldSpec),
+          "Cannot create zone map index on column: %s, it is only supported on single-value numeric columns",
+          fieldSpec.getName());
+    }
+  }
+
+  @Override
+  public String getPrettyName() {
+    return INDEX_DISPLAY_NAME;
+  }
+
+  @Override
+  public ZoneMapIndexCreator createIndexCreator(IndexCreationContext context, ZoneMapIndexConfig indexConfig) {
+    FieldSpec fieldSpec = context.getFieldSpec();
+    return new ZoneMapIndexCreator(context.getIndexDir(), fieldSpec.getName(), fieldSpec.getDataType().getStoredType(),
+        indexConfig.getNumDocsPerBlock());
+  }
+
+  @Override
+  public IndexHandler createIndexHandler(SegmentDirectory segmentDirectory, Map<String, FieldIndexConfigs> configsByCol,
+      Schema schema, TableConfig tableConfig) {
+    return new ZoneMapIndexHandler(segmentDirectory, configsByCol, tableConfig, schema);
+  }
+
+  @Override
+  public List<String> getFileExtensions(@Nullable ColumnMetadata columnMetadata) {
+    return EXTENSIONS;
+  }
+
+  @Override
+  protected IndexReaderFactory<ZoneMapIndexReader> createReaderFactory() {
+    return ReaderFactory.INSTANCE;
+  }
+
+  private static class ReaderFactory extends IndexReaderFactory.Default<ZoneMapIndexConfig, ZoneMapIndexReader> {
+    public static final ReaderFactory INSTANCE = new ReaderFactory();
+
+    private ReaderFactory() {
+    }
+
+    @Override
+    protected IndexType<ZoneMapIndexConfig, ZoneMapIndexReader, ?> getIndexType() {
+      return StandardIndexes.zoneMap();
+    }
+
+    @Override
+    protected ZoneMapIndexReader createIndexReader(PinotDataBuffer dataBuffer, ColumnMetadata metadata,
+        ZoneMapIndexConfig indexConfig) {
+      return new ZoneMapIndexReaderImpl(dataBuffer);
+    }
+  }
+}
@@ -85,6 +85,10 @@ public class PinotSegmentColumnReader implements Closeable {
     return _forwardIndexReader.getDictId(docId, _forwardIndexReaderContext);
   }
 
+  public int getDictIdMV(int docId, int[] dictIdBuffer) {
+    return _forwardIndexReader.getDictIdMV(docId, dictIdBuffer, _forwardIndexReaderContext);
+  }
+
   public Object getValue(int docId) {
     if (_dictionary != null) {
       // Dictionary based
@@ -0,0 +1,443 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.store;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.metrics.ServerMeter;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Server level cache of the index buffers fetched from the deep store by {@link DeepStoreSegmentDirectory}. It is
+ * shared by all the deep store backed segments, and is bounded by the total size of the cached indexes, evicting the
+ * least recently used ones first.
+ *
+ * <p>Each cached index is stored in its own file under the cache directory, and is mapped (or loaded on heap) once when
+ * it is fetched. Readers do not hold references to the cached indexes between reads: each read publishes the index it
+ * is reading in the {@link ReadSlot} of the reading thread (see {@link ReadSlot#protect(CachedIndex)}), which is a
+ * plain volatile write to a slot owned by the thread instead of an update of a shared reference count. Any index can be
+ * evicted, and an evicted index is only closed once no read slot references it anymore, so that the buffers stay valid
+ * for the reads in progress. The evicted indexes still count against the max size of the cache until they are closed.
+ * When there is no room for a new index, the fetch waits for the indexes being fetched or read to be released, and
+ * fails if there is still no room after {@link #DEFAULT_MAX_RESERVE_WAIT_MS}, so that the cache never exceeds its max
+ * size.
+ */
+@ThreadSafe
+public class DeepStoreIndexCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DeepStoreIndexCache.class);
+  private static final AtomicLong FILE_ID_GENERATOR = new AtomicLong();
+  // Read slots of all the threads that have read a cached index, weakly referenced so that they are dropped with their
+  // threads
+  private static final ConcurrentLinkedQueue<WeakReference<ReadSlot>> READ_SLOTS = new ConcurrentLinkedQueue<>();
+  private static final ThreadLocal<ReadSlot> READ_SLOT = ThreadLocal.withInitial(() -> {
+    ReadSlot readSlot = new ReadSlot();
+    READ_SLOTS.add(new WeakReference<>(readSlot));
+    return readSlot;
+  });
+
+  public static final long DEFAULT_MAX_RESERVE_WAIT_MS = 10_000L;
+  // Evicted indexes are not tracked by the reads, so check them periodically while waiting for room
+  private static final long RESERVE_RETRY_INTERVAL_MS = 10L;
+
+  private final File _cacheDir;
+  private final long _maxSizeInBytes;
+  private final long _maxReserveWaitMs;
+  // Cached indexes in access order, guarded by this
+  private final LinkedHashMap<String, CachedIndex> _cache = new LinkedHashMap<>(16, 0.75f, true);
+  // Indexes being fetched, guarded by this
+  private final Map<String, CompletableFuture<CachedIndex>> _pendingFetches = new HashMap<>();
+  // Evicted indexes that might still be read, guarded by this
+  private final List<CachedIndex> _evictedIndexes = new ArrayList<>();
+  // Total size of the indexes fetched and not closed yet, including the pending fetches and the evicted indexes,
+  // guarded by this
+  private long _sizeInBytes;
+
+  public DeepStoreIndexCache(File cacheDir, long maxSizeInBytes)
+      throws IOException {
+    this(cacheDir, maxSizeInBytes, DEFAULT_MAX_RESERVE_WAIT_MS);
+  }
+
+  @VisibleForTesting
+  DeepStoreIndexCache(File cacheDir, long maxSizeInBytes, long maxReserveWaitMs)
+      throws IOException {
+    Preconditions.checkArgument(maxSizeInBytes > 0, "Max size of the deep store index cache must be positive, got: %s",
+        maxSizeInBytes);
+    // Files left over by a previous run cannot be mapped back to their keys, so start from an empty directory
+    FileUtils.deleteDirectory(cacheDir);
+    FileUtils.forceMkdir(cacheDir);
+    _cacheDir = cacheDir;
+    _maxSizeInBytes = maxSizeInBytes;
+    _maxReserveWaitMs = maxReserveWaitMs;
+  }
+
+  public long getMaxSizeInBytes() {
+    return _maxSizeInBytes;
+  }
+
+  /**
+   * Returns the cached index for the given key, or fetches it with the given fetcher and loads it with the given loader
+   * on cache miss. Concurrent calls for the same key only fetch once. The returned index must be protected with
+   * {@link ReadSlot#protect(CachedIndex)} before reading its buffer, and can be evicted at any time before that.
+   *
+   * @param sizeInBytes size of the index, which is reserved in the cache before fetching it
+   * @throws IOException if the index cannot be fetched, or if there is no room for it in the cache
+   */
+  public CachedIndex acquire(String key, long sizeInBytes, Fetcher fetcher, Loader loader)
+      throws IOException {
+    CompletableFuture<CachedIndex> pendingFetch;
+    List<CachedIndex> closedIndexes = new ArrayList<>();
+    IOException reserveException = null;
+    synchronized (this) {
+      CachedIndex cachedIndex = _cache.get(key);
+      if (cachedIndex != null) {
+        ServerMetrics.get().addMeteredGlobalValue(ServerMeter.DEEP_STORE_INDEX_CACHE_HITS, 1);
+        return cachedIndex;
+      }
+      pendingFetch = _pendingFetches.get(key);
+      if (pendingFetch == null) {
+        try {
+          reserve(key, sizeInBytes, closedIndexes);
+          _pendingFetches.put(key, new CompletableFuture<>());
+        } catch (IOException e) {
+          reserveException = e;
+        }
+      }
+    }
+    // Close the evicted indexes outside the lock
+    closeAll(closedIndexes);
+    if (reserveException != null) {
+      throw reserveException;
+    }
+    if (pendingFetch != null) {
+      // Wait for the concurrent fetch of the same key, then acquire it through the cache
+      try {
+        pendingFetch.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for the fetch of index: " + key, e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        throw new IOException("Failed to fetch index: " + key, cause);
+      }
+      return acquire(key, sizeInBytes, fetcher, loader);
+    }
+    return fetch(key, sizeInBytes, fetcher, loader);
+  }
+
+  /**
+   * Reserves room for a new index, evicting the least recently used indexes when needed. Indexes read since the last
+   * eviction get a second chance before being evicted, since reading an index does not update the access order of the
+   * cache. When the pending fetches and the evicted indexes still being read leave no room for the index, waits for
+   * them to be released, and fails after the max reserve wait time. The indexes to close are added to the given list
+   * to be closed outside the lock.
+   */
+  private void reserve(String key, long sizeInBytes, List<CachedIndex> closedIndexes)
+      throws IOException {
+    if (sizeInBytes > _maxSizeInBytes) {
+      ServerMetrics.get().addMeteredGlobalValue(ServerMeter.DEEP_STORE_INDEX_CACHE_REJECTED_FETCHES, 1);
+      throw new IOException("Index: " + key + " of size: " + sizeInBytes
+          + " bytes does not fit in the deep store index cache with max size: " + _maxSizeInBytes + " bytes");
+    }
+    long deadlineMs = System.currentTimeMillis() + _maxReserveWaitMs;
+    while (true) {
+      List<String> recentlyUsedKeys = new ArrayList<>();
+      evict(sizeInBytes, recentlyUsedKeys);
+      // Move the recently used indexes to the end of the access order, then evict them only if still needed
+      for (String recentlyUsedKey : recentlyUsedKeys) {
+        _cache.get(recentlyUsedKey);
+      }
+      evict(sizeInBytes, null);
+      closeUnusedEvictedIndexes(closedIndexes);
+      if (_sizeInBytes + sizeInBytes <= _maxSizeInBytes) {
+        _sizeInBytes += sizeInBytes;
+        return;
+      }
+      long remainingWaitMs = deadlineMs - System.currentTimeMillis();
+      if (remainingWaitMs <= 0) {
+        ServerMetrics.get().addMeteredGlobalValue(ServerMeter.DEEP_STORE_INDEX_CACHE_REJECTED_FETCHES, 1);
+        throw new IOException("Deep store index cache is full with: " + _sizeInBytes
+            + " bytes of indexes being fetched or read (max size: " + _maxSizeInBytes + " bytes), cannot fetch index: "
+            + key + " of size: " + sizeInBytes + " bytes");
+      }
+      try {
+        wait(Math.min(remainingWaitMs, RESERVE_RETRY_INTERVAL_MS));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for room to fetch index: " + key, e);
+      }
+    }
+  }
+
+  /**
+   * Evicts the least recently used indexes until there is room for the given size. When the given list of recently
+   * used keys is not null, the indexes read since the last eviction are skipped and added to it.
+   */
+  private void evict(long sizeInBytes, @Nullable List<String> recentlyUsedKeys) {
+    long evictedSizeInBytes = 0;
+    for (CachedIndex evictedIndex : _evictedIndexes) {
+      evictedSizeInBytes += evictedIndex._sizeInBytes;
+    }
+    Iterator<Map.Entry<String, CachedIndex>> iterator = _cache.entrySet().iterator();
+    // The evicted indexes are closed (and their size released) once they are no longer read, which usually happens
+    // right away
+    while (_sizeInBytes - evictedSizeInBytes + sizeInBytes > _maxSizeInBytes && iterator.hasNext()) {
+      Map.Entry<String, CachedIndex> entry = iterator.next();
+      CachedIndex cachedIndex = entry.getValue();
+      if (recentlyUsedKeys != null && cachedIndex._recentlyUsed) {
+        cachedIndex._recentlyUsed = false;
+        recentlyUsedKeys.add(entry.getKey());
+        continue;
+      }
+      iterator.remove();
+      markEvicted(cachedIndex);
+      evictedSizeInBytes += cachedIndex._sizeInBytes;
+    }
+  }
+
+  private void markEvicted(CachedIndex cachedIndex) {
+    // Must be published before checking the read slots, see ReadSlot.protect()
+    cachedIndex._evicted = true;
+    _evictedIndexes.add(cachedIndex);
+  }
+
+  /**
+   * Removes the evicted indexes not referenced by any read slot, and adds them to the given list to be closed. Once
+   * evicted, an index can no longer be protected by a read slot, so it can be safely closed.
+   */
+  private void closeUnusedEvictedIndexes(List<CachedIndex> closedIndexes) {
+    if (_evictedIndexes.isEmpty()) {
+      return;
+    }
+    Iterator<CachedIndex> iterator = _evictedIndexes.iterator();
+    while (iterator.hasNext()) {
+      CachedIndex evictedIndex = iterator.next();
+      if (!ReadSlot.isProtected(evictedIndex)) {
+        iterator.remove();
+        _sizeInBytes -= evictedIndex._sizeInBytes;
+        closedIndexes.add(evictedIndex);
+      }
+    }
+  }
+
+  private CachedIndex fetch(String key, long sizeInBytes, Fetcher fetcher, Loader loader)
+      throws IOException {
+    ServerMetrics.get().addMeteredGlobalValue(ServerMeter.DEEP_STORE_INDEX_CACHE_MISSES, 1);
+    File file = new File(_cacheDir, FILE_ID_GENERATOR.getAndIncrement() + ".idx");
+    CachedIndex cachedIndex;
+    try {
+      fetcher.fetch(file);
+      ServerMetrics.get().addMeteredGlobalValue(ServerMeter.DEEP_STORE_INDEX_FETCHED_BYTES, file.length());
+      cachedIndex = new CachedIndex(file, loader.load(file), sizeInBytes);
+    } catch (Exception e) {
+      FileUtils.deleteQuietly(file);
+      CompletableFuture<CachedIndex> pendingFetch;
+      synchronized (this) {
+        _sizeInBytes -= sizeInBytes;
+        pendingFetch = _pendingFetches.remove(key);
+        // Wake up the fetches waiting for room
+        notifyAll();
+      }
+      IOException ioException =
+          e instanceof IOException ? (IOException) e : new IOException("Failed to fetch index: " + key, e);
+      pendingFetch.completeExceptionally(ioException);
+      throw ioException;
+    }
+    CompletableFuture<CachedIndex> pendingFetch;
+    synchronized (this) {
+      _cache.put(key, cachedIndex);
+      pendingFetch = _pendingFetches.remove(key);
+      // Wake up the fetches waiting for room, as the fetched index can now be evicted
+      notifyAll();
+    }
+    pendingFetch.complete(cachedIndex);
+    return cachedIndex;
+  }
+
+  /**
+   * Invalidates all the cached indexes with keys starting with the given prefix. Indexes still being read are closed
+   * once the reads are done, on the next fetch or invalidation.
+   */
+  public void invalidate(String keyPrefix) {
+    List<CachedIndex> closedIndexes = new ArrayList<>();
+    synchronized (this) {
+      Iterator<Map.Entry<String, CachedIndex>> iterator = _cache.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<String, CachedIndex> entry = iterator.next();
+        if (entry.getKey().startsWith(keyPrefix)) {
+          iterator.remove();
+          markEvicted(entry.getValue());
+        }
+      }
+      closeUnusedEvictedIndexes(closedIndexes);
+      notifyAll();
+    }
+    closeAll(closedIndexes);
+  }
+
+  public void invalidateAll() {
+    invalidate("");
+  }
+
+  private static void closeAll(List<CachedIndex> cachedIndexes) {
+    for (CachedIndex cachedIndex : cachedIndexes) {
+      cachedIndex.close();
+    }
+  }
+
+  @VisibleForTesting
+  synchronized long size() {
+    return _cache.size();
+  }
+
+  @VisibleForTesting
+  synchronized long sizeInBytes() {
+    return _sizeInBytes;
+  }
+
+  @VisibleForTesting
+  synchronized boolean contains(String key) {
+    return _cache.containsKey(key);
+  }
+
+  /**
+   * Index buffer backed by a file in the cache directory. The index is closed once it is evicted and no longer read.
+   */
+  public static final class CachedIndex {
+    private final File _file;
+    private final PinotDataBuffer _buffer;
+    private final long _sizeInBytes;
+    private volatile boolean _evicted;
+    // Set on each read and cleared by the eviction, racy updates are fine as it only affects the eviction order
+    private boolean _recentlyUsed;
+
+    private CachedIndex(File file, PinotDataBuffer buffer, long sizeInBytes) {
+      _file = file;
+      _buffer = buffer;
+      _sizeInBytes = sizeInBytes;
+    }
+
+    /**
+     * Returns the buffer of the index, which can only be read while the index is protected by the read slot of the
+     * current thread.
+     */
+    public PinotDataBuffer getBuffer() {
+      return _buffer;
+    }
+
+    private void close() {
+      try {
+        _buffer.close();
+      } catch (IOException e) {
+        LOGGER.warn("Caught exception while closing buffer of cached index: {}", _file, e);
+      }
+      FileUtils.deleteQuietly(_file);
+    }
+  }
+
+  /**
+   * Per-thread slot holding the cached index being read by the thread, which prevents the index from being closed if
+   * it gets evicted during the read. A thread can only read one cached index at a time.
+   */
+  static final class ReadSlot {
+    private volatile CachedIndex _cachedIndex;
+
+    private ReadSlot() {
+    }
+
+    /**
+     * Returns the read slot of the current thread.
+     */
+    static ReadSlot get() {
+      return READ_SLOT.get();
+    }
+
+    /**
+     * Protects the given index for a read by the current thread, which must be followed by {@link #clear()}. Returns
+     * {@code false} if the index has been evicted, in which case it should be acquired again through the cache.
+     */
+    boolean protect(CachedIndex cachedIndex) {
+      // Publish the index before checking whether it is evicted, while the eviction marks the index as evicted before
+      // checking the read slots, so that either the read sees the eviction, or the eviction sees the read
+      _cachedIndex = cachedIndex;
+      if (cachedIndex._evicted) {
+        _cachedIndex = null;
+        return false;
+      }
+      cachedIndex._recentlyUsed = true;
+      return true;
+    }
+
+    void clear() {
+      _cachedIndex = null;
+    }
+
+    private static boolean isProtected(CachedIndex cachedIndex) {
+      Iterator<WeakReference<ReadSlot>> iterator = READ_SLOTS.iterator();
+      while (iterator.hasNext()) {
+        ReadSlot readSlot = iterator.next().get();
+        if (readSlot == null) {
+          // The thread has terminated
+          iterator.remove();
+        } else if (readSlot._cachedIndex == cachedIndex) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Fetches the content of an index into the given local file.
+   */
+  public interface Fetcher {
+    void fetch(File destFile)
+        throws Exception;
+  }
+
+  /**
+   * Loads the buffer of an index from the given local file.
+   */
+  public interface Loader {
+    PinotDataBuffer load(File file)
+        throws IOException;
+  }
+}
@@ -0,0 +1,563 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.store;
+
+import com.google.common.base.Preconditions;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.pinot.common.utils.URIUtils;
+import org.apache.pinot.segment.spi.V1Constants;
+import org.apache.pinot.segment.spi.creator.SegmentVersion;
+import org.apache.pinot.segment.spi.index.IndexType;
+import org.apache.pinot.segment.spi.index.metadata.SegmentMetadataImpl;
+import org.apache.pinot.segment.spi.memory.DataBuffer;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+import org.apache.pinot.segment.spi.store.SegmentDirectory;
+import org.apache.pinot.segment.spi.store.SegmentDirectoryPaths;
+import org.apache.pinot.spi.filesystem.PinotFS;
+import org.apache.pinot.spi.utils.ReadMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Read-only {@link SegmentDirectory} for a V3 segment kept (untarred) in the deep store, which only keeps the segment
+ * metadata on local disk and fetches the index buffers from the deep store on first access.
+ *
+ * <p>On load, only the metadata files (metadata.properties, creation.meta and index_map) are downloaded into the local
+ * directory. Each index buffer (forward index, dictionary, inverted index etc.) is a contiguous range of the
+ * columns.psf file in the deep store as described by the index_map. The buffers handed out to the index readers are
+ * lazy: the index is fetched with a ranged read through {@link PinotFS} into the shared {@link DeepStoreIndexCache} the
+ * first time the buffer is read, then mapped (or loaded on heap) from the cached file. Each read protects the cached
+ * index only for its duration (see {@link DeepStoreIndexCache.ReadSlot}), so that the indexes not being read can be
+ * evicted while the segment is loaded, and are fetched again on the next read. Buffers escaping the reads (see {@link
+ * PinotDataBuffer#toDirectByteBuffer}) are copied out of the cached index, so that no index is pinned.
+ *
+ * <p>Indexes stored outside columns.psf (text, vector and star-tree indexes) are not served by this directory, and the
+ * segment can not be pre-processed or modified, so {@link #createWriter()} is not supported.
+ */
+public class DeepStoreSegmentDirectory extends SegmentDirectory {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DeepStoreSegmentDirectory.class);
+  private static final String[] METADATA_FILE_NAMES = {
+      V1Constants.MetadataKeys.METADATA_FILE_NAME, V1Constants.SEGMENT_CREATION_META, V1Constants.INDEX_MAP_FILE_NAME
+  };
+
+  private final File _indexDir;
+  private final URI _remoteDir;
+  private final PinotFS _pinotFS;
+  private final DeepStoreIndexCache _indexCache;
+  private final ReadMode _readMode;
+  private final TreeMap<IndexKey, IndexEntry> _indexEntries;
+  private SegmentMetadataImpl _segmentMetadata;
+  private String _cacheKeyPrefix;
+  private String _tier;
+  private volatile boolean _closed;
+
+  /**
+   * @param indexDir local directory to keep the segment metadata, downloaded from the deep store if not present or
+   *                 stale
+   * @param remoteDir segment directory in the deep store, containing the V3 segment files (either directly or under the
+   *                  v3 sub-directory)
+   * @param pinotFS file system for the deep store
+   * @param indexCache local cache for the fetched index buffers
+   * @param readMode mmap vs heap mode for the cached index buffers
+   */
+  public DeepStoreSegmentDirectory(File indexDir, URI remoteDir, PinotFS pinotFS, DeepStoreIndexCache indexCache,
+      ReadMode readMode)
+      throws Exception {
+    Preconditions.checkNotNull(indexDir);
+    Preconditions.checkNotNull(remoteDir);
+    Preconditions.checkNotNull(pinotFS);
+    Preconditions.checkNotNull(indexCache);
+    Preconditions.checkNotNull(readMode);
+
+    _indexDir = indexDir;
+    _pinotFS = pinotFS;
+    _indexCache = indexCache;
+    _readMode = readMode;
+    URI v3RemoteDir = URIUtils.getUri(remoteDir.toString(), SegmentDirectoryPaths.V3_SUBDIRECTORY_NAME);
+    _remoteDir = pinotFS.exists(v3RemoteDir) ? v3RemoteDir : remoteDir;
+
+    downloadMetadata();
+    _segmentMetadata = new SegmentMetadataImpl(_indexDir);
+    Preconditions.checkState(_segmentMetadata.getVersion() == SegmentVersion.v3,
+        "Only V3 segments can be served from the deep store, got: %s for segment: %s", _segmentMetadata.getVersion(),
+        _segmentMetadata.getName());
+    _indexEntries = SingleFileIndexDirectory.loadIndexMap(_indexDir);
+    _cacheKeyPrefix = getCacheKeyPrefix(_segmentMetadata.getName(), _segmentMetadata.getCrc());
+  }
+
+  /**
+   * Returns the prefix of the cache keys of the indexes of the given segment, which can be used to invalidate them.
+   */
+  public static String getCacheKeyPrefix(String segmentName, String segmentCrc) {
+    return segmentName + "/" + segmentCrc + "/";
+  }
+
+  private void downloadMetadata()
+      throws Exception {
+    URI remoteMetadataFile = URIUtils.getUri(_remoteDir.toString(), V1Constants.MetadataKeys.METADATA_FILE_NAME);
+    File localMetadataFile = new File(_indexDir, V1Constants.MetadataKeys.METADATA_FILE_NAME);
+    if (localMetadataFile.exists() && hasAllMetadataFiles()) {
+      // Reuse the local metadata unless the segment has been replaced in the deep store
+      File remoteMetadataCopy = new File(_indexDir, V1Constants.MetadataKeys.METADATA_FILE_NAME + ".remote");
+      _pinotFS.copyToLocalFile(remoteMetadataFile, remoteMetadataCopy);
+      try {
+        if (FileUtils.contentEquals(localMetadataFile, remoteMetadataCopy)) {
+          return;
+        }
+      } finally {
+        FileUtils.deleteQuietly(remoteMetadataCopy);
+      }
+    }
+    LOGGER.info("Downloading segment metadata from: {} to: {}", _remoteDir, _indexDir);
+    FileUtils.deleteDirectory(_indexDir);
+    FileUtils.forceMkdir(_indexDir);
+    for (String fileName : METADATA_FILE_NAMES) {
+      _pinotFS.copyToLocalFile(URIUtils.getUri(_remoteDir.toString(), fileName), new File(_indexDir, fileName));
+    }
+  }
+
+  private boolean hasAllMetadataFiles() {
+    for (String fileName : METADATA_FILE_NAMES) {
+      if (!new File(_indexDir, fileName).exists()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public URI getIndexDir() {
+    return _indexDir.toURI();
+  }
+
+  /**
+   * Returns the segment directory in the deep store.
+   */
+  public URI getRemoteDir() {
+    return _remoteDir;
+  }
+
+  @Override
+  public SegmentMetadataImpl getSegmentMetadata() {
+    return _segmentMetadata;
+  }
+
+  @Override
+  public void reloadMetadata()
+      throws Exception {
+    _segmentMetadata = new SegmentMetadataImpl(_indexDir);
+    _cacheKeyPrefix = getCacheKeyPrefix(_segmentMetadata.getName(), _segmentMetadata.getCrc());
+  }
+
+  @Override
+  public Path getPath() {
+    return _indexDir.toPath();
+  }
+
+  /**
+   * Returns the size of the local metadata, as the index buffers are owned by the shared cache.
+   */
+  @Override
+  public long getDiskSizeBytes() {
+    return FileUtils.sizeOfDirectory(_indexDir);
+  }
+
+  @Override
+  public Set<String> getColumnsWithIndex(IndexType<?, ?, ?> type) {
+    Set<String> columns = new HashSet<>();
+    for (IndexKey indexKey : _indexEntries.keySet()) {
+      if (indexKey._type == type) {
+        columns.add(indexKey._name);
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * Downloads the whole segment from the deep store.
+   */
+  @Override
+  public void copyTo(File dest)
+      throws Exception {
+    _pinotFS.copyToLocalFile(_remoteDir, new File(dest, SegmentDirectoryPaths.V3_SUBDIRECTORY_NAME));
+  }
+
+  @Nullable
+  @Override
+  public String getTier() {
+    return _tier;
+  }
+
+  @Override
+  public void setTier(@Nullable String tier) {
+    _tier = tier;
+  }
+
+  @Override
+  public Reader createReader() {
+    return new Reader();
+  }
+
+  @Override
+  public Writer createWriter() {
+    throw new UnsupportedOperationException("Segment directory backed by deep store is read-only: " + _remoteDir);
+  }
+
+  /**
+   * Returns a lazy buffer of the given index, which is fetched on first read.
+   */
+  private PinotDataBuffer getIndexBuffer(String column, IndexType<?, ?, ?> type) {
+    IndexKey key = new IndexKey(column, type);
+    IndexEntry entry = _indexEntries.get(key);
+    if (entry == null) {
+      throw new RuntimeException(
+          "Could not find index for column: " + column + ", type: " + type + ", segment: " + _remoteDir);
+    }
+    return new LazyIndexBuffer(entry, SingleFileIndexDirectory.MAGIC_MARKER_SIZE_BYTES, entry._size,
+        ByteOrder.BIG_ENDIAN);
+  }
+
+  /**
+   * Acquires the given index from the cache, fetching it from the deep store on cache miss. The returned index must be
+   * protected by the read slot of the current thread before being read.
+   */
+  private DeepStoreIndexCache.CachedIndex acquireIndex(IndexEntry entry) {
+    Preconditions.checkState(!_closed, "Segment directory: %s is closed", _remoteDir);
+    URI remoteIndexFile = URIUtils.getUri(_remoteDir.toString(), V1Constants.INDEX_FILE_NAME);
+    try {
+      return _indexCache.acquire(_cacheKeyPrefix + entry._key, entry._size,
+          destFile -> fetchIndex(entry, remoteIndexFile, destFile),
+          file -> loadIndexBuffer(entry, remoteIndexFile, file));
+    } catch (IOException e) {
+      throw new RuntimeException("Caught exception while fetching index: " + entry + " of segment: " + _remoteDir, e);
+    }
+  }
+
+  private PinotDataBuffer loadIndexBuffer(IndexEntry entry, URI remoteIndexFile, File cachedFile)
+      throws IOException {
+    String context = allocationContext(cachedFile, entry._key.toString());
+    PinotDataBuffer buffer;
+    // Backward-compatible: index file is always big-endian
+    if (_readMode == ReadMode.heap) {
+      buffer = PinotDataBuffer.loadFile(cachedFile, 0, entry._size, ByteOrder.BIG_ENDIAN, context);
+    } else {
+      buffer = PinotDataBuffer.mapFile(cachedFile, true, 0, entry._size, ByteOrder.BIG_ENDIAN, context);
+    }
+    if (buffer.getLong(0) != SingleFileIndexDirectory.MAGIC_MARKER) {
+      buffer.close();
+      throw new IOException("Inconsistent data read for index: " + entry + " from: " + remoteIndexFile);
+    }
+    return buffer;
+  }
+
+  private void fetchIndex(IndexEntry entry, URI remoteIndexFile, File destFile)
+      throws IOException {
+    LOGGER.debug("Fetching index: {} from: {}", entry, remoteIndexFile);
+    try (InputStream inputStream = _pinotFS.open(remoteIndexFile, entry._startOffset, entry._size);
+        OutputStream outputStream = Files.newOutputStream(destFile.toPath())) {
+      long numBytesCopied = IOUtils.copyLarge(inputStream, outputStream);
+      if (numBytesCopied != entry._size) {
+        throw new IOException(
+            "Failed to fetch index: " + entry + " from: " + remoteIndexFile + ", got: " + numBytesCopied + " bytes");
+      }
+    }
+  }
+
+  private String allocationContext(File file, String context) {
+    return getClass().getSimpleName() + "." + file + "." + context;
+  }
+
+  @Override
+  public void close() {
+    // The cached indexes are not pinned by this directory, and stay cached until they get evicted or invalidated
+    _closed = true;
+  }
+
+  @Override
+  public String toString() {
+    return _remoteDir.toString();
+  }
+
+  /**
+   * View of the range [start, end) of an index, which fetches the index from the cache on first read. Index readers
+   * usually create their buffers when the segment is loaded, so that the indexes are only fetched when they are
+   * actually read. Each read protects the cached index with the read slot of the reading thread for its duration only,
+   * which does not update any shared state, and fetches the index again if it has been evicted since the previous read.
+   * The buffer is owned by the segment directory, and closing it has no effect.
+   */
+  private class LazyIndexBuffer extends PinotDataBuffer {
+    private final IndexEntry _entry;
+    private final long _start;
+    private final long _end;
+    private final ByteOrder _byteOrder;
+    // View of the index acquired by the last read, which is read again by the next read unless it has been evicted
+    private volatile IndexView _indexView;
+
+    LazyIndexBuffer(IndexEntry entry, long start, long end, ByteOrder byteOrder) {
+      super(false);
+      _entry = entry;
+      _start = start;
+      _end = end;
+      _byteOrder = byteOrder;
+    }
+
+    /**
+     * Protects the cached index with the given read slot, and returns the view of the range, which can be read until
+     * the read slot is cleared.
+     */
+    private PinotDataBuffer protect(DeepStoreIndexCache.ReadSlot readSlot) {
+      IndexView indexView = _indexView;
+      if (indexView != null && readSlot.protect(indexView._cachedIndex)) {
+        return indexView._buffer;
+      }
+      while (true) {
+        DeepStoreIndexCache.CachedIndex cachedIndex = acquireIndex(_entry);
+        // The index might get evicted right after being acquired
+        if (readSlot.protect(cachedIndex)) {
+          indexView = new IndexView(cachedIndex, cachedIndex.getBuffer().view(_start, _end, _byteOrder));
+          _indexView = indexView;
+          return indexView._buffer;
+        }
+      }
+    }
+
+    @Override
+    public byte getByte(long offset) {
+      DeepStoreIndexCache.ReadSlot readSlot = DeepStoreIndexCache.ReadSlot.get();
+      try {
+        return protect(readSlot).getByte(offset);
+      } finally {
+        readSlot.clear();
+      }
+    }
+
+    @Override
+    public void putByte(long offset, byte value) {
+      throw new UnsupportedOperationException("Cached indexes are read-only");
+    }
+
+    @Override
+    public char getChar(long offset) {
+      DeepStoreIndexCache.ReadSlot readSlot = DeepStoreIndexCache.ReadSlot.get();
+      try {
+        return protect(readSlot).getChar(offset);
+      } finally {
+        readSlot.clear();
+      }
+    }
+
+    @Override
+    public void putChar(long offset, char value) {
+      throw new UnsupportedOperationException("Cached indexes are read-only");
+    }
+
+    @Override
+    public short getShort(long offset) {
+      DeepStoreIndexCache.ReadSlot readSlot = DeepStoreIndexCache.ReadSlot.get();
+      try {
+        return protect(readSlot).getShort(offset);
+      } finally {
+        readSlot.clear();
+      }
+    }
+
+    @Override
+    public void putShort(long offset, short value) {
+      throw new UnsupportedOperationException("Cached indexes are read-only");
+    }
+
+    @Override
+    public int getInt(long offset) {
+      DeepStoreIndexCache.ReadSlot readSlot = DeepStoreIndexCache.ReadSlot.get();
+      try {
+        return protect(readSlot).getInt(offset);
+      } finally {
+        readSlot.clear();
+      }
+    }
+
+    @Override
+    public void putInt(long offset, int value) {
+      throw new UnsupportedOperationException("Cached indexes are read-only");
+    }
+
+    @Override
+    public long getLong(long offset) {
+      DeepStoreIndexCache.ReadSlot readSlot = DeepStoreIndexCache.ReadSlot.get();
+      try {
+        return protect(readSlot).getLong(offset);
+      } finally {
+        readSlot.clear();
+      }
+    }
+
+    @Override
+    public void putLong(long offset, long value) {
+      throw new UnsupportedOperationException("Cached indexes are read-only");
+    }
+
+    @Override
+    public float getFloat(long offset) {
+      DeepStoreIndexCache.ReadSlot readSlot = DeepStoreIndexCache.ReadSlot.get();
+      try {
+        return protect(readSlot).getFloat(offset);
+      } finally {
+        readSlot.clear();
+      }
+    }
+
+    @Override
+    public void putFloat(long offset, float value) {
+      throw new UnsupportedOperationException("Cached indexes are read-only");
+    }
+
+    @Override
+    public double getDouble(long offset) {
+      DeepStoreIndexCache.ReadSlot readSlot = DeepStoreIndexCache.ReadSlot.get();
+      try {
+        return protect(readSlot).getDouble(offset);
+      } finally {
+        readSlot.clear();
+      }
+    }
+
+    @Override
+    public void putDouble(long offset, double value) {
+      throw new UnsupportedOperationException("Cached indexes are read-only");
+    }
+
+    @Override
+    public void copyTo(long offset, byte[] buffer, int destOffset, int size) {
+      DeepStoreIndexCache.ReadSlot readSlot = DeepStoreIndexCache.ReadSlot.get();
+      try {
+        protect(readSlot).copyTo(offset, buffer, destOffset, size);
+      } finally {
+        readSlot.clear();
+      }
+    }
+
+    @Override
+    public void copyTo(long offset, DataBuffer buffer, long destOffset, long size) {
+      DeepStoreIndexCache.ReadSlot readSlot = DeepStoreIndexCache.ReadSlot.get();
+      try {
+        protect(readSlot).copyTo(offset, buffer, destOffset, size);
+      } finally {
+        readSlot.clear();
+      }
+    }
+
+    @Override
+    public long size() {
+      return _end - _start;
+    }
+
+    @Override
+    public ByteOrder order() {
+      return _byteOrder;
+    }
+
+    @Override
+    public PinotDataBuffer view(long start, long end, ByteOrder byteOrder) {
+      Preconditions.checkArgument(start >= 0 && start <= end && end <= size(),
+          "Invalid view range: [%s, %s) of buffer with size: %s", start, end, size());
+      return new LazyIndexBuffer(_entry, _start + start, _start + end, byteOrder);
+    }
+
+    /**
+     * The returned buffer outlives the read (e.g. bitmaps backed by it), so the range is copied out of the cached index
+     * instead of pinning it, and the copy is released once the returned buffer is garbage collected.
+     */
+    @Override
+    public ByteBuffer toDirectByteBuffer(long offset, int size, ByteOrder byteOrder) {
+      Preconditions.checkArgument(offset >= 0 && offset + size <= size(),
+          "Invalid range: [%s, %s) of buffer with size: %s", offset, offset + size, size());
+      ByteBuffer copy = ByteBuffer.allocateDirect(size).order(byteOrder);
+      DeepStoreIndexCache.ReadSlot readSlot = DeepStoreIndexCache.ReadSlot.get();
+      try {
+        copy.put(protect(readSlot).toDirectByteBuffer(offset, size, byteOrder));
+      } finally {
+        readSlot.clear();
+      }
+      copy.flip();
+      return copy;
+    }
+
+    @Override
+    public void flush() {
+      // Cached indexes are read-only
+    }
+
+    @Override
+    public void release() {
+      // Cached indexes are owned by the cache
+    }
+  }
+
+  /**
+   * Cached index read by a {@link LazyIndexBuffer}, along with the view of the range of the buffer.
+   */
+  private static class IndexView {
+    final DeepStoreIndexCache.CachedIndex _cachedIndex;
+    final PinotDataBuffer _buffer;
+
+    IndexView(DeepStoreIndexCache.CachedIndex cachedIndex, PinotDataBuffer buffer) {
+      _cachedIndex = cachedIndex;
+      _buffer = buffer;
+    }
+  }
+
+  /***************************  SegmentDirectory Reader *********************/
+  public class Reader extends SegmentDirectory.Reader {
+
+    @Override
+    public PinotDataBuffer getIndexFor(String column, IndexType<?, ?, ?> type) {
+      return getIndexBuffer(column, type);
+    }
+
+    @Override
+    public boolean hasIndexFor(String column, IndexType<?, ?, ?> type) {
+      return _indexEntries.containsKey(new IndexKey(column, type));
+    }
+
+    @Override
+    public void close() {
+      // Buffers are owned by the segment directory
+    }
+
+    @Override
+    public String toString() {
+      return _remoteDir.toString();
+    }
+  }
+}
@@ -69,8 +69,8 @@ import org.slf4j.LoggerFactory;
 class SingleFileIndexDirectory extends ColumnIndexDirectory {
   private static final Logger LOGGER = LoggerFactory.getLogger(SingleFileIndexDirectory.class);
 
-  private static final long MAGIC_MARKER = 0xdeadbeefdeafbeadL;
-  private static final int MAGIC_MARKER_SIZE_BYTES = 8;
+  static final long MAGIC_MARKER = 0xdeadbeefdeafbeadL;
+  static final int MAGIC_MARKER_SIZE_BYTES = 8;
 
   // Max size of buffer we want to allocate
   // ByteBuffer limits the size to 2GB - (some platform dependent size)
@@ -215,17 +215,27 @@ class SingleFileIndexDirectory extends ColumnIndexDirectory {
 
   private void loadMap()
       throws ConfigurationException {
-    File mapFile = new File(_segmentDirectory, V1Constants.INDEX_MAP_FILE_NAME);
+    _columnEntries.putAll(loadIndexMap(_segmentDirectory));
+  }
+
+  /**
+   * Reads the index entries (start offset and size of each index in the index file, including the magic marker) from
+   * the index map file under the given segment directory.
+   */
+  static TreeMap<IndexKey, IndexEntry> loadIndexMap(File segmentDirectory)
+      throws ConfigurationException {
+    File mapFile = new File(segmentDirectory, V1Constants.INDEX_MAP_FILE_NAME);
 
     PropertiesConfiguration mapConfig = CommonsConfigurationUtils.fromFile(mapFile);
 
+    TreeMap<IndexKey, IndexEntry> columnEntries = new TreeMap<>();
     for (String key : CommonsConfigurationUtils.getKeys(mapConfig)) {
-      String[] parsedKeys = ColumnIndexUtils.parseIndexMapKeys(key, _segmentDirectory.getPath());
+      String[] parsedKeys = ColumnIndexUtils.parseIndexMapKeys(key, segmentDirectory.getPath());
       IndexKey indexKey = IndexKey.fromIndexName(parsedKeys[0], parsedKeys[1]);
-      IndexEntry entry = _columnEntries.get(indexKey);
+      IndexEntry entry = columnEntries.get(indexKey);
       if (entry == null) {
         entry = new IndexEntry(indexKey);
-        _columnEntries.put(indexKey, entry);
+        columnEntries.put(indexKey, entry);
       }
 
       if (parsedKeys[2].equals(ColumnIndexUtils.MAP_KEY_NAME_START_OFFSET)) {
@@ -234,19 +244,20 @@ class SingleFileIndexDirectory extends ColumnIndexDirectory {
         entry._size = mapConfig.getLong(key);
       } else {
         throw new ConfigurationException(
-            "Invalid map file key: " + key + ", segmentDirectory: " + _segmentDirectory.toString());
+            "Invalid map file key: " + key + ", segmentDirectory: " + segmentDirectory.toString());
       }
     }
 
     // validation
-    for (Map.Entry<IndexKey, IndexEntry> colIndexEntry : _columnEntries.entrySet()) {
+    for (Map.Entry<IndexKey, IndexEntry> colIndexEntry : columnEntries.entrySet()) {
       IndexEntry entry = colIndexEntry.getValue();
       if (entry._size < 0 || entry._startOffset < 0) {
         throw new ConfigurationException(
-            "Invalid map entry for key: " + colIndexEntry.getKey().toString() + ", segment: " + _segmentDirectory
+            "Invalid map entry for key: " + colIndexEntry.getKey().toString() + ", segment: " + segmentDirectory
                 .toString());
       }
     }
+    return columnEntries;
   }
 
   private void mapBufferEntries()
@@ -0,0 +1,720 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.helix.HelixManager;
+import org.apache.pinot.common.metrics.ServerGauge;
+import org.apache.pinot.common.metrics.ServerMeter;
+import org.apache.pinot.segment.local.data.manager.TableDataManager;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentImpl;
+import org.apache.pinot.segment.local.segment.index.loader.IndexLoadingConfig;
+import org.apache.pinot.segment.local.segment.readers.LazyRow;
+import org.apache.pinot.segment.local.utils.HashUtils;
+import org.apache.pinot.segment.local.utils.OffHeapHashedKeyMap;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.MutableSegment;
+import org.apache.pinot.segment.spi.V1Constants;
+import org.apache.pinot.segment.spi.index.mutable.ThreadSafeMutableRoaringBitmap;
+import org.apache.pinot.spi.data.FieldSpec;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+
+/**
+ * Implementation of {@link PartitionUpsertMetadataManager} that keeps the primary key to record location map in an
+ * {@link OffHeapHashedKeyMap} instead of a heap {@link ConcurrentHashMap}.
+ *
+ * <p>Each primary key is hashed into 16 bytes (see {@link HashUtils#hashPrimaryKeyToFixedWidthBytes}), and the record
+ * location is packed as (segment id, doc id, comparison value). Segments are referenced by an int id assigned by this
+ * manager, and the comparison value is stored as an order-preserving long, so only a single numeric (INT, LONG, FLOAT,
+ * DOUBLE, TIMESTAMP) comparison column is supported. Ids of removed segments are never reused, and entries still
+ * pointing to a removed segment are treated as absent and cleaned up lazily.
+ *
+ * <p>When {@link #ENABLE_KEY_MAP_SNAPSHOT_KEY} is set (requires snapshot to be enabled), the primary keys of the
+ * immutable segments are also persisted into an {@link UpsertKeyMapSnapshot} after taking the validDocIds snapshots.
+ * When preloading segments, a segment whose CRC and validDocIds snapshot match the key map snapshot gets its primary
+ * keys restored from the memory-mapped snapshot, and only the other segments are replayed from their columns.
+ * Persisting the key map rewrites all the primary keys of the partition, so it is taken at most once every
+ * {@link #KEY_MAP_SNAPSHOT_MIN_INTERVAL_MS_KEY} (30 minutes by default) instead of on every validDocIds snapshot. A
+ * longer interval reduces the write amplification, but the segments whose validDocIds changed since the last key map
+ * snapshot do not match it anymore, and are replayed from their columns on restart.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+@ThreadSafe
+public class OffHeapPartitionUpsertMetadataManager extends BasePartitionUpsertMetadataManager {
+  public static final String NUM_SHARDS_KEY = "offHeapNumShards";
+  // Expected number of primary keys, used to size the key map upfront
+  public static final String INITIAL_CAPACITY_KEY = "offHeapInitialCapacity";
+  public static final String ENABLE_KEY_MAP_SNAPSHOT_KEY = "enableKeyMapSnapshot";
+  public static final String KEY_MAP_SNAPSHOT_MIN_INTERVAL_MS_KEY = "keyMapSnapshotMinIntervalMs";
+  public static final long DEFAULT_KEY_MAP_SNAPSHOT_MIN_INTERVAL_MS = 30 * 60 * 1000L;
+
+  // Used to initialize a reference to previous row for merging in partial upsert
+  private final LazyRow _reusePreviousRow = new LazyRow();
+  private final Map<String, Object> _reuseMergeResultHolder = new HashMap<>();
+
+  private final DataType _comparisonStoredType;
+  @VisibleForTesting
+  final OffHeapHashedKeyMap _primaryKeyToRecordLocationMap;
+
+  // Segment id is assigned under _segmentIdLock. The id to segment array is published through the volatile field, and
+  // reads of the array elements are always ordered after the writes via the shard monitors of the off-heap map.
+  private final Object _segmentIdLock = new Object();
+  private final Map<IndexSegment, Integer> _segmentToIdMap = new ConcurrentHashMap<>();
+  private volatile IndexSegment[] _idToSegment = new IndexSegment[16];
+  private int _nextSegmentId = OffHeapHashedKeyMap.EMPTY_SEGMENT_ID + 1;
+
+  private final boolean _enableKeyMapSnapshot;
+  private final long _keyMapSnapshotMinIntervalMs;
+  private long _lastKeyMapSnapshotTimeMs = Long.MIN_VALUE;
+  // Only set while preloading segments
+  private volatile UpsertKeyMapSnapshot _keyMapSnapshot;
+
+  public OffHeapPartitionUpsertMetadataManager(String tableNameWithType, int partitionId, UpsertContext context) {
+    super(tableNameWithType, partitionId, context);
+    Preconditions.checkState(_comparisonColumns.size() == 1,
+        "Off-heap upsert metadata manager does not support multiple comparison columns for table: %s",
+        tableNameWithType);
+    FieldSpec comparisonFieldSpec = context.getSchema().getFieldSpecFor(_comparisonColumns.get(0));
+    Preconditions.checkState(comparisonFieldSpec != null, "Failed to find comparison column: %s in schema",
+        _comparisonColumns.get(0));
+    _comparisonStoredType = comparisonFieldSpec.getDataType().getStoredType();
+    Preconditions.checkState(_comparisonStoredType.isNumeric() && _comparisonStoredType != DataType.BIG_DECIMAL,
+        "Off-heap upsert metadata manager requires INT/LONG/FLOAT/DOUBLE comparison column, got: %s for table: %s",
+        _comparisonStoredType, tableNameWithType);
+
+    int numShards = OffHeapHashedKeyMap.DEFAULT_NUM_SHARDS;
+    int initialCapacityPerShard = OffHeapHashedKeyMap.DEFAULT_INITIAL_CAPACITY_PER_SHARD;
+    boolean enableKeyMapSnapshot = false;
+    long keyMapSnapshotMinIntervalMs = DEFAULT_KEY_MAP_SNAPSHOT_MIN_INTERVAL_MS;
+    Map<String, String> metadataManagerConfigs = context.getMetadataManagerConfigs();
+    if (metadataManagerConfigs != null) {
+      String numShardsStr = metadataManagerConfigs.get(NUM_SHARDS_KEY);
+      if (numShardsStr != null) {
+        numShards = Integer.parseInt(numShardsStr);
+      }
+      String initialCapacityStr = metadataManagerConfigs.get(INITIAL_CAPACITY_KEY);
+      if (initialCapacityStr != null) {
+        initialCapacityPerShard =
+            OffHeapHashedKeyMap.getInitialCapacityPerShard(Long.parseLong(initialCapacityStr), numShards);
+      }
+      enableKeyMapSnapshot = Boolean.parseBoolean(metadataManagerConfigs.get(ENABLE_KEY_MAP_SNAPSHOT_KEY));
+      String keyMapSnapshotMinIntervalMsStr = metadataManagerConfigs.get(KEY_MAP_SNAPSHOT_MIN_INTERVAL_MS_KEY);
+      if (keyMapSnapshotMinIntervalMsStr != null) {
+        keyMapSnapshotMinIntervalMs = Long.parseLong(keyMapSnapshotMinIntervalMsStr);
+      }
+    }
+    if (enableKeyMapSnapshot && !_enableSnapshot) {
+      _logger.warn("Key map snapshot requires snapshot to be enabled, disabling it");
+      enableKeyMapSnapshot = false;
+    }
+    _enableKeyMapSnapshot = enableKeyMapSnapshot;
+    _keyMapSnapshotMinIntervalMs = keyMapSnapshotMinIntervalMs;
+    _primaryKeyToRecordLocationMap = new OffHeapHashedKeyMap(numShards, initialCapacityPerShard,
+        "upsertPrimaryKeyMap: " + tableNameWithType + "-" + partitionId);
+  }
+
+  /**
+   * Encodes the comparison value into a long with the same order as {@link Comparable#compareTo(Object)}.
+   */
+  @VisibleForTesting
+  long encodeComparisonValue(Comparable comparisonValue) {
+    switch (_comparisonStoredType) {
+      case INT:
+      case LONG:
+        return ((Number) comparisonValue).longValue();
+      case FLOAT:
+        int intBits = Float.floatToIntBits(((Number) comparisonValue).floatValue());
+        return intBits ^ ((intBits >> 31) & Integer.MAX_VALUE);
+      case DOUBLE:
+        long longBits = Double.doubleToLongBits(((Number) comparisonValue).doubleValue());
+        return longBits ^ ((longBits >> 63) & Long.MAX_VALUE);
+      default:
+        throw new IllegalStateException("Unsupported comparison column type: " + _comparisonStoredType);
+    }
+  }
+
+  @VisibleForTesting
+  Comparable decodeComparisonValue(long encodedValue) {
+    switch (_comparisonStoredType) {
+      case INT:
+        return (int) encodedValue;
+      case LONG:
+        return encodedValue;
+      case FLOAT:
+        int intBits = (int) encodedValue;
+        return Float.intBitsToFloat(intBits ^ ((intBits >> 31) & Integer.MAX_VALUE));
+      case DOUBLE:
+        return Double.longBitsToDouble(encodedValue ^ ((encodedValue >> 63) & Long.MAX_VALUE));
+      default:
+        throw new IllegalStateException("Unsupported comparison column type: " + _comparisonStoredType);
+    }
+  }
+
+  private double toDouble(long encodedValue) {
+    return ((Number) decodeComparisonValue(encodedValue)).doubleValue();
+  }
+
+  private int getOrAssignSegmentId(IndexSegment segment) {
+    Integer segmentId = _segmentToIdMap.get(segment);
+    if (segmentId != null) {
+      return segmentId;
+    }
+    synchronized (_segmentIdLock) {
+      segmentId = _segmentToIdMap.get(segment);
+      if (segmentId != null) {
+        return segmentId;
+      }
+      Preconditions.checkState(_nextSegmentId < Integer.MAX_VALUE, "Ran out of segment ids");
+      int newSegmentId = _nextSegmentId++;
+      IndexSegment[] idToSegment = _idToSegment;
+      if (newSegmentId >= idToSegment.length) {
+        idToSegment = Arrays.copyOf(idToSegment, Math.max(newSegmentId + 1, idToSegment.length * 2));
+      }
+      idToSegment[newSegmentId] = segment;
+      _idToSegment = idToSegment;
+      _segmentToIdMap.put(segment, newSegmentId);
+      return newSegmentId;
+    }
+  }
+
+  /**
+   * Returns the segment for the given id, or {@code null} if the segment has been removed.
+   */
+  @Nullable
+  private IndexSegment getSegment(int segmentId) {
+    IndexSegment[] idToSegment = _idToSegment;
+    return segmentId < idToSegment.length ? idToSegment[segmentId] : null;
+  }
+
+  private void releaseSegmentId(IndexSegment segment) {
+    synchronized (_segmentIdLock) {
+      Integer segmentId = _segmentToIdMap.remove(segment);
+      if (segmentId != null) {
+        _idToSegment[segmentId] = null;
+      }
+    }
+  }
+
+  @Override
+  protected long getNumPrimaryKeys() {
+    return _primaryKeyToRecordLocationMap.size();
+  }
+
+  @Override
+  protected void updatePrimaryKeyGauge(long numPrimaryKeys) {
+    super.updatePrimaryKeyGauge(numPrimaryKeys);
+    _serverMetrics.setValueOfPartitionGauge(_tableNameWithType, _partitionId,
+        ServerGauge.UPSERT_PRIMARY_KEYS_OFF_HEAP_MEMORY_USED, _primaryKeyToRecordLocationMap.getOffHeapMemoryUsed());
+  }
+
+  @Override
+  protected void doAddOrReplaceSegment(ImmutableSegmentImpl segment, ThreadSafeMutableRoaringBitmap validDocIds,
+      @Nullable ThreadSafeMutableRoaringBitmap queryableDocIds, Iterator<RecordInfo> recordInfoIterator,
+      @Nullable IndexSegment oldSegment, @Nullable MutableRoaringBitmap validDocIdsForOldSegment) {
+    String segmentName = segment.getSegmentName();
+    segment.enableUpsert(this, validDocIds, queryableDocIds);
+    int segmentId = getOrAssignSegmentId(segment);
+
+    int numKeysInWrongSegment = 0;
+    while (recordInfoIterator.hasNext()) {
+      RecordInfo recordInfo = recordInfoIterator.next();
+      int newDocId = recordInfo.getDocId();
+      long newComparisonValue = encodeComparisonValue(recordInfo.getComparisonValue());
+      byte[] hashedKey = HashUtils.hashPrimaryKeyToFixedWidthBytes(recordInfo.getPrimaryKey(), _hashFunction);
+      long keyHigh = OffHeapHashedKeyMap.getKeyHigh(hashedKey);
+      long keyLow = OffHeapHashedKeyMap.getKeyLow(hashedKey);
+      OffHeapHashedKeyMap.Shard shard = _primaryKeyToRecordLocationMap.getShard(keyHigh, keyLow);
+      synchronized (shard) {
+        int slot = shard.find(keyHigh, keyLow);
+        IndexSegment currentSegment = slot >= 0 ? getSegment(shard.getSegmentId(slot)) : null;
+        if (currentSegment == null) {
+          // New primary key, or the location points to a removed segment
+          addDocId(segment, validDocIds, queryableDocIds, newDocId, recordInfo);
+          putOrSet(shard, slot, keyHigh, keyLow, segmentId, newDocId, newComparisonValue);
+          continue;
+        }
+
+        // Existing primary key
+        int currentDocId = shard.getDocId(slot);
+        int comparisonResult = Long.compare(newComparisonValue, shard.getValue(slot));
+
+        // The current record is in the same segment
+        // Update the record location when there is a tie to keep the newer record. Note that the record info iterator
+        // will return records with incremental doc ids.
+        if (currentSegment == segment) {
+          if (comparisonResult >= 0) {
+            replaceDocId(segment, validDocIds, queryableDocIds, currentDocId, newDocId, recordInfo);
+            shard.set(slot, segmentId, newDocId, newComparisonValue);
+          }
+          continue;
+        }
+
+        // The current record is in an old segment being replaced
+        // See ConcurrentMapPartitionUpsertMetadataManager for details on updating the old segment's bitmap.
+        if (currentSegment == oldSegment) {
+          if (comparisonResult >= 0) {
+            if (validDocIdsForOldSegment == null && oldSegment.getValidDocIds() != null) {
+              // Update the old segment's bitmap in place if a copy of the bitmap was not provided.
+              replaceDocId(segment, validDocIds, queryableDocIds, oldSegment, currentDocId, newDocId, recordInfo);
+            } else {
+              addDocId(segment, validDocIds, queryableDocIds, newDocId, recordInfo);
+              if (validDocIdsForOldSegment != null) {
+                validDocIdsForOldSegment.remove(currentDocId);
+              }
+            }
+            shard.set(slot, segmentId, newDocId, newComparisonValue);
+          }
+          continue;
+        }
+
+        // This should not happen because the previously replaced segment should have all keys removed. We still handle
+        // it here, and also track the number of keys not properly replaced previously.
+        String currentSegmentName = currentSegment.getSegmentName();
+        if (currentSegmentName.equals(segmentName)) {
+          numKeysInWrongSegment++;
+          if (comparisonResult >= 0) {
+            addDocId(segment, validDocIds, queryableDocIds, newDocId, recordInfo);
+            shard.set(slot, segmentId, newDocId, newComparisonValue);
+          }
+          continue;
+        }
+
+        // The current record is in a different segment
+        // Update the record location when getting a newer comparison value, or the value is the same as the current
+        // value, but the segment has a larger sequence number (the segment is newer than the current segment).
+        if (comparisonResult > 0 || (comparisonResult == 0 && shouldReplaceOnComparisonTie(segmentName,
+            currentSegmentName, getAuthoritativeCreationTime(segment), getAuthoritativeCreationTime(currentSegment)))) {
+          replaceDocId(segment, validDocIds, queryableDocIds, currentSegment, currentDocId, newDocId, recordInfo);
+          shard.set(slot, segmentId, newDocId, newComparisonValue);
+        }
+      }
+    }
+    if (numKeysInWrongSegment > 0) {
+      _logger.warn("Found {} primary keys in the wrong segment when adding segment: {}", numKeysInWrongSegment,
+          segmentName);
+      _serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.UPSERT_KEYS_IN_WRONG_SEGMENT,
+          numKeysInWrongSegment);
+    }
+  }
+
+  private static void putOrSet(OffHeapHashedKeyMap.Shard shard, int slot, long keyHigh, long keyLow, int segmentId,
+      int docId, long comparisonValue) {
+    if (slot >= 0) {
+      shard.set(slot, segmentId, docId, comparisonValue);
+    } else {
+      shard.put(keyHigh, keyLow, segmentId, docId, comparisonValue);
+    }
+  }
+
+  @Override
+  protected void addSegmentWithoutUpsert(ImmutableSegmentImpl segment, ThreadSafeMutableRoaringBitmap validDocIds,
+      @Nullable ThreadSafeMutableRoaringBitmap queryableDocIds, Iterator<RecordInfo> recordInfoIterator) {
+    segment.enableUpsert(this, validDocIds, queryableDocIds);
+    int segmentId = getOrAssignSegmentId(segment);
+    while (recordInfoIterator.hasNext()) {
+      RecordInfo recordInfo = recordInfoIterator.next();
+      int newDocId = recordInfo.getDocId();
+      long newComparisonValue = encodeComparisonValue(recordInfo.getComparisonValue());
+      addDocId(segment, validDocIds, queryableDocIds, newDocId, recordInfo);
+      byte[] hashedKey = HashUtils.hashPrimaryKeyToFixedWidthBytes(recordInfo.getPrimaryKey(), _hashFunction);
+      long keyHigh = OffHeapHashedKeyMap.getKeyHigh(hashedKey);
+      long keyLow = OffHeapHashedKeyMap.getKeyLow(hashedKey);
+      OffHeapHashedKeyMap.Shard shard = _primaryKeyToRecordLocationMap.getShard(keyHigh, keyLow);
+      synchronized (shard) {
+        shard.put(keyHigh, keyLow, segmentId, newDocId, newComparisonValue);
+      }
+    }
+  }
+
+  @Override
+  protected void removeSegment(IndexSegment segment, Iterator<PrimaryKey> primaryKeyIterator) {
+    Integer segmentId = _segmentToIdMap.get(segment);
+    if (segmentId == null) {
+      return;
+    }
+    while (primaryKeyIterator.hasNext()) {
+      byte[] hashedKey = HashUtils.hashPrimaryKeyToFixedWidthBytes(primaryKeyIterator.next(), _hashFunction);
+      long keyHigh = OffHeapHashedKeyMap.getKeyHigh(hashedKey);
+      long keyLow = OffHeapHashedKeyMap.getKeyLow(hashedKey);
+      OffHeapHashedKeyMap.Shard shard = _primaryKeyToRecordLocationMap.getShard(keyHigh, keyLow);
+      synchronized (shard) {
+        int slot = shard.find(keyHigh, keyLow);
+        if (slot >= 0 && shard.getSegmentId(slot) == segmentId) {
+          shard.remove(slot);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void removeSegment(IndexSegment segment) {
+    super.removeSegment(segment);
+    // Keys of a segment skipped for being out of metadata TTL are left in the map, and are treated as absent once the
+    // segment id is released. They are cleaned up when removing expired primary keys.
+    if (!_trackedSegments.contains(segment)) {
+      releaseSegmentId(segment);
+    }
+  }
+
+  @Override
+  public void replaceSegment(ImmutableSegment segment, @Nullable ThreadSafeMutableRoaringBitmap validDocIds,
+      @Nullable ThreadSafeMutableRoaringBitmap queryableDocIds, @Nullable Iterator<RecordInfo> recordInfoIterator,
+      IndexSegment oldSegment) {
+    super.replaceSegment(segment, validDocIds, queryableDocIds, recordInfoIterator, oldSegment);
+    releaseSegmentId(oldSegment);
+  }
+
+  @Override
+  public void doRemoveExpiredPrimaryKeys() {
+    int[] numMetadataTTLKeysRemoved = new int[1];
+    int[] numDeletedTTLKeysRemoved = new int[1];
+    int[] numTotalKeysMarkForDeletion = new int[1];
+    int[] numDeletedKeysWithinTTLWindow = new int[1];
+    int[] numStaleKeysRemoved = new int[1];
+    double largestSeenComparisonValue = _largestSeenComparisonValue.get();
+    double metadataTTLKeysThreshold =
+        _metadataTTL > 0 ? largestSeenComparisonValue - _metadataTTL : Double.NEGATIVE_INFINITY;
+    double deletedKeysThreshold =
+        _deletedKeysTTL > 0 ? largestSeenComparisonValue - _deletedKeysTTL : Double.NEGATIVE_INFINITY;
+    OffHeapHashedKeyMap.EntryVisitor visitor = (keyHigh, keyLow, segmentId, docId, value) -> {
+      IndexSegment segment = getSegment(segmentId);
+      if (segment == null) {
+        numStaleKeysRemoved[0]++;
+        return true;
+      }
+      double comparisonValue = toDouble(value);
+      if (_metadataTTL > 0 && comparisonValue < metadataTTLKeysThreshold) {
+        numMetadataTTLKeysRemoved[0]++;
+        return true;
+      }
+      if (_deletedKeysTTL > 0) {
+        ThreadSafeMutableRoaringBitmap currentQueryableDocIds = segment.getQueryableDocIds();
+        // if key not part of queryable doc id, it means it is deleted
+        if (currentQueryableDocIds != null && !currentQueryableDocIds.contains(docId)) {
+          numTotalKeysMarkForDeletion[0]++;
+          if (comparisonValue >= deletedKeysThreshold) {
+            // If key is within the TTL window, do not remove it from the primary key map
+            numDeletedKeysWithinTTLWindow[0]++;
+          } else {
+            removeDocId(segment, docId);
+            numDeletedTTLKeysRemoved[0]++;
+            return true;
+          }
+        }
+      }
+      return false;
+    };
+    int numShards = _primaryKeyToRecordLocationMap.getNumShards();
+    for (int i = 0; i < numShards; i++) {
+      OffHeapHashedKeyMap.Shard shard = _primaryKeyToRecordLocationMap.getShardAt(i);
+      synchronized (shard) {
+        shard.removeIf(visitor);
+      }
+    }
+
+    // Update metrics
+    updatePrimaryKeyGauge();
+    if (numStaleKeysRemoved[0] > 0) {
+      _logger.info("Deleted {} primary keys pointing to removed segments", numStaleKeysRemoved[0]);
+    }
+    int numMetadataTTLKeys = numMetadataTTLKeysRemoved[0];
+    if (numMetadataTTLKeys > 0) {
+      _logger.info("Deleted {} primary keys based on metadataTTL", numMetadataTTLKeys);
+      _serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.METADATA_TTL_PRIMARY_KEYS_REMOVED,
+          numMetadataTTLKeys);
+    }
+    int numDeletedTTLKeys = numDeletedTTLKeysRemoved[0];
+    if (numDeletedTTLKeys > 0) {
+      _logger.info("Deleted {} primary keys based on deletedKeysTTL", numDeletedTTLKeys);
+      _serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.DELETED_KEYS_TTL_PRIMARY_KEYS_REMOVED,
+          numDeletedTTLKeys);
+    }
+    int numTotalKeysMarkedForDeletion = numTotalKeysMarkForDeletion[0];
+    if (numTotalKeysMarkedForDeletion > 0) {
+      _serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.TOTAL_KEYS_MARKED_FOR_DELETION,
+          numTotalKeysMarkedForDeletion);
+    }
+    int numDeletedKeysWithinTTLWindowValue = numDeletedKeysWithinTTLWindow[0];
+    if (numDeletedKeysWithinTTLWindowValue > 0) {
+      _serverMetrics.addMeteredTableValue(_tableNameWithType, ServerMeter.DELETED_KEYS_WITHIN_TTL_WINDOW,
+          numDeletedKeysWithinTTLWindowValue);
+    }
+  }
+
+  @Override
+  protected boolean doAddRecord(MutableSegment segment, RecordInfo recordInfo) {
+    ThreadSafeMutableRoaringBitmap validDocIds = Objects.requireNonNull(segment.getValidDocIds());
+    ThreadSafeMutableRoaringBitmap queryableDocIds = segment.getQueryableDocIds();
+    int newDocId = recordInfo.getDocId();
+    Comparable newComparisonValue = recordInfo.getComparisonValue();
+    long encodedComparisonValue = encodeComparisonValue(newComparisonValue);
+
+    // When TTL is enabled, update largestSeenComparisonValue when adding new record
+    if (isTTLEnabled()) {
+      double comparisonValue = ((Number) newComparisonValue).doubleValue();
+      _largestSeenComparisonValue.getAndUpdate(v -> Math.max(v, comparisonValue));
+    }
+
+    int segmentId = getOrAssignSegmentId(segment);
+    byte[] hashedKey = HashUtils.hashPrimaryKeyToFixedWidthBytes(recordInfo.getPrimaryKey(), _hashFunction);
+    long keyHigh = OffHeapHashedKeyMap.getKeyHigh(hashedKey);
+    long keyLow = OffHeapHashedKeyMap.getKeyLow(hashedKey);
+    OffHeapHashedKeyMap.Shard shard = _primaryKeyToRecordLocationMap.getShard(keyHigh, keyLow);
+    boolean isOutOfOrderRecord = false;
+    synchronized (shard) {
+      int slot = shard.find(keyHigh, keyLow);
+      IndexSegment currentSegment = slot >= 0 ? getSegment(shard.getSegmentId(slot)) : null;
+      if (currentSegment != null) {
+        // Existing primary key
+
+        // Update the record location when the new comparison value is greater than or equal to the current value.
+        // Update the record location when there is a tie to keep the newer record.
+        long currentComparisonValue = shard.getValue(slot);
+        if (Long.compare(encodedComparisonValue, currentComparisonValue) >= 0) {
+          int currentDocId = shard.getDocId(slot);
+          if (segment == currentSegment) {
+            replaceDocId(segment, validDocIds, queryableDocIds, currentDocId, newDocId, recordInfo);
+          } else {
+            replaceDocId(segment, validDocIds, queryableDocIds, currentSegment, currentDocId, newDocId, recordInfo);
+          }
+          shard.set(slot, segmentId, newDocId, encodedComparisonValue);
+        } else {
+          // Out-of-order record
+          handleOutOfOrderEvent(decodeComparisonValue(currentComparisonValue), newComparisonValue);
+          isOutOfOrderRecord = true;
+        }
+      } else {
+        // New primary key
+        addDocId(segment, validDocIds, queryableDocIds, newDocId, recordInfo);
+        putOrSet(shard, slot, keyHigh, keyLow, segmentId, newDocId, encodedComparisonValue);
+      }
+    }
+
+    updatePrimaryKeyGauge();
+    return !isOutOfOrderRecord;
+  }
+
+  @Override
+  protected GenericRow doUpdateRecord(GenericRow record, RecordInfo recordInfo) {
+    assert _partialUpsertHandler != null;
+    byte[] hashedKey = HashUtils.hashPrimaryKeyToFixedWidthBytes(recordInfo.getPrimaryKey(), _hashFunction);
+    long keyHigh = OffHeapHashedKeyMap.getKeyHigh(hashedKey);
+    long keyLow = OffHeapHashedKeyMap.getKeyLow(hashedKey);
+    OffHeapHashedKeyMap.Shard shard = _primaryKeyToRecordLocationMap.getShard(keyHigh, keyLow);
+    synchronized (shard) {
+      int slot = shard.find(keyHigh, keyLow);
+      if (slot < 0) {
+        return record;
+      }
+      IndexSegment currentSegment = getSegment(shard.getSegmentId(slot));
+      // Read the previous record if the following conditions are met:
+      // - New record is not a DELETE record
+      // - New record is not out-of-order
+      // - Previous record is not deleted
+      if (currentSegment != null && !recordInfo.isDeleteRecord()
+          && Long.compare(encodeComparisonValue(recordInfo.getComparisonValue()), shard.getValue(slot)) >= 0) {
+        ThreadSafeMutableRoaringBitmap currentQueryableDocIds = currentSegment.getQueryableDocIds();
+        int currentDocId = shard.getDocId(slot);
+        if (currentQueryableDocIds == null || currentQueryableDocIds.contains(currentDocId)) {
+          _reusePreviousRow.init(currentSegment, currentDocId);
+          _partialUpsertHandler.merge(_reusePreviousRow, record, _reuseMergeResultHolder);
+          _reuseMergeResultHolder.clear();
+        }
+      }
+    }
+    return record;
+  }
+
+  @VisibleForTesting
+  File getKeyMapSnapshotFile() {
+    return new File(_tableIndexDir, V1Constants.UPSERT_KEY_MAP_SNAPSHOT_TABLE_PARTITION + _partitionId);
+  }
+
+  @Override
+  protected void doTakeSnapshot() {
+    super.doTakeSnapshot();
+    if (!_enableKeyMapSnapshot) {
+      return;
+    }
+    long currentTimeMs = System.currentTimeMillis();
+    if (_lastKeyMapSnapshotTimeMs != Long.MIN_VALUE
+        && currentTimeMs - _lastKeyMapSnapshotTimeMs < _keyMapSnapshotMinIntervalMs) {
+      return;
+    }
+    // Only persist the keys of the immutable segments. Keys of the consuming segment are recovered by re-consuming.
+    IndexSegment[] segments = _idToSegment.clone();
+    for (int i = 0; i < segments.length; i++) {
+      IndexSegment segment = segments[i];
+      if (!(segment instanceof ImmutableSegmentImpl) || !_trackedSegments.contains(segment)) {
+        segments[i] = null;
+      }
+    }
+    File keyMapSnapshotFile = getKeyMapSnapshotFile();
+    try {
+      long numPrimaryKeys = UpsertKeyMapSnapshot.persist(keyMapSnapshotFile, _primaryKeyToRecordLocationMap, segments);
+      _lastKeyMapSnapshotTimeMs = currentTimeMs;
+      _logger.info("Persisted key map snapshot with {} primary keys in {}ms", numPrimaryKeys,
+          System.currentTimeMillis() - currentTimeMs);
+    } catch (Exception e) {
+      _logger.warn("Caught exception while persisting key map snapshot to file: {}, skipping", keyMapSnapshotFile, e);
+    }
+  }
+
+  @Override
+  protected void doPreloadSegments(TableDataManager tableDataManager, IndexLoadingConfig indexLoadingConfig,
+      HelixManager helixManager, ExecutorService segmentPreloadExecutor)
+      throws Exception {
+    File keyMapSnapshotFile = getKeyMapSnapshotFile();
+    if (_enableKeyMapSnapshot && keyMapSnapshotFile.exists()) {
+      try {
+        _keyMapSnapshot = UpsertKeyMapSnapshot.load(keyMapSnapshotFile);
+        _logger.info("Loaded key map snapshot with {} segments from file: {}", _keyMapSnapshot.getNumSegments(),
+            keyMapSnapshotFile);
+      } catch (Exception e) {
+        _logger.warn("Caught exception while loading key map snapshot from file: {}, skipping", keyMapSnapshotFile, e);
+      }
+    }
+    try {
+      super.doPreloadSegments(tableDataManager, indexLoadingConfig, helixManager, segmentPreloadExecutor);
+    } finally {
+      UpsertKeyMapSnapshot keyMapSnapshot = _keyMapSnapshot;
+      if (keyMapSnapshot != null) {
+        _keyMapSnapshot = null;
+        keyMapSnapshot.close();
+      }
+    }
+  }
+
+  @Override
+  protected void doPreloadSegment(ImmutableSegmentImpl segment) {
+    UpsertKeyMapSnapshot keyMapSnapshot = _keyMapSnapshot;
+    if (keyMapSnapshot == null || !restoreSegmentFromKeyMapSnapshot(keyMapSnapshot, segment)) {
+      super.doPreloadSegment(segment);
+    }
+  }
+
+  /**
+   * Restores the primary keys of the segment from the key map snapshot. Returns {@code false} if the segment cannot be
+   * restored from the snapshot, in which case it should be preloaded from its columns.
+   */
+  @VisibleForTesting
+  boolean restoreSegmentFromKeyMapSnapshot(UpsertKeyMapSnapshot keyMapSnapshot, ImmutableSegmentImpl segment) {
+    String segmentName = segment.getSegmentName();
+    UpsertKeyMapSnapshot.SegmentEntries segmentEntries = keyMapSnapshot.getSegmentEntries(segmentName);
+    if (segmentEntries == null) {
+      _logger.info("Segment: {} is not in the key map snapshot", segmentName);
+      return false;
+    }
+    if (!segmentEntries.getCrc().equals(segment.getSegmentMetadata().getCrc())) {
+      _logger.info("Segment: {} has changed since the key map snapshot", segmentName);
+      return false;
+    }
+    if (isTTLEnabled()) {
+      double maxComparisonValue = getMaxComparisonValue(segment);
+      _largestSeenComparisonValue.getAndUpdate(v -> Math.max(v, maxComparisonValue));
+      if (isOutOfMetadataTTL(maxComparisonValue)) {
+        return false;
+      }
+    }
+    MutableRoaringBitmap validDocIdsSnapshot = segment.loadValidDocIdsFromSnapshot();
+    if (validDocIdsSnapshot == null) {
+      return false;
+    }
+
+    // The keys in the key map snapshot must match the validDocIds snapshot, which can be taken at a different time
+    // (e.g. when the segment lock could not be acquired while taking the snapshot). With TTL enabled, expired keys are
+    // removed from the key map but not from the validDocIds.
+    long startTimeMs = System.currentTimeMillis();
+    int numEntries = segmentEntries.getNumEntries();
+    MutableRoaringBitmap snapshotDocIds = new MutableRoaringBitmap();
+    for (int i = 0; i < numEntries; i++) {
+      snapshotDocIds.add(keyMapSnapshot.getDocId(segmentEntries, i));
+    }
+    boolean matched = isTTLEnabled() ? MutableRoaringBitmap.andNotCardinality(snapshotDocIds, validDocIdsSnapshot) == 0
+        : snapshotDocIds.equals(validDocIdsSnapshot);
+    if (snapshotDocIds.getCardinality() != numEntries || !matched) {
+      _logger.info("Key map snapshot does not match validDocIds snapshot for segment: {}", segmentName);
+      return false;
+    }
+
+    MutableRoaringBitmap queryableDocIds = getQueryableDocIds(segment, validDocIdsSnapshot);
+    segment.enableUpsert(this, new ThreadSafeMutableRoaringBitmap(validDocIdsSnapshot),
+        queryableDocIds != null ? new ThreadSafeMutableRoaringBitmap(queryableDocIds) : null);
+    int segmentId = getOrAssignSegmentId(segment);
+    for (int i = 0; i < numEntries; i++) {
+      long keyHigh = keyMapSnapshot.getKeyHigh(segmentEntries, i);
+      long keyLow = keyMapSnapshot.getKeyLow(segmentEntries, i);
+      OffHeapHashedKeyMap.Shard shard = _primaryKeyToRecordLocationMap.getShard(keyHigh, keyLow);
+      synchronized (shard) {
+        shard.put(keyHigh, keyLow, segmentId, keyMapSnapshot.getDocId(segmentEntries, i),
+            keyMapSnapshot.getComparisonValue(segmentEntries, i));
+      }
+    }
+
+    // Update metrics
+    long numPrimaryKeys = getNumPrimaryKeys();
+    updatePrimaryKeyGauge(numPrimaryKeys);
+    _logger.info("Restored {} primary keys of segment: {} from key map snapshot in {}ms, current primary key count: {}",
+        numEntries, segmentName, System.currentTimeMillis() - startTimeMs, numPrimaryKeys);
+    return true;
+  }
+
+  @VisibleForTesting
+  @Nullable
+  ConcurrentMapPartitionUpsertMetadataManager.RecordLocation getRecordLocation(PrimaryKey primaryKey) {
+    byte[] hashedKey = HashUtils.hashPrimaryKeyToFixedWidthBytes(primaryKey, _hashFunction);
+    long keyHigh = OffHeapHashedKeyMap.getKeyHigh(hashedKey);
+    long keyLow = OffHeapHashedKeyMap.getKeyLow(hashedKey);
+    OffHeapHashedKeyMap.Shard shard = _primaryKeyToRecordLocationMap.getShard(keyHigh, keyLow);
+    synchronized (shard) {
+      int slot = shard.find(keyHigh, keyLow);
+      if (slot < 0) {
+        return null;
+      }
+      IndexSegment segment = getSegment(shard.getSegmentId(slot));
+      return segment != null ? new ConcurrentMapPartitionUpsertMetadataManager.RecordLocation(segment,
+          shard.getDocId(slot), decodeComparisonValue(shard.getValue(slot))) : null;
+    }
+  }
+
+  @Override
+  protected void doClose()
+      throws IOException {
+    _primaryKeyToRecordLocationMap.close();
+    _segmentToIdMap.clear();
+    _idToSegment = new IndexSegment[0];
+  }
+}
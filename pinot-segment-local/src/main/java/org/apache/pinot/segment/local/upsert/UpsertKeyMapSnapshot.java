@@ -0,0 +1,286 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import com.google.common.base.Preconditions;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.utils.HashUtil;
+import org.apache.pinot.segment.local.utils.OffHeapHashedKeyMap;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+
+
+/**
+ * On-disk snapshot of the primary key map of the {@link OffHeapPartitionUpsertMetadataManager}. The snapshot is
+ * memory-mapped when preloading segments, so that the primary keys of a segment can be restored without reading its
+ * primary key and comparison columns.
+ *
+ * <p>File layout (big-endian):
+ * <pre>
+ *   | magic (int) | version (int) | numSegments (int) |
+ *   | numSegments x (segmentName (length-prefixed UTF-8) | crc (length-prefixed UTF-8) | numEntries (int)) |
+ *   | entries grouped by segment in the same order, each as (keyHigh (long) | keyLow (long) | docId (int) |
+ *     comparisonValue (long)) |
+ * </pre>
+ */
+public class UpsertKeyMapSnapshot implements Closeable {
+  public static final int MAGIC_MARKER = 0x55504B4D;
+  public static final int VERSION = 1;
+  public static final int ENTRY_SIZE = 3 * Long.BYTES + Integer.BYTES;
+
+  private static final int KEY_HIGH_OFFSET = 0;
+  private static final int KEY_LOW_OFFSET = 8;
+  private static final int DOC_ID_OFFSET = 16;
+  private static final int VALUE_OFFSET = 20;
+
+  private final PinotDataBuffer _buffer;
+  private final Map<String, SegmentEntries> _segmentEntriesMap;
+
+  private UpsertKeyMapSnapshot(PinotDataBuffer buffer, Map<String, SegmentEntries> segmentEntriesMap) {
+    _buffer = buffer;
+    _segmentEntriesMap = segmentEntriesMap;
+  }
+
+  /**
+   * Memory-maps the snapshot file and validates its header.
+   */
+  public static UpsertKeyMapSnapshot load(File file)
+      throws IOException {
+    PinotDataBuffer buffer =
+        PinotDataBuffer.mapFile(file, true, 0, file.length(), ByteOrder.BIG_ENDIAN, "upsertKeyMapSnapshot: " + file);
+    try {
+      long fileSize = buffer.size();
+      Preconditions.checkState(fileSize >= 3 * Integer.BYTES, "Invalid key map snapshot size: %s", fileSize);
+      Preconditions.checkState(buffer.getInt(0) == MAGIC_MARKER, "Invalid magic marker in key map snapshot");
+      int version = buffer.getInt(4);
+      Preconditions.checkState(version == VERSION, "Unsupported key map snapshot version: %s", version);
+      int numSegments = buffer.getInt(8);
+      long offset = 12;
+      String[] segmentNames = new String[numSegments];
+      String[] crcs = new String[numSegments];
+      int[] numEntries = new int[numSegments];
+      for (int i = 0; i < numSegments; i++) {
+        segmentNames[i] = readString(buffer, offset);
+        offset += Integer.BYTES + buffer.getInt(offset);
+        crcs[i] = readString(buffer, offset);
+        offset += Integer.BYTES + buffer.getInt(offset);
+        numEntries[i] = buffer.getInt(offset);
+        offset += Integer.BYTES;
+      }
+      Map<String, SegmentEntries> segmentEntriesMap = new HashMap<>(HashUtil.getHashMapCapacity(numSegments));
+      for (int i = 0; i < numSegments; i++) {
+        segmentEntriesMap.put(segmentNames[i], new SegmentEntries(crcs[i], offset, numEntries[i]));
+        offset += (long) numEntries[i] * ENTRY_SIZE;
+      }
+      Preconditions.checkState(offset == fileSize, "Key map snapshot size mismatch, expected: %s, actual: %s", offset,
+          fileSize);
+      return new UpsertKeyMapSnapshot(buffer, segmentEntriesMap);
+    } catch (Exception e) {
+      buffer.close();
+      throw e;
+    }
+  }
+
+  private static String readString(PinotDataBuffer buffer, long offset) {
+    int length = buffer.getInt(offset);
+    Preconditions.checkState(length >= 0 && offset + Integer.BYTES + length <= buffer.size(),
+        "Invalid string length: %s in key map snapshot", length);
+    byte[] bytes = new byte[length];
+    buffer.copyTo(offset + Integer.BYTES, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Persists the entries of the given key map that belong to the given segments (indexed by segment id, {@code null}
+   * for segments to skip) into the snapshot file. The snapshot is written into a temporary file first, then atomically
+   * moved to the destination so that a partially written snapshot is never picked up.
+   *
+   * <p>The key map should not be modified while taking the snapshot. Modifications are detected on a best effort basis
+   * and fail the snapshot.
+   *
+   * @return Number of entries persisted
+   */
+  public static long persist(File file, OffHeapHashedKeyMap keyMap, IndexSegment[] segments)
+      throws IOException {
+    int numSegmentIds = segments.length;
+    int[] numEntries = new int[numSegmentIds];
+    OffHeapHashedKeyMap.EntryVisitor counter = (keyHigh, keyLow, segmentId, docId, value) -> {
+      if (segmentId < numSegmentIds && segments[segmentId] != null) {
+        numEntries[segmentId]++;
+      }
+      return false;
+    };
+    int numShards = keyMap.getNumShards();
+    for (int i = 0; i < numShards; i++) {
+      OffHeapHashedKeyMap.Shard shard = keyMap.getShardAt(i);
+      synchronized (shard) {
+        shard.forEach(counter);
+      }
+    }
+
+    // Write the header and compute the start offset of the entries for each segment
+    ByteArrayOutputStream headerOutputStream = new ByteArrayOutputStream();
+    int numSegments = 0;
+    long totalNumEntries = 0;
+    try (DataOutputStream dataOutputStream = new DataOutputStream(headerOutputStream)) {
+      for (IndexSegment segment : segments) {
+        if (segment != null) {
+          numSegments++;
+        }
+      }
+      dataOutputStream.writeInt(MAGIC_MARKER);
+      dataOutputStream.writeInt(VERSION);
+      dataOutputStream.writeInt(numSegments);
+      for (int segmentId = 0; segmentId < numSegmentIds; segmentId++) {
+        IndexSegment segment = segments[segmentId];
+        if (segment != null) {
+          writeString(dataOutputStream, segment.getSegmentName());
+          writeString(dataOutputStream, segment.getSegmentMetadata().getCrc());
+          dataOutputStream.writeInt(numEntries[segmentId]);
+          totalNumEntries += numEntries[segmentId];
+        }
+      }
+    }
+    byte[] header = headerOutputStream.toByteArray();
+    long[] nextOffsets = new long[numSegmentIds];
+    long[] endOffsets = new long[numSegmentIds];
+    long offset = header.length;
+    for (int segmentId = 0; segmentId < numSegmentIds; segmentId++) {
+      if (segments[segmentId] != null) {
+        nextOffsets[segmentId] = offset;
+        offset += (long) numEntries[segmentId] * ENTRY_SIZE;
+        endOffsets[segmentId] = offset;
+      }
+    }
+
+    File tempFile = new File(file.getPath() + ".tmp");
+    FileUtils.deleteQuietly(tempFile);
+    try (PinotDataBuffer buffer = PinotDataBuffer.mapFile(tempFile, false, 0, offset, ByteOrder.BIG_ENDIAN,
+        "upsertKeyMapSnapshot: " + tempFile)) {
+      buffer.readFrom(0, header);
+      OffHeapHashedKeyMap.EntryVisitor writer = (keyHigh, keyLow, segmentId, docId, value) -> {
+        if (segmentId < numSegmentIds && segments[segmentId] != null) {
+          long entryOffset = nextOffsets[segmentId];
+          Preconditions.checkState(entryOffset < endOffsets[segmentId],
+              "Primary key map got modified while taking snapshot");
+          buffer.putLong(entryOffset + KEY_HIGH_OFFSET, keyHigh);
+          buffer.putLong(entryOffset + KEY_LOW_OFFSET, keyLow);
+          buffer.putInt(entryOffset + DOC_ID_OFFSET, docId);
+          buffer.putLong(entryOffset + VALUE_OFFSET, value);
+          nextOffsets[segmentId] = entryOffset + ENTRY_SIZE;
+        }
+        return false;
+      };
+      for (int i = 0; i < numShards; i++) {
+        OffHeapHashedKeyMap.Shard shard = keyMap.getShardAt(i);
+        synchronized (shard) {
+          shard.forEach(writer);
+        }
+      }
+      for (int segmentId = 0; segmentId < numSegmentIds; segmentId++) {
+        Preconditions.checkState(nextOffsets[segmentId] == endOffsets[segmentId],
+            "Primary key map got modified while taking snapshot");
+      }
+      buffer.flush();
+    } catch (Exception e) {
+      FileUtils.deleteQuietly(tempFile);
+      throw e;
+    }
+    Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    return totalNumEntries;
+  }
+
+  private static void writeString(DataOutputStream dataOutputStream, String value)
+      throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    dataOutputStream.writeInt(bytes.length);
+    dataOutputStream.write(bytes);
+  }
+
+  public int getNumSegments() {
+    return _segmentEntriesMap.size();
+  }
+
+  /**
+   * Returns the entries for the given segment, or {@code null} if the segment is not in the snapshot.
+   */
+  @Nullable
+  public SegmentEntries getSegmentEntries(String segmentName) {
+    return _segmentEntriesMap.get(segmentName);
+  }
+
+  public long getKeyHigh(SegmentEntries segmentEntries, int index) {
+    return _buffer.getLong(segmentEntries.getOffset(index) + KEY_HIGH_OFFSET);
+  }
+
+  public long getKeyLow(SegmentEntries segmentEntries, int index) {
+    return _buffer.getLong(segmentEntries.getOffset(index) + KEY_LOW_OFFSET);
+  }
+
+  public int getDocId(SegmentEntries segmentEntries, int index) {
+    return _buffer.getInt(segmentEntries.getOffset(index) + DOC_ID_OFFSET);
+  }
+
+  public long getComparisonValue(SegmentEntries segmentEntries, int index) {
+    return _buffer.getLong(segmentEntries.getOffset(index) + VALUE_OFFSET);
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    _buffer.close();
+  }
+
+  public static class SegmentEntries {
+    private final String _crc;
+    private final long _startOffset;
+    private final int _numEntries;
+
+    private SegmentEntries(String crc, long startOffset, int numEntries) {
+      _crc = crc;
+      _startOffset = startOffset;
+      _numEntries = numEntries;
+    }
+
+    public String getCrc() {
+      return _crc;
+    }
+
+    public int getNumEntries() {
+      return _numEntries;
+    }
+
+    private long getOffset(int index) {
+      return _startOffset + (long) index * ENTRY_SIZE;
+    }
+  }
+}
@@ -77,4 +77,24 @@ public class HashUtils {
         throw new IllegalArgumentException(String.format("Unrecognized hash function %s", hashFunction));
     }
   }
+
+  /**
+   * Returns a 16-byte representation of the primary key for the fixed-width (off-heap) metadata maps. MD5 and MURMUR3
+   * already produce 16 bytes. For NONE and UUID, the key bytes are used as is when they are exactly 16 bytes (e.g. a
+   * single UUID column), and are folded with murmur3_128 otherwise.
+   */
+  public static byte[] hashPrimaryKeyToFixedWidthBytes(PrimaryKey primaryKey, HashFunction hashFunction) {
+    switch (hashFunction) {
+      case MD5:
+        return hashMD5(primaryKey.asBytes());
+      case MURMUR3:
+        return hashMurmur3(primaryKey.asBytes());
+      case NONE:
+      case UUID:
+        byte[] bytes = hashFunction == HashFunction.UUID ? hashUUID(primaryKey) : primaryKey.asBytes();
+        return bytes.length == 16 ? bytes : hashMurmur3(bytes);
+      default:
+        throw new IllegalArgumentException(String.format("Unrecognized hash function %s", hashFunction));
+    }
+  }
 }
@@ -0,0 +1,410 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.utils;
+
+import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.HashCommon;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+
+
+/**
+ * Off-heap open-addressing hash map from fixed-width 128-bit hashed keys to a packed (segmentId, docId, value) tuple.
+ *
+ * <p>Each entry takes {@link #ENTRY_SIZE} bytes of direct memory: 2 longs for the key, 2 ints for the segment id and
+ * doc id, and 1 long for the value (e.g. an order-preserving encoding of the comparison value). Segment id
+ * {@link #EMPTY_SEGMENT_ID} is reserved to mark empty slots, so callers must assign positive segment ids.
+ *
+ * <p>The map is split into a fixed number of {@link Shard}s (selected by the key hash), each backed by its own buffer
+ * using linear probing with backward-shift deletion (no tombstones). Shards start small (see
+ * {@link #getInitialCapacityPerShard(long, int)} to size them from the expected number of keys) and grow independently
+ * by doubling when reaching the load factor, which bounds the pause of a single resize. The map itself does not lock,
+ * and callers are expected to synchronize on the {@link Shard} returned by {@link #getShard(long, long)} (or an
+ * equivalent lock) around read-modify-write sequences.
+ */
+public class OffHeapHashedKeyMap implements Closeable {
+  public static final int ENTRY_SIZE = 32;
+  public static final int EMPTY_SEGMENT_ID = 0;
+  public static final int DEFAULT_NUM_SHARDS = 16;
+  // 2KB per shard, so that idle maps (e.g. partitions without any key yet) do not hold much direct memory
+  public static final int DEFAULT_INITIAL_CAPACITY_PER_SHARD = 1 << 6;
+  public static final float LOAD_FACTOR = 0.75f;
+
+  private static final int KEY_HIGH_OFFSET = 0;
+  private static final int KEY_LOW_OFFSET = 8;
+  private static final int SEGMENT_ID_OFFSET = 16;
+  private static final int DOC_ID_OFFSET = 20;
+  private static final int VALUE_OFFSET = 24;
+  private static final int MAX_CAPACITY_PER_SHARD = 1 << 30;
+  private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+  private final Shard[] _shards;
+  private final int _shardMask;
+  private final String _allocationContext;
+  private final AtomicLong _offHeapMemoryUsed = new AtomicLong();
+
+  public OffHeapHashedKeyMap(String allocationContext) {
+    this(DEFAULT_NUM_SHARDS, DEFAULT_INITIAL_CAPACITY_PER_SHARD, allocationContext);
+  }
+
+  public OffHeapHashedKeyMap(int numShards, int initialCapacityPerShard, String allocationContext) {
+    Preconditions.checkArgument(numShards > 0 && (numShards & (numShards - 1)) == 0,
+        "Number of shards must be a positive power of 2, got: %s", numShards);
+    Preconditions.checkArgument(initialCapacityPerShard > 0 && initialCapacityPerShard <= MAX_CAPACITY_PER_SHARD,
+        "Invalid initial capacity per shard: %s", initialCapacityPerShard);
+    _allocationContext = allocationContext;
+    int capacity = HashCommon.nextPowerOfTwo(initialCapacityPerShard);
+    _shards = new Shard[numShards];
+    for (int i = 0; i < numShards; i++) {
+      _shards[i] = new Shard(capacity);
+    }
+    _shardMask = numShards - 1;
+  }
+
+  /**
+   * Returns the initial capacity per shard to hold the expected number of keys without resizing.
+   */
+  public static int getInitialCapacityPerShard(long expectedNumKeys, int numShards) {
+    long expectedNumKeysPerShard = (expectedNumKeys + numShards - 1) / numShards;
+    return (int) Math.max(1, Math.min((long) Math.ceil(expectedNumKeysPerShard / (double) LOAD_FACTOR) + 1,
+        MAX_CAPACITY_PER_SHARD));
+  }
+
+  /**
+   * Returns the high 64 bits of a hashed key, which must be at least 16 bytes long.
+   */
+  public static long getKeyHigh(byte[] hashedKey) {
+    return (long) LONG_VIEW.get(hashedKey, 0);
+  }
+
+  /**
+   * Returns the low 64 bits of a hashed key, which must be at least 16 bytes long.
+   */
+  public static long getKeyLow(byte[] hashedKey) {
+    return (long) LONG_VIEW.get(hashedKey, 8);
+  }
+
+  private static long hash(long keyHigh, long keyLow) {
+    return HashCommon.mix(keyHigh ^ HashCommon.mix(keyLow));
+  }
+
+  public Shard getShard(long keyHigh, long keyLow) {
+    return _shards[(int) (hash(keyHigh, keyLow) >>> 32) & _shardMask];
+  }
+
+  /**
+   * Returns the index of the shard for the given key in maps with the given number of shards, i.e. the same key always
+   * falls into the shard with the same index in such maps.
+   */
+  public static int getShardIndex(long keyHigh, long keyLow, int numShards) {
+    return (int) (hash(keyHigh, keyLow) >>> 32) & (numShards - 1);
+  }
+
+  public int getNumShards() {
+    return _shards.length;
+  }
+
+  public Shard getShardAt(int index) {
+    return _shards[index];
+  }
+
+  /**
+   * Returns the number of entries in the map. The result is not a snapshot when there are concurrent updates.
+   */
+  public long size() {
+    long size = 0;
+    for (Shard shard : _shards) {
+      size += shard._size;
+    }
+    return size;
+  }
+
+  /**
+   * Returns the direct memory (in bytes) currently allocated by the map.
+   */
+  public long getOffHeapMemoryUsed() {
+    return _offHeapMemoryUsed.get();
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    for (Shard shard : _shards) {
+      synchronized (shard) {
+        shard.release();
+      }
+    }
+  }
+
+  /**
+   * Callback to visit entries within a shard. For {@link Shard#removeIf}, returns {@code true} if the entry should be
+   * removed.
+   */
+  public interface EntryVisitor {
+    boolean visit(long keyHigh, long keyLow, int segmentId, int docId, long value);
+  }
+
+  /**
+   * A single open-addressing table. Accesses must be guarded by the caller, typically by holding the monitor of the
+   * shard.
+   */
+  @NotThreadSafe
+  public class Shard {
+    private PinotDataBuffer _buffer;
+    private int _capacity;
+    private int _mask;
+    private int _size;
+    private int _maxSize;
+
+    private Shard(int capacity) {
+      allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+      _buffer = PinotDataBuffer.allocateDirect((long) capacity * ENTRY_SIZE, PinotDataBuffer.NATIVE_ORDER,
+          _allocationContext);
+      _offHeapMemoryUsed.addAndGet(_buffer.size());
+      // Content of direct buffers is not defined, so explicitly mark all the slots as empty
+      for (int i = 0; i < capacity; i++) {
+        _buffer.putInt(offset(i) + SEGMENT_ID_OFFSET, EMPTY_SEGMENT_ID);
+      }
+      _capacity = capacity;
+      _mask = capacity - 1;
+      _maxSize = (int) Math.min((long) (capacity * (double) LOAD_FACTOR), capacity - 1);
+    }
+
+    private long offset(int slot) {
+      return (long) slot * ENTRY_SIZE;
+    }
+
+    private int slotOf(long keyHigh, long keyLow) {
+      return (int) hash(keyHigh, keyLow) & _mask;
+    }
+
+    public int size() {
+      return _size;
+    }
+
+    public int capacity() {
+      return _capacity;
+    }
+
+    /**
+     * Returns the slot of the given key, or -1 if the key does not exist.
+     */
+    public int find(long keyHigh, long keyLow) {
+      int slot = slotOf(keyHigh, keyLow);
+      while (true) {
+        long offset = offset(slot);
+        if (_buffer.getInt(offset + SEGMENT_ID_OFFSET) == EMPTY_SEGMENT_ID) {
+          return -1;
+        }
+        if (_buffer.getLong(offset + KEY_LOW_OFFSET) == keyLow
+            && _buffer.getLong(offset + KEY_HIGH_OFFSET) == keyHigh) {
+          return slot;
+        }
+        slot = (slot + 1) & _mask;
+      }
+    }
+
+    public int getSegmentId(int slot) {
+      return _buffer.getInt(offset(slot) + SEGMENT_ID_OFFSET);
+    }
+
+    public int getDocId(int slot) {
+      return _buffer.getInt(offset(slot) + DOC_ID_OFFSET);
+    }
+
+    public long getValue(int slot) {
+      return _buffer.getLong(offset(slot) + VALUE_OFFSET);
+    }
+
+    /**
+     * Updates the entry at the given slot, which must be returned by {@link #find(long, long)} without any
+     * modification to the shard in between.
+     */
+    public void set(int slot, int segmentId, int docId, long value) {
+      Preconditions.checkArgument(segmentId != EMPTY_SEGMENT_ID, "Segment id: %s is reserved", EMPTY_SEGMENT_ID);
+      long offset = offset(slot);
+      _buffer.putInt(offset + SEGMENT_ID_OFFSET, segmentId);
+      _buffer.putInt(offset + DOC_ID_OFFSET, docId);
+      _buffer.putLong(offset + VALUE_OFFSET, value);
+    }
+
+    /**
+     * Inserts or updates the entry for the given key.
+     */
+    public void put(long keyHigh, long keyLow, int segmentId, int docId, long value) {
+      Preconditions.checkArgument(segmentId != EMPTY_SEGMENT_ID, "Segment id: %s is reserved", EMPTY_SEGMENT_ID);
+      int slot = slotOf(keyHigh, keyLow);
+      while (true) {
+        long offset = offset(slot);
+        if (_buffer.getInt(offset + SEGMENT_ID_OFFSET) == EMPTY_SEGMENT_ID) {
+          break;
+        }
+        if (_buffer.getLong(offset + KEY_LOW_OFFSET) == keyLow
+            && _buffer.getLong(offset + KEY_HIGH_OFFSET) == keyHigh) {
+          set(slot, segmentId, docId, value);
+          return;
+        }
+        slot = (slot + 1) & _mask;
+      }
+      if (_size >= _maxSize) {
+        grow();
+        insertNew(keyHigh, keyLow, segmentId, docId, value);
+      } else {
+        writeEntry(slot, keyHigh, keyLow, segmentId, docId, value);
+      }
+      _size++;
+    }
+
+    private void insertNew(long keyHigh, long keyLow, int segmentId, int docId, long value) {
+      int slot = slotOf(keyHigh, keyLow);
+      while (_buffer.getInt(offset(slot) + SEGMENT_ID_OFFSET) != EMPTY_SEGMENT_ID) {
+        slot = (slot + 1) & _mask;
+      }
+      writeEntry(slot, keyHigh, keyLow, segmentId, docId, value);
+    }
+
+    private void writeEntry(int slot, long keyHigh, long keyLow, int segmentId, int docId, long value) {
+      long offset = offset(slot);
+      _buffer.putLong(offset + KEY_HIGH_OFFSET, keyHigh);
+      _buffer.putLong(offset + KEY_LOW_OFFSET, keyLow);
+      _buffer.putInt(offset + SEGMENT_ID_OFFSET, segmentId);
+      _buffer.putInt(offset + DOC_ID_OFFSET, docId);
+      _buffer.putLong(offset + VALUE_OFFSET, value);
+    }
+
+    private void grow() {
+      Preconditions.checkState(_capacity < MAX_CAPACITY_PER_SHARD, "Cannot grow shard beyond capacity: %s",
+          MAX_CAPACITY_PER_SHARD);
+      PinotDataBuffer oldBuffer = _buffer;
+      int oldCapacity = _capacity;
+      allocate(oldCapacity << 1);
+      for (int i = 0; i < oldCapacity; i++) {
+        long offset = (long) i * ENTRY_SIZE;
+        int segmentId = oldBuffer.getInt(offset + SEGMENT_ID_OFFSET);
+        if (segmentId != EMPTY_SEGMENT_ID) {
+          insertNew(oldBuffer.getLong(offset + KEY_HIGH_OFFSET), oldBuffer.getLong(offset + KEY_LOW_OFFSET),
+              segmentId, oldBuffer.getInt(offset + DOC_ID_OFFSET), oldBuffer.getLong(offset + VALUE_OFFSET));
+        }
+      }
+      closeBuffer(oldBuffer);
+    }
+
+    /**
+     * Removes the entry at the given slot, and shifts the following entries in the same probe sequence backward so
+     * that no tombstone is needed.
+     */
+    public void remove(int slot) {
+      int hole = slot;
+      int next = (hole + 1) & _mask;
+      while (true) {
+        long nextOffset = offset(next);
+        if (_buffer.getInt(nextOffset + SEGMENT_ID_OFFSET) == EMPTY_SEGMENT_ID) {
+          break;
+        }
+        int home = slotOf(_buffer.getLong(nextOffset + KEY_HIGH_OFFSET), _buffer.getLong(nextOffset + KEY_LOW_OFFSET));
+        // Move the entry into the hole if its home slot is not within (hole, next] cyclically
+        if (((next - home) & _mask) >= ((next - hole) & _mask)) {
+          long holeOffset = offset(hole);
+          _buffer.putLong(holeOffset + KEY_HIGH_OFFSET, _buffer.getLong(nextOffset + KEY_HIGH_OFFSET));
+          _buffer.putLong(holeOffset + KEY_LOW_OFFSET, _buffer.getLong(nextOffset + KEY_LOW_OFFSET));
+          _buffer.putInt(holeOffset + SEGMENT_ID_OFFSET, _buffer.getInt(nextOffset + SEGMENT_ID_OFFSET));
+          _buffer.putInt(holeOffset + DOC_ID_OFFSET, _buffer.getInt(nextOffset + DOC_ID_OFFSET));
+          _buffer.putLong(holeOffset + VALUE_OFFSET, _buffer.getLong(nextOffset + VALUE_OFFSET));
+          hole = next;
+        }
+        next = (next + 1) & _mask;
+      }
+      _buffer.putInt(offset(hole) + SEGMENT_ID_OFFSET, EMPTY_SEGMENT_ID);
+      _size--;
+    }
+
+    /**
+     * Visits all the entries in the shard. The return value of the visitor is ignored.
+     */
+    public void forEach(EntryVisitor visitor) {
+      for (int slot = 0; slot < _capacity; slot++) {
+        long offset = offset(slot);
+        int segmentId = _buffer.getInt(offset + SEGMENT_ID_OFFSET);
+        if (segmentId != EMPTY_SEGMENT_ID) {
+          visitor.visit(_buffer.getLong(offset + KEY_HIGH_OFFSET), _buffer.getLong(offset + KEY_LOW_OFFSET), segmentId,
+              _buffer.getInt(offset + DOC_ID_OFFSET), _buffer.getLong(offset + VALUE_OFFSET));
+        }
+      }
+    }
+
+    /**
+     * Visits all the entries in the shard, and removes the ones the visitor returns {@code true} for. Each entry is
+     * visited exactly once even when entries are shifted by the removal.
+     */
+    public int removeIf(EntryVisitor visitor) {
+      if (_size == 0) {
+        return 0;
+      }
+      // Start right after an empty slot so that no probe sequence wraps around the starting point, and backward shifts
+      // can only move the entries already visited into the current slot.
+      int start = 0;
+      while (_buffer.getInt(offset(start) + SEGMENT_ID_OFFSET) != EMPTY_SEGMENT_ID) {
+        start++;
+      }
+      int numRemoved = 0;
+      for (int i = 1; i <= _capacity; i++) {
+        int slot = (start + i) & _mask;
+        while (true) {
+          long offset = offset(slot);
+          int segmentId = _buffer.getInt(offset + SEGMENT_ID_OFFSET);
+          if (segmentId == EMPTY_SEGMENT_ID || !visitor.visit(_buffer.getLong(offset + KEY_HIGH_OFFSET),
+              _buffer.getLong(offset + KEY_LOW_OFFSET), segmentId, _buffer.getInt(offset + DOC_ID_OFFSET),
+              _buffer.getLong(offset + VALUE_OFFSET))) {
+            break;
+          }
+          remove(slot);
+          numRemoved++;
+        }
+      }
+      return numRemoved;
+    }
+
+    private void release() {
+      if (_buffer != null) {
+        closeBuffer(_buffer);
+        _buffer = null;
+        _size = 0;
+        _capacity = 0;
+      }
+    }
+
+    private void closeBuffer(PinotDataBuffer buffer) {
+      _offHeapMemoryUsed.addAndGet(-buffer.size());
+      try {
+        buffer.close();
+      } catch (IOException e) {
+        throw new RuntimeException("Caught exception while releasing off-heap buffer for: " + _allocationContext, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,225 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.dedup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.pinot.segment.local.data.manager.TableDataManager;
+import org.apache.pinot.segment.local.segment.readers.PinotSegmentColumnReader;
+import org.apache.pinot.segment.local.segment.readers.PrimaryKeyReader;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.spi.config.table.HashFunction;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.data.Schema;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+
+public class OffHeapPartitionDedupMetadataManagerTest {
+  private static final File TEMP_DIR =
+      new File(FileUtils.getTempDirectory(), OffHeapPartitionDedupMetadataManagerTest.class.getSimpleName());
+  private static final int METADATA_TTL = 10000;
+  private static final String DEDUP_TIME_COLUMN_NAME = "dedupTimeColumn";
+  private DedupContext.Builder _dedupContextBuilder;
+
+  @BeforeMethod
+  public void setUpContextBuilder()
+      throws IOException {
+    FileUtils.forceMkdir(TEMP_DIR);
+    TableDataManager tableDataManager = mock(TableDataManager.class);
+    when(tableDataManager.getTableDataDir()).thenReturn(TEMP_DIR);
+    _dedupContextBuilder = new DedupContext.Builder()
+        .setTableConfig(mock(TableConfig.class))
+        .setSchema(mock(Schema.class))
+        .setTableDataManager(tableDataManager)
+        .setPrimaryKeyColumns(List.of("primaryKeyColumn"))
+        .setMetadataManagerConfigs(Map.of(OffHeapPartitionDedupMetadataManager.NUM_SHARDS_KEY, "4",
+            OffHeapPartitionDedupMetadataManager.INITIAL_CAPACITY_KEY, "16"));
+  }
+
+  @AfterMethod
+  public void cleanup() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+
+  @Test
+  public void testAddReplaceRemoveSegment()
+      throws IOException {
+    verifyAddReplaceRemoveSegment(HashFunction.NONE);
+    verifyAddReplaceRemoveSegment(HashFunction.MD5);
+    verifyAddReplaceRemoveSegment(HashFunction.MURMUR3);
+  }
+
+  private void verifyAddReplaceRemoveSegment(HashFunction hashFunction)
+      throws IOException {
+    _dedupContextBuilder.setHashFunction(hashFunction);
+    OffHeapPartitionDedupMetadataManager metadataManager =
+        new OffHeapPartitionDedupMetadataManager(DedupTestUtils.REALTIME_TABLE_NAME, 0, _dedupContextBuilder.build());
+
+    // Without metadata TTL, all the keys are kept in a single slice
+    DedupUtils.DedupRecordInfoReader dedupRecordInfoReader = generateDedupRecordInfoReader(10, 0);
+    IndexSegment segment1 = DedupTestUtils.mockSegment(1, 10);
+    metadataManager.doAddOrReplaceSegment(null, segment1,
+        DedupUtils.getDedupRecordInfoIterator(dedupRecordInfoReader, 10));
+    assertEquals(metadataManager.getNumPrimaryKeys(), 10);
+    assertEquals(metadataManager._slices.size(), 1);
+    verifyInMemoryState(metadataManager, 0, 10, segment1);
+
+    // Replace with a segment containing the same keys
+    IndexSegment segment2 = DedupTestUtils.mockSegment(2, 10);
+    metadataManager.doAddOrReplaceSegment(segment1, segment2,
+        DedupUtils.getDedupRecordInfoIterator(dedupRecordInfoReader, 10));
+    assertEquals(metadataManager.getNumPrimaryKeys(), 10);
+    verifyInMemoryState(metadataManager, 0, 10, segment2);
+
+    // Removing the replaced segment should not remove the keys
+    metadataManager.doRemoveSegment(segment1, DedupUtils.getDedupRecordInfoIterator(dedupRecordInfoReader, 10));
+    assertEquals(metadataManager.getNumPrimaryKeys(), 10);
+    verifyInMemoryState(metadataManager, 0, 10, segment2);
+
+    metadataManager.doRemoveSegment(segment2, DedupUtils.getDedupRecordInfoIterator(dedupRecordInfoReader, 10));
+    assertEquals(metadataManager.getNumPrimaryKeys(), 0);
+    assertNull(metadataManager.getSegmentAndTime(DedupTestUtils.getPrimaryKey(0)));
+
+    metadataManager.stop();
+    metadataManager.close();
+  }
+
+  @Test
+  public void testCheckRecordPresentOrUpdate()
+      throws IOException {
+    verifyCheckRecordPresentOrUpdate(HashFunction.NONE);
+    verifyCheckRecordPresentOrUpdate(HashFunction.MD5);
+    verifyCheckRecordPresentOrUpdate(HashFunction.MURMUR3);
+  }
+
+  private void verifyCheckRecordPresentOrUpdate(HashFunction hashFunction)
+      throws IOException {
+    _dedupContextBuilder.setHashFunction(hashFunction)
+        .setMetadataTTL(METADATA_TTL)
+        .setDedupTimeColumn(DEDUP_TIME_COLUMN_NAME);
+    OffHeapPartitionDedupMetadataManager metadataManager =
+        new OffHeapPartitionDedupMetadataManager(DedupTestUtils.REALTIME_TABLE_NAME, 0, _dedupContextBuilder.build());
+
+    IndexSegment segment = DedupTestUtils.mockSegment(1, 10);
+    DedupRecordInfo dedupRecordInfo = new DedupRecordInfo(DedupTestUtils.getPrimaryKey(0), 1000);
+    assertFalse(metadataManager.checkRecordPresentOrUpdate(dedupRecordInfo, segment));
+    assertTrue(metadataManager.checkRecordPresentOrUpdate(dedupRecordInfo, segment));
+    assertEquals(metadataManager.getSegmentAndTime(DedupTestUtils.getPrimaryKey(0)), Pair.of(segment, 1000.0));
+    assertEquals(metadataManager._largestSeenTime.get(), 1000);
+
+    // Move the largest seen time so that the existing key is out of TTL, then the key is treated as absent
+    assertFalse(metadataManager.checkRecordPresentOrUpdate(
+        new DedupRecordInfo(DedupTestUtils.getPrimaryKey(1), 20000), segment));
+    assertFalse(metadataManager.checkRecordPresentOrUpdate(
+        new DedupRecordInfo(DedupTestUtils.getPrimaryKey(0), 15000), segment));
+    assertEquals(metadataManager.getSegmentAndTime(DedupTestUtils.getPrimaryKey(0)), Pair.of(segment, 15000.0));
+    assertEquals(metadataManager.getNumPrimaryKeys(), 2);
+    // The gauge is maintained incrementally while ingesting records
+    assertEquals(metadataManager._numPrimaryKeys.get(), 2);
+    assertTrue(metadataManager.checkRecordPresentOrUpdate(
+        new DedupRecordInfo(DedupTestUtils.getPrimaryKey(0), 25000), segment));
+    assertEquals(metadataManager.getSegmentAndTime(DedupTestUtils.getPrimaryKey(0)), Pair.of(segment, 15000.0));
+    assertEquals(metadataManager._largestSeenTime.get(), 25000);
+
+    metadataManager.stop();
+    metadataManager.close();
+  }
+
+  @Test
+  public void testRemoveExpiredPrimaryKeys()
+      throws IOException {
+    verifyRemoveExpiredPrimaryKeys(HashFunction.NONE);
+    verifyRemoveExpiredPrimaryKeys(HashFunction.MD5);
+    verifyRemoveExpiredPrimaryKeys(HashFunction.MURMUR3);
+  }
+
+  private void verifyRemoveExpiredPrimaryKeys(HashFunction hashFunction)
+      throws IOException {
+    _dedupContextBuilder.setHashFunction(hashFunction)
+        .setMetadataTTL(METADATA_TTL)
+        .setDedupTimeColumn(DEDUP_TIME_COLUMN_NAME);
+    OffHeapPartitionDedupMetadataManager metadataManager =
+        new OffHeapPartitionDedupMetadataManager(DedupTestUtils.REALTIME_TABLE_NAME, 0, _dedupContextBuilder.build());
+
+    // Dedup time of key i is i * 1000, and each slice covers 2500 (TTL split into 4 slices)
+    DedupUtils.DedupRecordInfoReader dedupRecordInfoReader = generateDedupRecordInfoReader(20, 0);
+    IndexSegment segment = DedupTestUtils.mockSegment(1, 20);
+    Iterator<DedupRecordInfo> dedupRecordInfoIterator = DedupUtils.getDedupRecordInfoIterator(dedupRecordInfoReader,
+        20);
+    metadataManager.doAddOrReplaceSegment(null, segment, dedupRecordInfoIterator);
+    metadataManager._largestSeenTime.set(19000);
+    assertEquals(metadataManager.getNumPrimaryKeys(), 20);
+    assertEquals(metadataManager._slices.size(), 8);
+
+    // Slices [0, 2500), [2500, 5000) and [5000, 7500) are fully out of TTL (smallest time to keep is 9000)
+    metadataManager.removeExpiredPrimaryKeys();
+    assertEquals(metadataManager._slices.size(), 5);
+    assertEquals(metadataManager.getNumPrimaryKeys(), 12);
+    for (int i = 0; i < 8; i++) {
+      assertNull(metadataManager.getSegmentAndTime(DedupTestUtils.getPrimaryKey(i)));
+    }
+    verifyInMemoryState(metadataManager, 8, 12, segment);
+
+    // Key 8 is still kept in the partially expired slice, but is treated as absent
+    assertFalse(metadataManager.checkRecordPresentOrUpdate(
+        new DedupRecordInfo(DedupTestUtils.getPrimaryKey(8), 19000), segment));
+    assertTrue(metadataManager.checkRecordPresentOrUpdate(
+        new DedupRecordInfo(DedupTestUtils.getPrimaryKey(9), 19000), segment));
+    assertEquals(metadataManager.getSegmentAndTime(DedupTestUtils.getPrimaryKey(8)), Pair.of(segment, 19000.0));
+    assertEquals(metadataManager.getNumPrimaryKeys(), 12);
+
+    metadataManager.stop();
+    metadataManager.close();
+  }
+
+  private static void verifyInMemoryState(OffHeapPartitionDedupMetadataManager metadataManager, int startKey,
+      int numKeys, IndexSegment segment) {
+    for (int i = startKey; i < startKey + numKeys; i++) {
+      assertEquals(metadataManager.getSegmentAndTime(DedupTestUtils.getPrimaryKey(i)),
+          Pair.of(segment, (double) i * 1000));
+    }
+  }
+
+  private static DedupUtils.DedupRecordInfoReader generateDedupRecordInfoReader(int numberOfDocs,
+      int startPrimaryKeyValue) {
+    PrimaryKeyReader primaryKeyReader = mock(PrimaryKeyReader.class);
+    PinotSegmentColumnReader dedupTimeColumnReader = mock(PinotSegmentColumnReader.class);
+    for (int i = 0; i < numberOfDocs; i++) {
+      int primaryKeyValue = startPrimaryKeyValue + i;
+      when(primaryKeyReader.getPrimaryKey(i)).thenReturn(DedupTestUtils.getPrimaryKey(primaryKeyValue));
+      double time = primaryKeyValue * 1000;
+      when(dedupTimeColumnReader.getValue(i)).thenReturn(time);
+    }
+    return new DedupUtils.DedupRecordInfoReader(primaryKeyReader, dedupTimeColumnReader);
+  }
+}
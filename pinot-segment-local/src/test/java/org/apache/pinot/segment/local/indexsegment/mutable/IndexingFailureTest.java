@@ -134,4 +134,38 @@ public class IndexingFailureTest implements PinotBuffersAfterMethodCheckRule {
     verify(_serverMetrics, times(1)).addMeteredTableValue(matches("DICTIONARY-indexingError$"),
         eq(ServerMeter.INDEXING_FAILURES), eq(1L));
   }
+
+  @Test
+  public void testBatchIndexingFailures()
+      throws IOException {
+    GenericRow goodRow = new GenericRow();
+    goodRow.putValue(INT_COL, 0);
+    goodRow.putValue(STRING_COL, "a");
+    goodRow.putValue(JSON_COL, "{\"valid\": \"json\"}");
+    GenericRow badRow = new GenericRow();
+    badRow.putValue(INT_COL, 0);
+    badRow.putValue(STRING_COL, "b");
+    badRow.putValue(JSON_COL, "{\"truncatedJson...");
+    GenericRow nullStringRow = new GenericRow();
+    nullStringRow.putValue(INT_COL, 0);
+    nullStringRow.putValue(STRING_COL, null);
+    nullStringRow.addNullValueField(STRING_COL);
+    nullStringRow.putValue(JSON_COL, "{\"valid\": \"json\"}");
+    _mutableSegment.index(Arrays.asList(goodRow, badRow, nullStringRow),
+        new StreamMessageMetadata(System.currentTimeMillis(), new GenericRow()));
+
+    // Only the bad values should be skipped
+    assertEquals(_mutableSegment.getNumDocsIndexed(), 3);
+    assertEquals(_mutableSegment.getDataSource(INT_COL).getInvertedIndex().getDocIds(0),
+        ImmutableRoaringBitmap.bitmapOf(0, 1, 2));
+    assertEquals(_mutableSegment.getDataSource(STRING_COL).getInvertedIndex().getDocIds(1),
+        ImmutableRoaringBitmap.bitmapOf(1));
+    assertEquals(_mutableSegment.getDataSource(JSON_COL).getJsonIndex().getMatchingDocIds("valid = 'json'"),
+        ImmutableRoaringBitmap.bitmapOf(0, 2));
+    assertTrue(_mutableSegment.getDataSource(STRING_COL).getNullValueVector().isNull(2));
+    verify(_serverMetrics, times(1)).addMeteredTableValue(matches("-JSON-indexingError"),
+        eq(ServerMeter.INDEXING_FAILURES), eq(1L));
+    verify(_serverMetrics, times(1)).addMeteredTableValue(matches("DICTIONARY-indexingError$"),
+        eq(ServerMeter.INDEXING_FAILURES), eq(1L));
+  }
 }
@@ -0,0 +1,193 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.indexsegment.mutable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.apache.pinot.segment.local.PinotBuffersAfterMethodCheckRule;
+import org.apache.pinot.segment.spi.datasource.DataSource;
+import org.apache.pinot.segment.spi.datasource.DataSourceMetadata;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.stream.StreamMessageMetadata;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+
+/**
+ * Tests that indexing records in batches produces the same segment as indexing them one by one.
+ */
+public class MutableSegmentImplBatchIndexTest implements PinotBuffersAfterMethodCheckRule {
+  private static final String INT_COL = "intCol";
+  private static final String LONG_RAW_COL = "longRawCol";
+  private static final String STRING_COL = "stringCol";
+  private static final String DOUBLE_RAW_COL = "doubleRawCol";
+  private static final String MV_COL = "mvCol";
+  private static final Schema SCHEMA = new Schema.SchemaBuilder().setSchemaName("testTable")
+      .addSingleValueDimension(INT_COL, DataType.INT)
+      .addSingleValueDimension(LONG_RAW_COL, DataType.LONG)
+      .addSingleValueDimension(STRING_COL, DataType.STRING)
+      .addMetric(DOUBLE_RAW_COL, DataType.DOUBLE)
+      .addMultiValueDimension(MV_COL, DataType.STRING)
+      .build();
+  private static final int NUM_ROWS = 1000;
+  private static final long RANDOM_SEED = System.currentTimeMillis();
+
+  @Test
+  public void testBatchIndex()
+      throws Exception {
+    List<GenericRow> rows = generateRows();
+    MutableSegmentImpl expectedSegment = createMutableSegment();
+    MutableSegmentImpl actualSegment = createMutableSegment();
+    try {
+      for (GenericRow row : rows) {
+        expectedSegment.index(row, null);
+      }
+      Random random = new Random(RANDOM_SEED);
+      int numRowsIndexed = 0;
+      while (numRowsIndexed < NUM_ROWS) {
+        int batchSize = Math.min(random.nextInt(100), NUM_ROWS - numRowsIndexed);
+        long ingestionTimeMs = numRowsIndexed + batchSize;
+        assertTrue(actualSegment.index(rows.subList(numRowsIndexed, numRowsIndexed + batchSize),
+            new StreamMessageMetadata(ingestionTimeMs)));
+        numRowsIndexed += batchSize;
+        assertEquals(actualSegment.getNumDocsIndexed(), numRowsIndexed);
+      }
+
+      assertEquals(actualSegment.getNumDocsIndexed(), expectedSegment.getNumDocsIndexed());
+      assertEquals(actualSegment.getSegmentMetadata().getLatestIngestionTimestamp(), NUM_ROWS);
+      for (int docId = 0; docId < NUM_ROWS; docId++) {
+        assertEquals(actualSegment.getRecord(docId, new GenericRow()),
+            expectedSegment.getRecord(docId, new GenericRow()), "Seed: " + RANDOM_SEED);
+      }
+      for (String column : SCHEMA.getColumnNames()) {
+        DataSource expectedDataSource = expectedSegment.getDataSource(column);
+        DataSource actualDataSource = actualSegment.getDataSource(column);
+        DataSourceMetadata expectedMetadata = expectedDataSource.getDataSourceMetadata();
+        DataSourceMetadata actualMetadata = actualDataSource.getDataSourceMetadata();
+        assertEquals(actualMetadata.getMinValue(), expectedMetadata.getMinValue());
+        assertEquals(actualMetadata.getMaxValue(), expectedMetadata.getMaxValue());
+        assertEquals(actualMetadata.getNumValues(), expectedMetadata.getNumValues());
+        assertEquals(actualMetadata.getMaxNumValuesPerMVEntry(), expectedMetadata.getMaxNumValuesPerMVEntry());
+        assertEquals(actualDataSource.getNullValueVector().getNullBitmap(),
+            expectedDataSource.getNullValueVector().getNullBitmap());
+        if (expectedDataSource.getInvertedIndex() != null) {
+          int cardinality = expectedDataSource.getDictionary().length();
+          assertEquals(actualDataSource.getDictionary().length(), cardinality);
+          for (int dictId = 0; dictId < cardinality; dictId++) {
+            assertEquals(actualDataSource.getInvertedIndex().getDocIds(dictId),
+                expectedDataSource.getInvertedIndex().getDocIds(dictId));
+          }
+        }
+      }
+    } finally {
+      expectedSegment.destroy();
+      actualSegment.destroy();
+    }
+  }
+
+  @Test
+  public void testBatchIndexWithInvalidRawValue()
+      throws Exception {
+    String stringRawCol = "stringRawCol";
+    Schema schema = new Schema.SchemaBuilder().setSchemaName("testTable")
+        .addSingleValueDimension(INT_COL, DataType.INT)
+        .addSingleValueDimension(LONG_RAW_COL, DataType.LONG)
+        .addSingleValueDimension(stringRawCol, DataType.STRING)
+        .build();
+    MutableSegmentImpl mutableSegment =
+        MutableSegmentImplTestUtils.createMutableSegmentImpl(schema, Set.of(LONG_RAW_COL, stringRawCol), Set.of(),
+            Set.of(), false);
+    try {
+      int numRows = 10;
+      int invalidRowId = 4;
+      List<GenericRow> rows = new ArrayList<>(numRows);
+      for (int i = 0; i < numRows; i++) {
+        GenericRow row = new GenericRow();
+        row.putValue(INT_COL, i);
+        if (i == invalidRowId) {
+          // Values of a wrong type cannot be written to the raw forward indexes
+          row.putValue(LONG_RAW_COL, "invalid");
+          row.putValue(stringRawCol, i);
+        } else {
+          row.putValue(LONG_RAW_COL, (long) i);
+          row.putValue(stringRawCol, "s" + i);
+        }
+        rows.add(row);
+      }
+      assertTrue(mutableSegment.index(rows, null));
+      assertEquals(mutableSegment.getNumDocsIndexed(), numRows);
+
+      // Only the invalid values should be dropped (replaced with the default null value), and the values after them
+      // should still be aligned with the doc ids (var-byte forward index appends the values regardless of the doc id)
+      for (int docId = 0; docId < numRows; docId++) {
+        assertEquals(mutableSegment.getValue(docId, INT_COL), docId);
+        if (docId == invalidRowId) {
+          assertEquals(mutableSegment.getValue(docId, LONG_RAW_COL),
+              schema.getFieldSpecFor(LONG_RAW_COL).getDefaultNullValue());
+          assertEquals(mutableSegment.getValue(docId, stringRawCol),
+              schema.getFieldSpecFor(stringRawCol).getDefaultNullValue());
+        } else {
+          assertEquals(mutableSegment.getValue(docId, LONG_RAW_COL), (long) docId);
+          assertEquals(mutableSegment.getValue(docId, stringRawCol), "s" + docId);
+        }
+      }
+      DataSourceMetadata metadata = mutableSegment.getDataSource(LONG_RAW_COL).getDataSourceMetadata();
+      assertEquals(metadata.getMinValue(), Long.MIN_VALUE);
+      assertEquals(metadata.getMaxValue(), (long) (numRows - 1));
+    } finally {
+      mutableSegment.destroy();
+    }
+  }
+
+  private static MutableSegmentImpl createMutableSegment() {
+    return MutableSegmentImplTestUtils.createMutableSegmentImpl(SCHEMA, Set.of(LONG_RAW_COL, DOUBLE_RAW_COL), Set.of(),
+        Set.of(INT_COL, STRING_COL, MV_COL), false, true);
+  }
+
+  private static List<GenericRow> generateRows() {
+    Random random = new Random(RANDOM_SEED);
+    List<GenericRow> rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue(INT_COL, random.nextInt(100));
+      row.putValue(LONG_RAW_COL, random.nextLong());
+      if (random.nextInt(10) == 0) {
+        // Null value replaced with the default value
+        row.putDefaultNullValue(STRING_COL, "null");
+      } else {
+        row.putValue(STRING_COL, "s" + random.nextInt(200));
+      }
+      row.putValue(DOUBLE_RAW_COL, random.nextDouble());
+      int numValues = random.nextInt(5) + 1;
+      Object[] values = new Object[numValues];
+      for (int j = 0; j < numValues; j++) {
+        values[j] = "mv" + random.nextInt(50);
+      }
+      row.putValue(MV_COL, values);
+      rows.add(row);
+    }
+    return rows;
+  }
+}
@@ -24,6 +24,9 @@ import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
@@ -190,6 +193,94 @@ public class TestCompression {
     }
   }
 
+  @DataProvider
+  public Object[][] numericFormats() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int numValues = 1000;
+    long[] constant = new long[numValues];
+    Arrays.fill(constant, random.nextLong());
+    long[] timestamps = new long[numValues];
+    timestamps[0] = System.currentTimeMillis();
+    for (int i = 1; i < numValues; i++) {
+      timestamps[i] = timestamps[i - 1] + 1000 + random.nextInt(10);
+    }
+    long[] gauges = new long[numValues];
+    for (int i = 0; i < numValues; i++) {
+      gauges[i] = Double.doubleToRawLongBits(Math.round(random.nextDouble() * 100) / 4.0);
+    }
+    long[] randomValues = random.longs(numValues).toArray();
+    long[] extremes = {Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, 1, Long.MAX_VALUE, Long.MIN_VALUE};
+    long[][] inputs = {new long[0], {42}, {42, 7}, constant, timestamps, gauges, randomValues, extremes};
+
+    List<Object[]> formats = new ArrayList<>();
+    for (ChunkCompressionType type : ChunkCompressionType.values()) {
+      if (type.isFixedWidthValuesOnly()) {
+        for (long[] input : inputs) {
+          formats.add(new Object[]{type, Integer.BYTES, toBuffer(input, Integer.BYTES)});
+          formats.add(new Object[]{type, Long.BYTES, toBuffer(input, Long.BYTES)});
+        }
+      }
+    }
+    return formats.toArray(new Object[0][]);
+  }
+
+  @Test(dataProvider = "numericFormats")
+  public void testNumericRoundtrip(ChunkCompressionType type, int valueSize, ByteBuffer rawInput)
+      throws IOException {
+    try (ChunkCompressor compressor = ChunkCompressorFactory.getCompressorForFixedWidthValues(type, valueSize)) {
+      assertEquals(compressor.compressionType(), type);
+      ByteBuffer compressedOutput = ByteBuffer.allocateDirect(compressor.maxCompressedSize(rawInput.limit()));
+      compressor.compress(rawInput.slice(), compressedOutput);
+      try (ChunkDecompressor decompressor = ChunkCompressorFactory.getDecompressor(type)) {
+        int decompressedLength = decompressor.decompressedLength(compressedOutput);
+        assertEquals(decompressedLength, rawInput.limit());
+        ByteBuffer decompressedOutput = ByteBuffer.allocateDirect(decompressedLength);
+        assertEquals(decompressor.decompress(compressedOutput, decompressedOutput), decompressedLength);
+        assertEquals(decompressedOutput, rawInput);
+      }
+    }
+  }
+
+  @Test
+  public void testNumericCompressionRatio()
+      throws IOException {
+    int numValues = 1000;
+    long[] timestamps = new long[numValues];
+    for (int i = 0; i < numValues; i++) {
+      timestamps[i] = 1_700_000_000_000L + i * 1000L;
+    }
+    ByteBuffer rawInput = toBuffer(timestamps, Long.BYTES);
+    // Fixed interval timestamps have constant deltas, which should be encoded with 0 bits per value
+    try (ChunkCompressor compressor = ChunkCompressorFactory.getCompressorForFixedWidthValues(
+        ChunkCompressionType.DELTADELTA, Long.BYTES)) {
+      ByteBuffer compressedOutput = ByteBuffer.allocateDirect(compressor.maxCompressedSize(rawInput.limit()));
+      assertTrue(compressor.compress(rawInput.slice(), compressedOutput) < 32);
+    }
+    // Timestamps within 1M ms should be encoded with 20 bits per value
+    try (ChunkCompressor compressor = ChunkCompressorFactory.getCompressorForFixedWidthValues(ChunkCompressionType.FOR,
+        Long.BYTES)) {
+      ByteBuffer compressedOutput = ByteBuffer.allocateDirect(compressor.maxCompressedSize(rawInput.limit()));
+      assertTrue(compressor.compress(rawInput.slice(), compressedOutput) < numValues * 20 / Byte.SIZE + 32);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNumericCompressorRequiresValueSize() {
+    ChunkCompressorFactory.getCompressor(ChunkCompressionType.DELTA);
+  }
+
+  private static ByteBuffer toBuffer(long[] values, int valueSize) {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(values.length * valueSize);
+    for (long value : values) {
+      if (valueSize == Integer.BYTES) {
+        buffer.putInt((int) value);
+      } else {
+        buffer.putLong(value);
+      }
+    }
+    return buffer.flip();
+  }
+
   private static void roundtrip(ChunkCompressor compressor, ByteBuffer rawInput)
       throws IOException {
     ByteBuffer compressedOutput = ByteBuffer.allocateDirect(compressor.maxCompressedSize(rawInput.limit()));
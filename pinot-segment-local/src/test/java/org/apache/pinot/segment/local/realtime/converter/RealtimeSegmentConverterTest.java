@@ -55,6 +55,7 @@ import org.apache.pinot.segment.spi.index.StandardIndexes;
 import org.apache.pinot.segment.spi.index.TextIndexConfig;
 import org.apache.pinot.segment.spi.index.column.ColumnIndexContainer;
 import org.apache.pinot.segment.spi.index.metadata.SegmentMetadataImpl;
+import org.apache.pinot.segment.spi.index.reader.InvertedIndexReader;
 import org.apache.pinot.segment.spi.index.reader.TextIndexReader;
 import org.apache.pinot.segment.spi.store.SegmentDirectory;
 import org.apache.pinot.spi.config.table.FieldConfig;
@@ -553,6 +554,122 @@ public class RealtimeSegmentConverterTest implements PinotBuffersAfterMethodChec
     }
   }
 
+  // The column major builder derives the dictionary ids and inverted indexes from the mutable segment, which should
+  // produce the same segment as the row major builder
+  @Test
+  public void testColumnMajorSegmentBuilderWithMutableDictionaryAndInvertedIndex()
+      throws Exception {
+    File tmpDir = new File(TMP_DIR, "tmp_" + System.currentTimeMillis());
+    Schema schema = new Schema.SchemaBuilder()
+        .addSingleValueDimension(STRING_COLUMN1, FieldSpec.DataType.STRING)
+        .addSingleValueDimension(STRING_COLUMN2, FieldSpec.DataType.STRING)
+        .addSingleValueDimension(LONG_COLUMN1, FieldSpec.DataType.LONG)
+        .addMultiValueDimension(MV_INT_COLUMN, FieldSpec.DataType.INT)
+        .addDateTime(DATE_TIME_COLUMN, FieldSpec.DataType.LONG, "1:MILLISECONDS:EPOCH", "1:MILLISECONDS")
+        .build();
+    String tableNameWithType = "testTable_REALTIME";
+    String segmentName = "testTable__0__0__123456";
+
+    RealtimeSegmentConfig.Builder realtimeSegmentConfigBuilder =
+        new RealtimeSegmentConfig.Builder().setTableNameWithType(tableNameWithType).setSegmentName(segmentName)
+            .setStreamName(tableNameWithType).setSchema(schema).setTimeColumnName(DATE_TIME_COLUMN).setCapacity(1001)
+            .setAvgNumMultiValues(3)
+            .setIndex(Sets.newHashSet(STRING_COLUMN1, LONG_COLUMN1, MV_INT_COLUMN), StandardIndexes.inverted(),
+                IndexConfig.ENABLED)
+            .setSegmentZKMetadata(getSegmentZKMetadata(segmentName)).setOffHeap(true)
+            .setMemoryManager(new DirectMemoryManager(segmentName))
+            .setStatsHistory(RealtimeSegmentStatsHistory.deserialzeFrom(new File(tmpDir, "stats")))
+            .setConsumerDir(new File(tmpDir, "consumerDir").getAbsolutePath());
+
+    MutableSegmentImpl mutableSegmentImpl = new MutableSegmentImpl(realtimeSegmentConfigBuilder.build(), null);
+    try {
+      List<GenericRow> rows = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        GenericRow row = new GenericRow();
+        // Values arrive out of order so that the mutable and immutable dictionary ids differ
+        row.putValue(STRING_COLUMN1, "s" + (i * 7919) % 97);
+        row.putValue(STRING_COLUMN2, "s" + (1000 - i));
+        row.putValue(LONG_COLUMN1, (long) (i * 31) % 50);
+        row.putValue(MV_INT_COLUMN, new Object[]{(i * 13) % 23, (i * 17) % 29});
+        row.putValue(DATE_TIME_COLUMN, 1697814309L + i);
+        rows.add(row);
+      }
+      for (GenericRow row : rows) {
+        mutableSegmentImpl.index(row, null);
+      }
+      // The null value fails to be indexed, so the document is missing from the mutable inverted index while the
+      // forward index keeps the first dictionary id, i.e. "s0". The mutable inverted index should not be reused.
+      GenericRow nullValueRow = new GenericRow();
+      nullValueRow.putValue(STRING_COLUMN1, null);
+      nullValueRow.putValue(STRING_COLUMN2, "s0");
+      nullValueRow.putValue(LONG_COLUMN1, 0L);
+      nullValueRow.putValue(MV_INT_COLUMN, new Object[]{0, 1});
+      nullValueRow.putValue(DATE_TIME_COLUMN, 1697814309L + 1000);
+      mutableSegmentImpl.index(nullValueRow, null);
+      GenericRow expectedRow = nullValueRow.copy();
+      expectedRow.putValue(STRING_COLUMN1, "s0");
+      rows.add(expectedRow);
+
+      String[] crcs = new String[2];
+      for (int i = 0; i < 2; i++) {
+        boolean columnMajor = i == 1;
+        TableConfig tableConfig = new TableConfigBuilder(TableType.REALTIME).setTableName("testTable")
+            .setTimeColumnName(DATE_TIME_COLUMN)
+            .setInvertedIndexColumns(Lists.newArrayList(STRING_COLUMN1, LONG_COLUMN1, MV_INT_COLUMN))
+            .setColumnMajorSegmentBuilderEnabled(columnMajor)
+            .build();
+        File outputDir = new File(tmpDir, "outputDir_" + columnMajor);
+        SegmentZKPropsConfig segmentZKPropsConfig = new SegmentZKPropsConfig();
+        segmentZKPropsConfig.setStartOffset("1");
+        segmentZKPropsConfig.setEndOffset("100");
+        RealtimeSegmentConverter converter =
+            new RealtimeSegmentConverter(mutableSegmentImpl, segmentZKPropsConfig, outputDir.getAbsolutePath(), schema,
+                tableNameWithType, tableConfig, segmentName, false);
+        converter.build(SegmentVersion.v3, null);
+
+        File indexDir = new File(outputDir, segmentName);
+        SegmentMetadataImpl segmentMetadata = new SegmentMetadataImpl(indexDir);
+        assertEquals(segmentMetadata.getTotalDocs(), rows.size());
+        crcs[i] = segmentMetadata.getCrc();
+        testSegmentValues(rows, indexDir, tableConfig, segmentMetadata);
+      }
+      assertEquals(crcs[1], crcs[0]);
+    } finally {
+      mutableSegmentImpl.destroy();
+    }
+  }
+
+  private void testSegmentValues(List<GenericRow> rows, File indexDir, TableConfig tableConfig,
+      SegmentMetadataImpl segmentMetadata)
+      throws IOException {
+    SegmentLocalFSDirectory segmentDir = new SegmentLocalFSDirectory(indexDir, segmentMetadata, ReadMode.mmap);
+    SegmentDirectory.Reader segmentReader = segmentDir.createReader();
+    Map<String, ColumnIndexContainer> indexContainerMap = new HashMap<>();
+    IndexLoadingConfig indexLoadingConfig = new IndexLoadingConfig(null, tableConfig);
+    for (Map.Entry<String, ColumnMetadata> entry : segmentMetadata.getColumnMetadataMap().entrySet()) {
+      indexContainerMap.put(entry.getKey(),
+          new PhysicalColumnIndexContainer(segmentReader, entry.getValue(), indexLoadingConfig));
+    }
+    ImmutableSegmentImpl segmentFile = new ImmutableSegmentImpl(segmentDir, segmentMetadata, indexContainerMap, null);
+    try {
+      GenericRow readRow = new GenericRow();
+      for (int docId = 0; docId < rows.size(); docId++) {
+        GenericRow row = rows.get(docId);
+        segmentFile.getRecord(docId, readRow);
+        assertEquals(readRow.getValue(STRING_COLUMN1), row.getValue(STRING_COLUMN1));
+        assertEquals(readRow.getValue(STRING_COLUMN2), row.getValue(STRING_COLUMN2));
+        assertEquals(readRow.getValue(LONG_COLUMN1), row.getValue(LONG_COLUMN1));
+        assertEquals(readRow.getValue(MV_INT_COLUMN), row.getValue(MV_INT_COLUMN));
+      }
+      InvertedIndexReader<?> invertedIndexReader = segmentFile.getIndex(STRING_COLUMN1, StandardIndexes.inverted());
+      int dictId = segmentFile.getDictionary(STRING_COLUMN1).indexOf("s0");
+      assertEquals(invertedIndexReader.getDocIds(dictId), ImmutableRoaringBitmap.bitmapOf(0, 97, 194, 291, 388, 485,
+          582, 679, 776, 873, 970, 1000));
+    } finally {
+      segmentFile.destroy();
+    }
+  }
+
   @DataProvider
   public static Object[][] reuseParams() {
     List<Boolean> enabledColumnMajorSegmentBuildParams = Arrays.asList(false, true);
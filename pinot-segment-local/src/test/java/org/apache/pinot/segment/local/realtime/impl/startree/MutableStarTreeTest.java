@@ -0,0 +1,364 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.realtime.impl.startree;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.pinot.segment.local.indexsegment.mutable.MutableSegmentImpl;
+import org.apache.pinot.segment.local.indexsegment.mutable.MutableSegmentImplTestUtils;
+import org.apache.pinot.segment.local.startree.v2.builder.StarTreeV2BuilderConfig;
+import org.apache.pinot.segment.spi.index.reader.Dictionary;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReader;
+import org.apache.pinot.segment.spi.index.startree.StarTreeNode;
+import org.apache.pinot.segment.spi.index.startree.StarTreeV2;
+import org.apache.pinot.spi.config.table.StarTreeIndexConfig;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.util.TestUtils;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+
+public class MutableStarTreeTest {
+  private static final String D1 = "d1";
+  private static final String D2 = "d2";
+  private static final String M1 = "m1";
+  private static final String COUNT_STAR = "count__*";
+  private static final String SUM_M1 = "sum__m1";
+  private static final int NUM_D1_VALUES = 3;
+  private static final int NUM_D2_VALUES = 4;
+
+  private static final Schema SCHEMA = new Schema.SchemaBuilder().setSchemaName("testTable")
+      .addSingleValueDimension(D1, DataType.STRING)
+      .addSingleValueDimension(D2, DataType.INT)
+      .addMetric(M1, DataType.LONG)
+      .build();
+  private static final List<StarTreeIndexConfig> STAR_TREE_INDEX_CONFIGS =
+      List.of(new StarTreeIndexConfig(List.of(D1, D2), null, List.of("COUNT__*", "SUM__m1"), null, 1));
+  private static final StarTreeV2BuilderConfig BUILDER_CONFIG =
+      StarTreeV2BuilderConfig.fromIndexConfig(STAR_TREE_INDEX_CONFIGS.get(0));
+
+  @Test
+  public void testStarTree()
+      throws Exception {
+    MutableSegmentImpl mutableSegment =
+        MutableSegmentImplTestUtils.createMutableSegmentImpl(SCHEMA, Set.of(), STAR_TREE_INDEX_CONFIGS);
+    try {
+      // Star-tree should not be built before the rebuild interval is reached
+      indexRows(mutableSegment, 0, 100);
+      assertNull(mutableSegment.getStarTrees());
+
+      // Star-tree should be rebuilt in the background when indexing the first row after the rebuild interval
+      long memoryUsedBytes = mutableSegment.getMemoryUsedBytes();
+      Thread.sleep(MutableStarTree.DEFAULT_REBUILD_INTERVAL_MS);
+      indexRows(mutableSegment, 100, 101);
+      TestUtils.waitForCondition(aVoid -> mutableSegment.getStarTrees() != null, 10_000L,
+          "Failed to build the star-tree");
+      List<StarTreeV2> starTrees = mutableSegment.getStarTrees();
+      assertEquals(starTrees.size(), 1);
+      StarTreeV2 starTree = starTrees.get(0);
+      assertEquals(starTree.getMetadata().getDimensionsSplitOrder(), List.of(D1, D2));
+      assertEquals(starTree.getNumCoveredDocs(), 101);
+      verifyStarTree(starTree, 0, 101);
+      assertSame(mutableSegment.getStarTrees().get(0), starTree);
+
+      // Heap used by the star-tree should be accounted in the memory used by the segment
+      assertTrue(mutableSegment.getMemoryUsedBytes() > memoryUsedBytes);
+
+      // Rows indexed before the next rebuild are not covered by the star-tree, which should still be returned
+      indexRows(mutableSegment, 101, 102);
+      assertSame(mutableSegment.getStarTrees().get(0), starTree);
+      assertEquals(starTree.getNumCoveredDocs(), 101);
+    } finally {
+      mutableSegment.destroy();
+    }
+  }
+
+  @Test
+  public void testSnapshotRebuild()
+      throws Exception {
+    MutableSegmentImpl mutableSegment = MutableSegmentImplTestUtils.createMutableSegmentImpl(SCHEMA);
+    try {
+      // Rebuild the snapshot on every new row
+      MutableStarTree mutableStarTree = new MutableStarTree(BUILDER_CONFIG, mutableSegment, 1, 0, Runnable::run);
+      mutableStarTree.update(0);
+      assertNull(mutableStarTree.getStarTree());
+
+      indexRows(mutableSegment, 0, 100);
+      mutableStarTree.update(100);
+      StarTreeV2 starTree = mutableStarTree.getStarTree();
+      assertNotNull(starTree);
+      assertEquals(starTree.getNumCoveredDocs(), 100);
+      verifyStarTree(starTree, 0, 100);
+      mutableStarTree.update(100);
+      assertSame(mutableStarTree.getStarTree(), starTree);
+
+      // Snapshot should be rebuilt after new rows are indexed, and the old snapshot should be unchanged
+      indexRows(mutableSegment, 100, 250);
+      mutableStarTree.update(250);
+      StarTreeV2 newStarTree = mutableStarTree.getStarTree();
+      assertTrue(newStarTree != starTree);
+      assertEquals(newStarTree.getNumCoveredDocs(), 250);
+      verifyStarTree(newStarTree, 0, 250);
+      assertEquals(starTree.getNumCoveredDocs(), 100);
+      verifyStarTree(starTree, 0, 100);
+
+      // Only the given number of docs should be aggregated
+      indexRows(mutableSegment, 250, 300);
+      mutableStarTree.update(280);
+      verifyStarTree(mutableStarTree.getStarTree(), 0, 280);
+      mutableStarTree.update(300);
+      verifyStarTree(mutableStarTree.getStarTree(), 0, 300);
+    } finally {
+      mutableSegment.destroy();
+    }
+  }
+
+  @Test
+  public void testSnapshotRebuildInterval()
+      throws Exception {
+    MutableSegmentImpl mutableSegment = MutableSegmentImplTestUtils.createMutableSegmentImpl(SCHEMA);
+    try {
+      // Rebuild the snapshot every 100 new rows
+      MutableStarTree mutableStarTree =
+          new MutableStarTree(BUILDER_CONFIG, mutableSegment, 100, Long.MAX_VALUE, Runnable::run);
+      indexRows(mutableSegment, 0, 99);
+      mutableStarTree.update(99);
+      assertNull(mutableStarTree.getStarTree());
+      indexRows(mutableSegment, 99, 100);
+      mutableStarTree.update(100);
+      StarTreeV2 starTree = mutableStarTree.getStarTree();
+      assertNotNull(starTree);
+      verifyStarTree(starTree, 0, 100);
+
+      // Stale snapshot should be kept until enough new rows are indexed
+      indexRows(mutableSegment, 100, 199);
+      mutableStarTree.update(199);
+      assertSame(mutableStarTree.getStarTree(), starTree);
+      indexRows(mutableSegment, 199, 200);
+      mutableStarTree.update(200);
+      StarTreeV2 newStarTree = mutableStarTree.getStarTree();
+      assertTrue(newStarTree != starTree);
+      verifyStarTree(newStarTree, 0, 200);
+    } finally {
+      mutableSegment.destroy();
+    }
+  }
+
+  @Test
+  public void testConcurrentReads()
+      throws Exception {
+    MutableSegmentImpl mutableSegment = MutableSegmentImplTestUtils.createMutableSegmentImpl(SCHEMA);
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      // Readers should always see a consistent snapshot while the consuming thread keeps indexing rows
+      MutableStarTree mutableStarTree = new MutableStarTree(BUILDER_CONFIG, mutableSegment, 10, Long.MAX_VALUE);
+      indexRows(mutableSegment, 0, 20);
+      mutableStarTree.update(20);
+      TestUtils.waitForCondition(aVoid -> mutableStarTree.getStarTree() != null, 10_000L,
+          "Failed to build the star-tree");
+      AtomicBoolean stopped = new AtomicBoolean();
+      Future<Integer> future = executorService.submit(() -> {
+        int numSnapshots = 0;
+        StarTreeV2 lastStarTree = null;
+        while (!stopped.get()) {
+          StarTreeV2 starTree = mutableStarTree.getStarTree();
+          assertNotNull(starTree);
+          if (starTree != lastStarTree) {
+            verifyStarTree(starTree, 0, starTree.getNumCoveredDocs());
+            lastStarTree = starTree;
+            numSnapshots++;
+          }
+        }
+        return numSnapshots;
+      });
+      for (int i = 20; i < 2000; i++) {
+        indexRows(mutableSegment, i, i + 1);
+        mutableStarTree.update(i + 1);
+      }
+      // The rows indexed while a rebuild is in flight should be picked up by the next update
+      TestUtils.waitForCondition(aVoid -> {
+        mutableStarTree.update(2000);
+        return mutableStarTree.getStarTree().getNumCoveredDocs() == 2000;
+      }, 10_000L, "Failed to rebuild the star-tree for all the rows");
+      stopped.set(true);
+      assertTrue(future.get() > 0);
+      mutableStarTree.close();
+    } finally {
+      executorService.shutdownNow();
+      mutableSegment.destroy();
+    }
+  }
+
+  @Test
+  public void testRebuildInBackground()
+      throws Exception {
+    MutableSegmentImpl mutableSegment = MutableSegmentImplTestUtils.createMutableSegmentImpl(SCHEMA);
+    try {
+      List<Runnable> rebuildTasks = new ArrayList<>();
+      MutableStarTree mutableStarTree = new MutableStarTree(BUILDER_CONFIG, mutableSegment, 1, 0, rebuildTasks::add);
+      indexRows(mutableSegment, 0, 100);
+      mutableStarTree.update(100);
+      assertEquals(rebuildTasks.size(), 1);
+      assertNull(mutableStarTree.getStarTree());
+      assertEquals(mutableStarTree.getHeapMemoryUsedBytes(), 0);
+
+      // No other rebuild should be scheduled while one is in flight
+      indexRows(mutableSegment, 100, 150);
+      mutableStarTree.update(150);
+      assertEquals(rebuildTasks.size(), 1);
+
+      // The in-flight rebuild only covers the rows indexed when it was scheduled
+      rebuildTasks.remove(0).run();
+      StarTreeV2 starTree = mutableStarTree.getStarTree();
+      assertNotNull(starTree);
+      verifyStarTree(starTree, 0, 100);
+      assertTrue(mutableStarTree.getHeapMemoryUsedBytes() > 0);
+      mutableStarTree.update(150);
+      assertEquals(rebuildTasks.size(), 1);
+      rebuildTasks.remove(0).run();
+      verifyStarTree(mutableStarTree.getStarTree(), 0, 150);
+
+      // No rebuild should be scheduled after the star-tree is closed
+      mutableStarTree.close();
+      assertNull(mutableStarTree.getStarTree());
+      assertEquals(mutableStarTree.getHeapMemoryUsedBytes(), 0);
+      indexRows(mutableSegment, 150, 200);
+      mutableStarTree.update(200);
+      assertTrue(rebuildTasks.isEmpty());
+    } finally {
+      mutableSegment.destroy();
+    }
+  }
+
+  @Test
+  public void testNullDimension()
+      throws Exception {
+    MutableSegmentImpl mutableSegment =
+        MutableSegmentImplTestUtils.createMutableSegmentImpl(SCHEMA, Set.of(), Set.of(), Set.of(), false, true);
+    try {
+      MutableStarTree mutableStarTree = new MutableStarTree(BUILDER_CONFIG, mutableSegment, 1, 0, Runnable::run);
+      indexRows(mutableSegment, 0, 10);
+      mutableStarTree.update(10);
+      assertNotNull(mutableStarTree.getStarTree());
+
+      // Star-tree should become unusable once a null dimension value is indexed
+      GenericRow row = new GenericRow();
+      row.putDefaultNullValue(D1, "null");
+      row.putValue(D2, 0);
+      row.putValue(M1, 10L);
+      mutableSegment.index(row, null);
+      mutableStarTree.update(11);
+      assertNull(mutableStarTree.getStarTree());
+      assertTrue(mutableStarTree.isDisabled());
+      indexRows(mutableSegment, 11, 20);
+      mutableStarTree.update(20);
+      assertNull(mutableStarTree.getStarTree());
+    } finally {
+      mutableSegment.destroy();
+    }
+  }
+
+  @Test
+  public void testStarTreeNotEnabled()
+      throws Exception {
+    // Dimension without dictionary
+    MutableSegmentImpl mutableSegment =
+        MutableSegmentImplTestUtils.createMutableSegmentImpl(SCHEMA, Set.of(D2), STAR_TREE_INDEX_CONFIGS);
+    try {
+      indexRows(mutableSegment, 0, 10);
+      assertNull(mutableSegment.getStarTrees());
+    } finally {
+      mutableSegment.destroy();
+    }
+  }
+
+  private static void indexRows(MutableSegmentImpl mutableSegment, int startId, int endId)
+      throws Exception {
+    for (int i = startId; i < endId; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue(D1, "v" + (i % NUM_D1_VALUES));
+      row.putValue(D2, i % NUM_D2_VALUES);
+      row.putValue(M1, (long) i);
+      mutableSegment.index(row, null);
+    }
+  }
+
+  /**
+   * Verifies the aggregated documents of all the tree nodes against the expected values computed from the rows in the
+   * given range.
+   */
+  private static void verifyStarTree(StarTreeV2 starTree, int startId, int endId) {
+    Dictionary d1Dictionary = starTree.getDataSource(D1).getDictionary();
+    Dictionary d2Dictionary = starTree.getDataSource(D2).getDictionary();
+    ForwardIndexReader countReader = starTree.getDataSource(COUNT_STAR).getForwardIndex();
+    ForwardIndexReader sumReader = starTree.getDataSource(SUM_M1).getForwardIndex();
+    assertEquals(starTree.getDataSource(D1).getDataSourceMetadata().getNumDocs(), starTree.getMetadata().getNumDocs());
+
+    // Root aggregates all the rows
+    StarTreeNode root = starTree.getStarTree().getRoot();
+    assertEquals(countReader.getLong(root.getAggregatedDocId(), null), (long) (endId - startId));
+    assertEquals(sumReader.getDouble(root.getAggregatedDocId(), null), getExpectedSum(startId, endId, -1, -1));
+
+    // Each (d1, d2) combination including the star-nodes should be reachable through the tree
+    assertEquals(root.getNumChildren(), NUM_D1_VALUES + 1);
+    int numD2Nodes = 0;
+    Iterator<? extends StarTreeNode> d1Iterator = root.getChildrenIterator();
+    while (d1Iterator.hasNext()) {
+      StarTreeNode d1Node = d1Iterator.next();
+      int d1 = d1Node.getDimensionValue() == StarTreeNode.ALL ? -1
+          : Integer.parseInt(d1Dictionary.getStringValue(d1Node.getDimensionValue()).substring(1));
+      assertEquals(sumReader.getDouble(d1Node.getAggregatedDocId(), null), getExpectedSum(startId, endId, d1, -1));
+      assertEquals(d1Node.getNumChildren(), NUM_D2_VALUES + 1);
+      Iterator<? extends StarTreeNode> d2Iterator = d1Node.getChildrenIterator();
+      while (d2Iterator.hasNext()) {
+        StarTreeNode d2Node = d2Iterator.next();
+        assertTrue(d2Node.isLeaf());
+        int d2 = d2Node.getDimensionValue() == StarTreeNode.ALL ? -1 : d2Dictionary.getIntValue(
+            d2Node.getDimensionValue());
+        assertEquals(sumReader.getDouble(d2Node.getAggregatedDocId(), null), getExpectedSum(startId, endId, d1, d2));
+        assertEquals(d1Node.getChildForDimensionValue(d2Node.getDimensionValue()), d2Node);
+        numD2Nodes++;
+      }
+    }
+    assertEquals(numD2Nodes, (NUM_D1_VALUES + 1) * (NUM_D2_VALUES + 1));
+  }
+
+  private static double getExpectedSum(int startId, int endId, int d1, int d2) {
+    double sum = 0;
+    for (int i = startId; i < endId; i++) {
+      if ((d1 < 0 || i % NUM_D1_VALUES == d1) && (d2 < 0 || i % NUM_D2_VALUES == d2)) {
+        sum += i;
+      }
+    }
+    return sum;
+  }
+}
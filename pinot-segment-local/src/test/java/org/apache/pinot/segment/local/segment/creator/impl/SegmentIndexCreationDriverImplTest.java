@@ -0,0 +1,218 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.creator.impl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.local.segment.readers.GenericRowRecordReader;
+import org.apache.pinot.segment.local.segment.readers.PinotSegmentRecordReader;
+import org.apache.pinot.segment.spi.creator.SegmentGeneratorConfig;
+import org.apache.pinot.segment.spi.index.metadata.SegmentMetadataImpl;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.ColumnBatch;
+import org.apache.pinot.spi.data.readers.ColumnarRecordReader;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.data.readers.RecordReader;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+
+public class SegmentIndexCreationDriverImplTest {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "SegmentIndexCreationDriverImplTest");
+  private static final String RAW_TABLE_NAME = "testTable";
+  private static final String SEGMENT_NAME = "testSegment";
+  private static final String INT_COLUMN = "intColumn";
+  private static final String LONG_COLUMN = "longColumn";
+  private static final String STRING_COLUMN = "stringColumn";
+  private static final String RAW_STRING_COLUMN = "rawStringColumn";
+  private static final String MV_INT_COLUMN = "mvIntColumn";
+  private static final String DOUBLE_COLUMN = "doubleColumn";
+  // Multiple batches of rows, with a partial batch at the end
+  private static final int NUM_ROWS = 25_000;
+
+  private static final Schema SCHEMA = new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME)
+      .addSingleValueDimension(INT_COLUMN, DataType.INT)
+      .addSingleValueDimension(STRING_COLUMN, DataType.STRING)
+      .addSingleValueDimension(RAW_STRING_COLUMN, DataType.STRING)
+      .addMultiValueDimension(MV_INT_COLUMN, DataType.INT)
+      .addMetric(LONG_COLUMN, DataType.LONG)
+      .addMetric(DOUBLE_COLUMN, DataType.DOUBLE)
+      .build();
+
+  private List<GenericRow> _rows;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteDirectory(TEMP_DIR);
+    Random random = new Random();
+    _rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue(INT_COLUMN, random.nextInt(1000));
+      row.putValue(LONG_COLUMN, random.nextLong());
+      // Leave some null values to build the null value vector
+      if (i % 7 != 0) {
+        row.putValue(STRING_COLUMN, "s" + random.nextInt(100));
+      }
+      row.putValue(RAW_STRING_COLUMN, "raw" + random.nextInt());
+      row.putValue(MV_INT_COLUMN, new Object[]{random.nextInt(10), random.nextInt(10)});
+      // NaN is transformed into null, and float is converted to double
+      row.putValue(DOUBLE_COLUMN, i % 11 == 0 ? Double.NaN : random.nextFloat());
+      _rows.add(row);
+    }
+  }
+
+  @Test
+  public void testParallelSegmentCreation()
+      throws Exception {
+    File serialSegmentDir = buildSegment(new File(TEMP_DIR, "serial"), 1);
+    File parallelSegmentDir = buildSegment(new File(TEMP_DIR, "parallel"), 4);
+    assertSameSegment(parallelSegmentDir, serialSegmentDir);
+  }
+
+  @Test
+  public void testColumnarSegmentCreation()
+      throws Exception {
+    File rowSegmentDir = buildSegment(new File(TEMP_DIR, "row"), 1);
+    for (int parallelism : new int[]{1, 4}) {
+      ColumnarGenericRowRecordReader recordReader = new ColumnarGenericRowRecordReader(_rows);
+      File columnarSegmentDir =
+          buildSegment(new File(TEMP_DIR, "columnar_" + parallelism), parallelism, recordReader);
+      // Both stats collection and indexing should read the records in column batches
+      assertEquals(recordReader._numBatchesRead, 2 * ((NUM_ROWS - 1) / 10_000 + 1));
+      assertSameSegment(columnarSegmentDir, rowSegmentDir);
+    }
+  }
+
+  private static void assertSameSegment(File segmentDir, File expectedSegmentDir)
+      throws Exception {
+    // The segments should be identical regardless of how they are built
+    SegmentMetadataImpl expectedSegmentMetadata = new SegmentMetadataImpl(expectedSegmentDir);
+    SegmentMetadataImpl segmentMetadata = new SegmentMetadataImpl(segmentDir);
+    assertEquals(segmentMetadata.getTotalDocs(), NUM_ROWS);
+    assertEquals(segmentMetadata.getCrc(), expectedSegmentMetadata.getCrc());
+    assertEquals(segmentMetadata.getColumnMetadataFor(INT_COLUMN).getCardinality(),
+        expectedSegmentMetadata.getColumnMetadataFor(INT_COLUMN).getCardinality());
+    try (PinotSegmentRecordReader expectedReader = new PinotSegmentRecordReader();
+        PinotSegmentRecordReader reader = new PinotSegmentRecordReader()) {
+      expectedReader.init(expectedSegmentDir, null, null);
+      reader.init(segmentDir, null, null);
+      for (int i = 0; i < NUM_ROWS; i++) {
+        assertTrue(reader.hasNext());
+        GenericRow row = reader.next();
+        assertEquals(row, expectedReader.next());
+        // Null values are skipped by the reader
+        assertEquals(row.getValue(STRING_COLUMN) == null, i % 7 == 0);
+        assertEquals(row.getValue(DOUBLE_COLUMN) == null, i % 11 == 0);
+      }
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  private File buildSegment(File outDir, int parallelism)
+      throws Exception {
+    return buildSegment(outDir, parallelism, new GenericRowRecordReader(_rows));
+  }
+
+  private File buildSegment(File outDir, int parallelism, RecordReader recordReader)
+      throws Exception {
+    TableConfig tableConfig = new TableConfigBuilder(TableType.OFFLINE).setTableName(RAW_TABLE_NAME)
+        .setInvertedIndexColumns(List.of(INT_COLUMN, STRING_COLUMN))
+        .setCreateInvertedIndexDuringSegmentGeneration(true)
+        .setNoDictionaryColumns(List.of(RAW_STRING_COLUMN))
+        .setNullHandlingEnabled(true)
+        .build();
+    tableConfig.getIndexingConfig().setSegmentCreationParallelism(parallelism);
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(tableConfig, SCHEMA);
+    assertEquals(config.getSegmentCreationParallelism(), parallelism);
+    config.setOutDir(outDir.getPath());
+    config.setSegmentName(SEGMENT_NAME);
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, recordReader);
+    driver.build();
+    return new File(outDir, SEGMENT_NAME);
+  }
+
+  /**
+   * Record reader for list of {@link GenericRow} which also supports columnar reads.
+   */
+  private static class ColumnarGenericRowRecordReader extends GenericRowRecordReader implements ColumnarRecordReader {
+    private final List<GenericRow> _rows;
+    private int _nextRowId;
+    private int _numBatchesRead;
+
+    ColumnarGenericRowRecordReader(List<GenericRow> rows) {
+      super(rows);
+      _rows = rows;
+    }
+
+    @Override
+    public boolean isColumnarReadSupported() {
+      return true;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _nextRowId < _rows.size();
+    }
+
+    @Override
+    public void nextBatch(ColumnBatch batch) {
+      int numRows = Math.min(batch.getCapacity(), _rows.size() - _nextRowId);
+      for (int i = 0; i < numRows; i++) {
+        for (Map.Entry<String, Object> entry : _rows.get(_nextRowId + i).getFieldToValueMap().entrySet()) {
+          batch.getOrCreateValues(entry.getKey())[i] = entry.getValue();
+        }
+      }
+      batch.setNumRows(numRows);
+      _nextRowId += numRows;
+      _numBatchesRead++;
+    }
+
+    @Override
+    public GenericRow next(GenericRow reuse) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void rewind() {
+      _nextRowId = 0;
+    }
+  }
+
+  @AfterClass
+  public void tearDown()
+      throws Exception {
+    FileUtils.deleteDirectory(TEMP_DIR);
+  }
+}
@@ -277,6 +277,32 @@ public class JsonIndexTest implements PinotBuffersAfterMethodCheckRule {
     }
   }
 
+  @Test
+  public void testMatchingDocIdsCache()
+      throws Exception {
+    String[] records = new String[]{
+        "{\"name\":\"adam\",\"age\":20,\"addresses\":[{\"country\":\"us\"},{\"country\":\"ca\"}]}",
+        "{\"name\":\"bob\",\"age\":25,\"addresses\":[{\"country\":\"us\"}]}",
+        "{\"name\":\"charles\",\"age\":30,\"addresses\":[{\"country\":\"ca\"}]}"
+    };
+    createIndex(true, getIndexConfig(), records);
+    File indexFile = new File(INDEX_DIR, ON_HEAP_COLUMN_NAME + V1Constants.Indexes.JSON_INDEX_FILE_EXTENSION);
+
+    try (PinotDataBuffer buffer = PinotDataBuffer.mapReadOnlyBigEndianFile(indexFile);
+        JsonIndexReader reader = new ImmutableJsonIndexReader(buffer, records.length, 1024 * 1024)) {
+      for (int i = 0; i < 3; i++) {
+        assertDocIds(reader, "\"addresses[*].country\" = 'us'", ids(0, 1));
+        assertDocIds(reader, "\"name\" != 'bob'", ids(0, 2));
+        assertDocIds(reader, "\"age\" > 20 AND \"addresses[*].country\" = 'ca'", ids(2));
+        // Modifying the returned bitmap should not affect the cached result
+        reader.getMatchingDocIds("\"addresses[*].country\" = 'us'").add(2);
+        reader.getMatchingDocIds("\"name\" != 'bob'").clear();
+      }
+    }
+    verify(_serverMetrics, times(3)).addMeteredGlobalValue(ServerMeter.JSON_INDEX_MATCHING_DOC_IDS_CACHE_MISSES, 1);
+    verify(_serverMetrics, times(12)).addMeteredGlobalValue(ServerMeter.JSON_INDEX_MATCHING_DOC_IDS_CACHE_HITS, 1);
+  }
+
   @Test
   public void testLargeIndex()
       throws Exception {
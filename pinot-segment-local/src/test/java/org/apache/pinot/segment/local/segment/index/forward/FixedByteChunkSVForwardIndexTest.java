@@ -101,6 +101,17 @@ public class FixedByteChunkSVForwardIndexTest implements PinotBuffersAfterMethod
         Assert.assertEquals(eightByteOffsetReader.getInt(i, eightByteOffsetReaderContext), expected[i]);
       }
 
+      // Bulk read of a contiguous range spanning multiple chunks
+      int startDocId = 5;
+      int length = NUM_VALUES - 2 * startDocId;
+      int[] docIds = new int[length];
+      for (int i = 0; i < length; i++) {
+        docIds[i] = startDocId + i;
+      }
+      int[] values = new int[length];
+      fourByteOffsetReader.readValuesSV(docIds, length, values, fourByteOffsetReaderContext);
+      Assert.assertEquals(values, Arrays.copyOfRange(expected, startDocId, startDocId + length));
+
 
       Assert.assertTrue(fourByteOffsetReader.isBufferByteRangeInfoSupported());
       Assert.assertTrue(eightByteOffsetReader.isBufferByteRangeInfoSupported());
@@ -164,6 +175,17 @@ public class FixedByteChunkSVForwardIndexTest implements PinotBuffersAfterMethod
         Assert.assertEquals(eightByteOffsetReader.getLong(i, eightByteOffsetReaderContext), expected[i]);
       }
 
+      // Bulk read of a contiguous range spanning multiple chunks
+      int startDocId = 5;
+      int length = NUM_VALUES - 2 * startDocId;
+      int[] docIds = new int[length];
+      for (int i = 0; i < length; i++) {
+        docIds[i] = startDocId + i;
+      }
+      long[] values = new long[length];
+      fourByteOffsetReader.readValuesSV(docIds, length, values, fourByteOffsetReaderContext);
+      Assert.assertEquals(values, Arrays.copyOfRange(expected, startDocId, startDocId + length));
+
       // Validate byte range provider behaviour
       Assert.assertTrue(fourByteOffsetReader.isBufferByteRangeInfoSupported());
       Assert.assertTrue(eightByteOffsetReader.isBufferByteRangeInfoSupported());
@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.index.loader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.local.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import org.apache.pinot.segment.local.segment.readers.GenericRowRecordReader;
+import org.apache.pinot.segment.local.segment.store.SegmentLocalFSDirectory;
+import org.apache.pinot.segment.spi.creator.SegmentGeneratorConfig;
+import org.apache.pinot.segment.spi.index.StandardIndexes;
+import org.apache.pinot.segment.spi.store.SegmentDirectory;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.utils.ReadMode;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+
+public class ColumnIndexBuildExecutorTest {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "ColumnIndexBuildExecutorTest");
+  private static final String RAW_TABLE_NAME = "testTable";
+  private static final String SEGMENT_NAME = "testSegment";
+  private static final String[] COLUMNS = {"intCol1", "intCol2", "stringCol1", "stringCol2"};
+  private static final int NUM_ROWS = 1000;
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+
+  @Test
+  public void testRunAllConcurrently()
+      throws Exception {
+    ColumnIndexBuildExecutor executor = new ColumnIndexBuildExecutor(2, 1024 * 1024 * 1024);
+    try {
+      // Both tasks must run at the same time to get past the latch
+      CountDownLatch latch = new CountDownLatch(2);
+      List<ColumnIndexBuildExecutor.Task> tasks = new ArrayList<>();
+      for (int i = 0; i < 2; i++) {
+        tasks.add(newTask(1024, () -> {
+          latch.countDown();
+          assertTrue(latch.await(10, TimeUnit.SECONDS));
+        }));
+      }
+      executor.runAll(tasks);
+      assertEquals(latch.getCount(), 0);
+    } finally {
+      executor.shutDown();
+    }
+  }
+
+  @Test
+  public void testMemoryCap()
+      throws Exception {
+    // Each task takes the whole memory budget, so tasks must run one at a time
+    long maxMemoryBytes = 16 * 1024 * 1024;
+    ColumnIndexBuildExecutor executor = new ColumnIndexBuildExecutor(4, maxMemoryBytes);
+    try {
+      AtomicInteger numRunningTasks = new AtomicInteger();
+      AtomicInteger maxNumRunningTasks = new AtomicInteger();
+      List<ColumnIndexBuildExecutor.Task> tasks = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        tasks.add(newTask(2 * maxMemoryBytes, () -> {
+          maxNumRunningTasks.accumulateAndGet(numRunningTasks.incrementAndGet(), Math::max);
+          Thread.sleep(10);
+          numRunningTasks.decrementAndGet();
+        }));
+      }
+      executor.runAll(tasks);
+      assertEquals(maxNumRunningTasks.get(), 1);
+    } finally {
+      executor.shutDown();
+    }
+  }
+
+  @Test
+  public void testFailure()
+      throws Exception {
+    ColumnIndexBuildExecutor executor = new ColumnIndexBuildExecutor(1, 1024 * 1024);
+    try {
+      AtomicInteger numTasksRun = new AtomicInteger();
+      List<ColumnIndexBuildExecutor.Task> tasks = new ArrayList<>();
+      tasks.add(newTask(0, () -> {
+        numTasksRun.incrementAndGet();
+        throw new IllegalStateException("Failed to build index");
+      }));
+      for (int i = 0; i < 3; i++) {
+        tasks.add(newTask(0, numTasksRun::incrementAndGet));
+      }
+      try {
+        executor.runAll(tasks);
+        fail("Expected the failure of the first task to be thrown");
+      } catch (IllegalStateException e) {
+        assertEquals(e.getMessage(), "Failed to build index");
+      }
+      // Tasks after the failure are skipped
+      assertEquals(numTasksRun.get(), 1);
+    } finally {
+      executor.shutDown();
+    }
+  }
+
+  @Test
+  public void testPreprocessSegment()
+      throws Exception {
+    FileUtils.deleteQuietly(TEMP_DIR);
+    Schema schema = new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME)
+        .addSingleValueDimension(COLUMNS[0], DataType.INT)
+        .addSingleValueDimension(COLUMNS[1], DataType.INT)
+        .addSingleValueDimension(COLUMNS[2], DataType.STRING)
+        .addSingleValueDimension(COLUMNS[3], DataType.STRING)
+        .build();
+    List<GenericRow> rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue(COLUMNS[0], i % 100);
+      row.putValue(COLUMNS[1], NUM_ROWS - i);
+      row.putValue(COLUMNS[2], "s" + i % 10);
+      row.putValue(COLUMNS[3], "s" + i);
+      rows.add(row);
+    }
+    TableConfig tableConfig = new TableConfigBuilder(TableType.OFFLINE).setTableName(RAW_TABLE_NAME).build();
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(tableConfig, schema);
+    config.setOutDir(TEMP_DIR.getPath());
+    config.setSegmentName(SEGMENT_NAME);
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new GenericRowRecordReader(rows));
+    driver.build();
+    File indexDir = new File(TEMP_DIR, SEGMENT_NAME);
+
+    TableConfig tableConfigWithIndexes = new TableConfigBuilder(TableType.OFFLINE).setTableName(RAW_TABLE_NAME)
+        .setInvertedIndexColumns(List.of(COLUMNS))
+        .setRangeIndexColumns(List.of(COLUMNS))
+        .setBloomFilterColumns(List.of(COLUMNS))
+        .build();
+    ColumnIndexBuildExecutor executor = new ColumnIndexBuildExecutor(4, 1024 * 1024 * 1024);
+    ColumnIndexBuildExecutor.setInstance(executor);
+    try (SegmentDirectory segmentDirectory = new SegmentLocalFSDirectory(indexDir, ReadMode.mmap);
+        SegmentPreProcessor processor = new SegmentPreProcessor(segmentDirectory,
+            new IndexLoadingConfig(tableConfigWithIndexes, schema))) {
+      processor.process();
+    } finally {
+      ColumnIndexBuildExecutor.setInstance(null);
+      executor.shutDown();
+    }
+
+    try (SegmentDirectory segmentDirectory = new SegmentLocalFSDirectory(indexDir, ReadMode.mmap);
+        SegmentDirectory.Reader reader = segmentDirectory.createReader()) {
+      for (String column : COLUMNS) {
+        assertTrue(reader.hasIndexFor(column, StandardIndexes.inverted()), column);
+        assertTrue(reader.hasIndexFor(column, StandardIndexes.bloomFilter()), column);
+        // Sorted column does not need range index
+        if (!segmentDirectory.getSegmentMetadata().getColumnMetadataFor(column).isSorted()) {
+          assertTrue(reader.hasIndexFor(column, StandardIndexes.range()), column);
+        }
+      }
+    }
+  }
+
+  private static ColumnIndexBuildExecutor.Task newTask(long estimatedMemoryBytes, ThrowingRunnable runnable) {
+    return new ColumnIndexBuildExecutor.Task() {
+      @Override
+      public long getEstimatedMemoryBytes() {
+        return estimatedMemoryBytes;
+      }
+
+      @Override
+      public void run()
+          throws Exception {
+        runnable.run();
+      }
+    };
+  }
+
+  private interface ThrowingRunnable {
+    void run()
+        throws Exception;
+  }
+}
@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.index.readers.forward;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.local.io.writer.impl.FixedByteChunkForwardIndexWriter;
+import org.apache.pinot.segment.local.io.writer.impl.VarByteChunkForwardIndexWriterV4;
+import org.apache.pinot.segment.spi.compression.ChunkCompressionType;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+
+public class ForwardIndexChunkCacheTest {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "ForwardIndexChunkCacheTest");
+  private static final int NUM_VALUES = 10_000;
+  private static final int NUM_DOCS_PER_CHUNK = 1000;
+  private static final Random RANDOM = new Random();
+
+  @BeforeClass
+  public void setUp()
+      throws IOException {
+    FileUtils.forceMkdir(TEMP_DIR);
+  }
+
+  @AfterClass
+  public void tearDown()
+      throws IOException {
+    FileUtils.deleteDirectory(TEMP_DIR);
+  }
+
+  @AfterMethod
+  public void resetCache() {
+    ForwardIndexChunkCache.setInstance(null);
+  }
+
+  @Test
+  public void testGetPut() {
+    long directBufferUsage = PinotDataBuffer.getDirectBufferUsage();
+    ForwardIndexChunkCache cache = new ForwardIndexChunkCache(1024);
+    ByteBuffer chunk = ByteBuffer.allocateDirect(100);
+    for (int i = 0; i < 10; i++) {
+      chunk.put((byte) i);
+    }
+    chunk.flip();
+    ByteBuffer target = ByteBuffer.allocateDirect(100);
+    assertFalse(cache.get(0, 0, target));
+    cache.put(0, 0, chunk);
+    assertTrue(cache.get(0, 0, target));
+    assertEquals(target, chunk);
+    assertFalse(cache.get(0, 1, target));
+    assertFalse(cache.get(1, 0, target));
+
+    // Each chunk takes 10 bytes
+    for (int i = 0; i < 1000; i++) {
+      cache.put(1, i, chunk);
+    }
+    assertTrue(cache.size() <= 1024 / 10);
+    // The evicted chunks are released right away
+    assertTrue(PinotDataBuffer.getDirectBufferUsage() - directBufferUsage <= 1024);
+
+    // Invalidating a reader only removes its own chunks
+    cache.put(2, 0, chunk);
+    cache.put(2, 1, chunk);
+    long numCachedChunks = cache.size();
+    cache.invalidate(2);
+    assertFalse(cache.get(2, 0, target));
+    assertFalse(cache.get(2, 1, target));
+    assertEquals(cache.size(), numCachedChunks - 2);
+
+    cache.invalidateAll();
+    assertEquals(cache.size(), 0);
+    assertEquals(PinotDataBuffer.getDirectBufferUsage(), directBufferUsage);
+  }
+
+  @Test
+  public void testFixedByteChunkReaders()
+      throws IOException {
+    ForwardIndexChunkCache cache = new ForwardIndexChunkCache(1024 * 1024);
+    ForwardIndexChunkCache.setInstance(cache);
+    File indexFile = new File(TEMP_DIR, "fixedByte");
+    long[] expected = new long[NUM_VALUES];
+    try (FixedByteChunkForwardIndexWriter writer = new FixedByteChunkForwardIndexWriter(indexFile,
+        ChunkCompressionType.ZSTANDARD, NUM_VALUES, NUM_DOCS_PER_CHUNK, Long.BYTES, 3)) {
+      for (int i = 0; i < NUM_VALUES; i++) {
+        expected[i] = RANDOM.nextLong();
+        writer.putLong(expected[i]);
+      }
+    }
+
+    try (PinotDataBuffer buffer = PinotDataBuffer.mapReadOnlyBigEndianFile(indexFile);
+        FixedByteChunkSVForwardIndexReader reader = new FixedByteChunkSVForwardIndexReader(buffer, DataType.LONG)) {
+      // The first context populates the cache, and the second context reads from the cache
+      for (int i = 0; i < 2; i++) {
+        try (ChunkReaderContext context = reader.createContext()) {
+          for (int docId = 0; docId < NUM_VALUES; docId++) {
+            assertEquals(reader.getLong(docId, context), expected[docId]);
+          }
+        }
+        assertEquals(cache.size(), NUM_VALUES / NUM_DOCS_PER_CHUNK);
+      }
+      // Reading in reverse order switches chunk on every chunk boundary
+      try (ChunkReaderContext context = reader.createContext()) {
+        for (int docId = NUM_VALUES - 1; docId >= 0; docId--) {
+          assertEquals(reader.getLong(docId, context), expected[docId]);
+        }
+      }
+    }
+    // Closing the reader invalidates its chunks
+    assertEquals(cache.size(), 0);
+  }
+
+  @Test
+  public void testVarByteChunkReaderV4()
+      throws IOException {
+    ForwardIndexChunkCache cache = new ForwardIndexChunkCache(1024 * 1024);
+    ForwardIndexChunkCache.setInstance(cache);
+    File indexFile = new File(TEMP_DIR, "varByteV4");
+    String[] expected = new String[NUM_VALUES];
+    try (VarByteChunkForwardIndexWriterV4 writer = new VarByteChunkForwardIndexWriterV4(indexFile,
+        ChunkCompressionType.LZ4, 4096)) {
+      for (int i = 0; i < NUM_VALUES; i++) {
+        expected[i] = "value_" + RANDOM.nextInt(1000);
+        writer.putString(expected[i]);
+      }
+    }
+
+    try (PinotDataBuffer buffer = PinotDataBuffer.mapReadOnlyBigEndianFile(indexFile);
+        VarByteChunkForwardIndexReaderV4 reader = new VarByteChunkForwardIndexReaderV4(buffer, DataType.STRING,
+            true)) {
+      long numCachedChunks = 0;
+      for (int i = 0; i < 2; i++) {
+        try (VarByteChunkForwardIndexReaderV4.ReaderContext context = reader.createContext()) {
+          for (int docId = 0; docId < NUM_VALUES; docId++) {
+            assertEquals(reader.getString(docId, context), expected[docId]);
+          }
+        }
+        if (i == 0) {
+          numCachedChunks = cache.size();
+          assertTrue(numCachedChunks > 1);
+        } else {
+          assertEquals(cache.size(), numCachedChunks);
+        }
+      }
+    }
+    assertEquals(cache.size(), 0);
+  }
+}
@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.index.zonemap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.local.segment.creator.impl.zonemap.ZoneMapIndexCreator;
+import org.apache.pinot.segment.local.segment.index.AbstractSerdeIndexContract;
+import org.apache.pinot.segment.local.segment.index.readers.zonemap.ZoneMapIndexReaderImpl;
+import org.apache.pinot.segment.spi.V1Constants;
+import org.apache.pinot.segment.spi.index.StandardIndexes;
+import org.apache.pinot.segment.spi.index.ZoneMapIndexConfig;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+import org.apache.pinot.spi.data.DimensionFieldSpec;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+
+public class ZoneMapIndexTypeTest {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "ZoneMapIndexTypeTest");
+  private static final String COLUMN_NAME = "col";
+
+  @BeforeClass
+  public void setUp()
+      throws IOException {
+    FileUtils.forceMkdir(TEMP_DIR);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+
+  @Test
+  public void testIsSupported() {
+    assertTrue(ZoneMapIndexType.isSupported(new DimensionFieldSpec(COLUMN_NAME, DataType.INT, true)));
+    assertTrue(ZoneMapIndexType.isSupported(new DimensionFieldSpec(COLUMN_NAME, DataType.TIMESTAMP, true)));
+    assertTrue(ZoneMapIndexType.isSupported(new DimensionFieldSpec(COLUMN_NAME, DataType.DOUBLE, true)));
+    assertFalse(ZoneMapIndexType.isSupported(new DimensionFieldSpec(COLUMN_NAME, DataType.INT, false)));
+    assertFalse(ZoneMapIndexType.isSupported(new DimensionFieldSpec(COLUMN_NAME, DataType.STRING, true)));
+    assertFalse(ZoneMapIndexType.isSupported(new DimensionFieldSpec(COLUMN_NAME, DataType.BIG_DECIMAL, true)));
+  }
+
+  @Test
+  public void testLongValues()
+      throws IOException {
+    // 2 full blocks and a partial block
+    int numDocsPerBlock = 4;
+    long[] values = {5, -3, 8, 1, 100, 100, 100, 100, Long.MIN_VALUE, Long.MAX_VALUE};
+    try (ZoneMapIndexCreator creator = new ZoneMapIndexCreator(TEMP_DIR, COLUMN_NAME, DataType.LONG,
+        numDocsPerBlock)) {
+      for (long value : values) {
+        creator.add(value, -1);
+      }
+      creator.seal();
+    }
+    try (PinotDataBuffer dataBuffer = mapIndexFile();
+        ZoneMapIndexReaderImpl reader = new ZoneMapIndexReaderImpl(dataBuffer)) {
+      assertEquals(reader.getNumDocsPerBlock(), numDocsPerBlock);
+      assertEquals(reader.getNumBlocks(), 3);
+      assertEquals(reader.getMinLongValue(0), -3);
+      assertEquals(reader.getMaxLongValue(0), 8);
+      assertEquals(reader.getMinLongValue(1), 100);
+      assertEquals(reader.getMaxLongValue(1), 100);
+      assertEquals(reader.getMinLongValue(2), Long.MIN_VALUE);
+      assertEquals(reader.getMaxLongValue(2), Long.MAX_VALUE);
+    }
+  }
+
+  @Test
+  public void testDoubleValues()
+      throws IOException {
+    int numDocsPerBlock = 3;
+    float[] values = {1.5f, -2.5f, 0f, 7f, 6f, 8f};
+    try (ZoneMapIndexCreator creator = new ZoneMapIndexCreator(TEMP_DIR, COLUMN_NAME, DataType.FLOAT,
+        numDocsPerBlock)) {
+      for (float value : values) {
+        creator.add(value, -1);
+      }
+      creator.seal();
+    }
+    try (PinotDataBuffer dataBuffer = mapIndexFile();
+        ZoneMapIndexReaderImpl reader = new ZoneMapIndexReaderImpl(dataBuffer)) {
+      assertEquals(reader.getNumBlocks(), 2);
+      assertEquals(reader.getMinDoubleValue(0), -2.5);
+      assertEquals(reader.getMaxDoubleValue(0), 1.5);
+      assertEquals(reader.getMinDoubleValue(1), 6.0);
+      assertEquals(reader.getMaxDoubleValue(1), 8.0);
+    }
+  }
+
+  private static PinotDataBuffer mapIndexFile()
+      throws IOException {
+    File indexFile = new File(TEMP_DIR, COLUMN_NAME + V1Constants.Indexes.ZONE_MAP_INDEX_FILE_EXTENSION);
+    return PinotDataBuffer.mapFile(indexFile, true, 0, indexFile.length(), ByteOrder.BIG_ENDIAN, "ZoneMapIndexTest");
+  }
+
+  public static class ConfTest extends AbstractSerdeIndexContract {
+
+    protected void assertEquals(ZoneMapIndexConfig expected) {
+      Assert.assertEquals(getActualConfig("dimInt", StandardIndexes.zoneMap()), expected);
+    }
+
+    @Test
+    public void defaultConf() {
+      assertEquals(ZoneMapIndexConfig.DISABLED);
+    }
+
+    @Test
+    public void newConfEnabled()
+        throws IOException {
+      addFieldIndexConfig("{\"name\": \"dimInt\", \"indexes\": {\"zone_map\": {}}}");
+      assertEquals(ZoneMapIndexConfig.DEFAULT);
+    }
+
+    @Test
+    public void newConfNumDocsPerBlock()
+        throws IOException {
+      addFieldIndexConfig("{\"name\": \"dimInt\", \"indexes\": {\"zone_map\": {\"numDocsPerBlock\": 256}}}");
+      assertEquals(new ZoneMapIndexConfig(256));
+    }
+
+    @Test
+    public void newConfDisabled()
+        throws IOException {
+      addFieldIndexConfig("{\"name\": \"dimInt\", \"indexes\": {\"zone_map\": {\"disabled\": true}}}");
+      assertEquals(ZoneMapIndexConfig.DISABLED);
+    }
+  }
+}
@@ -0,0 +1,387 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.segment.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.segment.local.PinotBuffersAfterClassCheckRule;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentLoader;
+import org.apache.pinot.segment.local.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import org.apache.pinot.segment.local.segment.index.loader.IndexLoadingConfig;
+import org.apache.pinot.segment.local.segment.readers.GenericRowRecordReader;
+import org.apache.pinot.segment.local.segment.readers.PinotSegmentRecordReader;
+import org.apache.pinot.segment.spi.ImmutableSegment;
+import org.apache.pinot.segment.spi.V1Constants;
+import org.apache.pinot.segment.spi.creator.SegmentGeneratorConfig;
+import org.apache.pinot.segment.spi.index.IndexType;
+import org.apache.pinot.segment.spi.index.StandardIndexes;
+import org.apache.pinot.segment.spi.memory.PinotDataBuffer;
+import org.apache.pinot.segment.spi.store.SegmentDirectory;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.config.table.TableType;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.GenericRow;
+import org.apache.pinot.spi.filesystem.LocalPinotFS;
+import org.apache.pinot.spi.utils.ReadMode;
+import org.apache.pinot.spi.utils.builder.TableConfigBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+
+public class DeepStoreSegmentDirectoryTest implements PinotBuffersAfterClassCheckRule {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "DeepStoreSegmentDirectoryTest");
+  private static final File DEEP_STORE_DIR = new File(TEMP_DIR, "deepStore");
+  private static final File LOCAL_DIR = new File(TEMP_DIR, "local");
+  private static final File CACHE_DIR = new File(TEMP_DIR, "cache");
+  private static final String RAW_TABLE_NAME = "testTable";
+  private static final String SEGMENT_NAME = "testSegment";
+  private static final int NUM_ROWS = 1000;
+  private static final String INT_COLUMN = "intColumn";
+  private static final String STRING_COLUMN = "stringColumn";
+  private static final String RAW_LONG_COLUMN = "rawLongColumn";
+
+  private final TableConfig _tableConfig = new TableConfigBuilder(TableType.OFFLINE).setTableName(RAW_TABLE_NAME)
+      .setNoDictionaryColumns(List.of(RAW_LONG_COLUMN)).build();
+  private final Schema _schema = new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME)
+      .addSingleValueDimension(INT_COLUMN, DataType.INT)
+      .addSingleValueDimension(STRING_COLUMN, DataType.STRING)
+      .addMetric(RAW_LONG_COLUMN, DataType.LONG)
+      .build();
+  private File _segmentDir;
+  private URI _remoteDir;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteQuietly(TEMP_DIR);
+    List<GenericRow> rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      GenericRow row = new GenericRow();
+      row.putValue(INT_COLUMN, i % 100);
+      row.putValue(STRING_COLUMN, "value_" + (i % 37));
+      row.putValue(RAW_LONG_COLUMN, (long) i * 1000);
+      rows.add(row);
+    }
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(_tableConfig, _schema);
+    config.setOutDir(DEEP_STORE_DIR.getPath());
+    config.setSegmentName(SEGMENT_NAME);
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new GenericRowRecordReader(rows));
+    driver.build();
+    _segmentDir = new File(DEEP_STORE_DIR, SEGMENT_NAME);
+    _remoteDir = _segmentDir.toURI();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+
+  @Test
+  public void testLazyFetch()
+      throws Exception {
+    DeepStoreIndexCache indexCache = new DeepStoreIndexCache(CACHE_DIR, 1024 * 1024);
+    File localDir = new File(LOCAL_DIR, "testLazyFetch");
+    try (SegmentDirectory segmentDirectory = new DeepStoreSegmentDirectory(localDir, _remoteDir, new LocalPinotFS(),
+        indexCache, ReadMode.mmap);
+        SegmentDirectory localSegmentDirectory = new SegmentLocalFSDirectory(_segmentDir, ReadMode.mmap);
+        SegmentDirectory.Reader reader = segmentDirectory.createReader();
+        SegmentDirectory.Reader localReader = localSegmentDirectory.createReader()) {
+      // Only the metadata is downloaded on load
+      assertEquals(Set.of(localDir.list()),
+          Set.of(V1Constants.MetadataKeys.METADATA_FILE_NAME, V1Constants.SEGMENT_CREATION_META,
+              V1Constants.INDEX_MAP_FILE_NAME));
+      assertEquals(segmentDirectory.getSegmentMetadata().getTotalDocs(), NUM_ROWS);
+      assertEquals(segmentDirectory.getColumnsWithIndex(StandardIndexes.dictionary()),
+          Set.of(INT_COLUMN, STRING_COLUMN));
+      assertEquals(indexCache.size(), 0);
+
+      assertTrue(reader.hasIndexFor(INT_COLUMN, StandardIndexes.dictionary()));
+      assertFalse(reader.hasIndexFor(RAW_LONG_COLUMN, StandardIndexes.dictionary()));
+      // The index is fetched on first read
+      PinotDataBuffer intForwardIndex = reader.getIndexFor(INT_COLUMN, StandardIndexes.forward());
+      PinotDataBuffer intForwardIndexView = intForwardIndex.view(4, 12);
+      assertEquals(indexCache.size(), 0);
+      assertBufferEquals(intForwardIndex, localReader.getIndexFor(INT_COLUMN, StandardIndexes.forward()));
+      assertEquals(indexCache.size(), 1);
+      assertBufferEquals(intForwardIndexView,
+          localReader.getIndexFor(INT_COLUMN, StandardIndexes.forward()).view(4, 12));
+      // Fetched only once
+      assertBufferEquals(reader.getIndexFor(INT_COLUMN, StandardIndexes.forward()),
+          localReader.getIndexFor(INT_COLUMN, StandardIndexes.forward()));
+      assertEquals(indexCache.size(), 1);
+      assertBufferEquals(reader.getIndexFor(INT_COLUMN, StandardIndexes.dictionary()),
+          localReader.getIndexFor(INT_COLUMN, StandardIndexes.dictionary()));
+      assertBufferEquals(reader.getIndexFor(STRING_COLUMN, StandardIndexes.dictionary()),
+          localReader.getIndexFor(STRING_COLUMN, StandardIndexes.dictionary()));
+      assertEquals(indexCache.size(), 3);
+
+      assertThrows(UnsupportedOperationException.class, segmentDirectory::createWriter);
+    }
+    indexCache.invalidateAll();
+  }
+
+  @Test
+  public void testLoadSegment()
+      throws Exception {
+    DeepStoreIndexCache indexCache = new DeepStoreIndexCache(CACHE_DIR, 1024 * 1024);
+    IndexLoadingConfig indexLoadingConfig = new IndexLoadingConfig(_tableConfig, _schema);
+    SegmentDirectory segmentDirectory =
+        new DeepStoreSegmentDirectory(new File(LOCAL_DIR, "testLoadSegment"), _remoteDir, new LocalPinotFS(),
+            indexCache, ReadMode.mmap);
+    ImmutableSegment segment = ImmutableSegmentLoader.load(segmentDirectory, indexLoadingConfig);
+    // Only the indexes read by the index readers while loading are fetched
+    int numIndexes = segmentDirectory.getColumnsWithIndex(StandardIndexes.forward()).size()
+        + segmentDirectory.getColumnsWithIndex(StandardIndexes.dictionary()).size();
+    assertTrue(indexCache.size() < numIndexes);
+    ImmutableSegment localSegment = ImmutableSegmentLoader.load(_segmentDir, indexLoadingConfig);
+    try (PinotSegmentRecordReader recordReader = new PinotSegmentRecordReader();
+        PinotSegmentRecordReader localRecordReader = new PinotSegmentRecordReader()) {
+      recordReader.init(segment);
+      localRecordReader.init(localSegment);
+      for (int i = 0; i < NUM_ROWS; i++) {
+        assertEquals(recordReader.next(), localRecordReader.next());
+      }
+      assertFalse(recordReader.hasNext());
+    } finally {
+      segment.destroy();
+      localSegment.destroy();
+      indexCache.invalidateAll();
+    }
+  }
+
+  @Test
+  public void testEviction()
+      throws Exception {
+    long maxIndexSize;
+    try (SegmentDirectory localSegmentDirectory = new SegmentLocalFSDirectory(_segmentDir, ReadMode.mmap);
+        SegmentDirectory.Reader localReader = localSegmentDirectory.createReader()) {
+      maxIndexSize = Math.max(localReader.getIndexFor(RAW_LONG_COLUMN, StandardIndexes.forward()).size(),
+          localReader.getIndexFor(STRING_COLUMN, StandardIndexes.dictionary()).size());
+    }
+    // Only room for a single index
+    DeepStoreIndexCache indexCache = new DeepStoreIndexCache(CACHE_DIR, maxIndexSize + 100);
+    try (SegmentDirectory localSegmentDirectory = new SegmentLocalFSDirectory(_segmentDir, ReadMode.mmap);
+        SegmentDirectory.Reader localReader = localSegmentDirectory.createReader();
+        SegmentDirectory segmentDirectory = new DeepStoreSegmentDirectory(new File(LOCAL_DIR, "testEviction"),
+            _remoteDir, new LocalPinotFS(), indexCache, ReadMode.mmap);
+        SegmentDirectory.Reader reader = segmentDirectory.createReader()) {
+      String cacheKeyPrefix =
+          DeepStoreSegmentDirectory.getCacheKeyPrefix(SEGMENT_NAME, segmentDirectory.getSegmentMetadata().getCrc());
+      String longForwardIndexKey = cacheKeyPrefix + new IndexKey(RAW_LONG_COLUMN, StandardIndexes.forward());
+      String stringDictionaryKey = cacheKeyPrefix + new IndexKey(STRING_COLUMN, StandardIndexes.dictionary());
+      PinotDataBuffer longForwardIndex = reader.getIndexFor(RAW_LONG_COLUMN, StandardIndexes.forward());
+      PinotDataBuffer stringDictionary = reader.getIndexFor(STRING_COLUMN, StandardIndexes.dictionary());
+      PinotDataBuffer localLongForwardIndex = localReader.getIndexFor(RAW_LONG_COLUMN, StandardIndexes.forward());
+      PinotDataBuffer localStringDictionary = localReader.getIndexFor(STRING_COLUMN, StandardIndexes.dictionary());
+      assertBufferEquals(longForwardIndex, localLongForwardIndex);
+      assertTrue(indexCache.contains(longForwardIndexKey));
+
+      // Indexes are only protected while being read, so they can be evicted and fetched again while the segment is
+      // loaded
+      assertBufferEquals(stringDictionary, localStringDictionary);
+      assertEquals(indexCache.size(), 1);
+      assertTrue(indexCache.contains(stringDictionaryKey));
+      assertBufferEquals(longForwardIndex, localLongForwardIndex);
+      assertEquals(indexCache.size(), 1);
+      assertTrue(indexCache.contains(longForwardIndexKey));
+      assertEquals(CACHE_DIR.list().length, 1);
+
+      // Buffers escaping the reads are copied out of the cached index, which can still be evicted
+      ByteBuffer byteBuffer = longForwardIndex.toDirectByteBuffer(0, Long.BYTES);
+      assertBufferEquals(stringDictionary, localStringDictionary);
+      assertEquals(indexCache.size(), 1);
+      assertFalse(indexCache.contains(longForwardIndexKey));
+      assertEquals(byteBuffer.getLong(0), localLongForwardIndex.getLong(0));
+      assertEquals(indexCache.sizeInBytes(),
+          stringDictionary.size() + SingleFileIndexDirectory.MAGIC_MARKER_SIZE_BYTES);
+      assertEquals(CACHE_DIR.list().length, 1);
+    }
+    // Indexes stay cached after the segment directory is closed until they get evicted
+    assertEquals(CACHE_DIR.list().length, 1);
+    indexCache.invalidateAll();
+    assertEquals(CACHE_DIR.list().length, 0);
+    assertEquals(indexCache.sizeInBytes(), 0);
+  }
+
+  @Test
+  public void testEvictionWhileReading()
+      throws Exception {
+    // Only room for a single index, and fail the fetches right away when there is no room
+    File cacheDir = new File(TEMP_DIR, "testEvictionWhileReading");
+    DeepStoreIndexCache indexCache = new DeepStoreIndexCache(cacheDir, Long.BYTES, 0);
+    DeepStoreIndexCache.CachedIndex index1 = acquireLongIndex(indexCache, "index1", 1L);
+    DeepStoreIndexCache.ReadSlot readSlot = DeepStoreIndexCache.ReadSlot.get();
+    assertTrue(readSlot.protect(index1));
+    try {
+      // The index being read is evicted, but not closed until the read is done, and still counts against the max size
+      assertThrows(IOException.class, () -> acquireLongIndex(indexCache, "index2", 2L));
+      assertFalse(indexCache.contains("index1"));
+      assertEquals(index1.getBuffer().getLong(0), 1L);
+      assertEquals(indexCache.sizeInBytes(), Long.BYTES);
+      assertEquals(cacheDir.list().length, 1);
+    } finally {
+      readSlot.clear();
+    }
+    // Evicted index can no longer be read, and is closed on the next fetch
+    assertFalse(readSlot.protect(index1));
+    DeepStoreIndexCache.CachedIndex index2 = acquireLongIndex(indexCache, "index2", 2L);
+    assertEquals(index2.getBuffer().getLong(0), 2L);
+    assertEquals(indexCache.sizeInBytes(), Long.BYTES);
+    assertEquals(cacheDir.list().length, 1);
+    // Index larger than the cache can never be fetched
+    assertThrows(IOException.class, () -> indexCache.acquire("large", Long.BYTES + 1, destFile -> {
+    }, file -> null));
+    indexCache.invalidateAll();
+    assertEquals(indexCache.sizeInBytes(), 0);
+    assertEquals(cacheDir.list().length, 0);
+  }
+
+  @Test
+  public void testFetchWaitsForReads()
+      throws Exception {
+    File cacheDir = new File(TEMP_DIR, "testFetchWaitsForReads");
+    DeepStoreIndexCache indexCache = new DeepStoreIndexCache(cacheDir, Long.BYTES);
+    DeepStoreIndexCache.CachedIndex index1 = acquireLongIndex(indexCache, "index1", 1L);
+    CountDownLatch protectedLatch = new CountDownLatch(1);
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      // Read the index on another thread, and finish the read after the fetch of the next index starts waiting
+      Future<Long> future = executorService.submit(() -> {
+        DeepStoreIndexCache.ReadSlot readSlot = DeepStoreIndexCache.ReadSlot.get();
+        assertTrue(readSlot.protect(index1));
+        try {
+          protectedLatch.countDown();
+          Thread.sleep(100);
+          return index1.getBuffer().getLong(0);
+        } finally {
+          readSlot.clear();
+        }
+      });
+      protectedLatch.await();
+      DeepStoreIndexCache.CachedIndex index2 = acquireLongIndex(indexCache, "index2", 2L);
+      assertEquals(future.get(), 1L);
+      assertEquals(index2.getBuffer().getLong(0), 2L);
+      assertEquals(indexCache.sizeInBytes(), Long.BYTES);
+      assertEquals(cacheDir.list().length, 1);
+    } finally {
+      executorService.shutdownNow();
+      indexCache.invalidateAll();
+    }
+  }
+
+  /**
+   * Acquires an index holding the given long value from the given cache.
+   */
+  private static DeepStoreIndexCache.CachedIndex acquireLongIndex(DeepStoreIndexCache indexCache, String key,
+      long value)
+      throws IOException {
+    return indexCache.acquire(key, Long.BYTES,
+        destFile -> FileUtils.writeByteArrayToFile(destFile, ByteBuffer.allocate(Long.BYTES).putLong(value).array()),
+        file -> PinotDataBuffer.loadFile(file, 0, Long.BYTES, ByteOrder.BIG_ENDIAN, "testIndex"));
+  }
+
+  @Test
+  public void testLruOrder()
+      throws Exception {
+    long intForwardIndexSize;
+    long intDictionarySize;
+    long stringDictionarySize;
+    try (SegmentDirectory localSegmentDirectory = new SegmentLocalFSDirectory(_segmentDir, ReadMode.mmap);
+        SegmentDirectory.Reader localReader = localSegmentDirectory.createReader()) {
+      intForwardIndexSize = localReader.getIndexFor(INT_COLUMN, StandardIndexes.forward()).size();
+      intDictionarySize = localReader.getIndexFor(INT_COLUMN, StandardIndexes.dictionary()).size();
+      stringDictionarySize = localReader.getIndexFor(STRING_COLUMN, StandardIndexes.dictionary()).size();
+    }
+    // Room for only two of the indexes (the cached buffers include the magic marker)
+    long markerSize = SingleFileIndexDirectory.MAGIC_MARKER_SIZE_BYTES;
+    DeepStoreIndexCache indexCache = new DeepStoreIndexCache(CACHE_DIR,
+        intForwardIndexSize + Math.max(intDictionarySize, stringDictionarySize) + 2 * markerSize);
+    File localDir = new File(LOCAL_DIR, "testLruOrder");
+    readIndex(indexCache, localDir, INT_COLUMN, StandardIndexes.forward());
+    readIndex(indexCache, localDir, INT_COLUMN, StandardIndexes.dictionary());
+    // Reading an index again should refresh its LRU order
+    readIndex(indexCache, localDir, INT_COLUMN, StandardIndexes.forward());
+    String cacheKeyPrefix = readIndex(indexCache, localDir, STRING_COLUMN, StandardIndexes.dictionary());
+    assertTrue(indexCache.contains(cacheKeyPrefix + new IndexKey(INT_COLUMN, StandardIndexes.forward())));
+    assertFalse(indexCache.contains(cacheKeyPrefix + new IndexKey(INT_COLUMN, StandardIndexes.dictionary())));
+    assertTrue(indexCache.contains(cacheKeyPrefix + new IndexKey(STRING_COLUMN, StandardIndexes.dictionary())));
+    indexCache.invalidateAll();
+    assertEquals(CACHE_DIR.list().length, 0);
+  }
+
+  /**
+   * Reads the first byte of the given index from a new segment directory, and returns the cache key prefix of the
+   * segment.
+   */
+  private String readIndex(DeepStoreIndexCache indexCache, File localDir, String column, IndexType<?, ?, ?> type)
+      throws Exception {
+    try (SegmentDirectory segmentDirectory = new DeepStoreSegmentDirectory(localDir, _remoteDir, new LocalPinotFS(),
+        indexCache, ReadMode.heap);
+        SegmentDirectory.Reader reader = segmentDirectory.createReader()) {
+      reader.getIndexFor(column, type).getByte(0);
+      return DeepStoreSegmentDirectory.getCacheKeyPrefix(SEGMENT_NAME, segmentDirectory.getSegmentMetadata().getCrc());
+    }
+  }
+
+  @Test
+  public void testReuseLocalMetadata()
+      throws Exception {
+    DeepStoreIndexCache indexCache = new DeepStoreIndexCache(CACHE_DIR, 1024 * 1024);
+    File localDir = new File(LOCAL_DIR, "testReuseLocalMetadata");
+    new DeepStoreSegmentDirectory(localDir, _remoteDir, new LocalPinotFS(), indexCache, ReadMode.heap).close();
+    File markerFile = new File(localDir, "marker");
+    FileUtils.touch(markerFile);
+    // Metadata is unchanged in the deep store, so the local directory is kept
+    new DeepStoreSegmentDirectory(localDir, _remoteDir, new LocalPinotFS(), indexCache, ReadMode.heap).close();
+    assertTrue(markerFile.exists());
+    // Stale metadata is downloaded again
+    FileUtils.write(new File(localDir, V1Constants.MetadataKeys.METADATA_FILE_NAME), "stale", "UTF-8");
+    try (SegmentDirectory segmentDirectory = new DeepStoreSegmentDirectory(localDir, _remoteDir, new LocalPinotFS(),
+        indexCache, ReadMode.heap)) {
+      assertFalse(markerFile.exists());
+      assertEquals(segmentDirectory.getSegmentMetadata().getName(), SEGMENT_NAME);
+    }
+  }
+
+  private static void assertBufferEquals(PinotDataBuffer actual, PinotDataBuffer expected) {
+    assertEquals(actual.size(), expected.size());
+    for (long i = 0; i < expected.size(); i++) {
+      assertEquals(actual.getByte(i), expected.getByte(i));
+    }
+  }
+}
@@ -0,0 +1,421 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.upsert;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.commons.io.FileUtils;
+import org.apache.pinot.common.metrics.ServerMetrics;
+import org.apache.pinot.common.utils.LLCSegmentName;
+import org.apache.pinot.segment.local.data.manager.TableDataManager;
+import org.apache.pinot.segment.local.indexsegment.immutable.ImmutableSegmentImpl;
+import org.apache.pinot.segment.local.upsert.ConcurrentMapPartitionUpsertMetadataManager.RecordLocation;
+import org.apache.pinot.segment.spi.IndexSegment;
+import org.apache.pinot.segment.spi.MutableSegment;
+import org.apache.pinot.segment.spi.datasource.DataSource;
+import org.apache.pinot.segment.spi.index.metadata.SegmentMetadataImpl;
+import org.apache.pinot.segment.spi.index.mutable.ThreadSafeMutableRoaringBitmap;
+import org.apache.pinot.segment.spi.index.reader.ForwardIndexReader;
+import org.apache.pinot.spi.config.table.HashFunction;
+import org.apache.pinot.spi.config.table.TableConfig;
+import org.apache.pinot.spi.data.FieldSpec.DataType;
+import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.PrimaryKey;
+import org.apache.pinot.spi.utils.builder.TableNameBuilder;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+
+public class OffHeapPartitionUpsertMetadataManagerTest {
+  private static final String RAW_TABLE_NAME = "testTable";
+  private static final String REALTIME_TABLE_NAME = TableNameBuilder.REALTIME.tableNameWithType(RAW_TABLE_NAME);
+  private static final List<String> PRIMARY_KEY_COLUMNS = List.of("pk");
+  private static final List<String> COMPARISON_COLUMNS = List.of("timeCol");
+  private static final File INDEX_DIR =
+      new File(FileUtils.getTempDirectory(), "OffHeapPartitionUpsertMetadataManagerTest");
+
+  private UpsertContext.Builder _contextBuilder;
+
+  @BeforeClass
+  public void setUp()
+      throws IOException {
+    FileUtils.forceMkdir(INDEX_DIR);
+    ServerMetrics.register(mock(ServerMetrics.class));
+  }
+
+  @BeforeMethod
+  public void setUpContextBuilder() {
+    TableDataManager tableDataManager = mock(TableDataManager.class);
+    when(tableDataManager.getTableDataDir()).thenReturn(INDEX_DIR);
+    Schema schema = new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME)
+        .addSingleValueDimension("pk", DataType.INT)
+        .addMetric("timeCol", DataType.INT)
+        .setPrimaryKeyColumns(PRIMARY_KEY_COLUMNS)
+        .build();
+    _contextBuilder = new UpsertContext.Builder()
+        .setTableConfig(mock(TableConfig.class))
+        .setSchema(schema)
+        .setTableDataManager(tableDataManager)
+        .setPrimaryKeyColumns(PRIMARY_KEY_COLUMNS)
+        .setComparisonColumns(COMPARISON_COLUMNS);
+  }
+
+  @AfterClass
+  public void tearDown()
+      throws IOException {
+    FileUtils.forceDelete(INDEX_DIR);
+  }
+
+  @Test
+  public void testComparisonValueEncoding() {
+    Schema schema = new Schema.SchemaBuilder().setSchemaName(RAW_TABLE_NAME)
+        .addSingleValueDimension("pk", DataType.INT)
+        .addMetric("timeCol", DataType.DOUBLE)
+        .setPrimaryKeyColumns(PRIMARY_KEY_COLUMNS)
+        .build();
+    OffHeapPartitionUpsertMetadataManager upsertMetadataManager =
+        new OffHeapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0,
+            _contextBuilder.setSchema(schema).setHashFunction(HashFunction.NONE).build());
+    Double[] values = {Double.NEGATIVE_INFINITY, -1e10, -1.5, -0.0, 0.0, 1e-10, 2.5, 1e10, Double.POSITIVE_INFINITY};
+    for (int i = 0; i < values.length; i++) {
+      long encodedValue = upsertMetadataManager.encodeComparisonValue(values[i]);
+      assertEquals(upsertMetadataManager.decodeComparisonValue(encodedValue), values[i]);
+      if (i > 0) {
+        assertTrue(encodedValue > upsertMetadataManager.encodeComparisonValue(values[i - 1]));
+      }
+    }
+  }
+
+  @Test
+  public void testAddReplaceRemoveSegment()
+      throws IOException {
+    verifyAddReplaceRemoveSegment(HashFunction.NONE);
+    verifyAddReplaceRemoveSegment(HashFunction.MD5);
+    verifyAddReplaceRemoveSegment(HashFunction.MURMUR3);
+    verifyAddReplaceRemoveSegment(HashFunction.UUID);
+  }
+
+  private void verifyAddReplaceRemoveSegment(HashFunction hashFunction)
+      throws IOException {
+    OffHeapPartitionUpsertMetadataManager upsertMetadataManager =
+        new OffHeapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0,
+            _contextBuilder.setHashFunction(hashFunction).build());
+
+    // Add the first segment
+    int[] primaryKeys = new int[]{0, 1, 2, 0, 1, 0};
+    int[] timestamps = new int[]{100, 100, 100, 80, 120, 100};
+    ThreadSafeMutableRoaringBitmap validDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    List<PrimaryKey> primaryKeys1 = getPrimaryKeyList(primaryKeys);
+    ImmutableSegmentImpl segment1 = mockImmutableSegment(1, validDocIds1, primaryKeys1);
+    List<RecordInfo> recordInfoList1 = getRecordInfoList(primaryKeys, timestamps);
+    upsertMetadataManager.addSegment(segment1, validDocIds1, null, recordInfoList1.iterator());
+    upsertMetadataManager._trackedSegments.add(segment1);
+    // segment1: 0 -> {5, 100}, 1 -> {4, 120}, 2 -> {2, 100}
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 3);
+    checkRecordLocation(upsertMetadataManager, 0, segment1, 5, 100);
+    checkRecordLocation(upsertMetadataManager, 1, segment1, 4, 120);
+    checkRecordLocation(upsertMetadataManager, 2, segment1, 2, 100);
+    assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{2, 4, 5});
+
+    // Add the second segment
+    primaryKeys = new int[]{0, 1, 2, 3, 0};
+    timestamps = new int[]{100, 100, 120, 80, 80};
+    ThreadSafeMutableRoaringBitmap validDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment2 = mockImmutableSegment(2, validDocIds2, getPrimaryKeyList(primaryKeys));
+    upsertMetadataManager.addSegment(segment2, validDocIds2, null,
+        getRecordInfoList(primaryKeys, timestamps).iterator());
+    upsertMetadataManager._trackedSegments.add(segment2);
+    // segment1: 1 -> {4, 120}
+    // segment2: 0 -> {0, 100}, 2 -> {2, 120}, 3 -> {3, 80}
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 4);
+    checkRecordLocation(upsertMetadataManager, 0, segment2, 0, 100);
+    checkRecordLocation(upsertMetadataManager, 1, segment1, 4, 120);
+    checkRecordLocation(upsertMetadataManager, 2, segment2, 2, 120);
+    checkRecordLocation(upsertMetadataManager, 3, segment2, 3, 80);
+    assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{4});
+    assertEquals(validDocIds2.getMutableRoaringBitmap().toArray(), new int[]{0, 2, 3});
+
+    // Replace (reload) the first segment
+    ThreadSafeMutableRoaringBitmap newValidDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl newSegment1 = mockImmutableSegment(1, newValidDocIds1, primaryKeys1);
+    upsertMetadataManager.replaceSegment(newSegment1, newValidDocIds1, null, recordInfoList1.iterator(), segment1);
+    upsertMetadataManager._trackedSegments.add(newSegment1);
+    upsertMetadataManager._trackedSegments.remove(segment1);
+    // segment2: 0 -> {0, 100}, 2 -> {2, 120}, 3 -> {3, 80}
+    // new segment1: 1 -> {4, 120}
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 4);
+    checkRecordLocation(upsertMetadataManager, 0, segment2, 0, 100);
+    checkRecordLocation(upsertMetadataManager, 1, newSegment1, 4, 120);
+    checkRecordLocation(upsertMetadataManager, 2, segment2, 2, 120);
+    checkRecordLocation(upsertMetadataManager, 3, segment2, 3, 80);
+    assertEquals(newValidDocIds1.getMutableRoaringBitmap().toArray(), new int[]{4});
+
+    // Remove the original segment1, should be no-op
+    upsertMetadataManager.removeSegment(segment1);
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 4);
+    checkRecordLocation(upsertMetadataManager, 1, newSegment1, 4, 120);
+
+    // Remove segment2
+    upsertMetadataManager.removeSegment(segment2);
+    // new segment1: 1 -> {4, 120}
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 1);
+    assertNull(upsertMetadataManager.getRecordLocation(makePrimaryKey(0)));
+    checkRecordLocation(upsertMetadataManager, 1, newSegment1, 4, 120);
+    assertEquals(validDocIds2.getMutableRoaringBitmap().toArray(), new int[]{0, 2, 3});
+
+    // Stop and close the metadata manager
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+    assertEquals(upsertMetadataManager._primaryKeyToRecordLocationMap.getOffHeapMemoryUsed(), 0);
+  }
+
+  @Test
+  public void testAddRecord()
+      throws IOException {
+    OffHeapPartitionUpsertMetadataManager upsertMetadataManager =
+        new OffHeapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0,
+            _contextBuilder.setHashFunction(HashFunction.MURMUR3).build());
+
+    // segment1: 0 -> {0, 100}, 1 -> {1, 120}, 2 -> {2, 100}
+    int[] primaryKeys = new int[]{0, 1, 2};
+    int[] timestamps = new int[]{100, 120, 100};
+    ThreadSafeMutableRoaringBitmap validDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment1 = mockImmutableSegment(1, validDocIds1, getPrimaryKeyList(primaryKeys));
+    upsertMetadataManager.addSegment(segment1, validDocIds1, null,
+        getRecordInfoList(primaryKeys, timestamps).iterator());
+
+    ThreadSafeMutableRoaringBitmap validDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    MutableSegment segment2 = mockMutableSegment(2, validDocIds2);
+    assertTrue(upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(3), 0, 100, false)));
+    assertTrue(upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(2), 1, 120, false)));
+    // Out-of-order record
+    assertFalse(upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(1), 2, 100, false)));
+    // Tie should keep the newer record
+    assertTrue(upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(0), 3, 100, false)));
+
+    // segment1: 1 -> {1, 120}
+    // segment2: 0 -> {3, 100}, 2 -> {1, 120}, 3 -> {0, 100}
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 4);
+    checkRecordLocation(upsertMetadataManager, 0, segment2, 3, 100);
+    checkRecordLocation(upsertMetadataManager, 1, segment1, 1, 120);
+    checkRecordLocation(upsertMetadataManager, 2, segment2, 1, 120);
+    checkRecordLocation(upsertMetadataManager, 3, segment2, 0, 100);
+    assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{1});
+    assertEquals(validDocIds2.getMutableRoaringBitmap().toArray(), new int[]{0, 1, 3});
+
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+  }
+
+  @Test
+  public void testRemoveExpiredPrimaryKeys()
+      throws IOException {
+    OffHeapPartitionUpsertMetadataManager upsertMetadataManager =
+        new OffHeapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0,
+            _contextBuilder.setHashFunction(HashFunction.NONE).setEnableSnapshot(true).setMetadataTTL(30).build());
+
+    int[] primaryKeys = new int[]{0, 1, 2, 3};
+    int[] timestamps = new int[]{100, 100, 120, 80};
+    ThreadSafeMutableRoaringBitmap validDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment1 = mockImmutableSegment(1, validDocIds1, getPrimaryKeyList(primaryKeys));
+    upsertMetadataManager.addSegment(segment1, validDocIds1, null,
+        getRecordInfoList(primaryKeys, timestamps).iterator());
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 4);
+
+    // Move the watermark to 120, and records before 90 are expired
+    ThreadSafeMutableRoaringBitmap validDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    MutableSegment segment2 = mockMutableSegment(2, validDocIds2);
+    upsertMetadataManager.addRecord(segment2, new RecordInfo(makePrimaryKey(10), 0, 120, false));
+    assertEquals(upsertMetadataManager.getWatermark(), 120.0);
+    upsertMetadataManager.removeExpiredPrimaryKeys();
+    assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 4);
+    assertNull(upsertMetadataManager.getRecordLocation(makePrimaryKey(3)));
+    checkRecordLocation(upsertMetadataManager, 0, segment1, 0, 100);
+    checkRecordLocation(upsertMetadataManager, 10, segment2, 0, 120);
+    // ValidDocIds for out-of-ttl records should not be removed.
+    assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{0, 1, 2, 3});
+
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+  }
+
+  @Test
+  public void testKeyMapSnapshot()
+      throws IOException {
+    TableDataManager tableDataManager = mock(TableDataManager.class);
+    when(tableDataManager.getTableDataDir()).thenReturn(INDEX_DIR);
+    when(tableDataManager.getSegmentLock(anyString())).thenReturn(new ReentrantLock());
+    UpsertContext upsertContext = _contextBuilder.setTableDataManager(tableDataManager)
+        .setHashFunction(HashFunction.MD5)
+        .setEnableSnapshot(true)
+        .setMetadataManagerConfigs(Map.of(OffHeapPartitionUpsertMetadataManager.ENABLE_KEY_MAP_SNAPSHOT_KEY, "true"))
+        .build();
+    OffHeapPartitionUpsertMetadataManager upsertMetadataManager =
+        new OffHeapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, upsertContext);
+
+    // segment1: 1 -> {1, 120}
+    // segment2: 0 -> {0, 100}, 2 -> {2, 120}, 3 -> {3, 80}
+    int[] primaryKeys1 = new int[]{0, 1, 2};
+    int[] timestamps1 = new int[]{100, 120, 100};
+    ThreadSafeMutableRoaringBitmap validDocIds1 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment1 = mockImmutableSegment(1, validDocIds1, getPrimaryKeyList(primaryKeys1));
+    upsertMetadataManager.addSegment(segment1, validDocIds1, null,
+        getRecordInfoList(primaryKeys1, timestamps1).iterator());
+    upsertMetadataManager._trackedSegments.add(segment1);
+    int[] primaryKeys2 = new int[]{0, 1, 2, 3};
+    int[] timestamps2 = new int[]{100, 100, 120, 80};
+    ThreadSafeMutableRoaringBitmap validDocIds2 = new ThreadSafeMutableRoaringBitmap();
+    ImmutableSegmentImpl segment2 = mockImmutableSegment(2, validDocIds2, getPrimaryKeyList(primaryKeys2));
+    upsertMetadataManager.addSegment(segment2, validDocIds2, null,
+        getRecordInfoList(primaryKeys2, timestamps2).iterator());
+    upsertMetadataManager._trackedSegments.add(segment2);
+    // Keys in the consuming segment should not be persisted
+    MutableSegment segment3 = mockMutableSegment(3, new ThreadSafeMutableRoaringBitmap());
+    upsertMetadataManager.addRecord(segment3, new RecordInfo(makePrimaryKey(4), 0, 150, false));
+    upsertMetadataManager._trackedSegments.add(segment3);
+    assertEquals(validDocIds1.getMutableRoaringBitmap().toArray(), new int[]{1});
+    assertEquals(validDocIds2.getMutableRoaringBitmap().toArray(), new int[]{0, 2, 3});
+
+    upsertMetadataManager.doTakeSnapshot();
+    File keyMapSnapshotFile = upsertMetadataManager.getKeyMapSnapshotFile();
+    assertTrue(keyMapSnapshotFile.exists());
+    // Key map snapshot should not be rewritten within the min interval
+    File keyMapSnapshotBackupFile = new File(INDEX_DIR, "keyMapSnapshotBackup");
+    FileUtils.moveFile(keyMapSnapshotFile, keyMapSnapshotBackupFile);
+    upsertMetadataManager.doTakeSnapshot();
+    assertFalse(keyMapSnapshotFile.exists());
+    FileUtils.moveFile(keyMapSnapshotBackupFile, keyMapSnapshotFile);
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+
+    // Restore the segments after restart
+    upsertMetadataManager = new OffHeapPartitionUpsertMetadataManager(REALTIME_TABLE_NAME, 0, upsertContext);
+    try (UpsertKeyMapSnapshot keyMapSnapshot = UpsertKeyMapSnapshot.load(keyMapSnapshotFile)) {
+      assertEquals(keyMapSnapshot.getNumSegments(), 2);
+
+      // ValidDocIds snapshot does not match the key map snapshot
+      ImmutableSegmentImpl newSegment1 =
+          mockImmutableSegment(1, new ThreadSafeMutableRoaringBitmap(), getPrimaryKeyList(primaryKeys1));
+      when(newSegment1.loadValidDocIdsFromSnapshot()).thenReturn(MutableRoaringBitmap.bitmapOf(0, 1));
+      assertFalse(upsertMetadataManager.restoreSegmentFromKeyMapSnapshot(keyMapSnapshot, newSegment1));
+      when(newSegment1.loadValidDocIdsFromSnapshot()).thenReturn(MutableRoaringBitmap.bitmapOf(1));
+      assertTrue(upsertMetadataManager.restoreSegmentFromKeyMapSnapshot(keyMapSnapshot, newSegment1));
+
+      // Segment changed since the snapshot
+      ImmutableSegmentImpl newSegment2 =
+          mockImmutableSegment(2, new ThreadSafeMutableRoaringBitmap(), getPrimaryKeyList(primaryKeys2));
+      when(newSegment2.loadValidDocIdsFromSnapshot()).thenReturn(MutableRoaringBitmap.bitmapOf(0, 2, 3));
+      when(newSegment2.getSegmentMetadata().getCrc()).thenReturn("-1");
+      assertFalse(upsertMetadataManager.restoreSegmentFromKeyMapSnapshot(keyMapSnapshot, newSegment2));
+      when(newSegment2.getSegmentMetadata().getCrc()).thenReturn("2");
+      assertTrue(upsertMetadataManager.restoreSegmentFromKeyMapSnapshot(keyMapSnapshot, newSegment2));
+
+      assertEquals(upsertMetadataManager.getNumPrimaryKeys(), 4);
+      checkRecordLocation(upsertMetadataManager, 0, newSegment2, 0, 100);
+      checkRecordLocation(upsertMetadataManager, 1, newSegment1, 1, 120);
+      checkRecordLocation(upsertMetadataManager, 2, newSegment2, 2, 120);
+      checkRecordLocation(upsertMetadataManager, 3, newSegment2, 3, 80);
+      assertNull(upsertMetadataManager.getRecordLocation(makePrimaryKey(4)));
+    }
+
+    upsertMetadataManager.stop();
+    upsertMetadataManager.close();
+  }
+
+  private static List<RecordInfo> getRecordInfoList(int[] primaryKeys, int[] timestamps) {
+    List<RecordInfo> recordInfoList = new ArrayList<>();
+    for (int i = 0; i < primaryKeys.length; i++) {
+      recordInfoList.add(new RecordInfo(makePrimaryKey(primaryKeys[i]), i, timestamps[i], false));
+    }
+    return recordInfoList;
+  }
+
+  private static List<PrimaryKey> getPrimaryKeyList(int[] primaryKeys) {
+    List<PrimaryKey> primaryKeyList = new ArrayList<>();
+    for (int primaryKey : primaryKeys) {
+      primaryKeyList.add(makePrimaryKey(primaryKey));
+    }
+    return primaryKeyList;
+  }
+
+  private static ImmutableSegmentImpl mockImmutableSegment(int sequenceNumber,
+      ThreadSafeMutableRoaringBitmap validDocIds, List<PrimaryKey> primaryKeys) {
+    ImmutableSegmentImpl segment = mock(ImmutableSegmentImpl.class);
+    when(segment.getSegmentName()).thenReturn(getSegmentName(sequenceNumber));
+    when(segment.getValidDocIds()).thenReturn(validDocIds);
+    DataSource dataSource = mock(DataSource.class);
+    when(segment.getDataSource(anyString())).thenReturn(dataSource);
+    ForwardIndexReader forwardIndex = mock(ForwardIndexReader.class);
+    when(forwardIndex.isSingleValue()).thenReturn(true);
+    when(forwardIndex.getStoredType()).thenReturn(DataType.INT);
+    when(forwardIndex.getInt(anyInt(), any())).thenAnswer(
+        invocation -> primaryKeys.get(invocation.getArgument(0)).getValues()[0]);
+    when(dataSource.getForwardIndex()).thenReturn(forwardIndex);
+    SegmentMetadataImpl segmentMetadata = mock(SegmentMetadataImpl.class);
+    long creationTimeMs = System.currentTimeMillis();
+    when(segmentMetadata.getIndexCreationTime()).thenReturn(creationTimeMs);
+    when(segmentMetadata.getZkCreationTime()).thenReturn(creationTimeMs);
+    when(segmentMetadata.getCrc()).thenReturn(Integer.toString(sequenceNumber));
+    when(segment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    return segment;
+  }
+
+  private static MutableSegment mockMutableSegment(int sequenceNumber, ThreadSafeMutableRoaringBitmap validDocIds) {
+    MutableSegment segment = mock(MutableSegment.class);
+    when(segment.getSegmentName()).thenReturn(getSegmentName(sequenceNumber));
+    when(segment.getValidDocIds()).thenReturn(validDocIds);
+    return segment;
+  }
+
+  private static String getSegmentName(int sequenceNumber) {
+    return new LLCSegmentName(RAW_TABLE_NAME, 0, sequenceNumber, System.currentTimeMillis()).toString();
+  }
+
+  private static PrimaryKey makePrimaryKey(int value) {
+    return new PrimaryKey(new Object[]{value});
+  }
+
+  private static void checkRecordLocation(OffHeapPartitionUpsertMetadataManager upsertMetadataManager, int keyValue,
+      IndexSegment segment, int docId, int comparisonValue) {
+    RecordLocation recordLocation = upsertMetadataManager.getRecordLocation(makePrimaryKey(keyValue));
+    assertNotNull(recordLocation);
+    assertSame(recordLocation.getSegment(), segment);
+    assertEquals(recordLocation.getDocId(), docId);
+    assertEquals(recordLocation.getComparisonValue(), comparisonValue);
+  }
+}
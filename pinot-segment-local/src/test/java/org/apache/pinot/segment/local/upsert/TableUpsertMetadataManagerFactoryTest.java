@@ -89,6 +89,23 @@ public class TableUpsertMetadataManagerFactoryTest {
         instanceof ConcurrentMapPartitionUpsertMetadataManagerForConsistentDeletes);
   }
 
+  @Test
+  public void testCreateForOffHeapManagerClass()
+      throws IOException {
+    UpsertConfig upsertConfig = new UpsertConfig(UpsertConfig.Mode.FULL);
+    upsertConfig.setMetadataManagerClass(OffHeapTableUpsertMetadataManager.class.getName());
+    TableDataManager tableDataManager = mock(TableDataManager.class);
+    when(tableDataManager.getTableDataDir()).thenReturn(new File(RAW_TABLE_NAME));
+    TableUpsertMetadataManager tableUpsertMetadataManager =
+        TableUpsertMetadataManagerFactory.create(new PinotConfiguration(), createTableConfig(upsertConfig), SCHEMA,
+            tableDataManager, null);
+    assertTrue(tableUpsertMetadataManager instanceof OffHeapTableUpsertMetadataManager);
+    assertTrue(tableUpsertMetadataManager.getOrCreatePartitionManager(0)
+        instanceof OffHeapPartitionUpsertMetadataManager);
+    tableUpsertMetadataManager.stop();
+    tableUpsertMetadataManager.close();
+  }
+
   @SuppressWarnings("deprecation")
   @Test
   public void testEnablePreload()
@@ -0,0 +1,156 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.local.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+
+public class OffHeapHashedKeyMapTest {
+  private static final int NUM_KEYS = 10_000;
+
+  private static long[] key(int value) {
+    byte[] hashedKey = HashUtils.hashMurmur3(Integer.toString(value).getBytes());
+    return new long[]{OffHeapHashedKeyMap.getKeyHigh(hashedKey), OffHeapHashedKeyMap.getKeyLow(hashedKey)};
+  }
+
+  @Test
+  public void testPutFindRemove()
+      throws IOException {
+    // Use tiny shards to exercise resizing and wrap-around probing
+    try (OffHeapHashedKeyMap map = new OffHeapHashedKeyMap(4, 2, "testPutFindRemove")) {
+      Map<Integer, long[]> expected = new HashMap<>();
+      Random random = new Random(42);
+      for (int i = 0; i < 5 * NUM_KEYS; i++) {
+        int value = random.nextInt(NUM_KEYS);
+        long[] key = key(value);
+        OffHeapHashedKeyMap.Shard shard = map.getShard(key[0], key[1]);
+        if (random.nextInt(4) == 0) {
+          int slot = shard.find(key[0], key[1]);
+          if (slot >= 0) {
+            shard.remove(slot);
+          }
+          expected.remove(value);
+        } else {
+          int segmentId = 1 + random.nextInt(100);
+          int docId = random.nextInt();
+          long comparisonValue = random.nextLong();
+          shard.put(key[0], key[1], segmentId, docId, comparisonValue);
+          expected.put(value, new long[]{segmentId, docId, comparisonValue});
+        }
+      }
+      assertEquals(map.size(), expected.size());
+      for (int value = 0; value < NUM_KEYS; value++) {
+        long[] key = key(value);
+        OffHeapHashedKeyMap.Shard shard = map.getShard(key[0], key[1]);
+        int slot = shard.find(key[0], key[1]);
+        long[] entry = expected.get(value);
+        if (entry == null) {
+          assertEquals(slot, -1);
+        } else {
+          assertTrue(slot >= 0);
+          assertEquals(shard.getSegmentId(slot), entry[0]);
+          assertEquals(shard.getDocId(slot), entry[1]);
+          assertEquals(shard.getValue(slot), entry[2]);
+        }
+      }
+      assertTrue(map.getOffHeapMemoryUsed() >= map.size() * OffHeapHashedKeyMap.ENTRY_SIZE);
+    }
+  }
+
+  @Test
+  public void testRemoveIf()
+      throws IOException {
+    try (OffHeapHashedKeyMap map = new OffHeapHashedKeyMap(2, 16, "testRemoveIf")) {
+      for (int value = 0; value < NUM_KEYS; value++) {
+        long[] key = key(value);
+        map.getShard(key[0], key[1]).put(key[0], key[1], 1, value, value);
+      }
+      Map<Integer, Integer> numVisits = new HashMap<>();
+      int numRemoved = 0;
+      for (int i = 0; i < map.getNumShards(); i++) {
+        numRemoved += map.getShardAt(i).removeIf((keyHigh, keyLow, segmentId, docId, value) -> {
+          numVisits.merge(docId, 1, Integer::sum);
+          return value % 3 == 0;
+        });
+      }
+      // Each entry should be visited exactly once
+      assertEquals(numVisits.size(), NUM_KEYS);
+      Iterator<Integer> iterator = numVisits.values().iterator();
+      while (iterator.hasNext()) {
+        assertEquals((int) iterator.next(), 1);
+      }
+      assertEquals(numRemoved, (NUM_KEYS + 2) / 3);
+      assertEquals(map.size(), NUM_KEYS - numRemoved);
+      for (int value = 0; value < NUM_KEYS; value++) {
+        long[] key = key(value);
+        int slot = map.getShard(key[0], key[1]).find(key[0], key[1]);
+        assertEquals(slot >= 0, value % 3 != 0);
+      }
+    }
+  }
+
+  @Test
+  public void testGetKeyHighAndLow() {
+    Random random = new Random();
+    for (int i = 0; i < 100; i++) {
+      byte[] hashedKey = new byte[16];
+      random.nextBytes(hashedKey);
+      ByteBuffer byteBuffer = ByteBuffer.wrap(hashedKey);
+      assertEquals(OffHeapHashedKeyMap.getKeyHigh(hashedKey), byteBuffer.getLong(0));
+      assertEquals(OffHeapHashedKeyMap.getKeyLow(hashedKey), byteBuffer.getLong(8));
+    }
+  }
+
+  @Test
+  public void testInitialCapacity()
+      throws IOException {
+    int numShards = 4;
+    int expectedNumKeys = 1000;
+    int initialCapacityPerShard = OffHeapHashedKeyMap.getInitialCapacityPerShard(expectedNumKeys, numShards);
+    assertTrue(initialCapacityPerShard * OffHeapHashedKeyMap.LOAD_FACTOR >= expectedNumKeys / numShards);
+    assertEquals(OffHeapHashedKeyMap.getInitialCapacityPerShard(0, numShards), 1);
+    try (OffHeapHashedKeyMap map = new OffHeapHashedKeyMap(numShards, initialCapacityPerShard, "testInitialCapacity")) {
+      long initialMemoryUsed = map.getOffHeapMemoryUsed();
+      assertEquals(initialMemoryUsed, (long) numShards * 512 * OffHeapHashedKeyMap.ENTRY_SIZE);
+      // Keys are not evenly distributed across the shards, so only put half of the expected keys to avoid resizing
+      for (int value = 0; value < expectedNumKeys / 2; value++) {
+        long[] key = key(value);
+        map.getShard(key[0], key[1]).put(key[0], key[1], 1, value, value);
+      }
+      assertEquals(map.getOffHeapMemoryUsed(), initialMemoryUsed);
+      // Grows on load factor
+      for (int value = expectedNumKeys / 2; value < 4 * expectedNumKeys; value++) {
+        long[] key = key(value);
+        map.getShard(key[0], key[1]).put(key[0], key[1], 1, value, value);
+      }
+      assertTrue(map.getOffHeapMemoryUsed() > initialMemoryUsed);
+      map.close();
+      assertEquals(map.getOffHeapMemoryUsed(), 0);
+    }
+  }
+}
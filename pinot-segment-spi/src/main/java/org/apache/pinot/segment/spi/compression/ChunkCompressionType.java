@@ -19,20 +19,41 @@
 package org.apache.pinot.segment.spi.compression;
 
 public enum ChunkCompressionType {
-  PASS_THROUGH(0), SNAPPY(1), ZSTANDARD(2), LZ4(3), LZ4_LENGTH_PREFIXED(4), GZIP(5);
+  PASS_THROUGH(0), SNAPPY(1), ZSTANDARD(2), LZ4(3), LZ4_LENGTH_PREFIXED(4), GZIP(5),
+
+  // Lightweight numeric encodings, only applicable to chunks of fixed width values (INT, LONG, FLOAT, DOUBLE):
+  // - DELTA: First value followed by the bit-packed deltas between consecutive values
+  // - DELTADELTA: First value and first delta followed by the bit-packed deltas between consecutive deltas
+  // - FOR: Frame-of-reference, values bit-packed as offsets from the minimum value
+  // - XOR: Gorilla-style XOR encoding of consecutive values, which is suitable for floating point values
+  DELTA(6, true), DELTADELTA(7, true), FOR(8, true), XOR(9, true);
 
   private static final ChunkCompressionType[] VALUES = values();
 
   private final int _value;
+  private final boolean _fixedWidthValuesOnly;
 
   ChunkCompressionType(int value) {
+    this(value, false);
+  }
+
+  ChunkCompressionType(int value, boolean fixedWidthValuesOnly) {
     _value = value;
+    _fixedWidthValuesOnly = fixedWidthValuesOnly;
   }
 
   public int getValue() {
     return _value;
   }
 
+  /**
+   * Returns {@code true} if the compression type can only be applied to chunks of fixed width values, in which case the
+   * compressor needs to know the size of the values.
+   */
+  public boolean isFixedWidthValuesOnly() {
+    return _fixedWidthValuesOnly;
+  }
+
   public static ChunkCompressionType valueOf(int ordinal) {
     if (ordinal < 0 || ordinal >= VALUES.length) {
       throw new IllegalArgumentException("invalid ordinal " + ordinal);
@@ -22,12 +22,15 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.List;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
 import javax.annotation.Nullable;
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.pinot.segment.spi.IndexSegment;
 import org.apache.pinot.segment.spi.index.creator.SegmentIndexCreationInfo;
 import org.apache.pinot.spi.data.Schema;
+import org.apache.pinot.spi.data.readers.ColumnBatch;
 import org.apache.pinot.spi.data.readers.GenericRow;
 
 
@@ -60,6 +63,38 @@ public interface SegmentCreator extends Closeable, Serializable {
   void indexRow(GenericRow row)
       throws IOException;
 
+  /**
+   * Adds a batch of rows to the index. The indexes of different columns can be built concurrently with the given
+   * executor, but the method returns only after all the rows are indexed.
+   *
+   * @param rows The rows to index.
+   * @param executorService Executor used to index different columns concurrently.
+   */
+  default void indexRows(List<GenericRow> rows, ExecutorService executorService)
+      throws Exception {
+    for (GenericRow row : rows) {
+      indexRow(row);
+    }
+  }
+
+  /**
+   * Adds a column-major batch of rows to the index. The indexes of different columns can be built concurrently with the
+   * given executor, but the method returns only after all the rows are indexed.
+   *
+   * @param batch The batch of rows to index.
+   * @param executorService Executor used to index different columns concurrently, or null to index them on the
+   *                        calling thread.
+   */
+  default void indexColumnBatch(ColumnBatch batch, @Nullable ExecutorService executorService)
+      throws Exception {
+    GenericRow reuse = new GenericRow();
+    int numRows = batch.getNumRows();
+    for (int i = 0; i < numRows; i++) {
+      reuse.clear();
+      indexRow(batch.getRow(i, reuse));
+    }
+  }
+
   /**
    * Adds a column to the index.
    *
@@ -85,4 +120,15 @@ public interface SegmentCreator extends Closeable, Serializable {
    */
   void seal()
       throws ConfigurationException, IOException;
+
+  /**
+   * Seals the segment, flushing it to disk. The indexes of different columns can be sealed concurrently with the given
+   * executor.
+   *
+   * @param executorService Executor used to seal different columns concurrently.
+   */
+  default void seal(ExecutorService executorService)
+      throws Exception {
+    seal();
+  }
 }
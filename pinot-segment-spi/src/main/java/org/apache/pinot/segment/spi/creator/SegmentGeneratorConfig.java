@@ -120,6 +120,7 @@ public class SegmentGeneratorConfig implements Serializable {
   private boolean _realtimeConversion = false;
   // consumerDir contains data from the consuming segment, and is used during _realtimeConversion optimization
   private File _consumerDir;
+  private int _segmentCreationParallelism = 1;
   private final Map<String, FieldIndexConfigs> _indexConfigsByColName;
 
   // constructed from FieldConfig
@@ -174,6 +175,7 @@ public class SegmentGeneratorConfig implements Serializable {
     _optimizeDictionaryType = indexingConfig.isOptimizeDictionaryType();
     _noDictionarySizeRatioThreshold = indexingConfig.getNoDictionarySizeRatioThreshold();
     _noDictionaryCardinalityRatioThreshold = indexingConfig.getNoDictionaryCardinalityRatioThreshold();
+    _segmentCreationParallelism = Math.max(indexingConfig.getSegmentCreationParallelism(), 1);
 
     // Star-tree configs
     setStarTreeIndexConfigs(indexingConfig.getStarTreeIndexConfigs());
@@ -685,6 +687,19 @@ public class SegmentGeneratorConfig implements Serializable {
     _realtimeConversion = realtimeConversion;
   }
 
+  /**
+   * Returns the number of threads used to collect the column stats and build the column indexes, where 1 means the
+   * segment is created on the calling thread.
+   */
+  public int getSegmentCreationParallelism() {
+    return _segmentCreationParallelism;
+  }
+
+  public void setSegmentCreationParallelism(int segmentCreationParallelism) {
+    Preconditions.checkArgument(segmentCreationParallelism > 0, "Segment creation parallelism must be positive");
+    _segmentCreationParallelism = segmentCreationParallelism;
+  }
+
   public File getConsumerDir() {
     return _consumerDir;
   }
@@ -141,6 +141,22 @@ public class ForwardIndexConfig extends IndexConfig {
           _chunkCompressionType = ChunkCompressionType.GZIP;
           _dictIdCompressionType = null;
           break;
+        case DELTA:
+          _chunkCompressionType = ChunkCompressionType.DELTA;
+          _dictIdCompressionType = null;
+          break;
+        case DELTADELTA:
+          _chunkCompressionType = ChunkCompressionType.DELTADELTA;
+          _dictIdCompressionType = null;
+          break;
+        case FOR:
+          _chunkCompressionType = ChunkCompressionType.FOR;
+          _dictIdCompressionType = null;
+          break;
+        case XOR:
+          _chunkCompressionType = ChunkCompressionType.XOR;
+          _dictIdCompressionType = null;
+          break;
         case MV_ENTRY_DICT:
           _dictIdCompressionType = DictIdCompressionType.MV_ENTRY_DICT;
           _chunkCompressionType = null;
@@ -186,6 +202,14 @@ public class ForwardIndexConfig extends IndexConfig {
           return CompressionCodec.ZSTANDARD;
         case LZ4:
           return CompressionCodec.LZ4;
+        case DELTA:
+          return CompressionCodec.DELTA;
+        case DELTADELTA:
+          return CompressionCodec.DELTADELTA;
+        case FOR:
+          return CompressionCodec.FOR;
+        case XOR:
+          return CompressionCodec.XOR;
         default:
           throw new IllegalStateException("Unsupported chunk compression type: " + chunkCompressionType);
       }
@@ -333,6 +357,18 @@ public class ForwardIndexConfig extends IndexConfig {
         case ZSTANDARD:
           _compressionCodec = CompressionCodec.ZSTANDARD;
           break;
+        case DELTA:
+          _compressionCodec = CompressionCodec.DELTA;
+          break;
+        case DELTADELTA:
+          _compressionCodec = CompressionCodec.DELTADELTA;
+          break;
+        case FOR:
+          _compressionCodec = CompressionCodec.FOR;
+          break;
+        case XOR:
+          _compressionCodec = CompressionCodec.XOR;
+          break;
         default:
           throw new IllegalArgumentException("Unsupported chunk compression type: " + chunkCompressionType);
       }
@@ -38,6 +38,19 @@ public interface MutableDictionary extends Dictionary {
    */
   int[] index(Object[] values);
 
+  /**
+   * Indexes a batch of single-value entries (values of the dictionary type) into the dictionary, and returns an array
+   * of dictIds for each value. This is equivalent to calling {@link #index(Object)} for each of the first
+   * {@code length} values.
+   */
+  default int[] index(Object[] values, int length) {
+    int[] dictIds = new int[length];
+    for (int i = 0; i < length; i++) {
+      dictIds[i] = index(values[i]);
+    }
+    return dictIds;
+  }
+
   @Override
   default boolean isSorted() {
     return false;
@@ -91,6 +91,44 @@ public interface MutableForwardIndex extends ForwardIndexReader<ForwardIndexRead
     }
   }
 
+  @Override
+  default void add(Object[] values, @Nullable int[] dictIds, int[] docIds, int length) {
+    if (dictIds != null) {
+      for (int i = 0; i < length; i++) {
+        setDictId(docIds[i], dictIds[i]);
+      }
+      return;
+    }
+    // Dispatch on the stored type once for the whole batch for the fixed-width types
+    switch (getStoredType()) {
+      case INT:
+        for (int i = 0; i < length; i++) {
+          setInt(docIds[i], (int) values[i]);
+        }
+        break;
+      case LONG:
+        for (int i = 0; i < length; i++) {
+          setLong(docIds[i], (long) values[i]);
+        }
+        break;
+      case FLOAT:
+        for (int i = 0; i < length; i++) {
+          setFloat(docIds[i], (float) values[i]);
+        }
+        break;
+      case DOUBLE:
+        for (int i = 0; i < length; i++) {
+          setDouble(docIds[i], (double) values[i]);
+        }
+        break;
+      default:
+        for (int i = 0; i < length; i++) {
+          add(values[i], -1, docIds[i]);
+        }
+        break;
+    }
+  }
+
   @Override
   default void add(Object[] value, @Nullable int[] dictIds, int docId) {
     if (dictIds != null) {
@@ -60,6 +60,22 @@ public interface MutableIndex extends IndexReader {
    */
   void add(Object[] values, @Nullable int[] dictIds, int docId);
 
+  /**
+   * Adds a batch of single value cells to the index, which is equivalent to calling {@link #add(Object, int, int)} for
+   * each of the first {@code length} cells. Implementations can override this method to amortize the per-value
+   * overhead (e.g. type dispatching, locking) across the batch.
+   *
+   * @param values The nonnull values of the cells
+   * @param dictIds An optional array of dictionary values. If there is no dictionary, null is received
+   * @param docIds The document ids of the given rows. Non-negative values.
+   * @param length The number of cells to add
+   */
+  default void add(Object[] values, @Nullable int[] dictIds, int[] docIds, int length) {
+    for (int i = 0; i < length; i++) {
+      add(values[i], dictIds != null ? dictIds[i] : -1, docIds[i]);
+    }
+  }
+
   /**
    * Commits the mutable index artifacts to disk. This is used in preparation for realtime segment conversion.
    * commit() should be implemented to perform any required actions before using mutable segment artifacts to
@@ -38,6 +38,14 @@ public interface MutableInvertedIndex extends InvertedIndexReader<MutableRoaring
     }
   }
 
+  @Override
+  default void add(Object[] values, int[] dictIds, int[] docIds, int length) {
+    assert dictIds != null;
+    for (int i = 0; i < length; i++) {
+      add(dictIds[i], docIds[i]);
+    }
+  }
+
   /**
    * Add the docId to the posting list for the dictionary id.
    * @param dictId dictionary id
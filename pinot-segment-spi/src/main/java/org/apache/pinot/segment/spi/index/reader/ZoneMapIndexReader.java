@@ -0,0 +1,61 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.segment.spi.index.reader;
+
+import org.apache.pinot.segment.spi.index.IndexReader;
+
+
+/**
+ * Interface for zone map index reader.
+ * <p>The zone map splits the documents into blocks of {@link #getNumDocsPerBlock()} consecutive docIds (the last block
+ * might be smaller), and keeps the min and max value of each block. INT and LONG columns are stored as long values,
+ * FLOAT and DOUBLE columns are stored as double values.
+ */
+public interface ZoneMapIndexReader extends IndexReader {
+
+  /**
+   * Returns the number of documents in each block.
+   */
+  int getNumDocsPerBlock();
+
+  /**
+   * Returns the number of blocks.
+   */
+  int getNumBlocks();
+
+  /**
+   * Returns the min value of the given block for INT and LONG columns.
+   */
+  long getMinLongValue(int blockId);
+
+  /**
+   * Returns the max value of the given block for INT and LONG columns.
+   */
+  long getMaxLongValue(int blockId);
+
+  /**
+   * Returns the min value of the given block for FLOAT and DOUBLE columns.
+   */
+  double getMinDoubleValue(int blockId);
+
+  /**
+   * Returns the max value of the given block for FLOAT and DOUBLE columns.
+   */
+  double getMaxDoubleValue(int blockId);
+}
@@ -43,4 +43,14 @@ public interface StarTreeV2 extends Closeable {
    * {@link AggregationFunctionColumnPair#toColumnName()}.
    */
   DataSource getDataSource(String columnName);
+
+  /**
+   * Returns the number of segment docs covered by the star-tree, i.e. the star-tree aggregates the docs with ids lower
+   * than it. The star-tree of a consuming segment only covers the docs indexed when it was built, and the docs indexed
+   * after it must be processed without the star-tree. Returns {@link Integer#MAX_VALUE} when the star-tree covers all
+   * the docs of the segment.
+   */
+  default int getNumCoveredDocs() {
+    return Integer.MAX_VALUE;
+  }
 }
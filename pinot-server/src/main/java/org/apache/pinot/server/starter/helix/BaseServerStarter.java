@@ -81,12 +81,15 @@ import org.apache.pinot.core.common.datatable.DataTableBuilderFactory;
 import org.apache.pinot.core.data.manager.InstanceDataManager;
 import org.apache.pinot.core.data.manager.realtime.RealtimeConsumptionRateManager;
 import org.apache.pinot.core.data.manager.realtime.ServerRateLimitConfigChangeListener;
+import org.apache.pinot.core.query.executor.FilterResultCache;
 import org.apache.pinot.core.query.scheduler.resources.ResourceManager;
 import org.apache.pinot.core.transport.ListenerConfig;
 import org.apache.pinot.core.util.ListenerConfigUtil;
 import org.apache.pinot.core.util.trace.ContinuousJfrStarter;
 import org.apache.pinot.segment.local.realtime.impl.invertedindex.RealtimeLuceneIndexRefreshManager;
 import org.apache.pinot.segment.local.realtime.impl.invertedindex.RealtimeLuceneTextIndexSearcherPool;
+import org.apache.pinot.segment.local.segment.index.loader.ColumnIndexBuildExecutor;
+import org.apache.pinot.segment.local.segment.index.readers.forward.ForwardIndexChunkCache;
 import org.apache.pinot.segment.local.segment.store.TextIndexUtils;
 import org.apache.pinot.segment.local.utils.SegmentAllIndexPreprocessThrottler;
 import org.apache.pinot.segment.local.utils.SegmentDownloadThrottler;
@@ -242,6 +245,17 @@ public abstract class BaseServerStarter implements ServiceStartable {
     // Initialize the data buffer factory
     PinotDataBuffer.loadDefaultFactory(serverConf);
 
+    // Initialize the shared cache of decompressed forward index chunks
+    ForwardIndexChunkCache.init(_serverConf.getProperty(Server.CONFIG_OF_FORWARD_INDEX_CHUNK_CACHE_MAX_SIZE_BYTES,
+        Server.DEFAULT_FORWARD_INDEX_CHUNK_CACHE_MAX_SIZE_BYTES));
+    // Initialize the shared cache of the filter results on immutable segments
+    FilterResultCache.init(_serverConf.getProperty(Server.CONFIG_OF_FILTER_RESULT_CACHE_MAX_SIZE_BYTES,
+        Server.DEFAULT_FILTER_RESULT_CACHE_MAX_SIZE_BYTES));
+    ColumnIndexBuildExecutor.init(_serverConf.getProperty(Server.CONFIG_OF_SEGMENT_PREPROCESS_COLUMN_PARALLELISM,
+            Server.DEFAULT_SEGMENT_PREPROCESS_COLUMN_PARALLELISM),
+        _serverConf.getProperty(Server.CONFIG_OF_SEGMENT_PREPROCESS_COLUMN_MAX_MEMORY_BYTES,
+            Server.DEFAULT_SEGMENT_PREPROCESS_COLUMN_MAX_MEMORY_BYTES));
+
     // Enable/disable thread CPU time measurement through instance config.
     ThreadResourceUsageProvider.setThreadCpuTimeMeasurementEnabled(
         _serverConf.getProperty(Server.CONFIG_OF_ENABLE_THREAD_CPU_TIME_MEASUREMENT,
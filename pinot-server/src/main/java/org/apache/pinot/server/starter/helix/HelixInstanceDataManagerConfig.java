@@ -67,6 +67,12 @@ public class HelixInstanceDataManagerConfig implements InstanceDataManagerConfig
   private static final String MAX_PARALLEL_SEGMENT_BUILDS = "realtime.max.parallel.segment.builds";
   private static final int DEFAULT_MAX_PARALLEL_SEGMENT_BUILDS = 4;
 
+  // Key of how many threads are shared by all the consuming segments configured to decode and transform the stream
+  // messages concurrently with indexing (see StreamIngestionConfig numDecodeTransformThreads).
+  // A value of <= 0 disables the pipelined decode and transform, and the consumer threads decode the messages.
+  private static final String MAX_DECODE_TRANSFORM_THREADS = "realtime.max.decode.transform.threads";
+  private static final int DEFAULT_MAX_DECODE_TRANSFORM_THREADS = Runtime.getRuntime().availableProcessors();
+
   // Key of how many parallel segment downloads can be made per table.
   // A value of <= 0 indicates unlimited.
   // Unlimited parallel downloads can make Pinot controllers receive high burst of download requests,
@@ -259,6 +265,11 @@ public class HelixInstanceDataManagerConfig implements InstanceDataManagerConfig
     return _serverConfig.getProperty(MAX_PARALLEL_SEGMENT_BUILDS, DEFAULT_MAX_PARALLEL_SEGMENT_BUILDS);
   }
 
+  @Override
+  public int getMaxDecodeTransformThreads() {
+    return _serverConfig.getProperty(MAX_DECODE_TRANSFORM_THREADS, DEFAULT_MAX_DECODE_TRANSFORM_THREADS);
+  }
+
   @Override
   public int getMaxParallelSegmentDownloads() {
     return _serverConfig.getProperty(MAX_PARALLEL_SEGMENT_DOWNLOADS, DEFAULT_MAX_PARALLEL_SEGMENT_DOWNLOADS);
@@ -62,5 +62,15 @@ public @interface ScalarFunction {
    */
   boolean isVarArg() default false;
 
+  /**
+   * Name of the optional batch variant of the scalar function, which must be a public static method declared in the
+   * same class. The batch method evaluates the function over a block of values at once, and must have the signature:
+   * {@code void batchMethod(int length, P1[] values1, ..., Pn[] valuesN, R[] results)}, where {@code P1..Pn} and
+   * {@code R} are the (primitive or String) parameter and return types of the annotated method. The batch method must
+   * produce the same results as invoking the annotated method on each of the first {@code length} values.
+   * If empty, the function is evaluated row by row.
+   */
+  String batchMethod() default "";
+
   @Deprecated boolean isPlaceholder() default false;
 }
@@ -59,6 +59,8 @@ public interface InstanceDataManagerConfig {
 
   int getMaxParallelSegmentBuilds();
 
+  int getMaxDecodeTransformThreads();
+
   int getMaxParallelSegmentDownloads();
 
   String getSegmentDirectoryLoader();
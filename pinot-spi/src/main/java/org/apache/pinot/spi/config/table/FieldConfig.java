@@ -150,7 +150,17 @@ public class FieldConfig extends BaseJsonConfig {
     CLP(false, false),
     CLPV2(false, false),
     CLPV2_ZSTD(false, false),
-    CLPV2_LZ4(false, false);
+    CLPV2_LZ4(false, false),
+
+    // Lightweight numeric encodings are special types of compression codec that are only applicable to single-value RAW
+    // columns of fixed width stored type (INT, LONG, FLOAT, DOUBLE):
+    // - DELTA/DELTADELTA: For monotonic values such as timestamps and counters
+    // - FOR: Frame-of-reference bit-packing for values within a small range
+    // - XOR: Gorilla-style XOR encoding for slowly changing floating point values such as gauges
+    DELTA(false, false),
+    DELTADELTA(false, false),
+    FOR(false, false),
+    XOR(false, false);
 
     //@formatter:on
 
@@ -169,6 +179,14 @@ public class FieldConfig extends BaseJsonConfig {
     public boolean isApplicableToDictEncodedIndex() {
       return _applicableToDictEncodedIndex;
     }
+
+    /**
+     * Returns {@code true} if the codec is a lightweight numeric encoding, which is only applicable to single-value raw
+     * columns of fixed width stored type.
+     */
+    public boolean isNumericEncoding() {
+      return this == DELTA || this == DELTADELTA || this == FOR || this == XOR;
+    }
   }
 
   public String getName() {
@@ -60,12 +60,21 @@ public class IndexingConfig extends BaseJsonConfig {
   private List<StarTreeIndexConfig> _starTreeIndexConfigs;
   // Whether to allow creating star-tree when server loads the segment
   private boolean _enableDynamicStarTreeCreation;
+  // Whether to maintain the star-trees on-heap for the consuming segments
+  private boolean _enableConsumingSegmentStarTree;
   private SegmentPartitionConfig _segmentPartitionConfig;
   private boolean _aggregateMetrics;
   private boolean _nullHandlingEnabled;
   private boolean _columnMajorSegmentBuilderEnabled = true;
   private boolean _skipSegmentPreprocess;
 
+  /**
+   * Number of threads used to collect the column stats and build the column indexes when creating a segment. The
+   * indexes of different columns are built concurrently after reading each batch of records once. Segment is created
+   * on a single thread when it is not larger than 1.
+   */
+  private int _segmentCreationParallelism;
+
   /**
    * If `optimizeDictionary` enabled, dictionary is not created for the high-cardinality
    * single-valued columns for which rawIndexSize / forwardIndexSize is less than the `noDictionarySizeRatioThreshold`.
@@ -307,6 +316,14 @@ public class IndexingConfig extends BaseJsonConfig {
     _enableDynamicStarTreeCreation = enableDynamicStarTreeCreation;
   }
 
+  public boolean isEnableConsumingSegmentStarTree() {
+    return _enableConsumingSegmentStarTree;
+  }
+
+  public void setEnableConsumingSegmentStarTree(boolean enableConsumingSegmentStarTree) {
+    _enableConsumingSegmentStarTree = enableConsumingSegmentStarTree;
+  }
+
   @Nullable
   public SegmentPartitionConfig getSegmentPartitionConfig() {
     return _segmentPartitionConfig;
@@ -346,6 +363,14 @@ public class IndexingConfig extends BaseJsonConfig {
     _columnMajorSegmentBuilderEnabled = columnMajorSegmentBuilderEnabled;
   }
 
+  public int getSegmentCreationParallelism() {
+    return _segmentCreationParallelism;
+  }
+
+  public void setSegmentCreationParallelism(int segmentCreationParallelism) {
+    _segmentCreationParallelism = segmentCreationParallelism;
+  }
+
   public boolean isSkipSegmentPreprocess() {
     return _skipSegmentPreprocess;
   }
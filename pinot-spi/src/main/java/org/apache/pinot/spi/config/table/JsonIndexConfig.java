@@ -48,6 +48,8 @@ import javax.annotation.Nullable;
  *                   Excluded values will be replaced with JsonUtils.SKIPPED_VALUE_REPLACEMENT.
  * - skipInvalidJson: If the raw data is not a valid json string, then replace with {"":SKIPPED_VALUE_REPLACEMENT}
  *                    and continue indexing on following Json records.
+ * - matchingDocIdsCacheMaxBytes: Max bytes size of the per-segment cache of the matching doc ids for the json_match
+ *                                filters on the immutable json index. Not set or non-positive disables the cache.
  */
 public class JsonIndexConfig extends IndexConfig {
   public static final JsonIndexConfig DEFAULT = new JsonIndexConfig();
@@ -68,6 +70,12 @@ public class JsonIndexConfig extends IndexConfig {
    */
   private Long _maxBytesSize;
 
+  /**
+   * Max on-heap bytes size of the per-segment cache of the matching doc ids for the json_match filters. Only applies to
+   * the immutable JSON index.
+   */
+  private Long _matchingDocIdsCacheMaxBytes;
+
   public JsonIndexConfig() {
     super(false);
   }
@@ -197,6 +205,15 @@ public class JsonIndexConfig extends IndexConfig {
     _maxBytesSize = maxBytesSize;
   }
 
+  @Nullable
+  public Long getMatchingDocIdsCacheMaxBytes() {
+    return _matchingDocIdsCacheMaxBytes;
+  }
+
+  public void setMatchingDocIdsCacheMaxBytes(@Nullable Long matchingDocIdsCacheMaxBytes) {
+    _matchingDocIdsCacheMaxBytes = matchingDocIdsCacheMaxBytes;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -42,6 +42,11 @@ public class StreamIngestionConfig extends BaseJsonConfig {
   @JsonPropertyDescription("Whether to track offsets of the filtered stream messages during consumption.")
   private boolean _trackFilteredMessageOffsets;
 
+  @JsonPropertyDescription("Number of workers per consuming segment to decode and transform the stream messages "
+      + "concurrently with indexing, 0 (default) to decode, transform and index on the consumer thread. The workers "
+      + "run on the decode transform threads shared by all the consuming segments of the server")
+  private int _numDecodeTransformThreads;
+
   @JsonPropertyDescription("Whether pauseless consumption is enabled for the table")
   private boolean _pauselessConsumptionEnabled;
 
@@ -84,6 +89,14 @@ public class StreamIngestionConfig extends BaseJsonConfig {
     return _trackFilteredMessageOffsets;
   }
 
+  public int getNumDecodeTransformThreads() {
+    return _numDecodeTransformThreads;
+  }
+
+  public void setNumDecodeTransformThreads(int numDecodeTransformThreads) {
+    _numDecodeTransformThreads = numDecodeTransformThreads;
+  }
+
   public boolean isPauselessConsumptionEnabled() {
     return _pauselessConsumptionEnabled;
   }
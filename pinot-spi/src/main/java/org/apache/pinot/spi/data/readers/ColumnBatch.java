@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.spi.data.readers;
+
+import com.google.common.base.Preconditions;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+
+/**
+ * Column-major counterpart of {@link GenericRow}, which holds a batch of records as one value array per column so that
+ * records can be read and transformed without materializing a {@link GenericRow} per record.
+ * <p>The value of a column for a row is stored in the value array of the column at the row id within the batch, where
+ * {@code null} represents a null value. Same as {@link GenericRow}, the batch tracks the fields filled with the default
+ * null value, and the incomplete and sanitized rows.
+ * <p>The batch, including the value arrays, is reused across batches to reduce garbage. It should be cleared before
+ * being filled again.
+ */
+public class ColumnBatch {
+  private final int _capacity;
+  private final Map<String, Object[]> _valuesMap = new HashMap<>();
+  private final Map<String, boolean[]> _nullValueFlagsMap = new HashMap<>();
+  private final boolean[] _incompleteFlags;
+  private final boolean[] _sanitizedFlags;
+  private int _numRows;
+
+  public ColumnBatch(int capacity) {
+    Preconditions.checkArgument(capacity > 0, "Capacity must be positive, got: %s", capacity);
+    _capacity = capacity;
+    _incompleteFlags = new boolean[capacity];
+    _sanitizedFlags = new boolean[capacity];
+  }
+
+  /**
+   * Returns the max number of rows in the batch.
+   */
+  public int getCapacity() {
+    return _capacity;
+  }
+
+  /**
+   * Returns the number of rows in the batch.
+   */
+  public int getNumRows() {
+    return _numRows;
+  }
+
+  public void setNumRows(int numRows) {
+    Preconditions.checkArgument(numRows >= 0 && numRows <= _capacity, "Invalid number of rows: %s (capacity: %s)",
+        numRows, _capacity);
+    _numRows = numRows;
+  }
+
+  /**
+   * Returns the columns with values in the batch.
+   */
+  public Set<String> getColumns() {
+    return _valuesMap.keySet();
+  }
+
+  /**
+   * Returns the value array of the given column, or {@code null} if the column has no value in the batch (all values
+   * are {@code null}).
+   */
+  @Nullable
+  public Object[] getValues(String column) {
+    return _valuesMap.get(column);
+  }
+
+  /**
+   * Returns the value array of the given column, and creates it if the column has no value in the batch yet.
+   */
+  public Object[] getOrCreateValues(String column) {
+    return _valuesMap.computeIfAbsent(column, k -> new Object[_capacity]);
+  }
+
+  /**
+   * Sets the default null value for the given column of the given row, and marks the value as {@code null}.
+   */
+  public void putDefaultNullValue(String column, int rowId, Object defaultNullValue) {
+    getOrCreateValues(column)[rowId] = defaultNullValue;
+    _nullValueFlagsMap.computeIfAbsent(column, k -> new boolean[_capacity])[rowId] = true;
+  }
+
+  /**
+   * Returns whether the value of the given column of the given row is filled with the default null value.
+   */
+  public boolean isNullValue(String column, int rowId) {
+    boolean[] nullValueFlags = _nullValueFlagsMap.get(column);
+    return nullValueFlags != null && nullValueFlags[rowId];
+  }
+
+  public void markIncomplete(int rowId) {
+    _incompleteFlags[rowId] = true;
+  }
+
+  public boolean isIncomplete(int rowId) {
+    return _incompleteFlags[rowId];
+  }
+
+  public void markSanitized(int rowId) {
+    _sanitizedFlags[rowId] = true;
+  }
+
+  public boolean isSanitized(int rowId) {
+    return _sanitizedFlags[rowId];
+  }
+
+  public int getNumIncompleteRows() {
+    return countFlags(_incompleteFlags);
+  }
+
+  public int getNumSanitizedRows() {
+    return countFlags(_sanitizedFlags);
+  }
+
+  private int countFlags(boolean[] flags) {
+    int count = 0;
+    for (int i = 0; i < _numRows; i++) {
+      if (flags[i]) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Fills the given (cleared) row with the values of the given row id.
+   */
+  public GenericRow getRow(int rowId, GenericRow reuse) {
+    for (Map.Entry<String, Object[]> entry : _valuesMap.entrySet()) {
+      String column = entry.getKey();
+      Object value = entry.getValue()[rowId];
+      if (isNullValue(column, rowId)) {
+        reuse.putDefaultNullValue(column, value);
+      } else {
+        reuse.putValue(column, value);
+      }
+    }
+    if (_incompleteFlags[rowId]) {
+      reuse.markIncomplete();
+    }
+    if (_sanitizedFlags[rowId]) {
+      reuse.markSanitized();
+    }
+    return reuse;
+  }
+
+  /**
+   * Removes all the rows from the batch while keeping the value arrays for reuse.
+   */
+  public void clear() {
+    for (Object[] values : _valuesMap.values()) {
+      Arrays.fill(values, 0, _numRows, null);
+    }
+    for (boolean[] nullValueFlags : _nullValueFlagsMap.values()) {
+      Arrays.fill(nullValueFlags, 0, _numRows, false);
+    }
+    Arrays.fill(_incompleteFlags, 0, _numRows, false);
+    Arrays.fill(_sanitizedFlags, 0, _numRows, false);
+    _numRows = 0;
+  }
+}
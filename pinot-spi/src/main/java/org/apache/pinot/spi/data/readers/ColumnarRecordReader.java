@@ -0,0 +1,48 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.spi.data.readers;
+
+import java.io.IOException;
+
+
+/**
+ * The <code>ColumnarRecordReader</code> interface is implemented by the record readers of column-major file formats
+ * (e.g. Parquet, ORC), which can read records directly into a {@link ColumnBatch} without materializing a
+ * {@link GenericRow} per record.
+ * <p>Columnar reads share the read position with {@link #next(GenericRow)} and are reset by {@link #rewind()}, but
+ * the two should not be mixed between rewinds.
+ */
+public interface ColumnarRecordReader extends RecordReader {
+
+  /**
+   * Returns <code>true</code> if the records of the data file can be read with {@link #nextBatch(ColumnBatch)}, e.g.
+   * the reader might only support columnar reads for a flat schema.
+   */
+  boolean isColumnarReadSupported();
+
+  /**
+   * Reads the next records, up to the capacity of the given batch, into the batch and sets the number of rows read.
+   * The values read for each field must be the same as the ones put into the {@link GenericRow} by
+   * {@link #next(GenericRow)}.
+   * <p>The passed in batch should be cleared before calling this method.
+   * <p>This method should be called only if {@link #hasNext()} returns <code>true</code>.
+   */
+  void nextBatch(ColumnBatch batch)
+      throws IOException;
+}
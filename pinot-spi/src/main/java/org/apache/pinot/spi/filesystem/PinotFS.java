@@ -25,6 +25,8 @@ import java.io.InputStream;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.List;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.pinot.spi.annotations.InterfaceAudience;
 import org.apache.pinot.spi.annotations.InterfaceStability;
 import org.apache.pinot.spi.env.PinotConfiguration;
@@ -252,6 +254,28 @@ public interface PinotFS extends Closeable, Serializable {
   InputStream open(URI uri)
       throws IOException;
 
+  /**
+   * Opens a file in the underlying filesystem and returns an InputStream to read the given range of it.
+   * By default, the bytes before the range are skipped on the InputStream returned by {@link #open(URI)}.
+   * Implementations supporting ranged reads should override it so that the bytes before the range are not read.
+   * @param uri location of the file to open
+   * @param offset offset of the first byte to read
+   * @param length maximum number of bytes to read
+   * @return a new InputStream returning at most length bytes starting at offset
+   * @throws IOException on any IO error - missing file, not a file etc
+   */
+  default InputStream open(URI uri, long offset, long length)
+      throws IOException {
+    InputStream inputStream = open(uri);
+    try {
+      IOUtils.skipFully(inputStream, offset);
+      return BoundedInputStream.builder().setInputStream(inputStream).setMaxCount(length).get();
+    } catch (IOException e) {
+      inputStream.close();
+      throw e;
+    }
+  }
+
   /**
    * For certain filesystems, we may need to close the filesystem and do relevant operations to prevent leaks.
    * By default, this method does nothing.
@@ -21,6 +21,7 @@ package org.apache.pinot.spi.recordtransformer;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.List;
+import org.apache.pinot.spi.data.readers.ColumnBatch;
 import org.apache.pinot.spi.data.readers.GenericRow;
 
 
@@ -53,6 +54,19 @@ public interface RecordTransformer extends Serializable {
     throw new UnsupportedOperationException();
   }
 
+  /// Returns `true` if the transformer can transform records in column-major batches (see `transform(ColumnBatch)`),
+  /// `false` otherwise.
+  default boolean isColumnar() {
+    return false;
+  }
+
+  /// Transforms a batch of records in-place based on some custom rules. Implement this method (and `isColumnar()`) when
+  /// the transform is applied to each value independently (e.g. type conversion), and produces the same values as
+  /// `transform(GenericRow)`.
+  default void transform(ColumnBatch batch) {
+    throw new UnsupportedOperationException();
+  }
+
   /// Can be overridden to report stats after all records are processed.
   default void reportStats() {
   }
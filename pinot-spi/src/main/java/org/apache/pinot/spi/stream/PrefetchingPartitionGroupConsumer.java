@@ -0,0 +1,349 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.spi.stream;
+
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * {@link PartitionGroupConsumer} wrapper that fetches the next {@link MessageBatch} in the background while the
+ * current batch is being processed, so that the stream fetch latency overlaps with the indexing time.
+ *
+ * The fetches run on a fetch thread dedicated to this consumer, one fetch at a time. The fetch thread is not shared
+ * with other consuming partitions because a fetch can block up to the fetch timeout (e.g. long poll on an idle
+ * partition), which would otherwise delay the fetches of the active partitions. The wrapped consumer is never accessed
+ * by two threads at the same time, so it does not need to be thread safe: {@link #checkpoint} waits for the in-flight
+ * fetch and holds off the next one, and {@link #close} stops scheduling fetches and waits for the in-flight one without
+ * interrupting it (the wrapped consumer is closed by the fetch thread if the fetch does not finish in time).
+ *
+ * Batches are fetched ahead as long as the total size of the fetched batches not yet handed over to the caller is
+ * below the configured max buffered bytes, so there is always at least one batch fetched ahead. When the caller asks
+ * for an offset other than the one following the last returned batch (e.g. after a partial batch is processed or the
+ * consumption is rewound), the buffered batches are discarded and the fetch restarts from the requested offset.
+ *
+ * Prefetching pauses after an empty batch or the end of the partition group, and resumes on the next fetch request.
+ * Exceptions from the wrapped consumer are thrown to the caller after the batches fetched before the failure.
+ */
+public class PrefetchingPartitionGroupConsumer implements PartitionGroupConsumer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PrefetchingPartitionGroupConsumer.class);
+  private static final long CLOSE_TIMEOUT_MS = 10_000L;
+
+  private final PartitionGroupConsumer _consumer;
+  private final long _maxBufferedBytes;
+  private final ExecutorService _executor;
+  private final Object _lock = new Object();
+
+  // Fields below are guarded by _lock
+  private final ArrayDeque<FetchedBatch> _fetchedBatches = new ArrayDeque<>();
+  private long _bufferedBytes;
+  // Offset expected from the next fetch request, i.e. the start offset of the first fetched batch
+  private StreamPartitionMsgOffset _nextOffset;
+  // Start offset of the next background fetch, or null when prefetching is paused
+  private StreamPartitionMsgOffset _fetchOffset;
+  private int _fetchTimeoutMs;
+  private boolean _fetching;
+  private Throwable _fetchException;
+  // Bumped on every reset so that the result of an in-flight fetch for a stale offset is discarded
+  private long _generation;
+  // Set while the caller accesses the wrapped consumer, so that no fetch is scheduled in the meantime
+  private boolean _suspended;
+  private boolean _closed;
+  // Set when closing times out waiting for the in-flight fetch, so that the fetch thread closes the wrapped consumer
+  private boolean _closeOnFetchThread;
+
+  public PrefetchingPartitionGroupConsumer(PartitionGroupConsumer consumer, long maxBufferedBytes,
+      String fetchThreadName) {
+    Preconditions.checkArgument(maxBufferedBytes > 0, "Max buffered bytes must be positive, got: %s",
+        maxBufferedBytes);
+    _consumer = consumer;
+    _maxBufferedBytes = maxBufferedBytes;
+    _executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, fetchThreadName);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @Override
+  public void start(StreamPartitionMsgOffset startOffset) {
+    _consumer.start(startOffset);
+  }
+
+  @Override
+  public MessageBatch fetchMessages(StreamPartitionMsgOffset startOffset, int timeoutMs)
+      throws TimeoutException {
+    long deadlineMs = System.currentTimeMillis() + timeoutMs;
+    synchronized (_lock) {
+      Preconditions.checkState(!_closed, "Consumer is already closed");
+      _fetchTimeoutMs = timeoutMs;
+      if (_nextOffset == null || startOffset.compareTo(_nextOffset) != 0) {
+        reset(startOffset);
+      }
+      while (_fetchedBatches.isEmpty()) {
+        if (_fetchException != null) {
+          Throwable fetchException = _fetchException;
+          _fetchException = null;
+          throwFetchException(fetchException);
+        }
+        if (!_fetching) {
+          // Prefetching was paused, fetch from the requested offset
+          _fetchOffset = startOffset;
+          maybeScheduleFetch();
+        }
+        long remainingTimeMs = deadlineMs - System.currentTimeMillis();
+        if (remainingTimeMs <= 0) {
+          return new EmptyMessageBatch(startOffset);
+        }
+        try {
+          _lock.wait(remainingTimeMs);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return new EmptyMessageBatch(startOffset);
+        }
+      }
+      FetchedBatch fetchedBatch = _fetchedBatches.poll();
+      _bufferedBytes -= fetchedBatch._sizeInBytes;
+      _nextOffset = fetchedBatch._nextOffset;
+      maybeScheduleFetch();
+      return fetchedBatch._messageBatch;
+    }
+  }
+
+  /**
+   * Discards the fetched batches and restarts fetching from the given offset.
+   */
+  private void reset(StreamPartitionMsgOffset startOffset) {
+    _generation++;
+    _fetchedBatches.clear();
+    _bufferedBytes = 0;
+    _fetchException = null;
+    _nextOffset = startOffset;
+    _fetchOffset = startOffset;
+    maybeScheduleFetch();
+  }
+
+  /**
+   * Schedules the next background fetch if there is no fetch in progress and the buffer is not full.
+   */
+  private void maybeScheduleFetch() {
+    if (_closed || _suspended || _fetching || _fetchOffset == null || _fetchException != null
+        || _bufferedBytes >= _maxBufferedBytes) {
+      return;
+    }
+    _fetching = true;
+    long generation = _generation;
+    StreamPartitionMsgOffset fetchOffset = _fetchOffset;
+    int fetchTimeoutMs = _fetchTimeoutMs;
+    try {
+      _executor.execute(() -> fetch(generation, fetchOffset, fetchTimeoutMs));
+    } catch (RuntimeException e) {
+      // E.g. the executor is shut down, surface the failure to the caller as a fetch exception
+      _fetching = false;
+      _fetchException = e;
+      _fetchOffset = null;
+    }
+  }
+
+  /**
+   * Waits for the in-flight fetch to finish, or until the timeout when it is positive. Returns whether there is no
+   * fetch in progress.
+   */
+  private boolean waitForInFlightFetch(long timeoutMs)
+      throws InterruptedException {
+    long deadlineMs = System.currentTimeMillis() + timeoutMs;
+    while (_fetching) {
+      if (timeoutMs <= 0) {
+        _lock.wait();
+      } else {
+        long remainingTimeMs = deadlineMs - System.currentTimeMillis();
+        if (remainingTimeMs <= 0) {
+          return false;
+        }
+        _lock.wait(remainingTimeMs);
+      }
+    }
+    return true;
+  }
+
+  private void fetch(long generation, StreamPartitionMsgOffset fetchOffset, int fetchTimeoutMs) {
+    MessageBatch messageBatch = null;
+    long sizeInBytes = 0;
+    Throwable fetchException = null;
+    try {
+      messageBatch = _consumer.fetchMessages(fetchOffset, fetchTimeoutMs);
+      sizeInBytes = getSizeInBytes(messageBatch);
+    } catch (Throwable t) {
+      fetchException = t;
+    }
+    boolean closeConsumer;
+    synchronized (_lock) {
+      _fetching = false;
+      if (generation == _generation && !_closed) {
+        if (fetchException != null) {
+          _fetchException = fetchException;
+          _fetchOffset = null;
+        } else {
+          // Only move forward when the batch is not empty, otherwise the same offset should be fetched again
+          StreamPartitionMsgOffset nextOffset =
+              messageBatch.getUnfilteredMessageCount() > 0 ? messageBatch.getOffsetOfNextBatch() : fetchOffset;
+          _fetchedBatches.add(new FetchedBatch(messageBatch, sizeInBytes, nextOffset));
+          _bufferedBytes += sizeInBytes;
+          // Pause prefetching when there is nothing more to fetch for now
+          boolean hasMore = messageBatch.getUnfilteredMessageCount() > 0 && !messageBatch.isEndOfPartitionGroup();
+          _fetchOffset = hasMore ? nextOffset : null;
+        }
+      }
+      // Also wakes up checkpoint() and close() waiting for the in-flight fetch
+      _lock.notifyAll();
+      maybeScheduleFetch();
+      closeConsumer = _closeOnFetchThread;
+    }
+    if (closeConsumer) {
+      closeConsumer();
+    }
+  }
+
+  private static long getSizeInBytes(MessageBatch<?> messageBatch) {
+    long sizeInBytes = 0;
+    int numMessages = messageBatch.getMessageCount();
+    for (int i = 0; i < numMessages; i++) {
+      sizeInBytes += Math.max(messageBatch.getStreamMessage(i).getLength(), 0);
+    }
+    return sizeInBytes;
+  }
+
+  private static void throwFetchException(Throwable fetchException)
+      throws TimeoutException {
+    if (fetchException instanceof TimeoutException) {
+      throw (TimeoutException) fetchException;
+    }
+    if (fetchException instanceof RuntimeException) {
+      throw (RuntimeException) fetchException;
+    }
+    if (fetchException instanceof Error) {
+      throw (Error) fetchException;
+    }
+    throw new RuntimeException(fetchException);
+  }
+
+  @Override
+  public StreamPartitionMsgOffset checkpoint(StreamPartitionMsgOffset lastOffset) {
+    synchronized (_lock) {
+      Preconditions.checkState(!_closed, "Consumer is already closed");
+      _suspended = true;
+      try {
+        // The fetch is bounded by the fetch timeout
+        waitForInFlightFetch(0);
+      } catch (InterruptedException e) {
+        _suspended = false;
+        maybeScheduleFetch();
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while waiting for the in-flight fetch to finish", e);
+      }
+    }
+    try {
+      return _consumer.checkpoint(lastOffset);
+    } finally {
+      synchronized (_lock) {
+        _suspended = false;
+        maybeScheduleFetch();
+      }
+    }
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    synchronized (_lock) {
+      if (_closed) {
+        return;
+      }
+      _closed = true;
+      _generation++;
+      _fetchedBatches.clear();
+      _bufferedBytes = 0;
+      _lock.notifyAll();
+      // No more fetch is scheduled after closing, and the fetch thread exits after finishing the in-flight fetch
+      _executor.shutdown();
+      // Wait for the in-flight fetch to finish before closing the wrapped consumer. The fetch is not interrupted
+      // because not all the stream clients handle interruption gracefully.
+      boolean fetchFinished;
+      try {
+        fetchFinished = waitForInFlightFetch(CLOSE_TIMEOUT_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        fetchFinished = false;
+      }
+      if (!fetchFinished) {
+        LOGGER.warn("Timed out waiting for the in-flight fetch to finish, closing the consumer after the fetch");
+        _closeOnFetchThread = true;
+        return;
+      }
+    }
+    _consumer.close();
+  }
+
+  private void closeConsumer() {
+    try {
+      _consumer.close();
+    } catch (Exception e) {
+      LOGGER.error("Caught exception while closing the consumer", e);
+    }
+  }
+
+  private static class FetchedBatch {
+    final MessageBatch _messageBatch;
+    final long _sizeInBytes;
+    final StreamPartitionMsgOffset _nextOffset;
+
+    FetchedBatch(MessageBatch messageBatch, long sizeInBytes, StreamPartitionMsgOffset nextOffset) {
+      _messageBatch = messageBatch;
+      _sizeInBytes = sizeInBytes;
+      _nextOffset = nextOffset;
+    }
+  }
+
+  /**
+   * Batch returned when no batch is fetched before the fetch timeout.
+   */
+  private static class EmptyMessageBatch implements MessageBatch<byte[]> {
+    final StreamPartitionMsgOffset _offset;
+
+    EmptyMessageBatch(StreamPartitionMsgOffset offset) {
+      _offset = offset;
+    }
+
+    @Override
+    public int getMessageCount() {
+      return 0;
+    }
+
+    @Override
+    public StreamPartitionMsgOffset getOffsetOfNextBatch() {
+      return _offset;
+    }
+  }
+}
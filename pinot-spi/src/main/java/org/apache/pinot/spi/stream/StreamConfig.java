@@ -49,6 +49,7 @@ public class StreamConfig {
   public static final long DEFAULT_STREAM_CONNECTION_TIMEOUT_MILLIS = 30_000;
   public static final int DEFAULT_STREAM_FETCH_TIMEOUT_MILLIS = 5_000;
   public static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 3 * 60 * 1000;
+  public static final long DEFAULT_PREFETCH_MAX_BUFFERED_BYTES = 0;
 
   private static final double CONSUMPTION_RATE_LIMIT_NOT_SPECIFIED = -1;
 
@@ -64,6 +65,8 @@ public class StreamConfig {
 
   private final long _idleTimeoutMillis;
 
+  private final long _prefetchMaxBufferedBytes;
+
   private final int _flushThresholdRows;
   private final int _flushThresholdSegmentRows;
   private final long _flushThresholdTimeMillis;
@@ -171,6 +174,20 @@ public class StreamConfig {
     }
     _idleTimeoutMillis = idleTimeoutMillis;
 
+    long prefetchMaxBufferedBytes = DEFAULT_PREFETCH_MAX_BUFFERED_BYTES;
+    String prefetchMaxBufferedBytesKey = StreamConfigProperties.constructStreamProperty(_type,
+        StreamConfigProperties.STREAM_PREFETCH_MAX_BUFFERED_BYTES);
+    String prefetchMaxBufferedBytesValue = streamConfigMap.get(prefetchMaxBufferedBytesKey);
+    if (prefetchMaxBufferedBytesValue != null) {
+      try {
+        prefetchMaxBufferedBytes = DataSizeUtils.toBytes(prefetchMaxBufferedBytesValue);
+      } catch (Exception e) {
+        LOGGER.warn("Invalid config {}: {}, defaulting to: {}", prefetchMaxBufferedBytesKey,
+            prefetchMaxBufferedBytesValue, DEFAULT_PREFETCH_MAX_BUFFERED_BYTES);
+      }
+    }
+    _prefetchMaxBufferedBytes = prefetchMaxBufferedBytes;
+
     _flushThresholdRows = extractFlushThresholdRows(streamConfigMap);
     _flushThresholdSegmentRows = extractFlushThresholdSegmentRows(streamConfigMap);
     _flushThresholdTimeMillis = extractFlushThresholdTimeMillis(streamConfigMap);
@@ -350,6 +367,14 @@ public class StreamConfig {
     return _idleTimeoutMillis;
   }
 
+  /**
+   * Returns the max bytes of message batches to fetch ahead while the current batch is being processed, where
+   * non-positive value means prefetching is disabled.
+   */
+  public long getPrefetchMaxBufferedBytes() {
+    return _prefetchMaxBufferedBytes;
+  }
+
   public int getFlushThresholdRows() {
     return _flushThresholdRows;
   }
@@ -397,7 +422,8 @@ public class StreamConfig {
         + _tableNameWithType + '\'' + ", _consumerFactoryClassName='" + _consumerFactoryClassName + '\''
         + ", _decoderClass='" + _decoderClass + '\'' + ", _decoderProperties=" + _decoderProperties
         + ", _connectionTimeoutMillis=" + _connectionTimeoutMillis + ", _fetchTimeoutMillis=" + _fetchTimeoutMillis
-        + ", _idleTimeoutMillis=" + _idleTimeoutMillis + ", _flushThresholdRows=" + _flushThresholdRows
+        + ", _idleTimeoutMillis=" + _idleTimeoutMillis + ", _prefetchMaxBufferedBytes=" + _prefetchMaxBufferedBytes
+        + ", _flushThresholdRows=" + _flushThresholdRows
         + ", _flushThresholdSegmentRows=" + _flushThresholdSegmentRows + ", _flushThresholdTimeMillis="
         + _flushThresholdTimeMillis + ", _flushThresholdSegmentSizeBytes=" + _flushThresholdSegmentSizeBytes
         + ", _flushThresholdVarianceFraction=" + _flushThresholdVarianceFraction
@@ -416,7 +442,8 @@ public class StreamConfig {
     }
     StreamConfig that = (StreamConfig) o;
     return _connectionTimeoutMillis == that._connectionTimeoutMillis && _fetchTimeoutMillis == that._fetchTimeoutMillis
-        && _idleTimeoutMillis == that._idleTimeoutMillis && _flushThresholdRows == that._flushThresholdRows
+        && _idleTimeoutMillis == that._idleTimeoutMillis && _prefetchMaxBufferedBytes == that._prefetchMaxBufferedBytes
+        && _flushThresholdRows == that._flushThresholdRows
         && _flushThresholdSegmentRows == that._flushThresholdSegmentRows
         && _flushThresholdTimeMillis == that._flushThresholdTimeMillis
         && _flushThresholdSegmentSizeBytes == that._flushThresholdSegmentSizeBytes
@@ -433,9 +460,9 @@ public class StreamConfig {
   @Override
   public int hashCode() {
     return Objects.hash(_type, _topicName, _tableNameWithType, _consumerFactoryClassName, _decoderClass,
-        _decoderProperties, _connectionTimeoutMillis, _fetchTimeoutMillis, _idleTimeoutMillis, _flushThresholdRows,
-        _flushThresholdSegmentRows, _flushThresholdTimeMillis, _flushThresholdSegmentSizeBytes,
-        _flushAutotuneInitialRows, _groupId, _topicConsumptionRateLimit, _streamConfigMap, _offsetCriteria,
-        _serverUploadToDeepStore, _flushThresholdVarianceFraction);
+        _decoderProperties, _connectionTimeoutMillis, _fetchTimeoutMillis, _idleTimeoutMillis,
+        _prefetchMaxBufferedBytes, _flushThresholdRows, _flushThresholdSegmentRows, _flushThresholdTimeMillis,
+        _flushThresholdSegmentSizeBytes, _flushAutotuneInitialRows, _groupId, _topicConsumptionRateLimit,
+        _streamConfigMap, _offsetCriteria, _serverUploadToDeepStore, _flushThresholdVarianceFraction);
   }
 }
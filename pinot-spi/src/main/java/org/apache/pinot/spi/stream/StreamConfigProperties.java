@@ -43,6 +43,9 @@ public class StreamConfigProperties {
   public static final String STREAM_FETCH_TIMEOUT_MILLIS = "fetch.timeout.millis";
   public static final String STREAM_CONNECTION_TIMEOUT_MILLIS = "connection.timeout.millis";
   public static final String STREAM_IDLE_TIMEOUT_MILLIS = "idle.timeout.millis";
+  // Max bytes of message batches fetched ahead in the background while the current batch is being processed, where
+  // non-positive value disables prefetching
+  public static final String STREAM_PREFETCH_MAX_BUFFERED_BYTES = "prefetch.max.buffered.bytes";
   public static final String STREAM_DECODER_CLASS = "decoder.class.name";
   public static final String DECODER_PROPS_PREFIX = "decoder.prop";
   public static final String GROUP_ID = "hlc.group.id";
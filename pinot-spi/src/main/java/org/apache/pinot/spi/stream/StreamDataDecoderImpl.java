@@ -48,11 +48,19 @@ public class StreamDataDecoderImpl implements StreamDataDecoder {
 
   @Override
   public StreamDataDecoderResult decode(StreamMessage message) {
+    _reuse.clear();
+    return decode(message, _reuse);
+  }
+
+  /**
+   * Decodes the message into the given (empty) row. Unlike {@link #decode(StreamMessage)}, which reuses the same row
+   * for all the messages, this allows keeping the decoded rows of multiple messages at the same time.
+   */
+  public StreamDataDecoderResult decode(StreamMessage message, GenericRow destination) {
     assert message.getValue() != null;
 
     try {
-      _reuse.clear();
-      GenericRow row = _valueDecoder.decode(message.getValue(), 0, message.getLength(), _reuse);
+      GenericRow row = _valueDecoder.decode(message.getValue(), 0, message.getLength(), destination);
       if (row != null) {
         if (message.getKey() != null) {
           row.putValue(KEY, new String(message.getKey(), StandardCharsets.UTF_8));
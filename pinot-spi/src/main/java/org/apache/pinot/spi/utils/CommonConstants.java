@@ -657,6 +657,9 @@ public class CommonConstants {
         public static final String MIN_INITIAL_INDEXED_TABLE_CAPACITY = "minInitialIndexedTableCapacity";
         public static final String MSE_MAX_INITIAL_RESULT_HOLDER_CAPACITY = "mseMaxInitialResultHolderCapacity";
         public static final String GROUP_TRIM_THRESHOLD = "groupTrimThreshold";
+        // Number of groups kept in memory by the server combine operator before spilling them to disk, where
+        // non-positive value means turning off spilling
+        public static final String GROUP_BY_SPILL_THRESHOLD = "groupBySpillThreshold";
         public static final String STAGE_PARALLELISM = "stageParallelism";
 
         public static final String IN_PREDICATE_PRE_SORTED = "inPredicatePreSorted";
@@ -670,6 +673,13 @@ public class CommonConstants {
         // Handle JOIN Overflow
         public static final String MAX_ROWS_IN_JOIN = "maxRowsInJoin";
         public static final String JOIN_OVERFLOW_MODE = "joinOverflowMode";
+        // Number of right table rows kept in memory by the hash join before both sides of the join are spilled to
+        // local disk and joined partition by partition. 0 (default) disables spilling.
+        public static final String JOIN_SPILL_THRESHOLD = "joinSpillThreshold";
+
+        // Number of rows kept in memory by the sort operators before the rows are sorted and spilled to local disk as
+        // sorted runs, which are then merged. 0 (default) disables spilling.
+        public static final String SORT_SPILL_THRESHOLD = "sortSpillThreshold";
 
         // Handle WINDOW Overflow
         public static final String MAX_ROWS_IN_WINDOW = "maxRowsInWindow";
@@ -952,6 +962,15 @@ public class CommonConstants {
     public static final String USE_MSE_TO_FILL_EMPTY_RESPONSE_SCHEMA =
         "pinot.broker.use.mse.to.fill.empty.response.schema";
     public static final boolean DEFAULT_USE_MSE_TO_FILL_EMPTY_RESPONSE_SCHEMA = false;
+
+    // Result cache for the single-stage queries on the tables with 'useResultCache' enabled in the query config.
+    // Setting the max entries to 0 disables the result cache on the broker.
+    public static final String CONFIG_OF_BROKER_RESULT_CACHE_MAX_ENTRIES = "pinot.broker.result.cache.max.entries";
+    public static final int DEFAULT_BROKER_RESULT_CACHE_MAX_ENTRIES = 1000;
+    // Results with more rows than this limit are not cached
+    public static final String CONFIG_OF_BROKER_RESULT_CACHE_MAX_ROWS_PER_ENTRY =
+        "pinot.broker.result.cache.max.rows.per.entry";
+    public static final int DEFAULT_BROKER_RESULT_CACHE_MAX_ROWS_PER_ENTRY = 10_000;
   }
 
   public static class Server {
@@ -1045,6 +1064,12 @@ public class CommonConstants {
     public static final String CONFIG_OF_QUERY_EXECUTOR_MAX_EXECUTION_THREADS =
         QUERY_EXECUTOR_CONFIG_PREFIX + "." + MAX_EXECUTION_THREADS;
     public static final int DEFAULT_QUERY_EXECUTOR_MAX_EXECUTION_THREADS = -1;  // Use number of CPU cores
+    // Max heap size of the per-segment result cache for aggregation and group-by queries on immutable segments,
+    // 0 to disable the cache
+    public static final String SEGMENT_RESULT_CACHE_MAX_SIZE_BYTES = "segment.result.cache.max.size.bytes";
+    public static final String CONFIG_OF_QUERY_EXECUTOR_SEGMENT_RESULT_CACHE_MAX_SIZE_BYTES =
+        QUERY_EXECUTOR_CONFIG_PREFIX + "." + SEGMENT_RESULT_CACHE_MAX_SIZE_BYTES;
+    public static final long DEFAULT_QUERY_EXECUTOR_SEGMENT_RESULT_CACHE_MAX_SIZE_BYTES = 0L;
 
     // Group-by query related configs
     public static final String NUM_GROUPS_LIMIT = "num.groups.limit";
@@ -1100,6 +1125,16 @@ public class CommonConstants {
     public static final String CONFIG_OF_QUERY_EXECUTOR_GROUPBY_TRIM_THRESHOLD =
         QUERY_EXECUTOR_CONFIG_PREFIX + "." + GROUPBY_TRIM_THRESHOLD;
     public static final int DEFAULT_QUERY_EXECUTOR_GROUPBY_TRIM_THRESHOLD = 1_000_000;
+    // When the number of groups in the server combine operator reaches the spill threshold, the groups are spilled to
+    // the spill directory instead of being trimmed, so that the results are accurate (only applies to queries with
+    // ORDER BY). Non-positive value means turning off spilling.
+    public static final String GROUPBY_SPILL_THRESHOLD = "groupby.spill.threshold";
+    public static final String CONFIG_OF_QUERY_EXECUTOR_GROUPBY_SPILL_THRESHOLD =
+        QUERY_EXECUTOR_CONFIG_PREFIX + "." + GROUPBY_SPILL_THRESHOLD;
+    public static final int DEFAULT_QUERY_EXECUTOR_GROUPBY_SPILL_THRESHOLD = 0;
+    public static final String GROUPBY_SPILL_DIR = "groupby.spill.dir";
+    public static final String CONFIG_OF_QUERY_EXECUTOR_GROUPBY_SPILL_DIR =
+        QUERY_EXECUTOR_CONFIG_PREFIX + "." + GROUPBY_SPILL_DIR;
     public static final String CONFIG_OF_MSE_MIN_GROUP_TRIM_SIZE = MSE_CONFIG_PREFIX + ".min.group.trim.size";
     // Match the value of GroupByUtils.DEFAULT_MIN_NUM_GROUPS
     public static final int DEFAULT_MSE_MIN_GROUP_TRIM_SIZE = 5000;
@@ -1284,6 +1319,28 @@ public class CommonConstants {
     public static final String LUCENE_MIN_REFRESH_INTERVAL_MS = "pinot.server.lucene.min.refresh.interval.ms";
     public static final int DEFAULT_LUCENE_MIN_REFRESH_INTERVAL_MS = 10;
 
+    // Max size of the server level cache of decompressed raw forward index chunks shared across queries, 0 to disable
+    // the cache
+    public static final String CONFIG_OF_FORWARD_INDEX_CHUNK_CACHE_MAX_SIZE_BYTES =
+        "pinot.server.forward.index.chunk.cache.max.size.bytes";
+    public static final long DEFAULT_FORWARD_INDEX_CHUNK_CACHE_MAX_SIZE_BYTES = 0L;
+
+    // Max size of the server level cache of the matching doc ids of the leaf predicates on immutable segments shared
+    // across queries, 0 to disable the cache
+    public static final String CONFIG_OF_FILTER_RESULT_CACHE_MAX_SIZE_BYTES =
+        "pinot.server.query.filter.result.cache.max.size.bytes";
+    public static final long DEFAULT_FILTER_RESULT_CACHE_MAX_SIZE_BYTES = 0L;
+
+    // Number of threads shared by the segment preprocessing to build the indexes of different columns of a segment
+    // concurrently, 0 to build them sequentially on the preprocessing thread
+    public static final String CONFIG_OF_SEGMENT_PREPROCESS_COLUMN_PARALLELISM =
+        "pinot.server.segment.preprocess.column.parallelism";
+    public static final int DEFAULT_SEGMENT_PREPROCESS_COLUMN_PARALLELISM = 0;
+    // Cap on the estimated memory used by the column indexes being built concurrently
+    public static final String CONFIG_OF_SEGMENT_PREPROCESS_COLUMN_MAX_MEMORY_BYTES =
+        "pinot.server.segment.preprocess.column.max.memory.bytes";
+    public static final long DEFAULT_SEGMENT_PREPROCESS_COLUMN_MAX_MEMORY_BYTES = 1024L * 1024 * 1024;
+
     public static final String CONFIG_OF_MESSAGES_COUNT_REFRESH_INTERVAL_SECONDS =
         "pinot.server.messagesCount.refreshIntervalSeconds";
     public static final int DEFAULT_MESSAGES_COUNT_REFRESH_INTERVAL_SECONDS = 30;
@@ -1841,6 +1898,8 @@ public class CommonConstants {
      */
     public static final String KEY_OF_MAX_ROWS_IN_JOIN = "pinot.query.join.max.rows";
     public static final String KEY_OF_JOIN_OVERFLOW_MODE = "pinot.query.join.overflow.mode";
+    public static final String KEY_OF_JOIN_SPILL_THRESHOLD = "pinot.query.join.spill.threshold";
+    public static final String KEY_OF_SORT_SPILL_THRESHOLD = "pinot.query.sort.spill.threshold";
 
     /// Specifies the send stats mode used in MSE.
     ///
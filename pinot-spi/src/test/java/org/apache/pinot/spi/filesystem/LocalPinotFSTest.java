@@ -20,12 +20,15 @@ package org.apache.pinot.spi.filesystem;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -310,4 +313,19 @@ public class LocalPinotFSTest {
         expectedRecursive.containsAll(fileMetadata.stream().map(FileMetadata::getFilePath).collect(Collectors.toSet())),
         fileMetadata.toString());
   }
+
+  @Test
+  public void testOpenRange()
+      throws IOException {
+    LocalPinotFS localPinotFS = new LocalPinotFS();
+    File testFile = new File(_absoluteTmpDirPath, "testOpenRange");
+    FileUtils.writeStringToFile(testFile, "0123456789", StandardCharsets.UTF_8);
+    try (InputStream inputStream = localPinotFS.open(testFile.toURI(), 3, 4)) {
+      Assert.assertEquals(IOUtils.toString(inputStream, StandardCharsets.UTF_8), "3456");
+    }
+    // The range is truncated at the end of the file
+    try (InputStream inputStream = localPinotFS.open(testFile.toURI(), 8, 4)) {
+      Assert.assertEquals(IOUtils.toString(inputStream, StandardCharsets.UTF_8), "89");
+    }
+  }
 }
@@ -0,0 +1,342 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pinot.spi.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+
+public class PrefetchingPartitionGroupConsumerTest {
+  private static final int NUM_MESSAGES = 100;
+  private static final int BATCH_SIZE = 10;
+  private static final int MESSAGE_SIZE = 8;
+  private static final int FETCH_TIMEOUT_MS = 10_000;
+  private static final String FETCH_THREAD_NAME = "testPrefetch";
+
+  @Test
+  public void testSequentialConsumption()
+      throws Exception {
+    InMemoryConsumer inMemoryConsumer = new InMemoryConsumer();
+    try (PrefetchingPartitionGroupConsumer consumer = new PrefetchingPartitionGroupConsumer(inMemoryConsumer,
+        Long.MAX_VALUE, FETCH_THREAD_NAME)) {
+      StreamPartitionMsgOffset offset = new LongMsgOffset(0);
+      for (int i = 0; i < NUM_MESSAGES / BATCH_SIZE; i++) {
+        MessageBatch messageBatch = consumer.fetchMessages(offset, FETCH_TIMEOUT_MS);
+        assertEquals(messageBatch.getMessageCount(), BATCH_SIZE);
+        for (int j = 0; j < BATCH_SIZE; j++) {
+          assertEquals(getValue(messageBatch, j), i * BATCH_SIZE + j);
+        }
+        offset = messageBatch.getOffsetOfNextBatch();
+      }
+      assertEquals(((LongMsgOffset) offset).getOffset(), NUM_MESSAGES);
+      MessageBatch messageBatch = consumer.fetchMessages(offset, FETCH_TIMEOUT_MS);
+      assertEquals(messageBatch.getMessageCount(), 0);
+      assertEquals(messageBatch.getUnfilteredMessageCount(), 0);
+    }
+    assertTrue(inMemoryConsumer._closed);
+  }
+
+  @Test
+  public void testPrefetchBoundedByBytes()
+      throws Exception {
+    InMemoryConsumer inMemoryConsumer = new InMemoryConsumer();
+    // Buffer can hold 2 batches
+    long maxBufferedBytes = 2 * BATCH_SIZE * MESSAGE_SIZE;
+    try (PrefetchingPartitionGroupConsumer consumer = new PrefetchingPartitionGroupConsumer(inMemoryConsumer,
+        maxBufferedBytes, FETCH_THREAD_NAME)) {
+      MessageBatch messageBatch = consumer.fetchMessages(new LongMsgOffset(0), FETCH_TIMEOUT_MS);
+      assertEquals(getValue(messageBatch, 0), 0);
+      // The first returned batch is not buffered, so 2 more batches should be fetched ahead
+      waitForNumFetches(inMemoryConsumer, 3);
+      Thread.sleep(100L);
+      assertEquals(inMemoryConsumer._numFetches.get(), 3);
+
+      // Taking a batch from the buffer should trigger one more fetch
+      messageBatch = consumer.fetchMessages(messageBatch.getOffsetOfNextBatch(), FETCH_TIMEOUT_MS);
+      assertEquals(getValue(messageBatch, 0), BATCH_SIZE);
+      waitForNumFetches(inMemoryConsumer, 4);
+      Thread.sleep(100L);
+      assertEquals(inMemoryConsumer._numFetches.get(), 4);
+    }
+  }
+
+  @Test
+  public void testOffsetMismatch()
+      throws Exception {
+    InMemoryConsumer inMemoryConsumer = new InMemoryConsumer();
+    try (PrefetchingPartitionGroupConsumer consumer = new PrefetchingPartitionGroupConsumer(inMemoryConsumer,
+        Long.MAX_VALUE, FETCH_THREAD_NAME)) {
+      MessageBatch messageBatch = consumer.fetchMessages(new LongMsgOffset(0), FETCH_TIMEOUT_MS);
+      assertEquals(getValue(messageBatch, 0), 0);
+
+      // Only part of the batch is processed
+      messageBatch = consumer.fetchMessages(new LongMsgOffset(5), FETCH_TIMEOUT_MS);
+      assertEquals(messageBatch.getMessageCount(), BATCH_SIZE);
+      assertEquals(getValue(messageBatch, 0), 5);
+
+      // Consumption is rewound
+      messageBatch = consumer.fetchMessages(new LongMsgOffset(0), FETCH_TIMEOUT_MS);
+      assertEquals(getValue(messageBatch, 0), 0);
+      messageBatch = consumer.fetchMessages(messageBatch.getOffsetOfNextBatch(), FETCH_TIMEOUT_MS);
+      assertEquals(getValue(messageBatch, 0), BATCH_SIZE);
+    }
+  }
+
+  @Test
+  public void testFetchException()
+      throws Exception {
+    InMemoryConsumer inMemoryConsumer = new InMemoryConsumer();
+    inMemoryConsumer._failOffset = 2 * BATCH_SIZE;
+    try (PrefetchingPartitionGroupConsumer consumer = new PrefetchingPartitionGroupConsumer(inMemoryConsumer,
+        Long.MAX_VALUE, FETCH_THREAD_NAME)) {
+      MessageBatch messageBatch = consumer.fetchMessages(new LongMsgOffset(0), FETCH_TIMEOUT_MS);
+      assertEquals(getValue(messageBatch, 0), 0);
+      // Batches fetched before the failure should be returned first
+      StreamPartitionMsgOffset offset = messageBatch.getOffsetOfNextBatch();
+      messageBatch = consumer.fetchMessages(offset, FETCH_TIMEOUT_MS);
+      assertEquals(getValue(messageBatch, 0), BATCH_SIZE);
+      StreamPartitionMsgOffset failOffset = messageBatch.getOffsetOfNextBatch();
+      expectThrows(TransientConsumerException.class, () -> consumer.fetchMessages(failOffset, FETCH_TIMEOUT_MS));
+
+      // Retry should fetch the same offset again
+      messageBatch = consumer.fetchMessages(failOffset, FETCH_TIMEOUT_MS);
+      assertEquals(getValue(messageBatch, 0), 2 * BATCH_SIZE);
+    }
+  }
+
+  @Test
+  public void testFetchTimeout()
+      throws Exception {
+    InMemoryConsumer inMemoryConsumer = new InMemoryConsumer();
+    inMemoryConsumer._fetchDelayMs = 500;
+    try (PrefetchingPartitionGroupConsumer consumer = new PrefetchingPartitionGroupConsumer(inMemoryConsumer,
+        Long.MAX_VALUE, FETCH_THREAD_NAME)) {
+      // Empty batch should be returned when no batch is fetched within the timeout
+      LongMsgOffset startOffset = new LongMsgOffset(0);
+      MessageBatch messageBatch = consumer.fetchMessages(startOffset, 10);
+      assertEquals(messageBatch.getMessageCount(), 0);
+      assertEquals(messageBatch.getUnfilteredMessageCount(), 0);
+      assertFalse(messageBatch.isEndOfPartitionGroup());
+
+      // The in-flight fetch should be picked up by the next call
+      messageBatch = consumer.fetchMessages(startOffset, FETCH_TIMEOUT_MS);
+      assertEquals(getValue(messageBatch, 0), 0);
+    }
+  }
+
+  @Test
+  public void testIdlePartitionsDoNotDelayActivePartitions()
+      throws Exception {
+    // More partitions than processors, where the idle partitions block the fetch until the fetch timeout (long poll)
+    int numIdleConsumers = Runtime.getRuntime().availableProcessors() + 2;
+    int idleFetchDelayMs = 2000;
+    List<InMemoryConsumer> inMemoryConsumers = new ArrayList<>(numIdleConsumers);
+    List<PrefetchingPartitionGroupConsumer> idleConsumers = new ArrayList<>(numIdleConsumers);
+    for (int i = 0; i < numIdleConsumers; i++) {
+      InMemoryConsumer inMemoryConsumer = new InMemoryConsumer();
+      inMemoryConsumer._fetchDelayMs = idleFetchDelayMs;
+      inMemoryConsumers.add(inMemoryConsumer);
+      PrefetchingPartitionGroupConsumer idleConsumer =
+          new PrefetchingPartitionGroupConsumer(inMemoryConsumer, Long.MAX_VALUE, FETCH_THREAD_NAME + i);
+      idleConsumers.add(idleConsumer);
+      assertEquals(idleConsumer.fetchMessages(new LongMsgOffset(0), 10).getMessageCount(), 0);
+    }
+
+    // The active partition should not wait for the fetches of the idle partitions
+    InMemoryConsumer activeInMemoryConsumer = new InMemoryConsumer();
+    try (PrefetchingPartitionGroupConsumer activeConsumer = new PrefetchingPartitionGroupConsumer(
+        activeInMemoryConsumer, Long.MAX_VALUE, FETCH_THREAD_NAME)) {
+      StreamPartitionMsgOffset offset = new LongMsgOffset(0);
+      for (int i = 0; i < NUM_MESSAGES / BATCH_SIZE; i++) {
+        MessageBatch messageBatch = activeConsumer.fetchMessages(offset, idleFetchDelayMs / 2);
+        assertEquals(messageBatch.getMessageCount(), BATCH_SIZE);
+        assertEquals(getValue(messageBatch, 0), i * BATCH_SIZE);
+        offset = messageBatch.getOffsetOfNextBatch();
+      }
+    }
+
+    for (int i = 0; i < numIdleConsumers; i++) {
+      idleConsumers.get(i).close();
+      assertTrue(inMemoryConsumers.get(i)._closed);
+      assertFalse(inMemoryConsumers.get(i)._concurrentAccess);
+    }
+  }
+
+  @Test
+  public void testCheckpointWaitsForInFlightFetch()
+      throws Exception {
+    InMemoryConsumer inMemoryConsumer = new InMemoryConsumer();
+    inMemoryConsumer._fetchDelayMs = 200;
+    try (PrefetchingPartitionGroupConsumer consumer = new PrefetchingPartitionGroupConsumer(inMemoryConsumer,
+        Long.MAX_VALUE, FETCH_THREAD_NAME)) {
+      MessageBatch messageBatch = consumer.fetchMessages(new LongMsgOffset(0), FETCH_TIMEOUT_MS);
+      assertEquals(getValue(messageBatch, 0), 0);
+      // The next batch is being fetched in the background
+      StreamPartitionMsgOffset offset = messageBatch.getOffsetOfNextBatch();
+      assertEquals(consumer.checkpoint(offset), offset);
+      assertEquals(inMemoryConsumer._numCheckpoints.get(), 1);
+
+      // Prefetching should resume after the checkpoint
+      messageBatch = consumer.fetchMessages(offset, FETCH_TIMEOUT_MS);
+      assertEquals(getValue(messageBatch, 0), BATCH_SIZE);
+    }
+    assertFalse(inMemoryConsumer._concurrentAccess);
+    assertFalse(inMemoryConsumer._interrupted);
+  }
+
+  @Test
+  public void testCloseWaitsForInFlightFetch()
+      throws Exception {
+    InMemoryConsumer inMemoryConsumer = new InMemoryConsumer();
+    inMemoryConsumer._fetchDelayMs = 200;
+    PrefetchingPartitionGroupConsumer consumer =
+        new PrefetchingPartitionGroupConsumer(inMemoryConsumer, Long.MAX_VALUE, FETCH_THREAD_NAME);
+    // Return before the first batch is fetched, so that the fetch is still in progress when closing the consumer
+    MessageBatch messageBatch = consumer.fetchMessages(new LongMsgOffset(0), 10);
+    assertEquals(messageBatch.getMessageCount(), 0);
+    consumer.close();
+
+    // The in-flight fetch should not be interrupted, and the wrapped consumer should be closed after it
+    assertTrue(inMemoryConsumer._closed);
+    assertFalse(inMemoryConsumer._concurrentAccess);
+    assertFalse(inMemoryConsumer._interrupted);
+    assertEquals(inMemoryConsumer._numFetches.get(), 1);
+    expectThrows(IllegalStateException.class, () -> consumer.fetchMessages(new LongMsgOffset(0), FETCH_TIMEOUT_MS));
+  }
+
+  private static int getValue(MessageBatch<?> messageBatch, int index) {
+    byte[] value = (byte[]) messageBatch.getStreamMessage(index).getValue();
+    return Integer.parseInt(new String(value).trim());
+  }
+
+  private static void waitForNumFetches(InMemoryConsumer inMemoryConsumer, int numFetches)
+      throws InterruptedException {
+    long deadlineMs = System.currentTimeMillis() + FETCH_TIMEOUT_MS;
+    while (inMemoryConsumer._numFetches.get() < numFetches) {
+      assertTrue(System.currentTimeMillis() < deadlineMs, "Timed out waiting for fetches");
+      Thread.sleep(10L);
+    }
+  }
+
+  /**
+   * In-memory stream partition where the value of each message is its offset padded to {@link #MESSAGE_SIZE} bytes.
+   */
+  private static class InMemoryConsumer implements PartitionGroupConsumer {
+    final AtomicInteger _numFetches = new AtomicInteger();
+    final AtomicInteger _numCheckpoints = new AtomicInteger();
+    // Number of threads accessing the consumer, which is not thread safe
+    final AtomicInteger _numAccessingThreads = new AtomicInteger();
+    volatile long _failOffset = -1;
+    volatile long _fetchDelayMs;
+    volatile boolean _closed;
+    volatile boolean _concurrentAccess;
+    volatile boolean _interrupted;
+
+    @Override
+    public MessageBatch fetchMessages(StreamPartitionMsgOffset startOffset, int timeoutMs)
+        throws TimeoutException {
+      startAccess();
+      try {
+        return fetch(startOffset);
+      } finally {
+        endAccess();
+      }
+    }
+
+    private MessageBatch fetch(StreamPartitionMsgOffset startOffset) {
+      _numFetches.incrementAndGet();
+      long offset = ((LongMsgOffset) startOffset).getOffset();
+      if (offset == _failOffset) {
+        _failOffset = -1;
+        throw new TransientConsumerException(new RuntimeException("Failed to fetch offset: " + offset));
+      }
+      if (_fetchDelayMs > 0) {
+        try {
+          Thread.sleep(_fetchDelayMs);
+        } catch (InterruptedException e) {
+          _interrupted = true;
+          Thread.currentThread().interrupt();
+        }
+      }
+      List<BytesStreamMessage> messages = new ArrayList<>();
+      for (long i = offset; i < Math.min(offset + BATCH_SIZE, NUM_MESSAGES); i++) {
+        byte[] value = String.format("%" + MESSAGE_SIZE + "d", i).getBytes();
+        StreamMessageMetadata metadata = new StreamMessageMetadata.Builder().setRecordIngestionTimeMs(i)
+            .setOffset(new LongMsgOffset(i), new LongMsgOffset(i + 1)).build();
+        messages.add(new BytesStreamMessage(value, metadata));
+      }
+      long nextOffset = offset + messages.size();
+      return new MessageBatch<byte[]>() {
+        @Override
+        public int getMessageCount() {
+          return messages.size();
+        }
+
+        @Override
+        public StreamMessage<byte[]> getStreamMessage(int index) {
+          return messages.get(index);
+        }
+
+        @Override
+        public StreamPartitionMsgOffset getOffsetOfNextBatch() {
+          return new LongMsgOffset(nextOffset);
+        }
+      };
+    }
+
+    @Override
+    public StreamPartitionMsgOffset checkpoint(StreamPartitionMsgOffset lastOffset) {
+      startAccess();
+      try {
+        _numCheckpoints.incrementAndGet();
+        return lastOffset;
+      } finally {
+        endAccess();
+      }
+    }
+
+    @Override
+    public void close() {
+      startAccess();
+      try {
+        _closed = true;
+      } finally {
+        endAccess();
+      }
+    }
+
+    private void startAccess() {
+      if (_numAccessingThreads.incrementAndGet() > 1) {
+        _concurrentAccess = true;
+      }
+    }
+
+    private void endAccess() {
+      _numAccessingThreads.decrementAndGet();
+    }
+  }
+}